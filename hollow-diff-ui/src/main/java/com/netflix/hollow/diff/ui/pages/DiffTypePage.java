@@ -108,7 +108,7 @@ public class DiffTypePage extends DiffPage {
                         typeDiff.getTypeName(),
                         i,
                         fieldDiff.getFieldIdentifier().toString(),
-                        fieldDiff.getNumDiffs(),
+                        fieldDiff.getTotalNumDiffs(),
                         typeDiff.getTotalNumberOfMatches(),
                         fieldDiff.getTotalDiffScore())
             );
@@ -23,6 +23,7 @@ import com.netflix.hollow.explorer.ui.pages.BrowseSchemaPage;
 import com.netflix.hollow.explorer.ui.pages.BrowseSelectedTypePage;
 import com.netflix.hollow.explorer.ui.pages.QueryPage;
 import com.netflix.hollow.explorer.ui.pages.ShowAllTypesPage;
+import com.netflix.hollow.tools.query.HollowFieldMatchQuery;
 import com.netflix.hollow.ui.HollowUIRouter;
 import com.netflix.hollow.ui.HollowUISession;
 import java.io.IOException;
@@ -47,6 +48,8 @@ public class HollowExplorerUI extends HollowUIRouter {
     private final BrowseSchemaPage browseSchemaPage;
     private final QueryPage queryPage;
     
+    private HollowFieldMatchQuery fieldMatchQuery;
+    
     public HollowExplorerUI(String baseUrlPath, HollowConsumer consumer) {
         this(baseUrlPath, consumer, null, null);
     }
@@ -110,6 +113,16 @@ public class HollowExplorerUI extends HollowUIRouter {
         return stateEngine;
     }
 
+    /**
+     * @return a query of the current state engine, which caches its results until the state engine is updated
+     */
+    public synchronized HollowFieldMatchQuery getFieldMatchQuery() {
+        HollowReadStateEngine currentStateEngine = getStateEngine();
+        if(fieldMatchQuery == null || fieldMatchQuery.getStateEngine() != currentStateEngine)
+            fieldMatchQuery = new HollowFieldMatchQuery(currentStateEngine);
+        return fieldMatchQuery;
+    }
+
     public String getHeaderDisplayString() {
         return headerDisplayMap.get(HEADER_DISPLAY_STRING);
     }
@@ -61,20 +61,27 @@ public class QueryResult {
     }
     
     public void recalculateIfNotCurrent(HollowReadStateEngine stateEngine) {
+        recalculateIfNotCurrent(stateEngine, new HollowFieldMatchQuery(stateEngine));
+    }
+    
+    public void recalculateIfNotCurrent(HollowReadStateEngine stateEngine, HollowFieldMatchQuery query) {
         if(stateEngine.getCurrentRandomizedTag() != randomizedStateTag) {        
             queryMatches.clear();
             List<QueryClause> requeryClauses = new ArrayList<QueryClause>(this.queryClauses);
             this.queryClauses.clear();
     
             for(QueryClause clause : requeryClauses)
-                augmentQuery(clause, stateEngine);
+                augmentQuery(clause, stateEngine, query);
         
             randomizedStateTag = stateEngine.getCurrentRandomizedTag();
         }
     }
     
     public void augmentQuery(QueryClause clause, HollowReadStateEngine stateEngine) {
-        HollowFieldMatchQuery query = new HollowFieldMatchQuery(stateEngine);
+        augmentQuery(clause, stateEngine, new HollowFieldMatchQuery(stateEngine));
+    }
+    
+    public void augmentQuery(QueryClause clause, HollowReadStateEngine stateEngine, HollowFieldMatchQuery query) {
         Map<String, BitSet> clauseMatches = clause.getType() != null ? query.findMatchingRecords(clause.getType(), clause.getField(), clause.getValue()) : query.findMatchingRecords(clause.getField(), clause.getValue());
         TransitiveSetTraverser.addReferencingOutsideClosure(stateEngine, clauseMatches);
                 
@@ -70,7 +70,7 @@ public class BrowseSelectedTypePage extends HollowExplorerPage {
         if(session.getAttribute(SESSION_ATTR_QUERY_RESULT) != null) {
             QueryResult queryResult =
                 (QueryResult) session.getAttribute(SESSION_ATTR_QUERY_RESULT);
-            queryResult.recalculateIfNotCurrent(ui.getStateEngine());
+            queryResult.recalculateIfNotCurrent(ui.getStateEngine(), ui.getFieldMatchQuery());
             
             selectedOrdinals = queryResult.getQueryMatches().get(typeState.getSchema().getName());
             if(selectedOrdinals == null)
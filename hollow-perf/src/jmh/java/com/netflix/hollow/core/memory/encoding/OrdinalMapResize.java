@@ -2,7 +2,13 @@ package com.netflix.hollow.core.memory.encoding;
 
 import com.netflix.hollow.core.memory.ByteArrayOrdinalMap;
 import com.netflix.hollow.core.memory.ByteDataArray;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -14,6 +20,7 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 
 @State(Scope.Thread)
@@ -63,6 +70,55 @@ public class OrdinalMapResize {
         }
         return map;
     }
+
+    /**
+     * Populates a map from a number of threads, each adding every other record of its own share of the content
+     * followed by all of the content, so that both the assignment of new ordinals and the lookup of existing ones are
+     * contended.
+     */
+    @Benchmark
+    public ByteArrayOrdinalMap threadedGet(Population population) throws InterruptedException, ExecutionException {
+        ByteArrayOrdinalMap map = new ByteArrayOrdinalMap();
+        map.setConcurrentAssignment(population.concurrent);
+
+        List<Future<?>> results = new ArrayList<>(population.threads);
+        for (int t = 0; t < population.threads; t++) {
+            int thread = t;
+            results.add(population.executor.submit(() -> {
+                for (int i = thread; i < n; i += population.threads) {
+                    map.getOrAssignOrdinal(content[i]);
+                }
+                for (int i = 0; i < n; i++) {
+                    map.getOrAssignOrdinal(content[(i + thread) % n]);
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        return map;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Population {
+        @Param( {"1", "2", "4", "8", "16", "32"})
+        int threads = 1;
+
+        @Param( {"false", "true"})
+        boolean concurrent;
+
+        ExecutorService executor;
+
+        @Setup
+        public void setUp() {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+
+        @TearDown
+        public void tearDown() {
+            executor.shutdown();
+        }
+    }
 }
 
 /*
@@ -0,0 +1,138 @@
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.compress.HollowBlockCodec;
+import com.netflix.hollow.core.compress.HollowBlockCompression;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the wall time to write and to read an on-heap snapshot which is not compressed, compressed as a single gzip
+ * stream, or block-compressed with a number of threads.  {@link #write} reports the size of the snapshot in each case
+ * with the {@code snapshotBytes} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BlockCompressedSnapshotBenchmark {
+
+    @Param( {"none", "gzip", "block"})
+    String compression;
+
+    @Param( {"1", "4", "8"})
+    int threads;
+
+    @Param( {"8"})
+    int numTypes;
+
+    @Param( {"500000"})
+    int recordsPerType;
+
+    private HollowWriteStateEngine writeEngine;
+    private byte[] snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        Logger.getLogger(HollowBlobReader.class.getName()).setLevel(Level.OFF);
+
+        writeEngine = new HollowWriteStateEngine();
+        for (int t = 0; t < numTypes; t++) {
+            HollowObjectSchema schema = new HollowObjectSchema("Type" + t, 3);
+            schema.addField("id", HollowObjectSchema.FieldType.INT);
+            schema.addField("value", HollowObjectSchema.FieldType.LONG);
+            schema.addField("name", HollowObjectSchema.FieldType.STRING);
+            writeEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+
+            HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+            for (int i = 0; i < recordsPerType; i++) {
+                rec.reset();
+                rec.setInt("id", i);
+                rec.setLong("value", (long) i * t);
+                rec.setString("name", "name-" + t + "-" + i);
+                writeEngine.add(schema.getName(), rec);
+            }
+        }
+
+        snapshot = writeSnapshot().toByteArray();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream write(SnapshotSize size) throws IOException {
+        ByteArrayOutputStream baos = writeSnapshot();
+        size.snapshotBytes = baos.size();
+        return baos;
+    }
+
+    @Benchmark
+    public HollowReadStateEngine read() throws IOException {
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readEngine);
+
+        InputStream is = new ByteArrayInputStream(snapshot);
+        if (compression.equals("gzip"))
+            is = new GZIPInputStream(is, 1 << 16);
+        else if (compression.equals("block"))
+            is = HollowBlockCompression.decompressing(is, threads);
+
+        try (HollowBlobInput in = HollowBlobInput.serial(is)) {
+            reader.readSnapshot(in);
+        }
+
+        return readEngine;
+    }
+
+    private ByteArrayOutputStream writeSnapshot() throws IOException {
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+        if (compression.equals("block"))
+            writer.setBlockCompression(new HollowBlockCompression(HollowBlockCodec.DEFLATE, HollowBlockCompression.DEFAULT_BLOCK_SIZE, threads));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OutputStream os = compression.equals("gzip") ? new GZIPOutputStream(baos, 1 << 16) : baos) {
+            writer.writeSnapshot(os);
+        }
+        return baos;
+    }
+
+    /**
+     * The size of the snapshot written in the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SnapshotSize {
+        public long snapshotBytes;
+
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void reset() {
+            snapshotBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.util.StateEngineRoundTripper;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares decoding a single field of many records with the bulk read methods of {@link HollowObjectTypeReadState}
+ * against reading each ordinal in turn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BulkFieldReadBenchmark {
+
+    @Param( {"100000"})
+    int numRecords;
+
+    @Param( {"1", "4"})
+    int numShards;
+
+    /// percentage of ordinals selected in the BitSet benchmarks
+    @Param( {"10", "90"})
+    int selectedPercent;
+
+    private HollowObjectTypeReadState typeState;
+    private int intField;
+    private int longField;
+    private int doubleField;
+    private BitSet selectedOrdinals;
+
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+
+    @Setup
+    public void setUp() throws IOException {
+        HollowObjectSchema schema = new HollowObjectSchema("Record", 4);
+        schema.addField("id", HollowObjectSchema.FieldType.INT);
+        schema.addField("intValue", HollowObjectSchema.FieldType.INT);
+        schema.addField("longValue", HollowObjectSchema.FieldType.LONG);
+        schema.addField("doubleValue", HollowObjectSchema.FieldType.DOUBLE);
+
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.addTypeState(new HollowObjectTypeWriteState(schema, numShards));
+
+        Random rand = new Random(1000);
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+        for (int i = 0; i < numRecords; i++) {
+            rec.reset();
+            rec.setInt("id", i);
+            rec.setInt("intValue", rand.nextInt(100000));
+            rec.setLong("longValue", rand.nextInt(Integer.MAX_VALUE));
+            rec.setDouble("doubleValue", rand.nextDouble());
+            writeEngine.add("Record", rec);
+        }
+
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        StateEngineRoundTripper.roundTripSnapshot(writeEngine, readEngine);
+
+        typeState = (HollowObjectTypeReadState) readEngine.getTypeState("Record");
+        intField = schema.getPosition("intValue");
+        longField = schema.getPosition("longValue");
+        doubleField = schema.getPosition("doubleValue");
+
+        selectedOrdinals = new BitSet(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            if (rand.nextInt(100) < selectedPercent)
+                selectedOrdinals.set(i);
+        }
+
+        ints = new int[numRecords];
+        longs = new long[numRecords];
+        doubles = new double[numRecords];
+    }
+
+    @Benchmark
+    public int[] readIntsPerOrdinal() {
+        for (int ordinal = 0; ordinal < numRecords; ordinal++)
+            ints[ordinal] = typeState.readInt(ordinal, intField);
+        return ints;
+    }
+
+    @Benchmark
+    public int[] readIntsBulk() {
+        typeState.readInts(intField, 0, numRecords, ints, 0);
+        return ints;
+    }
+
+    @Benchmark
+    public long[] readLongsPerOrdinal() {
+        for (int ordinal = 0; ordinal < numRecords; ordinal++)
+            longs[ordinal] = typeState.readLong(ordinal, longField);
+        return longs;
+    }
+
+    @Benchmark
+    public long[] readLongsBulk() {
+        typeState.readLongs(longField, 0, numRecords, longs, 0);
+        return longs;
+    }
+
+    @Benchmark
+    public double[] readDoublesPerOrdinal() {
+        for (int ordinal = 0; ordinal < numRecords; ordinal++)
+            doubles[ordinal] = typeState.readDouble(ordinal, doubleField);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] readDoublesBulk() {
+        typeState.readDoubles(doubleField, 0, numRecords, doubles, 0);
+        return doubles;
+    }
+
+    @Benchmark
+    public int[] readSelectedIntsPerOrdinal() {
+        int pos = 0;
+        for (int ordinal = selectedOrdinals.nextSetBit(0); ordinal != -1; ordinal = selectedOrdinals.nextSetBit(ordinal + 1))
+            ints[pos++] = typeState.readInt(ordinal, intField);
+        return ints;
+    }
+
+    @Benchmark
+    public int[] readSelectedIntsBulk() {
+        typeState.readInts(intField, selectedOrdinals, ints, 0);
+        return ints;
+    }
+}
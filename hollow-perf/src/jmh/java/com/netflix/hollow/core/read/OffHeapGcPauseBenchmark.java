@@ -0,0 +1,174 @@
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.pool.OffHeapRecycler;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the garbage collection pauses of a consumer which holds a large dataset on the heap with those of a consumer
+ * which holds it off of the heap, in the direct memory slabs of {@link MemoryMode#OFF_HEAP} mode.
+ * <p>
+ * {@link #applyDelta} alternately applies a delta and its reverse delta to the resident dataset, and reports the
+ * number of collections and the milliseconds spent in them over each iteration with the {@code gcCount} and
+ * {@code gcMillis} counters.  {@link #fullGc} reports the pause of a full collection while the dataset is resident.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class OffHeapGcPauseBenchmark {
+
+    @Param( {"ON_HEAP", "OFF_HEAP"})
+    MemoryMode memoryMode;
+
+    @Param( {"4000000"})
+    int numRecords;
+
+    @Param( {"5"})
+    int changedPercent;
+
+    private HollowBlobReader reader;
+    private byte[] delta;
+    private byte[] reverseDelta;
+    private boolean applyReverseDelta;
+
+    @Setup
+    public void setUp() throws IOException {
+        Logger.getLogger(HollowBlobReader.class.getName()).setLevel(Level.OFF);
+
+        HollowObjectSchema schema = new HollowObjectSchema("Record", 3);
+        schema.addField("id", HollowObjectSchema.FieldType.INT);
+        schema.addField("value", HollowObjectSchema.FieldType.LONG);
+        schema.addField("name", HollowObjectSchema.FieldType.STRING);
+
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+
+        addRecords(writeEngine, schema, 0);
+        writeEngine.prepareForWrite();
+        byte[] snapshot = write(writeEngine, BlobType.SNAPSHOT);
+        writeEngine.prepareForNextCycle();
+
+        addRecords(writeEngine, schema, 1);
+        writeEngine.prepareForWrite();
+        delta = write(writeEngine, BlobType.DELTA);
+        reverseDelta = write(writeEngine, BlobType.REVERSE_DELTA);
+
+        HollowReadStateEngine readEngine = memoryMode == MemoryMode.OFF_HEAP
+                ? new HollowReadStateEngine(new OffHeapRecycler())
+                : new HollowReadStateEngine();
+        reader = new HollowBlobReader(readEngine, memoryMode);
+        reader.readSnapshot(HollowBlobInput.serial(snapshot));
+    }
+
+    @Benchmark
+    public void applyDelta(GcCounters counters) throws IOException {
+        reader.applyDelta(HollowBlobInput.serial(applyReverseDelta ? reverseDelta : delta));
+        applyReverseDelta = !applyReverseDelta;
+        counters.update();
+    }
+
+    @Benchmark
+    public void fullGc() {
+        System.gc();
+    }
+
+    private void addRecords(HollowWriteStateEngine writeEngine, HollowObjectSchema schema, int cycle) {
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+        for (int i = 0; i < numRecords; i++) {
+            boolean changed = cycle > 0 && i % 100 < changedPercent;
+            rec.reset();
+            rec.setInt("id", i);
+            rec.setLong("value", changed ? (long) i * 31 : i);
+            rec.setString("name", (changed ? "changed-" : "name-") + i);
+            writeEngine.add(schema.getName(), rec);
+        }
+    }
+
+    private static byte[] write(HollowWriteStateEngine writeEngine, BlobType type) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+        switch (type) {
+            case SNAPSHOT:
+                writer.writeSnapshot(os);
+                break;
+            case DELTA:
+                writer.writeDelta(os);
+                break;
+            default:
+                writer.writeReverseDelta(os);
+        }
+        return os.toByteArray();
+    }
+
+    private enum BlobType {
+        SNAPSHOT, DELTA, REVERSE_DELTA
+    }
+
+    /**
+     * The collections since the beginning of the iteration, across all collectors.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class GcCounters {
+        public long gcCount;
+        public long gcMillis;
+
+        private long initialCount;
+        private long initialMillis;
+
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void reset() {
+            gcCount = 0;
+            gcMillis = 0;
+            initialCount = totalCount();
+            initialMillis = totalMillis();
+        }
+
+        void update() {
+            gcCount = totalCount() - initialCount;
+            gcMillis = totalMillis() - initialMillis;
+        }
+
+        private static long totalCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+                count += Math.max(0, gc.getCollectionCount());
+            return count;
+        }
+
+        private static long totalMillis() {
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+                millis += Math.max(0, gc.getCollectionTime());
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.map.HollowMapTypeReadState;
+import com.netflix.hollow.core.read.engine.set.HollowSetTypeReadState;
+import com.netflix.hollow.core.util.StateEngineRoundTripper;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowHashKey;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.core.write.objectmapper.HollowTypeName;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures lookups by hash key in SET and MAP records, keyed by a field of a referenced type as in a per-country
+ * availability map, with and without key fingerprints.
+ * <p>
+ * About a quarter of the looked up keys are present in the record and the rest are absent, so that both the probes
+ * which end at the matching key and the probes which run to an empty bucket are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SetMapLookupBenchmark {
+
+    private static final int NUM_LOOKUPS = 1024;
+
+    @Param( {"1000"})
+    int numRecords;
+
+    @Param( {"10", "200"})
+    int entriesPerRecord;
+
+    @Param( {"false", "true"})
+    boolean keyFingerprints;
+
+    private HollowSetTypeReadState setTypeState;
+    private HollowMapTypeReadState mapTypeState;
+
+    private int[] lookupOrdinals;
+    private String[] lookupCountries;
+    private int lookupIdx;
+
+    @Setup
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        Random rand = new Random(1000);
+        for (int i = 0; i < numRecords; i++)
+            mapper.add(new Video(i, rand, entriesPerRecord));
+
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        if (keyFingerprints) {
+            readEngine.enableKeyFingerprints("SetOfCountry");
+            readEngine.enableKeyFingerprints("MapOfCountryToAvailability");
+        }
+        StateEngineRoundTripper.roundTripSnapshot(writeEngine, readEngine);
+
+        setTypeState = (HollowSetTypeReadState) readEngine.getTypeState("SetOfCountry");
+        mapTypeState = (HollowMapTypeReadState) readEngine.getTypeState("MapOfCountryToAvailability");
+
+        /// the set and map of a video have the same ordinal, since every video has a distinct set and map
+        lookupOrdinals = new int[NUM_LOOKUPS];
+        lookupCountries = new String[NUM_LOOKUPS];
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            lookupOrdinals[i] = rand.nextInt(numRecords);
+            lookupCountries[i] = country(rand.nextInt(entriesPerRecord * 4));
+        }
+    }
+
+    @Benchmark
+    public int findElement() {
+        int i = nextLookup();
+        return setTypeState.findElement(lookupOrdinals[i], lookupCountries[i]);
+    }
+
+    @Benchmark
+    public int findValue() {
+        int i = nextLookup();
+        return mapTypeState.findValue(lookupOrdinals[i], lookupCountries[i]);
+    }
+
+    @Benchmark
+    public long findEntry() {
+        int i = nextLookup();
+        return mapTypeState.findEntry(lookupOrdinals[i], lookupCountries[i]);
+    }
+
+    private int nextLookup() {
+        lookupIdx = (lookupIdx + 1) & (NUM_LOOKUPS - 1);
+        return lookupIdx;
+    }
+
+    private static String country(int i) {
+        return "country" + i;
+    }
+
+    @SuppressWarnings("unused")
+    private static class Video {
+        int id;
+
+        @HollowTypeName(name = "SetOfCountry")
+        @HollowHashKey(fields = "code.value")
+        Set<Country> countries;
+
+        @HollowTypeName(name = "MapOfCountryToAvailability")
+        @HollowHashKey(fields = "code.value")
+        Map<Country, Availability> availability;
+
+        Video(int id, Random rand, int entriesPerRecord) {
+            this.id = id;
+            this.countries = new HashSet<>();
+            this.availability = new HashMap<>();
+            /// only even or only odd countries for each video, so that most lookups are of absent keys
+            while (countries.size() < entriesPerRecord) {
+                Country country = new Country(country(rand.nextInt(entriesPerRecord * 2) * 2 + (id & 1)));
+                if (countries.add(country))
+                    availability.put(country, new Availability(id, rand.nextBoolean()));
+            }
+        }
+    }
+
+    private static class Country {
+        String code;
+
+        Country(String code) {
+            this.code = code;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Country && ((Country) o).code.equals(code);
+        }
+
+        @Override
+        public int hashCode() {
+            return code.hashCode();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Availability {
+        int videoId;
+        boolean available;
+
+        Availability(int videoId, boolean available) {
+            this.videoId = videoId;
+            this.available = available;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the wall time to load a snapshot of several independent types versus the number of snapshot load threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SnapshotLoadBenchmark {
+
+    @Param( {"1", "2", "4", "8"})
+    int threads;
+
+    @Param( {"16"})
+    int numTypes;
+
+    @Param( {"500000"})
+    int recordsPerType;
+
+    private File snapshotFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        Logger.getLogger(HollowBlobReader.class.getName()).setLevel(Level.OFF);
+
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        for (int t = 0; t < numTypes; t++) {
+            HollowObjectSchema schema = new HollowObjectSchema("Type" + t, 3);
+            schema.addField("id", HollowObjectSchema.FieldType.INT);
+            schema.addField("value", HollowObjectSchema.FieldType.LONG);
+            schema.addField("name", HollowObjectSchema.FieldType.STRING);
+            writeEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+
+            HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+            for (int i = 0; i < recordsPerType; i++) {
+                rec.reset();
+                rec.setInt("id", i);
+                rec.setLong("value", (long) i * t);
+                rec.setString("name", "name-" + t + "-" + i);
+                writeEngine.add(schema.getName(), rec);
+            }
+        }
+
+        snapshotFile = File.createTempFile("snapshot-load", null);
+        try (BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(snapshotFile))) {
+            new HollowBlobWriter(writeEngine).writeSnapshot(out);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        snapshotFile.delete();
+    }
+
+    @Benchmark
+    public HollowReadStateEngine sharedMemory() throws IOException {
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readEngine, MemoryMode.SHARED_MEMORY_LAZY);
+        reader.setSnapshotLoadThreads(threads);
+
+        try (HollowBlobInput in = HollowBlobInput.randomAccess(snapshotFile)) {
+            reader.readSnapshot(in);
+        }
+
+        return readEngine;
+    }
+
+    @Benchmark
+    public HollowReadStateEngine onHeap() throws IOException {
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readEngine);
+
+        BufferedInputStream is = new BufferedInputStream(new FileInputStream(snapshotFile));
+        try (HollowBlobInput in = HollowBlobInput.serial(threads > 1 ? new ReadAheadInputStream(is) : is)) {
+            reader.readSnapshot(in);
+        }
+
+        return readEngine;
+    }
+}
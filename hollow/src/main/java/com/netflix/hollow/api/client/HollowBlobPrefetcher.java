@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.client;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Retrieves the data of a sequence of blobs ahead of their application, so that the round trips to blob storage for
+ * the later transitions of an update plan are overlapped with applying the earlier ones.
+ * <p>
+ * Up to {@code maxConcurrentFetches} blobs following the blob being applied are retrieved concurrently, each into
+ * memory in its entirety.  The size of a blob is not known until it has been retrieved, so the largest blob retrieved
+ * so far is taken as an estimate: a retrieval is started only if the bytes held by blobs which have not been released,
+ * plus the estimate for each retrieval under way and for the new one, are within {@code maxBytesInFlight}.  Until a
+ * blob has been retrieved, and whenever no blob is outstanding ahead of the one being applied, only the next blob is
+ * retrieved; a blob larger than the limit is therefore still retrieved, one at a time.
+ * <p>
+ * Blobs must be taken in the order given, and the bytes of each are released when it is closed.
+ */
+class HollowBlobPrefetcher implements AutoCloseable {
+
+    static final int CHUNK_SIZE = 1 << 20;
+
+    private final List<HollowConsumer.Blob> blobs;
+    private final int maxConcurrentFetches;
+    private final long maxBytesInFlight;
+    private final SimultaneousExecutor executor;
+    private final Fetch[] fetches;
+
+    /// guarded by this
+    private int nextToStart;
+    private int nextToTake;
+    private long bytesInFlight;
+    private long largestBlobSize;
+    private int numRetrieving;
+    private boolean closed;
+
+    HollowBlobPrefetcher(List<HollowConsumer.Blob> blobs, int maxConcurrentFetches, long maxBytesInFlight) {
+        if(maxConcurrentFetches < 1)
+            throw new IllegalArgumentException("maxConcurrentFetches must be at least 1");
+        if(maxBytesInFlight < 1)
+            throw new IllegalArgumentException("maxBytesInFlight must be positive");
+
+        this.blobs = new ArrayList<>(blobs);
+        this.maxConcurrentFetches = maxConcurrentFetches;
+        this.maxBytesInFlight = maxBytesInFlight;
+        this.executor = new SimultaneousExecutor(Math.min(maxConcurrentFetches, Math.max(1, blobs.size())),
+                HollowBlobPrefetcher.class, "prefetch");
+        this.fetches = new Fetch[blobs.size()];
+
+        startFetches();
+    }
+
+    /**
+     * Waits for the next blob to be retrieved.
+     *
+     * @param blob the next blob in the sequence
+     * @return the retrieved blob
+     * @throws IOException if the blob could not be retrieved
+     * @throws IllegalStateException if the blob is not the next blob in the sequence
+     */
+    Fetch take(HollowConsumer.Blob blob) throws IOException {
+        Fetch fetch;
+        synchronized(this) {
+            if(closed)
+                throw new IllegalStateException("Prefetcher is closed");
+            if(nextToTake >= blobs.size() || blobs.get(nextToTake) != blob)
+                throw new IllegalStateException("Blobs must be taken in the order they are prefetched");
+
+            fetch = fetches[nextToTake++];
+            /// the slot in the window occupied by this blob is now free
+            startFetches();
+        }
+
+        try {
+            fetch.chunks = fetch.result.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(fetch);
+            throw new InterruptedIOException("Interrupted while waiting for blob " + describe(blob));
+        } catch(ExecutionException e) {
+            release(fetch);
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException)
+                throw (IOException) cause;
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if(cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException("Failed to retrieve blob " + describe(blob), cause);
+        }
+
+        return fetch;
+    }
+
+    @Override
+    public void close() {
+        synchronized(this) {
+            closed = true;
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the number of bytes held by retrieved blobs which have not been released
+     */
+    synchronized long getBytesInFlight() {
+        return bytesInFlight;
+    }
+
+    private synchronized void startFetches() {
+        while(!closed && nextToStart < blobs.size()
+                && nextToStart - nextToTake < maxConcurrentFetches
+                && (nextToStart == nextToTake || withinLimit())) {
+            Fetch fetch = new Fetch(blobs.get(nextToStart));
+            fetches[nextToStart++] = fetch;
+            numRetrieving++;
+            fetch.result = executor.submit(fetch::retrieve);
+        }
+    }
+
+    private boolean withinLimit() {
+        return largestBlobSize > 0
+                && bytesInFlight + (numRetrieving + 1) * largestBlobSize <= maxBytesInFlight;
+    }
+
+    private synchronized void addBytes(Fetch fetch, int numBytes) {
+        fetch.size += numBytes;
+        bytesInFlight += numBytes;
+    }
+
+    private synchronized void retrieved(Fetch fetch) {
+        numRetrieving--;
+        largestBlobSize = Math.max(largestBlobSize, fetch.size);
+        startFetches();
+    }
+
+    private synchronized void release(Fetch fetch) {
+        if(fetch.released)
+            return;
+        fetch.released = true;
+        fetch.chunks = null;
+        bytesInFlight -= fetch.size;
+        startFetches();
+    }
+
+    private static String describe(HollowConsumer.Blob blob) {
+        return blob.getFromVersion() + " -> " + blob.getToVersion();
+    }
+
+    /**
+     * A blob which is being, or has been, retrieved into memory.
+     */
+    class Fetch implements AutoCloseable {
+        private final HollowConsumer.Blob blob;
+
+        private Future<List<byte[]>> result;
+        private List<byte[]> chunks;
+        private volatile long durationNanos;
+
+        /// guarded by the enclosing prefetcher
+        private long size;
+        private boolean released;
+
+        private Fetch(HollowConsumer.Blob blob) {
+            this.blob = blob;
+        }
+
+        private List<byte[]> retrieve() throws IOException {
+            long startTime = System.nanoTime();
+            List<byte[]> chunks = new ArrayList<>();
+            try(InputStream is = blob.getInputStream()) {
+                while(true) {
+                    byte[] chunk = new byte[CHUNK_SIZE];
+                    int length = 0;
+                    while(length < CHUNK_SIZE) {
+                        int bytesRead = is.read(chunk, length, CHUNK_SIZE - length);
+                        if(bytesRead == -1)
+                            break;
+                        length += bytesRead;
+                    }
+
+                    if(length > 0) {
+                        chunks.add(length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, length));
+                        addBytes(this, length);
+                    }
+
+                    if(length < CHUNK_SIZE)
+                        break;
+                }
+            } finally {
+                durationNanos = System.nanoTime() - startTime;
+                retrieved(this);
+            }
+            return chunks;
+        }
+
+        /**
+         * @return a stream over the retrieved bytes
+         */
+        InputStream getInputStream() {
+            List<InputStream> streams = new ArrayList<>(chunks.size());
+            for(byte[] chunk : chunks)
+                streams.add(new ByteArrayInputStream(chunk));
+            return new SequenceInputStream(Collections.enumeration(streams));
+        }
+
+        /**
+         * @return the time spent retrieving the blob, whether or not it was waited for
+         */
+        long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * Releases the retrieved bytes, allowing further blobs to be retrieved.
+         */
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+}
@@ -23,11 +23,14 @@ import com.netflix.hollow.api.metrics.HollowMetricsCollector;
 import com.netflix.hollow.core.HollowConstants;
 import com.netflix.hollow.core.memory.MemoryMode;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.OffHeapRecycler;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.filter.HollowFilterConfig;
 import com.netflix.hollow.core.read.filter.TypeFilter;
 import com.netflix.hollow.core.util.HollowObjectHashCodeFinder;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
@@ -56,6 +59,17 @@ public class HollowClientUpdater {
     private final HollowMetricsCollector<HollowConsumerMetrics> metricsCollector;
 
     private TypeFilter filter;
+    private int snapshotLoadThreads = 1;
+    private int deltaApplyThreads = 1;
+    private long targetMaxTypeShardSize = Long.MAX_VALUE;
+    private int deltaPrefetchConcurrency = 0;
+    private long deltaPrefetchMaxBytes = 0;
+    private int deltaSquashThreshold = 0;
+    private Set<String> stringCachedTypes = Collections.emptySet();
+    private Set<String> keyFingerprintedTypes = Collections.emptySet();
+    private boolean sharedMemoryWarmup = false;
+    private boolean readViewsEnabled = false;
+    private boolean inPlaceDoubleSnapshot = false;
 
     public HollowClientUpdater(HollowConsumer.BlobRetriever transitionCreator,
                                List<HollowConsumer.RefreshListener> refreshListeners,
@@ -150,7 +164,11 @@ public class HollowClientUpdater {
 
             if (updatePlan.isSnapshotPlan()) {  // 1 snapshot and 0+ delta transitions
                 HollowDataHolder oldDh = hollowDataHolderVolatile;
-                if (oldDh == null || doubleSnapshotConfig.allowDoubleSnapshot()) {
+                if (oldDh != null && inPlaceDoubleSnapshot && readViewsEnabled && doubleSnapshotConfig.allowDoubleSnapshot()
+                        && oldDh.updateInPlace(updatePlan, localListeners)) {
+                    metrics.updateSnapshotPeakTransientBytes(oldDh.getStateEngine().getLastSnapshotPeakTransientBytes());
+                    forceDoubleSnapshot = false;
+                } else if (oldDh == null || doubleSnapshotConfig.allowDoubleSnapshot()) {
                     HollowDataHolder newDh = newHollowDataHolder();
                     try {
                         /* We need to assign the volatile field after API init since it may be
@@ -169,6 +187,8 @@ public class HollowClientUpdater {
                         hollowDataHolderVolatile = oldDh;
                         throw t;
                     }
+                    if (oldDh != null)
+                        metrics.updateSnapshotPeakTransientBytes(newDh.getStateEngine().calcApproxDataSize());
                     forceDoubleSnapshot = false;
                 }
             } else {    // 0 snapshot and 1+ delta transitions
@@ -239,20 +259,43 @@ public class HollowClientUpdater {
     }
 
     private HollowDataHolder newHollowDataHolder() {
+        /// the samples of the API in use are carried over, so that they direct the warmup of the new data holder
+        HollowDataHolder hollowDataHolderLocal = hollowDataHolderVolatile;
+        HollowAPI priorAPI = hollowDataHolderLocal == null ? null : hollowDataHolderLocal.getAPI();
         return new HollowDataHolder(newStateEngine(), apiFactory, memoryMode,
                 doubleSnapshotConfig, failedTransitionTracker,
                 staleReferenceDetector, objectLongevityConfig)
-                .setFilter(filter);
+                .setFilter(filter)
+                .setSnapshotLoadThreads(snapshotLoadThreads)
+                .setDeltaApplyThreads(deltaApplyThreads)
+                .setDeltaPrefetch(deltaPrefetchConcurrency, deltaPrefetchMaxBytes)
+                .setDeltaSquashThreshold(deltaSquashThreshold)
+                .setSharedMemoryWarmup(sharedMemoryWarmup,
+                        priorAPI == null ? Collections.emptyList() : priorAPI.getAccessSampleResults());
     }
 
     private HollowReadStateEngine newStateEngine() {
+        HollowReadStateEngine stateEngine;
         HollowDataHolder hollowDataHolderLocal = hollowDataHolderVolatile;
         if (hollowDataHolderLocal != null) {
             ArraySegmentRecycler existingRecycler =
                     hollowDataHolderLocal.getStateEngine().getMemoryRecycler();
-            return new HollowReadStateEngine(hashCodeFinder, true, existingRecycler);
+            stateEngine = new HollowReadStateEngine(hashCodeFinder, true, existingRecycler);
+        } else if (memoryMode == MemoryMode.OFF_HEAP) {
+            stateEngine = new HollowReadStateEngine(hashCodeFinder, true, new OffHeapRecycler());
+        } else {
+            stateEngine = new HollowReadStateEngine(hashCodeFinder);
         }
-        return new HollowReadStateEngine(hashCodeFinder);
+
+        for (String typeName : stringCachedTypes)
+            stateEngine.enableStringCache(typeName);
+        for (String typeName : keyFingerprintedTypes)
+            stateEngine.enableKeyFingerprints(typeName);
+        if (targetMaxTypeShardSize != Long.MAX_VALUE)
+            stateEngine.setTargetMaxTypeShardSize(targetMaxTypeShardSize);
+        if (readViewsEnabled)
+            stateEngine.enableReadViews();
+        return stateEngine;
     }
 
     public StackTraceRecorder getStaleReferenceUsageStackTraceRecorder() {
@@ -277,6 +320,113 @@ public class HollowClientUpdater {
         this.filter = filter;
     }
 
+    /**
+     * Set the number of threads used to load snapshots; applies to snapshots loaded after this call.
+     *
+     * @param snapshotLoadThreads the maximum number of threads used to load a snapshot
+     * @see com.netflix.hollow.core.read.engine.HollowBlobReader#setSnapshotLoadThreads(int)
+     */
+    public void setSnapshotLoadThreads(int snapshotLoadThreads) {
+        this.snapshotLoadThreads = snapshotLoadThreads;
+    }
+
+    /**
+     * Set the number of threads used to apply deltas; applies to data holders created after this call.
+     *
+     * @param deltaApplyThreads the maximum number of threads used to apply a delta
+     * @see com.netflix.hollow.core.read.engine.HollowBlobReader#setDeltaApplyThreads(int)
+     */
+    public void setDeltaApplyThreads(int deltaApplyThreads) {
+        this.deltaApplyThreads = deltaApplyThreads;
+    }
+
+    /**
+     * Set the target approximate footprint of each shard of a type; applies to state engines created after this call.
+     *
+     * @param targetMaxTypeShardSize the target approximate footprint of each shard, in bytes
+     * @see HollowReadStateEngine#setTargetMaxTypeShardSize(long)
+     */
+    public void setTargetMaxTypeShardSize(long targetMaxTypeShardSize) {
+        this.targetMaxTypeShardSize = targetMaxTypeShardSize;
+    }
+
+    /**
+     * Set how delta blobs are retrieved ahead of their application; applies to data holders created after this call.
+     *
+     * @param deltaPrefetchConcurrency the maximum number of delta blobs retrieved concurrently, or 0 to retrieve each
+     *                                 delta blob while it is applied
+     * @param deltaPrefetchMaxBytes the number of bytes of retrieved delta blobs, which have yet to be applied, above
+     *                              which no further delta blob is retrieved
+     * @see HollowConsumer.Builder#withDeltaPrefetch(int, long)
+     */
+    public void setDeltaPrefetch(int deltaPrefetchConcurrency, long deltaPrefetchMaxBytes) {
+        this.deltaPrefetchConcurrency = deltaPrefetchConcurrency;
+        this.deltaPrefetchMaxBytes = deltaPrefetchMaxBytes;
+    }
+
+    /**
+     * Set the length of a chain of deltas above which the chain is squashed into a single delta when it is applied;
+     * applies to data holders created after this call.
+     *
+     * @param deltaSquashThreshold the number of deltas above which a chain is squashed, or 0 to never squash deltas
+     * @see HollowConsumer.Builder#withDeltaSquashing(int)
+     */
+    public void setDeltaSquashThreshold(int deltaSquashThreshold) {
+        this.deltaSquashThreshold = deltaSquashThreshold;
+    }
+
+    /**
+     * Set the OBJECT types for which decoded STRING field values are cached; applies to snapshots loaded after this call.
+     *
+     * @param stringCachedTypes the names of the types
+     * @see HollowReadStateEngine#enableStringCache(String)
+     */
+    public void setStringCachedTypes(Set<String> stringCachedTypes) {
+        this.stringCachedTypes = stringCachedTypes;
+    }
+
+    /**
+     * Set the SET and MAP types whose keys are fingerprinted; applies to snapshots loaded after this call.
+     *
+     * @param keyFingerprintedTypes the names of the types
+     * @see HollowReadStateEngine#enableKeyFingerprints(String)
+     */
+    public void setKeyFingerprintedTypes(Set<String> keyFingerprintedTypes) {
+        this.keyFingerprintedTypes = keyFingerprintedTypes;
+    }
+
+    /**
+     * Set whether the data is warmed up after each refresh in a shared memory mode; applies to data holders created
+     * after this call.
+     *
+     * @param sharedMemoryWarmup true to warm up the data
+     * @see HollowConsumer.Builder#withSharedMemoryWarmup()
+     */
+    public void setSharedMemoryWarmup(boolean sharedMemoryWarmup) {
+        this.sharedMemoryWarmup = sharedMemoryWarmup;
+    }
+
+    /**
+     * Set whether read views are enabled; applies to snapshots loaded after this call.
+     *
+     * @param readViewsEnabled true to enable read views
+     * @see HollowReadStateEngine#enableReadViews()
+     */
+    public void setReadViewsEnabled(boolean readViewsEnabled) {
+        this.readViewsEnabled = readViewsEnabled;
+    }
+
+    /**
+     * Set whether a double snapshot is applied in place of the current data one type at a time; applies to double
+     * snapshots applied after this call.  A double snapshot is applied in place only if read views are enabled.
+     *
+     * @param inPlaceDoubleSnapshot true to apply double snapshots in place
+     * @see HollowConsumer.Builder#withInPlaceDoubleSnapshot()
+     */
+    public void setInPlaceDoubleSnapshot(boolean inPlaceDoubleSnapshot) {
+        this.inPlaceDoubleSnapshot = inPlaceDoubleSnapshot;
+    }
+
     /**
      * @return the number of failed snapshot transitions stored in the {@link FailedTransitionTracker}.
      */
@@ -19,10 +19,12 @@ package com.netflix.hollow.api.client;
 import com.netflix.hollow.api.consumer.HollowConsumer;
 import com.netflix.hollow.api.consumer.HollowConsumer.TransitionAwareRefreshListener;
 import com.netflix.hollow.api.custom.HollowAPI;
+import com.netflix.hollow.api.sampling.SampleResult;
 import com.netflix.hollow.core.HollowConstants;
 import com.netflix.hollow.core.memory.MemoryMode;
 import com.netflix.hollow.core.read.HollowBlobInput;
 import com.netflix.hollow.core.read.OptionalBlobPartInput;
+import com.netflix.hollow.core.read.ReadAheadInputStream;
 import com.netflix.hollow.core.read.dataaccess.HollowDataAccess;
 import com.netflix.hollow.core.read.dataaccess.proxy.HollowProxyDataAccess;
 import com.netflix.hollow.core.read.engine.HollowBlobReader;
@@ -31,8 +33,20 @@ import com.netflix.hollow.core.read.filter.HollowFilterConfig;
 import com.netflix.hollow.core.read.filter.TypeFilter;
 import com.netflix.hollow.tools.history.HollowHistoricalStateCreator;
 import com.netflix.hollow.tools.history.HollowHistoricalStateDataAccess;
+import com.netflix.hollow.tools.patch.delta.HollowStateDeltaSquasher;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -51,6 +65,12 @@ class HollowDataHolder {
     private final HollowConsumer.ObjectLongevityConfig objLongevityConfig;
 
     private TypeFilter filter;
+    private int deltaPrefetchConcurrency;
+    private long deltaPrefetchMaxBytes;
+    private int deltaSquashThreshold;
+    private boolean sharedMemoryWarmup;
+    private Collection<SampleResult> priorSampleResults = Collections.emptyList();
+    private long prefaultDurationNanos;
 
     private HollowAPI currentAPI;
 
@@ -100,6 +120,37 @@ class HollowDataHolder {
         return this;
     }
 
+    HollowDataHolder setSnapshotLoadThreads(int snapshotLoadThreads) {
+        reader.setSnapshotLoadThreads(snapshotLoadThreads);
+        return this;
+    }
+
+    HollowDataHolder setDeltaApplyThreads(int deltaApplyThreads) {
+        reader.setDeltaApplyThreads(deltaApplyThreads);
+        return this;
+    }
+
+    HollowDataHolder setDeltaPrefetch(int deltaPrefetchConcurrency, long deltaPrefetchMaxBytes) {
+        this.deltaPrefetchConcurrency = deltaPrefetchConcurrency;
+        this.deltaPrefetchMaxBytes = deltaPrefetchMaxBytes;
+        return this;
+    }
+
+    HollowDataHolder setDeltaSquashThreshold(int deltaSquashThreshold) {
+        this.deltaSquashThreshold = deltaSquashThreshold;
+        return this;
+    }
+
+    /**
+     * @param priorSampleResults the sample results of the API of the data holder this one replaces, by which the first
+     *        update is warmed up
+     */
+    HollowDataHolder setSharedMemoryWarmup(boolean sharedMemoryWarmup, Collection<SampleResult> priorSampleResults) {
+        this.sharedMemoryWarmup = sharedMemoryWarmup;
+        this.priorSampleResults = priorSampleResults;
+        return this;
+    }
+
     void update(HollowUpdatePlan updatePlan, HollowConsumer.RefreshListener[] refreshListeners,
             Runnable apiInitCallback) throws Throwable {
         // Only fail if double snapshot is configured.
@@ -117,21 +168,84 @@ class HollowDataHolder {
             throw new RuntimeException("Update plan contains known failing transition!");
         }
 
-        if (updatePlan.isSnapshotPlan()) {
-            applySnapshotPlan(updatePlan, refreshListeners, apiInitCallback);
-        } else {
-            applyDeltaOnlyPlan(updatePlan, refreshListeners);
+        Collection<SampleResult> sampleResults = currentAPI == null ? priorSampleResults : currentAPI.getAccessSampleResults();
+        prefaultDurationNanos = 0;
+        try (HollowBlobPrefetcher prefetcher = newDeltaPrefetcher(updatePlan)) {
+            if (updatePlan.isSnapshotPlan()) {
+                applySnapshotPlan(updatePlan, refreshListeners, apiInitCallback, prefetcher);
+            } else {
+                applyDeltaOnlyPlan(updatePlan, refreshListeners, prefetcher);
+            }
         }
+
+        if (memoryMode.isSharedMemory())
+            warmUp(sampleResults, refreshListeners);
+    }
+
+    /**
+     * Touches the mapped data, the most sampled types and fields first, and reports the time spent taking page faults
+     * during the update.
+     */
+    private void warmUp(Collection<SampleResult> sampleResults, HollowConsumer.RefreshListener[] refreshListeners) {
+        long warmupDurationNanos = 0;
+        if (sharedMemoryWarmup) {
+            long warmupStartTime = System.nanoTime();
+            stateEngine.warmUp(sampleResults);
+            warmupDurationNanos = System.nanoTime() - warmupStartTime;
+        }
+        priorSampleResults = Collections.emptyList();
+
+        for (HollowConsumer.RefreshListener refreshListener : refreshListeners) {
+            if (refreshListener instanceof TransitionAwareRefreshListener)
+                ((TransitionAwareRefreshListener)refreshListener).sharedMemoryLoadTimed(prefaultDurationNanos, warmupDurationNanos);
+        }
+    }
+
+    /**
+     * When prefetching is enabled, the delta transitions of a plan are retrieved ahead of their application, starting
+     * while the snapshot of a snapshot plan is being loaded.
+     */
+    private HollowBlobPrefetcher newDeltaPrefetcher(HollowUpdatePlan updatePlan) {
+        if (deltaPrefetchConcurrency < 1 || !memoryMode.isSerial()
+                || updatePlan.getDeltaTransitions().isEmpty())
+            return null;
+        return new HollowBlobPrefetcher(updatePlan.getDeltaTransitions(), deltaPrefetchConcurrency, deltaPrefetchMaxBytes);
+    }
+
+    /**
+     * Applies a snapshot plan to the current state engine, reading the snapshot in place of the data of each type in
+     * turn, and retains the current API.
+     *
+     * @return false if the snapshot could not be read in place, in which case the state is unchanged
+     * @see com.netflix.hollow.core.read.engine.HollowBlobReader#readSnapshotInPlace(HollowBlobInput, OptionalBlobPartInput)
+     */
+    boolean updateInPlace(HollowUpdatePlan updatePlan, HollowConsumer.RefreshListener[] refreshListeners) throws Throwable {
+        if (filter != null || !memoryMode.equals(MemoryMode.ON_HEAP) || objLongevityConfig.enableLongLivedObjectSupport())
+            return false;
+        if (doubleSnapshotConfig.allowDoubleSnapshot() && failedTransitionTracker.anyTransitionWasFailed(updatePlan)) {
+            throw new RuntimeException("Update plan contains known failing transition!");
+        }
+
+        try (HollowBlobPrefetcher prefetcher = newDeltaPrefetcher(updatePlan)) {
+            if (!applySnapshotTransitionInPlace(updatePlan.getSnapshotTransition(), refreshListeners))
+                return false;
+            applySnapshotPlanDeltas(updatePlan, refreshListeners, prefetcher);
+        }
+        return true;
     }
 
     private void applySnapshotPlan(HollowUpdatePlan updatePlan,
             HollowConsumer.RefreshListener[] refreshListeners,
-            Runnable apiInitCallback) throws Throwable {
+            Runnable apiInitCallback,
+            HollowBlobPrefetcher prefetcher) throws Throwable {
         applySnapshotTransition(updatePlan.getSnapshotTransition(), refreshListeners, apiInitCallback);
-            
-        for(HollowConsumer.Blob blob : updatePlan.getDeltaTransitions()) {
-            applyDeltaTransition(blob, true, refreshListeners);
-        }
+        applySnapshotPlanDeltas(updatePlan, refreshListeners, prefetcher);
+    }
+
+    private void applySnapshotPlanDeltas(HollowUpdatePlan updatePlan,
+            HollowConsumer.RefreshListener[] refreshListeners,
+            HollowBlobPrefetcher prefetcher) throws Throwable {
+        applyDeltaTransitions(updatePlan.getDeltaTransitions(), true, refreshListeners, prefetcher);
 
         try {
             for(HollowConsumer.RefreshListener refreshListener : refreshListeners)
@@ -145,9 +259,11 @@ class HollowDataHolder {
     private void applySnapshotTransition(HollowConsumer.Blob snapshotBlob,
             HollowConsumer.RefreshListener[] refreshListeners,
             Runnable apiInitCallback) throws Throwable {
-        try (HollowBlobInput in = HollowBlobInput.modeBasedSelector(memoryMode, snapshotBlob);
+        long fetchStartTime = System.nanoTime();
+        try (HollowBlobInput in = openSnapshotInput(snapshotBlob);
              OptionalBlobPartInput optionalPartIn = snapshotBlob.getOptionalBlobPartInputs()) {
-            applyStateEngineTransition(in, optionalPartIn, snapshotBlob, refreshListeners);
+            long fetchDurationNanos = System.nanoTime() - fetchStartTime;
+            applyStateEngineTransition(in, optionalPartIn, snapshotBlob, refreshListeners, fetchDurationNanos, fetchDurationNanos);
             initializeAPI(apiInitCallback);
 
             for (HollowConsumer.RefreshListener refreshListener : refreshListeners) {
@@ -160,22 +276,80 @@ class HollowDataHolder {
         }
     }
 
-    private void applyStateEngineTransition(HollowBlobInput in, OptionalBlobPartInput optionalPartIn, HollowConsumer.Blob transition, HollowConsumer.RefreshListener[] refreshListeners) throws IOException {
+    private boolean applySnapshotTransitionInPlace(HollowConsumer.Blob snapshotBlob,
+            HollowConsumer.RefreshListener[] refreshListeners) throws Throwable {
+        long fetchStartTime = System.nanoTime();
+        try (HollowBlobInput in = openSnapshotInput(snapshotBlob);
+             OptionalBlobPartInput optionalPartIn = snapshotBlob.getOptionalBlobPartInputs()) {
+            long fetchDurationNanos = System.nanoTime() - fetchStartTime;
+            long applyStartTime = System.nanoTime();
+            if (!reader.readSnapshotInPlace(in, optionalPartIn))
+                return false;
+            transitionApplied(in, snapshotBlob, refreshListeners, fetchDurationNanos, fetchDurationNanos, applyStartTime);
+
+            for (HollowConsumer.RefreshListener refreshListener : refreshListeners) {
+                if (refreshListener instanceof TransitionAwareRefreshListener)
+                    ((TransitionAwareRefreshListener)refreshListener).snapshotApplied(currentAPI, stateEngine, snapshotBlob.getToVersion());
+            }
+            return true;
+        } catch (Throwable t) {
+            failedTransitionTracker.markFailedTransition(snapshotBlob);
+            throw t;
+        }
+    }
+
+    /**
+     * When loading snapshots with multiple threads from a serial input stream, the blob is read ahead on a separate
+     * thread so that retrieving the bytes is pipelined against decoding them.
+     * <p>
+     * A filtered snapshot is mapped lazily in {@link MemoryMode#SHARED_MEMORY_EAGER} mode, and only the data of the
+     * included types and fields is loaded once it has been read, see {@link #applyStateEngineTransition}.
+     */
+    private HollowBlobInput openSnapshotInput(HollowConsumer.Blob snapshotBlob) throws IOException {
+        if (memoryMode.isSerial() && reader.getSnapshotLoadThreads() > 1)
+            return HollowBlobInput.serialBlob(new ReadAheadInputStream(snapshotBlob.getInputStream()));
+        if (memoryMode.equals(MemoryMode.SHARED_MEMORY_EAGER) && filter != null)
+            return HollowBlobInput.randomAccessBlob(snapshotBlob.getFile(), MemoryMode.SHARED_MEMORY_LAZY);
+        return HollowBlobInput.modeBasedSelector(memoryMode, snapshotBlob);
+    }
+
+    /**
+     * @param fetchDurationNanos the time spent retrieving the blob, other than while it was being applied
+     * @param fetchWaitDurationNanos the part of {@code fetchDurationNanos} this thread spent waiting
+     */
+    private void applyStateEngineTransition(HollowBlobInput in, OptionalBlobPartInput optionalPartIn, HollowConsumer.Blob transition, HollowConsumer.RefreshListener[] refreshListeners,
+            long fetchDurationNanos, long fetchWaitDurationNanos) throws IOException {
+        long applyStartTime = System.nanoTime();
         if(transition.isSnapshot()) {
             if(filter == null) {
                 reader.readSnapshot(in, optionalPartIn);
             }
             else {
                 reader.readSnapshot(in, optionalPartIn, filter);
+                if (in.getMemoryMode().isSharedMemory() && in.getMemoryMode() != memoryMode) {
+                    long loadStartTime = System.nanoTime();
+                    stateEngine.warmUp(Collections.emptyList());
+                    prefaultDurationNanos += System.nanoTime() - loadStartTime;
+                }
             }
         } else {
             reader.applyDelta(in, optionalPartIn);
         }
 
+        transitionApplied(in, transition, refreshListeners, fetchDurationNanos, fetchWaitDurationNanos, applyStartTime);
+    }
+
+    private void transitionApplied(HollowBlobInput in, HollowConsumer.Blob transition, HollowConsumer.RefreshListener[] refreshListeners,
+            long fetchDurationNanos, long fetchWaitDurationNanos, long applyStartTime) {
         setVersion(transition.getToVersion());
+        long applyDurationNanos = System.nanoTime() - applyStartTime;
+        prefaultDurationNanos += in.getLoadDurationNanos();
 
-        for(HollowConsumer.RefreshListener refreshListener : refreshListeners)
+        for(HollowConsumer.RefreshListener refreshListener : refreshListeners) {
             refreshListener.blobLoaded(transition);
+            if(refreshListener instanceof TransitionAwareRefreshListener)
+                ((TransitionAwareRefreshListener)refreshListener).blobLoadTimed(transition, fetchDurationNanos, fetchWaitDurationNanos, applyDurationNanos);
+        }
     }
 
     private void initializeAPI(Runnable r) {
@@ -194,21 +368,98 @@ class HollowDataHolder {
         }
     }
 
-    private void applyDeltaOnlyPlan(HollowUpdatePlan updatePlan, HollowConsumer.RefreshListener[] refreshListeners) throws Throwable {
-        for(HollowConsumer.Blob blob : updatePlan) {
-            applyDeltaTransition(blob, false, refreshListeners);
+    private void applyDeltaOnlyPlan(HollowUpdatePlan updatePlan, HollowConsumer.RefreshListener[] refreshListeners,
+            HollowBlobPrefetcher prefetcher) throws Throwable {
+        applyDeltaTransitions(updatePlan.getDeltaTransitions(), false, refreshListeners, prefetcher);
+    }
+
+    /**
+     * Applies a chain of deltas, squashed into a single delta if there are more than the squash threshold.  If the
+     * deltas cannot be squashed they are applied one at a time.
+     */
+    private void applyDeltaTransitions(List<HollowConsumer.Blob> deltas, boolean isSnapshotPlan,
+            HollowConsumer.RefreshListener[] refreshListeners, HollowBlobPrefetcher prefetcher) throws Throwable {
+        if (deltaSquashThreshold > 0 && deltas.size() > deltaSquashThreshold) {
+            SquashedDeltaBlob squashed = squashDeltas(deltas, prefetcher);
+            if (squashed != null) {
+                try {
+                    applyDeltaTransition(squashed, isSnapshotPlan, refreshListeners, null);
+                } catch (Throwable t) {
+                    for (HollowConsumer.Blob delta : deltas)
+                        failedTransitionTracker.markFailedTransition(delta);
+                    throw t;
+                } finally {
+                    squashed.delete();
+                }
+                return;
+            }
+            /// the attempt may have taken deltas from the prefetcher, so each is retrieved again
+            prefetcher = null;
+        }
+
+        for (HollowConsumer.Blob blob : deltas) {
+            applyDeltaTransition(blob, isSnapshotPlan, refreshListeners, prefetcher);
         }
     }
 
-    private void applyDeltaTransition(HollowConsumer.Blob blob, boolean isSnapshotPlan, HollowConsumer.RefreshListener[] refreshListeners) throws Throwable {
-        if (!memoryMode.equals(MemoryMode.ON_HEAP)) {
-            LOG.warning("Skipping delta transition in shared-memory mode");
-            return;
+    /**
+     * Retrieves a chain of deltas, through the prefetcher if there is one, and squashes them with a
+     * {@link HollowStateDeltaSquasher} into a single delta, which is written to a temporary file.  In shared memory
+     * mode the deltas are read from their files, and the temporary file is created next to them so that it can be
+     * mapped in turn; otherwise it is created in the default temporary directory.
+     *
+     * @return the squashed delta, which must be deleted once applied, or null if the deltas could not be squashed
+     */
+    private SquashedDeltaBlob squashDeltas(List<HollowConsumer.Blob> deltas, HollowBlobPrefetcher prefetcher) {
+        File squashedFile = null;
+        try {
+            HollowStateDeltaSquasher squasher = new HollowStateDeltaSquasher();
+            File dir = null;
+            for (HollowConsumer.Blob delta : deltas) {
+                try (OptionalBlobPartInput optionalParts = delta.getOptionalBlobPartInputs()) {
+                    if (optionalParts != null)
+                        return null;
+                }
+                if (memoryMode.isSharedMemory()) {
+                    File deltaFile = delta.getFile();
+                    if (dir == null)
+                        dir = deltaFile.getAbsoluteFile().getParentFile();
+                    try (InputStream is = new BufferedInputStream(new FileInputStream(deltaFile))) {
+                        squasher.addDelta(is);
+                    }
+                } else {
+                    try (HollowBlobPrefetcher.Fetch fetch = prefetcher == null ? null : prefetcher.take(delta);
+                         InputStream is = fetch == null ? delta.getInputStream() : fetch.getInputStream()) {
+                        squasher.addDelta(is);
+                    }
+                }
+            }
+
+            long fromVersion = deltas.get(0).getFromVersion();
+            long toVersion = deltas.get(deltas.size() - 1).getToVersion();
+            squashedFile = File.createTempFile("squasheddelta-" + fromVersion + "-" + toVersion + "-", ".blob", dir);
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(squashedFile))) {
+                squasher.writeSquashedDelta(os);
+            }
+            return new SquashedDeltaBlob(fromVersion, toVersion, squashedFile);
+        } catch (Exception | OutOfMemoryError e) {
+            /// the squasher, which holds the data of every delta, is unreachable once this returns
+            if (squashedFile != null)
+                SquashedDeltaBlob.delete(squashedFile);
+            LOG.log(Level.WARNING, "Unable to squash " + deltas.size() + " deltas, they will be applied in turn", e);
+            return null;
         }
+    }
 
-        try (HollowBlobInput in = HollowBlobInput.modeBasedSelector(memoryMode, blob);
+    private void applyDeltaTransition(HollowConsumer.Blob blob, boolean isSnapshotPlan, HollowConsumer.RefreshListener[] refreshListeners,
+            HollowBlobPrefetcher prefetcher) throws Throwable {
+        long fetchStartTime = System.nanoTime();
+        try (HollowBlobPrefetcher.Fetch fetch = prefetcher == null ? null : prefetcher.take(blob);
+             HollowBlobInput in = fetch == null ? HollowBlobInput.modeBasedSelector(memoryMode, blob) : HollowBlobInput.serialBlob(fetch.getInputStream());
              OptionalBlobPartInput optionalPartIn = blob.getOptionalBlobPartInputs()) {
-            applyStateEngineTransition(in, optionalPartIn, blob, refreshListeners);
+            long fetchWaitDurationNanos = System.nanoTime() - fetchStartTime;
+            long fetchDurationNanos = fetch == null ? fetchWaitDurationNanos : fetch.getDurationNanos();
+            applyStateEngineTransition(in, optionalPartIn, blob, refreshListeners, fetchDurationNanos, fetchWaitDurationNanos);
 
             if(objLongevityConfig.enableLongLivedObjectSupport()) {
                 HollowDataAccess previousDataAccess = currentAPI.getDataAccess();
@@ -259,4 +510,33 @@ class HollowDataHolder {
         currentVersion = version;
     }
 
+    private static class SquashedDeltaBlob extends HollowConsumer.Blob {
+        private final File file;
+
+        SquashedDeltaBlob(long fromVersion, long toVersion, File file) {
+            super(fromVersion, toVersion);
+            this.file = file;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new BufferedInputStream(new FileInputStream(file));
+        }
+
+        @Override
+        public File getFile() {
+            return file;
+        }
+
+        void delete() {
+            delete(file);
+        }
+
+        static void delete(File file) {
+            // some platforms do not permit a mapped file to be deleted
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+
 }
@@ -26,7 +26,9 @@ import com.netflix.hollow.api.codegen.HollowAPIGenerator;
 import com.netflix.hollow.api.custom.HollowAPI;
 import com.netflix.hollow.api.custom.HollowObjectTypeAPI;
 import com.netflix.hollow.core.HollowDataset;
+import com.netflix.hollow.core.read.dataaccess.HollowBytesView;
 import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.dataaccess.HollowStringView;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 import com.netflix.hollow.core.write.HollowObjectWriteRecord;
 import java.util.Comparator;
@@ -162,6 +164,17 @@ public class TypeAPIObjectJavaGenerator extends HollowTypeAPIGenerator {
         builder.append("        return getTypeDataAccess().readBytes(ordinal, fieldIndex[" + fieldNum + "]);\n");
         builder.append("    }\n\n");
 
+        importClasses.add(HollowBytesView.class);
+        builder.append("    public boolean get" + uppercase(fieldName) + "View(int ordinal, HollowBytesView view) {\n");
+        builder.append("        if(fieldIndex[" + fieldNum +"] == -1) {\n");
+        builder.append("            byte[] value = missingDataHandler().handleBytes(\"").append(objectSchema.getName()).append("\", ordinal, \"").append(fieldName).append("\");\n");
+        builder.append("            view.reset(value);\n");
+        builder.append("            return value != null;\n");
+        builder.append("        }\n");
+        builder.append("        boxedFieldAccessSampler.recordFieldAccess(fieldIndex[" + fieldNum + "]);\n");
+        builder.append("        return getTypeDataAccess().readBytesView(ordinal, fieldIndex[" + fieldNum + "], view);\n");
+        builder.append("    }\n\n");
+
         return builder.toString();
     }
 
@@ -177,6 +190,17 @@ public class TypeAPIObjectJavaGenerator extends HollowTypeAPIGenerator {
         builder.append("        return getTypeDataAccess().readString(ordinal, fieldIndex[" + fieldNum + "]);\n");
         builder.append("    }\n\n");
 
+        importClasses.add(HollowStringView.class);
+        builder.append("    public boolean get" + uppercase(fieldName) + "View(int ordinal, HollowStringView view) {\n");
+        builder.append("        if(fieldIndex[" + fieldNum +"] == -1) {\n");
+        builder.append("            String value = missingDataHandler().handleString(\"").append(objectSchema.getName()).append("\", ordinal, \"").append(fieldName).append("\");\n");
+        builder.append("            view.reset(value);\n");
+        builder.append("            return value != null;\n");
+        builder.append("        }\n");
+        builder.append("        boxedFieldAccessSampler.recordFieldAccess(fieldIndex[" + fieldNum + "]);\n");
+        builder.append("        return getTypeDataAccess().readStringView(ordinal, fieldIndex[" + fieldNum + "], view);\n");
+        builder.append("    }\n\n");
+
         builder.append("    public boolean is" + uppercase(fieldName) + "Equal(int ordinal, String testValue) {\n");
         builder.append("        if(fieldIndex[" + fieldNum +"] == -1)\n");
         builder.append("            return missingDataHandler().handleStringEquals(\"").append(objectSchema.getName()).append("\", ordinal, \"").append(fieldName).append("\", testValue);\n");
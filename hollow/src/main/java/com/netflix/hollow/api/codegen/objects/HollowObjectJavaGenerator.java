@@ -37,6 +37,8 @@ import com.netflix.hollow.api.custom.HollowAPI;
 import com.netflix.hollow.api.objects.HollowObject;
 import com.netflix.hollow.core.HollowDataset;
 import com.netflix.hollow.core.index.key.PrimaryKey;
+import com.netflix.hollow.core.read.dataaccess.HollowBytesView;
+import com.netflix.hollow.core.read.dataaccess.HollowStringView;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
 import com.netflix.hollow.core.write.objectmapper.HollowTypeName;
@@ -101,6 +103,12 @@ public class HollowObjectJavaGenerator extends HollowConsumerJavaFileGenerator {
         }
         classBuilder.append("import " + HollowObject.class.getName() + ";\n");
         classBuilder.append("import " + HollowObjectSchema.class.getName() + ";\n");
+        if (hasFieldOfType(FieldType.BYTES)) {
+            classBuilder.append("import " + HollowBytesView.class.getName() + ";\n");
+        }
+        if (hasFieldOfType(FieldType.STRING)) {
+            classBuilder.append("import " + HollowStringView.class.getName() + ";\n");
+        }
         if (requiresHollowTypeName) {
             classBuilder.append("import " + HollowTypeName.class.getName() + ";\n");
         }
@@ -136,6 +144,14 @@ public class HollowObjectJavaGenerator extends HollowConsumerJavaFileGenerator {
         return classBuilder.toString();
     }
 
+    private boolean hasFieldOfType(FieldType fieldType) {
+        for(int i=0;i<schema.numFields();i++) {
+            if(schema.getFieldType(i) == fieldType)
+                return true;
+        }
+        return false;
+    }
+
     private void appendConstructor(StringBuilder classBuilder) {
         classBuilder.append("    public " + className + "(" + delegateInterfaceName(schema.getName()) + " delegate, int ordinal) {\n");
         classBuilder.append("        super(delegate, ordinal);\n");
@@ -182,6 +198,10 @@ public class HollowObjectJavaGenerator extends HollowConsumerJavaFileGenerator {
 
         builder.append("    public byte[] ").append(getterPrefix).append("get" + uppercase(fieldName) + "() {\n");
         builder.append("        return delegate().get" + uppercase(fieldName) + "(ordinal);\n");
+        builder.append("    }\n\n");
+
+        builder.append("    public boolean ").append(getterPrefix).append("get" + uppercase(fieldName) + "View(HollowBytesView view) {\n");
+        builder.append("        return typeApi().get" + uppercase(fieldName) + "View(ordinal, view);\n");
         builder.append("    }");
 
         return builder.toString();
@@ -196,6 +216,10 @@ public class HollowObjectJavaGenerator extends HollowConsumerJavaFileGenerator {
         builder.append("        return delegate().get" + uppercase(fieldName) + "(ordinal);\n");
         builder.append("    }\n\n");
 
+        builder.append("    public boolean ").append(getterPrefix).append("get" + uppercase(fieldName) + "View(HollowStringView view) {\n");
+        builder.append("        return typeApi().get" + uppercase(fieldName) + "View(ordinal, view);\n");
+        builder.append("    }\n\n");
+
         builder.append("    public boolean ").append(getterPrefix).append("is" + uppercase(fieldName) + "Equal(String testValue) {\n");
         builder.append("        return delegate().is" + uppercase(fieldName) + "Equal(ordinal, testValue);\n");
         builder.append("    }");
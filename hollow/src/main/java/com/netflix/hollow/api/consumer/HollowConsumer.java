@@ -34,6 +34,10 @@ import com.netflix.hollow.core.HollowConstants;
 import com.netflix.hollow.core.memory.MemoryMode;
 import com.netflix.hollow.core.read.OptionalBlobPartInput;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowReadView;
+import com.netflix.hollow.core.read.engine.map.HollowMapTypeReadState;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.read.engine.set.HollowSetTypeReadState;
 import com.netflix.hollow.core.read.filter.HollowFilterConfig;
 import com.netflix.hollow.core.read.filter.TypeFilter;
 import com.netflix.hollow.core.util.DefaultHashCodeFinder;
@@ -43,7 +47,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -197,6 +203,16 @@ public class HollowConsumer {
                 metrics,
                 builder.metricsCollector);
         updater.setFilter(builder.typeFilter);
+        updater.setSnapshotLoadThreads(builder.snapshotLoadThreads);
+        updater.setDeltaApplyThreads(builder.deltaApplyThreads);
+        updater.setTargetMaxTypeShardSize(builder.targetMaxTypeShardSize);
+        updater.setDeltaPrefetch(builder.deltaPrefetchConcurrency, builder.deltaPrefetchMaxBytes);
+        updater.setDeltaSquashThreshold(builder.deltaSquashThreshold);
+        updater.setStringCachedTypes(builder.stringCachedTypes);
+        updater.setKeyFingerprintedTypes(builder.keyFingerprintedTypes);
+        updater.setSharedMemoryWarmup(builder.sharedMemoryWarmup);
+        updater.setReadViewsEnabled(builder.readViews);
+        updater.setInPlaceDoubleSnapshot(builder.inPlaceDoubleSnapshot);
         this.announcementWatcher = builder.announcementWatcher;
         this.refreshExecutor = builder.refreshExecutor;
         this.refreshLock = new ReentrantReadWriteLock();
@@ -305,6 +321,21 @@ public class HollowConsumer {
         return updater.getStateEngine();
     }
 
+    /**
+     * Pins a consistent view of the current data to the calling thread.  Until the view is closed, every record read on
+     * the calling thread is read from the same data state, even while a delta is applied, without taking a lock or
+     * delaying a refresh.
+     * <p>
+     * Read views must be enabled with {@link Builder#withReadViews()}.  A view pins the data of the current state
+     * engine; after a double snapshot, a new view must be pinned to read the new data.
+     *
+     * @return the pinned view, which must be closed on the calling thread
+     * @see HollowReadStateEngine#pinReadView()
+     */
+    public HollowReadView pinReadView() {
+        return updater.getStateEngine().pinReadView();
+    }
+
     /**
      * @return the current version of the dataset.  This is the unique identifier of the data's state.
      */
@@ -386,7 +417,8 @@ public class HollowConsumer {
      * @return a {@link ReadWriteLock#readLock()}, the corresponding writeLock() of which is used to synchronize refreshes.
      * <p>
      * This is useful if performing long-running operations which require a consistent view of the entire dataset in a
-     * single data state, to guarantee that updates do not happen while the operation runs.
+     * single data state, to guarantee that updates do not happen while the operation runs.  Operations which only
+     * read records may instead pin a {@link #pinReadView() read view}, which does not block updates.
      */
     public Lock getRefreshLock() {
         return refreshLock.readLock();
@@ -878,6 +910,38 @@ public class HollowConsumer {
          * @param transitionSequence List of transitions comprising the refresh
          */
         default void transitionsPlanned(long beforeVersion, long desiredVersion, boolean isSnapshotPlan, List<HollowConsumer.Blob.BlobType> transitionSequence) {}
+
+        /**
+         * Called after {@link #blobLoaded(Blob)} with the time spent retrieving and applying the blob.
+         * <p>
+         * When a blob is streamed while it is applied, the fetch duration covers only opening the blob's inputs, and
+         * the remainder of the transfer is included in the apply duration.  When delta blobs are prefetched (see
+         * {@link Builder#withDeltaPrefetch(int, long)}) the fetch duration covers retrieving the blob in full, which
+         * may overlap with applying earlier blobs, and the fetch wait duration is the part of it the refresh was
+         * blocked on.
+         * @implSpec The default implementation provided does nothing.
+         *
+         * @param transition The transition which was applied
+         * @param fetchDurationNanos The time spent retrieving the blob
+         * @param fetchWaitDurationNanos The time the refresh spent waiting for the blob to be retrieved
+         * @param applyDurationNanos The time spent applying the blob
+         */
+        default void blobLoadTimed(HollowConsumer.Blob transition, long fetchDurationNanos, long fetchWaitDurationNanos, long applyDurationNanos) {}
+
+        /**
+         * Called in a shared memory mode after the transitions of an update plan are applied, with the time spent
+         * taking page faults ahead of the data being read.
+         * <p>
+         * In {@link MemoryMode#SHARED_MEMORY_EAGER} mode the prefault duration is the time spent loading the mapped
+         * blobs into main memory, see {@link com.netflix.hollow.core.read.HollowBlobInput#getLoadDurationNanos()}.
+         * When warmup is enabled (see {@link Builder#withSharedMemoryWarmup()}) the warmup duration is the time spent
+         * touching the mapped data of the resulting state.
+         * @implSpec The default implementation provided does nothing.
+         *
+         * @param prefaultDurationNanos The time spent loading the mapped blobs, summed over the transitions
+         * @param warmupDurationNanos The time spent warming up the data, or zero if warmup is not enabled
+         */
+        default void sharedMemoryLoadTimed(long prefaultDurationNanos, long warmupDurationNanos) {}
     }
 
     /**
@@ -931,6 +995,16 @@ public class HollowConsumer {
             // no-op
         }
 
+        @Override
+        public void blobLoadTimed(Blob transition, long fetchDurationNanos, long fetchWaitDurationNanos, long applyDurationNanos) {
+            // no-op
+        }
+
+        @Override
+        public void sharedMemoryLoadTimed(long prefaultDurationNanos, long warmupDurationNanos) {
+            // no-op
+        }
+
         @Override
         public void refreshSuccessful(long beforeVersion, long afterVersion, long requestedVersion) {
             // no-op
@@ -995,6 +1069,17 @@ public class HollowConsumer {
         protected boolean useExistingStaleSnapshot;
         protected Executor refreshExecutor = null;
         protected MemoryMode memoryMode = MemoryMode.ON_HEAP;
+        protected int snapshotLoadThreads = 1;
+        protected int deltaApplyThreads = 1;
+        protected long targetMaxTypeShardSize = Long.MAX_VALUE;
+        protected int deltaPrefetchConcurrency = 0;
+        protected long deltaPrefetchMaxBytes = 0;
+        protected int deltaSquashThreshold = 0;
+        protected Set<String> stringCachedTypes = new HashSet<>();
+        protected Set<String> keyFingerprintedTypes = new HashSet<>();
+        protected boolean sharedMemoryWarmup = false;
+        protected boolean readViews = false;
+        protected boolean inPlaceDoubleSnapshot = false;
         protected HollowMetricsCollector<HollowConsumerMetrics> metricsCollector;
 
         public B withBlobRetriever(HollowConsumer.BlobRetriever blobRetriever) {
@@ -1100,6 +1185,9 @@ public class HollowConsumer {
          * <p>{@link TypeFilter} is the replacement API for {@link HollowFilterConfig}. It improves upon its
          * limitations, but lacks the ability to serialize/deserialize like {@code HollowFilterConfig} has.</p>
          *
+         * <p>In a shared memory mode the data of excluded types and fields is skipped rather than mapped into the
+         * type states, so that only the data which is included is loaded into main memory.</p>
+         *
          * @param typeFilter
          * @return this builder
          * @see #withTypeFilter(UnaryOperator)
@@ -1163,6 +1251,193 @@ public class HollowConsumer {
             return (B)this;
         }
 
+        /**
+         * Load snapshots using up to the given number of threads.
+         * <p>
+         * In a shared memory mode type states are read concurrently from the mapped blob.  In
+         * {@link MemoryMode#ON_HEAP} and {@link MemoryMode#OFF_HEAP} modes the blob is read ahead on a separate thread
+         * while it is being decoded.
+         *
+         * @param snapshotLoadThreads the maximum number of threads used to load a snapshot, defaults to 1
+         * @return this builder
+         */
+        public B withSnapshotLoadThreads(int snapshotLoadThreads) {
+            if (snapshotLoadThreads < 1)
+                throw new IllegalArgumentException("snapshotLoadThreads must be at least 1");
+            this.snapshotLoadThreads = snapshotLoadThreads;
+            return (B)this;
+        }
+
+        /**
+         * Apply deltas using up to the given number of threads.
+         * <p>
+         * In {@link MemoryMode#ON_HEAP} mode the shards of all types in a delta are updated concurrently, and the
+         * updated types are published together once all of them have been updated.  This requires holding the prior
+         * and next data for every updated type in memory at the same time.  Other memory modes apply deltas serially.
+         *
+         * @param deltaApplyThreads the maximum number of threads used to apply a delta, defaults to 1
+         * @return this builder
+         */
+        public B withDeltaApplyThreads(int deltaApplyThreads) {
+            if (deltaApplyThreads < 1)
+                throw new IllegalArgumentException("deltaApplyThreads must be at least 1");
+            this.deltaApplyThreads = deltaApplyThreads;
+            return (B)this;
+        }
+
+        /**
+         * Split or join the shards of each type, after each snapshot or delta is applied, so that each shard has
+         * approximately the given footprint.  Deltas are then applied one smaller shard at a time, which bounds the memory
+         * transiently held while a large type is updated, regardless of the number of shards with which it was produced.
+         *
+         * @param targetMaxTypeShardSize the target approximate footprint of each shard, in bytes; by default each type
+         *                               keeps the number of shards with which it was produced
+         * @return this builder
+         * @see com.netflix.hollow.core.read.engine.HollowReadStateEngine#setTargetMaxTypeShardSize(long)
+         */
+        public B withTargetMaxTypeShardSize(long targetMaxTypeShardSize) {
+            if (targetMaxTypeShardSize <= 0)
+                throw new IllegalArgumentException("targetMaxTypeShardSize must be greater than 0");
+            this.targetMaxTypeShardSize = targetMaxTypeShardSize;
+            return (B)this;
+        }
+
+        /**
+         * Retrieve the delta blobs of a refresh ahead of applying them.
+         * <p>
+         * In {@link MemoryMode#ON_HEAP} and {@link MemoryMode#OFF_HEAP} modes, while one delta is applied (or the
+         * snapshot of a refresh is loaded), up to {@code maxConcurrentFetches} of the following deltas are retrieved
+         * concurrently from the blobs returned by the {@link BlobRetriever}, each into memory in its entirety.  No
+         * further delta is retrieved while the retrieved deltas which are yet to be applied hold
+         * {@code maxBytesInFlight} bytes or more.  Deltas are always applied in order.  By default deltas are
+         * retrieved one at a time, while they are applied.
+         *
+         * @param maxConcurrentFetches the maximum number of deltas retrieved concurrently
+         * @param maxBytesInFlight the number of bytes of retrieved deltas above which no further delta is retrieved
+         * @return this builder
+         */
+        public B withDeltaPrefetch(int maxConcurrentFetches, long maxBytesInFlight) {
+            if (maxConcurrentFetches < 1)
+                throw new IllegalArgumentException("maxConcurrentFetches must be at least 1");
+            if (maxBytesInFlight < 1)
+                throw new IllegalArgumentException("maxBytesInFlight must be positive");
+            this.deltaPrefetchConcurrency = maxConcurrentFetches;
+            this.deltaPrefetchMaxBytes = maxBytesInFlight;
+            return (B)this;
+        }
+
+        /**
+         * Squash a chain of more than {@code deltaChainLengthThreshold} deltas into a single delta before applying it.
+         * <p>
+         * When the update is applied, the deltas of such a chain are retrieved in full (through the delta prefetcher, if
+         * enabled) and merged with the {@link com.netflix.hollow.tools.patch.delta.HollowStateDeltaSquasher}, so that the
+         * records of each intermediate state are not built, only to be replaced by a later delta.  The squashed delta is
+         * written to a temporary file, next to the delta files in shared memory mode, which is deleted once it has been
+         * applied.  If the deltas can't be retrieved or squashed, e.g. because a type is resharded within the chain or
+         * the blobs have optional parts, they are applied one at a time.  By default deltas are not squashed.
+         *
+         * @param deltaChainLengthThreshold the number of deltas above which a chain of deltas is squashed
+         * @return this builder
+         */
+        public B withDeltaSquashing(int deltaChainLengthThreshold) {
+            if (deltaChainLengthThreshold < 1)
+                throw new IllegalArgumentException("deltaChainLengthThreshold must be at least 1");
+            this.deltaSquashThreshold = deltaChainLengthThreshold;
+            return (B)this;
+        }
+
+        /**
+         * Cache the decoded values of the STRING fields of the given OBJECT types, so that reading the same value
+         * repeatedly, for example through the generated API, does not decode and allocate a new String each time.
+         * <p>
+         * The cache holds a reference per record for each STRING field of a cached type, in addition to the cached
+         * Strings themselves.  Cached values are retained across deltas, except for the records changed by a delta.
+         *
+         * @param typeNames the names of the types whose STRING field values are cached
+         * @return this builder
+         * @see HollowObjectTypeReadState#setStringCacheEnabled(boolean)
+         */
+        public B withStringCachedTypes(String... typeNames) {
+            this.stringCachedTypes.addAll(Arrays.asList(typeNames));
+            return (B)this;
+        }
+
+        /**
+         * Hold fingerprints of the keys of the given SET and MAP types, so that most of the buckets probed by a lookup
+         * by hash key are rejected without reading the fields of the key in the bucket.
+         * <p>
+         * The fingerprints take a byte on the heap for each bucket of a fingerprinted type.  They are carried over across
+         * deltas, except for the records added by a delta, whose fingerprints are derived once the delta is applied.
+         *
+         * @param typeNames the names of the SET and MAP types whose keys are fingerprinted
+         * @return this builder
+         * @see HollowSetTypeReadState#setKeyFingerprintsEnabled(boolean)
+         * @see HollowMapTypeReadState#setKeyFingerprintsEnabled(boolean)
+         */
+        public B withKeyFingerprintedTypes(String... typeNames) {
+            this.keyFingerprintedTypes.addAll(Arrays.asList(typeNames));
+            return (B)this;
+        }
+
+        /**
+         * Warm up the data after each refresh in a shared memory mode, by touching the mapped pages which hold it so
+         * that they are resident in main memory before they are first read.
+         * <p>
+         * The types and fields which were sampled most often through the consumer's API, see
+         * {@link HollowAPI#getAccessSampleResults()}, are touched first.  Sampling is enabled with a
+         * {@link com.netflix.hollow.api.sampling.HollowSamplingDirector}.  In {@link MemoryMode#SHARED_MEMORY_EAGER}
+         * mode the blobs are loaded into main memory when they are mapped, and warming up loads the data which deltas
+         * have written to new mappings.
+         *
+         * @return this builder
+         * @see HollowReadStateEngine#warmUp(java.util.Collection)
+         */
+        public B withSharedMemoryWarmup() {
+            this.sharedMemoryWarmup = true;
+            return (B)this;
+        }
+
+        /**
+         * Enable consistent read views, see {@link HollowConsumer#pinReadView()}.
+         * <p>
+         * The data which a delta replaces is retained until no pinned view may read it, and a delta holds the prior and
+         * next data of every type it updates in memory until it has been applied.
+         *
+         * @return this builder
+         * @see HollowReadStateEngine#enableReadViews()
+         */
+        public B withReadViews() {
+            this.readViews = true;
+            return (B)this;
+        }
+
+        /**
+         * Apply a double snapshot to the current state engine one type at a time, rather than loading it into a new
+         * state engine alongside the current one.
+         * <p>
+         * The snapshot of each type is read and then swapped in place of the current data of the type, which is released
+         * before the next type is read, so the memory transiently required by a double snapshot is about the size of the
+         * largest type rather than the size of the whole dataset, see
+         * {@link HollowConsumerMetrics#getLastSnapshotPeakTransientBytes()}.  The consumer's API is retained, and any index
+         * listening for updates is rebuilt.
+         * <p>
+         * While the types are swapped, a record of a type which has been swapped may reference an ordinal of a type which
+         * has yet to be swapped, so read views must also be enabled with {@link #withReadViews()}, and records must be
+         * read either through a pinned {@link HollowConsumer#pinReadView() read view} or while holding the
+         * {@link HollowConsumer#getRefreshLock() refresh lock}.
+         * <p>
+         * A double snapshot is applied in place only in {@link MemoryMode#ON_HEAP} mode, without a filter or long lived
+         * object support, and when the schemas of the snapshot are those of the current state; otherwise a new state
+         * engine is loaded.
+         *
+         * @return this builder
+         * @see com.netflix.hollow.core.read.engine.HollowBlobReader#readSnapshotInPlace(com.netflix.hollow.core.read.HollowBlobInput, OptionalBlobPartInput)
+         */
+        public B withInPlaceDoubleSnapshot() {
+            this.inPlaceDoubleSnapshot = true;
+            return (B)this;
+        }
+
         public B withMetricsCollector(HollowMetricsCollector<HollowConsumerMetrics> metricsCollector) {
             this.metricsCollector = metricsCollector;
             return (B)this;
@@ -1194,12 +1469,16 @@ public class HollowConsumer {
                 refreshExecutor = newSingleThreadExecutor(r -> daemonThread(r, getClass(), "refresh"));
             }
 
+            if (inPlaceDoubleSnapshot && !readViews) {
+                throw new IllegalStateException("Read views must be enabled to apply double snapshots in place");
+            }
+
             if (!memoryMode.consumerSupported()) {
                 throw new UnsupportedOperationException("Cinder Consumer in " + memoryMode + " mode is not supported");
             }
 
             if ((filterConfig != null || typeFilter != null) && !memoryMode.supportsFiltering()) {
-                throw new UnsupportedOperationException("Filtering is not supported in shared memory mode");
+                throw new UnsupportedOperationException("Filtering is not supported in " + memoryMode + " mode");
             }
         }
 
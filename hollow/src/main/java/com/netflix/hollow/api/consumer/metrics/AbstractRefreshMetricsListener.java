@@ -54,6 +54,8 @@ public abstract class AbstractRefreshMetricsListener extends AbstractRefreshList
     // visible for testing
     ConsumerRefreshMetrics.Builder refreshMetricsBuilder;
 
+    private Map<String, Long> deltaApplyDurationNanosByType;  // Time spent applying each type, summed over the delta transitions in a refresh
+
     private final Map<Long, Long> cycleVersionStartTimes;
 
     public AbstractRefreshMetricsListener() {
@@ -69,6 +71,8 @@ public abstract class AbstractRefreshMetricsListener extends AbstractRefreshList
         refreshMetricsBuilder = new ConsumerRefreshMetrics.Builder();
         refreshMetricsBuilder.setIsInitialLoad(currentVersion == VERSION_NONE);
         refreshMetricsBuilder.setUpdatePlanDetails(updatePlanDetails);
+        deltaApplyDurationNanosByType = new HashMap<>();
+        refreshMetricsBuilder.setDeltaApplyDurationNanosByType(deltaApplyDurationNanosByType);
         cycleVersionStartTimes.clear(); // clear map to avoid accumulation over time
     }
 
@@ -101,6 +105,19 @@ public abstract class AbstractRefreshMetricsListener extends AbstractRefreshList
         updatePlanDetails.numSuccessfulTransitions ++;
     }
 
+    @Override
+    public void blobLoadTimed(HollowConsumer.Blob transition, long fetchDurationNanos, long fetchWaitDurationNanos, long applyDurationNanos) {
+        updatePlanDetails.fetchDurationNanos += fetchDurationNanos;
+        updatePlanDetails.fetchWaitDurationNanos += fetchWaitDurationNanos;
+        updatePlanDetails.applyDurationNanos += applyDurationNanos;
+    }
+
+    @Override
+    public void sharedMemoryLoadTimed(long prefaultDurationNanos, long warmupDurationNanos) {
+        updatePlanDetails.prefaultDurationNanos += prefaultDurationNanos;
+        updatePlanDetails.warmupDurationNanos += warmupDurationNanos;
+    }
+
     /**
      * Metrics reporting implementation is provided by the extending subclass. If exceptions are not gracefully handled
      * in the extending subclass then an exception there can fail the consumer refresh, even though metrics reporting
@@ -169,6 +186,9 @@ public abstract class AbstractRefreshMetricsListener extends AbstractRefreshList
     @Override
     public void deltaUpdateOccurred(HollowAPI refreshAPI, HollowReadStateEngine stateEngine, long version) {
         trackCycleStartTime(version, stateEngine.getHeaderTags());
+        for (Map.Entry<String, Long> entry : stateEngine.getLastDeltaApplyNanosByType().entrySet()) {
+            deltaApplyDurationNanosByType.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
     }
 
     /**
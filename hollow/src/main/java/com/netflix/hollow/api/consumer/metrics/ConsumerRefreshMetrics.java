@@ -17,7 +17,9 @@
 package com.netflix.hollow.api.consumer.metrics;
 
 import com.netflix.hollow.api.consumer.HollowConsumer.Blob.BlobType;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.OptionalLong;
 
 public class ConsumerRefreshMetrics {
@@ -31,6 +33,7 @@ public class ConsumerRefreshMetrics {
     private OptionalLong refreshSuccessAgeMillisOptional; // time elapsed since the previous successful refresh
     private long refreshEndTimeNano;                // monotonic system time when refresh ended
     private OptionalLong cycleStartTimestamp;       // timestamp in millis of when cycle started for the loaded data version
+    private Map<String, Long> deltaApplyDurationNanosByType; // time spent applying deltas to each type, summed over all delta transitions
 
     /**
      * A class that contains details of the consumer refresh update plan that may be useful to report as metrics or logs.
@@ -41,6 +44,11 @@ public class ConsumerRefreshMetrics {
         long desiredVersion;
         List<BlobType> transitionSequence;
         int numSuccessfulTransitions;
+        long fetchDurationNanos;
+        long fetchWaitDurationNanos;
+        long applyDurationNanos;
+        long prefaultDurationNanos;
+        long warmupDurationNanos;
 
         public long getBeforeVersion() {
             return beforeVersion;
@@ -54,6 +62,41 @@ public class ConsumerRefreshMetrics {
         public int getNumSuccessfulTransitions() {
             return numSuccessfulTransitions;
         }
+        /**
+         * @return the time spent retrieving blobs, summed over the successful transitions.  When deltas are
+         *         prefetched this includes time overlapped with applying earlier transitions.
+         */
+        public long getFetchDurationNanos() {
+            return fetchDurationNanos;
+        }
+        /**
+         * @return the time the refresh was blocked waiting for blobs to be retrieved, summed over the successful transitions
+         */
+        public long getFetchWaitDurationNanos() {
+            return fetchWaitDurationNanos;
+        }
+        /**
+         * @return the time spent applying blobs, summed over the successful transitions
+         */
+        public long getApplyDurationNanos() {
+            return applyDurationNanos;
+        }
+        /**
+         * @return the time spent loading mapped blobs into main memory in
+         *         {@link com.netflix.hollow.core.memory.MemoryMode#SHARED_MEMORY_EAGER} mode, summed over the
+         *         successful transitions.  This is part of the fetch duration, other than for a filtered snapshot whose
+         *         included data is loaded once it has been applied.
+         */
+        public long getPrefaultDurationNanos() {
+            return prefaultDurationNanos;
+        }
+        /**
+         * @return the time spent warming up data mapped from shared memory after the transitions were applied, or zero
+         *         if warmup is not enabled
+         */
+        public long getWarmupDurationNanos() {
+            return warmupDurationNanos;
+        }
     }
 
     public long getDurationMillis() {
@@ -83,6 +126,9 @@ public class ConsumerRefreshMetrics {
     public OptionalLong getCycleStartTimestamp() {
         return cycleStartTimestamp;
     }
+    public Map<String, Long> getDeltaApplyDurationNanosByType() {
+        return deltaApplyDurationNanosByType;
+    }
 
     private ConsumerRefreshMetrics(Builder builder) {
         this.durationMillis = builder.durationMillis;
@@ -94,6 +140,7 @@ public class ConsumerRefreshMetrics {
         this.refreshSuccessAgeMillisOptional = builder.refreshSuccessAgeMillisOptional;
         this.refreshEndTimeNano = builder.refreshEndTimeNano;
         this.cycleStartTimestamp = builder.cycleStartTimestamp;
+        this.deltaApplyDurationNanosByType = builder.deltaApplyDurationNanosByType;
     }
 
     public static final class Builder {
@@ -106,10 +153,12 @@ public class ConsumerRefreshMetrics {
         private OptionalLong refreshSuccessAgeMillisOptional;
         private long refreshEndTimeNano;
         private OptionalLong cycleStartTimestamp;
+        private Map<String, Long> deltaApplyDurationNanosByType;
 
         public Builder() {
             refreshSuccessAgeMillisOptional = OptionalLong.empty();
             cycleStartTimestamp = OptionalLong.empty();
+            deltaApplyDurationNanosByType = Collections.emptyMap();
         }
 
         public Builder setDurationMillis(long durationMillis) {
@@ -149,6 +198,10 @@ public class ConsumerRefreshMetrics {
             this.cycleStartTimestamp = OptionalLong.of(cycleStartTimestamp);
             return this;
         }
+        public Builder setDeltaApplyDurationNanosByType(Map<String, Long> deltaApplyDurationNanosByType) {
+            this.deltaApplyDurationNanosByType = deltaApplyDurationNanosByType;
+            return this;
+        }
 
         public ConsumerRefreshMetrics build() {
             return new ConsumerRefreshMetrics(this);
@@ -17,13 +17,16 @@
 package com.netflix.hollow.api.custom;
 
 import com.netflix.hollow.api.codegen.HollowAPIGenerator;
+import com.netflix.hollow.api.objects.provider.HollowObjectBoundedCacheProvider;
 import com.netflix.hollow.api.sampling.HollowSamplingDirector;
 import com.netflix.hollow.api.sampling.SampleResult;
 import com.netflix.hollow.core.read.dataaccess.HollowDataAccess;
 import com.netflix.hollow.core.read.filter.HollowFilterConfig;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A HollowAPI wraps a HollowDataAccess.  This is the parent class of any Generated Hollow API.
@@ -34,12 +37,14 @@ public class HollowAPI {
 
     private final HollowDataAccess dataAccess;
     private final List<HollowTypeAPI> typeAPIs;
+    private final Map<String, HollowObjectBoundedCacheProvider<?>> boundedCacheProviders;
 
     protected HollowSamplingDirector samplingDirector;
 
     public HollowAPI(HollowDataAccess dataAccess) {
         this.dataAccess = dataAccess;
         this.typeAPIs = new ArrayList<HollowTypeAPI>();
+        this.boundedCacheProviders = new HashMap<String, HollowObjectBoundedCacheProvider<?>>();
     }
 
     public HollowDataAccess getDataAccess() {
@@ -93,10 +98,38 @@ public class HollowAPI {
         return sampleResults;
     }
 
+    /**
+     * @return the number of requests for a cached object of each type with a bounded object cache, which were served
+     * from the cache
+     */
+    public Map<String, Long> getObjectCacheHitCounts() {
+        Map<String, Long> hitCounts = new HashMap<String, Long>();
+        for(Map.Entry<String, HollowObjectBoundedCacheProvider<?>> entry : boundedCacheProviders.entrySet()) {
+            hitCounts.put(entry.getKey(), entry.getValue().getHitCount());
+        }
+        return hitCounts;
+    }
+
+    /**
+     * @return the number of requests for a cached object of each type with a bounded object cache, which were not
+     * served from the cache
+     */
+    public Map<String, Long> getObjectCacheMissCounts() {
+        Map<String, Long> missCounts = new HashMap<String, Long>();
+        for(Map.Entry<String, HollowObjectBoundedCacheProvider<?>> entry : boundedCacheProviders.entrySet()) {
+            missCounts.put(entry.getKey(), entry.getValue().getMissCount());
+        }
+        return missCounts;
+    }
+
     public void detachCaches() { }
 
     protected void addTypeAPI(HollowTypeAPI typeAPI) {
         this.typeAPIs.add(typeAPI);
     }
 
+    protected void addBoundedCacheProvider(String type, HollowObjectBoundedCacheProvider<?> cacheProvider) {
+        this.boundedCacheProviders.put(type, cacheProvider);
+    }
+
 }
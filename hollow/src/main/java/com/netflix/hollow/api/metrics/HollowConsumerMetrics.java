@@ -21,6 +21,7 @@ import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 public class HollowConsumerMetrics extends HollowMetrics {
     private int refreshFailed;      // TODO: Move these metrics over to com.netflix.hollow.api.consumer.metrics.AbstractRefreshMetricsListener
     private int refreshSucceeded;
+    private long lastSnapshotPeakTransientBytes;
 
     /**
      * Updates the consumer metrics:
@@ -33,6 +34,14 @@ public class HollowConsumerMetrics extends HollowMetrics {
         super.update(hollowReadStateEngine, version);
     }
 
+    /**
+     * Updates the approximate number of bytes which a double snapshot held in addition to the data it replaced.
+     * @param peakTransientBytes the peak transient bytes
+     */
+    public void updateSnapshotPeakTransientBytes(long peakTransientBytes) {
+        this.lastSnapshotPeakTransientBytes = peakTransientBytes;
+    }
+
     public void updateRefreshFailed() {
         this.refreshFailed++;
     }
@@ -44,4 +53,13 @@ public class HollowConsumerMetrics extends HollowMetrics {
     public int getRefreshSucceded() {
         return this.refreshSucceeded;
     }
+
+    /**
+     * @return the approximate number of bytes which the most recent double snapshot held in addition to the data it
+     * replaced: the size of the whole new state when it was loaded into a new state engine, or the size of the largest
+     * type when it was applied in place.
+     */
+    public long getLastSnapshotPeakTransientBytes() {
+        return this.lastSnapshotPeakTransientBytes;
+    }
 }
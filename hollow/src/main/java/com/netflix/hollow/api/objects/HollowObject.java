@@ -18,7 +18,9 @@ package com.netflix.hollow.api.objects;
 
 import com.netflix.hollow.api.objects.delegate.HollowObjectDelegate;
 import com.netflix.hollow.api.objects.delegate.HollowRecordDelegate;
+import com.netflix.hollow.core.read.dataaccess.HollowBytesView;
 import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.dataaccess.HollowStringView;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 
 /**
@@ -72,6 +74,24 @@ public abstract class HollowObject implements HollowRecord {
         return delegate.getString(ordinal, fieldName);
     }
 
+    /**
+     * Points a reusable view at the value of a STRING field, without allocating a String where the data allows.
+     *
+     * @param fieldName the field name
+     * @param view the view to populate
+     * @return whether or not the value is non-null
+     * @see HollowObjectTypeDataAccess#readStringView(int, int, HollowStringView)
+     */
+    public final boolean getStringView(String fieldName, HollowStringView view) {
+        int fieldIndex = getSchema().getPosition(fieldName);
+        if(fieldIndex == -1) {
+            String value = getString(fieldName);
+            view.reset(value);
+            return value != null;
+        }
+        return getTypeDataAccess().readStringView(ordinal, fieldIndex, view);
+    }
+
     public final boolean isStringFieldEqual(String fieldName, String testValue) {
         return delegate.isStringFieldEqual(ordinal, fieldName, testValue);
     }
@@ -80,6 +100,24 @@ public abstract class HollowObject implements HollowRecord {
         return delegate.getBytes(ordinal, fieldName);
     }
 
+    /**
+     * Points a reusable view at the value of a BYTES field, without allocating a byte array where the data allows.
+     *
+     * @param fieldName the field name
+     * @param view the view to populate
+     * @return whether or not the value is non-null
+     * @see HollowObjectTypeDataAccess#readBytesView(int, int, HollowBytesView)
+     */
+    public final boolean getBytesView(String fieldName, HollowBytesView view) {
+        int fieldIndex = getSchema().getPosition(fieldName);
+        if(fieldIndex == -1) {
+            byte[] value = getBytes(fieldName);
+            view.reset(value);
+            return value != null;
+        }
+        return getTypeDataAccess().readBytesView(ordinal, fieldIndex, view);
+    }
+
     @Override
     public HollowObjectSchema getSchema() {
         return delegate.getSchema();
@@ -0,0 +1,375 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.objects.provider;
+
+import com.netflix.hollow.api.custom.HollowTypeAPI;
+import com.netflix.hollow.api.objects.HollowRecord;
+import com.netflix.hollow.api.objects.delegate.HollowCachedDelegate;
+import com.netflix.hollow.core.memory.encoding.HashCodes;
+import com.netflix.hollow.core.read.dataaccess.HollowTypeDataAccess;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.engine.HollowTypeStateListener;
+import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A HollowObjectBoundedCacheProvider caches up to a maximum number of Object representations (presumably
+ * {@link HollowRecord}s) of records of a specific type.
+ * <p>
+ * Unlike the {@link HollowObjectCacheProvider}, which instantiates an object for every populated ordinal up front, an
+ * object is only instantiated the first time its ordinal is requested.  Once the cache is full, a previously cached object
+ * is evicted with the CLOCK algorithm, which approximates evicting the least recently used object:  each cached object has
+ * a reference bit, set when it is requested, and a hand sweeps over the cached objects, clearing set reference bits until it
+ * finds an object whose reference bit is clear.
+ * <p>
+ * The cache is split into segments by ordinal, each with its own lock, so that threads requesting different objects rarely
+ * contend.  Within a segment, ordinals are located with an open addressing table of primitive ints.
+ * <p>
+ * The cached objects of ordinals which are removed or added by a delta are invalidated as the delta is applied.
+ */
+public class HollowObjectBoundedCacheProvider<T> extends HollowObjectProvider<T> implements HollowTypeStateListener {
+    private static final Logger log = Logger.getLogger(HollowObjectBoundedCacheProvider.class.getName());
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int segmentShift;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private volatile HollowFactory<T> factory;
+    private volatile HollowTypeDataAccess typeDataAccess;
+    private volatile HollowTypeAPI typeAPI;
+    private HollowTypeReadState typeReadState;
+
+    public HollowObjectBoundedCacheProvider(HollowTypeDataAccess typeDataAccess, HollowTypeAPI typeAPI, HollowFactory<T> factory, int maxCachedObjects) {
+        this(typeDataAccess, typeAPI, factory, maxCachedObjects, null);
+    }
+
+    /**
+     * @param typeDataAccess the data access for the type
+     * @param typeAPI the type API
+     * @param factory the factory which instantiates the cached objects
+     * @param maxCachedObjects the maximum number of objects held by this cache
+     * @param previous the cache of the prior cycle's API, whose cached objects are carried over if their ordinals remain
+     *                 populated, or null
+     */
+    public HollowObjectBoundedCacheProvider(HollowTypeDataAccess typeDataAccess, HollowTypeAPI typeAPI, HollowFactory<T> factory, int maxCachedObjects, HollowObjectBoundedCacheProvider<T> previous) {
+        if(maxCachedObjects < 1)
+            throw new IllegalArgumentException("maxCachedObjects must be at least 1");
+
+        int numSegments = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxCachedObjects));
+        this.segments = new Segment[numSegments];
+        this.segmentMask = numSegments - 1;
+        this.segmentShift = Integer.numberOfTrailingZeros(numSegments);
+        for(int i=0;i<numSegments;i++)
+            segments[i] = new Segment((maxCachedObjects + numSegments - 1) / numSegments, segmentShift);
+
+        this.factory = factory;
+        this.typeDataAccess = typeDataAccess;
+        this.typeAPI = typeAPI;
+
+        if(typeDataAccess != null) {
+            if(previous != null)
+                carryOver(previous, typeDataAccess.getTypeState().getListener(PopulatedOrdinalListener.class));
+
+            if(typeDataAccess instanceof HollowTypeReadState) {
+                this.typeReadState = (HollowTypeReadState)typeDataAccess;
+                this.typeReadState.addListener(this);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getHollowObject(int ordinal) {
+        int hash = HashCodes.hashInt(ordinal);
+        Segment segment = segments[hash & segmentMask];
+        hash >>>= segmentShift;
+
+        synchronized(segment) {
+            Object cached = segment.get(ordinal, hash);
+            if(cached != null) {
+                hits.increment();
+                return (T)cached;
+            }
+        }
+
+        misses.increment();
+
+        HollowFactory<T> factory = this.factory;
+        if(factory == null)
+            return null;
+
+        /// instantiated without holding the lock; if another thread cached the same ordinal meanwhile, its object is kept
+        T instantiated = instantiateCachedObject(factory, typeDataAccess, typeAPI, ordinal);
+        if(instantiated == null)
+            return null;
+
+        synchronized(segment) {
+            return (T)segment.putIfAbsent(ordinal, hash, instantiated);
+        }
+    }
+
+    /**
+     * @return the number of requests for an object which was cached
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of requests for an object which was not cached, and so was instantiated
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of objects currently held by this cache
+     */
+    public int size() {
+        int size = 0;
+        for(Segment segment : segments) {
+            synchronized(segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public void detach() {
+        for(Segment segment : segments) {
+            synchronized(segment) {
+                segment.clear();
+            }
+        }
+        factory = null;
+        typeDataAccess = null;
+        typeAPI = null;
+        typeReadState = null;
+    }
+
+    @Override
+    public void addedOrdinal(int ordinal) {
+        /// an ordinal is not removed and added in the same delta unless the delta was squashed from a chain of deltas
+        invalidate(ordinal);
+    }
+
+    @Override
+    public void removedOrdinal(int ordinal) {
+        invalidate(ordinal);
+    }
+
+    private void invalidate(int ordinal) {
+        int hash = HashCodes.hashInt(ordinal);
+        Segment segment = segments[hash & segmentMask];
+        synchronized(segment) {
+            segment.remove(ordinal, hash >>> segmentShift);
+        }
+    }
+
+    private void carryOver(HollowObjectBoundedCacheProvider<T> previous, PopulatedOrdinalListener listener) {
+        BitSet populatedOrdinals = listener.getPopulatedOrdinals();
+        BitSet previousOrdinals = listener.getPreviousOrdinals();
+
+        for(Segment previousSegment : previous.segments) {
+            synchronized(previousSegment) {
+                for(int slot=0;slot<previousSegment.nextUnusedSlot;slot++) {
+                    int ordinal = previousSegment.slotOrdinals[slot];
+                    if(ordinal == -1 || !previousOrdinals.get(ordinal) || !populatedOrdinals.get(ordinal))
+                        continue;
+
+                    Object cached = previousSegment.slotObjects[slot];
+                    if(cached instanceof HollowRecord)
+                        ((HollowCachedDelegate)((HollowRecord)cached).getDelegate()).updateTypeAPI(typeAPI);
+
+                    int hash = HashCodes.hashInt(ordinal);
+                    segments[hash & segmentMask].putIfAbsent(ordinal, hash >>> segmentShift, cached);
+                }
+            }
+        }
+    }
+
+    private T instantiateCachedObject(HollowFactory<T> factory, HollowTypeDataAccess typeDataAccess, HollowTypeAPI typeAPI, int ordinal) {
+        try {
+            return factory.newCachedHollowObject(typeDataAccess, typeAPI, ordinal);
+        } catch(Throwable th) {
+            log.log(Level.SEVERE, "Cached object instantiation failed", th);
+            return null;
+        }
+    }
+
+    @Override public void beginUpdate() { }
+    @Override public void endUpdate() { }
+
+    /**
+     * A fixed number of slots, each holding a cached object and its ordinal, and an open addressing table with linear
+     * probing which locates the slot of an ordinal.  Entries are removed from the table by shifting back the entries
+     * which follow them, so that no tombstones accumulate.
+     * <p>
+     * Not thread safe; guarded by its own monitor.
+     */
+    private static class Segment {
+        private static final int EMPTY = -1;
+
+        final int slotOrdinals[];
+        final Object slotObjects[];
+        final boolean slotReferenced[];
+        final int freeSlots[];
+        int numFreeSlots;
+        int nextUnusedSlot;
+        int clockHand;
+        int size;
+
+        final int tableOrdinals[];
+        final int tableSlots[];
+        final int tableMask;
+        final int hashShift;
+
+        Segment(int capacity, int hashShift) {
+            this.slotOrdinals = new int[capacity];
+            this.slotObjects = new Object[capacity];
+            this.slotReferenced = new boolean[capacity];
+            this.freeSlots = new int[capacity];
+
+            int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            this.tableOrdinals = new int[tableSize];
+            this.tableSlots = new int[tableSize];
+            this.tableMask = tableSize - 1;
+            this.hashShift = hashShift;
+            clear();
+        }
+
+        Object get(int ordinal, int hash) {
+            int bucket = findBucket(ordinal, hash);
+            if(tableOrdinals[bucket] == EMPTY)
+                return null;
+
+            int slot = tableSlots[bucket];
+            slotReferenced[slot] = true;
+            return slotObjects[slot];
+        }
+
+        Object putIfAbsent(int ordinal, int hash, Object obj) {
+            int bucket = findBucket(ordinal, hash);
+            if(tableOrdinals[bucket] != EMPTY) {
+                int slot = tableSlots[bucket];
+                slotReferenced[slot] = true;
+                return slotObjects[slot];
+            }
+
+            int slot;
+            if(numFreeSlots > 0) {
+                slot = freeSlots[--numFreeSlots];
+            } else if(nextUnusedSlot < slotOrdinals.length) {
+                slot = nextUnusedSlot++;
+            } else {
+                slot = evict();
+                /// removing the evicted ordinal may shift the bucket at which this ordinal is inserted
+                bucket = findBucket(ordinal, hash);
+            }
+
+            slotOrdinals[slot] = ordinal;
+            slotObjects[slot] = obj;
+            slotReferenced[slot] = false;
+            tableOrdinals[bucket] = ordinal;
+            tableSlots[bucket] = slot;
+            size++;
+            return obj;
+        }
+
+        void remove(int ordinal, int hash) {
+            int bucket = findBucket(ordinal, hash);
+            if(tableOrdinals[bucket] == EMPTY)
+                return;
+
+            int slot = tableSlots[bucket];
+            removeBucket(bucket);
+            slotOrdinals[slot] = EMPTY;
+            slotObjects[slot] = null;
+            slotReferenced[slot] = false;
+            freeSlots[numFreeSlots++] = slot;
+            size--;
+        }
+
+        void clear() {
+            Arrays.fill(slotOrdinals, EMPTY);
+            Arrays.fill(slotObjects, null);
+            Arrays.fill(slotReferenced, false);
+            Arrays.fill(tableOrdinals, EMPTY);
+            numFreeSlots = 0;
+            nextUnusedSlot = 0;
+            clockHand = 0;
+            size = 0;
+        }
+
+        /**
+         * Sweeps the clock hand over the slots, which are all occupied, giving each referenced object a second chance,
+         * and removes the first unreferenced object.
+         *
+         * @return the slot of the removed object
+         */
+        private int evict() {
+            while(slotReferenced[clockHand]) {
+                slotReferenced[clockHand] = false;
+                clockHand = (clockHand + 1) % slotOrdinals.length;
+            }
+
+            int slot = clockHand;
+            clockHand = (clockHand + 1) % slotOrdinals.length;
+
+            int evictedOrdinal = slotOrdinals[slot];
+            removeBucket(findBucket(evictedOrdinal, hashOf(evictedOrdinal)));
+            size--;
+            return slot;
+        }
+
+        /**
+         * @return the hash of an ordinal, without the bits which selected this segment
+         */
+        private int hashOf(int ordinal) {
+            return HashCodes.hashInt(ordinal) >>> hashShift;
+        }
+
+        private int findBucket(int ordinal, int hash) {
+            int bucket = hash & tableMask;
+            while(tableOrdinals[bucket] != EMPTY && tableOrdinals[bucket] != ordinal)
+                bucket = (bucket + 1) & tableMask;
+            return bucket;
+        }
+
+        private void removeBucket(int bucket) {
+            int next = (bucket + 1) & tableMask;
+            while(tableOrdinals[next] != EMPTY) {
+                int ideal = hashOf(tableOrdinals[next]) & tableMask;
+                if(((next - ideal) & tableMask) >= ((next - bucket) & tableMask)) {
+                    tableOrdinals[bucket] = tableOrdinals[next];
+                    tableSlots[bucket] = tableSlots[next];
+                    bucket = next;
+                }
+                next = (next + 1) & tableMask;
+            }
+            tableOrdinals[bucket] = EMPTY;
+        }
+    }
+}
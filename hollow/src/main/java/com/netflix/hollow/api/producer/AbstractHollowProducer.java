@@ -34,6 +34,7 @@ import com.netflix.hollow.api.producer.validation.ValidationStatusException;
 import com.netflix.hollow.api.producer.validation.ValidatorListener;
 import com.netflix.hollow.core.HollowConstants;
 import com.netflix.hollow.core.HollowStateEngine;
+import com.netflix.hollow.core.compress.HollowBlockCompression;
 import com.netflix.hollow.core.read.HollowBlobInput;
 import com.netflix.hollow.core.read.engine.HollowBlobHeaderReader;
 import com.netflix.hollow.core.read.engine.HollowBlobReader;
@@ -41,18 +42,23 @@ import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.util.HollowObjectHashCodeFinder;
 import com.netflix.hollow.core.util.HollowWriteStateCreator;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
 import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowCombinedBlobWriter;
 import com.netflix.hollow.core.write.HollowWriteStateEngine;
 import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
 import com.netflix.hollow.core.write.objectmapper.RecordPrimaryKey;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
@@ -81,6 +87,9 @@ abstract class AbstractHollowProducer {
     long lastSuccessfulCycle = 0;
     final HollowObjectHashCodeFinder hashCodeFinder;
     final boolean doIntegrityCheck;
+    double incrementalThreadsPerCpu = 1.0d;
+    HollowBlockCompression blockCompression;
+    final HollowIncrementalPrimaryKeyIndex incrementalPrimaryKeyIndex = new HollowIncrementalPrimaryKeyIndex();
 
     boolean isInitialized;
 
@@ -106,6 +115,9 @@ abstract class AbstractHollowProducer {
                 b.numStatesBetweenSnapshots, b.targetMaxTypeShardSize,
                 b.metricsCollector, b.blobStorageCleaner, b.singleProducerEnforcer,
                 b.hashCodeFinder, b.doIntegrityCheck);
+        getWriteEngine().setTypeResharding(b.typeResharding);
+        this.incrementalThreadsPerCpu = b.incrementalThreadsPerCpu;
+        this.blockCompression = b.blockCompression;
     }
 
     private AbstractHollowProducer(
@@ -535,7 +547,7 @@ abstract class AbstractHollowProducer {
             listeners.fireIncrementalPopulateComplete(incrementalPopulateStatus);
         }
 
-        return new HollowIncrementalCyclePopulator(events, 1.0);
+        return new HollowIncrementalCyclePopulator(events, incrementalThreadsPerCpu, incrementalPrimaryKeyIndex);
     }
 
     /*
@@ -544,15 +556,10 @@ abstract class AbstractHollowProducer {
     void publish(ProducerListeners listeners, long toVersion, Artifacts artifacts) throws IOException {
         Status.StageBuilder psb = listeners.firePublishStart(toVersion);
         try {
-            if(!readStates.hasCurrent() || doIntegrityCheck || numStatesUntilNextSnapshot <= 0)
-                artifacts.snapshot = stageBlob(listeners, blobStager.openSnapshot(toVersion));
+            boolean stageSnapshot = !readStates.hasCurrent() || doIntegrityCheck || numStatesUntilNextSnapshot <= 0;
+            stageBlobs(listeners, toVersion, artifacts, stageSnapshot);
 
             if (readStates.hasCurrent()) {
-                artifacts.delta = stageBlob(listeners,
-                        blobStager.openDelta(readStates.current().getVersion(), toVersion));
-                artifacts.reverseDelta = stageBlob(listeners,
-                        blobStager.openReverseDelta(toVersion, readStates.current().getVersion()));
-
                 publishBlob(listeners, artifacts.delta);
                 publishBlob(listeners, artifacts.reverseDelta);
 
@@ -583,21 +590,93 @@ abstract class AbstractHollowProducer {
         }
     }
 
-    private HollowProducer.Blob stageBlob(ProducerListeners listeners, HollowProducer.Blob blob)
+    /*
+     * Stage the snapshot (if requested), and the delta and reverse delta (if there is a current state), storing each
+     * successfully staged blob in the provided artifacts.
+     *
+     * The blobs are written concurrently from one visit to each type state, see HollowCombinedBlobWriter.  The
+     * blob stage events are fired on the calling thread, in order, once all of the blobs have been written, and the
+     * elapsed time of each ends when that blob was written.
+     */
+    private void stageBlobs(ProducerListeners listeners, long toVersion, Artifacts artifacts, boolean stageSnapshot)
             throws IOException {
-        Status.PublishBuilder builder = new Status.PublishBuilder();
-        HollowBlobWriter writer = new HollowBlobWriter(getWriteEngine());
-        try {
-            builder.blob(blob);
-            blob.write(writer);
-            builder.success();
-            return blob;
-        } catch (Throwable t) {
-            builder.fail(t);
-            throw t;
-        } finally {
-            listeners.fireBlobStage(builder);
+        boolean stageDeltas = readStates.hasCurrent();
+        HollowCombinedBlobWriter combinedWriter = new HollowCombinedBlobWriter(getWriteEngine(), stageSnapshot, stageDeltas);
+        combinedWriter.setBlockCompression(blockCompression);
+
+        List<HollowProducer.Blob> blobs = new ArrayList<>(3);
+        List<HollowBlobWriter> writers = new ArrayList<>(3);
+        if (stageSnapshot) {
+            blobs.add(blobStager.openSnapshot(toVersion));
+            writers.add(combinedWriter.snapshotWriter());
+        }
+        if (stageDeltas) {
+            long fromVersion = readStates.current().getVersion();
+            blobs.add(blobStager.openDelta(fromVersion, toVersion));
+            writers.add(combinedWriter.deltaWriter());
+            blobs.add(blobStager.openReverseDelta(toVersion, fromVersion));
+            writers.add(combinedWriter.reverseDeltaWriter());
+        }
+
+        List<Status.PublishBuilder> builders = new ArrayList<>(blobs.size());
+        List<CompletableFuture<Void>> staged = new ArrayList<>(blobs.size());
+        SimultaneousExecutor executor = new SimultaneousExecutor(blobs.size(), getClass(), "stage-blobs");
+        for (int i = 0; i < blobs.size(); i++) {
+            HollowProducer.Blob blob = blobs.get(i);
+            HollowBlobWriter writer = writers.get(i);
+            Status.PublishBuilder builder = new Status.PublishBuilder().blob(blob);
+            builders.add(builder);
+            staged.add(CompletableFuture.runAsync(() -> {
+                try {
+                    blob.write(writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    // the end is read once the blob has been joined
+                    builder.ended();
+                    // a blob which failed before it was written must not hold back the others
+                    combinedWriter.release(writer);
+                }
+            }, executor));
         }
+        executor.shutdown();
+
+        Throwable failure = null;
+        for (int i = 0; i < blobs.size(); i++) {
+            HollowProducer.Blob blob = blobs.get(i);
+            Status.PublishBuilder builder = builders.get(i);
+            try {
+                staged.get(i).join();
+                builder.success();
+                switch (blob.getType()) {
+                    case SNAPSHOT:
+                        artifacts.snapshot = blob;
+                        break;
+                    case DELTA:
+                        artifacts.delta = blob;
+                        break;
+                    case REVERSE_DELTA:
+                        artifacts.reverseDelta = blob;
+                        break;
+                }
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                builder.fail(cause);
+                if (failure == null)
+                    failure = cause;
+            } finally {
+                listeners.fireBlobStage(builder);
+            }
+        }
+
+        if (failure instanceof IOException)
+            throw (IOException) failure;
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw new RuntimeException(failure);
     }
 
     private void publishBlob(ProducerListeners listeners, HollowProducer.Blob blob) {
@@ -781,13 +860,13 @@ abstract class AbstractHollowProducer {
     }
 
     private void readSnapshot(HollowProducer.Blob blob, HollowReadStateEngine stateEngine) throws IOException {
-        try (HollowBlobInput in = HollowBlobInput.serial(blob.newInputStream())) {   // shared memory mode is not supported for producer
+        try (HollowBlobInput in = HollowBlobInput.serialBlob(blob.newInputStream())) {   // shared memory mode is not supported for producer
             new HollowBlobReader(stateEngine, new HollowBlobHeaderReader()).readSnapshot(in);
         }
     }
 
     private void applyDelta(HollowProducer.Blob blob, HollowReadStateEngine stateEngine) throws IOException {
-        try (HollowBlobInput in = HollowBlobInput.serial(blob.newInputStream())) {   // shared memory mode is not supported for producer
+        try (HollowBlobInput in = HollowBlobInput.serialBlob(blob.newInputStream())) {   // shared memory mode is not supported for producer
             new HollowBlobReader(stateEngine, new HollowBlobHeaderReader()).applyDelta(in);
         }
     }
@@ -16,7 +16,6 @@
  */
 package com.netflix.hollow.api.producer;
 
-import com.netflix.hollow.core.index.HollowPrimaryKeyIndex;
 import com.netflix.hollow.core.memory.ThreadSafeBitSet;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
@@ -51,11 +50,22 @@ public class HollowIncrementalCyclePopulator implements HollowProducer.Populator
 
     private final double threadsPerCpu;
     private final Map<RecordPrimaryKey, Object> mutations;
+    private final HollowIncrementalPrimaryKeyIndex primaryKeyIndex;
     
 
     HollowIncrementalCyclePopulator(Map<RecordPrimaryKey, Object> mutations, double threadsPerCpu) {
+        this(mutations, threadsPerCpu, new HollowIncrementalPrimaryKeyIndex());
+    }
+
+    /**
+     * @param mutations the records to add, modify or remove
+     * @param threadsPerCpu the number of threads per cpu with which the prior state is searched and records are added
+     * @param primaryKeyIndex the primary key indexes of the prior state, kept across cycles
+     */
+    HollowIncrementalCyclePopulator(Map<RecordPrimaryKey, Object> mutations, double threadsPerCpu, HollowIncrementalPrimaryKeyIndex primaryKeyIndex) {
         this.mutations = mutations;
         this.threadsPerCpu = threadsPerCpu;
+        this.primaryKeyIndex = primaryKeyIndex;
     }
 
     @Override
@@ -67,6 +77,7 @@ public class HollowIncrementalCyclePopulator implements HollowProducer.Populator
 
     private void removeRecords(HollowProducer.WriteState newState) {
         if (newState.getPriorState() != null) {
+            primaryKeyIndex.beginCycle(newState.getPriorState().getVersion(), newState.getVersion());
             Collection<String> types = findTypesWithRemovedRecords(newState.getPriorState());
             Map<String, BitSet> recordsToRemove = markRecordsToRemove(newState.getPriorState(), types);
             removeRecordsFromNewState(newState, recordsToRemove);
@@ -105,13 +116,24 @@ public class HollowIncrementalCyclePopulator implements HollowProducer.Populator
         HollowSchema schema = priorReadState.getSchema();
         int populatedOrdinals = priorReadState.getPopulatedOrdinals().length();
         if(schema.getSchemaType() == HollowSchema.SchemaType.OBJECT) {
-            final HollowPrimaryKeyIndex idx = new HollowPrimaryKeyIndex(priorStateEngine, ((HollowObjectSchema) schema).getPrimaryKey()); ///TODO: Should we scan instead?  Can we create this once and do delta updates?
+            final HollowIncrementalPrimaryKeyIndex.TypeIndex idx = primaryKeyIndex.update(priorStateEngine, type, threadsPerCpu);
+
+            List<Map.Entry<RecordPrimaryKey, Object>> typeMutations = new ArrayList<>();
+            for(Map.Entry<RecordPrimaryKey, Object> entry : mutations.entrySet()) {
+                if(entry.getKey().getType().equals(type))
+                    typeMutations.add(entry);
+            }
 
             ThreadSafeBitSet typeRecordsToRemove = new ThreadSafeBitSet(ThreadSafeBitSet.DEFAULT_LOG2_SEGMENT_SIZE_IN_BITS, populatedOrdinals);
+            AtomicInteger nextMutation = new AtomicInteger(0);
+
             SimultaneousExecutor executor = new SimultaneousExecutor(threadsPerCpu, getClass(), "mark-type-records-to-remove");
-            for(final Map.Entry<RecordPrimaryKey, Object> entry : mutations.entrySet()) {
+            for(int i=0;i<executor.getCorePoolSize();i++) {
                 executor.execute(() -> {
-                    if(entry.getKey().getType().equals(type)) {
+                    int currentMutationIdx = nextMutation.getAndIncrement();
+
+                    while(currentMutationIdx < typeMutations.size()) {
+                        Map.Entry<RecordPrimaryKey, Object> entry = typeMutations.get(currentMutationIdx);
                         int priorOrdinal = idx.getMatchingOrdinal(entry.getKey().getKey());
 
                         if(priorOrdinal != -1) {
@@ -120,6 +142,8 @@ public class HollowIncrementalCyclePopulator implements HollowProducer.Populator
                             else
                                 typeRecordsToRemove.set(priorOrdinal);
                         }
+
+                        currentMutationIdx = nextMutation.getAndIncrement();
                     }
                 });
             }
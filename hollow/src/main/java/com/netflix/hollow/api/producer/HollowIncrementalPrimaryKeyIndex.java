@@ -0,0 +1,280 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.producer;
+
+import com.netflix.hollow.core.HollowConstants;
+import com.netflix.hollow.core.index.key.HollowPrimaryKeyValueDeriver;
+import com.netflix.hollow.core.index.key.PrimaryKey;
+import com.netflix.hollow.core.index.key.PrimaryKeyValueHasher;
+import com.netflix.hollow.core.memory.encoding.HashCodes;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The primary key indexes of the prior state of an incremental producer, which are kept across cycles.
+ * <p>
+ * A record keeps its ordinal for as long as it remains populated, and the prior state of one cycle is derived from the
+ * prior state of the cycle before by the ordinals added and removed in that cycle.  So rather than indexing every
+ * record of the prior state in each cycle, each index only removes the ordinals which are no longer populated and adds
+ * the ordinals which have been populated since the index was last updated.
+ * <p>
+ * This only holds across a single cycle: an ordinal which is removed in one cycle may be reused in the next.  The
+ * index of a type is only updated in the cycles in which records of the type are mutated, while its records may also
+ * be removed or added in other cycles, along with the records which reference them.  So each index records the version
+ * of the state it was last updated to, and an index which lags more than one cycle behind the prior state is dropped,
+ * to be rebuilt when it is next updated.
+ * <p>
+ * Each index holds the hash of the key of every indexed ordinal, so that an ordinal is removed without reading its
+ * record, which the prior state may no longer hold.  Keys are only read from the prior state to hash added records,
+ * in parallel, and to confirm a match.
+ * <p>
+ * Not intended for external consumption.
+ */
+class HollowIncrementalPrimaryKeyIndex {
+
+    private final Map<String, TypeIndex> typeIndexes = new HashMap<>();
+    private long priorVersion = HollowConstants.VERSION_NONE;
+    private long precedingVersion = HollowConstants.VERSION_NONE;
+    private long pendingVersion = HollowConstants.VERSION_NONE;
+
+    /**
+     * Prepares the indexes for a cycle.
+     * <p>
+     * An index is kept only if it was last updated to the prior state, or to the state from which the prior state was
+     * produced by the last cycle; otherwise, such as after the producer is restored to an unrelated version or once the
+     * index lags more than one cycle behind, the ordinals of the prior state can not be derived from the indexed
+     * ordinals, and the index is dropped.
+     *
+     * @param priorVersion the version of the prior state
+     * @param version the version of the cycle
+     */
+    void beginCycle(long priorVersion, long version) {
+        if(priorVersion == pendingVersion)
+            precedingVersion = this.priorVersion;
+        else if(priorVersion != this.priorVersion)
+            precedingVersion = HollowConstants.VERSION_NONE;
+        this.priorVersion = priorVersion;
+        this.pendingVersion = version;
+
+        typeIndexes.values().removeIf(typeIndex -> typeIndex.indexedVersion != priorVersion
+                && (typeIndex.indexedVersion != precedingVersion || precedingVersion == HollowConstants.VERSION_NONE));
+    }
+
+    /**
+     * Updates the index of a type to the populated ordinals of the prior state.
+     *
+     * @param priorStateEngine the prior state
+     * @param type the type, which must be an OBJECT type with a primary key
+     * @param threadsPerCpu the number of threads per cpu with which the keys of added records are hashed
+     * @return the index of the type
+     */
+    TypeIndex update(HollowReadStateEngine priorStateEngine, String type, double threadsPerCpu) {
+        HollowTypeReadState typeState = priorStateEngine.getTypeState(type);
+        PrimaryKey primaryKey = ((HollowObjectSchema) typeState.getSchema()).getPrimaryKey();
+
+        TypeIndex typeIndex = typeIndexes.get(type);
+        if(typeIndex == null || !typeIndex.primaryKey.equals(primaryKey)) {
+            typeIndex = new TypeIndex(primaryKey, priorStateEngine);
+            typeIndexes.put(type, typeIndex);
+        }
+
+        /// an index whose update fails part way is dropped at the beginning of the next cycle
+        typeIndex.indexedVersion = HollowConstants.VERSION_NONE;
+        typeIndex.update(priorStateEngine, typeState, threadsPerCpu);
+        typeIndex.indexedVersion = priorVersion;
+        return typeIndex;
+    }
+
+    void clear() {
+        typeIndexes.clear();
+        priorVersion = HollowConstants.VERSION_NONE;
+        precedingVersion = HollowConstants.VERSION_NONE;
+        pendingVersion = HollowConstants.VERSION_NONE;
+    }
+
+    /**
+     * An open addressing table of ordinals, located by the hash of their key.
+     * <p>
+     * Lookups are thread safe, but not concurrently with an update.
+     */
+    static class TypeIndex {
+        private static final int EMPTY = -1;
+        private static final int HASH_BATCH_SIZE = 1024;
+
+        private final PrimaryKey primaryKey;
+        private final PrimaryKeyValueHasher hasher;
+        private final BitSet indexedOrdinals;
+
+        private long indexedVersion = HollowConstants.VERSION_NONE;
+        private HollowPrimaryKeyValueDeriver keyDeriver;
+        private int ordinalHashes[];
+        private int table[];
+        private int tableMask;
+        private int size;
+
+        TypeIndex(PrimaryKey primaryKey, HollowReadStateEngine stateEngine) {
+            this.primaryKey = primaryKey;
+            this.hasher = new PrimaryKeyValueHasher(primaryKey, stateEngine);
+            this.indexedOrdinals = new BitSet();
+            this.ordinalHashes = new int[0];
+            this.table = new int[1];
+            this.tableMask = 0;
+            Arrays.fill(table, EMPTY);
+        }
+
+        /**
+         * @param key the primary key
+         * @return the ordinal of the record of the prior state with the key, or -1 if there is none
+         */
+        int getMatchingOrdinal(Object[] key) {
+            int hash = hashKey(key);
+            int bucket = HashCodes.hashInt(hash) & tableMask;
+            int ordinal = table[bucket];
+            while(ordinal != EMPTY) {
+                if(ordinalHashes[ordinal] == hash && keyDeriver.keyMatches(ordinal, key))
+                    return ordinal;
+                bucket = (bucket + 1) & tableMask;
+                ordinal = table[bucket];
+            }
+            return -1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void update(HollowReadStateEngine stateEngine, HollowTypeReadState typeState, double threadsPerCpu) {
+            this.keyDeriver = new HollowPrimaryKeyValueDeriver(primaryKey, stateEngine);
+            BitSet populatedOrdinals = typeState.getPopulatedOrdinals();
+
+            BitSet removedOrdinals = (BitSet) indexedOrdinals.clone();
+            removedOrdinals.andNot(populatedOrdinals);
+            int ordinal = removedOrdinals.nextSetBit(0);
+            while(ordinal != -1) {
+                remove(ordinal);
+                ordinal = removedOrdinals.nextSetBit(ordinal + 1);
+            }
+
+            BitSet addedOrdinals = (BitSet) populatedOrdinals.clone();
+            addedOrdinals.andNot(indexedOrdinals);
+            int added[] = addedOrdinals.stream().toArray();
+
+            if(ordinalHashes.length <= typeState.maxOrdinal())
+                ordinalHashes = Arrays.copyOf(ordinalHashes, typeState.maxOrdinal() + 1);
+            hashRecordKeys(added, threadsPerCpu);
+
+            int tableSize = HashCodes.hashTableSize(size + added.length);
+            if(tableSize > table.length)
+                rehash(tableSize);
+            for(int addedOrdinal : added)
+                insert(addedOrdinal);
+
+            indexedOrdinals.clear();
+            indexedOrdinals.or(populatedOrdinals);
+        }
+
+        /**
+         * Hashes the keys of the added records, which dominates the cost of an update.
+         */
+        private void hashRecordKeys(int added[], double threadsPerCpu) {
+            if(added.length <= HASH_BATCH_SIZE) {
+                for(int ordinal : added)
+                    ordinalHashes[ordinal] = hashKey(keyDeriver.getRecordKey(ordinal));
+                return;
+            }
+
+            SimultaneousExecutor executor = new SimultaneousExecutor(threadsPerCpu, getClass(), "hash-primary-keys");
+            int numThreads = executor.getCorePoolSize();
+            AtomicInteger nextBatch = new AtomicInteger();
+            int batchSize = HASH_BATCH_SIZE;
+
+            for(int i=0;i<numThreads;i++) {
+                executor.execute(() -> {
+                    int start = nextBatch.getAndIncrement() * batchSize;
+                    while(start < added.length) {
+                        int end = Math.min(start + batchSize, added.length);
+                        for(int j=start;j<end;j++)
+                            ordinalHashes[added[j]] = hashKey(keyDeriver.getRecordKey(added[j]));
+                        start = nextBatch.getAndIncrement() * batchSize;
+                    }
+                });
+            }
+
+            try {
+                executor.awaitSuccessfulCompletion();
+            } catch(Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void insert(int ordinal) {
+            int bucket = HashCodes.hashInt(ordinalHashes[ordinal]) & tableMask;
+            while(table[bucket] != EMPTY)
+                bucket = (bucket + 1) & tableMask;
+            table[bucket] = ordinal;
+            size++;
+        }
+
+        private void remove(int ordinal) {
+            int bucket = HashCodes.hashInt(ordinalHashes[ordinal]) & tableMask;
+            while(table[bucket] != ordinal)
+                bucket = (bucket + 1) & tableMask;
+
+            /// shift back the entries which follow the removed entry, so that no tombstones accumulate
+            int next = (bucket + 1) & tableMask;
+            while(table[next] != EMPTY) {
+                int ideal = HashCodes.hashInt(ordinalHashes[table[next]]) & tableMask;
+                if(((next - ideal) & tableMask) >= ((next - bucket) & tableMask)) {
+                    table[bucket] = table[next];
+                    bucket = next;
+                }
+                next = (next + 1) & tableMask;
+            }
+            table[bucket] = EMPTY;
+            size--;
+        }
+
+        private void rehash(int tableSize) {
+            int previousTable[] = table;
+            table = new int[tableSize];
+            tableMask = tableSize - 1;
+            size = 0;
+            Arrays.fill(table, EMPTY);
+            for(int ordinal : previousTable) {
+                if(ordinal != EMPTY)
+                    insert(ordinal);
+            }
+        }
+
+        private int hashKey(Object[] key) {
+            int hash = 0;
+            for(int i=0;i<key.length;i++) {
+                hash = hash * 31;
+                if(key[i] != null)
+                    hash ^= hasher.hashElement(key[i], i);
+            }
+            return hash;
+        }
+    }
+}
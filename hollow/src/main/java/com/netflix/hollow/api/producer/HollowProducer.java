@@ -26,6 +26,7 @@ import com.netflix.hollow.api.producer.enforcer.SingleProducerEnforcer;
 import com.netflix.hollow.api.producer.fs.HollowFilesystemBlobStager;
 import com.netflix.hollow.api.producer.listener.HollowProducerEventListener;
 import com.netflix.hollow.api.producer.validation.ValidatorListener;
+import com.netflix.hollow.core.compress.HollowBlockCompression;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.util.HollowObjectHashCodeFinder;
@@ -670,12 +671,15 @@ public class HollowProducer extends AbstractHollowProducer {
         Executor snapshotPublishExecutor = null;
         int numStatesBetweenSnapshots = 0;
         long targetMaxTypeShardSize = DEFAULT_TARGET_MAX_TYPE_SHARD_SIZE;
+        boolean typeResharding = false;
+        double incrementalThreadsPerCpu = 1.0d;
         HollowMetricsCollector<HollowProducerMetrics> metricsCollector;
         BlobStorageCleaner blobStorageCleaner = new DummyBlobStorageCleaner();
         SingleProducerEnforcer singleProducerEnforcer = new BasicSingleProducerEnforcer();
         HollowObjectHashCodeFinder hashCodeFinder = null;
         boolean doIntegrityCheck = true;
         ProducerOptionalBlobPartConfig optionalPartConfig = null;
+        HollowBlockCompression blockCompression = null;
 
         public B withBlobStager(HollowProducer.BlobStager stager) {
             this.stager = stager;
@@ -687,6 +691,20 @@ public class HollowProducer extends AbstractHollowProducer {
             return (B) this;
         }
 
+        /**
+         * Block-compress the blobs as they are written, with the blocks of each blob compressed in parallel.  Consumers
+         * detect block-compressed blobs and decompress them in parallel, including for shared memory mode, without a
+         * {@link BlobCompressor}.
+         *
+         * @param blockCompression the configuration of the block compression
+         * @return this builder
+         * @see HollowBlockCompression
+         */
+        public B withBlockCompression(HollowBlockCompression blockCompression) {
+            this.blockCompression = blockCompression;
+            return (B) this;
+        }
+
         public B withOptionalPartConfig(ProducerOptionalBlobPartConfig optionalPartConfig) {
             this.optionalPartConfig = optionalPartConfig;
             return (B) this;
@@ -799,6 +817,36 @@ public class HollowProducer extends AbstractHollowProducer {
             return (B) this;
         }
 
+        /**
+         * Recalculate the number of shards of each type in every cycle, so that the shards of a type which grows or
+         * shrinks stay close to the target max type shard size.
+         * <p>
+         * With this option the number of shards of a type can change from one state to the next within a delta chain.
+         * Consumers running a version of hollow which doesn't support resharding can't apply such a delta, so all
+         * consumers must be upgraded before this option is enabled.
+         *
+         * @param typeResharding true to recalculate the number of shards of each type in every cycle
+         * @return this builder
+         * @see HollowWriteStateEngine#setTypeResharding(boolean)
+         */
+        public B withTypeResharding(boolean typeResharding) {
+            this.typeResharding = typeResharding;
+            return (B) this;
+        }
+
+        /**
+         * Sets the number of threads per cpu with which an incremental producer searches the prior state for the
+         * records changed in a cycle, and adds the changed records.
+         *
+         * @param incrementalThreadsPerCpu the number of threads per cpu, 1.0 by default
+         * @return this builder
+         * @see HollowProducer.Incremental#runIncrementalCycle(HollowProducer.Incremental.IncrementalPopulator)
+         */
+        public B withIncrementalThreadsPerCpu(double incrementalThreadsPerCpu) {
+            this.incrementalThreadsPerCpu = incrementalThreadsPerCpu;
+            return (B) this;
+        }
+
         public B withMetricsCollector(HollowMetricsCollector<HollowProducerMetrics> metricsCollector) {
             this.metricsCollector = metricsCollector;
             return (B) this;
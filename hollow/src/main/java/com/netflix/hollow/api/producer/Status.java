@@ -68,6 +68,7 @@ public final class Status {
         Throwable cause;
         long start;
         long end;
+        boolean endRecorded;
 
         AbstractStatusBuilder() {
             start = System.currentTimeMillis();
@@ -86,8 +87,19 @@ public final class Status {
             return (T) this;
         }
 
+        /**
+         * Records the end of the action, when it ends on another thread before the status is built.
+         */
+        @SuppressWarnings("unchecked")
+        T ended() {
+            this.end = System.currentTimeMillis();
+            this.endRecorded = true;
+            return (T) this;
+        }
+
         Status build() {
-            end = System.currentTimeMillis();
+            if (!endRecorded)
+                end = System.currentTimeMillis();
             return new Status(type, cause);
         }
 
@@ -20,6 +20,8 @@ import com.netflix.hollow.api.producer.AbstractHollowProducerListener;
 import com.netflix.hollow.api.producer.HollowProducer;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.OptionalLong;
 
 /**
@@ -38,11 +40,53 @@ public abstract class AbstractProducerMetricsListener extends AbstractHollowProd
     OptionalLong lastCycleSuccessTimeNanoOptional;
     OptionalLong lastAnnouncementSuccessTimeNanoOptional;
 
+    // durations of the stages of the current cycle
+    private OptionalLong populateDurationMillis;
+    private OptionalLong publishDurationMillis;
+    private OptionalLong integrityCheckDurationMillis;
+    private Map<HollowProducer.Blob.Type, Long> blobStageDurationMillis;
 
     public AbstractProducerMetricsListener() {
         consecutiveFailures = 0l;
         lastCycleSuccessTimeNanoOptional = OptionalLong.empty();
         lastAnnouncementSuccessTimeNanoOptional = OptionalLong.empty();
+        resetStageDurations();
+    }
+
+    private void resetStageDurations() {
+        populateDurationMillis = OptionalLong.empty();
+        publishDurationMillis = OptionalLong.empty();
+        integrityCheckDurationMillis = OptionalLong.empty();
+        blobStageDurationMillis = new EnumMap<>(HollowProducer.Blob.Type.class);
+    }
+
+    @Override
+    public void onCycleStart(long version) {
+        resetStageDurations();
+    }
+
+    @Override
+    public void onPopulateComplete(com.netflix.hollow.api.producer.Status status, long version, Duration elapsed) {
+        populateDurationMillis = OptionalLong.of(elapsed.toMillis());
+        super.onPopulateComplete(status, version, elapsed);
+    }
+
+    @Override
+    public void onBlobStage(com.netflix.hollow.api.producer.Status status, HollowProducer.Blob blob, Duration elapsed) {
+        blobStageDurationMillis.put(blob.getType(), elapsed.toMillis());
+        super.onBlobStage(status, blob, elapsed);
+    }
+
+    @Override
+    public void onPublishComplete(com.netflix.hollow.api.producer.Status status, long version, Duration elapsed) {
+        publishDurationMillis = OptionalLong.of(elapsed.toMillis());
+        super.onPublishComplete(status, version, elapsed);
+    }
+
+    @Override
+    public void onIntegrityCheckComplete(com.netflix.hollow.api.producer.Status status, HollowProducer.ReadState readState, long version, Duration elapsed) {
+        integrityCheckDurationMillis = OptionalLong.of(elapsed.toMillis());
+        super.onIntegrityCheckComplete(status, readState, version, elapsed);
     }
 
     @Override
@@ -123,6 +167,10 @@ public abstract class AbstractProducerMetricsListener extends AbstractHollowProd
                 .setCycleDurationMillis(elapsed.toMillis())
                 .setIsCycleSuccess(isCycleSuccess);
         lastCycleSuccessTimeNanoOptional.ifPresent(cycleMetricsBuilder::setLastCycleSuccessTimeNano);
+        populateDurationMillis.ifPresent(cycleMetricsBuilder::setPopulateDurationMillis);
+        publishDurationMillis.ifPresent(cycleMetricsBuilder::setPublishDurationMillis);
+        integrityCheckDurationMillis.ifPresent(cycleMetricsBuilder::setIntegrityCheckDurationMillis);
+        cycleMetricsBuilder.setBlobStageDurationMillis(blobStageDurationMillis);
 
         cycleMetricsReporting(cycleMetricsBuilder.build());
     }
@@ -16,6 +16,9 @@
  */
 package com.netflix.hollow.api.producer.metrics;
 
+import com.netflix.hollow.api.producer.HollowProducer;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
 
@@ -25,6 +28,10 @@ public class CycleMetrics {
     private OptionalLong cycleDurationMillis;               // Cycle start to end duration, only applicable to completed cycles
     private Optional<Boolean> isCycleSuccess;               // true if cycle was successful, false if cycle failed, N/A if cycle was skipped
     private OptionalLong lastCycleSuccessTimeNano;          // monotonic time of last successful cycle (no relation to wall clock), N/A until first successful cycle
+    private OptionalLong populateDurationMillis;            // Duration of the populate stage, N/A if the cycle did not reach it
+    private OptionalLong publishDurationMillis;             // Duration of the publish stage, including blob staging, N/A if the cycle did not reach it
+    private OptionalLong integrityCheckDurationMillis;      // Duration of the integrity check stage, N/A if the cycle did not reach it
+    private Map<HollowProducer.Blob.Type, Long> blobStageDurationMillis; // Duration of staging each type of blob written in the cycle
 
     public long getConsecutiveFailures() {
         return consecutiveFailures;
@@ -38,12 +45,28 @@ public class CycleMetrics {
     public OptionalLong getLastCycleSuccessTimeNano() {
         return lastCycleSuccessTimeNano;
     }
+    public OptionalLong getPopulateDurationMillis() {
+        return populateDurationMillis;
+    }
+    public OptionalLong getPublishDurationMillis() {
+        return publishDurationMillis;
+    }
+    public OptionalLong getIntegrityCheckDurationMillis() {
+        return integrityCheckDurationMillis;
+    }
+    public Map<HollowProducer.Blob.Type, Long> getBlobStageDurationMillis() {
+        return blobStageDurationMillis;
+    }
 
     private CycleMetrics(Builder builder) {
         this.consecutiveFailures = builder.consecutiveFailures;
         this.cycleDurationMillis = builder.cycleDurationMillis;
         this.isCycleSuccess = builder.isCycleSuccess;
         this.lastCycleSuccessTimeNano = builder.lastCycleSuccessTimeNano;
+        this.populateDurationMillis = builder.populateDurationMillis;
+        this.publishDurationMillis = builder.publishDurationMillis;
+        this.integrityCheckDurationMillis = builder.integrityCheckDurationMillis;
+        this.blobStageDurationMillis = builder.blobStageDurationMillis;
     }
 
     public static final class Builder {
@@ -51,11 +74,19 @@ public class CycleMetrics {
         private OptionalLong cycleDurationMillis;
         private Optional<Boolean> isCycleSuccess;
         private OptionalLong lastCycleSuccessTimeNano;
+        private OptionalLong populateDurationMillis;
+        private OptionalLong publishDurationMillis;
+        private OptionalLong integrityCheckDurationMillis;
+        private Map<HollowProducer.Blob.Type, Long> blobStageDurationMillis;
 
         public Builder() {
             isCycleSuccess = Optional.empty();
             cycleDurationMillis = OptionalLong.empty();
             lastCycleSuccessTimeNano = OptionalLong.empty();
+            populateDurationMillis = OptionalLong.empty();
+            publishDurationMillis = OptionalLong.empty();
+            integrityCheckDurationMillis = OptionalLong.empty();
+            blobStageDurationMillis = Collections.emptyMap();
         }
 
         public Builder setConsecutiveFailures(long consecutiveFailures) {
@@ -74,6 +105,22 @@ public class CycleMetrics {
             this.lastCycleSuccessTimeNano = OptionalLong.of(lastCycleSuccessTimeNano);
             return this;
         }
+        public Builder setPopulateDurationMillis(long populateDurationMillis) {
+            this.populateDurationMillis = OptionalLong.of(populateDurationMillis);
+            return this;
+        }
+        public Builder setPublishDurationMillis(long publishDurationMillis) {
+            this.publishDurationMillis = OptionalLong.of(publishDurationMillis);
+            return this;
+        }
+        public Builder setIntegrityCheckDurationMillis(long integrityCheckDurationMillis) {
+            this.integrityCheckDurationMillis = OptionalLong.of(integrityCheckDurationMillis);
+            return this;
+        }
+        public Builder setBlobStageDurationMillis(Map<HollowProducer.Blob.Type, Long> blobStageDurationMillis) {
+            this.blobStageDurationMillis = blobStageDurationMillis;
+            return this;
+        }
 
         public CycleMetrics build() {
             return new CycleMetrics(this);
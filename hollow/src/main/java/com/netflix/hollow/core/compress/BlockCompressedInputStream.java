@@ -0,0 +1,186 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.compress;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * An InputStream which reads a block-compressed blob, see {@link HollowBlockCompression}.
+ * <p>
+ * The frames of the blocks are read from the underlying stream on the thread reading from this stream, ahead of the
+ * bytes which are read, and each is handed to a pool of threads to be decompressed.  So the decompression of up to two
+ * blocks per thread proceeds concurrently with the decoding of the blob.  The pool is shut down as soon as the end of
+ * the blocks is reached, which is when the last block is handed over, so a stream which is read to its last byte does
+ * not need to be closed to release its threads.
+ * <p>
+ * The index and the trailer of the blob are not read, so the underlying stream is left positioned after the end marker.
+ * <p>
+ * This class is not thread safe.
+ */
+public class BlockCompressedInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private final HollowBlockCodec codec;
+    private final int blockSize;
+    private final ThreadPoolExecutor executor;
+    private final int maxBlocksAhead;
+    private final Deque<Future<byte[]>> blocksAhead = new ArrayDeque<>();
+
+    private byte currentBlock[];
+    private int currentBlockPosition;
+    private boolean endOfBlocks;
+    private boolean closed;
+
+    /**
+     * Reads the header of a block-compressed blob from the underlying stream.
+     *
+     * @param in the underlying stream
+     * @param numThreads the number of threads with which blocks are decompressed
+     * @throws IOException if the header could not be read, or the stream does not hold a block-compressed blob
+     */
+    public BlockCompressedInputStream(InputStream in, int numThreads) throws IOException {
+        if(numThreads < 1)
+            throw new IllegalArgumentException("numThreads must be at least 1");
+
+        this.in = new DataInputStream(in);
+        if(this.in.readInt() != HollowBlockCompression.MAGIC)
+            throw new IOException("The stream does not hold a block-compressed blob");
+        HollowBlockCompression.readFormatVersion(this.in.readByte());
+        this.codec = HollowBlockCompression.codec(this.in.readByte());
+        this.blockSize = HollowBlockCompression.readBlockSize(this.in.readInt());
+
+        this.executor = numThreads > 1
+                ? HollowBlockCompression.newExecutor(numThreads, getClass(), "decompress-blob")
+                : null;
+        this.maxBlocksAhead = executor == null ? 1 : 2 * numThreads;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if(!ensureAvailable())
+            return -1;
+        return currentBlock[currentBlockPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0)
+            return 0;
+        if(!ensureAvailable())
+            return -1;
+
+        int bytesToCopy = Math.min(len, currentBlock.length - currentBlockPosition);
+        System.arraycopy(currentBlock, currentBlockPosition, b, off, bytesToCopy);
+        currentBlockPosition += bytesToCopy;
+        return bytesToCopy;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while(skipped < n && ensureAvailable()) {
+            int bytesToSkip = (int)Math.min(n - skipped, currentBlock.length - currentBlockPosition);
+            currentBlockPosition += bytesToSkip;
+            skipped += bytesToSkip;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return currentBlock == null ? 0 : currentBlock.length - currentBlockPosition;
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        if(closed)
+            throw new IOException("Stream closed");
+
+        while(currentBlock == null || currentBlockPosition == currentBlock.length) {
+            readAhead();
+            if(blocksAhead.isEmpty())
+                return false;
+
+            currentBlock = await(blocksAhead.poll());
+            currentBlockPosition = 0;
+        }
+
+        /// keep the pool busy while the current block is read, and reach the end marker once the last block is handed over
+        readAhead();
+        return true;
+    }
+
+    private void readAhead() throws IOException {
+        while(!endOfBlocks && blocksAhead.size() < maxBlocksAhead) {
+            int blockLength = in.readInt();
+            if(blockLength == 0) {
+                endOfBlocks = true;
+                if(executor != null)
+                    executor.shutdown();
+                return;
+            }
+
+            int storedLength = HollowBlockCompression.checkFrame(blockLength, in.readInt(), blockSize);
+            byte stored[] = new byte[storedLength];
+            in.readFully(stored);
+
+            if(storedLength == blockLength)
+                blocksAhead.add(CompletableFuture.completedFuture(stored));
+            else if(executor == null)
+                blocksAhead.add(CompletableFuture.completedFuture(decompress(stored, blockLength)));
+            else
+                blocksAhead.add(executor.submit(() -> decompress(stored, blockLength)));
+        }
+    }
+
+    private byte[] decompress(byte stored[], int blockLength) throws IOException {
+        byte block[] = new byte[blockLength];
+        codec.decompress(stored, stored.length, block, blockLength);
+        return block;
+    }
+
+    private byte[] await(Future<byte[]> block) throws IOException {
+        try {
+            return block.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decompressing blob");
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            throw new IOException("Failed to decompress blob", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if(executor != null)
+            executor.shutdownNow();
+        blocksAhead.clear();
+        currentBlock = null;
+        in.close();
+    }
+}
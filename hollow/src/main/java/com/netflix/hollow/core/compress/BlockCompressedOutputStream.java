@@ -0,0 +1,214 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.compress;
+
+import com.netflix.hollow.core.util.LongList;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * An OutputStream which writes a block-compressed blob, see {@link HollowBlockCompression}.
+ * <p>
+ * The bytes written to this stream are gathered into blocks, and each full block is handed to a pool of threads to be
+ * compressed.  The compressed blocks are written to the underlying stream in order, as soon as each is ready, and at
+ * most two blocks per thread are held in memory at any time.  Flushing this stream writes the blocks which are already
+ * full; a partially filled block is only written by {@link #finish()}.
+ * <p>
+ * This class is not thread safe.
+ */
+public class BlockCompressedOutputStream extends OutputStream {
+
+    private final DataOutputStream out;
+    private final HollowBlockCodec codec;
+    private final int blockSize;
+    private final ThreadPoolExecutor executor;
+    private final int maxBlocksInFlight;
+    private final Deque<Future<Frame>> blocksInFlight = new ArrayDeque<>();
+    private final LongList frameOffsets = new LongList();
+
+    private byte currentBlock[];
+    private int currentBlockLength;
+    private long length;
+    private long bytesWritten;
+    private boolean finished;
+
+    /**
+     * Writes the header of a block-compressed blob to the underlying stream.
+     *
+     * @param out the underlying stream
+     * @param compression the configuration of the compression
+     * @throws IOException if the header could not be written
+     */
+    public BlockCompressedOutputStream(OutputStream out, HollowBlockCompression compression) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.codec = compression.getCodec();
+        this.blockSize = compression.getBlockSize();
+        this.executor = compression.getNumThreads() > 1
+                ? HollowBlockCompression.newExecutor(compression.getNumThreads(), getClass(), "compress-blob")
+                : null;
+        this.maxBlocksInFlight = 2 * compression.getNumThreads();
+        this.currentBlock = new byte[blockSize];
+
+        this.out.writeInt(HollowBlockCompression.MAGIC);
+        this.out.writeByte(HollowBlockCompression.FORMAT_VERSION);
+        this.out.writeByte(codec.getId());
+        this.out.writeInt(blockSize);
+        this.bytesWritten = 10;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureNotFinished();
+        currentBlock[currentBlockLength++] = (byte)b;
+        if(currentBlockLength == blockSize)
+            submitCurrentBlock();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureNotFinished();
+        while(len > 0) {
+            int bytesToCopy = Math.min(len, blockSize - currentBlockLength);
+            System.arraycopy(b, off, currentBlock, currentBlockLength, bytesToCopy);
+            currentBlockLength += bytesToCopy;
+            off += bytesToCopy;
+            len -= bytesToCopy;
+            if(currentBlockLength == blockSize)
+                submitCurrentBlock();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        while(!blocksInFlight.isEmpty())
+            writeFrame(await(blocksInFlight.poll()));
+        out.flush();
+    }
+
+    /**
+     * Writes the last block, the end marker, the index, and the trailer of the blob, without closing the underlying
+     * stream.  Nothing more may be written to this stream afterwards.
+     *
+     * @throws IOException if the blob could not be written
+     */
+    public void finish() throws IOException {
+        if(finished)
+            return;
+
+        try {
+            if(currentBlockLength > 0)
+                submitCurrentBlock();
+            flush();
+
+            out.writeInt(0);
+            long indexOffset = bytesWritten + 4;
+
+            out.writeInt(frameOffsets.size());
+            out.writeLong(length);
+            for(int i=0;i<frameOffsets.size();i++)
+                out.writeLong(frameOffsets.get(i));
+
+            out.writeLong(indexOffset);
+            out.writeInt(HollowBlockCompression.MAGIC);
+            out.flush();
+        } finally {
+            finished = true;
+            currentBlock = null;
+            if(executor != null)
+                executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void submitCurrentBlock() throws IOException {
+        final byte block[] = currentBlock;
+        final int blockLength = currentBlockLength;
+        length += blockLength;
+
+        if(executor == null) {
+            writeFrame(compress(block, blockLength));
+            currentBlockLength = 0;
+            return;
+        }
+
+        blocksInFlight.add(executor.submit(() -> compress(block, blockLength)));
+        currentBlock = new byte[blockSize];
+        currentBlockLength = 0;
+
+        while(blocksInFlight.size() >= maxBlocksInFlight)
+            writeFrame(await(blocksInFlight.poll()));
+    }
+
+    private Frame compress(byte block[], int blockLength) {
+        byte compressed[] = new byte[blockLength];
+        int compressedLength = codec.compress(block, blockLength, compressed);
+        if(compressedLength < 0 || compressedLength >= blockLength)
+            return new Frame(blockLength, block, blockLength);
+        return new Frame(blockLength, compressed, compressedLength);
+    }
+
+    private void writeFrame(Frame frame) throws IOException {
+        frameOffsets.add(bytesWritten);
+        out.writeInt(frame.blockLength);
+        out.writeInt(frame.storedLength);
+        out.write(frame.stored, 0, frame.storedLength);
+        bytesWritten += 8 + frame.storedLength;
+    }
+
+    private Frame await(Future<Frame> frame) throws IOException {
+        try {
+            return frame.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing blob");
+        } catch(ExecutionException e) {
+            throw new IOException("Failed to compress blob", e.getCause());
+        }
+    }
+
+    private void ensureNotFinished() throws IOException {
+        if(finished)
+            throw new IOException("The block-compressed blob is already finished");
+    }
+
+    private static class Frame {
+        private final int blockLength;
+        private final byte stored[];
+        private final int storedLength;
+
+        private Frame(int blockLength, byte stored[], int storedLength) {
+            this.blockLength = blockLength;
+            this.stored = stored;
+            this.storedLength = storedLength;
+        }
+    }
+}
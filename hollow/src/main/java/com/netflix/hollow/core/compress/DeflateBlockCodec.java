@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.compress;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link HollowBlockCodec} which compresses each block as a zlib stream with the JDK's {@link Deflater}.
+ * <p>
+ * A {@link Deflater} or {@link Inflater} is not thread safe, so one is created for each block.  At the default block
+ * size, the cost of doing so is negligible next to the cost of compressing the block.
+ */
+public class DeflateBlockCodec implements HollowBlockCodec {
+
+    public static final byte ID = 1;
+
+    private final int level;
+
+    public DeflateBlockCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level the compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}, which
+     *        only needs to be known to the producer
+     */
+    public DeflateBlockCodec(int level) {
+        if((level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        this.level = level;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcLength, byte[] dst) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(src, 0, srcLength);
+            deflater.finish();
+
+            int length = 0;
+            while(!deflater.finished() && length < dst.length)
+                length += deflater.deflate(dst, length, dst.length - length);
+
+            return deflater.finished() ? length : -1;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcLength, byte[] dst, int dstLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(src, 0, srcLength);
+
+            int length = 0;
+            while(!inflater.finished()) {
+                /// once the block is full, the remaining input may only hold the end of the zlib stream
+                int inflated = length < dstLength
+                        ? inflater.inflate(dst, length, dstLength - length)
+                        : inflater.inflate(new byte[1]);
+                if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                length += inflated;
+            }
+
+            if(length != dstLength || !inflater.finished())
+                throw new IOException("Compressed block is corrupt, it decompressed to " + length + " bytes but " + dstLength + " were expected");
+        } catch(DataFormatException e) {
+            throw new IOException("Compressed block is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
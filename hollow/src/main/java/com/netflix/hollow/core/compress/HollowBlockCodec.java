@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.compress;
+
+import java.io.IOException;
+
+/**
+ * Compresses and decompresses the blocks of a block-compressed blob, see {@link HollowBlockCompression}.
+ * <p>
+ * The blocks of a blob are compressed and decompressed concurrently, so implementations must be thread safe.  A codec
+ * is identified in the blobs it compresses by its id, so a consumer can only read a blob compressed with a custom codec
+ * once that codec is {@link HollowBlockCompression#registerCodec(HollowBlockCodec) registered}.
+ */
+public interface HollowBlockCodec {
+
+    /**
+     * A codec which compresses blocks with the JDK's {@link java.util.zip.Deflater}, at its default compression level.
+     */
+    HollowBlockCodec DEFLATE = new DeflateBlockCodec();
+
+    /**
+     * @return the id which identifies this codec in the blobs it compresses; ids up to 15 are reserved
+     */
+    byte getId();
+
+    /**
+     * Compresses a block into {@code dst}, which has the length of the block.
+     *
+     * @param src the array holding the block
+     * @param srcLength the length of the block
+     * @param dst the array into which the block is compressed
+     * @return the length of the compressed block, or -1 if the compressed block would not fit in {@code dst}
+     */
+    int compress(byte[] src, int srcLength, byte[] dst);
+
+    /**
+     * Decompresses a block into {@code dst}.
+     *
+     * @param src the array holding the compressed block
+     * @param srcLength the length of the compressed block
+     * @param dst the array into which the block is decompressed
+     * @param dstLength the length of the block
+     * @throws IOException if the compressed block is corrupt, or does not decompress to {@code dstLength} bytes
+     */
+    void decompress(byte[] src, int srcLength, byte[] dst, int dstLength) throws IOException;
+}
@@ -0,0 +1,306 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.compress;
+
+import static com.netflix.hollow.core.util.Threads.daemonThread;
+
+import com.netflix.hollow.core.util.SimultaneousExecutor;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The configuration and the container format of block-compressed blobs.
+ * <p>
+ * A block-compressed blob holds a blob split into blocks of a fixed size, each compressed independently with a
+ * {@link HollowBlockCodec}, so that the blocks are compressed in parallel by the producer and decompressed in parallel
+ * by the consumer.  The blob is laid out as:
+ * <pre>
+ *   header:  int MAGIC, byte format version, byte codec id, int block size
+ *   frames:  for each block, int block length, int stored length, the stored bytes
+ *   end:     int 0
+ *   index:   int number of blocks, long length of the blob, for each block the long offset of its frame
+ *   trailer: long offset of the index, int MAGIC
+ * </pre>
+ * Every block but the last is of the block size.  A block which does not compress to fewer bytes is stored as is, in
+ * which case its stored length is its block length.
+ * <p>
+ * A serial reader reads the frames in turn and stops at the end marker.  A reader with random access to the blob reads
+ * the trailer and then the index, from which the frame of any block is located, see {@link #decompress(File, File, int)}.
+ * <p>
+ * The {@link com.netflix.hollow.core.write.HollowBlobWriter} writes block-compressed blobs once it is
+ * {@link com.netflix.hollow.core.write.HollowBlobWriter#setBlockCompression(HollowBlockCompression) configured} to, and
+ * the inputs of consumers detect block-compressed blobs by their leading {@link #MAGIC}, see
+ * {@link com.netflix.hollow.core.read.HollowBlobInput#serialBlob(InputStream)} and
+ * {@link com.netflix.hollow.core.read.HollowBlobInput#randomAccessBlob(File, com.netflix.hollow.core.memory.MemoryMode)}.
+ */
+public class HollowBlockCompression {
+
+    /**
+     * The leading int of a block-compressed blob, which is never the leading int of an uncompressed blob.
+     */
+    public static final int MAGIC = 0x48424C4B;
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    public static final int MAX_BLOCK_SIZE = 1 << 28;
+
+    static final byte FORMAT_VERSION = 1;
+    static final int TRAILER_LENGTH = 12;
+
+    private static final Map<Byte, HollowBlockCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        registerCodec(HollowBlockCodec.DEFLATE);
+    }
+
+    private final HollowBlockCodec codec;
+    private final int blockSize;
+    private final int numThreads;
+
+    /**
+     * Compress blobs with {@link HollowBlockCodec#DEFLATE}, in blocks of {@link #DEFAULT_BLOCK_SIZE} bytes, with a
+     * thread per processor.
+     */
+    public HollowBlockCompression() {
+        this(HollowBlockCodec.DEFLATE, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param codec the codec with which blocks are compressed
+     * @param blockSize the number of bytes of the blob in each block; smaller blocks allow for more parallelism when a
+     *        blob is decompressed, while larger blocks compress better
+     * @param numThreads the number of threads with which the blocks of a blob are compressed
+     */
+    public HollowBlockCompression(HollowBlockCodec codec, int blockSize, int numThreads) {
+        if(blockSize <= 0 || blockSize > MAX_BLOCK_SIZE)
+            throw new IllegalArgumentException("blockSize must be positive and at most " + MAX_BLOCK_SIZE);
+        if(numThreads < 1)
+            throw new IllegalArgumentException("numThreads must be at least 1");
+        this.codec = codec;
+        this.blockSize = blockSize;
+        this.numThreads = numThreads;
+    }
+
+    public HollowBlockCodec getCodec() {
+        return codec;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Registers a custom codec, so that the blobs it compressed can be read.
+     *
+     * @param codec the codec
+     * @throws IllegalArgumentException if a different codec is already registered with the same id
+     */
+    public static void registerCodec(HollowBlockCodec codec) {
+        HollowBlockCodec registered = CODECS.putIfAbsent(codec.getId(), codec);
+        if(registered != null && registered != codec && registered.getClass() != codec.getClass())
+            throw new IllegalArgumentException("A codec is already registered with the id " + codec.getId() + ": " + registered.getClass().getName());
+    }
+
+    static HollowBlockCodec codec(byte id) throws IOException {
+        HollowBlockCodec codec = CODECS.get(id);
+        if(codec == null)
+            throw new IOException("The block-compressed blob was compressed with the unregistered codec " + id);
+        return codec;
+    }
+
+    /**
+     * Peeks at the leading int of a stream, and if the stream holds a block-compressed blob, decompresses it.
+     *
+     * @param is the input stream of a blob
+     * @param numThreads the number of threads with which the blocks are decompressed, ahead of the bytes being read
+     * @return a stream of the decompressed blob if the blob is block-compressed, otherwise a stream of the blob
+     * @throws IOException if the stream could not be read
+     */
+    public static InputStream decompressing(InputStream is, int numThreads) throws IOException {
+        PushbackInputStream pis = new PushbackInputStream(is, 4);
+        byte leading[] = new byte[4];
+        int length = 0;
+        while(length < leading.length) {
+            int bytesRead = pis.read(leading, length, leading.length - length);
+            if(bytesRead == -1)
+                break;
+            length += bytesRead;
+        }
+        pis.unread(leading, 0, length);
+
+        if(length == leading.length && readInt(leading, 0) == MAGIC)
+            return new BlockCompressedInputStream(pis, numThreads);
+        return pis;
+    }
+
+    /**
+     * @param f a file
+     * @return whether the file holds a block-compressed blob
+     * @throws IOException if the file could not be read
+     */
+    public static boolean isBlockCompressed(File f) throws IOException {
+        try(RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            return raf.length() >= 4 && raf.readInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Decompresses a block-compressed blob from one file into another.
+     * <p>
+     * The frames of the blocks are located with the index of the blob, and each block is read, decompressed, and then
+     * written at its offset in the target file independently, so the blocks are decompressed concurrently and only
+     * {@code numThreads} blocks are held in memory at any time.
+     *
+     * @param source the file holding the block-compressed blob
+     * @param target the file into which the blob is decompressed, which is truncated
+     * @param numThreads the number of threads with which the blocks are decompressed
+     * @throws IOException if the blob could not be read, is corrupt, or could not be written
+     */
+    public static void decompress(File source, File target, int numThreads) throws IOException {
+        try(RandomAccessFile src = new RandomAccessFile(source, "r");
+            RandomAccessFile dst = new RandomAccessFile(target, "rw")) {
+            if(src.length() < TRAILER_LENGTH || src.readInt() != MAGIC)
+                throw new IOException(source + " does not hold a block-compressed blob");
+            readFormatVersion(src.readByte());
+            HollowBlockCodec codec = codec(src.readByte());
+            int blockSize = readBlockSize(src.readInt());
+
+            src.seek(src.length() - TRAILER_LENGTH);
+            long indexOffset = src.readLong();
+            if(src.readInt() != MAGIC || indexOffset < 0 || indexOffset >= src.length() - TRAILER_LENGTH)
+                throw new IOException("The block-compressed blob in " + source + " is truncated");
+
+            src.seek(indexOffset);
+            int numBlocks = src.readInt();
+            long length = src.readLong();
+            if(numBlocks < 0 || length < 0 || length > (long)numBlocks * blockSize || length <= (long)(numBlocks - 1) * blockSize)
+                throw new IOException("The index of the block-compressed blob in " + source + " is corrupt");
+            long frameOffsets[] = new long[numBlocks];
+            for(int i=0;i<numBlocks;i++)
+                frameOffsets[i] = src.readLong();
+
+            dst.setLength(length);
+
+            FileChannel srcChannel = src.getChannel();
+            FileChannel dstChannel = dst.getChannel();
+            SimultaneousExecutor executor = new SimultaneousExecutor(Math.max(1, Math.min(numThreads, numBlocks)), HollowBlockCompression.class, "decompress-blob");
+
+            for(int i=0;i<numBlocks;i++) {
+                final long frameOffset = frameOffsets[i];
+                final long blockOffset = (long)i * blockSize;
+                final int blockLength = (int)Math.min(blockSize, length - blockOffset);
+                executor.execute(() -> {
+                    try {
+                        ByteBuffer frameHeader = ByteBuffer.allocate(8);
+                        readFully(srcChannel, frameHeader, frameOffset);
+                        int storedLength = checkFrame(frameHeader.getInt(0), frameHeader.getInt(4), blockSize);
+                        if(frameHeader.getInt(0) != blockLength)
+                            throw new IOException("The block-compressed blob is corrupt, the block at " + blockOffset + " is of length " + frameHeader.getInt(0));
+
+                        byte stored[] = new byte[storedLength];
+                        readFully(srcChannel, ByteBuffer.wrap(stored), frameOffset + 8);
+
+                        byte block[] = stored;
+                        if(storedLength != blockLength) {
+                            block = new byte[blockLength];
+                            codec.decompress(stored, storedLength, block, blockLength);
+                        }
+
+                        ByteBuffer buffer = ByteBuffer.wrap(block);
+                        long position = blockOffset;
+                        while(buffer.hasRemaining())
+                            position += dstChannel.write(buffer, position);
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+
+            try {
+                executor.awaitSuccessfulCompletion();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while decompressing blob", e);
+            } catch(ExecutionException e) {
+                if(e.getCause() instanceof UncheckedIOException)
+                    throw ((UncheckedIOException)e.getCause()).getCause();
+                throw new IOException("Failed to decompress blob", e.getCause());
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int bytesRead = channel.read(buffer, position);
+            if(bytesRead == -1)
+                throw new EOFException();
+            position += bytesRead;
+        }
+    }
+
+    static void readFormatVersion(byte formatVersion) throws IOException {
+        if(formatVersion != FORMAT_VERSION)
+            throw new IOException("The block-compressed blob you are trying to read is incompatible. "
+                    + "The expected format version was " + FORMAT_VERSION + " but the actual version was " + formatVersion);
+    }
+
+    static int readBlockSize(int blockSize) throws IOException {
+        if(blockSize <= 0 || blockSize > MAX_BLOCK_SIZE)
+            throw new IOException("The block-compressed blob is corrupt, its block size is " + blockSize);
+        return blockSize;
+    }
+
+    /**
+     * @return the stored length of the frame
+     */
+    static int checkFrame(int blockLength, int storedLength, int blockSize) throws IOException {
+        if(blockLength <= 0 || blockLength > blockSize || storedLength <= 0 || storedLength > blockLength)
+            throw new IOException("The block-compressed blob is corrupt, a frame holds " + storedLength + " bytes of a block of length " + blockLength);
+        return storedLength;
+    }
+
+    private static int readInt(byte b[], int off) {
+        return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    /**
+     * Creates a pool of daemon threads for compressing or decompressing the blocks of a stream.  The stream does not
+     * retain the futures of the blocks it has handed over, and the idle threads of a stream which is abandoned without
+     * being closed time out.
+     */
+    static ThreadPoolExecutor newExecutor(int numThreads, Class<?> context, String description) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> daemonThread(r, context, description));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -25,6 +25,7 @@ import com.netflix.hollow.core.read.HollowReadFieldUtils;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.read.engine.HollowTypeStateListener;
+import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
 import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
 
 /**
@@ -34,6 +35,9 @@ import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
  * The field definitions in a hash key may be hierarchical (traverse multiple record types) via dot-notation.  For example,
  * the field definition <i>actors.element.actorId</i> may be used to traverse a child <b>LIST</b> or <b>SET</b> type record referenced by the field
  * <i>actors</i>, each elements contained therein, and finally each actors <i>actorId</i> field.
+ * <p>
+ * When listening for delta updates, the index is patched with the records added and removed by each delta where possible,
+ * rather than being rebuilt.  See {@link #endUpdate()}.
  */
 public class HollowHashIndex implements HollowTypeStateListener {
 
@@ -65,14 +69,18 @@ public class HollowHashIndex implements HollowTypeStateListener {
         this.selectField = selectField;
         this.matchFields = matchFields;
         
-        reindexHashIndex();
+        reindexHashIndex(false);
     }
 
     /**
      * Recreate the hash index entirely
+     *
+     * @param forDeltaUpdates whether the index is rebuilt while being kept up to date with deltas, in which case
+     * headroom is reserved for it to grow in place
      */
-    private void reindexHashIndex() {
+    private void reindexHashIndex(boolean forDeltaUpdates) {
         HollowHashIndexBuilder builder = new HollowHashIndexBuilder(stateEngine, type, selectField, matchFields);
+        builder.setDeltaUpdateHeadroom(forDeltaUpdates);
 
         builder.buildIndex();
 
@@ -211,9 +219,33 @@ public class HollowHashIndex implements HollowTypeStateListener {
     @Override
     public void removedOrdinal(int ordinal) { }
 
+    /**
+     * Brings the index up to date after a delta has been applied to the indexed type.
+     * <p>
+     * The records added and removed by the delta are applied to a copy of the index's match and select tables, which is
+     * published in a single step, so that queries in flight continue to see a consistent index.  The index is rebuilt
+     * entirely only if the changes cannot be accommodated by the current tables -- if the match table would exceed its
+     * load factor, or if ordinals, select table sizes or select table pointers would overflow their bit widths -- or if
+     * the selected records are not the records of the indexed type, or if the type was updated by a snapshot read in
+     * place, see {@link PopulatedOrdinalListener#updatedBySnapshotInPlace()}.  An index rebuilt this way reserves
+     * headroom in the bit widths of its select table sizes and pointers, so that it can subsequently grow in place.
+     */
     @Override
-    public void endUpdate() {
-       reindexHashIndex();
+    public synchronized void endUpdate() {
+        PopulatedOrdinalListener listener = typeState.getListener(PopulatedOrdinalListener.class);
+        if(listener.updatedBySnapshotInPlace()) {
+            // any ordinal may now hold a different record, so the records of the previous ordinals can't be unindexed
+            reindexHashIndex(true);
+            return;
+        }
+
+        HollowHashIndexDeltaUpdater updater = new HollowHashIndexDeltaUpdater(stateEngine, type, selectField, matchFields);
+        HollowHashIndexState updatedState = updater.update(hashStateVolatile, listener.getPreviousOrdinals(), listener.getPopulatedOrdinals());
+
+        if(updatedState != null)
+            this.hashStateVolatile = updatedState;
+        else
+            reindexHashIndex(true);
     }
 
     public HollowReadStateEngine getStateEngine() {
@@ -245,6 +277,8 @@ public class HollowHashIndex implements HollowTypeStateListener {
         private final int[] offsetPerTraverserField;
         private final int bitsPerSelectTableSize;
         private final int bitsPerSelectTablePointer;
+        final int matchCount;
+        final long numSelectBuckets;
 
         public HollowHashIndexState(HollowHashIndexBuilder builder) {
             matchHashTable = builder.getFinalMatchHashTable();
@@ -258,6 +292,25 @@ public class HollowHashIndex implements HollowTypeStateListener {
             bitsPerSelectTableSize = builder.getFinalBitsPerSelectTableSize();
             bitsPerSelectTablePointer = builder.getFinalBitsPerSelectTablePointer();
             bitsPerSelectHashEntry = builder.getBitsPerSelectHashEntry();
+            matchCount = builder.getMatchCount();
+            numSelectBuckets = builder.getFinalNumSelectBuckets();
+        }
+
+        HollowHashIndexState(HollowHashIndexState previous, FixedLengthElementArray matchHashTable,
+                FixedLengthElementArray selectHashArray, int matchCount, long numSelectBuckets) {
+            this.matchHashTable = matchHashTable;
+            this.selectHashArray = selectHashArray;
+            this.matchFields = previous.matchFields;
+            this.matchHashMask = previous.matchHashMask;
+            this.bitsPerMatchHashKey = previous.bitsPerMatchHashKey;
+            this.bitsPerMatchHashEntry = previous.bitsPerMatchHashEntry;
+            this.bitsPerTraverserField = previous.bitsPerTraverserField;
+            this.offsetPerTraverserField = previous.offsetPerTraverserField;
+            this.bitsPerSelectTableSize = previous.bitsPerSelectTableSize;
+            this.bitsPerSelectTablePointer = previous.bitsPerSelectTablePointer;
+            this.bitsPerSelectHashEntry = previous.bitsPerSelectHashEntry;
+            this.matchCount = matchCount;
+            this.numSelectBuckets = numSelectBuckets;
         }
 
         public FixedLengthElementArray getSelectHashArray() {
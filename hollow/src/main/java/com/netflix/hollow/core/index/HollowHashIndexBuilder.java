@@ -50,6 +50,8 @@ public class HollowHashIndexBuilder {
     private int finalBitsPerMatchHashEntry;
     private int finalBitsPerSelectTableSize;
     private int finalBitsPerSelectTablePointer;
+    private long finalNumSelectBuckets;
+    private boolean deltaUpdateHeadroom;
 
     private GrowingSegmentedLongArray matchIndexHashAndSizeArray;
     private FixedLengthElementArray intermediateMatchHashTable;
@@ -89,6 +91,16 @@ public class HollowHashIndexBuilder {
         this.bitsPerSelectHashEntry = bitsPerTraverserField[preindexer.getSelectFieldSpec().getBaseIteratorFieldIdx()];
     }
 
+    /**
+     * Reserve one bit of headroom for select table sizes and pointers, so that an index which is kept up to date with
+     * deltas can grow in place.  Off by default.
+     *
+     * @param deltaUpdateHeadroom whether to reserve headroom for delta updates
+     */
+    public void setDeltaUpdateHeadroom(boolean deltaUpdateHeadroom) {
+        this.deltaUpdateHeadroom = deltaUpdateHeadroom;
+    }
+
     public void buildIndex() {
         matchIndexHashAndSizeArray = new GrowingSegmentedLongArray(memoryRecycler);
 
@@ -170,8 +182,10 @@ public class HollowHashIndexBuilder {
         long totalNumberOfSelectBuckets = totalNumberOfSelectBucketsAndBitsRequiredForSelectTableSize & 0xFFFFFFFFFFFFFFL;
         long totalNumberOfMatchBuckets = HashCodes.hashTableSize(matchCount);
 
-        int bitsPerFinalSelectBucketPointer = bitsRequiredToRepresentValue(totalNumberOfSelectBuckets);
-        int bitsPerSelectTableSize = (int)(totalNumberOfSelectBucketsAndBitsRequiredForSelectTableSize >>> 56);
+        /// one bit of headroom in each of these allows an index which is kept up to date with deltas to grow in place
+        int headroomBits = deltaUpdateHeadroom ? 1 : 0;
+        int bitsPerFinalSelectBucketPointer = bitsRequiredToRepresentValue(totalNumberOfSelectBuckets) + headroomBits;
+        int bitsPerSelectTableSize = (int)(totalNumberOfSelectBucketsAndBitsRequiredForSelectTableSize >>> 56) + headroomBits;
         int finalBitsPerMatchHashEntry = bitsPerMatchHashKey + bitsPerSelectTableSize + bitsPerFinalSelectBucketPointer;
 
         FixedLengthElementArray finalMatchArray = new FixedLengthElementArray(memoryRecycler, totalNumberOfMatchBuckets * finalBitsPerMatchHashEntry);
@@ -239,6 +253,7 @@ public class HollowHashIndexBuilder {
         this.finalBitsPerSelectTablePointer = bitsPerFinalSelectBucketPointer;
         this.finalBitsPerSelectTableSize = bitsPerSelectTableSize;
         this.finalMatchHashMask = finalMatchHashMask;
+        this.finalNumSelectBuckets = totalNumberOfSelectBuckets;
     }
 
     private void growIntermediateHashTable() {
@@ -439,6 +454,14 @@ public class HollowHashIndexBuilder {
         return finalSelectHashArray;
     }
 
+    public long getFinalNumSelectBuckets() {
+        return finalNumSelectBuckets;
+    }
+
+    public int getMatchCount() {
+        return matchCount;
+    }
+
     public HollowHashIndexField getSelectField() {
         return preindexer.getSelectFieldSpec();
     }
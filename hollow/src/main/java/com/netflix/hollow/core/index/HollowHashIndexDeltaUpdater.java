@@ -0,0 +1,472 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.index;
+
+import static com.netflix.hollow.core.memory.FixedLengthData.bitsRequiredToRepresentValue;
+
+import com.netflix.hollow.core.HollowConstants;
+import com.netflix.hollow.core.index.HollowHashIndex.HollowHashIndexState;
+import com.netflix.hollow.core.index.traversal.HollowIndexerValueTraverser;
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.memory.encoding.HashCodes;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.WastefulRecycler;
+import com.netflix.hollow.core.read.HollowReadFieldUtils;
+import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.util.IntList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the records added and removed by a delta to the state of a {@link HollowHashIndex}.
+ * <p>
+ * The match and select tables of the current state are never modified.  The changes are applied to copies of them,
+ * from which a new state is created.
+ * <p>
+ * Only indexes which select the records of the indexed type are updated this way, since each (match, select) pair of
+ * such an index is contributed by exactly one record and may be removed along with it.
+ */
+class HollowHashIndexDeltaUpdater {
+
+    private final HollowIndexerValueTraverser traverser;
+    private final HollowHashIndexField[] matchFields;
+    private final int numMatchTraverserFields;
+    private final int selectFieldIdx;
+
+    private final ArraySegmentRecycler memoryRecycler;
+
+    private final int[] keyOrdinals;
+    private final int[] entryKeyOrdinals;
+
+    private HollowHashIndexState state;
+    private FixedLengthElementArray matchHashTable;
+    private int matchCount;
+    private Map<Long, MatchUpdate> updatesByBucket;
+
+    HollowHashIndexDeltaUpdater(HollowReadStateEngine stateEngine, String type, String selectField, String... matchFields) {
+        HollowPreindexer preindexer = new HollowPreindexer(stateEngine, type, selectField, matchFields);
+        preindexer.buildFieldSpecifications();
+
+        this.traverser = preindexer.getTraverser();
+        this.matchFields = preindexer.getMatchFieldSpecs();
+        this.numMatchTraverserFields = preindexer.getNumMatchTraverserFields();
+        this.selectFieldIdx = preindexer.getSelectFieldSpec().getBaseIteratorFieldIdx();
+        this.memoryRecycler = WastefulRecycler.DEFAULT_INSTANCE;
+        this.keyOrdinals = new int[numMatchTraverserFields];
+        this.entryKeyOrdinals = new int[numMatchTraverserFields];
+    }
+
+    /**
+     * @param state the current state of the index
+     * @param previousOrdinals the ordinals populated in the indexed type before the delta
+     * @param populatedOrdinals the ordinals populated in the indexed type after the delta
+     * @return the updated state, or null if the index must be rebuilt
+     */
+    HollowHashIndexState update(HollowHashIndexState state, BitSet previousOrdinals, BitSet populatedOrdinals) {
+        this.state = state;
+
+        for(int i=0;i<traverser.getNumFieldPaths();i++) {
+            int maxOrdinalForTypeState = ((HollowTypeReadState)traverser.getFieldTypeDataAccess(i)).maxOrdinal();
+            if(bitsRequiredToRepresentValue(maxOrdinalForTypeState + 1) > state.getBitsPerTraverserField()[i])
+                return null;
+        }
+
+        long matchHashTableBits = (long)(state.getMatchHashMask() + 1) * state.getBitsPerMatchHashEntry();
+        this.matchHashTable = new FixedLengthElementArray(memoryRecycler, matchHashTableBits);
+        this.matchHashTable.copyBits(state.getMatchHashTable(), 0, 0, matchHashTableBits);
+        this.matchCount = state.matchCount;
+        this.updatesByBucket = new LinkedHashMap<>();
+
+        /// removed records are traversed first, while the match table contains only existing keys
+        int ordinal = previousOrdinals.nextSetBit(0);
+        while(ordinal != HollowConstants.ORDINAL_NONE) {
+            if(!populatedOrdinals.get(ordinal) && !traverseChanges(ordinal, false))
+                return null;
+            ordinal = previousOrdinals.nextSetBit(ordinal + 1);
+        }
+
+        ordinal = populatedOrdinals.nextSetBit(0);
+        while(ordinal != HollowConstants.ORDINAL_NONE) {
+            if(!previousOrdinals.get(ordinal) && !traverseChanges(ordinal, true))
+                return null;
+            ordinal = populatedOrdinals.nextSetBit(ordinal + 1);
+        }
+
+        if(updatesByBucket.isEmpty())
+            return state;
+
+        return applyUpdates();
+    }
+
+    /**
+     * Records the (match, select) pairs of an added or removed record against the match table buckets they belong to,
+     * inserting the keys of new matches into the match table.
+     *
+     * @return false if the record cannot be applied to the current tables
+     */
+    private boolean traverseChanges(int ordinal, boolean added) {
+        traverser.traverse(ordinal);
+
+        for(int i=0;i<traverser.getNumMatches();i++) {
+            if(traverser.getMatchOrdinal(i, selectFieldIdx) != ordinal)
+                return false;
+
+            for(int j=0;j<numMatchTraverserFields;j++)
+                keyOrdinals[j] = traverser.getMatchOrdinal(i, j);
+
+            /// an entry with no ordinal in the first field is indistinguishable from an empty bucket
+            if(keyOrdinals[0] == HollowConstants.ORDINAL_NONE)
+                return false;
+
+            long bucket = findBucket(keyOrdinals);
+
+            if(bucket == -1) {
+                if(!added)
+                    return false;
+
+                if(HashCodes.hashTableSize(matchCount + 1) > state.getMatchHashMask() + 1)
+                    return false;
+
+                bucket = insertKey(keyOrdinals);
+                matchCount++;
+                updatesByBucket.computeIfAbsent(bucket, b -> new MatchUpdate()).isNew = true;
+            }
+
+            MatchUpdate update = updatesByBucket.computeIfAbsent(bucket, b -> new MatchUpdate());
+            if(added) {
+                update.addedOrdinals.add(ordinal);
+                update.keyRecordOrdinal = ordinal;
+            } else {
+                update.removedOrdinals.add(ordinal);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Rewrites the select tables of the updated matches, then removes the matches which no longer select any records.
+     */
+    private HollowHashIndexState applyUpdates() {
+        FixedLengthElementArray previousSelectHashArray = state.getSelectHashArray();
+        int bitsPerSelectHashEntry = state.getBitsPerSelectHashEntry();
+        int bitsPerMatchHashKey = state.getBitsPerMatchHashKey();
+        int bitsPerSelectTableSize = state.getBitsPerSelectTableSize();
+        int bitsPerSelectTablePointer = state.getBitsPerSelectTablePointer();
+
+        /// determine the new contents and location of each updated select table
+        long numSelectBuckets = state.numSelectBuckets;
+        for(Map.Entry<Long, MatchUpdate> entry : updatesByBucket.entrySet()) {
+            MatchUpdate update = entry.getValue();
+            long hashBucketBit = entry.getKey() * state.getBitsPerMatchHashEntry();
+
+            int previousSize = 0;
+            long previousPointer = 0;
+            if(!update.isNew) {
+                previousSize = (int)matchHashTable.getElementValue(hashBucketBit + bitsPerMatchHashKey, bitsPerSelectTableSize);
+                previousPointer = matchHashTable.getElementValue(hashBucketBit + bitsPerMatchHashKey + bitsPerSelectTableSize, bitsPerSelectTablePointer);
+            }
+
+            update.selectOrdinals = mergeSelectOrdinals(previousSelectHashArray, previousPointer, previousSize, update);
+            int size = update.selectOrdinals.size();
+
+            if(bitsRequiredToRepresentValue(size) > bitsPerSelectTableSize)
+                return null;
+
+            if(size == 0)
+                continue;
+
+            if(!update.isNew && HashCodes.hashTableSize(size) == HashCodes.hashTableSize(previousSize)) {
+                update.selectPointer = previousPointer;
+                update.inPlace = true;
+            } else {
+                /// the select table is relocated to the end of the select array; its previous buckets are abandoned
+                update.selectPointer = numSelectBuckets;
+                numSelectBuckets += HashCodes.hashTableSize(size);
+            }
+        }
+
+        if(bitsRequiredToRepresentValue(numSelectBuckets) > bitsPerSelectTablePointer)
+            return null;
+
+        FixedLengthElementArray selectHashArray = new FixedLengthElementArray(memoryRecycler, Math.max(numSelectBuckets * bitsPerSelectHashEntry, 1));
+        selectHashArray.copyBits(previousSelectHashArray, 0, 0, state.numSelectBuckets * bitsPerSelectHashEntry);
+
+        List<int[]> removedMatchKeys = new ArrayList<>();
+
+        for(Map.Entry<Long, MatchUpdate> entry : updatesByBucket.entrySet()) {
+            MatchUpdate update = entry.getValue();
+            long hashBucketBit = entry.getKey() * state.getBitsPerMatchHashEntry();
+            int size = update.selectOrdinals.size();
+
+            if(size == 0) {
+                removedMatchKeys.add(readEntryKey(hashBucketBit, new int[numMatchTraverserFields]));
+                continue;
+            }
+
+            int selectTableBuckets = HashCodes.hashTableSize(size);
+            int selectBucketMask = selectTableBuckets - 1;
+
+            if(update.inPlace) {
+                for(int i=0;i<selectTableBuckets;i++)
+                    selectHashArray.clearElementValue((update.selectPointer + i) * bitsPerSelectHashEntry, bitsPerSelectHashEntry);
+            }
+
+            for(int i=0;i<size;i++) {
+                int selectOrdinal = update.selectOrdinals.get(i);
+                int selectBucket = HashCodes.hashInt(selectOrdinal) & selectBucketMask;
+                while(selectHashArray.getElementValue((update.selectPointer + selectBucket) * bitsPerSelectHashEntry, bitsPerSelectHashEntry) != 0)
+                    selectBucket = (selectBucket + 1) & selectBucketMask;
+
+                selectHashArray.setElementValue((update.selectPointer + selectBucket) * bitsPerSelectHashEntry, bitsPerSelectHashEntry, selectOrdinal + 1);
+            }
+
+            matchHashTable.clearElementValue(hashBucketBit + bitsPerMatchHashKey, bitsPerSelectTableSize);
+            matchHashTable.setElementValue(hashBucketBit + bitsPerMatchHashKey, bitsPerSelectTableSize, size);
+            matchHashTable.clearElementValue(hashBucketBit + bitsPerMatchHashKey + bitsPerSelectTableSize, bitsPerSelectTablePointer);
+            matchHashTable.setElementValue(hashBucketBit + bitsPerMatchHashKey + bitsPerSelectTableSize, bitsPerSelectTablePointer, update.selectPointer);
+
+            /// the key of a match refers to the ordinals of one of its selected records, so that it never refers to a removed record
+            if(update.removedOrdinals.size() > 0) {
+                int keyRecordOrdinal = update.keyRecordOrdinal != HollowConstants.ORDINAL_NONE ? update.keyRecordOrdinal : update.selectOrdinals.get(0);
+                if(!rewriteKey(hashBucketBit, keyRecordOrdinal))
+                    return null;
+            }
+        }
+
+        for(int[] removedMatchKey : removedMatchKeys)
+            removeMatch(removedMatchKey);
+
+        return new HollowHashIndexState(state, matchHashTable, selectHashArray, matchCount, numSelectBuckets);
+    }
+
+    /**
+     * @return the sorted, distinct ordinals selected by a match once the update has been applied
+     */
+    private IntList mergeSelectOrdinals(FixedLengthElementArray previousSelectHashArray, long previousPointer, int previousSize, MatchUpdate update) {
+        int bitsPerSelectHashEntry = state.getBitsPerSelectHashEntry();
+        IntList selectOrdinals = new IntList(previousSize + update.addedOrdinals.size());
+
+        update.removedOrdinals.sort();
+
+        if(previousSize > 0) {
+            int previousBuckets = HashCodes.hashTableSize(previousSize);
+            for(int i=0;i<previousBuckets;i++) {
+                int selectOrdinal = (int)previousSelectHashArray.getElementValue((previousPointer + i) * bitsPerSelectHashEntry, bitsPerSelectHashEntry) - 1;
+                if(selectOrdinal != HollowConstants.ORDINAL_NONE && update.removedOrdinals.binarySearch(selectOrdinal) < 0)
+                    selectOrdinals.add(selectOrdinal);
+            }
+        }
+
+        selectOrdinals.addAll(update.addedOrdinals);
+        selectOrdinals.sort();
+
+        int distinct = 0;
+        for(int i=0;i<selectOrdinals.size();i++) {
+            if(distinct == 0 || selectOrdinals.get(distinct - 1) != selectOrdinals.get(i))
+                selectOrdinals.set(distinct++, selectOrdinals.get(i));
+        }
+        selectOrdinals.expandTo(distinct);
+
+        return selectOrdinals;
+    }
+
+    /**
+     * Replaces the key of a match with the key ordinals of the given record.
+     */
+    private boolean rewriteKey(long hashBucketBit, int recordOrdinal) {
+        readEntryKey(hashBucketBit, entryKeyOrdinals);
+
+        traverser.traverse(recordOrdinal);
+        for(int i=0;i<traverser.getNumMatches();i++) {
+            for(int j=0;j<numMatchTraverserFields;j++)
+                keyOrdinals[j] = traverser.getMatchOrdinal(i, j);
+
+            if(keysAreEqual(keyOrdinals, entryKeyOrdinals)) {
+                for(int j=0;j<numMatchTraverserFields;j++) {
+                    long fieldBit = hashBucketBit + state.getOffsetPerTraverserField()[j];
+                    matchHashTable.clearElementValue(fieldBit, state.getBitsPerTraverserField()[j]);
+                    matchHashTable.setElementValue(fieldBit, state.getBitsPerTraverserField()[j], keyOrdinals[j] + 1);
+                }
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private long findBucket(int[] keyOrdinals) {
+        int matchHashMask = state.getMatchHashMask();
+        long bucket = matchHash(keyOrdinals) & matchHashMask;
+        long hashBucketBit = bucket * state.getBitsPerMatchHashEntry();
+
+        while(matchHashTable.getElementValue(hashBucketBit, state.getBitsPerTraverserField()[0]) != 0) {
+            if(keysAreEqual(keyOrdinals, readEntryKey(hashBucketBit, entryKeyOrdinals)))
+                return bucket;
+
+            bucket = (bucket + 1) & matchHashMask;
+            hashBucketBit = bucket * state.getBitsPerMatchHashEntry();
+        }
+
+        return -1;
+    }
+
+    private long insertKey(int[] keyOrdinals) {
+        int matchHashMask = state.getMatchHashMask();
+        long bucket = matchHash(keyOrdinals) & matchHashMask;
+        long hashBucketBit = bucket * state.getBitsPerMatchHashEntry();
+
+        while(matchHashTable.getElementValue(hashBucketBit, state.getBitsPerTraverserField()[0]) != 0) {
+            bucket = (bucket + 1) & matchHashMask;
+            hashBucketBit = bucket * state.getBitsPerMatchHashEntry();
+        }
+
+        for(int j=0;j<numMatchTraverserFields;j++)
+            matchHashTable.setElementValue(hashBucketBit + state.getOffsetPerTraverserField()[j], state.getBitsPerTraverserField()[j], keyOrdinals[j] + 1);
+
+        return bucket;
+    }
+
+    /**
+     * Removes a match from the match table, shifting back any subsequent entries in its cluster which would otherwise
+     * become unreachable.
+     */
+    private void removeMatch(int[] matchKey) {
+        int matchHashMask = state.getMatchHashMask();
+        int bitsPerMatchHashEntry = state.getBitsPerMatchHashEntry();
+
+        long emptyBucket = findBucket(matchKey);
+        clearEntry(emptyBucket * bitsPerMatchHashEntry);
+
+        long bucket = (emptyBucket + 1) & matchHashMask;
+        while(matchHashTable.getElementValue(bucket * bitsPerMatchHashEntry, state.getBitsPerTraverserField()[0]) != 0) {
+            long naturalBucket = matchHash(readEntryKey(bucket * bitsPerMatchHashEntry, entryKeyOrdinals)) & matchHashMask;
+
+            if(!bucketInRange(emptyBucket, bucket, naturalBucket)) {
+                matchHashTable.copyBits(matchHashTable, bucket * bitsPerMatchHashEntry, emptyBucket * bitsPerMatchHashEntry, bitsPerMatchHashEntry);
+                clearEntry(bucket * bitsPerMatchHashEntry);
+                emptyBucket = bucket;
+            }
+
+            bucket = (bucket + 1) & matchHashMask;
+        }
+
+        matchCount--;
+    }
+
+    private boolean bucketInRange(long fromBucket, long toBucket, long testBucket) {
+        if(toBucket > fromBucket) {
+            return testBucket > fromBucket && testBucket <= toBucket;
+        } else {
+            return testBucket > fromBucket || testBucket <= toBucket;
+        }
+    }
+
+    private void clearEntry(long hashBucketBit) {
+        int bitsPerMatchHashEntry = state.getBitsPerMatchHashEntry();
+        for(int i=0;i<bitsPerMatchHashEntry;i+=32)
+            matchHashTable.clearElementValue(hashBucketBit + i, Math.min(32, bitsPerMatchHashEntry - i));
+    }
+
+    private int[] readEntryKey(long hashBucketBit, int[] into) {
+        for(int j=0;j<numMatchTraverserFields;j++)
+            into[j] = (int)matchHashTable.getElementValue(hashBucketBit + state.getOffsetPerTraverserField()[j], state.getBitsPerTraverserField()[j]) - 1;
+        return into;
+    }
+
+    private boolean keysAreEqual(int[] keyOrdinals, int[] otherKeyOrdinals) {
+        for(int i=0;i<matchFields.length;i++) {
+            HollowHashIndexField field = matchFields[i];
+            int ordinal = keyOrdinals[field.getBaseIteratorFieldIdx()];
+            int otherOrdinal = otherKeyOrdinals[field.getBaseIteratorFieldIdx()];
+
+            HollowTypeReadState readState = field.getBaseDataAccess();
+            int[] fieldPath = field.getSchemaFieldPositionPath();
+
+            if(fieldPath.length == 0) {
+                if(ordinal != otherOrdinal)
+                    return false;
+            } else {
+                for(int j=0;j<fieldPath.length - 1;j++) {
+                    HollowObjectTypeReadState objectAccess = (HollowObjectTypeReadState)readState;
+                    readState = objectAccess.getSchema().getReferencedTypeState(fieldPath[j]);
+                    if(ordinal != HollowConstants.ORDINAL_NONE)
+                        ordinal = objectAccess.readOrdinal(ordinal, fieldPath[j]);
+                    if(otherOrdinal != HollowConstants.ORDINAL_NONE)
+                        otherOrdinal = objectAccess.readOrdinal(otherOrdinal, fieldPath[j]);
+                }
+
+                if(ordinal != otherOrdinal) {
+                    HollowObjectTypeReadState objectAccess = (HollowObjectTypeReadState)readState;
+                    int fieldIdx = fieldPath[fieldPath.length-1];
+                    if(ordinal == HollowConstants.ORDINAL_NONE || otherOrdinal == HollowConstants.ORDINAL_NONE
+                            || !HollowReadFieldUtils.fieldsAreEqual(objectAccess, ordinal, fieldIdx, objectAccess, otherOrdinal, fieldIdx))
+                        return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private int matchHash(int[] keyOrdinals) {
+        int matchHash = 0;
+
+        for(int i=0;i<matchFields.length;i++) {
+            HollowHashIndexField field = matchFields[i];
+            int ordinal = keyOrdinals[field.getBaseIteratorFieldIdx()];
+            HollowTypeReadState readState = field.getBaseDataAccess();
+            int[] fieldPath = field.getSchemaFieldPositionPath();
+
+            if(fieldPath.length == 0) {
+                matchHash ^= HashCodes.hashInt(ordinal);
+            } else {
+                for(int j=0;j<fieldPath.length-1;j++) {
+                    HollowObjectTypeReadState objectAccess = (HollowObjectTypeReadState)readState;
+                    readState = objectAccess.getSchema().getReferencedTypeState(fieldPath[j]);
+                    ordinal = objectAccess.readOrdinal(ordinal, fieldPath[j]);
+                    // Cannot find nested ordinal for null parent
+                    if(ordinal == HollowConstants.ORDINAL_NONE) {
+                        break;
+                    }
+                }
+
+                int fieldHashCode = ordinal == HollowConstants.ORDINAL_NONE ? HollowConstants.ORDINAL_NONE : HollowReadFieldUtils.fieldHashCode((HollowObjectTypeDataAccess) readState, ordinal, fieldPath[fieldPath.length-1]);
+                matchHash ^= HashCodes.hashInt(fieldHashCode);
+            }
+        }
+
+        return matchHash;
+    }
+
+    private static class MatchUpdate {
+        private final IntList addedOrdinals = new IntList();
+        private final IntList removedOrdinals = new IntList();
+        private int keyRecordOrdinal = HollowConstants.ORDINAL_NONE;
+        private boolean isNew;
+
+        private IntList selectOrdinals;
+        private long selectPointer;
+        private boolean inPlace;
+    }
+}
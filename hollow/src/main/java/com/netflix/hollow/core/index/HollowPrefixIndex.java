@@ -24,19 +24,27 @@ import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.memory.pool.WastefulRecycler;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeStateListener;
+import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
 import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
 import com.netflix.hollow.core.read.iterator.HollowOrdinalIterator;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * This class builds a prefix index. A prefix index can be used to build applications like auto-complete, spell checker.
+ * <p>
+ * When listening for delta updates, the keys of the records removed and added by each delta are removed from and
+ * inserted into a copy of the current index, which is then swapped with the index serving queries.  The nodes left
+ * without any keys by removals are reclaimed by compacting the copy when enough of them accumulate, or when the copy
+ * runs out of room for new nodes.
  */
 public class HollowPrefixIndex implements HollowTypeStateListener {
 
@@ -52,7 +60,8 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
     private int averageWordLen;
     private int maxOrdinalOfType;
 
-    private boolean buildIndexOnUpdate;
+    private final BitSet addedOrdinals = new BitSet();
+    private final BitSet removedOrdinals = new BitSet();
 
     /**
      * This constructor defaults the estimatedMaxStringDuplicates to 4. If you expect a large
@@ -106,7 +115,6 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
 
         // create memory recycle for using shared memory pools.
         memoryRecycle = WastefulRecycler.DEFAULT_INSTANCE;
-        buildIndexOnUpdate = true;
         initialize();
     }
 
@@ -123,7 +131,7 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
         BitSet keyBitSet = objectTypeReadState.getPopulatedOrdinals();
         int ordinal = keyBitSet.nextSetBit(0);
         while (ordinal != -1) {
-            avg += ((double) objectTypeReadState.readString(ordinal, 0).length()) / ((double) objectTypeReadState.maxOrdinal());
+            avg += ((double) objectTypeReadState.readString(ordinal, 0).length()) / ((double) totalWords);
             ordinal = keyBitSet.nextSetBit(ordinal + 1);
         }
         averageWordLen = (int) Math.ceil(avg);
@@ -137,7 +145,6 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
 
     private void build() {
 
-        if (!buildIndexOnUpdate) return;
         // tell memory recycler to use current tst's long arrays next time when long array is requested.
         // note reuse only happens once swap is called and bits are reset
         TST current = prefixIndexVolatile;
@@ -158,7 +165,60 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
         prefixIndexVolatile = tst;
         // safe to return previous long arrays on next request for long array.
         memoryRecycle.swap();
-        buildIndexOnUpdate = false;
+    }
+
+    /**
+     * Apply the keys of the removed and added ordinals to a copy of the current index, then swap the copy with the
+     * current index.
+     */
+    private void update() {
+        TST current = prefixIndexVolatile;
+
+        HollowObjectTypeReadState valueState = (HollowObjectTypeReadState) readStateEngine.getTypeDataAccess(type);
+        maxOrdinalOfType = valueState.maxOrdinal();
+
+        TST tst = new TST(current, memoryRecycle);
+
+        int ordinal = removedOrdinals.nextSetBit(0);
+        while (ordinal != -1) {
+            for (String key : getKeys(ordinal)) {
+                tst.remove(key, ordinal);
+            }
+            ordinal = removedOrdinals.nextSetBit(ordinal + 1);
+        }
+
+        // the keys are gathered before inserting any of them, to ensure there is room for all of their nodes
+        List<String[]> addedKeys = new ArrayList<>(addedOrdinals.cardinality());
+        long maxAddedNodes = 0;
+        ordinal = addedOrdinals.nextSetBit(0);
+        while (ordinal != -1) {
+            String[] keys = getKeys(ordinal);
+            for (String key : keys) {
+                maxAddedNodes += key.length();
+            }
+            addedKeys.add(keys);
+            ordinal = addedOrdinals.nextSetBit(ordinal + 1);
+        }
+
+        if (tst.needsCompaction(maxAddedNodes, maxOrdinalOfType)) {
+            TST compacted = tst.compact(maxAddedNodes, estimatedMaxStringDuplicates, maxOrdinalOfType, memoryRecycle);
+            tst.recycleMemory(memoryRecycle);
+            tst = compacted;
+        }
+
+        int i = 0;
+        ordinal = addedOrdinals.nextSetBit(0);
+        while (ordinal != -1) {
+            for (String key : addedKeys.get(i++)) {
+                tst.insert(key, ordinal);
+            }
+            ordinal = addedOrdinals.nextSetBit(ordinal + 1);
+        }
+
+        prefixIndexVolatile = tst;
+        // tell memory recycler to use the previous tst's long arrays next time when long array is requested.
+        current.recycleMemory(memoryRecycle);
+        memoryRecycle.swap();
     }
 
     /**
@@ -240,7 +300,7 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
     /**
      * Use this method to keep the index updated with delta changes on the read state engine.
      * Remember to call detachFromDeltaUpdates to stop the delta changes.
-     * NOTE: Each delta updates creates a new prefix index and swaps the new with current.
+     * NOTE: Each delta update modifies a copy of the prefix index and swaps the copy with current.
      */
     @SuppressWarnings("WeakerAccess")
     public void listenForDeltaUpdates() {
@@ -257,24 +317,29 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
 
     @Override
     public void beginUpdate() {
-        // before delta is applied -> no action to be taken
+        addedOrdinals.clear();
+        removedOrdinals.clear();
     }
 
     @Override
     public void addedOrdinal(int ordinal) {
-        buildIndexOnUpdate = true;
+        addedOrdinals.set(ordinal);
     }
 
     @Override
     public void removedOrdinal(int ordinal) {
-        buildIndexOnUpdate = true;
+        removedOrdinals.set(ordinal);
     }
 
     @Override
     public void endUpdate() {
-        // pass 1 for delta support - rebuild the tree and swap the new tree with the one that is serving the queries.
-        // next pass -  improve the index build time or add support for remove method.
-        initialize();
+        // after a snapshot read in place, the removed ordinals may hold the records of the snapshot, so the keys of the
+        // records they held can't be found, and the index is rebuilt.
+        if (readStateEngine.getTypeState(type).getListener(PopulatedOrdinalListener.class).updatedBySnapshotInPlace())
+            initialize();
+        // the removed ordinals are still readable until the next delta, so their keys can be found and removed.
+        else if (!addedOrdinals.isEmpty() || !removedOrdinals.isEmpty())
+            update();
     }
 
     private static class TST {
@@ -300,6 +365,10 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
         private FixedLengthMultipleOccurrenceElementArray ordinalSet;
         private long indexTracker;
 
+        // number of nodes holding ordinals, and number of nodes which have lost all their ordinals since the tree was built
+        private long numLeafNodes;
+        private long numEmptiedNodes;
+
         /**
          * Create new prefix index. Represents a ternary search tree.
          *
@@ -334,6 +403,29 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
             isLeafNodeFlagOffset = rightChildOffset + bitsForChildPointer;
         }
 
+        /**
+         * Create a copy of the given tree, which may be modified without affecting the given tree.
+         */
+        private TST(TST copyFrom, ArraySegmentRecycler memoryRecycler) {
+            bitsPerKey = copyFrom.bitsPerKey;
+            bitsForChildPointer = copyFrom.bitsForChildPointer;
+            bitsPerOrdinal = copyFrom.bitsPerOrdinal;
+            bitsPerNode = copyFrom.bitsPerNode;
+
+            leftChildOffset = copyFrom.leftChildOffset;
+            middleChildOffset = copyFrom.middleChildOffset;
+            rightChildOffset = copyFrom.rightChildOffset;
+            isLeafNodeFlagOffset = copyFrom.isLeafNodeFlagOffset;
+
+            maxNodes = copyFrom.maxNodes;
+            nodes = new FixedLengthElementArray(memoryRecycler, bitsPerNode * maxNodes);
+            nodes.copyBits(copyFrom.nodes, 0, 0, bitsPerNode * copyFrom.indexTracker);
+            ordinalSet = copyFrom.ordinalSet.copy();
+            indexTracker = copyFrom.indexTracker;
+            numLeafNodes = copyFrom.numLeafNodes;
+            numEmptiedNodes = copyFrom.numEmptiedNodes;
+        }
+
         // tell memory recycler to use these long array on next long array request from memory ONLY AFTER swap is called on memory recycler
         private void recycleMemory(ArraySegmentRecycler memoryRecycler) {
             nodes.destroy(memoryRecycler);
@@ -372,7 +464,19 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
 
         private void addOrdinal(long nodeIndex, long ordinal) {
             ordinalSet.addElement(nodeIndex, ordinal);
-            nodes.setElementValue((nodeIndex * bitsPerNode) + isLeafNodeFlagOffset, 1, 1);
+            if (!isLeafNode(nodeIndex)) {
+                nodes.setElementValue((nodeIndex * bitsPerNode) + isLeafNodeFlagOffset, 1, 1);
+                numLeafNodes++;
+            }
+        }
+
+        private void removeOrdinal(long nodeIndex, long ordinal) {
+            ordinalSet.removeElement(nodeIndex, ordinal);
+            if (ordinalSet.getElements(nodeIndex).isEmpty()) {
+                nodes.clearElementValue((nodeIndex * bitsPerNode) + isLeafNodeFlagOffset, 1);
+                numLeafNodes--;
+                numEmptiedNodes++;
+            }
         }
 
         private Set<Integer> getOrdinals(long nodeIndex) {
@@ -422,6 +526,85 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
             addOrdinal(currentNodeIndex, ordinal);
         }
 
+        /**
+         * Remove the given ordinal from the node for the given key. The nodes of the key are left in place, even if they
+         * no longer lead to any ordinals, until the tree is compacted.
+         */
+        private void remove(String key, int ordinal) {
+            if (key == null) throw new IllegalArgumentException("Null key cannot be indexed");
+            long nodeIndex = key.isEmpty() ? 0 : findNodeWithKey(key);
+            if (nodeIndex >= 0 && isLeafNode(nodeIndex))
+                removeOrdinal(nodeIndex, ordinal);
+        }
+
+        /**
+         * @return true if this tree should be compacted before inserting keys which may require the given number of
+         * new nodes, or referencing the given max ordinal.
+         */
+        private boolean needsCompaction(long maxAddedNodes, int maxOrdinalValue) {
+            int requiredBitsPerOrdinal = maxOrdinalValue == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(maxOrdinalValue);
+            return indexTracker + maxAddedNodes >= maxNodes
+                    || requiredBitsPerOrdinal > bitsPerOrdinal
+                    || numEmptiedNodes > numLeafNodes / 4;
+        }
+
+        /**
+         * Create a copy of this tree without the subtrees which no longer lead to any ordinals, with room for at least the
+         * given number of additional nodes.
+         * <p>
+         * The shape of the remaining tree is preserved. A node's children are always allocated after the node, so the
+         * nodes which lead to ordinals can be determined in one pass over the nodes in reverse order.
+         */
+        private TST compact(long additionalNodes, int estimatedMaxStringDuplicates, int maxOrdinalValue,
+                ArraySegmentRecycler memoryRecycler) {
+            BitSet liveNodes = new BitSet((int) indexTracker);
+            for (long nodeIndex = indexTracker - 1; nodeIndex >= 0; nodeIndex--) {
+                if (isLeafNode(nodeIndex)
+                        || isLiveChild(liveNodes, nodeIndex, NodeType.Left)
+                        || isLiveChild(liveNodes, nodeIndex, NodeType.Middle)
+                        || isLiveChild(liveNodes, nodeIndex, NodeType.Right))
+                    liveNodes.set((int) nodeIndex);
+            }
+
+            long numLiveNodes = liveNodes.cardinality();
+            long estimatedNumNodes = (numLiveNodes + additionalNodes) * 3 / 2 + 2;
+            TST compacted = new TST(estimatedNumNodes, estimatedMaxStringDuplicates, maxOrdinalValue, memoryRecycler);
+            if (numLiveNodes == 0)
+                return compacted;
+
+            // copy the live nodes breadth first, so that children are again allocated after their parents.
+            Queue<long[]> queue = new ArrayDeque<>();
+            queue.add(new long[] {0, 0});
+            compacted.indexTracker = 1;
+            while (!queue.isEmpty()) {
+                long[] nodeIndexes = queue.remove();
+                long nodeIndex = nodeIndexes[0];
+                long compactedNodeIndex = nodeIndexes[1];
+
+                compacted.setKey(compactedNodeIndex, (char) getKey(nodeIndex));
+                if (isLeafNode(nodeIndex)) {
+                    for (long ordinal : ordinalSet.getElements(nodeIndex)) {
+                        compacted.addOrdinal(compactedNodeIndex, ordinal);
+                    }
+                }
+
+                for (NodeType nodeType : NodeType.values()) {
+                    if (isLiveChild(liveNodes, nodeIndex, nodeType)) {
+                        long compactedChildIndex = compacted.indexTracker++;
+                        compacted.setChildIndex(compactedNodeIndex, nodeType, compactedChildIndex);
+                        queue.add(new long[] {getChildIndex(nodeIndex, nodeType), compactedChildIndex});
+                    }
+                }
+            }
+
+            return compacted;
+        }
+
+        private boolean isLiveChild(BitSet liveNodes, long nodeIndex, NodeType nodeType) {
+            long childIndex = getChildIndex(nodeIndex, nodeType);
+            return childIndex != 0 && liveNodes.get((int) childIndex);
+        }
+
         /**
          * This functions checks if the given key exists in the trie.
          *
@@ -482,9 +665,8 @@ public class HollowPrefixIndex implements HollowTypeStateListener {
                         long mid = getChildIndex(nodeIndex, NodeType.Middle);
                         long right = getChildIndex(nodeIndex, NodeType.Right);
 
-                        if (left == 0 && mid == 0 && right == 0) {
-                            if (isLeafNode(nodeIndex)) ordinals.addAll(getOrdinals(nodeIndex));
-                        }
+                        // every key in the subtree begins with the prefix, including keys which end at a node with children
+                        if (isLeafNode(nodeIndex)) ordinals.addAll(getOrdinals(nodeIndex));
                         if (left != 0) queue.add(left);
                         if (mid != 0) queue.add(mid);
                         if (right != 0) queue.add(right);
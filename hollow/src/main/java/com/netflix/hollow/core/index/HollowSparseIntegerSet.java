@@ -18,6 +18,7 @@ package com.netflix.hollow.core.index;
 
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeStateListener;
+import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
 import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
@@ -213,6 +214,13 @@ public class HollowSparseIntegerSet implements HollowTypeStateListener {
 
     @Override
     public void endUpdate() {
+        if (readStateEngine.getTypeState(type).getListener(PopulatedOrdinalListener.class).updatedBySnapshotInPlace()) {
+            // the removed ordinals may hold the records of the snapshot, so the values of the records they held can't
+            // be cleared, and the set is rebuilt.
+            rebuild();
+            return;
+        }
+
         boolean didSomeWork = false;
         SparseBitSet updated = sparseBitSetVolatile;
         // first check if the max value among the new values to be added is more than the max value of the existing sparse bit set.
@@ -236,6 +244,23 @@ public class HollowSparseIntegerSet implements HollowTypeStateListener {
         }
     }
 
+    private void rebuild() {
+        SparseBitSet rebuilt = new SparseBitSet(Integer.MAX_VALUE);
+        BitSet typeBitSet = readStateEngine.getTypeState(type).getPopulatedOrdinals();
+        int ordinal = typeBitSet.nextSetBit(0);
+        while (ordinal != -1) {
+            if (predicate.shouldIndex(ordinal)) {
+                Object[] values = fieldPath.findValues(ordinal);
+                if (values != null) {
+                    for (Object value : values)
+                        rebuilt.set((int) value);
+                }
+            }
+            ordinal = typeBitSet.nextSetBit(ordinal + 1);
+        }
+        sparseBitSetVolatile = SparseBitSet.compact(rebuilt);
+    }
+
     /**
      * This implementation is motivated from several ideas to get a compact sparse set.
      * When using a a bucket of BitSet, problems
@@ -21,6 +21,8 @@ import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.WastefulRecycler;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
@@ -32,12 +34,18 @@ import java.util.concurrent.atomic.AtomicLongArray;
  * The high 29 bits in the key represents the ordinal.  The low 35 bits represents the pointer to the start position
  * of the byte sequence in the ByteDataBuffer.  Each byte sequence is preceded by a variable-length integer
  * (see {@link VarInt}), indicating the length of the sequence.<p>
+ * <p>
+ * By default, new byte sequences are added while holding this map's lock.  With {@link #setConcurrentAssignment(boolean)},
+ * threads instead claim buckets with a compare-and-set, copy byte sequences into regions of the ByteDataBuffer reserved
+ * for each thread, and cooperate to rehash the keys into a larger array when the map grows.
  *
  * @author dkoszewnik
  */
 public class ByteArrayOrdinalMap {
 
     private static final long EMPTY_BUCKET_VALUE = -1L;
+    /// marks an empty bucket in a key array which is being rehashed into a larger array, see KeyArrayTransfer
+    private static final long SEALED_BUCKET_VALUE = -2L;
 
     private static final int BITS_PER_ORDINAL = 29;
     private static final int BITS_PER_POINTER = Long.SIZE - BITS_PER_ORDINAL;
@@ -45,6 +53,14 @@ public class ByteArrayOrdinalMap {
     private static final long ORDINAL_MASK = (1L << BITS_PER_ORDINAL) - 1;
     private static final long MAX_BYTE_DATA_LENGTH = 1L << BITS_PER_POINTER;
 
+    /// the number of bytes reserved at a time for the byte sequences added by one thread, with concurrent assignment
+    private static final int APPEND_BUFFER_SIZE = 1 << 11;
+    /// the number of buckets rehashed at a time by one thread, with concurrent assignment
+    private static final int TRANSFER_STRIDE = 1 << 12;
+
+    private static final AtomicIntegerFieldUpdater<ByteArrayOrdinalMap> SIZE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ByteArrayOrdinalMap.class, "size");
+
     /// Thread safety:  We need volatile access semantics to the individual elements in the
     /// pointersAndOrdinals array.
     /// Ordinal is the high 29 bits.  Pointer to byte data is the low 35 bits.
@@ -52,9 +68,17 @@ public class ByteArrayOrdinalMap {
     private volatile AtomicLongArray pointersAndOrdinals;
     private final ByteDataArray byteData;
     private final FreeOrdinalTracker freeOrdinalTracker;
-    private int size;
+    private volatile int size;
     private int sizeBeforeGrow;
 
+    private boolean concurrentAssignment;
+    private final ThreadLocal<AppendBuffer> appendBuffers;
+    /// incremented whenever the byte sequences are moved, which invalidates the AppendBuffers
+    private volatile int byteDataGeneration;
+    private volatile KeyArrayTransfer keyArrayTransfer;
+    /// the previous ordinals taken by threads whose byte sequences are not yet added, guarded by freeOrdinalTracker
+    private final BitSet preferredOrdinalsInFlight = new BitSet();
+
     private BitSet unusedPreviousOrdinals;
 
     private long[] pointersByOrdinal;
@@ -76,6 +100,7 @@ public class ByteArrayOrdinalMap {
 
         this.freeOrdinalTracker = new FreeOrdinalTracker();
         this.byteData = new ByteDataArray(WastefulRecycler.DEFAULT_INSTANCE);
+        this.appendBuffers = new ThreadLocal<>();
         this.pointersAndOrdinals = emptyKeyArray(size);
         this.sizeBeforeGrow = (int) (((float) size) * 0.7); /// 70% load factor
         this.size = 0;
@@ -113,7 +138,31 @@ public class ByteArrayOrdinalMap {
         int hash = HashCodes.hashCode(serializedRepresentation);
 
         int ordinal = get(serializedRepresentation, hash);
-        return ordinal != -1 ? ordinal : assignOrdinal(serializedRepresentation, hash, preferredOrdinal);
+        if (ordinal != -1) {
+            return ordinal;
+        }
+        return concurrentAssignment
+                ? assignOrdinalConcurrently(serializedRepresentation, hash, preferredOrdinal)
+                : assignOrdinal(serializedRepresentation, hash, preferredOrdinal);
+    }
+
+    /**
+     * Specify whether new byte sequences are added without holding this map's lock, so that threads adding records
+     * concurrently are not serialized.  Each thread then reserves space for the byte sequences it adds in blocks,
+     * some of which is left unused until the map is compacted.  When threads race to add the same byte sequence, the
+     * ordinals taken by the losing threads are returned to the pool, so up to one ordinal per thread may be left
+     * unassigned below the maximum ordinal until it is reused.
+     * <p>
+     * WARNING: THIS OPERATION IS NOT THREAD-SAFE, and must not be called while byte sequences are being added.
+     *
+     * @param concurrentAssignment true to add byte sequences without holding this map's lock
+     */
+    public void setConcurrentAssignment(boolean concurrentAssignment) {
+        this.concurrentAssignment = concurrentAssignment;
+    }
+
+    public boolean isConcurrentAssignment() {
+        return concurrentAssignment;
     }
 
     /// acquire the lock before writing.
@@ -147,12 +196,7 @@ public class ByteArrayOrdinalMap {
 
         /// the ordinal for this object still does not exist in the list, even after the lock has been acquired.
         /// it is up to this thread to add it at the current bucket position.
-        int ordinal = findFreeOrdinal(preferredOrdinal);
-        if (ordinal > ORDINAL_MASK) {
-            throw new IllegalStateException(String.format(
-                    "Ordinal cannot be assigned. The to be assigned ordinal, %s, is greater than the maximum supported ordinal value of %s",
-                    ordinal, ORDINAL_MASK));
-        }
+        int ordinal = assignFreeOrdinal(preferredOrdinal);
 
         long pointer = byteData.length();
 
@@ -179,6 +223,177 @@ public class ByteArrayOrdinalMap {
         return ordinal;
     }
 
+    /**
+     * Adds a sequence of bytes without holding this map's lock.
+     * <p>
+     * The key array is probed as it is for a lookup.  On reaching an empty bucket, the bytes are copied into this
+     * thread's AppendBuffer and an ordinal is taken from the pool, then the bucket is claimed with a compare-and-set.  If
+     * another thread claims the bucket first, probing continues from that bucket; should it turn out that the other
+     * thread added the same bytes, the ordinal is returned to the pool and the copied bytes are left unreferenced until
+     * the map is compacted.
+     * <p>
+     * A thread which prefers an ordinal that another thread has taken, but not yet assigned, waits for it to be assigned
+     * and probes again.  Otherwise, when two threads race to add the same bytes, the thread which did not take the
+     * preferred ordinal could claim the bucket first, and the bytes would be assigned a new ordinal.
+     * <p>
+     * Buckets are only ever claimed, except while the key array is rehashed into a larger array, when an empty bucket
+     * may instead be sealed.  A thread which reaches a sealed bucket helps to complete the rehash, then starts over
+     * with the larger array.
+     */
+    private int assignOrdinalConcurrently(ByteDataArray serializedRepresentation, int hash, int preferredOrdinal) {
+        if (preferredOrdinal < -1 || preferredOrdinal > ORDINAL_MASK) {
+            throw new IllegalArgumentException(String.format(
+                    "The given preferred ordinal %s is out of bounds and not within the closed interval [-1, %s]",
+                    preferredOrdinal, ORDINAL_MASK));
+        }
+
+        long newKey = EMPTY_BUCKET_VALUE;
+        boolean assignedPreferredOrdinal = false;
+
+        probe:
+        while (true) {
+            AtomicLongArray pao = pointersAndOrdinals;
+            if (size > sizeBeforeGrow) {
+                growKeyArrayConcurrently(pao);
+                continue;
+            }
+
+            int modBitmask = pao.length() - 1;
+            int bucket = hash & modBitmask;
+            long key = pao.get(bucket);
+
+            while (key != SEALED_BUCKET_VALUE) {
+                if (key == EMPTY_BUCKET_VALUE) {
+                    if (newKey == EMPTY_BUCKET_VALUE) {
+                        int ordinal = -1;
+                        synchronized (freeOrdinalTracker) {
+                            if (preferredOrdinal == -1 || !preferredOrdinalsInFlight.get(preferredOrdinal)) {
+                                assignedPreferredOrdinal = preferredOrdinal != -1 && unusedPreviousOrdinals.get(preferredOrdinal);
+                                ordinal = assignFreeOrdinal(preferredOrdinal);
+                                if (assignedPreferredOrdinal) {
+                                    preferredOrdinalsInFlight.set(ordinal);
+                                }
+                            }
+                        }
+                        if (ordinal == -1) {
+                            /// the preferred ordinal is taken by a thread which is most likely adding the same bytes
+                            Thread.yield();
+                            continue probe;
+                        }
+                        newKey = ((long) ordinal << BITS_PER_POINTER) | appendToByteData(serializedRepresentation);
+                    }
+
+                    if (pao.compareAndSet(bucket, EMPTY_BUCKET_VALUE, newKey)) {
+                        SIZE_UPDATER.incrementAndGet(this);
+                        if (assignedPreferredOrdinal) {
+                            synchronized (freeOrdinalTracker) {
+                                preferredOrdinalsInFlight.clear(preferredOrdinal);
+                            }
+                        }
+                        return (int) (newKey >>> BITS_PER_POINTER);
+                    }
+
+                    /// another thread claimed or sealed the bucket, examine it again
+                    key = pao.get(bucket);
+                    continue;
+                }
+
+                if (compare(serializedRepresentation, key)) {
+                    if (newKey != EMPTY_BUCKET_VALUE) {
+                        releaseOrdinal((int) (newKey >>> BITS_PER_POINTER), assignedPreferredOrdinal);
+                    }
+                    return (int) (key >>> BITS_PER_POINTER);
+                }
+
+                bucket = (bucket + 1) & modBitmask;
+                key = pao.get(bucket);
+            }
+
+            growKeyArrayConcurrently(pao);
+        }
+    }
+
+    /**
+     * Takes an ordinal from the pool, see {@link #findFreeOrdinal(int)}.
+     */
+    private int assignFreeOrdinal(int preferredOrdinal) {
+        int ordinal = findFreeOrdinal(preferredOrdinal);
+        if (ordinal > ORDINAL_MASK) {
+            throw new IllegalStateException(String.format(
+                    "Ordinal cannot be assigned. The to be assigned ordinal, %s, is greater than the maximum supported ordinal value of %s",
+                    ordinal, ORDINAL_MASK));
+        }
+        return ordinal;
+    }
+
+    /**
+     * Returns an ordinal, which was taken from the pool but not assigned, to the pool.
+     */
+    private void releaseOrdinal(int ordinal, boolean preferredOrdinal) {
+        synchronized (freeOrdinalTracker) {
+            if (preferredOrdinal) {
+                unusedPreviousOrdinals.set(ordinal);
+                preferredOrdinalsInFlight.clear(ordinal);
+            } else {
+                freeOrdinalTracker.returnOrdinalToPool(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Copies a sequence of bytes, preceded by its length, into the current thread's AppendBuffer.
+     *
+     * @return the pointer to the copied bytes
+     */
+    private long appendToByteData(ByteDataArray serializedRepresentation) {
+        int length = (int) serializedRepresentation.length();
+        int requiredBytes = VarInt.sizeOfVInt(length) + length;
+
+        AppendBuffer buffer = appendBuffers.get();
+        if (buffer == null || buffer.generation != byteDataGeneration || buffer.end - buffer.position < requiredBytes) {
+            buffer = reserveAppendBuffer(requiredBytes);
+            appendBuffers.set(buffer);
+        }
+
+        long pointer = buffer.position;
+        SegmentedByteArray arr = byteData.getUnderlyingArray();
+
+        int sizeOfLength = VarInt.writeVInt(buffer.lengthScratch, 0, length);
+        for (int i = 0; i < sizeOfLength; i++) {
+            arr.set(pointer + i, buffer.lengthScratch[i]);
+        }
+        arr.copy(serializedRepresentation.getUnderlyingArray(), 0, pointer + sizeOfLength, length);
+
+        buffer.position += requiredBytes;
+        return pointer;
+    }
+
+    /**
+     * Reserves a region at the end of the byte data for the current thread.  Every segment spanned by the region is
+     * allocated while the lock is held, so that the current thread may then write to the region without it.
+     */
+    private AppendBuffer reserveAppendBuffer(int requiredBytes) {
+        synchronized (byteData) {
+            long start = byteData.length();
+            long end = start + Math.max(requiredBytes, APPEND_BUFFER_SIZE);
+            if (end > MAX_BYTE_DATA_LENGTH) {
+                throw new IllegalStateException(String.format(
+                        "The number of bytes for the serialized representations, %s, is too large and is greater than the maximum of %s bytes",
+                        end, MAX_BYTE_DATA_LENGTH));
+            }
+
+            SegmentedByteArray arr = byteData.getUnderlyingArray();
+            int segmentSize = 1 << WastefulRecycler.DEFAULT_INSTANCE.getLog2OfByteSegmentSize();
+            for (long position = start; position < end; position += segmentSize) {
+                arr.set(position, (byte) 0);
+            }
+            arr.set(end - 1, (byte) 0);
+            byteData.setPosition(end);
+
+            return new AppendBuffer(byteDataGeneration, start, end);
+        }
+    }
+
     /**
      * If the preferredOrdinal has not already been used, mark it and use it.  Otherwise,
      * delegate to the FreeOrdinalTracker.
@@ -305,7 +520,9 @@ public class ByteArrayOrdinalMap {
         // To ensure this is the case it is important that pointersAndOrdinals
         // is read into a local variable and thereafter used, otherwise a concurrent
         // size increase may break this invariant
-        while (key != EMPTY_BUCKET_VALUE) {
+        // A sealed bucket is only encountered while the keys are rehashed by concurrent assignment, in which case
+        // the sequence of bytes is looked up again once the rehash is complete
+        while (key != EMPTY_BUCKET_VALUE && key != SEALED_BUCKET_VALUE) {
             if (compare(serializedRepresentation, key)) {
                 return (int) (key >>> BITS_PER_POINTER);
             }
@@ -398,6 +615,7 @@ public class ByteArrayOrdinalMap {
         }
 
         byteData.setPosition(currentCopyPointer);
+        byteDataGeneration++;
         freeOrdinalTracker.sort();
 
         // Reset the array then fill with compacted values
@@ -491,14 +709,45 @@ public class ByteArrayOrdinalMap {
      * Grow the key array.  All of the values in the current array must be re-hashed and added to the new array.
      */
     private void growKeyArray() {
-        int newSize = pointersAndOrdinals.length() << 1;
+        growKeyArray(grownKeyArraySize(pointersAndOrdinals));
+    }
+
+    private static int grownKeyArraySize(AtomicLongArray pao) {
+        int newSize = pao.length() << 1;
         if (newSize < 0) {
             throw new IllegalStateException("New size computed to grow the underlying array for the map is negative. " +
                     "This is most likely due to the total number of keys added to map has exceeded the max capacity of the keys map can hold. "
                     +
-                    "Current array size :" + pointersAndOrdinals.length() + " and size to grow :" + newSize);
+                    "Current array size :" + pao.length() + " and size to grow :" + newSize);
+        }
+        return newSize;
+    }
+
+    /**
+     * Grow the key array, with concurrent assignment.  The current thread helps to rehash the keys in the given array,
+     * unless it has already been replaced, and returns once it has been replaced.
+     */
+    private void growKeyArrayConcurrently(AtomicLongArray pao) {
+        KeyArrayTransfer transfer = keyArrayTransfer;
+        if (transfer == null || transfer.from != pao) {
+            synchronized (this) {
+                if (pointersAndOrdinals != pao) {
+                    return;
+                }
+                transfer = keyArrayTransfer;
+                if (transfer == null || transfer.from != pao) {
+                    transfer = new KeyArrayTransfer(pao, emptyKeyArray(grownKeyArraySize(pao)));
+                    keyArrayTransfer = transfer;
+                }
+            }
+        }
+
+        transfer.help();
+
+        /// wait for the threads rehashing the remaining strides
+        while (pointersAndOrdinals == pao) {
+            Thread.yield();
         }
-        growKeyArray(newSize);
     }
 
     private void growKeyArray(int newSize) {
@@ -603,4 +852,85 @@ public class ByteArrayOrdinalMap {
         return (int) (pointerAndOrdinal >>> BITS_PER_POINTER);
     }
 
-}
\ No newline at end of file
+    /**
+     * A region of the byte data reserved for the byte sequences added by one thread.
+     */
+    private static class AppendBuffer {
+        private final int generation;
+        private final long end;
+        private final byte[] lengthScratch = new byte[5];
+        private long position;
+
+        private AppendBuffer(int generation, long start, long end) {
+            this.generation = generation;
+            this.position = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * The rehash of a key array into a larger array, shared by the threads which find that the map must grow.
+     * <p>
+     * The key array is divided into strides, which each thread claims in turn.  Each bucket of a stride is either
+     * sealed, if it is empty, or its key is added to the larger array; a bucket cannot be claimed once it is sealed,
+     * so every key added to the smaller array is carried over.  The thread which completes the last stride replaces
+     * the key array.
+     */
+    private class KeyArrayTransfer {
+        private final AtomicLongArray from;
+        private final AtomicLongArray to;
+        private final int numStrides;
+        private final AtomicInteger nextStride = new AtomicInteger();
+        private final AtomicInteger completedStrides = new AtomicInteger();
+
+        private KeyArrayTransfer(AtomicLongArray from, AtomicLongArray to) {
+            this.from = from;
+            this.to = to;
+            this.numStrides = (from.length() + TRANSFER_STRIDE - 1) / TRANSFER_STRIDE;
+        }
+
+        private void help() {
+            int stride;
+            while ((stride = nextStride.getAndIncrement()) < numStrides) {
+                transferStride(stride);
+
+                if (completedStrides.incrementAndGet() == numStrides) {
+                    /// 70% load factor
+                    sizeBeforeGrow = (int) (((float) to.length()) * 0.7);
+                    pointersAndOrdinals = to;
+                    keyArrayTransfer = null;
+                }
+            }
+        }
+
+        private void transferStride(int stride) {
+            int start = stride * TRANSFER_STRIDE;
+            int end = Math.min(start + TRANSFER_STRIDE, from.length());
+
+            long[] valuesToAdd = new long[end - start];
+            int counter = 0;
+
+            for (int i = start; i < end; i++) {
+                long key = from.get(i);
+                while (key == EMPTY_BUCKET_VALUE && !from.compareAndSet(i, EMPTY_BUCKET_VALUE, SEALED_BUCKET_VALUE)) {
+                    key = from.get(i);
+                }
+                if (key != EMPTY_BUCKET_VALUE) {
+                    valuesToAdd[counter++] = key;
+                }
+            }
+
+            /// as in growKeyArray, do not add the keys in the order in which they appear in the hashed array
+            Arrays.sort(valuesToAdd, 0, counter);
+
+            int modBitmask = to.length() - 1;
+            for (int i = 0; i < counter; i++) {
+                int bucket = rehashPreviouslyAddedData(valuesToAdd[i]) & modBitmask;
+                while (!to.compareAndSet(bucket, EMPTY_BUCKET_VALUE, valuesToAdd[i])) {
+                    bucket = (bucket + 1) & modBitmask;
+                }
+            }
+        }
+    }
+
+}
@@ -67,6 +67,14 @@ public class EncodedByteBuffer implements VariableLengthData {
         throw new UnsupportedOperationException("Operation not supported in shared-memory mode");
     }
 
+    /**
+     * Touches every page of the mapped data, so that it is resident in main memory before it is first read.
+     */
+    public void touch() {
+        if (bufferView != null)
+            bufferView.touch(bufferView.position(), size);
+    }
+
     @Override
     public long size() {
         return size;
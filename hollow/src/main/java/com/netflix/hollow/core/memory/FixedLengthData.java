@@ -79,6 +79,27 @@ public interface FixedLengthData {
      */
     long getLargeElementValue(long index, int bitsPerElement, long mask);
 
+    /**
+     * Gets {@code count} element values, each comprising of {@code bitsPerElement} bits, the first at the given
+     * bit {@code index} and each subsequent one {@code bitsBetweenElements} bits after the previous one.
+     * <p>
+     * Implementations may decode the elements a word at a time, which is considerably cheaper than
+     * retrieving each element with {@link #getLargeElementValue(long, int)} when the elements are densely packed.
+     *
+     * @param index the bit index of the first element
+     * @param bitsPerElement bits per element, may be greater than 58
+     * @param bitsBetweenElements the distance in bits between the start of successive elements
+     * @param dest the array into which the element values are written
+     * @param destPos the position in {@code dest} at which the first element value is written
+     * @param count the number of element values to get
+     */
+    default void getElementValues(long index, int bitsPerElement, long bitsBetweenElements, long[] dest, int destPos, int count) {
+        for(int i=0;i<count;i++) {
+            dest[destPos + i] = getLargeElementValue(index, bitsPerElement);
+            index += bitsBetweenElements;
+        }
+    }
+
     void setElementValue(long index, int bitsPerElement, long value);
 
     void copyBits(FixedLengthData copyFrom, long sourceStartBit, long destStartBit, long numBits);
@@ -2,21 +2,21 @@ package com.netflix.hollow.core.memory;
 
 import com.netflix.hollow.core.memory.encoding.EncodedLongBuffer;
 import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.memory.encoding.OffHeapElementArray;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
 import java.io.IOException;
-import java.util.logging.Logger;
 
 public class FixedLengthDataFactory {
 
-    private static final Logger LOG = Logger.getLogger(FixedLengthDataFactory.class.getName());
-
     public static FixedLengthData get(HollowBlobInput in, MemoryMode memoryMode, ArraySegmentRecycler memoryRecycler) throws IOException {
 
         if (memoryMode.equals(MemoryMode.ON_HEAP)) {
             return FixedLengthElementArray.newFrom(in, memoryRecycler);
-        } else if (memoryMode.equals(MemoryMode.SHARED_MEMORY_LAZY)) {
+        } else if (memoryMode.isSharedMemory()) {
             return EncodedLongBuffer.newFrom(in);
+        } else if (memoryMode.equals(MemoryMode.OFF_HEAP)) {
+            return OffHeapElementArray.newFrom(in, memoryRecycler);
         } else {
             throw new UnsupportedOperationException("Memory mode " + memoryMode.name() + " not supported");
         }
@@ -26,9 +26,20 @@ public class FixedLengthDataFactory {
         if (fld instanceof FixedLengthElementArray) {
             ((FixedLengthElementArray) fld).destroy(memoryRecycler);
         } else if (fld instanceof EncodedLongBuffer) {
-            LOG.warning("Destroy operation is a no-op in shared memory mode");
+            /// no-op, the mapping is released once the buffer is no longer referenced
+        } else if (fld instanceof OffHeapElementArray) {
+            ((OffHeapElementArray) fld).destroy();
         } else {
             throw new UnsupportedOperationException("Unknown type");
         }
     }
+
+    /**
+     * Touches the data if it is mapped from shared memory, so that it is resident in main memory before it is first read.
+     */
+    public static void warmUp(FixedLengthData fld) {
+        if (fld instanceof EncodedLongBuffer) {
+            ((EncodedLongBuffer) fld).touch();
+        }
+    }
 }
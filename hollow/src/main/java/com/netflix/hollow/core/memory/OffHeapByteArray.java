@@ -0,0 +1,181 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory;
+
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.OffHeapRecycler;
+import com.netflix.hollow.core.read.HollowBlobInput;
+import java.io.EOFException;
+import java.io.IOException;
+import sun.misc.Unsafe;
+
+/**
+ * Off-heap implementation of variable length byte data, see {@link OffHeapSlabArray}.
+ * <p>
+ * Unlike a {@link SegmentedByteArray}, the array does not grow as bytes are copied into it:  the bytes are either
+ * loaded, or copied into an array which has been allocated with {@link #OffHeapByteArray(ArraySegmentRecycler, long)}.
+ */
+@SuppressWarnings("restriction")
+public class OffHeapByteArray extends OffHeapSlabArray implements VariableLengthData {
+
+    private static final int TRANSFER_BUFFER_SIZE = 1 << 13;
+
+    private final OffHeapRecycler memoryRecycler;
+
+    public OffHeapByteArray(ArraySegmentRecycler memoryRecycler) {
+        this.memoryRecycler = OffHeapRecycler.of(memoryRecycler);
+    }
+
+    /**
+     * @param memoryRecycler the recycler from which the slabs are obtained
+     * @param size the number of bytes into which data may be copied
+     */
+    public OffHeapByteArray(ArraySegmentRecycler memoryRecycler, long size) {
+        this(memoryRecycler);
+        allocate(this.memoryRecycler, size);
+    }
+
+    /**
+     * Returns a new OffHeapByteArray holding a copy of the given number of bytes of on-heap data.
+     *
+     * @param src the data
+     * @param length the number of bytes to copy
+     * @param memoryRecycler the recycler from which the slabs are obtained
+     * @return the copy
+     */
+    public static OffHeapByteArray copyOf(ByteData src, long length, ArraySegmentRecycler memoryRecycler) {
+        OffHeapByteArray arr = new OffHeapByteArray(memoryRecycler);
+        arr.allocate(arr.memoryRecycler, length);
+
+        if(src instanceof SegmentedByteArray) {
+            byte[] transfer = new byte[(int)Math.min(length, TRANSFER_BUFFER_SIZE)];
+            long position = 0;
+            while(position < length) {
+                int bytesToCopy = (int)Math.min(transfer.length, length - position);
+                ((SegmentedByteArray) src).copy(position, transfer, 0, bytesToCopy);
+                arr.put(position, transfer, bytesToCopy);
+                position += bytesToCopy;
+            }
+        } else {
+            for(long i=0;i<length;i++)
+                unsafe.putByte(arr.address(i), src.get(i));
+        }
+        return arr;
+    }
+
+    @Override
+    public byte get(long index) {
+        return unsafe.getByte(address(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     * This is achieved by allocating the slabs which hold <i>length</i> bytes, and reading the bytes into them.
+     */
+    @Override
+    public void loadFrom(HollowBlobInput in, long length) throws IOException {
+        allocate(memoryRecycler, length);
+
+        byte[] transfer = new byte[(int)Math.min(length, TRANSFER_BUFFER_SIZE)];
+        long position = 0;
+        while(position < length) {
+            int bytesRead = in.read(transfer, 0, (int)Math.min(transfer.length, length - position));
+            if(bytesRead < 0)
+                throw new EOFException();
+            put(position, transfer, bytesRead);
+            position += bytesRead;
+        }
+    }
+
+    /**
+     * Copies bytes from this array into the provided byte array.
+     *
+     * @param srcPos the position to begin copying from this array
+     * @param data the destination array
+     * @param destPos the position to begin writing in the destination array
+     * @param length the number of bytes to copy
+     * @return the number of bytes copied
+     */
+    public int copy(long srcPos, byte[] data, int destPos, int length) {
+        if(srcPos + length > size || destPos < 0 || destPos + length > data.length)
+            throw new IllegalStateException("Copy of " + length + " bytes is outside of the off-heap data or the array");
+        int copied = 0;
+        while(copied < length) {
+            int bytesInSlab = (int)Math.min(length - copied, (slabBitmask + 1) - (srcPos & slabBitmask));
+            unsafe.copyMemory(null, address(srcPos), data, Unsafe.ARRAY_BYTE_BASE_OFFSET + destPos + copied, bytesInSlab);
+            copied += bytesInSlab;
+            srcPos += bytesInSlab;
+        }
+        return copied;
+    }
+
+    /**
+     * Copies bytes into the slabs, splitting the copy where it crosses the end of a slab.
+     */
+    private void put(long position, byte[] src, int length) {
+        int srcPos = 0;
+        while(srcPos < length) {
+            int bytesInSlab = (int)Math.min(length - srcPos, (slabBitmask + 1) - (position & slabBitmask));
+            unsafe.copyMemory(src, Unsafe.ARRAY_BYTE_BASE_OFFSET + srcPos, null, address(position), bytesInSlab);
+            srcPos += bytesInSlab;
+            position += bytesInSlab;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The bytes must lie within the allocated size of this array.
+     */
+    @Override
+    public void copy(ByteData src, long srcPos, long destPos, long length) {
+        if(destPos < 0 || destPos + length > size)
+            throw new IllegalStateException("Copy of " + length + " bytes is outside of the off-heap data");
+
+        if(src instanceof SegmentedByteArray || src instanceof OffHeapByteArray) {
+            byte[] transfer = new byte[(int)Math.min(length, TRANSFER_BUFFER_SIZE)];
+            long copied = 0;
+            while(copied < length) {
+                int bytesToCopy = (int)Math.min(transfer.length, length - copied);
+                if(src instanceof SegmentedByteArray)
+                    ((SegmentedByteArray) src).copy(srcPos + copied, transfer, 0, bytesToCopy);
+                else
+                    ((OffHeapByteArray) src).copy(srcPos + copied, transfer, 0, bytesToCopy);
+                put(destPos + copied, transfer, bytesToCopy);
+                copied += bytesToCopy;
+            }
+        } else {
+            for(long i=0;i<length;i++)
+                unsafe.putByte(address(destPos + i), src.get(srcPos + i));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The bytes must lie within the allocated size of this array.
+     */
+    @Override
+    public void orderedCopy(VariableLengthData src, long srcPos, long destPos, long length) {
+        /// the writes prior to this call are made visible before any of the copied bytes
+        unsafe.storeFence();
+        copy(src, srcPos, destPos, length);
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+}
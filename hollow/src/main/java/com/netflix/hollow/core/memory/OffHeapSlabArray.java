@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory;
+
+import com.netflix.hollow.core.memory.pool.OffHeapRecycler;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import sun.misc.Unsafe;
+
+/**
+ * A range of bytes held off of the heap, in direct memory slabs obtained from an {@link OffHeapRecycler}.
+ * <p>
+ * Each slab except the last holds {@code 1 << log2OfSlabSize} bytes of the range, and the last holds the remainder.
+ * The slabs are followed by {@link OffHeapRecycler#SLAB_PADDING} bytes, so that an unaligned read of a long at any
+ * position in the range stays within the memory of the slab.  As with the on-heap arrays, the contents of the data are
+ * written before the data is made visible to readers.
+ * <p>
+ * The slabs are referenced for as long as this array is, so that their memory is not freed while a reader which
+ * retains this array may read it.
+ */
+@SuppressWarnings("restriction")
+public abstract class OffHeapSlabArray {
+
+    protected static final Unsafe unsafe = HollowUnsafeHandle.getUnsafe();
+
+    private static final long BUFFER_ADDRESS_OFFSET;
+
+    static {
+        try {
+            BUFFER_ADDRESS_OFFSET = unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final ByteBuffer[] NO_SLABS = new ByteBuffer[0];
+    private static final long[] NO_ADDRESSES = new long[0];
+
+    private OffHeapRecycler recycler;
+    private ByteBuffer[] slabs = NO_SLABS;
+    protected long[] addresses = NO_ADDRESSES;
+    protected int log2OfSlabSize;
+    protected long slabBitmask;
+    protected long size;
+
+    /**
+     * Allocates the slabs which hold the given number of bytes.
+     *
+     * @param recycler the recycler from which the slabs are obtained
+     * @param size the number of bytes
+     */
+    protected void allocate(OffHeapRecycler recycler, long size) {
+        int log2OfSlabSize = recycler.getLog2OfSlabSize();
+        long slabSize = 1L << log2OfSlabSize;
+        int numSlabs = (int)((size + slabSize - 1) >>> log2OfSlabSize);
+
+        ByteBuffer[] slabs = new ByteBuffer[numSlabs];
+        long[] addresses = new long[numSlabs];
+        for(int i=0;i<numSlabs;i++) {
+            long remaining = size - ((long)i << log2OfSlabSize);
+            /// the last slab is sized to the remainder, unless it is a full slab
+            slabs[i] = remaining >= slabSize ? recycler.getSlab()
+                    : ByteBuffer.allocateDirect((int)remaining + OffHeapRecycler.SLAB_PADDING);
+            addresses[i] = unsafe.getLong(slabs[i], BUFFER_ADDRESS_OFFSET);
+        }
+
+        this.recycler = recycler;
+        this.slabs = slabs;
+        this.addresses = addresses;
+        this.log2OfSlabSize = log2OfSlabSize;
+        this.slabBitmask = slabSize - 1;
+        this.size = size;
+    }
+
+    /**
+     * Zeroes the slabs and their padding, which may hold the contents of a recycled slab.
+     */
+    protected void clear() {
+        for(int i=0;i<slabs.length;i++)
+            unsafe.setMemory(addresses[i], paddingAddress(i) - addresses[i] + OffHeapRecycler.SLAB_PADDING, (byte) 0);
+    }
+
+    /**
+     * Positions outside of the range are rejected, rather than read, since a reader which has not yet observed that the
+     * data was replaced may compute a position from recycled data.
+     *
+     * @param position a position in the range of bytes
+     * @return the memory address of the byte at the position
+     */
+    protected long address(long position) {
+        if(position < 0 || position >= size)
+            throw new IllegalStateException("Position " + position + " is outside of " + size + " bytes of off-heap data");
+        return addresses[(int)(position >>> log2OfSlabSize)] + (position & slabBitmask);
+    }
+
+    /**
+     * @param slab the index of a slab
+     * @return the memory address of the padding which follows the slab
+     */
+    protected long paddingAddress(int slab) {
+        long slabLength = Math.min(size - ((long)slab << log2OfSlabSize), slabBitmask + 1);
+        return addresses[slab] + slabLength;
+    }
+
+    protected int numSlabs() {
+        return slabs.length;
+    }
+
+    /**
+     * Releases the full slabs to the recycler.  The slabs remain referenced, so that a reader which has not yet observed
+     * that this array was replaced reads recycled memory rather than freed memory, as with recycled array segments.
+     */
+    public void destroy() {
+        long slabSize = slabBitmask + 1;
+        for(int i=0;i<slabs.length;i++) {
+            if(size - ((long)i << log2OfSlabSize) >= slabSize)
+                recycler.recycleSlab(slabs[i]);
+        }
+    }
+}
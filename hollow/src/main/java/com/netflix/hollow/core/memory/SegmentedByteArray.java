@@ -159,6 +159,12 @@ public class SegmentedByteArray implements VariableLengthData {
 
     @Override
     public void orderedCopy(VariableLengthData src, long srcPos, long destPos, long length) {
+        if(!(src instanceof SegmentedByteArray)) {
+            /// data in shared memory is copied a byte at a time, into an array which is not yet visible to other threads
+            copy(src, srcPos, destPos, length);
+            return;
+        }
+
         int segmentLength = 1 << log2OfSegmentSize;
         int currentSegment = (int)(destPos >>> log2OfSegmentSize);
         int segmentStartPos = (int)(destPos & bitmask);
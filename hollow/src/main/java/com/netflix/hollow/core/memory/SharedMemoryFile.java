@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory;
+
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.read.HollowBlobInput;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A temporary file into which data produced on the heap is written, so that it can be mapped back into shared memory.
+ * <p>
+ * Data is written with the {@code write} methods and then read back, in the same order, from the random access input
+ * returned by {@link #map(MemoryMode)}.  The {@link FixedLengthData} and {@link VariableLengthData} loaded from that
+ * input remain valid after this file is closed; the file is deleted on close and its space is reclaimed once the last
+ * mapping of it is released.
+ * <p>
+ * This class is not thread safe.
+ */
+public class SharedMemoryFile implements Closeable {
+
+    private final File file;
+    private final DataOutputStream os;
+    private HollowBlobInput in;
+
+    private SharedMemoryFile(File file) throws IOException {
+        this.file = file;
+        this.os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    /**
+     * Creates a new temporary file in the default temporary-file directory.
+     *
+     * @return the file
+     * @throws IOException if the file could not be created
+     */
+    public static SharedMemoryFile create() throws IOException {
+        return new SharedMemoryFile(File.createTempFile("hollow-", ".shm"));
+    }
+
+    /**
+     * Writes the longs which hold the given number of bits of on-heap fixed length data, so that they can be read back
+     * with {@link FixedLengthDataFactory#get}.
+     *
+     * @param data the data, a {@link FixedLengthElementArray}
+     * @param numBits the number of bits of the data which are populated
+     * @throws IOException if the data could not be written
+     */
+    public void write(FixedLengthData data, long numBits) throws IOException {
+        long numLongs = numBits == 0 ? 0 : ((numBits - 1) >>> 6) + 1;
+        ((FixedLengthElementArray) data).writeTo(os, numLongs);
+    }
+
+    /**
+     * Writes the given number of bytes of on-heap variable length data, so that they can be read back with
+     * {@link VariableLengthData#loadFrom}.
+     *
+     * @param data the data, a {@link SegmentedByteArray}
+     * @param length the number of bytes of the data which are populated
+     * @throws IOException if the data could not be written
+     */
+    public void write(VariableLengthData data, long length) throws IOException {
+        if(length > 0)
+            ((SegmentedByteArray) data).writeTo(os, 0, length);
+    }
+
+    /**
+     * Completes writing to this file and maps it into memory.
+     *
+     * @param memoryMode the shared memory mode in which the file is mapped
+     * @return a random access input positioned at the beginning of the written data
+     * @throws IOException if the file could not be written or mapped
+     */
+    public HollowBlobInput map(MemoryMode memoryMode) throws IOException {
+        os.close();
+        in = HollowBlobInput.randomAccess(file, memoryMode);
+        return in;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            os.close();
+            if(in != null)
+                in.close();
+        } finally {
+            /// some platforms do not permit a mapped file to be deleted
+            if(!file.delete())
+                file.deleteOnExit();
+        }
+    }
+}
@@ -1,20 +1,19 @@
 package com.netflix.hollow.core.memory;
 
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
-import java.util.logging.Logger;
 
 public class VariableLengthDataFactory {
 
-    private static final Logger LOG = Logger.getLogger(VariableLengthDataFactory.class.getName());
-
     public static VariableLengthData get(MemoryMode memoryMode, ArraySegmentRecycler memoryRecycler) {
 
         if (memoryMode.equals(MemoryMode.ON_HEAP)) {
             return new SegmentedByteArray(memoryRecycler);
 
-        } else if (memoryMode.equals(MemoryMode.SHARED_MEMORY_LAZY)) {
+        } else if (memoryMode.isSharedMemory()) {
             /// list pointer array
             return new EncodedByteBuffer();
+        } else if (memoryMode.equals(MemoryMode.OFF_HEAP)) {
+            return new OffHeapByteArray(memoryRecycler);
         } else {
             throw new UnsupportedOperationException("Memory mode " + memoryMode.name() + " not supported");
         }
@@ -24,9 +23,20 @@ public class VariableLengthDataFactory {
         if (vld instanceof SegmentedByteArray) {
             ((SegmentedByteArray) vld).destroy();
         } else if (vld instanceof EncodedByteBuffer) {
-            LOG.warning("Destroy operation is a no-op in shared memory mode");
+            /// no-op, the mapping is released once the buffer is no longer referenced
+        } else if (vld instanceof OffHeapByteArray) {
+            ((OffHeapByteArray) vld).destroy();
         } else {
             throw new UnsupportedOperationException("Unknown type");
         }
     }
+
+    /**
+     * Touches the data if it is mapped from shared memory, so that it is resident in main memory before it is first read.
+     */
+    public static void warmUp(VariableLengthData vld) {
+        if (vld instanceof EncodedByteBuffer) {
+            ((EncodedByteBuffer) vld).touch();
+        }
+    }
 }
@@ -2,12 +2,14 @@ package com.netflix.hollow.core.memory.encoding;
 
 import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
 
+import com.netflix.hollow.core.util.SimultaneousExecutor;
 import java.io.IOException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
 
 /**
  * <p>A stitching of {@link MappedByteBuffer}s to operate on large memory mapped blobs. {@code MappedByteBuffer} is
@@ -26,6 +28,11 @@ public final class BlobByteBuffer {
 
     public static final int MAX_SINGLE_BUFFER_CAPACITY = 1 << 30;   // largest, positive power-of-two int
 
+    private static final int PAGE_SIZE = 1 << 12;               // smallest page size of the supported platforms
+    private static final long LOAD_CHUNK_SIZE = 1 << 24;        // bytes touched by each task when loading in parallel
+
+    private static volatile byte touchedValue;                  // keeps the reads of touched pages from being elided
+
     private final ByteBuffer[] spine;   // array of MappedByteBuffers
     private final long capacity;        // in bytes
     private final int shift;
@@ -100,16 +107,57 @@ public final class BlobByteBuffer {
                     ? (int)(size - pos)
                     : bufferCapacity;
             ByteBuffer buffer = channel.map(READ_ONLY, pos, cap);
-            /*
-             * if (!((MappedByteBuffer) buffer).isLoaded()) // TODO(timt): make pre-fetching configurable
-             *    ((MappedByteBuffer) buffer).load();
-             */
             spine[i] = buffer;
         }
 
         return new BlobByteBuffer(size, shift, mask, spine);
     }
 
+    /**
+     * Loads the entire contents of this buffer into physical memory, by touching every page of it so that the page
+     * faults are taken now rather than when the data is first read.  The pages are touched in parallel.
+     *
+     * @param numThreads the number of threads which touch the pages
+     * @throws IOException if the pages could not be touched
+     */
+    public void load(int numThreads) throws IOException {
+        if (numThreads <= 1 || capacity <= LOAD_CHUNK_SIZE) {
+            touch(0, capacity);
+            return;
+        }
+
+        SimultaneousExecutor executor = new SimultaneousExecutor(numThreads, BlobByteBuffer.class, "load");
+        for (long start = 0; start < capacity; start += LOAD_CHUNK_SIZE) {
+            long chunkStart = start;
+            executor.execute(() -> touch(chunkStart, Math.min(LOAD_CHUNK_SIZE, capacity - chunkStart)));
+        }
+
+        try {
+            executor.awaitSuccessfulCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading mapped blob", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to load mapped blob", e.getCause());
+        }
+    }
+
+    /**
+     * Reads one byte from each page in the given range, so that the range is resident in physical memory.  This method
+     * is thread safe.
+     *
+     * @param startByteIndex byte index (from offset 0 in the backing BlobByteBuffer) at which the range starts
+     * @param length the length of the range in bytes
+     */
+    public void touch(long startByteIndex, long length) {
+        long end = Math.min(startByteIndex + length, capacity);
+        byte value = 0;
+        for (long index = startByteIndex; index < end; index += PAGE_SIZE) {
+            value ^= getByte(index);
+        }
+        touchedValue = value;
+    }
+
     /**
      * Return position in bytes.
      * @return position in bytes
@@ -86,6 +86,14 @@ public class EncodedLongBuffer implements FixedLengthData {
         in.seek(in.getFilePointer() + (numLongs  * Long.BYTES));
     }
 
+    /**
+     * Touches every page of the mapped data, so that it is resident in main memory before it is first read.
+     */
+    public void touch() {
+        if(bufferView != null)
+            bufferView.touch(bufferView.position(), maxByteIndex + 1);
+    }
+
     @Override
     public long getElementValue(long index, int bitsPerElement) {
         return getElementValue(index, bitsPerElement, ((1L << bitsPerElement) - 1));
@@ -140,6 +140,39 @@ public class FixedLengthElementArray extends SegmentedLongArray implements Fixed
         return l & mask;
     }
 
+    @Override
+    public void getElementValues(long index, int bitsPerElement, long bitsBetweenElements, long[] dest, int destPos, int count) {
+        long mask = bitsPerElement == 64 ? -1 : ((1L << bitsPerElement) - 1);
+
+        /// the most recently loaded long is retained, so that runs of elements packed into
+        /// the same long (or straddling a long boundary) are unpacked with a single load per long
+        long loadedLongIndex = -1;
+        long loadedLong = 0;
+
+        for(int i=0;i<count;i++) {
+            long whichLong = index >>> 6;
+            int whichBit = (int) (index & 0x3F);
+
+            if(whichLong != loadedLongIndex) {
+                loadedLongIndex = whichLong;
+                loadedLong = get(whichLong);
+            }
+
+            long l = loadedLong >>> whichBit;
+
+            int bitsRemaining = 64 - whichBit;
+
+            if (bitsRemaining < bitsPerElement) {
+                loadedLongIndex = whichLong + 1;
+                loadedLong = get(loadedLongIndex);
+                l |= loadedLong << bitsRemaining;
+            }
+
+            dest[destPos + i] = l & mask;
+            index += bitsBetweenElements;
+        }
+    }
+
     @Override
     public void copyBits(FixedLengthData copyFrom, long sourceStartBit, long destStartBit, long numBits) {
         if(numBits == 0)
@@ -62,6 +62,32 @@ public class FixedLengthMultipleOccurrenceElementArray {
         this.maxElementsPerNode = maxElementsPerNodeEstimate;
     }
 
+    private FixedLengthMultipleOccurrenceElementArray(FixedLengthMultipleOccurrenceElementArray copyFrom) {
+        this.memoryRecycler = copyFrom.memoryRecycler;
+        this.bitsPerElement = copyFrom.bitsPerElement;
+        this.elementMask = copyFrom.elementMask;
+        this.numNodes = copyFrom.numNodes;
+        this.maxElementsPerNode = copyFrom.maxElementsPerNode;
+
+        this.nodesWithOrdinalZero = new FixedLengthElementArray(memoryRecycler, numNodes);
+        this.nodesWithOrdinalZero.copyBits(copyFrom.nodesWithOrdinalZero, 0, 0, numNodes);
+
+        long storageBits = numNodes * bitsPerElement * maxElementsPerNode;
+        this.storage = new FixedLengthElementArray(memoryRecycler, storageBits);
+        this.storage.copyBits(copyFrom.storage, 0, 0, storageBits);
+    }
+
+    /**
+     * Create a copy of this array, which may be modified without affecting this array.
+     * This method is not thread-safe - the caller must ensure that no one calls {@link #addElement}
+     * or {@link #removeElement} concurrently with this method.
+     *
+     * @return a copy of this array
+     */
+    public FixedLengthMultipleOccurrenceElementArray copy() {
+        return new FixedLengthMultipleOccurrenceElementArray(this);
+    }
+
     /**
      * This method adds an element at nodeIndex. Note that this does not check for duplicates; if
      * the element already exists, another instance of it will be added.
@@ -104,6 +130,40 @@ public class FixedLengthMultipleOccurrenceElementArray {
         storage.setElementValue(currentIndex, bitsPerElement, element);
     }
 
+    /**
+     * This method removes all instances of an element at nodeIndex, if present. The remaining
+     * elements at nodeIndex are moved to the beginning of the node's bucket.
+     * This method is not thread-safe - you cannot call this method concurrently with itself or with
+     * {@link #getElements}.
+     *
+     * @param nodeIndex the node index
+     * @param element the element to remove
+     */
+    public void removeElement(long nodeIndex, long element) {
+        if (nodeIndex >= numNodes) {
+            throw new IllegalArgumentException("Provided nodeIndex  " + nodeIndex
+                    + " greater then numNodes " + numNodes);
+        }
+        if (element == NO_ELEMENT) {
+            nodesWithOrdinalZero.clearElementValue(nodeIndex, 1);
+            return;
+        }
+        long bucketStart = nodeIndex * maxElementsPerNode * bitsPerElement;
+        int writeOffset = 0;
+        for (int offset = 0; offset < maxElementsPerNode; offset++) {
+            long currentIndex = bucketStart + offset * bitsPerElement;
+            long current = storage.getElementValue(currentIndex, bitsPerElement, elementMask);
+            if (current == NO_ELEMENT) {
+                break; // we have exhausted the elements at this index
+            }
+            storage.clearElementValue(currentIndex, bitsPerElement);
+            if (current != element) {
+                storage.setElementValue(bucketStart + writeOffset * bitsPerElement, bitsPerElement, current);
+                writeOffset++;
+            }
+        }
+    }
+
     /**
      * Return a list of elements at the specified node index. The returned list may contain
      * duplicates.
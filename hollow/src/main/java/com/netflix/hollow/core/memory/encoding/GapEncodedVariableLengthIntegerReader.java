@@ -16,6 +16,7 @@
  */
 package com.netflix.hollow.core.memory.encoding;
 
+import com.netflix.hollow.core.memory.ByteDataArray;
 import com.netflix.hollow.core.memory.SegmentedByteArray;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
@@ -86,6 +87,58 @@ public class GapEncodedVariableLengthIntegerReader {
             data.destroy();
     }
     
+    /**
+     * Returns a reader over the elements of this reader which are not elements of another reader.  Both readers are
+     * reset on return.
+     *
+     * @param other the elements to exclude
+     * @param memoryRecycler the memory recycler from which a new reader is allocated
+     * @return this reader, if it has no element in common with the other reader, otherwise a new reader
+     */
+    public GapEncodedVariableLengthIntegerReader without(GapEncodedVariableLengthIntegerReader other, ArraySegmentRecycler memoryRecycler) {
+        if(!hasCommonElement(other))
+            return this;
+
+        ByteDataArray remaining = new ByteDataArray(memoryRecycler);
+        int previousElement = 0;
+
+        while(nextElement() != Integer.MAX_VALUE) {
+            while(other.nextElement() < nextElement())
+                other.advance();
+
+            if(other.nextElement() != nextElement()) {
+                VarInt.writeVInt(remaining, nextElement() - previousElement);
+                previousElement = nextElement();
+            }
+
+            advance();
+        }
+
+        reset();
+        other.reset();
+
+        return new GapEncodedVariableLengthIntegerReader(remaining.getUnderlyingArray(), (int)remaining.length());
+    }
+
+    private boolean hasCommonElement(GapEncodedVariableLengthIntegerReader other) {
+        reset();
+        other.reset();
+
+        boolean common = false;
+        while(!common && nextElement() != Integer.MAX_VALUE && other.nextElement() != Integer.MAX_VALUE) {
+            if(nextElement() < other.nextElement())
+                advance();
+            else if(other.nextElement() < nextElement())
+                other.advance();
+            else
+                common = true;
+        }
+
+        reset();
+        other.reset();
+        return common;
+    }
+
     public void writeTo(OutputStream os) throws IOException {
         VarInt.writeVInt(os, numBytes);
         data.writeTo(os, 0, numBytes);
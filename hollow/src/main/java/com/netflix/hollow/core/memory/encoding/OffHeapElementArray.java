@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory.encoding;
+
+import com.netflix.hollow.core.memory.FixedLengthData;
+import com.netflix.hollow.core.memory.OffHeapSlabArray;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.OffHeapRecycler;
+import com.netflix.hollow.core.read.HollowBlobInput;
+import java.io.IOException;
+
+/**
+ * This class allows for retrieval of fixed-length data held off of the heap, in the direct memory slabs of an
+ * {@link OffHeapSlabArray}.  The longs which hold the bit string are laid out in the slabs as they are in the segments of
+ * a {@link FixedLengthElementArray}, and element values are read in the same two ways.
+ * <br><br>
+ * As with the segments of a {@link FixedLengthElementArray}, the padding after each slab holds the first long of the
+ * subsequent slab, so that an unaligned read which would otherwise cross the end of a slab returns the correct value.
+ * The same constraint applies to {@link #getElementValue}, which can only support element values of 58 bits or less.
+ * <br><br>
+ * Element values are written a long at a time, so that the first long of each slab and its copy in the padding of the
+ * prior slab are kept equal.
+ */
+public class OffHeapElementArray extends OffHeapSlabArray implements FixedLengthData {
+
+    private final long numLongs;
+
+    private OffHeapElementArray(ArraySegmentRecycler memoryRecycler, long numLongs) {
+        this.numLongs = numLongs;
+        allocate(OffHeapRecycler.of(memoryRecycler), numLongs * Long.BYTES);
+    }
+
+    /**
+     * Returns a new OffHeapElementArray, all of whose bits are clear, which holds the given number of bits.
+     *
+     * @param numBits the number of bits
+     * @param memoryRecycler the recycler from which the slabs are obtained
+     * @return the array
+     */
+    public static OffHeapElementArray allocate(long numBits, ArraySegmentRecycler memoryRecycler) {
+        OffHeapElementArray arr = new OffHeapElementArray(memoryRecycler, ((numBits - 1) >>> 6) + 1);
+        arr.clear();
+        return arr;
+    }
+
+    /**
+     * Returns a new OffHeapElementArray from deserializing the given input. The value of the first variable length
+     * integer in the input indicates how many long values are to then be read from the input.
+     *
+     * @param in Hollow Blob Input to read data (a var int and then that many longs) from
+     * @param memoryRecycler the recycler from which the slabs are obtained
+     * @return new OffHeapElementArray containing data read from input
+     * @throws IOException if the data could not be read
+     */
+    public static OffHeapElementArray newFrom(HollowBlobInput in, ArraySegmentRecycler memoryRecycler) throws IOException {
+        long numLongs = VarInt.readVLong(in);
+        OffHeapElementArray arr = new OffHeapElementArray(memoryRecycler, numLongs);
+        for(long i=0;i<numLongs;i++)
+            arr.putLong(i, in.readLong());
+        arr.clearLastPadding();
+        return arr;
+    }
+
+    /**
+     * Returns a new OffHeapElementArray holding a copy of the longs which hold the given number of bits of on-heap data.
+     *
+     * @param src the data
+     * @param numBits the number of bits of the data which are populated
+     * @param memoryRecycler the recycler from which the slabs are obtained
+     * @return the copy
+     */
+    public static OffHeapElementArray copyOf(FixedLengthData src, long numBits, ArraySegmentRecycler memoryRecycler) {
+        long numLongs = numBits == 0 ? 0 : ((numBits - 1) >>> 6) + 1;
+        OffHeapElementArray arr = new OffHeapElementArray(memoryRecycler, numLongs);
+        for(long i=0;i<numLongs;i++)
+            arr.putLong(i, src.getLargeElementValue(i << 6, 64, -1));
+        arr.clearLastPadding();
+        return arr;
+    }
+
+    private long getLong(long whichLong) {
+        return unsafe.getLong(address(whichLong << 3));
+    }
+
+    private void putLong(long whichLong, long value) {
+        long position = whichLong << 3;
+        unsafe.putLong(address(position), value);
+
+        /// the first long of a slab is duplicated into the padding of the prior slab
+        int whichSlab = (int)(position >>> log2OfSlabSize);
+        if((position & slabBitmask) == 0 && whichSlab > 0)
+            unsafe.putLong(paddingAddress(whichSlab - 1), value);
+    }
+
+    private void clearLastPadding() {
+        if(numSlabs() > 0)
+            unsafe.putLong(paddingAddress(numSlabs() - 1), 0L);
+    }
+
+    @Override
+    public long getElementValue(long index, int bitsPerElement) {
+        return getElementValue(index, bitsPerElement, ((1L << bitsPerElement) - 1));
+    }
+
+    @Override
+    public long getElementValue(long index, int bitsPerElement, long mask) {
+        long whichByte = index >>> 3;
+        int whichBit = (int) (index & 0x07);
+
+        long l = unsafe.getLong(address(whichByte)) >>> whichBit;
+        return l & mask;
+    }
+
+    @Override
+    public long getLargeElementValue(long index, int bitsPerElement) {
+        long mask = bitsPerElement == 64 ? -1 : ((1L << bitsPerElement) - 1);
+        return getLargeElementValue(index, bitsPerElement, mask);
+    }
+
+    @Override
+    public long getLargeElementValue(long index, int bitsPerElement, long mask) {
+        long whichLong = index >>> 6;
+        int whichBit = (int) (index & 0x3F);
+
+        long l = unsafe.getLong(address(whichLong << 3)) >>> whichBit;
+
+        int bitsRemaining = 64 - whichBit;
+
+        if (bitsRemaining < bitsPerElement) {
+            whichLong++;
+            l |= unsafe.getLong(address(whichLong << 3)) << bitsRemaining;
+        }
+
+        return l & mask;
+    }
+
+    /**
+     * @return the number of longs which hold the bit string
+     */
+    public long numLongs() {
+        return numLongs;
+    }
+
+    @Override
+    public void setElementValue(long index, int bitsPerElement, long value) {
+        long whichLong = index >>> 6;
+        int whichBit = (int) (index & 0x3F);
+
+        putLong(whichLong, getLong(whichLong) | (value << whichBit));
+
+        int bitsRemaining = 64 - whichBit;
+
+        if (bitsRemaining < bitsPerElement)
+            putLong(whichLong + 1, getLong(whichLong + 1) | (value >>> bitsRemaining));
+    }
+
+    @Override
+    public void copyBits(FixedLengthData copyFrom, long sourceStartBit, long destStartBit, long numBits) {
+        if(numBits == 0)
+            return;
+
+        if ((destStartBit & 63) != 0) {
+            int fillBits = (int) Math.min(64 - (destStartBit & 63), numBits);
+            long fillValue = copyFrom.getLargeElementValue(sourceStartBit, fillBits);
+            setElementValue(destStartBit, fillBits, fillValue);
+
+            destStartBit += fillBits;
+            sourceStartBit += fillBits;
+            numBits -= fillBits;
+        }
+
+        long currentWriteLong = destStartBit >>> 6;
+
+        while (numBits >= 64) {
+            long l = copyFrom.getLargeElementValue(sourceStartBit, 64, -1);
+            putLong(currentWriteLong, l);
+            numBits -= 64;
+            sourceStartBit += 64;
+            currentWriteLong++;
+        }
+
+        if (numBits != 0) {
+            destStartBit = currentWriteLong << 6;
+
+            long fillValue = copyFrom.getLargeElementValue(sourceStartBit, (int) numBits);
+            setElementValue(destStartBit, (int) numBits, fillValue);
+        }
+    }
+
+    @Override
+    public void incrementMany(long startBit, long increment, long bitsBetweenIncrements, int numIncrements) {
+        long endBit = startBit + (bitsBetweenIncrements * numIncrements);
+        for(; startBit<endBit; startBit += bitsBetweenIncrements) {
+            increment(startBit, increment);
+        }
+    }
+
+    /**
+     * Adds the increment, shifted to the given bit, to the bit string, as
+     * {@link FixedLengthElementArray#increment(long, long)} does.  The increment is added to the long which holds the
+     * bit, and any bits shifted past the end of that long, along with its carry, to the long which follows.
+     *
+     * @param index the bit index
+     * @param increment the increment, which may be negative
+     */
+    public void increment(long index, long increment) {
+        long whichLong = index >>> 6;
+        int whichBit = (int) (index & 0x3F);
+
+        long l = getLong(whichLong);
+        long incremented = l + (increment << whichBit);
+        putLong(whichLong, incremented);
+
+        long highIncrement = whichBit == 0 ? increment >> 63 : increment >> (64 - whichBit);
+        if(Long.compareUnsigned(incremented, l) < 0)
+            highIncrement++;
+        if(highIncrement != 0)
+            putLong(whichLong + 1, getLong(whichLong + 1) + highIncrement);
+    }
+
+    @Override
+    public void clearElementValue(long index, int bitsPerElement) {
+        long whichLong = index >>> 6;
+        int whichBit = (int) (index & 0x3F);
+
+        long mask = ((1L << bitsPerElement) - 1);
+
+        putLong(whichLong, getLong(whichLong) & ~(mask << whichBit));
+
+        int bitsRemaining = 64 - whichBit;
+
+        if (bitsRemaining < bitsPerElement)
+            putLong(whichLong + 1, getLong(whichLong + 1) & ~(mask >>> bitsRemaining));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory.pool;
+
+import com.netflix.hollow.core.memory.MemoryMode;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * An OffHeapRecycler is an {@link ArraySegmentRecycler} for {@link MemoryMode#OFF_HEAP} state engines.  It pools the
+ * large direct memory slabs which hold the data off of the heap.  The array segments in which deltas are applied on the
+ * heap, before the data is moved into slabs, are obtained from a heap recycler; by default a {@link WastefulRecycler},
+ * which retains none of them, so that they are collected once the data has been moved off of the heap.
+ * <p>
+ * Slabs are recycled as arrays are:  a slab released while a delta is applied becomes available to be reused after the
+ * next call to {@link #swap()}.  Upon each swap, the pooled slabs in excess of the maximum are dropped.  The memory of a
+ * dropped slab is freed once the slab is no longer referenced, so that a reader which still holds the data of a prior
+ * state never reads freed memory.
+ */
+public class OffHeapRecycler implements ArraySegmentRecycler {
+
+    /**
+     * Allocates a slab for each request and pools none, for off-heap data which is loaded by a state engine whose
+     * recycler is not an OffHeapRecycler.
+     */
+    public static final OffHeapRecycler UNPOOLED = new OffHeapRecycler(WastefulRecycler.DEFAULT_INSTANCE, 20, 0);
+
+    /**
+     * The number of bytes after the end of each slab which may be read by an unaligned read at the end of the slab.
+     */
+    public static final int SLAB_PADDING = Long.BYTES;
+
+    private final ArraySegmentRecycler heapRecycler;
+    private final int log2OfSlabSize;
+    private final int maxPooledSlabs;
+    private Deque<ByteBuffer> currentSlabs;
+    private Deque<ByteBuffer> nextSlabs;
+
+    public OffHeapRecycler() {
+        this(20, 1024);
+    }
+
+    /**
+     * @param log2OfSlabSize the log2 of the number of bytes in each slab
+     * @param maxPooledSlabs the maximum number of released slabs which are retained for reuse upon each swap
+     */
+    public OffHeapRecycler(int log2OfSlabSize, int maxPooledSlabs) {
+        this(WastefulRecycler.DEFAULT_INSTANCE, log2OfSlabSize, maxPooledSlabs);
+    }
+
+    /**
+     * @param heapRecycler the recycler of the array segments in which deltas are applied on the heap, which are retained
+     *                     for as long as it pools them
+     * @param log2OfSlabSize the log2 of the number of bytes in each slab
+     * @param maxPooledSlabs the maximum number of released slabs which are retained for reuse upon each swap
+     */
+    public OffHeapRecycler(ArraySegmentRecycler heapRecycler, int log2OfSlabSize, int maxPooledSlabs) {
+        if(log2OfSlabSize < 3 || log2OfSlabSize > 30)
+            throw new IllegalArgumentException("log2OfSlabSize must be between 3 and 30");
+        this.heapRecycler = heapRecycler;
+        this.log2OfSlabSize = log2OfSlabSize;
+        this.maxPooledSlabs = maxPooledSlabs;
+        this.currentSlabs = new ArrayDeque<>();
+        this.nextSlabs = new ArrayDeque<>();
+    }
+
+    /**
+     * @param memoryRecycler the recycler of a state engine, which may be guarded by a {@link SynchronizedRecycler}
+     * @return the recycler, if it is an OffHeapRecycler, otherwise {@link #UNPOOLED}
+     */
+    public static OffHeapRecycler of(ArraySegmentRecycler memoryRecycler) {
+        /// the slabs of an OffHeapRecycler are pooled under its own lock
+        if(memoryRecycler instanceof SynchronizedRecycler)
+            memoryRecycler = ((SynchronizedRecycler) memoryRecycler).getDelegate();
+        return memoryRecycler instanceof OffHeapRecycler ? (OffHeapRecycler) memoryRecycler : UNPOOLED;
+    }
+
+    public int getLog2OfSlabSize() {
+        return log2OfSlabSize;
+    }
+
+    /**
+     * Returns a slab of {@code 1 << log2OfSlabSize} bytes, followed by {@link #SLAB_PADDING} bytes.  The contents of a
+     * reused slab are not cleared.
+     *
+     * @return a direct buffer holding the slab
+     */
+    public synchronized ByteBuffer getSlab() {
+        if(!currentSlabs.isEmpty())
+            return currentSlabs.removeFirst();
+        return ByteBuffer.allocateDirect((1 << log2OfSlabSize) + SLAB_PADDING);
+    }
+
+    /**
+     * Releases a slab obtained from {@link #getSlab()}, which may be reused after the next swap.
+     *
+     * @param slab the slab
+     */
+    public synchronized void recycleSlab(ByteBuffer slab) {
+        if(maxPooledSlabs > 0)
+            nextSlabs.addLast(slab);
+    }
+
+    /**
+     * @return the number of slabs which are retained for reuse
+     */
+    public synchronized int numPooledSlabs() {
+        return currentSlabs.size() + nextSlabs.size();
+    }
+
+    @Override
+    public int getLog2OfByteSegmentSize() {
+        return heapRecycler.getLog2OfByteSegmentSize();
+    }
+
+    @Override
+    public int getLog2OfLongSegmentSize() {
+        return heapRecycler.getLog2OfLongSegmentSize();
+    }
+
+    @Override
+    public long[] getLongArray() {
+        return heapRecycler.getLongArray();
+    }
+
+    @Override
+    public void recycleLongArray(long[] arr) {
+        heapRecycler.recycleLongArray(arr);
+    }
+
+    @Override
+    public byte[] getByteArray() {
+        return heapRecycler.getByteArray();
+    }
+
+    @Override
+    public void recycleByteArray(byte[] arr) {
+        heapRecycler.recycleByteArray(arr);
+    }
+
+    @Override
+    public void swap() {
+        heapRecycler.swap();
+
+        synchronized(this) {
+            currentSlabs.addAll(nextSlabs);
+            nextSlabs.clear();
+            while(currentSlabs.size() > maxPooledSlabs)
+                currentSlabs.removeLast();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory.pool;
+
+/**
+ * A SynchronizedRecycler is an {@link ArraySegmentRecycler} which guards another recycler, so that the pooled
+ * arrays may be requested and returned from several threads at once, for example while delta transitions are
+ * applied to several type states concurrently.
+ */
+public class SynchronizedRecycler implements ArraySegmentRecycler {
+
+    private final ArraySegmentRecycler delegate;
+
+    public SynchronizedRecycler(ArraySegmentRecycler delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return the guarded recycler
+     */
+    public ArraySegmentRecycler getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public int getLog2OfByteSegmentSize() {
+        return delegate.getLog2OfByteSegmentSize();
+    }
+
+    @Override
+    public int getLog2OfLongSegmentSize() {
+        return delegate.getLog2OfLongSegmentSize();
+    }
+
+    @Override
+    public synchronized long[] getLongArray() {
+        return delegate.getLongArray();
+    }
+
+    @Override
+    public synchronized void recycleLongArray(long[] arr) {
+        delegate.recycleLongArray(arr);
+    }
+
+    @Override
+    public synchronized byte[] getByteArray() {
+        return delegate.getByteArray();
+    }
+
+    @Override
+    public synchronized void recycleByteArray(byte[] arr) {
+        delegate.recycleByteArray(arr);
+    }
+
+    @Override
+    public synchronized void swap() {
+        delegate.swap();
+    }
+
+}
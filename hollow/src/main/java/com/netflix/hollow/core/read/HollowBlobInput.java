@@ -1,10 +1,12 @@
 package com.netflix.hollow.core.read;
 
 import static com.netflix.hollow.core.memory.MemoryMode.ON_HEAP;
+import static com.netflix.hollow.core.memory.MemoryMode.SHARED_MEMORY_EAGER;
 import static com.netflix.hollow.core.memory.MemoryMode.SHARED_MEMORY_LAZY;
 import static com.netflix.hollow.core.memory.encoding.BlobByteBuffer.MAX_SINGLE_BUFFER_CAPACITY;
 
 import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.core.compress.HollowBlockCompression;
 import com.netflix.hollow.core.memory.MemoryMode;
 import com.netflix.hollow.core.memory.encoding.BlobByteBuffer;
 import java.io.ByteArrayInputStream;
@@ -25,6 +27,9 @@ public class HollowBlobInput implements Closeable {
 
     private Object input;
     private BlobByteBuffer buffer;
+    private File file;
+    private File decompressedFile;
+    private long loadDurationNanos;
 
     private HollowBlobInput(MemoryMode memoryMode) {
         this.memoryMode = memoryMode;
@@ -34,9 +39,19 @@ public class HollowBlobInput implements Closeable {
         return memoryMode;
     }
 
+    /**
+     * @return the time spent loading the mapped blob into main memory when this input was initialized, which is
+     *         zero unless the memory mode is {@link MemoryMode#SHARED_MEMORY_EAGER}
+     */
+    public long getLoadDurationNanos() {
+        return loadDurationNanos;
+    }
+
     /**
      * Initialize the Hollow Blob Input object from the Hollow Consumer blob's Input Stream or Random Access File,
-     * depending on the configured memory mode. The returned HollowBlobInput object must be closed to free up resources.
+     * depending on the configured memory mode. A block-compressed blob is decompressed, see
+     * {@link #serialBlob(InputStream)} and {@link #randomAccessBlob(File, MemoryMode)}. The returned HollowBlobInput
+     * object must be closed to free up resources.
      *
      * @param mode Configured memory mode
      * @param blob Hollow Consumer blob
@@ -44,10 +59,10 @@ public class HollowBlobInput implements Closeable {
      * @throws IOException if the Hollow Blob Input couldn't be initialized
      */
     public static HollowBlobInput modeBasedSelector(MemoryMode mode, HollowConsumer.Blob blob) throws IOException {
-        if (mode.equals(ON_HEAP)) {
-            return serial(blob.getInputStream());
-        } else if (mode.equals(SHARED_MEMORY_LAZY)) {
-            return randomAccess(blob.getFile());
+        if (mode.isSerial()) {
+            return serialBlob(blob.getInputStream());
+        } else if (mode.isSharedMemory()) {
+            return randomAccessBlob(blob.getFile(), mode);
         } else {
             throw new UnsupportedOperationException();
         }
@@ -64,10 +79,10 @@ public class HollowBlobInput implements Closeable {
      * @throws IOException if the Hollow Blob Input couldn't be initialized
      */
     public static HollowBlobInput modeBasedSelector(MemoryMode mode, OptionalBlobPartInput input, String partName) throws IOException {
-        if (mode.equals(ON_HEAP)) {
-            return serial(input.getInputStream(partName));
-        } else if (mode.equals(SHARED_MEMORY_LAZY)) {
-            return randomAccess(input.getFile(partName));
+        if (mode.isSerial()) {
+            return serialBlob(input.getInputStream(partName));
+        } else if (mode.isSharedMemory()) {
+            return randomAccessBlob(input.getFile(partName), mode);
         } else {
             throw new UnsupportedOperationException();
         }
@@ -85,18 +100,98 @@ public class HollowBlobInput implements Closeable {
         return randomAccess(f, MAX_SINGLE_BUFFER_CAPACITY);
     }
 
+    /**
+     * Initialize a random access Hollow Blob input object from a file, in the given shared memory mode.  In
+     * {@link MemoryMode#SHARED_MEMORY_EAGER} mode the entire file is loaded into main memory, in parallel, before this
+     * method returns.  The returned HollowBlobInput object must be closed to free up resources.
+     *
+     * @param f file containing the Hollow blob
+     * @param mode the shared memory mode
+     * @return a random access HollowBlobInput object
+     * @throws IOException if the mmap operation reported an IOException
+     */
+    public static HollowBlobInput randomAccess(File f, MemoryMode mode) throws IOException {
+        if (!mode.isSharedMemory()) {
+            throw new IllegalArgumentException("Memory mode " + mode + " does not support random access");
+        }
+        HollowBlobInput hbi = randomAccess(f, mode, MAX_SINGLE_BUFFER_CAPACITY);
+        if (mode.equals(SHARED_MEMORY_EAGER)) {
+            long startTime = System.nanoTime();
+            hbi.buffer.load(Runtime.getRuntime().availableProcessors());
+            hbi.loadDurationNanos = System.nanoTime() - startTime;
+        }
+        return hbi;
+    }
+
+    /**
+     * Initialize a random access Hollow Blob input object from a file containing a Hollow blob, in the given shared
+     * memory mode, as with {@link #randomAccess(File, MemoryMode)}.
+     * <p>
+     * If the blob is block-compressed, it is first decompressed into a temporary file next to it, with a thread per
+     * processor decompressing the blocks located by the index of the blob, and the temporary file is mapped instead.
+     * The temporary file is deleted when the returned HollowBlobInput object is closed.
+     *
+     * @param f file containing the Hollow blob, which may be block-compressed
+     * @param mode the shared memory mode
+     * @return a random access HollowBlobInput object
+     * @throws IOException if the blob could not be decompressed or the mmap operation reported an IOException
+     * @see HollowBlockCompression
+     */
+    public static HollowBlobInput randomAccessBlob(File f, MemoryMode mode) throws IOException {
+        if (!HollowBlockCompression.isBlockCompressed(f)) {
+            return randomAccess(f, mode);
+        }
+
+        File decompressed = File.createTempFile(f.getName() + "-", ".decompressed", f.getAbsoluteFile().getParentFile());
+        try {
+            HollowBlockCompression.decompress(f, decompressed, Runtime.getRuntime().availableProcessors());
+            HollowBlobInput hbi = randomAccess(decompressed, mode);
+            hbi.decompressedFile = decompressed;
+            return hbi;
+        } catch (IOException | RuntimeException e) {
+            deleteDecompressedFile(decompressed);
+            throw e;
+        }
+    }
+
     /**
      * Useful for testing with custom buffer capacity
      */
     public static HollowBlobInput randomAccess(File f,int singleBufferCapacity) throws IOException {
-        HollowBlobInput hbi = new HollowBlobInput(SHARED_MEMORY_LAZY);
+        return randomAccess(f, SHARED_MEMORY_LAZY, singleBufferCapacity);
+    }
+
+    private static HollowBlobInput randomAccess(File f, MemoryMode mode, int singleBufferCapacity) throws IOException {
+        HollowBlobInput hbi = new HollowBlobInput(mode);
         RandomAccessFile raf = new RandomAccessFile(f, "r");
         hbi.input = raf;
+        hbi.file = f;
         FileChannel channel = ((RandomAccessFile) hbi.input).getChannel();
         hbi.buffer = BlobByteBuffer.mmapBlob(channel, singleBufferCapacity);
         return hbi;
     }
 
+    /**
+     * Initialize a new random access Hollow Blob input object over the same file as this one. The new object shares the
+     * mmap-ed buffers of this input, so no data is copied, but it has its own file pointer starting at the beginning of
+     * the file. This allows disjoint regions of the same blob to be read concurrently. The returned HollowBlobInput
+     * object must be closed to free up resources.
+     *
+     * @return a random access HollowBlobInput object over the same file
+     * @throws IOException if the file could not be opened
+     * @throws UnsupportedOperationException if this Hollow Blob Input is not random access
+     */
+    public HollowBlobInput duplicate() throws IOException {
+        if (!(input instanceof RandomAccessFile)) {
+            throw new UnsupportedOperationException("Can not duplicate Hollow Blob Input of type " + input.getClass().getSimpleName());
+        }
+        HollowBlobInput hbi = new HollowBlobInput(memoryMode);
+        hbi.input = new RandomAccessFile(file, "r");
+        hbi.file = file;
+        hbi.buffer = buffer.duplicate();
+        return hbi;
+    }
+
     /**
      * Shorthand for calling {@link HollowBlobInput#serial(InputStream)} on a byte[]
      */
@@ -118,6 +213,23 @@ public class HollowBlobInput implements Closeable {
         return hbi;
     }
 
+    /**
+     * Initialize a serial access Hollow Blob input object from an input stream containing a Hollow blob, as with
+     * {@link #serial(InputStream)}.
+     * <p>
+     * If the blob is block-compressed, it is decompressed as it is read, with a thread per processor decompressing the
+     * blocks ahead of the bytes being read.  The leading bytes of the stream are read to tell, so this should only be
+     * used for streams which hold a whole blob.  The returned HollowBlobInput object must be closed to free up resources.
+     *
+     * @param is input stream containing a Hollow blob, which may be block-compressed
+     * @return a serial access HollowBlobInput object
+     * @throws IOException if the leading bytes of the stream could not be read
+     * @see HollowBlockCompression
+     */
+    public static HollowBlobInput serialBlob(InputStream is) throws IOException {
+        return serial(HollowBlockCompression.decompressing(is, Runtime.getRuntime().availableProcessors()));
+    }
+
     /**
      * Reads the next byte of data from the input stream by relaying the call to the underlying {@code DataInputStream} or
      * {@code RandomAccessFile}. The byte is returned as an integer in the range 0 to 255.
@@ -294,7 +406,13 @@ public class HollowBlobInput implements Closeable {
     @Override
     public void close() throws IOException {
         if (input instanceof RandomAccessFile) {
-            ((RandomAccessFile) input).close();
+            try {
+                ((RandomAccessFile) input).close();
+            } finally {
+                if (decompressedFile != null) {
+                    deleteDecompressedFile(decompressedFile);
+                }
+            }
         } else if (input instanceof DataInputStream) {
             ((DataInputStream) input).close();
         } else {
@@ -302,6 +420,13 @@ public class HollowBlobInput implements Closeable {
         }
     }
 
+    private static void deleteDecompressedFile(File f) {
+        // some platforms do not permit a mapped file to be deleted
+        if (!f.delete()) {
+            f.deleteOnExit();
+        }
+    }
+
     public Object getInput() {
         return input;
     }
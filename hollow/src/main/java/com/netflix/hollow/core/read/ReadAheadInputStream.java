@@ -0,0 +1,186 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read;
+
+import static com.netflix.hollow.core.util.Threads.daemonThread;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An InputStream which reads ahead of its consumer on a dedicated thread.
+ * <p>
+ * Bytes are pulled from the underlying stream in fixed size chunks and handed over through a bounded queue, so that
+ * I/O (network transfer, decompression, disk reads) of the underlying stream is pipelined against the decoding done by
+ * the thread reading from this stream.  At most {@code maxChunksAhead} chunks are buffered at any time.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    public static final int DEFAULT_MAX_CHUNKS_AHEAD = 16;
+
+    private static final Chunk END_OF_STREAM = new Chunk(new byte[0], 0);
+
+    private final InputStream underlying;
+    private final BlockingQueue<Chunk> chunks;
+    private final Thread readerThread;
+
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    private Chunk currentChunk;
+    private int currentChunkPosition;
+
+    public ReadAheadInputStream(InputStream underlying) {
+        this(underlying, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS_AHEAD);
+    }
+
+    public ReadAheadInputStream(InputStream underlying, int chunkSize, int maxChunksAhead) {
+        if(chunkSize <= 0 || maxChunksAhead <= 0)
+            throw new IllegalArgumentException("chunkSize and maxChunksAhead must be positive");
+
+        this.underlying = underlying;
+        this.chunks = new ArrayBlockingQueue<>(maxChunksAhead);
+        this.readerThread = daemonThread(() -> readAhead(chunkSize), ReadAheadInputStream.class, "read-ahead");
+        this.readerThread.start();
+    }
+
+    private void readAhead(int chunkSize) {
+        try {
+            while(!closed) {
+                byte[] data = new byte[chunkSize];
+                int length = 0;
+                while(length < chunkSize) {
+                    int bytesRead = underlying.read(data, length, chunkSize - length);
+                    if(bytesRead == -1)
+                        break;
+                    length += bytesRead;
+                }
+
+                if(length > 0)
+                    chunks.put(new Chunk(data, length));
+
+                if(length < chunkSize)
+                    break;
+            }
+        } catch(InterruptedException e) {
+            return;
+        } catch(Throwable t) {
+            failure = t;
+        } finally {
+            /// the reader must always see the end of the stream, whether the underlying stream ended or failed
+            if(!closed)
+                putEndOfStream();
+        }
+    }
+
+    private void putEndOfStream() {
+        try {
+            chunks.put(END_OF_STREAM);
+        } catch(InterruptedException ignore) { }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if(!ensureAvailable())
+            return -1;
+        return currentChunk.data[currentChunkPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0)
+            return 0;
+        if(!ensureAvailable())
+            return -1;
+
+        int bytesToCopy = Math.min(len, currentChunk.length - currentChunkPosition);
+        System.arraycopy(currentChunk.data, currentChunkPosition, b, off, bytesToCopy);
+        currentChunkPosition += bytesToCopy;
+        return bytesToCopy;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while(skipped < n && ensureAvailable()) {
+            int bytesToSkip = (int)Math.min(n - skipped, currentChunk.length - currentChunkPosition);
+            currentChunkPosition += bytesToSkip;
+            skipped += bytesToSkip;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return currentChunk == null ? 0 : currentChunk.length - currentChunkPosition;
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        if(closed)
+            throw new IOException("Stream closed");
+
+        while(currentChunk == null || currentChunkPosition == currentChunk.length) {
+            if(currentChunk == END_OF_STREAM) {
+                if(failure != null)
+                    throw readAheadFailure();
+                return false;
+            }
+
+            try {
+                currentChunk = chunks.take();
+                currentChunkPosition = 0;
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for read-ahead data");
+            }
+        }
+
+        return true;
+    }
+
+    private IOException readAheadFailure() {
+        if(failure instanceof IOException)
+            return (IOException)failure;
+        if(failure instanceof RuntimeException)
+            throw (RuntimeException)failure;
+        if(failure instanceof Error)
+            throw (Error)failure;
+        return new IOException("Failed to read ahead", failure);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        readerThread.interrupt();
+        chunks.clear();
+        underlying.close();
+    }
+
+    private static class Chunk {
+        private final byte[] data;
+        private final int length;
+
+        private Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
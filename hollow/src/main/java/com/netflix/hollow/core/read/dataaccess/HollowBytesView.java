@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.dataaccess;
+
+import com.netflix.hollow.core.memory.ByteData;
+import com.netflix.hollow.core.memory.OffHeapByteArray;
+import com.netflix.hollow.core.memory.SegmentedByteArray;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable, mutable view over the value of a {@link FieldType#BYTES} field, which is populated by
+ * {@link HollowObjectTypeDataAccess#readBytesView(int, int, HollowBytesView)}.
+ * <p>
+ * When populated from a {@link com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState}, bytes are copied
+ * from the type's variable length data into a buffer owned by the view, which is grown as required and reused by each
+ * subsequent read, so that a field value may be inspected, or copied into a caller-provided {@link ByteBuffer} or
+ * array, without allocating a {@code byte[]}.  The view holds its own copy of the value, which is unaffected by later
+ * updates of the data.
+ * <p>
+ * A view is not thread safe, and is intended to be reused by a single thread for many reads.
+ */
+public final class HollowBytesView {
+
+    private byte[] buffer = new byte[0];
+
+    private byte[] bytes;
+    private int length;
+
+    /**
+     * Copies a range of bytes into this view's buffer.
+     *
+     * @param data the data containing the value
+     * @param startByte the position of the first byte of the value
+     * @param length the length in bytes of the value
+     */
+    public void reset(ByteData data, long startByte, int length) {
+        if(buffer.length < length)
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+
+        if(data instanceof SegmentedByteArray) {
+            ((SegmentedByteArray) data).copy(startByte, buffer, 0, length);
+        } else if(data instanceof OffHeapByteArray) {
+            ((OffHeapByteArray) data).copy(startByte, buffer, 0, length);
+        } else {
+            for(int i=0;i<length;i++)
+                buffer[i] = data.get(startByte + i);
+        }
+
+        this.bytes = buffer;
+        this.length = length;
+    }
+
+    /**
+     * Points this view at an already decoded value.
+     *
+     * @param value the value, or null to clear this view
+     */
+    public void reset(byte[] value) {
+        this.bytes = value;
+        this.length = value == null ? 0 : value.length;
+    }
+
+    /**
+     * Clears this view.
+     */
+    public void clear() {
+        reset((byte[]) null);
+    }
+
+    /**
+     * @return the number of bytes in this view
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param index the index of the byte, from 0 to {@code length() - 1}
+     * @return the byte at the given index
+     */
+    public byte byteAt(int index) {
+        if(index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+
+        return bytes[index];
+    }
+
+    /**
+     * Copies the bytes of this view into an array.
+     *
+     * @param dest the destination array
+     * @param destPos the position in the destination array of the first byte
+     */
+    public void copyTo(byte[] dest, int destPos) {
+        if(destPos < 0 || destPos + length > dest.length)
+            throw new IndexOutOfBoundsException("destPos " + destPos + ", length " + length + ", dest length " + dest.length);
+
+        if(length > 0)
+            System.arraycopy(bytes, 0, dest, destPos, length);
+    }
+
+    /**
+     * Copies the bytes of this view into a buffer, at the buffer's current position, advancing the position.
+     *
+     * @param dest the destination buffer
+     * @throws BufferOverflowException if the buffer does not have {@link #length()} bytes remaining
+     */
+    public void copyTo(ByteBuffer dest) {
+        if(dest.remaining() < length)
+            throw new BufferOverflowException();
+
+        if(length > 0)
+            dest.put(bytes, 0, length);
+    }
+
+    /**
+     * @return the bytes of this view as a newly allocated array
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[length];
+        copyTo(bytes, 0);
+        return bytes;
+    }
+}
@@ -93,6 +93,36 @@ public interface HollowObjectTypeDataAccess extends HollowTypeDataAccess {
      */
     String readString(int ordinal, int fieldIndex);
 
+    /**
+     * Points a reusable view at the {@link FieldType#STRING} field's value at the specified fieldIndex for the specified
+     * ordinal, without allocating a String where the implementation allows.
+     *
+     * @param ordinal the ordinal
+     * @param fieldIndex the field index
+     * @param view the view to populate; it is cleared if the value is null
+     * @return whether or not the value is non-null
+     */
+    default boolean readStringView(int ordinal, int fieldIndex, HollowStringView view) {
+        String value = readString(ordinal, fieldIndex);
+        view.reset(value);
+        return value != null;
+    }
+
+    /**
+     * Points a reusable view at the {@link FieldType#BYTES} field's value at the specified fieldIndex for the specified
+     * ordinal, without allocating a byte array where the implementation allows.
+     *
+     * @param ordinal the ordinal
+     * @param fieldIndex the field index
+     * @param view the view to populate; it is cleared if the value is null
+     * @return whether or not the value is non-null
+     */
+    default boolean readBytesView(int ordinal, int fieldIndex, HollowBytesView view) {
+        byte[] value = readBytes(ordinal, fieldIndex);
+        view.reset(value);
+        return value != null;
+    }
+
     /**
      * @param ordinal the ordinal
      * @param fieldIndex the field index
@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.dataaccess;
+
+import com.netflix.hollow.core.memory.ByteData;
+import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+
+/**
+ * A reusable, mutable {@link CharSequence} over the value of a {@link FieldType#STRING} field, which is populated by
+ * {@link HollowObjectTypeDataAccess#readStringView(int, int, HollowStringView)}.
+ * <p>
+ * When populated from a {@link com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState}, the characters
+ * are decoded from the type's variable length data into a buffer owned by the view, which is grown as required and
+ * reused by each subsequent read, so that a field value may be inspected without allocating a {@link String}.  The
+ * view holds its own copy of the value, which is unaffected by later updates of the data.
+ * <p>
+ * A view is not thread safe, and is intended to be reused by a single thread for many reads.
+ */
+public final class HollowStringView implements CharSequence {
+
+    private char[] buffer = new char[0];
+
+    private CharSequence value;
+    private int length;
+
+    /**
+     * Decodes a value encoded as one VarInt per character into this view's buffer.
+     *
+     * @param data the data containing the encoded value
+     * @param startByte the position of the first byte of the encoded value
+     * @param numBytes the length in bytes of the encoded value
+     */
+    public void reset(ByteData data, long startByte, int numBytes) {
+        // the number of chars may be fewer than the number of bytes in the serialized data
+        if(buffer.length < numBytes)
+            buffer = new char[Math.max(numBytes, buffer.length * 2)];
+
+        long position = startByte;
+        long endPosition = startByte + numBytes;
+        int count = 0;
+        while(position < endPosition) {
+            int c = VarInt.readVInt(data, position);
+            buffer[count++] = (char)c;
+            position += VarInt.sizeOfVInt(c);
+        }
+
+        this.value = null;
+        this.length = count;
+    }
+
+    /**
+     * Points this view at an already decoded value.
+     *
+     * @param value the value, or null to clear this view
+     */
+    public void reset(CharSequence value) {
+        this.value = value;
+        this.length = value == null ? 0 : value.length();
+    }
+
+    /**
+     * Clears this view.
+     */
+    public void clear() {
+        reset((CharSequence) null);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if(index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+
+        if(value != null)
+            return value.charAt(index);
+        return buffer[index];
+    }
+
+    /**
+     * @param other the character sequence to compare
+     * @return whether the characters of this view are exactly equal to those of the given sequence
+     */
+    public boolean contentEquals(CharSequence other) {
+        if(other == null || other.length() != length)
+            return false;
+        for(int i=0;i<length;i++) {
+            if(charAt(i) != other.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if(start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+
+        if(value != null)
+            return value.subSequence(start, end).toString();
+        return new String(buffer, start, end - start);
+    }
+
+    /**
+     * @return the characters of this view as a newly allocated String
+     */
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
@@ -16,7 +16,9 @@
  */
 package com.netflix.hollow.core.read.dataaccess.proxy;
 
+import com.netflix.hollow.core.read.dataaccess.HollowBytesView;
 import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.dataaccess.HollowStringView;
 import com.netflix.hollow.core.read.dataaccess.HollowTypeDataAccess;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 
@@ -85,6 +87,16 @@ public class HollowObjectProxyDataAccess extends HollowTypeProxyDataAccess imple
         return ((HollowObjectTypeDataAccess) currentDataAccess).readString(ordinal, fieldIndex);
     }
 
+    @Override
+    public boolean readStringView(int ordinal, int fieldIndex, HollowStringView view) {
+        return ((HollowObjectTypeDataAccess) currentDataAccess).readStringView(ordinal, fieldIndex, view);
+    }
+
+    @Override
+    public boolean readBytesView(int ordinal, int fieldIndex, HollowBytesView view) {
+        return ((HollowObjectTypeDataAccess) currentDataAccess).readBytesView(ordinal, fieldIndex, view);
+    }
+
     @Override
     public boolean isStringFieldEqual(int ordinal, int fieldIndex, String testValue) {
         return ((HollowObjectTypeDataAccess) currentDataAccess).isStringFieldEqual(ordinal, fieldIndex, testValue);
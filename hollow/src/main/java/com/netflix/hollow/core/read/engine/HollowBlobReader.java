@@ -20,6 +20,8 @@ import com.netflix.hollow.core.HollowBlobHeader;
 import com.netflix.hollow.core.HollowBlobOptionalPartHeader;
 import com.netflix.hollow.core.memory.MemoryMode;
 import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.SynchronizedRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
 import com.netflix.hollow.core.read.OptionalBlobPartInput;
 import com.netflix.hollow.core.read.engine.list.HollowListTypeReadState;
@@ -33,29 +35,52 @@ import com.netflix.hollow.core.schema.HollowMapSchema;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.schema.HollowSetSchema;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 /**
  * A HollowBlobReader is used to populate and update data in a {@link HollowReadStateEngine}, via the consumption
  * of snapshot and delta blobs. Caller can choose between on-heap or shared-memory mode; defaults to (and for
  * backwards compatibility) on-heap mode.
+ * <p>
+ * Snapshots read from a random access (shared-memory) input may optionally be loaded with several threads, see
+ * {@link #setSnapshotLoadThreads(int)}, and on-heap deltas may optionally be applied with several threads, see
+ * {@link #setDeltaApplyThreads(int)}.
+ * <p>
+ * In shared-memory mode each shard of a delta is applied on the heap and the result is then written to a temporary
+ * file which is mapped in place of the shard's data, so the transient heap requirement of a delta is bounded by the
+ * size of the largest shard.
+ * <p>
+ * Snapshots may be filtered in shared-memory mode as well.  The data of excluded types and fields is skipped over,
+ * and records retain their unfiltered layout, so that excluded data is neither copied nor loaded into main memory.
+ * <p>
+ * Blobs read from an input stream may be block-compressed, see {@link HollowBlobInput#serialBlob(InputStream)}.
  */
 public class HollowBlobReader {
 
+    private static final long RESHARD_READ_VIEW_WAIT_MILLIS = 1000;
+
     private final Logger log = Logger.getLogger(HollowBlobReader.class.getName());
     private final HollowReadStateEngine stateEngine;
     private final MemoryMode memoryMode;
     private final HollowBlobHeaderReader headerReader;
 
+    private int snapshotLoadThreads = 1;
+    private int deltaApplyThreads = 1;
+
     public HollowBlobReader(HollowReadStateEngine stateEngine) {
         this(stateEngine, new HollowBlobHeaderReader());
     }
@@ -74,6 +99,50 @@ public class HollowBlobReader {
         this.memoryMode = memoryMode;
     }
 
+    /**
+     * Set the number of threads used to read type states from a snapshot.  Defaults to 1, in which case every type
+     * state is read in turn on the calling thread.
+     * <p>
+     * When more than one thread is configured and the snapshot is read from a random access {@link HollowBlobInput},
+     * the offset of each type state is first located by skipping over the length-prefixed sections of the blob, and
+     * then the type states are read concurrently, each through its own {@link HollowBlobInput#duplicate() duplicate}
+     * of the input sharing the same mmap-ed buffers.  Serial inputs are always read on the calling thread.
+     *
+     * @param snapshotLoadThreads the maximum number of threads used to read type states from a snapshot
+     */
+    public void setSnapshotLoadThreads(int snapshotLoadThreads) {
+        if(snapshotLoadThreads < 1)
+            throw new IllegalArgumentException("snapshotLoadThreads must be at least 1");
+        this.snapshotLoadThreads = snapshotLoadThreads;
+    }
+
+    public int getSnapshotLoadThreads() {
+        return snapshotLoadThreads;
+    }
+
+    /**
+     * Set the number of threads used to apply on-heap deltas.  Defaults to 1, in which case each shard of each type
+     * state is updated and published in turn on the calling thread.
+     * <p>
+     * When more than one thread is configured, the delta is still read serially on the calling thread, but the
+     * application of each type state shard is handed off to a pool of threads as soon as it has been read.  The
+     * new data for every type state is published, and the {@link HollowTypeStateListener}s are notified, only once all
+     * of the type states have been updated, immediately before the {@link HollowTypeStateListener#endUpdate()} notifications.
+     * Both the prior and the next data for all of the updated types are held in memory until then, so the peak
+     * memory required to apply a delta is higher than when the delta is applied serially.
+     *
+     * @param deltaApplyThreads the maximum number of threads used to apply a delta
+     */
+    public void setDeltaApplyThreads(int deltaApplyThreads) {
+        if(deltaApplyThreads < 1)
+            throw new IllegalArgumentException("deltaApplyThreads must be at least 1");
+        this.deltaApplyThreads = deltaApplyThreads;
+    }
+
+    public int getDeltaApplyThreads() {
+        return deltaApplyThreads;
+    }
+
     /**
      * Initialize the state engine using a snapshot blob from the provided input stream.
      *
@@ -81,7 +150,7 @@ public class HollowBlobReader {
      * @throws IOException if the snapshot could not be read
      */
     public void readSnapshot(InputStream is) throws IOException {
-        HollowBlobInput hbi = HollowBlobInput.serial(is);
+        HollowBlobInput hbi = HollowBlobInput.serialBlob(is);
         readSnapshot(hbi);
     }
 
@@ -108,7 +177,7 @@ public class HollowBlobReader {
      */
     @Deprecated
     public void readSnapshot(InputStream is, HollowFilterConfig filter) throws IOException {
-        HollowBlobInput hbi = HollowBlobInput.serial(is);
+        HollowBlobInput hbi = HollowBlobInput.serialBlob(is);
         readSnapshot(hbi, (TypeFilter) filter);
     }
 
@@ -122,7 +191,7 @@ public class HollowBlobReader {
      * @throws IOException if the snapshot could not be read
      */
     public void readSnapshot(InputStream is, TypeFilter filter) throws IOException {
-        HollowBlobInput hbi = HollowBlobInput.serial(is);
+        HollowBlobInput hbi = HollowBlobInput.serialBlob(is);
         readSnapshot(hbi, filter);
     }
 
@@ -159,22 +228,12 @@ public class HollowBlobReader {
 
         long startTime = System.currentTimeMillis();
 
-        int numStates = VarInt.readVInt(in);
-
         Collection<String> typeNames = new TreeSet<>();
-        for(int i=0;i<numStates;i++) {
-            String typeName = readTypeStateSnapshot(in, filter);
-            typeNames.add(typeName);
-        }
+        readTypeStateSnapshots(in, filter, typeNames);
 
         if(optionalPartInputs != null) {
             for(Map.Entry<String, HollowBlobInput> optionalPartEntry : optionalPartInputs.entrySet()) {
-                numStates = VarInt.readVInt(optionalPartEntry.getValue());
-
-                for(int i=0;i<numStates;i++) {
-                    String typeName = readTypeStateSnapshot(optionalPartEntry.getValue(), filter);
-                    typeNames.add(typeName);
-                }
+                readTypeStateSnapshots(optionalPartEntry.getValue(), filter, typeNames);
             }
         }
 
@@ -185,11 +244,126 @@ public class HollowBlobReader {
         log.info("SNAPSHOT COMPLETED IN " + (endTime - startTime) + "ms");
         log.info("TYPES: " + typeNames);
 
+        reshardToTargetSize(typeNames);
+        updateKeyFingerprints(typeNames);
+
         notifyEndUpdate();
 
         stateEngine.afterInitialization();
     }
 
+    /**
+     * Replace the data of an initialized on-heap state engine with a snapshot blob from the provided HollowBlobInput,
+     * one type at a time.
+     * <p>
+     * Each type state reads the snapshot of its type on the side and then swaps it in place of its current data, which
+     * is recycled as soon as no read view can read it, before the snapshot of the next type is read.  So rather than
+     * the size of the whole dataset, the memory transiently required in addition to the current data is about the size
+     * of the largest type (twice that, if the type was written with a different number of shards), which is recorded
+     * in {@link HollowReadStateEngine#getLastSnapshotPeakTransientBytes()}.  The type states, and any API bound to the
+     * state engine, are retained, and their {@link HollowTypeStateListener}s are notified of the ordinals removed and
+     * added.  Since any ordinal may now hold a different record, including one which was populated both before and
+     * after, a listener which derives state from the records should rebuild it rather than patch it, see
+     * {@link PopulatedOrdinalListener#updatedBySnapshotInPlace()}.
+     * <p>
+     * While the types are swapped, the records of a type which has been swapped may reference ordinals of a type which
+     * has yet to be swapped, so read views must be enabled, see {@link HollowReadStateEngine#enableReadViews()}, and
+     * records must be read through a pinned {@link HollowReadView} or while updates are otherwise excluded.
+     * <p>
+     * The snapshot can only be read in place if its schemas are those of the state engine, so a state engine which was
+     * initialized with a filter which excludes any type or field of the snapshot is never updated in place.  Otherwise
+     * the state engine is left unchanged and false is returned, after which the input is positioned after the header.
+     *
+     * @param in the Hollow blob input to read the snapshot from
+     * @param optionalParts the optional parts of the snapshot blob, or null
+     * @return true if the snapshot was read in place, or false if the schemas of the snapshot differ from those of the
+     *         state engine
+     * @throws IOException if the snapshot could not be read
+     * @throws IllegalStateException if the state engine is not on the heap, or its read views are not enabled
+     */
+    public boolean readSnapshotInPlace(HollowBlobInput in, OptionalBlobPartInput optionalParts) throws IOException {
+        if(memoryMode != MemoryMode.ON_HEAP)
+            throw new IllegalStateException("Snapshots may only be read in place on the heap");
+        if(!stateEngine.getReadViews().isEnabled())
+            throw new IllegalStateException("Snapshots may only be read in place when read views are enabled");
+        validateMemoryMode(in.getMemoryMode());
+        Map<String, HollowBlobInput> optionalPartInputs = null;
+        if(optionalParts != null)
+            optionalPartInputs = optionalParts.getInputsByPartName(in.getMemoryMode());
+
+        HollowBlobHeader header = headerReader.readHeader(in);
+        List<HollowBlobOptionalPartHeader> partHeaders = readPartHeaders(header, optionalPartInputs, in.getMemoryMode());
+        if(!matchesTypeStates(combineSchemas(header, partHeaders)))
+            return false;
+
+        stateEngine.setCurrentRandomizedTag(header.getDestinationRandomizedTag());
+        stateEngine.setHeaderTags(header.getHeaderTags());
+
+        notifyBeginUpdate();
+
+        long startTime = System.currentTimeMillis();
+
+        Collection<String> typeNames = new TreeSet<>();
+        long peakTransientBytes = readTypeStateSnapshotsInPlace(in, typeNames);
+
+        if(optionalPartInputs != null) {
+            for(Map.Entry<String, HollowBlobInput> optionalPartEntry : optionalPartInputs.entrySet()) {
+                peakTransientBytes = Math.max(peakTransientBytes, readTypeStateSnapshotsInPlace(optionalPartEntry.getValue(), typeNames));
+            }
+        }
+
+        stateEngine.setLastSnapshotPeakTransientBytes(peakTransientBytes);
+        stateEngine.getReadViews().publish();
+
+        long endTime = System.currentTimeMillis();
+
+        log.info("SNAPSHOT COMPLETED IN PLACE IN " + (endTime - startTime) + "ms");
+        log.info("TYPES: " + typeNames);
+
+        reshardToTargetSize(typeNames);
+        updateKeyFingerprints(typeNames);
+
+        notifyEndUpdate();
+        return true;
+    }
+
+    /**
+     * @return whether the schemas are those of the type states of the state engine, each of which tracks its populated ordinals
+     */
+    private boolean matchesTypeStates(List<HollowSchema> schemas) {
+        if(schemas.size() != stateEngine.getTypeStates().size())
+            return false;
+
+        for(HollowSchema schema : schemas) {
+            HollowTypeReadState typeState = stateEngine.getTypeState(schema.getName());
+            if(typeState == null || !typeState.getSchema().equals(schema)
+                    || typeState.getListener(PopulatedOrdinalListener.class) == null)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the peak number of bytes transiently held for the snapshot of any one type
+     */
+    private long readTypeStateSnapshotsInPlace(HollowBlobInput in, Collection<String> typeNames) throws IOException {
+        int numStates = VarInt.readVInt(in);
+        long peakTransientBytes = 0;
+
+        for(int i=0;i<numStates;i++) {
+            HollowSchema schema = HollowSchema.readFrom(in);
+            int numShards = readNumShards(in);
+
+            HollowTypeReadState typeState = stateEngine.getTypeState(schema.getName());
+            peakTransientBytes = Math.max(peakTransientBytes, typeState.readSnapshotInPlace(in, stateEngine.getMemoryRecycler(), numShards));
+            stateEngine.getMemoryRecycler().swap();
+            typeNames.add(schema.getName());
+        }
+
+        return peakTransientBytes;
+    }
+
     /**
      * Update the state engine using a delta (or reverse delta) blob from the provided input stream.
      * <p>
@@ -200,7 +374,7 @@ public class HollowBlobReader {
      * @throws IOException if the delta could not be applied
      */
     public void applyDelta(InputStream in) throws IOException {
-        HollowBlobInput hbi = HollowBlobInput.serial(in);
+        HollowBlobInput hbi = HollowBlobInput.serialBlob(in);
         applyDelta(hbi);
     }
 
@@ -229,35 +403,76 @@ public class HollowBlobReader {
 
         long startTime = System.currentTimeMillis();
 
-        int numStates = VarInt.readVInt(in);
-
         Collection<String> typeNames = new TreeSet<String>();
-        for(int i=0;i<numStates;i++) {
-            String typeName = readTypeStateDelta(in);
-            typeNames.add(typeName);
-            stateEngine.getMemoryRecycler().swap();
-        }
+        Map<String, Long> applyNanosByType = new ConcurrentHashMap<>();
 
-        if(optionalPartInputs != null) {
-            for(Map.Entry<String, HollowBlobInput> optionalPartEntry : optionalPartInputs.entrySet()) {
-                numStates = VarInt.readVInt(optionalPartEntry.getValue());
+        if(deltaApplyThreads > 1 && memoryMode == MemoryMode.ON_HEAP) {
+            applyTypeStateDeltasConcurrently(in, optionalPartInputs, typeNames, applyNanosByType);
+        } else {
+            int numStates = VarInt.readVInt(in);
 
-                for(int i=0;i<numStates;i++) {
-                    String typeName = readTypeStateDelta(optionalPartEntry.getValue());
-                    typeNames.add(typeName);
-                    stateEngine.getMemoryRecycler().swap();
+            for(int i=0;i<numStates;i++) {
+                String typeName = readTypeStateDelta(in, applyNanosByType);
+                typeNames.add(typeName);
+                stateEngine.getMemoryRecycler().swap();
+            }
+
+            if(optionalPartInputs != null) {
+                for(Map.Entry<String, HollowBlobInput> optionalPartEntry : optionalPartInputs.entrySet()) {
+                    numStates = VarInt.readVInt(optionalPartEntry.getValue());
+
+                    for(int i=0;i<numStates;i++) {
+                        String typeName = readTypeStateDelta(optionalPartEntry.getValue(), applyNanosByType);
+                        typeNames.add(typeName);
+                        stateEngine.getMemoryRecycler().swap();
+                    }
                 }
             }
         }
 
+        stateEngine.setLastDeltaApplyNanosByType(applyNanosByType);
+        stateEngine.getReadViews().publish();
+
         long endTime = System.currentTimeMillis();
 
         log.info("DELTA COMPLETED IN " + (endTime - startTime) + "ms");
         log.info("TYPES: " + typeNames);
 
+        reshardToTargetSize(typeNames);
+        updateKeyFingerprints(typeNames);
+
         notifyEndUpdate();
     }
 
+    /**
+     * Reshards each of the updated type states whose approximate footprint per shard no longer fits the consumer's
+     * target, so that the next delta is applied to shards of a bounded size.
+     */
+    private void reshardToTargetSize(Collection<String> typeNames) throws IOException {
+        long targetMaxTypeShardSize = stateEngine.getTargetMaxTypeShardSize();
+        if(targetMaxTypeShardSize == Long.MAX_VALUE)
+            return;
+
+        /// resharded data does not retain prior generations, so the views of prior generations are first let to close
+        if(stateEngine.getReadViews().isEnabled()) {
+            try {
+                if(!stateEngine.getReadViews().awaitViewsOfCurrentGeneration(RESHARD_READ_VIEW_WAIT_MILLIS)) {
+                    log.info("RESHARDING DEFERRED, READ VIEWS OF A PRIOR GENERATION ARE PINNED");
+                    return;
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        for(String typeName : typeNames) {
+            HollowTypeReadState typeState = stateEngine.getTypeState(typeName);
+            if(typeState != null)
+                typeState.reshardToTargetSize(targetMaxTypeShardSize);
+        }
+    }
+
     private HollowBlobHeader readHeader(HollowBlobInput in, boolean isDelta) throws IOException {
         HollowBlobHeader header = headerReader.readHeader(in);
 
@@ -301,6 +516,21 @@ public class HollowBlobReader {
         return schemas;
     }
 
+    /**
+     * Derives the key fingerprints of the updated SET and MAP type states for which they are enabled.  A fingerprint is
+     * derived from the fields of a key, which may be held by several referenced types, so this waits until every type
+     * state has been updated.
+     */
+    private void updateKeyFingerprints(Collection<String> typeNames) {
+        for(String typeName : typeNames) {
+            HollowTypeReadState typeState = stateEngine.getTypeState(typeName);
+            if(typeState instanceof HollowSetTypeReadState)
+                ((HollowSetTypeReadState) typeState).updateKeyFingerprints();
+            else if(typeState instanceof HollowMapTypeReadState)
+                ((HollowMapTypeReadState) typeState).updateKeyFingerprints();
+        }
+    }
+
     private void notifyBeginUpdate() {
         for(HollowTypeReadState typeFile: stateEngine.getTypeStates()) {
             for(HollowTypeStateListener listener : typeFile.getListeners()) {
@@ -317,42 +547,115 @@ public class HollowBlobReader {
         }
     }
 
+    private void readTypeStateSnapshots(HollowBlobInput in, TypeFilter filter, Collection<String> typeNames) throws IOException {
+        int numStates = VarInt.readVInt(in);
+
+        if(snapshotLoadThreads > 1 && numStates > 1 && in.getMemoryMode().isSharedMemory()) {
+            readTypeStateSnapshotsConcurrently(in, numStates, filter, typeNames);
+        } else {
+            for(int i=0;i<numStates;i++) {
+                String typeName = readTypeStateSnapshot(in, filter);
+                typeNames.add(typeName);
+            }
+        }
+    }
+
     private String readTypeStateSnapshot(HollowBlobInput in, TypeFilter filter) throws IOException {
         HollowSchema schema = HollowSchema.readFrom(in);
         int numShards = readNumShards(in);
-        String typeName = schema.getName();
 
+        HollowTypeReadState typeState = createTypeState(schema, numShards, filter);
+        if(typeState == null)
+            discardSnapshot(in, schema, numShards);
+        else
+            populateTypeStateSnapshot(in, typeState);
 
-        if(schema instanceof HollowObjectSchema) {
-            if(!filter.includes(typeName)) {
-                HollowObjectTypeReadState.discardSnapshot(in, (HollowObjectSchema)schema, numShards);
+        return schema.getName();
+    }
 
-            } else {
-                HollowObjectSchema unfilteredSchema = (HollowObjectSchema)schema;
-                HollowObjectSchema filteredSchema = unfilteredSchema.filterSchema(filter);
-                populateTypeStateSnapshot(in, new HollowObjectTypeReadState(stateEngine, memoryMode, filteredSchema, unfilteredSchema, numShards));
+    /**
+     * Locates the offset of every type state in a random access input, then reads the type states concurrently.
+     * <p>
+     * All type states are added to the state engine up front on the calling thread, so only the reading of each
+     * type's own data (and the notification of its own listeners) happens concurrently.
+     */
+    private void readTypeStateSnapshotsConcurrently(HollowBlobInput in, int numStates, TypeFilter filter, Collection<String> typeNames) throws IOException {
+        List<HollowTypeReadState> typeStates = new ArrayList<>(numStates);
+        long typeStateOffsets[] = new long[numStates];
+
+        for(int i=0;i<numStates;i++) {
+            HollowSchema schema = HollowSchema.readFrom(in);
+            int numShards = readNumShards(in);
+            typeNames.add(schema.getName());
+
+            HollowTypeReadState typeState = createTypeState(schema, numShards, filter);
+            if(typeState != null) {
+                stateEngine.addTypeState(typeState);
+                typeStateOffsets[typeStates.size()] = in.getFilePointer();
+                typeStates.add(typeState);
             }
+
+            discardSnapshot(in, schema, numShards);
+        }
+
+        SimultaneousExecutor executor = new SimultaneousExecutor(Math.min(snapshotLoadThreads, typeStates.size()), getClass(), "read-snapshot");
+
+        for(int i=0;i<typeStates.size();i++) {
+            final HollowTypeReadState typeState = typeStates.get(i);
+            final long offset = typeStateOffsets[i];
+            executor.execute(() -> {
+                try(HollowBlobInput typeStateIn = in.duplicate()) {
+                    typeStateIn.seek(offset);
+                    typeState.readSnapshot(typeStateIn, stateEngine.getMemoryRecycler());
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        try {
+            executor.awaitSuccessfulCompletion();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading snapshot", e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException)e.getCause()).getCause();
+            throw new IOException("Failed to read snapshot", e.getCause());
+        }
+    }
+
+    /**
+     * @return a new type state for the schema, or null if the type is excluded by the filter
+     */
+    private HollowTypeReadState createTypeState(HollowSchema schema, int numShards, TypeFilter filter) {
+        if(!filter.includes(schema.getName()))
+            return null;
+
+        if(schema instanceof HollowObjectSchema) {
+            HollowObjectSchema unfilteredSchema = (HollowObjectSchema)schema;
+            HollowObjectSchema filteredSchema = unfilteredSchema.filterSchema(filter);
+            return new HollowObjectTypeReadState(stateEngine, memoryMode, filteredSchema, unfilteredSchema, numShards);
         } else if (schema instanceof HollowListSchema) {
-            if(!filter.includes(typeName)) {
-                HollowListTypeReadState.discardSnapshot(in, numShards);
-            } else {
-                populateTypeStateSnapshot(in, new HollowListTypeReadState(stateEngine, memoryMode, (HollowListSchema)schema, numShards));
-            }
+            return new HollowListTypeReadState(stateEngine, memoryMode, (HollowListSchema)schema, numShards);
         } else if(schema instanceof HollowSetSchema) {
-            if(!filter.includes(typeName)) {
-                HollowSetTypeReadState.discardSnapshot(in, numShards);
-            } else {
-                populateTypeStateSnapshot(in, new HollowSetTypeReadState(stateEngine, memoryMode, (HollowSetSchema)schema, numShards));
-            }
+            return new HollowSetTypeReadState(stateEngine, memoryMode, (HollowSetSchema)schema, numShards);
         } else if(schema instanceof HollowMapSchema) {
-            if(!filter.includes(typeName)) {
-                HollowMapTypeReadState.discardSnapshot(in, numShards);
-            } else {
-                populateTypeStateSnapshot(in, new HollowMapTypeReadState(stateEngine, memoryMode, (HollowMapSchema)schema, numShards));
-            }
+            return new HollowMapTypeReadState(stateEngine, memoryMode, (HollowMapSchema)schema, numShards);
         }
 
-        return typeName;
+        return null;
+    }
+
+    private void discardSnapshot(HollowBlobInput in, HollowSchema schema, int numShards) throws IOException {
+        if(schema instanceof HollowObjectSchema)
+            HollowObjectTypeReadState.discardSnapshot(in, (HollowObjectSchema)schema, numShards);
+        else if(schema instanceof HollowListSchema)
+            HollowListTypeReadState.discardSnapshot(in, numShards);
+        else if(schema instanceof HollowSetSchema)
+            HollowSetTypeReadState.discardSnapshot(in, numShards);
+        else if(schema instanceof HollowMapSchema)
+            HollowMapTypeReadState.discardSnapshot(in, numShards);
     }
 
     private void populateTypeStateSnapshot(HollowBlobInput in, HollowTypeReadState typeState) throws IOException {
@@ -360,14 +663,16 @@ public class HollowBlobReader {
         typeState.readSnapshot(in, stateEngine.getMemoryRecycler());
     }
 
-    private String readTypeStateDelta(HollowBlobInput in) throws IOException {
+    private String readTypeStateDelta(HollowBlobInput in, Map<String, Long> applyNanosByType) throws IOException {
         HollowSchema schema = HollowSchema.readFrom(in);
 
         int numShards = readNumShards(in);
 
         HollowTypeReadState typeState = stateEngine.getTypeState(schema.getName());
         if(typeState != null) {
-            typeState.applyDelta(in, schema, stateEngine.getMemoryRecycler());
+            long startNanos = System.nanoTime();
+            typeState.applyDelta(in, schema, stateEngine.getMemoryRecycler(), numShards);
+            applyNanosByType.merge(schema.getName(), System.nanoTime() - startNanos, Long::sum);
         } else {
             discardDelta(in, schema, numShards);
         }
@@ -375,6 +680,72 @@ public class HollowBlobReader {
         return schema.getName();
     }
 
+    /**
+     * Reads the type state deltas from the blob and its optional parts, staging the application of each type state
+     * shard on a pool of threads.  Once every shard has been updated, the staged deltas are all published on the calling thread.
+     * <p>
+     * The time recorded for each type is the time spent reading its delta plus the time spent applying each of its shards.
+     */
+    private void applyTypeStateDeltasConcurrently(HollowBlobInput in, Map<String, HollowBlobInput> optionalPartInputs,
+            Collection<String> typeNames, Map<String, Long> applyNanosByType) throws IOException {
+        ArraySegmentRecycler memoryRecycler = new SynchronizedRecycler(stateEngine.getMemoryRecycler());
+        SimultaneousExecutor executor = new SimultaneousExecutor(deltaApplyThreads, getClass(), "apply-delta");
+        List<Runnable> commits = new ArrayList<>();
+
+        try {
+            stageTypeStateDeltas(in, memoryRecycler, executor, commits, typeNames, applyNanosByType);
+
+            if(optionalPartInputs != null) {
+                for(HollowBlobInput optionalPartInput : optionalPartInputs.values())
+                    stageTypeStateDeltas(optionalPartInput, memoryRecycler, executor, commits, typeNames, applyNanosByType);
+            }
+        } finally {
+            executor.awaitUninterruptibly();
+        }
+
+        try {
+            executor.awaitSuccessfulCompletion();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while applying delta", e);
+        } catch(ExecutionException e) {
+            throw new IOException("Failed to apply delta", e.getCause());
+        }
+
+        for(Runnable commit : commits)
+            commit.run();
+
+        stateEngine.getMemoryRecycler().swap();
+    }
+
+    private void stageTypeStateDeltas(HollowBlobInput in, ArraySegmentRecycler memoryRecycler, SimultaneousExecutor executor,
+            List<Runnable> commits, Collection<String> typeNames, Map<String, Long> applyNanosByType) throws IOException {
+        int numStates = VarInt.readVInt(in);
+
+        for(int i=0;i<numStates;i++) {
+            HollowSchema schema = HollowSchema.readFrom(in);
+            int numShards = readNumShards(in);
+            String typeName = schema.getName();
+
+            HollowTypeReadState typeState = stateEngine.getTypeState(typeName);
+            if(typeState != null) {
+                Executor timedExecutor = task -> executor.execute(() -> {
+                    long startNanos = System.nanoTime();
+                    task.run();
+                    applyNanosByType.merge(typeName, System.nanoTime() - startNanos, Long::sum);
+                });
+
+                long startNanos = System.nanoTime();
+                commits.add(typeState.stageDelta(in, schema, memoryRecycler, timedExecutor, numShards));
+                applyNanosByType.merge(typeName, System.nanoTime() - startNanos, Long::sum);
+            } else {
+                discardDelta(in, schema, numShards);
+            }
+
+            typeNames.add(typeName);
+        }
+    }
+
     private int readNumShards(HollowBlobInput in) throws IOException {
         int backwardsCompatibilityBytes = VarInt.readVInt(in);
 
@@ -409,7 +780,10 @@ public class HollowBlobReader {
     }
 
     private void validateMemoryMode(MemoryMode inputMode) {
-        if (!memoryMode.equals(inputMode)) {
+        /// shared memory modes differ only in how the input is loaded into main memory, so they may be mixed, and
+        /// serial modes differ only in where the data which is read from the stream is held
+        if (!memoryMode.equals(inputMode) && !(memoryMode.isSharedMemory() && inputMode.isSharedMemory())
+                && !(memoryMode.isSerial() && inputMode.isSerial())) {
             throw new IllegalStateException(String.format("HollowBlobReader is configured for memory mode %s but " +
                     "HollowBlobInput of mode %s was provided", memoryMode, inputMode));
         }
@@ -17,12 +17,14 @@
 package com.netflix.hollow.core.read.engine;
 
 import com.netflix.hollow.api.error.SchemaNotFoundException;
+import com.netflix.hollow.api.sampling.SampleResult;
 import com.netflix.hollow.core.HollowStateEngine;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.memory.pool.RecyclingRecycler;
 import com.netflix.hollow.core.read.dataaccess.HollowDataAccess;
 import com.netflix.hollow.core.read.dataaccess.HollowTypeDataAccess;
 import com.netflix.hollow.core.read.engine.map.HollowMapTypeReadState;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
 import com.netflix.hollow.core.read.engine.set.HollowSetTypeReadState;
 import com.netflix.hollow.core.read.missing.DefaultMissingDataHandler;
 import com.netflix.hollow.core.read.missing.MissingDataHandler;
@@ -58,6 +60,12 @@ public class HollowReadStateEngine implements HollowStateEngine, HollowDataAcces
     private ArraySegmentRecycler memoryRecycler;
     private Map<String,String> headerTags;
     private Set<String> typesWithDefinedHashCodes = new HashSet<String>();
+    private final Set<String> stringCachedTypes = new HashSet<String>();
+    private final Set<String> keyFingerprintedTypes = new HashSet<String>();
+    private Map<String, Long> lastDeltaApplyNanosByType = Collections.emptyMap();
+    private long lastSnapshotPeakTransientBytes;
+    private long targetMaxTypeShardSize = Long.MAX_VALUE;
+    private final HollowReadViews readViews = new HollowReadViews();
 
     private long currentRandomizedTag;
 
@@ -110,6 +118,49 @@ public class HollowReadStateEngine implements HollowStateEngine, HollowDataAcces
             for(HollowTypeStateListener listener : list)
                 typeState.addListener(listener);
         }
+
+        if(stringCachedTypes.contains(typeState.getSchema().getName()) && typeState instanceof HollowObjectTypeReadState)
+            ((HollowObjectTypeReadState) typeState).setStringCacheEnabled(true);
+        if(keyFingerprintedTypes.contains(typeState.getSchema().getName()))
+            setKeyFingerprintsEnabled(typeState);
+    }
+
+    /**
+     * Enable caching of the decoded values of an OBJECT type's STRING fields.  The type may be present in this state
+     * engine already, or be added when a snapshot is read.
+     *
+     * @param typeName the type name
+     * @see HollowObjectTypeReadState#setStringCacheEnabled(boolean)
+     */
+    public void enableStringCache(String typeName) {
+        stringCachedTypes.add(typeName);
+
+        HollowTypeReadState typeState = typeStates.get(typeName);
+        if(typeState instanceof HollowObjectTypeReadState)
+            ((HollowObjectTypeReadState) typeState).setStringCacheEnabled(true);
+    }
+
+    /**
+     * Enable fingerprints of the keys of a SET or MAP type, which speed up its lookups by hash key.  The type may be
+     * present in this state engine already, or be added when a snapshot is read.
+     *
+     * @param typeName the type name
+     * @see HollowSetTypeReadState#setKeyFingerprintsEnabled(boolean)
+     * @see HollowMapTypeReadState#setKeyFingerprintsEnabled(boolean)
+     */
+    public void enableKeyFingerprints(String typeName) {
+        keyFingerprintedTypes.add(typeName);
+
+        HollowTypeReadState typeState = typeStates.get(typeName);
+        if(typeState != null)
+            setKeyFingerprintsEnabled(typeState);
+    }
+
+    private static void setKeyFingerprintsEnabled(HollowTypeReadState typeState) {
+        if(typeState instanceof HollowSetTypeReadState)
+            ((HollowSetTypeReadState) typeState).setKeyFingerprintsEnabled(true);
+        else if(typeState instanceof HollowMapTypeReadState)
+            ((HollowMapTypeReadState) typeState).setKeyFingerprintsEnabled(true);
     }
 
     /**
@@ -280,6 +331,38 @@ public class HollowReadStateEngine implements HollowStateEngine, HollowDataAcces
         return false;
     }
 
+    /**
+     * Touches the data of this state engine which is mapped from shared memory, so that it is resident in main memory
+     * before it is first read.  The types and fields with the most samples in the given results, such as those recorded
+     * by the {@link com.netflix.hollow.api.sampling.HollowObjectSampler}s of a consumer's API, are touched first,
+     * followed by all remaining data.  This is a no-op for data on the heap.
+     *
+     * @param sampleResults the sample results by which the data to touch first is chosen, may be empty
+     */
+    public void warmUp(Collection<SampleResult> sampleResults) {
+        Map<String, Long> numSamplesByType = new HashMap<>();
+        Map<String, Set<String>> sampledFieldsByType = new HashMap<>();
+        for(SampleResult result : sampleResults) {
+            int separator = result.getIdentifier().indexOf('.');
+            if(result.getNumSamples() == 0 || separator == -1)
+                continue;
+            String type = result.getIdentifier().substring(0, separator);
+            numSamplesByType.merge(type, result.getNumSamples(), Long::sum);
+            sampledFieldsByType.computeIfAbsent(type, t -> new HashSet<>()).add(result.getIdentifier().substring(separator + 1));
+        }
+
+        List<String> sampledTypes = new ArrayList<>(numSamplesByType.keySet());
+        sampledTypes.sort((t1, t2) -> Long.compare(numSamplesByType.get(t2), numSamplesByType.get(t1)));
+        for(String type : sampledTypes) {
+            HollowTypeReadState typeState = typeStates.get(type);
+            if(typeState != null)
+                typeState.warmUp(sampledFieldsByType.get(type));
+        }
+
+        for(HollowTypeReadState typeState : typeStates.values())
+            typeState.warmUp(null);
+    }
+
     public boolean updatedLastCycle() {
         for(Map.Entry<String, HollowTypeReadState> entry : typeStates.entrySet()) {
             if(entry.getValue().getListener(PopulatedOrdinalListener.class).updatedLastCycle())
@@ -300,6 +383,81 @@ public class HollowReadStateEngine implements HollowStateEngine, HollowDataAcces
         this.currentRandomizedTag = currentRandomizedTag;
     }
 
+    /**
+     * @return the time, in nanoseconds, spent reading and applying each type in the most recently applied delta.  Types
+     * for which the delta was discarded are not included.
+     */
+    public Map<String, Long> getLastDeltaApplyNanosByType() {
+        return lastDeltaApplyNanosByType;
+    }
+
+    void setLastDeltaApplyNanosByType(Map<String, Long> lastDeltaApplyNanosByType) {
+        this.lastDeltaApplyNanosByType = Collections.unmodifiableMap(lastDeltaApplyNanosByType);
+    }
+
+    /**
+     * @return the approximate number of bytes which were held for the snapshot of any one type, in addition to the data it
+     * replaced, when a snapshot was most recently read in place, see {@link HollowBlobReader#readSnapshotInPlace}.
+     */
+    public long getLastSnapshotPeakTransientBytes() {
+        return lastSnapshotPeakTransientBytes;
+    }
+
+    void setLastSnapshotPeakTransientBytes(long lastSnapshotPeakTransientBytes) {
+        this.lastSnapshotPeakTransientBytes = lastSnapshotPeakTransientBytes;
+    }
+
+    /**
+     * Sets the target approximate footprint of each shard of a type, in bytes.  After each snapshot or delta is read,
+     * each updated type whose shards are larger than the target is split into more shards, and each type which would fit
+     * into fewer shards at half of the target is joined into fewer shards.  Deltas are then applied one smaller shard at a
+     * time, which bounds the memory transiently held while a large type is updated.
+     * <p>
+     * By default, the type states keep the number of shards with which they were produced.
+     *
+     * @param targetMaxTypeShardSize the target approximate footprint of each shard, in bytes
+     */
+    public void setTargetMaxTypeShardSize(long targetMaxTypeShardSize) {
+        if(targetMaxTypeShardSize <= 0)
+            throw new IllegalArgumentException("targetMaxTypeShardSize must be greater than 0");
+        this.targetMaxTypeShardSize = targetMaxTypeShardSize;
+    }
+
+    public long getTargetMaxTypeShardSize() {
+        return targetMaxTypeShardSize;
+    }
+
+    /**
+     * Enables {@link HollowReadView}s of this state engine, which are pinned with {@link #pinReadView()}.
+     * <p>
+     * While read views are enabled, the data replaced by a delta is retained until no view which may read it is pinned,
+     * and every type which a delta updates is held in memory at both generations until the delta has been applied.
+     * Should be called before any data is read into this state engine.
+     */
+    public void enableReadViews() {
+        readViews.enable();
+    }
+
+    /**
+     * Pins a consistent view of the records of this state engine to the calling thread, which is read without locks
+     * and is unaffected by deltas applied until the view is closed.
+     *
+     * @return the pinned view, which must be closed on the calling thread
+     * @throws IllegalStateException if read views have not been enabled with {@link #enableReadViews()}
+     */
+    public HollowReadView pinReadView() {
+        return readViews.pin();
+    }
+
+    /**
+     * Not intended for external consumption.
+     *
+     * @return the read views of this state engine
+     */
+    public HollowReadViews getReadViews() {
+        return readViews;
+    }
+
     private void populatedDefinedHashCodesTypesIfHeaderTagIsPresent() {
         String definedHashCodesTag = headerTags.get(HollowObjectHashCodeFinder.DEFINED_HASH_CODES_HEADER_NAME);
         if(definedHashCodesTag == null || "".equals(definedHashCodesTag)) {
@@ -0,0 +1,75 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+/**
+ * A consistent view of the records of a {@link HollowReadStateEngine}, pinned to the generation of the data which was
+ * current when the view was pinned with {@link HollowReadStateEngine#pinReadView()}.
+ * <p>
+ * While a view is pinned, the records of every type which are read on the thread which pinned it are read from the
+ * same generation, even while a delta is applied.  No lock is taken to read a record.  The data of a generation is
+ * retained while any view of it is pinned, so a view should be closed, on the thread which pinned it, as soon as
+ * the records are no longer read:
+ * <pre>{@code
+ * try(HollowReadView view = stateEngine.pinReadView()) {
+ *     ...
+ * }
+ * }</pre>
+ * <p>
+ * A view covers the data of the records.  The populated ordinals and max ordinal of a type state are those of the
+ * latest generation.
+ * <p>
+ * Pinning a view on a thread which has already pinned a view of the same state engine returns that view, which is
+ * then unpinned once it has been closed as many times as it was pinned.
+ */
+public class HollowReadView implements AutoCloseable {
+
+    private final HollowReadViews readViews;
+    private final long generation;
+    private int pinCount;
+
+    HollowReadView(HollowReadViews readViews, long generation) {
+        this.readViews = readViews;
+        this.generation = generation;
+        this.pinCount = 1;
+    }
+
+    /**
+     * @return the generation of the data which this view reads
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    void pin() {
+        pinCount++;
+    }
+
+    boolean unpin() {
+        return --pinCount == 0;
+    }
+
+    /**
+     * Unpins this view.
+     * <p>
+     * Must be called on the thread which pinned this view.
+     */
+    @Override
+    public void close() {
+        readViews.close(this);
+    }
+}
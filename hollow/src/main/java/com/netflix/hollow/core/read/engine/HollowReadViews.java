@@ -0,0 +1,214 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the {@link HollowReadView}s pinned on a {@link HollowReadStateEngine}, and the data which is retained for them.
+ * <p>
+ * Each delta produces a new generation.  While read views are enabled, the data of each shard which a delta updates is
+ * tagged with the generation which the delta produces and links to the data it replaced, and the replaced data is
+ * retired.  A shard resolves a read on a thread which has pinned a view against the newest data whose generation is
+ * not newer than the view.  Retired data is reclaimed once no view of a generation which could read it is pinned: on
+ * the update thread it is destroyed, and on a thread which closes a view it is only unlinked, to be garbage collected.
+ * <p>
+ * Not intended for external consumption.
+ */
+public class HollowReadViews {
+
+    /**
+     * The generation which a thread without a pinned view reads.
+     */
+    public static final long NO_PINNED_GENERATION = -1;
+
+    static final HollowReadViews DISABLED = new HollowReadViews();
+
+    private final ThreadLocal<HollowReadView> pinnedView = new ThreadLocal<>();
+    private final Set<HollowReadView> views = ConcurrentHashMap.newKeySet();
+    private final List<RetiredData> retiredData = new ArrayList<>();
+
+    private volatile boolean enabled;
+    private volatile long generation;
+
+    void enable() {
+        this.enabled = true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the generation of the current data, which a newly pinned view reads
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the generation with which the data updated by the delta being applied is tagged
+     */
+    public long getNextGeneration() {
+        return generation + 1;
+    }
+
+    /**
+     * @return the generation of the view pinned on the calling thread, or {@link #NO_PINNED_GENERATION}
+     */
+    public long getPinnedGeneration() {
+        HollowReadView view = pinnedView.get();
+        return view == null ? NO_PINNED_GENERATION : view.getGeneration();
+    }
+
+    HollowReadView pin() {
+        if(!enabled)
+            throw new IllegalStateException("Read views are not enabled for this state engine");
+
+        HollowReadView view = pinnedView.get();
+        if(view != null) {
+            view.pin();
+            return view;
+        }
+
+        /// the view is registered before the generation is confirmed, so that the data of a generation which is
+        /// published concurrently is either read by this view or is not reclaimed while it is pinned
+        while(true) {
+            long pinnedGeneration = generation;
+            view = new HollowReadView(this, pinnedGeneration);
+            views.add(view);
+            if(generation == pinnedGeneration)
+                break;
+            views.remove(view);
+        }
+
+        pinnedView.set(view);
+        return view;
+    }
+
+    void close(HollowReadView view) {
+        if(pinnedView.get() != view)
+            throw new IllegalStateException("A read view must be closed on the thread which pinned it");
+
+        if(view.unpin()) {
+            pinnedView.remove();
+            views.remove(view);
+            if(view.getGeneration() < generation)
+                reclaim(false);
+        }
+    }
+
+    /**
+     * Retires data which has been replaced by the delta being applied.  If read views are not enabled, the data is
+     * destroyed immediately.
+     *
+     * @param unlink unlinks the data from the data which replaced it
+     * @param destroy destroys the data
+     */
+    public void retire(Runnable unlink, Runnable destroy) {
+        if(!enabled) {
+            destroy.run();
+            return;
+        }
+
+        synchronized(retiredData) {
+            retiredData.add(new RetiredData(generation, unlink, destroy));
+        }
+    }
+
+    /**
+     * Publishes the generation produced by the applied delta, and reclaims the retired data which can no longer be read.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     */
+    void publish() {
+        if(!enabled)
+            return;
+
+        generation++;
+        reclaim(true);
+    }
+
+    /**
+     * Waits until no view of a generation older than the current generation is pinned.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return true if no view of an older generation is pinned
+     */
+    boolean awaitViewsOfCurrentGeneration(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while(minPinnedGeneration() < generation) {
+            if(System.currentTimeMillis() >= deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        reclaim(true);
+        return true;
+    }
+
+    int numPinnedViews() {
+        return views.size();
+    }
+
+    private void reclaim(boolean destroy) {
+        synchronized(retiredData) {
+            if(retiredData.isEmpty())
+                return;
+
+            long minPinnedGeneration = minPinnedGeneration();
+            long currentGeneration = generation;
+
+            Iterator<RetiredData> iter = retiredData.iterator();
+            while(iter.hasNext()) {
+                RetiredData retired = iter.next();
+                /// retired data is read by the views of its own or an older generation, and is not reclaimed before
+                /// the generation which replaced it is published
+                if(retired.generation < currentGeneration && retired.generation < minPinnedGeneration) {
+                    retired.unlink.run();
+                    if(destroy)
+                        retired.destroy.run();
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    private long minPinnedGeneration() {
+        long minPinnedGeneration = Long.MAX_VALUE;
+        for(HollowReadView view : views)
+            minPinnedGeneration = Math.min(minPinnedGeneration, view.getGeneration());
+        return minPinnedGeneration;
+    }
+
+    private static class RetiredData {
+        private final long generation;
+        private final Runnable unlink;
+        private final Runnable destroy;
+
+        RetiredData(long generation, Runnable unlink, Runnable destroy) {
+            this.generation = generation;
+            this.unlink = unlink;
+            this.destroy = destroy;
+        }
+    }
+}
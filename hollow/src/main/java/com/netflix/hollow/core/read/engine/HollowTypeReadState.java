@@ -28,6 +28,8 @@ import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 
 /**
@@ -122,7 +124,60 @@ public abstract class HollowTypeReadState implements HollowTypeDataAccess {
     public abstract int maxOrdinal();
 
     public abstract void readSnapshot(HollowBlobInput in, ArraySegmentRecycler recycler) throws IOException;
-    public abstract void applyDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler) throws IOException;
+
+    public void applyDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler) throws IOException {
+        applyDelta(in, schema, memoryRecycler, numShards());
+    }
+
+    /**
+     * Read and apply a delta for this type state, which was written with the given number of shards.  If the delta was
+     * written with a different number of shards than this type state has, its records are redistributed among the shards
+     * of this type state as it is read.
+     *
+     * @param in the input from which to read the delta
+     * @param schema the schema of the type in the delta
+     * @param memoryRecycler the memory recycler
+     * @param deltaNumShards the number of shards with which the delta was written
+     * @throws IOException if the delta could not be read
+     */
+    public abstract void applyDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler, int deltaNumShards) throws IOException;
+
+    /**
+     * Read a delta for this type state, and stage its application without making the result visible.
+     * <p>
+     * The delta is read from the input on the calling thread, after which the work of applying the delta to each shard
+     * is submitted to the provided executor.  Once all of the submitted work has completed, the returned commit must be run
+     * on the updating thread to publish the new data for all shards, notify the {@link HollowTypeStateListener}s, and release
+     * the prior data.
+     *
+     * @param in the input from which to read the delta
+     * @param schema the schema of the type in the delta
+     * @param memoryRecycler a recycler which may be used concurrently by the submitted work
+     * @param executor the executor to which the application of each shard is submitted
+     * @param deltaNumShards the number of shards with which the delta was written
+     * @return the commit which publishes the staged delta
+     * @throws IOException if the delta could not be read
+     */
+    public abstract Runnable stageDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler, Executor executor, int deltaNumShards) throws IOException;
+
+    /**
+     * Read a snapshot of this type state in place of its current data.
+     * <p>
+     * The snapshot is read on the side, and its records are redistributed among the shards of this type state if it was
+     * written with a different number of shards.  The data of each shard is then replaced in turn, as by a delta, and the
+     * replaced data is retired, so that it is recycled once no read view can read it.  The {@link HollowTypeStateListener}s
+     * are notified of the removal of each previously populated ordinal and of the addition of each populated ordinal of the
+     * snapshot.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     *
+     * @param in the input from which to read the snapshot
+     * @param memoryRecycler the memory recycler
+     * @param snapshotNumShards the number of shards with which the snapshot was written
+     * @return the approximate number of bytes which were held for the snapshot in addition to the replaced data
+     * @throws IOException if the snapshot could not be read
+     */
+    public abstract long readSnapshotInPlace(HollowBlobInput in, ArraySegmentRecycler memoryRecycler, int snapshotNumShards) throws IOException;
 
     public HollowSchema getSchema() {
         return schema;
@@ -140,6 +195,13 @@ public abstract class HollowTypeReadState implements HollowTypeDataAccess {
         return stateEngine;
     }
 
+    /**
+     * @return the read views of the state engine, which the shards of this type state resolve reads against
+     */
+    protected HollowReadViews getReadViews() {
+        return stateEngine == null ? HollowReadViews.DISABLED : stateEngine.getReadViews();
+    }
+
     protected void notifyListenerAboutDeltaChanges(GapEncodedVariableLengthIntegerReader removals, GapEncodedVariableLengthIntegerReader additions, int shardNumber, int numShards) {
         for(HollowTypeStateListener stateListener : stateListeners) {
             removals.reset();
@@ -160,6 +222,26 @@ public abstract class HollowTypeReadState implements HollowTypeDataAccess {
         }
     }
 
+    protected void notifyListenerAboutSnapshotChanges(BitSet previousOrdinals, BitSet populatedOrdinals) {
+        PopulatedOrdinalListener populatedOrdinalListener = getListener(PopulatedOrdinalListener.class);
+        if(populatedOrdinalListener != null)
+            populatedOrdinalListener.snapshotReadInPlace();
+
+        for(HollowTypeStateListener stateListener : stateListeners) {
+            int ordinal = previousOrdinals.nextSetBit(0);
+            while(ordinal != -1) {
+                stateListener.removedOrdinal(ordinal);
+                ordinal = previousOrdinals.nextSetBit(ordinal + 1);
+            }
+
+            ordinal = populatedOrdinals.nextSetBit(0);
+            while(ordinal != -1) {
+                stateListener.addedOrdinal(ordinal);
+                ordinal = populatedOrdinals.nextSetBit(ordinal + 1);
+            }
+        }
+    }
+
     public abstract HollowSampler getSampler();
 
     protected abstract void invalidate();
@@ -192,4 +274,53 @@ public abstract class HollowTypeReadState implements HollowTypeDataAccess {
      */
     public abstract int numShards();
 
+    /**
+     * Redistributes the records of this type state among the given number of shards.  Readers are not blocked while the
+     * records are copied, and see either the prior shards or the new shards in their entirety.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     *
+     * @param numShards the new number of shards, a power of 2
+     * @throws IOException if the new shards could not be moved into shared memory
+     */
+    public abstract void reshard(int numShards) throws IOException;
+
+    /**
+     * Reshards this type state if its approximate footprint per shard has grown beyond the target, or has shrunk such
+     * that it would fit into fewer shards at half of the target.  The margin prevents a type whose size hovers around the
+     * target from being resharded on every update.
+     *
+     * @param targetMaxTypeShardSize the target approximate footprint of each shard, in bytes
+     * @throws IOException if the new shards could not be moved into shared memory
+     */
+    void reshardToTargetSize(long targetMaxTypeShardSize) throws IOException {
+        long size = getApproximateHeapFootprintInBytes();
+        int numShards = numShards();
+
+        int targetNumShards = numShardsFor(size, targetMaxTypeShardSize);
+        if(targetNumShards > numShards) {
+            reshard(targetNumShards);
+        } else {
+            int joinedNumShards = numShardsFor(size, targetMaxTypeShardSize / 2);
+            if(joinedNumShards < numShards)
+                reshard(joinedNumShards);
+        }
+    }
+
+    private static int numShardsFor(long size, long targetMaxTypeShardSize) {
+        int numShards = 1;
+        while(numShards < (1 << 30) && (double)targetMaxTypeShardSize * numShards < size)
+            numShards <<= 1;
+        return numShards;
+    }
+
+    /**
+     * Touches the data of this type state if it is mapped from shared memory, so that it is resident in main memory
+     * before it is first read.  This is a no-op for data on the heap.
+     *
+     * @param fieldNames the names of the fields of an OBJECT type whose variable length data is touched, or null for
+     *                   all fields
+     */
+    public abstract void warmUp(Set<String> fieldNames);
+
 }
@@ -27,6 +27,7 @@ public class PopulatedOrdinalListener implements HollowTypeStateListener {
 
     private final BitSet previousOrdinals;
     private final BitSet populatedOrdinals;
+    private boolean updatedBySnapshotInPlace;
 
     public PopulatedOrdinalListener() {
         this.populatedOrdinals = new BitSet();
@@ -35,6 +36,7 @@ public class PopulatedOrdinalListener implements HollowTypeStateListener {
 
     @Override
     public void beginUpdate() {
+        updatedBySnapshotInPlace = false;
         previousOrdinals.clear();
         previousOrdinals.or(populatedOrdinals);
     }
@@ -53,7 +55,27 @@ public class PopulatedOrdinalListener implements HollowTypeStateListener {
     public void endUpdate() { }
 
     public boolean updatedLastCycle() {
-        return !populatedOrdinals.equals(previousOrdinals);
+        return updatedBySnapshotInPlace || !populatedOrdinals.equals(previousOrdinals);
+    }
+
+    /**
+     * Indicates that the type was updated by a snapshot read in place of its data, see
+     * {@link HollowBlobReader#readSnapshotInPlace}.  Not intended for external consumption.
+     */
+    void snapshotReadInPlace() {
+        updatedBySnapshotInPlace = true;
+    }
+
+    /**
+     * Whether the type was last updated by a snapshot read in place of its data, rather than by a delta.  In that case
+     * any ordinal, including one which is populated both before and after the update, may now hold a different record,
+     * so anything derived from the records of the previous ordinals must be rebuilt rather than patched.
+     *
+     * @return true if the type was last updated by a snapshot read in place
+     * @see HollowBlobReader#readSnapshotInPlace
+     */
+    public boolean updatedBySnapshotInPlace() {
+        return updatedBySnapshotInPlace;
     }
 
     public BitSet getPopulatedOrdinals() {
@@ -0,0 +1,230 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import com.netflix.hollow.core.memory.ByteDataArray;
+import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import java.util.BitSet;
+
+/**
+ * Locates the records of a type, held in some number of shards, among a different number of shards.
+ * <p>
+ * Ordinal {@code o} of a type with {@code n} shards is held as record {@code o >> log2(n)} of shard {@code o & (n-1)}.
+ * For each new shard, a plan lists the shard and record from which each of its records is copied, in order, along with
+ * the ordinals removed and added by a delta, renumbered for the new shard.
+ * <p>
+ * A type state holds a record for every ordinal up to the max ordinal of each shard, so each record of a new shard is
+ * copied from the record of the same ordinal.  A delta only holds records for the ordinals it adds, in order, so each
+ * record of a new shard is copied from the record of the same added ordinal.
+ * <p>
+ * Not intended for external consumption.
+ */
+public class ReshardingPlan {
+
+    private final int maxShardOrdinal[];
+    private final int sourceShards[][];
+    private final int sourceRecords[][];
+    private final GapEncodedVariableLengthIntegerReader removals[];
+    private final GapEncodedVariableLengthIntegerReader additions[];
+
+    private ReshardingPlan(int numShards, GapEncodedVariableLengthIntegerReader removals[], GapEncodedVariableLengthIntegerReader additions[]) {
+        this.maxShardOrdinal = new int[numShards];
+        this.sourceShards = new int[numShards][];
+        this.sourceRecords = new int[numShards][];
+        this.removals = removals;
+        this.additions = additions;
+    }
+
+    /**
+     * Plans the redistribution of the records of a type state.
+     *
+     * @param fromNumShards the number of shards which currently hold the records
+     * @param toNumShards the number of shards among which the records are redistributed
+     * @param maxOrdinal the max ordinal of the type state
+     * @param fromRemovals the ordinals removed by the prior delta from each current shard, each of which may be null
+     * @param memoryRecycler the memory recycler from which the renumbered removals are allocated
+     * @return the plan
+     */
+    public static ReshardingPlan forState(int fromNumShards, int toNumShards, int maxOrdinal,
+            GapEncodedVariableLengthIntegerReader fromRemovals[], ArraySegmentRecycler memoryRecycler) {
+        GapEncodedVariableLengthIntegerReader removals[] = reshardOrdinals(fromRemovals, toNumShards, memoryRecycler);
+        ReshardingPlan plan = new ReshardingPlan(toNumShards, removals, null);
+
+        int fromShardOrdinalShift = 31 - Integer.numberOfLeadingZeros(fromNumShards);
+        int toShardOrdinalShift = 31 - Integer.numberOfLeadingZeros(toNumShards);
+
+        for(int i=0;i<toNumShards;i++) {
+            plan.maxShardOrdinal[i] = maxShardOrdinal(maxOrdinal, i, toShardOrdinalShift);
+            int numRecords = plan.maxShardOrdinal[i] + 1;
+            plan.sourceShards[i] = new int[numRecords];
+            plan.sourceRecords[i] = new int[numRecords];
+
+            for(int j=0;j<numRecords;j++) {
+                int ordinal = (j << toShardOrdinalShift) | i;
+                plan.sourceShards[i][j] = ordinal & (fromNumShards - 1);
+                plan.sourceRecords[i][j] = ordinal >> fromShardOrdinalShift;
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Plans the redistribution of the records of a delta.
+     *
+     * @param fromNumShards the number of shards with which the delta was written
+     * @param toNumShards the number of shards among which the records are redistributed
+     * @param maxOrdinal the max ordinal of the type state produced by the delta
+     * @param fromRemovals the ordinals removed by each shard of the delta
+     * @param fromAdditions the ordinals added by each shard of the delta
+     * @param memoryRecycler the memory recycler from which the renumbered removals and additions are allocated
+     * @return the plan
+     */
+    public static ReshardingPlan forDelta(int fromNumShards, int toNumShards, int maxOrdinal,
+            GapEncodedVariableLengthIntegerReader fromRemovals[], GapEncodedVariableLengthIntegerReader fromAdditions[],
+            ArraySegmentRecycler memoryRecycler) {
+        GapEncodedVariableLengthIntegerReader removals[] = reshardOrdinals(fromRemovals, toNumShards, memoryRecycler);
+        GapEncodedVariableLengthIntegerReader additions[] = reshardOrdinals(fromAdditions, toNumShards, memoryRecycler);
+        ReshardingPlan plan = new ReshardingPlan(toNumShards, removals, additions);
+
+        int toShardOrdinalShift = 31 - Integer.numberOfLeadingZeros(toNumShards);
+
+        for(int i=0;i<toNumShards;i++) {
+            plan.maxShardOrdinal[i] = maxShardOrdinal(maxOrdinal, i, toShardOrdinalShift);
+            int numRecords = additions[i].remainingElements();
+            additions[i].reset();
+            plan.sourceShards[i] = new int[numRecords];
+            plan.sourceRecords[i] = new int[numRecords];
+        }
+
+        /// the added records of each shard of the delta are in ordinal order, so are numbered by visiting all ordinals in order
+        BitSet addedOrdinals = globalOrdinals(fromAdditions);
+        int nextSourceRecord[] = new int[fromNumShards];
+        int nextRecord[] = new int[toNumShards];
+
+        int ordinal = addedOrdinals.nextSetBit(0);
+        while(ordinal != -1) {
+            int sourceShard = ordinal & (fromNumShards - 1);
+            int shard = ordinal & (toNumShards - 1);
+            plan.sourceShards[shard][nextRecord[shard]] = sourceShard;
+            plan.sourceRecords[shard][nextRecord[shard]++] = nextSourceRecord[sourceShard]++;
+            ordinal = addedOrdinals.nextSetBit(ordinal + 1);
+        }
+
+        return plan;
+    }
+
+    public int numShards() {
+        return maxShardOrdinal.length;
+    }
+
+    public int getMaxShardOrdinal(int shardNumber) {
+        return maxShardOrdinal[shardNumber];
+    }
+
+    /**
+     * @param shardNumber the new shard
+     * @return the current shard of each record of the new shard
+     */
+    public int[] getSourceShards(int shardNumber) {
+        return sourceShards[shardNumber];
+    }
+
+    /**
+     * @param shardNumber the new shard
+     * @return the record within its current shard of each record of the new shard
+     */
+    public int[] getSourceRecords(int shardNumber) {
+        return sourceRecords[shardNumber];
+    }
+
+    /**
+     * @param shardNumber the new shard
+     * @return the removed ordinals of the new shard, or null if no removals were provided for any current shard
+     */
+    public GapEncodedVariableLengthIntegerReader getRemovals(int shardNumber) {
+        return removals[shardNumber];
+    }
+
+    /**
+     * @param shardNumber the new shard
+     * @return the added ordinals of the new shard, or null if the plan is for a type state
+     */
+    public GapEncodedVariableLengthIntegerReader getAdditions(int shardNumber) {
+        return additions == null ? null : additions[shardNumber];
+    }
+
+    private static int maxShardOrdinal(int maxOrdinal, int shardNumber, int shardOrdinalShift) {
+        return maxOrdinal < shardNumber ? -1 : (maxOrdinal - shardNumber) >> shardOrdinalShift;
+    }
+
+    private static GapEncodedVariableLengthIntegerReader[] reshardOrdinals(GapEncodedVariableLengthIntegerReader fromOrdinals[],
+            int toNumShards, ArraySegmentRecycler memoryRecycler) {
+        GapEncodedVariableLengthIntegerReader ordinals[] = new GapEncodedVariableLengthIntegerReader[toNumShards];
+
+        boolean anyOrdinals = false;
+        for(GapEncodedVariableLengthIntegerReader reader : fromOrdinals)
+            anyOrdinals |= reader != null;
+        if(!anyOrdinals)
+            return ordinals;
+
+        ByteDataArray encoded[] = new ByteDataArray[toNumShards];
+        int previousShardOrdinal[] = new int[toNumShards];
+        for(int i=0;i<toNumShards;i++)
+            encoded[i] = new ByteDataArray(memoryRecycler);
+
+        int toShardOrdinalShift = 31 - Integer.numberOfLeadingZeros(toNumShards);
+        BitSet globalOrdinals = globalOrdinals(fromOrdinals);
+
+        int ordinal = globalOrdinals.nextSetBit(0);
+        while(ordinal != -1) {
+            int shard = ordinal & (toNumShards - 1);
+            int shardOrdinal = ordinal >> toShardOrdinalShift;
+            VarInt.writeVInt(encoded[shard], shardOrdinal - previousShardOrdinal[shard]);
+            previousShardOrdinal[shard] = shardOrdinal;
+            ordinal = globalOrdinals.nextSetBit(ordinal + 1);
+        }
+
+        for(int i=0;i<toNumShards;i++)
+            ordinals[i] = new GapEncodedVariableLengthIntegerReader(encoded[i].getUnderlyingArray(), (int)encoded[i].length());
+
+        return ordinals;
+    }
+
+    private static BitSet globalOrdinals(GapEncodedVariableLengthIntegerReader shardOrdinals[]) {
+        int numShards = shardOrdinals.length;
+        int shardOrdinalShift = 31 - Integer.numberOfLeadingZeros(numShards);
+        BitSet ordinals = new BitSet();
+
+        for(int i=0;i<numShards;i++) {
+            GapEncodedVariableLengthIntegerReader reader = shardOrdinals[i];
+            if(reader == null)
+                continue;
+
+            reader.reset();
+            while(reader.nextElement() != Integer.MAX_VALUE) {
+                ordinals.set((reader.nextElement() << shardOrdinalShift) | i);
+                reader.advance();
+            }
+            reader.reset();
+        }
+
+        return ordinals;
+    }
+}
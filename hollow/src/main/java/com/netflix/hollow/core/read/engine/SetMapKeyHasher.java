@@ -16,6 +16,7 @@
  */
 package com.netflix.hollow.core.read.engine;
 
+import com.netflix.hollow.core.index.key.HollowPrimaryKeyValueDeriver;
 import com.netflix.hollow.core.memory.encoding.HashCodes;
 import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
 
@@ -75,4 +76,48 @@ public class SetMapKeyHasher {
         }
     }
 
+    /**
+     * Derive the fingerprint of a key from its hash code.  The low bits of the hash code select the bucket at which a
+     * lookup starts, so the fingerprint is taken from the high bits.  Fingerprints are never 0, which is reserved for
+     * buckets whose fingerprint is unknown.
+     *
+     * @param hashCode the hash code of the key
+     * @return the fingerprint
+     */
+    public static byte fingerprint(int hashCode) {
+        byte fingerprint = (byte)(hashCode >>> 24);
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    /**
+     * Derive the fingerprint of the key of a record.
+     *
+     * @param keyDeriver the deriver of the hash key of the record's type
+     * @param ordinal the ordinal of the record
+     * @return the fingerprint, or 0 if any of the key's fields is null
+     */
+    public static byte fingerprint(HollowPrimaryKeyValueDeriver keyDeriver, int ordinal) {
+        Object key[] = keyDeriver.getRecordKey(ordinal);
+        for(int i=0;i<key.length;i++) {
+            if(key[i] == null)
+                return 0;
+        }
+        return fingerprint(hash(key, keyDeriver.getFieldTypes()));
+    }
+
+    /**
+     * Determine whether the key in a bucket may match a key with the given fingerprint, without reading the key.
+     *
+     * @param keyFingerprints the fingerprint of the key in each bucket, or null if the keys are not fingerprinted
+     * @param bucket the absolute index of the bucket
+     * @param fingerprint the fingerprint of the key
+     * @return false if the key in the bucket does not match, or true if it may
+     */
+    public static boolean mayMatch(byte keyFingerprints[], long bucket, byte fingerprint) {
+        if(keyFingerprints == null)
+            return true;
+        byte bucketFingerprint = keyFingerprints[(int)bucket];
+        return bucketFingerprint == fingerprint || bucketFingerprint == 0;
+    }
+
 }
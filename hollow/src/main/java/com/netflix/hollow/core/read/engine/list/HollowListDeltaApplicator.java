@@ -54,7 +54,9 @@ class HollowListDeltaApplicator {
         removalsReader.reset();
         additionsReader.reset();
 
-        target.encodedRemovals = delta.encodedRemovals;
+        /// an ordinal which is removed and added by the same delta is populated in the target state, and so must not
+        /// be removed when the next delta is applied; this only occurs for deltas squashed from a chain of deltas
+        target.encodedRemovals = delta.encodedRemovals.without(delta.encodedAdditions, target.memoryRecycler);
 
         target.maxOrdinal = delta.maxOrdinal;
         target.totalNumberOfElements = delta.totalNumberOfElements;
@@ -132,13 +134,13 @@ class HollowListDeltaApplicator {
 
         if(i <= from.maxOrdinal) {
             long fromDataEndElement = from.listPointerData.getElementValue(currentFromStateCopyStartBit, from.bitsPerListPointer);
-            if(!removeData) {
+            if(!removeData && !addFromDelta) {
                 for(long elementIdx=currentFromStateStartElement; elementIdx<fromDataEndElement; elementIdx++) {
                     long elementOrdinal = from.elementData.getElementValue(elementIdx * from.bitsPerElement, from.bitsPerElement);
                     target.elementData.setElementValue(currentWriteStartElement * target.bitsPerElement, target.bitsPerElement, elementOrdinal);
                     currentWriteStartElement++;
                 }
-            } else {
+            } else if(removeData) {
                 removalsReader.advance();
             }
 
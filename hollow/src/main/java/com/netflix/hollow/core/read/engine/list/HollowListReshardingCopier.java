@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine.list;
+
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import com.netflix.hollow.core.read.engine.ReshardingPlan;
+
+/**
+ * This class contains the logic for copying the records of a LIST type, held in some number of shards, into one
+ * shard of a different number of shards.
+ *
+ * Not intended for external consumption.
+ */
+class HollowListReshardingCopier {
+
+    private final HollowListTypeDataElements from[];
+    private final HollowListTypeDataElements target;
+
+    HollowListReshardingCopier(HollowListTypeDataElements from[], HollowListTypeDataElements target) {
+        this.from = from;
+        this.target = target;
+    }
+
+    /**
+     * Copies the records planned for a new shard of a type state.  The max ordinal and the removals of the target are
+     * not set.
+     */
+    void copyRecords(ReshardingPlan plan, int shardNumber) {
+        copyRecords(plan, shardNumber, -1);
+    }
+
+    /**
+     * Copies the records planned for a new shard of a delta, which is applied to the given data.  The max ordinal, and
+     * the removals and additions, of the target are not set.
+     * <p>
+     * The element count of a delta is the element count of the state it produces, so it is counted for the new shard.
+     */
+    void copyDeltaRecords(ReshardingPlan plan, int shardNumber, HollowListTypeDataElements fromState) {
+        copyRecords(plan, shardNumber, totalNumberOfElementsAfterDelta(plan, shardNumber, fromState));
+    }
+
+    private void copyRecords(ReshardingPlan plan, int shardNumber, long totalNumberOfElementsAfterDelta) {
+        int sourceShards[] = plan.getSourceShards(shardNumber);
+        int sourceRecords[] = plan.getSourceRecords(shardNumber);
+
+        long numberOfCopiedElements = 0;
+        for(int j=0;j<sourceRecords.length;j++)
+            numberOfCopiedElements += size(from[sourceShards[j]], sourceRecords[j]);
+
+        target.bitsPerElement = 0;
+        target.bitsPerListPointer = 0;
+        for(HollowListTypeDataElements source : from) {
+            target.bitsPerElement = Math.max(target.bitsPerElement, source.bitsPerElement);
+            target.bitsPerListPointer = Math.max(target.bitsPerListPointer, source.bitsPerListPointer);
+        }
+        target.totalNumberOfElements = totalNumberOfElementsAfterDelta == -1 ? numberOfCopiedElements : totalNumberOfElementsAfterDelta;
+        target.bitsPerListPointer = Math.max(target.bitsPerListPointer, bitsRequired(Math.max(numberOfCopiedElements, target.totalNumberOfElements)));
+
+        target.listPointerData = new FixedLengthElementArray(target.memoryRecycler, (long)sourceRecords.length * target.bitsPerListPointer);
+        target.elementData = new FixedLengthElementArray(target.memoryRecycler, numberOfCopiedElements * target.bitsPerElement);
+
+        long currentWriteStartElement = 0;
+        for(int j=0;j<sourceRecords.length;j++) {
+            HollowListTypeDataElements source = from[sourceShards[j]];
+            long startElement = startElement(source, sourceRecords[j]);
+            long endElement = endElement(source, sourceRecords[j]);
+
+            for(long elementIdx=startElement;elementIdx<endElement;elementIdx++) {
+                long elementOrdinal = source.elementData.getElementValue(elementIdx * source.bitsPerElement, source.bitsPerElement);
+                target.elementData.setElementValue(currentWriteStartElement * target.bitsPerElement, target.bitsPerElement, elementOrdinal);
+                currentWriteStartElement++;
+            }
+
+            target.listPointerData.setElementValue((long)j * target.bitsPerListPointer, target.bitsPerListPointer, currentWriteStartElement);
+        }
+    }
+
+    /**
+     * Counts the elements which the delta application retains from the current state or adds from the delta, in the
+     * same manner as the {@link HollowListDeltaApplicator}.
+     */
+    private long totalNumberOfElementsAfterDelta(ReshardingPlan plan, int shardNumber, HollowListTypeDataElements fromState) {
+        int sourceShards[] = plan.getSourceShards(shardNumber);
+        int sourceRecords[] = plan.getSourceRecords(shardNumber);
+        GapEncodedVariableLengthIntegerReader additions = plan.getAdditions(shardNumber);
+        GapEncodedVariableLengthIntegerReader removals = fromState.encodedRemovals == null ? GapEncodedVariableLengthIntegerReader.EMPTY_READER : fromState.encodedRemovals;
+        additions.reset();
+        removals.reset();
+
+        long totalNumberOfElements = 0;
+        int addedRecord = 0;
+        for(int i=0;i<=plan.getMaxShardOrdinal(shardNumber);i++) {
+            boolean removed = removals.nextElement() == i;
+            if(additions.nextElement() == i) {
+                totalNumberOfElements += size(from[sourceShards[addedRecord]], sourceRecords[addedRecord]);
+                addedRecord++;
+                additions.advance();
+            } else if(i <= fromState.maxOrdinal && !removed) {
+                totalNumberOfElements += size(fromState, i);
+            }
+            if(removed)
+                removals.advance();
+        }
+
+        additions.reset();
+        removals.reset();
+        return totalNumberOfElements;
+    }
+
+    private static long size(HollowListTypeDataElements data, int record) {
+        return endElement(data, record) - startElement(data, record);
+    }
+
+    private static long startElement(HollowListTypeDataElements data, int record) {
+        return record == 0 ? 0 : endElement(data, record - 1);
+    }
+
+    private static long endElement(HollowListTypeDataElements data, int record) {
+        return data.listPointerData.getElementValue((long)record * data.bitsPerListPointer, data.bitsPerListPointer);
+    }
+
+    private static int bitsRequired(long value) {
+        return value == 0 ? 1 : 64 - Long.numberOfLeadingZeros(value);
+    }
+}
@@ -19,7 +19,9 @@ package com.netflix.hollow.core.read.engine.list;
 import com.netflix.hollow.core.memory.FixedLengthData;
 import com.netflix.hollow.core.memory.FixedLengthDataFactory;
 import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.SharedMemoryFile;
 import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import com.netflix.hollow.core.memory.encoding.OffHeapElementArray;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
@@ -35,6 +37,10 @@ public class HollowListTypeDataElements {
 
     int maxOrdinal;
 
+    /// the generation which produced this data, and the data it replaced while a read view may still read that data
+    long generation;
+    HollowListTypeDataElements previous;
+
     FixedLengthData listPointerData;
     FixedLengthData elementData;
 
@@ -109,6 +115,55 @@ public class HollowListTypeDataElements {
         new HollowListDeltaApplicator(fromData, deltaData, this).applyDelta();
     }
 
+    /**
+     * Touches the data if it is mapped from shared memory, so that it is resident in main memory before it is first read.
+     */
+    void warmUp() {
+        FixedLengthDataFactory.warmUp(listPointerData);
+        FixedLengthDataFactory.warmUp(elementData);
+    }
+
+    /**
+     * Moves the data which a delta application produced on the heap off of the heap, into shared memory or into the
+     * slabs of an off-heap state engine, depending on the memory mode.
+     */
+    void moveOffHeap() throws IOException {
+        if(memoryMode.isSharedMemory()) {
+            moveToSharedMemory();
+            return;
+        }
+
+        FixedLengthData heapListPointerData = listPointerData;
+        FixedLengthData heapElementData = elementData;
+
+        listPointerData = OffHeapElementArray.copyOf(heapListPointerData, ((long)maxOrdinal + 1) * bitsPerListPointer, memoryRecycler);
+        elementData = OffHeapElementArray.copyOf(heapElementData, totalNumberOfElements * bitsPerElement, memoryRecycler);
+
+        FixedLengthDataFactory.destroy(heapListPointerData, memoryRecycler);
+        FixedLengthDataFactory.destroy(heapElementData, memoryRecycler);
+    }
+
+    /**
+     * Moves the data which a delta application produced on the heap into shared memory, by writing it to a file which
+     * is mapped in place of the on-heap arrays.
+     */
+    private void moveToSharedMemory() throws IOException {
+        FixedLengthData heapListPointerData = listPointerData;
+        FixedLengthData heapElementData = elementData;
+
+        try(SharedMemoryFile file = SharedMemoryFile.create()) {
+            file.write(heapListPointerData, ((long)maxOrdinal + 1) * bitsPerListPointer);
+            file.write(heapElementData, totalNumberOfElements * bitsPerElement);
+
+            HollowBlobInput in = file.map(memoryMode);
+            listPointerData = FixedLengthDataFactory.get(in, memoryMode, memoryRecycler);
+            elementData = FixedLengthDataFactory.get(in, memoryMode, memoryRecycler);
+        }
+
+        FixedLengthDataFactory.destroy(heapListPointerData, memoryRecycler);
+        FixedLengthDataFactory.destroy(heapElementData, memoryRecycler);
+    }
+
     public void destroy() {
         FixedLengthDataFactory.destroy(listPointerData, memoryRecycler);
         FixedLengthDataFactory.destroy(elementData, memoryRecycler);
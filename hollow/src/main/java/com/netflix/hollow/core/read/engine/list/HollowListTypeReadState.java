@@ -21,6 +21,7 @@ import com.netflix.hollow.api.sampling.HollowListSampler;
 import com.netflix.hollow.api.sampling.HollowSampler;
 import com.netflix.hollow.api.sampling.HollowSamplingDirector;
 import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
@@ -29,6 +30,7 @@ import com.netflix.hollow.core.read.engine.HollowCollectionTypeReadState;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
+import com.netflix.hollow.core.read.engine.ReshardingPlan;
 import com.netflix.hollow.core.read.engine.SnapshotPopulatedOrdinalsReader;
 import com.netflix.hollow.core.read.filter.HollowFilterConfig;
 import com.netflix.hollow.core.read.iterator.HollowListOrdinalIterator;
@@ -38,6 +40,8 @@ import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.IOException;
 import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * A {@link HollowTypeReadState} for LIST type records.
@@ -46,9 +50,7 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
 
     private final HollowListSampler sampler;
     
-    private final int shardNumberMask;
-    private final int shardOrdinalShift;
-    private final HollowListTypeReadStateShard shards[];
+    private volatile ShardsHolder shardsVolatile;
     
     private int maxOrdinal;
 
@@ -59,21 +61,20 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
     public HollowListTypeReadState(HollowReadStateEngine stateEngine, MemoryMode memoryMode, HollowListSchema schema, int numShards) {
         super(stateEngine, memoryMode, schema);
         this.sampler = new HollowListSampler(schema.getName(), DisabledSamplingDirector.INSTANCE);
-        this.shardNumberMask = numShards - 1;
-        this.shardOrdinalShift = 31 - Integer.numberOfLeadingZeros(numShards);
-        
-        if(numShards < 1 || 1 << shardOrdinalShift != numShards)
+
+        if(numShards < 1 || Integer.bitCount(numShards) != 1)
             throw new IllegalArgumentException("Number of shards must be a power of 2!");
         
         HollowListTypeReadStateShard shards[] = new HollowListTypeReadStateShard[numShards];
         for(int i=0;i<shards.length;i++)
-            shards[i] = new HollowListTypeReadStateShard();
+            shards[i] = new HollowListTypeReadStateShard(getReadViews());
         
-        this.shards = shards;
+        this.shardsVolatile = new ShardsHolder(shards);
     }
 
     @Override
     public void readSnapshot(HollowBlobInput in, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
         if(shards.length > 1)
             maxOrdinal = VarInt.readVInt(in);
         
@@ -90,27 +91,197 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
     }
 
     @Override
-    public void applyDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler) throws IOException {
+    public void applyDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler, int deltaNumShards) throws IOException {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
+        int deltaMaxOrdinal = deltaNumShards > 1 ? VarInt.readVInt(in) : -1;
+
+        if(deltaNumShards != shards.length) {
+            HollowListTypeDataElements deltaData[] = readReshardedDelta(in, shards, memoryRecycler, deltaNumShards, deltaMaxOrdinal);
+            for(int i=0;i<shards.length;i++)
+                applyDelta(shards, i, deltaData[i], memoryRecycler);
+            maxOrdinal = maxOrdinal(deltaData);
+            return;
+        }
+
         if(shards.length > 1)
-            maxOrdinal = VarInt.readVInt(in);
+            maxOrdinal = deltaMaxOrdinal;
 
-        for(int i=0; i<shards.length; i++) {
+        for(int i=0;i<shards.length;i++) {
             HollowListTypeDataElements deltaData = new HollowListTypeDataElements(memoryMode, memoryRecycler);
-            HollowListTypeDataElements nextData = new HollowListTypeDataElements(memoryMode, memoryRecycler);
             deltaData.readDelta(in);
-            HollowListTypeDataElements oldData = shards[i].currentDataElements();
-            nextData.applyDelta(oldData, deltaData);
-            shards[i].setCurrentData(nextData);
-            notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, i, shards.length);
-            deltaData.destroy();
-            oldData.destroy();
-            stateEngine.getMemoryRecycler().swap();
+            applyDelta(shards, i, deltaData, memoryRecycler);
         }
 
         if(shards.length == 1)
             maxOrdinal = shards[0].currentDataElements().maxOrdinal;
     }
 
+    private void applyDelta(HollowListTypeReadStateShard shards[], int shardNumber, HollowListTypeDataElements deltaData, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowListTypeDataElements nextData = new HollowListTypeDataElements(memoryMode, memoryRecycler);
+        HollowListTypeDataElements oldData = shards[shardNumber].currentDataElements();
+        nextData.applyDelta(oldData, deltaData);
+        if(memoryMode != MemoryMode.ON_HEAP)
+            nextData.moveOffHeap();
+        shards[shardNumber].updateCurrentData(nextData);
+        notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, shardNumber, shards.length);
+        deltaData.destroy();
+        shards[shardNumber].retireData(oldData, nextData);
+        stateEngine.getMemoryRecycler().swap();
+    }
+
+    @Override
+    public Runnable stageDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler, Executor executor, int deltaNumShards) throws IOException {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
+        int deltaMaxOrdinal = deltaNumShards > 1 ? VarInt.readVInt(in) : -1;
+
+        HollowListTypeDataElements deltaData[] = deltaNumShards != shards.length ?
+                readReshardedDelta(in, shards, memoryRecycler, deltaNumShards, deltaMaxOrdinal)
+                : new HollowListTypeDataElements[shards.length];
+        HollowListTypeDataElements nextData[] = new HollowListTypeDataElements[shards.length];
+
+        for(int i=0;i<shards.length;i++) {
+            if(deltaData[i] == null) {
+                deltaData[i] = new HollowListTypeDataElements(memoryMode, memoryRecycler);
+                deltaData[i].readDelta(in);
+            }
+            HollowListTypeDataElements shardDeltaData = deltaData[i];
+            HollowListTypeDataElements shardNextData = new HollowListTypeDataElements(memoryMode, memoryRecycler);
+            HollowListTypeDataElements oldData = shards[i].currentDataElements();
+            executor.execute(() -> shardNextData.applyDelta(oldData, shardDeltaData));
+            nextData[i] = shardNextData;
+        }
+
+        int nextMaxOrdinal = deltaNumShards != shards.length || shards.length == 1 ? maxOrdinal(deltaData) : deltaMaxOrdinal;
+
+        return () -> {
+            for(int i=0;i<shards.length;i++) {
+                HollowListTypeDataElements oldData = shards[i].currentDataElements();
+                shards[i].updateCurrentData(nextData[i]);
+                notifyListenerAboutDeltaChanges(deltaData[i].encodedRemovals, deltaData[i].encodedAdditions, i, shards.length);
+                deltaData[i].destroy();
+                shards[i].retireData(oldData, nextData[i]);
+            }
+
+            maxOrdinal = nextMaxOrdinal;
+        };
+    }
+
+    @Override
+    public long readSnapshotInPlace(HollowBlobInput in, ArraySegmentRecycler memoryRecycler, int snapshotNumShards) throws IOException {
+        HollowListTypeReadState snapshotState = new HollowListTypeReadState(stateEngine, memoryMode, getSchema(), snapshotNumShards);
+        PopulatedOrdinalListener snapshotOrdinals = new PopulatedOrdinalListener();
+        snapshotState.addListener(snapshotOrdinals);
+        snapshotState.readSnapshot(in, memoryRecycler);
+        long transientBytes = snapshotState.getApproximateHeapFootprintInBytes();
+
+        HollowListTypeDataElements snapshotData[] = snapshotState.currentDataElements();
+        if(snapshotNumShards != numShards()) {
+            snapshotState.reshard(numShards());
+            transientBytes += snapshotState.getApproximateHeapFootprintInBytes();
+            for(int i=0;i<snapshotData.length;i++)
+                snapshotData[i].destroy();
+            snapshotData = snapshotState.currentDataElements();
+        }
+
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
+        BitSet previousOrdinals = (BitSet)getPopulatedOrdinals().clone();
+        for(int i=0;i<shards.length;i++) {
+            HollowListTypeDataElements oldData = shards[i].currentDataElements();
+            shards[i].updateCurrentData(snapshotData[i]);
+            shards[i].retireData(oldData, snapshotData[i]);
+        }
+
+        maxOrdinal = snapshotState.maxOrdinal;
+        notifyListenerAboutSnapshotChanges(previousOrdinals, snapshotOrdinals.getPopulatedOrdinals());
+        return transientBytes;
+    }
+
+    /**
+     * Reads the shards of a delta which was written with a different number of shards than this type state has, and
+     * copies their records into a delta for each shard of this type state.
+     */
+    private HollowListTypeDataElements[] readReshardedDelta(HollowBlobInput in, HollowListTypeReadStateShard shards[], ArraySegmentRecycler memoryRecycler, int deltaNumShards, int deltaMaxOrdinal) throws IOException {
+        HollowListTypeDataElements deltaData[] = new HollowListTypeDataElements[deltaNumShards];
+        GapEncodedVariableLengthIntegerReader removals[] = new GapEncodedVariableLengthIntegerReader[deltaNumShards];
+        GapEncodedVariableLengthIntegerReader additions[] = new GapEncodedVariableLengthIntegerReader[deltaNumShards];
+        for(int i=0;i<deltaNumShards;i++) {
+            deltaData[i] = new HollowListTypeDataElements(memoryMode, memoryRecycler);
+            deltaData[i].readDelta(in);
+            removals[i] = deltaData[i].encodedRemovals;
+            additions[i] = deltaData[i].encodedAdditions;
+        }
+
+        if(deltaNumShards == 1)
+            deltaMaxOrdinal = deltaData[0].maxOrdinal;
+
+        ReshardingPlan plan = ReshardingPlan.forDelta(deltaNumShards, shards.length, deltaMaxOrdinal, removals, additions, memoryRecycler);
+        HollowListTypeDataElements reshardedDeltaData[] = new HollowListTypeDataElements[shards.length];
+        for(int i=0;i<shards.length;i++) {
+            reshardedDeltaData[i] = new HollowListTypeDataElements(MemoryMode.ON_HEAP, memoryRecycler);
+            new HollowListReshardingCopier(deltaData, reshardedDeltaData[i]).copyDeltaRecords(plan, i, shards[i].currentDataElements());
+            reshardedDeltaData[i].maxOrdinal = plan.getMaxShardOrdinal(i);
+            reshardedDeltaData[i].encodedRemovals = plan.getRemovals(i);
+            reshardedDeltaData[i].encodedAdditions = plan.getAdditions(i);
+        }
+
+        for(int i=0;i<deltaNumShards;i++) {
+            deltaData[i].destroy();
+            removals[i].destroy();
+            additions[i].destroy();
+        }
+
+        return reshardedDeltaData;
+    }
+
+    /**
+     * Copies the records of this type state into the given number of shards.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     *
+     * @param numShards the new number of shards, a power of 2
+     * @throws IOException if the data could not be moved into shared memory
+     */
+    @Override
+    public void reshard(int numShards) throws IOException {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
+        if(numShards < 1 || Integer.bitCount(numShards) != 1)
+            throw new IllegalArgumentException("Number of shards must be a power of 2!");
+        if(numShards == shards.length)
+            return;
+
+        ArraySegmentRecycler memoryRecycler = stateEngine.getMemoryRecycler();
+        HollowListTypeDataElements currentData[] = currentDataElements();
+        GapEncodedVariableLengthIntegerReader removals[] = new GapEncodedVariableLengthIntegerReader[currentData.length];
+        for(int i=0;i<currentData.length;i++)
+            removals[i] = currentData[i].encodedRemovals;
+
+        ReshardingPlan plan = ReshardingPlan.forState(shards.length, numShards, maxOrdinal, removals, memoryRecycler);
+        HollowListTypeReadStateShard reshardedShards[] = new HollowListTypeReadStateShard[numShards];
+        for(int i=0;i<numShards;i++) {
+            HollowListTypeDataElements data = new HollowListTypeDataElements(memoryMode, memoryRecycler);
+            new HollowListReshardingCopier(currentData, data).copyRecords(plan, i);
+            data.maxOrdinal = plan.getMaxShardOrdinal(i);
+            data.encodedRemovals = plan.getRemovals(i);
+            if(memoryMode != MemoryMode.ON_HEAP)
+                data.moveOffHeap();
+            data.generation = getReadViews().getGeneration();
+            reshardedShards[i] = new HollowListTypeReadStateShard(getReadViews());
+            reshardedShards[i].setCurrentData(data);
+        }
+
+        /// the prior data is not destroyed, since it may still be read by a thread which located a prior shard
+        shardsVolatile = new ShardsHolder(reshardedShards);
+    }
+
+    private static int maxOrdinal(HollowListTypeDataElements shardData[]) {
+        int maxOrdinal = -1;
+        for(int i=0;i<shardData.length;i++) {
+            if(shardData[i].maxOrdinal != -1)
+                maxOrdinal = Math.max(maxOrdinal, shardData[i].maxOrdinal * shardData.length + i);
+        }
+        return maxOrdinal;
+    }
+
     public static void discardSnapshot(HollowBlobInput in, int numShards) throws IOException {
         discardType(in, numShards, false);
     }
@@ -138,13 +309,15 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
     @Override
     public int getElementOrdinal(int ordinal, int listIndex) {
         sampler.recordGet();
-        return shards[ordinal & shardNumberMask].getElementOrdinal(ordinal >> shardOrdinalShift, listIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].getElementOrdinal(ordinal >> shardsHolder.shardOrdinalShift, listIndex);
     }
 
     @Override
     public int size(int ordinal) {
         sampler.recordSize();
-        return shards[ordinal & shardNumberMask].size(ordinal >> shardOrdinalShift);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].size(ordinal >> shardsHolder.shardOrdinalShift);
     }
 
     @Override
@@ -176,12 +349,14 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
 
     @Override
     protected void invalidate() {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
         stateListeners = EMPTY_LISTENERS;
         for(int i=0;i<shards.length;i++)
             shards[i].invalidate();
     }
 
     HollowListTypeDataElements[] currentDataElements() {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
         HollowListTypeDataElements currentDataElements[] = new HollowListTypeDataElements[shards.length];
         
         for(int i=0; i<shards.length; i++)
@@ -191,6 +366,7 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
     }
 
     void setCurrentData(HollowListTypeDataElements data) {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
         if(shards.length > 1)
             throw new UnsupportedOperationException("Cannot directly set data on sharded type state");
         shards[0].setCurrentData(data);
@@ -199,6 +375,7 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
 
     @Override
     protected void applyToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
         if(!getSchema().equals(withSchema))
             throw new IllegalArgumentException("HollowListTypeReadState cannot calculate checksum with unequal schemas: " + getSchema().getName());
         
@@ -210,6 +387,7 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
 
 	@Override
 	public long getApproximateHeapFootprintInBytes() {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
         long totalApproximateHeapFootprintInBytes = 0;
         
         for(int i=0; i<shards.length; i++)
@@ -220,6 +398,7 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
 	
 	@Override
     public long getApproximateHoleCostInBytes() {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
         long totalApproximateHoleCostInBytes = 0;
         
         BitSet populatedOrdinals = getPopulatedOrdinals();
@@ -232,7 +411,31 @@ public class HollowListTypeReadState extends HollowCollectionTypeReadState imple
 
     @Override
     public int numShards() {
-        return shards.length;
+        return shardsVolatile.shards.length;
     }
 
+    @Override
+    public void warmUp(Set<String> fieldNames) {
+        HollowListTypeReadStateShard shards[] = shardsVolatile.shards;
+        if(memoryMode == MemoryMode.ON_HEAP)
+            return;
+        for(int i=0;i<shards.length;i++)
+            shards[i].currentDataElements().warmUp();
+    }
+
+    /**
+     * The shards of this type state, which are replaced together with the masks that locate an ordinal among them
+     * when this type state is resharded.
+     */
+    private static final class ShardsHolder {
+        final HollowListTypeReadStateShard shards[];
+        final int shardNumberMask;
+        final int shardOrdinalShift;
+
+        ShardsHolder(HollowListTypeReadStateShard shards[]) {
+            this.shards = shards;
+            this.shardNumberMask = shards.length - 1;
+            this.shardOrdinalShift = 31 - Integer.numberOfLeadingZeros(shards.length);
+        }
+    }
 }
@@ -19,6 +19,7 @@ package com.netflix.hollow.core.read.engine.list;
 import static com.netflix.hollow.core.HollowConstants.ORDINAL_NONE;
 
 import com.netflix.hollow.core.memory.HollowUnsafeHandle;
+import com.netflix.hollow.core.read.engine.HollowReadViews;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.util.BitSet;
 
@@ -26,6 +27,12 @@ class HollowListTypeReadStateShard {
 
     private volatile HollowListTypeDataElements currentDataVolatile;
 
+    private final HollowReadViews readViews;
+
+    HollowListTypeReadStateShard(HollowReadViews readViews) {
+        this.readViews = readViews;
+    }
+
     public int getElementOrdinal(int ordinal, int listIndex) {
         HollowListTypeDataElements currentData;
         int elementOrdinal;
@@ -35,7 +42,7 @@ class HollowListTypeReadStateShard {
             long endElement;
 
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 if (ordinal == 0) {
                     startElement = 0;
@@ -64,7 +71,7 @@ class HollowListTypeReadStateShard {
         int size;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
 
             long startElement;
             long endElement;
@@ -94,13 +101,52 @@ class HollowListTypeReadStateShard {
 
     private boolean readWasUnsafe(HollowListTypeDataElements data) {
         HollowUnsafeHandle.getUnsafe().loadFence();
-        return data != currentDataVolatile;
+        /// data read through a pinned read view is retained until the view is closed
+        return data != currentDataVolatile && readViews.getPinnedGeneration() == HollowReadViews.NO_PINNED_GENERATION;
     }
 
     void setCurrentData(HollowListTypeDataElements data) {
         this.currentDataVolatile = data;
     }
 
+    /**
+     * Replaces the current data with the data produced by a delta.  While read views are enabled, the replaced data
+     * remains readable through the next data by the views of prior generations.
+     */
+    void updateCurrentData(HollowListTypeDataElements nextData) {
+        if(readViews.isEnabled()) {
+            nextData.generation = readViews.getNextGeneration();
+            nextData.previous = this.currentDataVolatile;
+        }
+        this.currentDataVolatile = nextData;
+    }
+
+    /**
+     * Retires the data replaced by a delta, which is destroyed once no read view can read it.
+     */
+    void retireData(HollowListTypeDataElements oldData, HollowListTypeDataElements nextData) {
+        readViews.retire(() -> nextData.previous = null, oldData::destroy);
+    }
+
+    /**
+     * @return the current data or, on a thread which has pinned a read view, the newest data which is not newer than
+     *         the view
+     */
+    private HollowListTypeDataElements readData() {
+        HollowListTypeDataElements data = this.currentDataVolatile;
+        HollowListTypeDataElements previous = data.previous;
+        if(previous != null) {
+            long pinnedGeneration = readViews.getPinnedGeneration();
+            if(pinnedGeneration != HollowReadViews.NO_PINNED_GENERATION) {
+                while(data.generation > pinnedGeneration && previous != null) {
+                    data = previous;
+                    previous = data.previous;
+                }
+            }
+        }
+        return data;
+    }
+
     protected void applyToChecksum(HollowChecksum checksum, BitSet populatedOrdinals, int shardNumber, int numShards) {
         int ordinal = populatedOrdinals.nextSetBit(shardNumber);
         while(ordinal != ORDINAL_NONE) {
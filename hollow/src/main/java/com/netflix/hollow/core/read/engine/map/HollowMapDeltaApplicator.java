@@ -18,6 +18,7 @@ package com.netflix.hollow.core.read.engine.map;
 
 import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
 import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import java.util.BitSet;
 
 /**
  * This class contains the logic for applying a delta to a current MAP type state
@@ -54,7 +55,9 @@ class HollowMapDeltaApplicator {
         removalsReader.reset();
         additionsReader.reset();
 
-        target.encodedRemovals = delta.encodedRemovals;
+        /// an ordinal which is removed and added by the same delta is populated in the target state, and so must not
+        /// be removed when the next delta is applied; this only occurs for deltas squashed from a chain of deltas
+        target.encodedRemovals = delta.encodedRemovals.without(delta.encodedAdditions, target.memoryRecycler);
 
         target.maxOrdinal = delta.maxOrdinal;
 
@@ -70,6 +73,13 @@ class HollowMapDeltaApplicator {
         target.mapPointerAndSizeData = new FixedLengthElementArray(target.memoryRecycler, ((long)target.maxOrdinal + 1) * target.bitsPerFixedLengthMapPortion);
         target.entryData = new FixedLengthElementArray(target.memoryRecycler, target.totalNumberOfBuckets * target.bitsPerMapEntry);
 
+        /// the fingerprints of the retained maps are carried over, and those of the added maps are derived once the
+        /// delta has been applied to every type
+        if(from.keyFingerprints != null && target.canFingerprintKeys()) {
+            target.keyFingerprints = new byte[(int)target.totalNumberOfBuckets];
+            target.unfingerprintedOrdinals = new BitSet();
+        }
+
         if(target.bitsPerMapPointer == from.bitsPerMapPointer
                 && target.bitsPerMapSizeValue == from.bitsPerMapSizeValue
                 && target.bitsPerKeyElement == from.bitsPerKeyElement
@@ -126,6 +136,8 @@ class HollowMapDeltaApplicator {
         long bitsToCopy = bucketsToCopy * from.bitsPerMapEntry;
 
         target.entryData.copyBits(from.entryData, currentFromStateStartBucket * from.bitsPerMapEntry, currentWriteStartBucket * from.bitsPerMapEntry, bitsToCopy);
+        if(target.keyFingerprints != null)
+            System.arraycopy(from.keyFingerprints, (int)currentFromStateStartBucket, target.keyFingerprints, (int)currentWriteStartBucket, (int)bucketsToCopy);
 
         currentFromStateStartBucket += bucketsToCopy;
         currentWriteStartBucket += bucketsToCopy;
@@ -137,11 +149,13 @@ class HollowMapDeltaApplicator {
 
         if(addFromDelta) {
             addFromDelta(additionsReader);
+            if(target.unfingerprintedOrdinals != null)
+                target.unfingerprintedOrdinals.set(ordinal);
         }
 
         if(ordinal <= from.maxOrdinal) {
             long fromDataEndBucket = from.mapPointerAndSizeData.getElementValue(currentFromStateCopyStartBit, from.bitsPerMapPointer);
-            if(!removeData) {
+            if(!removeData && !addFromDelta) {
                 for(long bucketIdx=currentFromStateStartBucket; bucketIdx<fromDataEndBucket; bucketIdx++) {
                     long bucketKey = from.entryData.getElementValue(bucketIdx * from.bitsPerMapEntry, from.bitsPerKeyElement);
                     long bucketValue = from.entryData.getElementValue(bucketIdx * from.bitsPerMapEntry + from.bitsPerKeyElement, from.bitsPerValueElement);
@@ -150,11 +164,13 @@ class HollowMapDeltaApplicator {
                     long currentWriteStartBucketBit = currentWriteStartBucket * target.bitsPerMapEntry;
                     target.entryData.setElementValue(currentWriteStartBucketBit, target.bitsPerKeyElement, bucketKey);
                     target.entryData.setElementValue(currentWriteStartBucketBit + target.bitsPerKeyElement, target.bitsPerValueElement, bucketValue);
+                    if(target.keyFingerprints != null)
+                        target.keyFingerprints[(int)currentWriteStartBucket] = from.keyFingerprints[(int)bucketIdx];
                     currentWriteStartBucket++;
                 }
                 long fromDataSize = from.mapPointerAndSizeData.getElementValue(currentFromStateCopyStartBit + from.bitsPerMapPointer, from.bitsPerMapSizeValue);
                 target.mapPointerAndSizeData.setElementValue(currentWriteStartBit + target.bitsPerMapPointer, target.bitsPerMapSizeValue, fromDataSize);
-            } else {
+            } else if(removeData) {
                 removalsReader.advance();
             }
 
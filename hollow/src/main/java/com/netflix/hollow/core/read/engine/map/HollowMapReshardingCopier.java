@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine.map;
+
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import com.netflix.hollow.core.read.engine.ReshardingPlan;
+
+/**
+ * This class contains the logic for copying the records of a MAP type, held in some number of shards, into one
+ * shard of a different number of shards.
+ *
+ * Not intended for external consumption.
+ */
+class HollowMapReshardingCopier {
+
+    private final HollowMapTypeDataElements from[];
+    private final HollowMapTypeDataElements target;
+
+    HollowMapReshardingCopier(HollowMapTypeDataElements from[], HollowMapTypeDataElements target) {
+        this.from = from;
+        this.target = target;
+    }
+
+    /**
+     * Copies the records planned for a new shard of a type state.  The max ordinal and the removals of the target are
+     * not set.
+     */
+    void copyRecords(ReshardingPlan plan, int shardNumber) {
+        copyRecords(plan, shardNumber, -1);
+    }
+
+    /**
+     * Copies the records planned for a new shard of a delta, which is applied to the given data.  The max ordinal, and
+     * the removals and additions, of the target are not set.
+     * <p>
+     * The bucket count of a delta is the bucket count of the state it produces, so it is counted for the new shard.
+     */
+    void copyDeltaRecords(ReshardingPlan plan, int shardNumber, HollowMapTypeDataElements fromState) {
+        copyRecords(plan, shardNumber, totalNumberOfBucketsAfterDelta(plan, shardNumber, fromState));
+    }
+
+    private void copyRecords(ReshardingPlan plan, int shardNumber, long totalNumberOfBucketsAfterDelta) {
+        int sourceShards[] = plan.getSourceShards(shardNumber);
+        int sourceRecords[] = plan.getSourceRecords(shardNumber);
+
+        long numberOfCopiedBuckets = 0;
+        for(int j=0;j<sourceRecords.length;j++)
+            numberOfCopiedBuckets += numBuckets(from[sourceShards[j]], sourceRecords[j]);
+
+        target.bitsPerKeyElement = 0;
+        target.bitsPerValueElement = 0;
+        target.bitsPerMapSizeValue = 0;
+        target.bitsPerMapPointer = 0;
+        for(HollowMapTypeDataElements source : from) {
+            target.bitsPerKeyElement = Math.max(target.bitsPerKeyElement, source.bitsPerKeyElement);
+            target.bitsPerValueElement = Math.max(target.bitsPerValueElement, source.bitsPerValueElement);
+            target.bitsPerMapSizeValue = Math.max(target.bitsPerMapSizeValue, source.bitsPerMapSizeValue);
+            target.bitsPerMapPointer = Math.max(target.bitsPerMapPointer, source.bitsPerMapPointer);
+        }
+        target.totalNumberOfBuckets = totalNumberOfBucketsAfterDelta == -1 ? numberOfCopiedBuckets : totalNumberOfBucketsAfterDelta;
+        target.bitsPerMapPointer = Math.max(target.bitsPerMapPointer, bitsRequired(Math.max(numberOfCopiedBuckets, target.totalNumberOfBuckets)));
+        target.bitsPerFixedLengthMapPortion = target.bitsPerMapPointer + target.bitsPerMapSizeValue;
+        target.bitsPerMapEntry = target.bitsPerKeyElement + target.bitsPerValueElement;
+        target.emptyBucketKeyValue = (1 << target.bitsPerKeyElement) - 1;
+
+        target.mapPointerAndSizeData = new FixedLengthElementArray(target.memoryRecycler, (long)sourceRecords.length * target.bitsPerFixedLengthMapPortion);
+        target.entryData = new FixedLengthElementArray(target.memoryRecycler, numberOfCopiedBuckets * target.bitsPerMapEntry);
+
+        long currentWriteStartBucket = 0;
+        for(int j=0;j<sourceRecords.length;j++) {
+            HollowMapTypeDataElements source = from[sourceShards[j]];
+            long startBucket = startBucket(source, sourceRecords[j]);
+            long endBucket = endBucket(source, sourceRecords[j]);
+
+            for(long bucketIdx=startBucket;bucketIdx<endBucket;bucketIdx++) {
+                long bucketKey = source.entryData.getElementValue(bucketIdx * source.bitsPerMapEntry, source.bitsPerKeyElement);
+                long bucketValue = source.entryData.getElementValue(bucketIdx * source.bitsPerMapEntry + source.bitsPerKeyElement, source.bitsPerValueElement);
+                if(bucketKey == source.emptyBucketKeyValue)
+                    bucketKey = target.emptyBucketKeyValue;
+                long currentWriteStartBucketBit = currentWriteStartBucket * target.bitsPerMapEntry;
+                target.entryData.setElementValue(currentWriteStartBucketBit, target.bitsPerKeyElement, bucketKey);
+                target.entryData.setElementValue(currentWriteStartBucketBit + target.bitsPerKeyElement, target.bitsPerValueElement, bucketValue);
+                currentWriteStartBucket++;
+            }
+
+            long writeStartBit = (long)j * target.bitsPerFixedLengthMapPortion;
+            long size = source.mapPointerAndSizeData.getElementValue((long)sourceRecords[j] * source.bitsPerFixedLengthMapPortion + source.bitsPerMapPointer, source.bitsPerMapSizeValue);
+            target.mapPointerAndSizeData.setElementValue(writeStartBit, target.bitsPerMapPointer, currentWriteStartBucket);
+            target.mapPointerAndSizeData.setElementValue(writeStartBit + target.bitsPerMapPointer, target.bitsPerMapSizeValue, size);
+        }
+    }
+
+    /**
+     * Counts the buckets which the delta application retains from the current state or adds from the delta, in the
+     * same manner as the {@link HollowMapDeltaApplicator}.
+     */
+    private long totalNumberOfBucketsAfterDelta(ReshardingPlan plan, int shardNumber, HollowMapTypeDataElements fromState) {
+        int sourceShards[] = plan.getSourceShards(shardNumber);
+        int sourceRecords[] = plan.getSourceRecords(shardNumber);
+        GapEncodedVariableLengthIntegerReader additions = plan.getAdditions(shardNumber);
+        GapEncodedVariableLengthIntegerReader removals = fromState.encodedRemovals == null ? GapEncodedVariableLengthIntegerReader.EMPTY_READER : fromState.encodedRemovals;
+        additions.reset();
+        removals.reset();
+
+        long totalNumberOfBuckets = 0;
+        int addedRecord = 0;
+        for(int i=0;i<=plan.getMaxShardOrdinal(shardNumber);i++) {
+            boolean removed = removals.nextElement() == i;
+            if(additions.nextElement() == i) {
+                totalNumberOfBuckets += numBuckets(from[sourceShards[addedRecord]], sourceRecords[addedRecord]);
+                addedRecord++;
+                additions.advance();
+            } else if(i <= fromState.maxOrdinal && !removed) {
+                totalNumberOfBuckets += numBuckets(fromState, i);
+            }
+            if(removed)
+                removals.advance();
+        }
+
+        additions.reset();
+        removals.reset();
+        return totalNumberOfBuckets;
+    }
+
+    private static long numBuckets(HollowMapTypeDataElements data, int record) {
+        return endBucket(data, record) - startBucket(data, record);
+    }
+
+    private static long startBucket(HollowMapTypeDataElements data, int record) {
+        return record == 0 ? 0 : endBucket(data, record - 1);
+    }
+
+    private static long endBucket(HollowMapTypeDataElements data, int record) {
+        return data.mapPointerAndSizeData.getElementValue((long)record * data.bitsPerFixedLengthMapPortion, data.bitsPerMapPointer);
+    }
+
+    private static int bitsRequired(long value) {
+        return value == 0 ? 1 : 64 - Long.numberOfLeadingZeros(value);
+    }
+}
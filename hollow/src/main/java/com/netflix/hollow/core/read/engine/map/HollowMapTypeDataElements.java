@@ -19,11 +19,14 @@ package com.netflix.hollow.core.read.engine.map;
 import com.netflix.hollow.core.memory.FixedLengthData;
 import com.netflix.hollow.core.memory.FixedLengthDataFactory;
 import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.SharedMemoryFile;
 import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import com.netflix.hollow.core.memory.encoding.OffHeapElementArray;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
 import java.io.IOException;
+import java.util.BitSet;
 
 /**
  * This class holds the data for a {@link HollowMapTypeReadState}.
@@ -35,6 +38,10 @@ public class HollowMapTypeDataElements {
 
     int maxOrdinal;
 
+    /// the generation which produced this data, and the data it replaced while a read view may still read that data
+    long generation;
+    HollowMapTypeDataElements previous;
+
     FixedLengthData mapPointerAndSizeData;
     FixedLengthData entryData;
 
@@ -50,6 +57,12 @@ public class HollowMapTypeDataElements {
     int emptyBucketKeyValue;
     long totalNumberOfBuckets;
 
+    /// the fingerprint of the key in each bucket, or 0 if it is unknown, while key fingerprints are enabled, see
+    /// HollowMapTypeReadState#setKeyFingerprintsEnabled(boolean); and the ordinals added by the delta which produced
+    /// this data, whose buckets are yet to be fingerprinted
+    volatile byte keyFingerprints[];
+    BitSet unfingerprintedOrdinals;
+
     final ArraySegmentRecycler memoryRecycler;
     final MemoryMode memoryMode;
 
@@ -121,6 +134,62 @@ public class HollowMapTypeDataElements {
         new HollowMapDeltaApplicator(fromData, deltaData, this).applyDelta();
     }
 
+    /**
+     * Touches the data if it is mapped from shared memory, so that it is resident in main memory before it is first read.
+     */
+    void warmUp() {
+        FixedLengthDataFactory.warmUp(mapPointerAndSizeData);
+        FixedLengthDataFactory.warmUp(entryData);
+    }
+
+    /**
+     * Moves the data which a delta application produced on the heap off of the heap, into shared memory or into the
+     * slabs of an off-heap state engine, depending on the memory mode.
+     */
+    void moveOffHeap() throws IOException {
+        if(memoryMode.isSharedMemory()) {
+            moveToSharedMemory();
+            return;
+        }
+
+        FixedLengthData heapMapPointerAndSizeData = mapPointerAndSizeData;
+        FixedLengthData heapEntryData = entryData;
+
+        mapPointerAndSizeData = OffHeapElementArray.copyOf(heapMapPointerAndSizeData, ((long)maxOrdinal + 1) * bitsPerFixedLengthMapPortion, memoryRecycler);
+        entryData = OffHeapElementArray.copyOf(heapEntryData, totalNumberOfBuckets * bitsPerMapEntry, memoryRecycler);
+
+        FixedLengthDataFactory.destroy(heapMapPointerAndSizeData, memoryRecycler);
+        FixedLengthDataFactory.destroy(heapEntryData, memoryRecycler);
+    }
+
+    /**
+     * Moves the data which a delta application produced on the heap into shared memory, by writing it to a file which
+     * is mapped in place of the on-heap arrays.
+     */
+    private void moveToSharedMemory() throws IOException {
+        FixedLengthData heapMapPointerAndSizeData = mapPointerAndSizeData;
+        FixedLengthData heapEntryData = entryData;
+
+        try(SharedMemoryFile file = SharedMemoryFile.create()) {
+            file.write(heapMapPointerAndSizeData, ((long)maxOrdinal + 1) * bitsPerFixedLengthMapPortion);
+            file.write(heapEntryData, totalNumberOfBuckets * bitsPerMapEntry);
+
+            HollowBlobInput in = file.map(memoryMode);
+            mapPointerAndSizeData = FixedLengthDataFactory.get(in, memoryMode, memoryRecycler);
+            entryData = FixedLengthDataFactory.get(in, memoryMode, memoryRecycler);
+        }
+
+        FixedLengthDataFactory.destroy(heapMapPointerAndSizeData, memoryRecycler);
+        FixedLengthDataFactory.destroy(heapEntryData, memoryRecycler);
+    }
+
+    /**
+     * @return whether a key fingerprint can be held for each bucket, in a single array
+     */
+    boolean canFingerprintKeys() {
+        return totalNumberOfBuckets <= Integer.MAX_VALUE;
+    }
+
     public void destroy() {
         FixedLengthDataFactory.destroy(mapPointerAndSizeData, memoryRecycler);
         FixedLengthDataFactory.destroy(entryData, memoryRecycler);
@@ -24,6 +24,7 @@ import com.netflix.hollow.api.sampling.HollowSampler;
 import com.netflix.hollow.api.sampling.HollowSamplingDirector;
 import com.netflix.hollow.core.index.key.HollowPrimaryKeyValueDeriver;
 import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
@@ -31,6 +32,7 @@ import com.netflix.hollow.core.read.dataaccess.HollowMapTypeDataAccess;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
+import com.netflix.hollow.core.read.engine.ReshardingPlan;
 import com.netflix.hollow.core.read.engine.SnapshotPopulatedOrdinalsReader;
 import com.netflix.hollow.core.read.filter.HollowFilterConfig;
 import com.netflix.hollow.core.read.iterator.EmptyMapOrdinalIterator;
@@ -42,6 +44,8 @@ import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.IOException;
 import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * A {@link HollowTypeReadState} for MAP type records. 
@@ -50,11 +54,11 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
 
     private final HollowMapSampler sampler;
     
-    private final int shardNumberMask;
-    private final int shardOrdinalShift;
-    private final HollowMapTypeReadStateShard shards[];
+    private volatile ShardsHolder shardsVolatile;
     
     private HollowPrimaryKeyValueDeriver keyDeriver;
+
+    private boolean keyFingerprintsEnabled;
     
     private int maxOrdinal;
 
@@ -65,22 +69,20 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
     public HollowMapTypeReadState(HollowReadStateEngine stateEngine, MemoryMode memoryMode, HollowMapSchema schema, int numShards) {
         super(stateEngine, memoryMode, schema);
         this.sampler = new HollowMapSampler(schema.getName(), DisabledSamplingDirector.INSTANCE);
-        this.shardNumberMask = numShards - 1;
-        this.shardOrdinalShift = 31 - Integer.numberOfLeadingZeros(numShards);
-        
-        if(numShards < 1 || 1 << shardOrdinalShift != numShards)
+
+        if(numShards < 1 || Integer.bitCount(numShards) != 1)
             throw new IllegalArgumentException("Number of shards must be a power of 2!");
         
         HollowMapTypeReadStateShard shards[] = new HollowMapTypeReadStateShard[numShards];
         for(int i=0; i<shards.length; i++)
-            shards[i] = new HollowMapTypeReadStateShard();
-        
-        this.shards = shards;
+            shards[i] = new HollowMapTypeReadStateShard(getReadViews());
         
+        this.shardsVolatile = new ShardsHolder(shards);
     }
 
     @Override
     public void readSnapshot(HollowBlobInput in, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
         if(shards.length > 1)
             maxOrdinal = VarInt.readVInt(in);
         
@@ -97,27 +99,200 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
     }
 
     @Override
-    public void applyDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler) throws IOException {
+    public void applyDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler, int deltaNumShards) throws IOException {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
+        int deltaMaxOrdinal = deltaNumShards > 1 ? VarInt.readVInt(in) : -1;
+
+        if(deltaNumShards != shards.length) {
+            HollowMapTypeDataElements deltaData[] = readReshardedDelta(in, shards, memoryRecycler, deltaNumShards, deltaMaxOrdinal);
+            for(int i=0;i<shards.length;i++)
+                applyDelta(shards, i, deltaData[i], memoryRecycler);
+            maxOrdinal = maxOrdinal(deltaData);
+            return;
+        }
+
         if(shards.length > 1)
-            maxOrdinal = VarInt.readVInt(in);
+            maxOrdinal = deltaMaxOrdinal;
 
-        for(int i=0; i<shards.length; i++) {
+        for(int i=0;i<shards.length;i++) {
             HollowMapTypeDataElements deltaData = new HollowMapTypeDataElements(memoryMode, memoryRecycler);
-            HollowMapTypeDataElements nextData = new HollowMapTypeDataElements(memoryMode, memoryRecycler);
             deltaData.readDelta(in);
-            HollowMapTypeDataElements oldData = shards[i].currentDataElements();
-            nextData.applyDelta(oldData, deltaData);
-            shards[i].setCurrentData(nextData);
-            notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, i, shards.length);
-            deltaData.destroy();
-            oldData.destroy();
-            stateEngine.getMemoryRecycler().swap();
+            applyDelta(shards, i, deltaData, memoryRecycler);
         }
 
         if(shards.length == 1)
             maxOrdinal = shards[0].currentDataElements().maxOrdinal;
     }
 
+    private void applyDelta(HollowMapTypeReadStateShard shards[], int shardNumber, HollowMapTypeDataElements deltaData, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowMapTypeDataElements nextData = new HollowMapTypeDataElements(memoryMode, memoryRecycler);
+        HollowMapTypeDataElements oldData = shards[shardNumber].currentDataElements();
+        nextData.applyDelta(oldData, deltaData);
+        if(memoryMode != MemoryMode.ON_HEAP)
+            nextData.moveOffHeap();
+        shards[shardNumber].updateCurrentData(nextData);
+        notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, shardNumber, shards.length);
+        deltaData.destroy();
+        shards[shardNumber].retireData(oldData, nextData);
+        stateEngine.getMemoryRecycler().swap();
+    }
+
+    @Override
+    public Runnable stageDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler, Executor executor, int deltaNumShards) throws IOException {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
+        int deltaMaxOrdinal = deltaNumShards > 1 ? VarInt.readVInt(in) : -1;
+
+        HollowMapTypeDataElements deltaData[] = deltaNumShards != shards.length ?
+                readReshardedDelta(in, shards, memoryRecycler, deltaNumShards, deltaMaxOrdinal)
+                : new HollowMapTypeDataElements[shards.length];
+        HollowMapTypeDataElements nextData[] = new HollowMapTypeDataElements[shards.length];
+
+        for(int i=0;i<shards.length;i++) {
+            if(deltaData[i] == null) {
+                deltaData[i] = new HollowMapTypeDataElements(memoryMode, memoryRecycler);
+                deltaData[i].readDelta(in);
+            }
+            HollowMapTypeDataElements shardDeltaData = deltaData[i];
+            HollowMapTypeDataElements shardNextData = new HollowMapTypeDataElements(memoryMode, memoryRecycler);
+            HollowMapTypeDataElements oldData = shards[i].currentDataElements();
+            executor.execute(() -> shardNextData.applyDelta(oldData, shardDeltaData));
+            nextData[i] = shardNextData;
+        }
+
+        int nextMaxOrdinal = deltaNumShards != shards.length || shards.length == 1 ? maxOrdinal(deltaData) : deltaMaxOrdinal;
+
+        return () -> {
+            for(int i=0;i<shards.length;i++) {
+                HollowMapTypeDataElements oldData = shards[i].currentDataElements();
+                shards[i].updateCurrentData(nextData[i]);
+                notifyListenerAboutDeltaChanges(deltaData[i].encodedRemovals, deltaData[i].encodedAdditions, i, shards.length);
+                deltaData[i].destroy();
+                shards[i].retireData(oldData, nextData[i]);
+            }
+
+            maxOrdinal = nextMaxOrdinal;
+        };
+    }
+
+    @Override
+    public long readSnapshotInPlace(HollowBlobInput in, ArraySegmentRecycler memoryRecycler, int snapshotNumShards) throws IOException {
+        HollowMapTypeReadState snapshotState = new HollowMapTypeReadState(stateEngine, memoryMode, getSchema(), snapshotNumShards);
+        PopulatedOrdinalListener snapshotOrdinals = new PopulatedOrdinalListener();
+        snapshotState.addListener(snapshotOrdinals);
+        snapshotState.readSnapshot(in, memoryRecycler);
+        long transientBytes = snapshotState.getApproximateHeapFootprintInBytes();
+
+        HollowMapTypeDataElements snapshotData[] = snapshotState.currentDataElements();
+        if(snapshotNumShards != numShards()) {
+            snapshotState.reshard(numShards());
+            transientBytes += snapshotState.getApproximateHeapFootprintInBytes();
+            for(int i=0;i<snapshotData.length;i++)
+                snapshotData[i].destroy();
+            snapshotData = snapshotState.currentDataElements();
+        }
+
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
+        BitSet previousOrdinals = (BitSet)getPopulatedOrdinals().clone();
+        for(int i=0;i<shards.length;i++) {
+            HollowMapTypeDataElements oldData = shards[i].currentDataElements();
+            shards[i].updateCurrentData(snapshotData[i]);
+            shards[i].retireData(oldData, snapshotData[i]);
+        }
+
+        maxOrdinal = snapshotState.maxOrdinal;
+        notifyListenerAboutSnapshotChanges(previousOrdinals, snapshotOrdinals.getPopulatedOrdinals());
+        return transientBytes;
+    }
+
+    /**
+     * Reads the shards of a delta which was written with a different number of shards than this type state has, and
+     * copies their records into a delta for each shard of this type state.
+     */
+    private HollowMapTypeDataElements[] readReshardedDelta(HollowBlobInput in, HollowMapTypeReadStateShard shards[], ArraySegmentRecycler memoryRecycler, int deltaNumShards, int deltaMaxOrdinal) throws IOException {
+        HollowMapTypeDataElements deltaData[] = new HollowMapTypeDataElements[deltaNumShards];
+        GapEncodedVariableLengthIntegerReader removals[] = new GapEncodedVariableLengthIntegerReader[deltaNumShards];
+        GapEncodedVariableLengthIntegerReader additions[] = new GapEncodedVariableLengthIntegerReader[deltaNumShards];
+        for(int i=0;i<deltaNumShards;i++) {
+            deltaData[i] = new HollowMapTypeDataElements(memoryMode, memoryRecycler);
+            deltaData[i].readDelta(in);
+            removals[i] = deltaData[i].encodedRemovals;
+            additions[i] = deltaData[i].encodedAdditions;
+        }
+
+        if(deltaNumShards == 1)
+            deltaMaxOrdinal = deltaData[0].maxOrdinal;
+
+        ReshardingPlan plan = ReshardingPlan.forDelta(deltaNumShards, shards.length, deltaMaxOrdinal, removals, additions, memoryRecycler);
+        HollowMapTypeDataElements reshardedDeltaData[] = new HollowMapTypeDataElements[shards.length];
+        for(int i=0;i<shards.length;i++) {
+            reshardedDeltaData[i] = new HollowMapTypeDataElements(MemoryMode.ON_HEAP, memoryRecycler);
+            new HollowMapReshardingCopier(deltaData, reshardedDeltaData[i]).copyDeltaRecords(plan, i, shards[i].currentDataElements());
+            reshardedDeltaData[i].maxOrdinal = plan.getMaxShardOrdinal(i);
+            reshardedDeltaData[i].encodedRemovals = plan.getRemovals(i);
+            reshardedDeltaData[i].encodedAdditions = plan.getAdditions(i);
+        }
+
+        for(int i=0;i<deltaNumShards;i++) {
+            deltaData[i].destroy();
+            removals[i].destroy();
+            additions[i].destroy();
+        }
+
+        return reshardedDeltaData;
+    }
+
+    /**
+     * Copies the records of this type state into the given number of shards.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     *
+     * @param numShards the new number of shards, a power of 2
+     * @throws IOException if the data could not be moved into shared memory
+     */
+    @Override
+    public void reshard(int numShards) throws IOException {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
+        if(numShards < 1 || Integer.bitCount(numShards) != 1)
+            throw new IllegalArgumentException("Number of shards must be a power of 2!");
+        if(numShards == shards.length)
+            return;
+
+        ArraySegmentRecycler memoryRecycler = stateEngine.getMemoryRecycler();
+        HollowMapTypeDataElements currentData[] = currentDataElements();
+        GapEncodedVariableLengthIntegerReader removals[] = new GapEncodedVariableLengthIntegerReader[currentData.length];
+        for(int i=0;i<currentData.length;i++)
+            removals[i] = currentData[i].encodedRemovals;
+
+        ReshardingPlan plan = ReshardingPlan.forState(shards.length, numShards, maxOrdinal, removals, memoryRecycler);
+        HollowMapTypeReadStateShard reshardedShards[] = new HollowMapTypeReadStateShard[numShards];
+        for(int i=0;i<numShards;i++) {
+            HollowMapTypeDataElements data = new HollowMapTypeDataElements(memoryMode, memoryRecycler);
+            new HollowMapReshardingCopier(currentData, data).copyRecords(plan, i);
+            data.maxOrdinal = plan.getMaxShardOrdinal(i);
+            data.encodedRemovals = plan.getRemovals(i);
+            if(memoryMode != MemoryMode.ON_HEAP)
+                data.moveOffHeap();
+            data.generation = getReadViews().getGeneration();
+            reshardedShards[i] = new HollowMapTypeReadStateShard(getReadViews());
+            reshardedShards[i].setCurrentData(data);
+            if(keyDeriver != null)
+                reshardedShards[i].setKeyDeriver(keyDeriver);
+        }
+
+        /// the prior data is not destroyed, since it may still be read by a thread which located a prior shard
+        shardsVolatile = new ShardsHolder(reshardedShards);
+        updateKeyFingerprints();
+    }
+
+    private static int maxOrdinal(HollowMapTypeDataElements shardData[]) {
+        int maxOrdinal = -1;
+        for(int i=0;i<shardData.length;i++) {
+            if(shardData[i].maxOrdinal != -1)
+                maxOrdinal = Math.max(maxOrdinal, shardData[i].maxOrdinal * shardData.length + i);
+        }
+        return maxOrdinal;
+    }
+
     public static void discardSnapshot(HollowBlobInput in, int numShards) throws IOException {
         discardType(in, numShards, false);
     }
@@ -141,7 +316,8 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
     public int size(int ordinal) {
         sampler.recordSize();
 
-        return shards[ordinal & shardNumberMask].size(ordinal >> shardOrdinalShift);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].size(ordinal >> shardsHolder.shardOrdinalShift);
     }
 
     @Override
@@ -153,7 +329,8 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
     public int get(int ordinal, int keyOrdinal, int hashCode) {
         sampler.recordGet();
         
-        return shards[ordinal & shardNumberMask].get(ordinal >> shardOrdinalShift, keyOrdinal, hashCode);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].get(ordinal >> shardsHolder.shardOrdinalShift, keyOrdinal, hashCode);
     }
     
     @Override
@@ -168,7 +345,8 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
         if(hashKey.length != fieldTypes.length)
             return ORDINAL_NONE;
 
-        return shards[ordinal & shardNumberMask].findKey(ordinal >> shardOrdinalShift, hashKey);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].findKey(ordinal >> shardsHolder.shardOrdinalShift, hashKey);
     }
 
     @Override
@@ -188,7 +366,8 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
         if(hashKey.length != fieldTypes.length)
             return -1L;
 
-        return shards[ordinal & shardNumberMask].findEntry(ordinal >> shardOrdinalShift, hashKey);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].findEntry(ordinal >> shardsHolder.shardOrdinalShift, hashKey);
     }
 
     @Override
@@ -211,7 +390,8 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
 
     @Override
     public long relativeBucket(int ordinal, int bucketIndex) {
-        return shards[ordinal & shardNumberMask].relativeBucket(ordinal >> shardOrdinalShift, bucketIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].relativeBucket(ordinal >> shardsHolder.shardOrdinalShift, bucketIndex);
     }
 
     @Override
@@ -241,12 +421,14 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
 
     @Override
     protected void invalidate() {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
         stateListeners = EMPTY_LISTENERS;
         for(int i=0; i<shards.length; i++)
             shards[i].invalidate();
     }
 
     HollowMapTypeDataElements[] currentDataElements() {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
         HollowMapTypeDataElements currentDataElements[] = new HollowMapTypeDataElements[shards.length];
         
         for(int i=0; i<shards.length; i++)
@@ -256,6 +438,7 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
     }
 
     void setCurrentData(HollowMapTypeDataElements data) {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
         if(shards.length > 1)
             throw new UnsupportedOperationException("Cannot directly set data on sharded type state");
         shards[0].setCurrentData(data);
@@ -264,6 +447,7 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
 
     @Override
     protected void applyToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
         if(!getSchema().equals(withSchema))
             throw new IllegalArgumentException("HollowMapTypeReadState cannot calculate checksum with unequal schemas: " + getSchema().getName());
         
@@ -275,6 +459,7 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
 
     @Override
     public long getApproximateHeapFootprintInBytes() {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
         long totalApproximateHeapFootprintInBytes = 0;
         
         for(int i=0; i<shards.length; i++)
@@ -285,6 +470,7 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
     
     @Override
     public long getApproximateHoleCostInBytes() {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
         long totalApproximateHoleCostInBytes = 0;
         
         BitSet populatedOrdinals = getPopulatedOrdinals();
@@ -300,6 +486,7 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
     }
     
     public void buildKeyDeriver() {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
         if(getSchema().getHashKey() != null)
             this.keyDeriver = new HollowPrimaryKeyValueDeriver(getSchema().getHashKey(), getStateEngine());
         
@@ -307,9 +494,75 @@ public class HollowMapTypeReadState extends HollowTypeReadState implements Hollo
             shards[i].setKeyDeriver(keyDeriver);
     }
 
+    /**
+     * Enable or disable key fingerprints, which speed up the lookups of maps by hash key.
+     * <p>
+     * While enabled, each shard holds a byte on the heap for each bucket, derived from the hash of the key in the bucket.
+     * Lookups by hash key (see {@link #findKey(int, Object...)} and {@link #findEntry(int, Object...)}) compare the
+     * fingerprint of the queried key with that of each probed bucket, and only read the fields of the key in the bucket,
+     * which may be held by several referenced types, if the fingerprints are equal.  The fingerprints of the maps retained by a delta are carried over, and those of the added
+     * maps are derived once every type has been updated.  This type must have a hash key for fingerprints to be derived.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread, or before the data is read.
+     *
+     * @param enabled whether key fingerprints are held
+     */
+    public void setKeyFingerprintsEnabled(boolean enabled) {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
+        this.keyFingerprintsEnabled = enabled;
+        for(int i=0;i<shards.length;i++) {
+            if(enabled)
+                shards[i].updateKeyFingerprints();
+            else
+                shards[i].clearKeyFingerprints();
+        }
+    }
+
+    public boolean isKeyFingerprintsEnabled() {
+        return keyFingerprintsEnabled;
+    }
+
+    /**
+     * Derives the key fingerprints which are yet to be derived, if they are enabled.  The fingerprints are derived from
+     * the records of the key type, so this is called once every type state of an update has been updated.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     */
+    public void updateKeyFingerprints() {
+        if(!keyFingerprintsEnabled)
+            return;
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
+        for(int i=0;i<shards.length;i++)
+            shards[i].updateKeyFingerprints();
+    }
+
     @Override
     public int numShards() {
-        return shards.length;
+        return shardsVolatile.shards.length;
     }
 
+    @Override
+    public void warmUp(Set<String> fieldNames) {
+        HollowMapTypeReadStateShard shards[] = shardsVolatile.shards;
+        if(memoryMode == MemoryMode.ON_HEAP)
+            return;
+        for(int i=0;i<shards.length;i++)
+            shards[i].currentDataElements().warmUp();
+    }
+
+    /**
+     * The shards of this type state, which are replaced together with the masks that locate an ordinal among them
+     * when this type state is resharded.
+     */
+    private static final class ShardsHolder {
+        final HollowMapTypeReadStateShard shards[];
+        final int shardNumberMask;
+        final int shardOrdinalShift;
+
+        ShardsHolder(HollowMapTypeReadStateShard shards[]) {
+            this.shards = shards;
+            this.shardNumberMask = shards.length - 1;
+            this.shardOrdinalShift = 31 - Integer.numberOfLeadingZeros(shards.length);
+        }
+    }
 }
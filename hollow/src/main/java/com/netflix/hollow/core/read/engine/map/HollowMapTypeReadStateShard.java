@@ -21,6 +21,7 @@ import static com.netflix.hollow.core.HollowConstants.ORDINAL_NONE;
 import com.netflix.hollow.core.index.key.HollowPrimaryKeyValueDeriver;
 import com.netflix.hollow.core.memory.HollowUnsafeHandle;
 import com.netflix.hollow.core.memory.encoding.HashCodes;
+import com.netflix.hollow.core.read.engine.HollowReadViews;
 import com.netflix.hollow.core.read.engine.SetMapKeyHasher;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.util.BitSet;
@@ -29,6 +30,12 @@ class HollowMapTypeReadStateShard {
     
     private volatile HollowMapTypeDataElements currentDataVolatile;
 
+    private final HollowReadViews readViews;
+
+    HollowMapTypeReadStateShard(HollowReadViews readViews) {
+        this.readViews = readViews;
+    }
+
     private HollowPrimaryKeyValueDeriver keyDeriver;
 
     public int size(int ordinal) {
@@ -36,7 +43,7 @@ class HollowMapTypeReadStateShard {
         int size;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
             size = (int)currentData.mapPointerAndSizeData.getElementValue(((long)ordinal * currentData.bitsPerFixedLengthMapPortion) + currentData.bitsPerMapPointer, currentData.bitsPerMapSizeValue);
         } while(readWasUnsafe(currentData));
 
@@ -52,7 +59,7 @@ class HollowMapTypeReadStateShard {
             long startBucket;
             long endBucket;
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 startBucket = ordinal == 0 ? 0 : currentData.mapPointerAndSizeData.getElementValue((long)(ordinal - 1) * currentData.bitsPerFixedLengthMapPortion, currentData.bitsPerMapPointer);
                 endBucket = currentData.mapPointerAndSizeData.getElementValue((long)ordinal * currentData.bitsPerFixedLengthMapPortion, currentData.bitsPerMapPointer);
@@ -81,6 +88,7 @@ class HollowMapTypeReadStateShard {
 
     public int findKey(int ordinal, Object... hashKey) {
         int hashCode = SetMapKeyHasher.hash(hashKey, keyDeriver.getFieldTypes());
+        byte fingerprint = SetMapKeyHasher.fingerprint(hashCode);
 
         HollowMapTypeDataElements currentData;
 
@@ -89,12 +97,13 @@ class HollowMapTypeReadStateShard {
             long startBucket;
             long endBucket;
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 startBucket = ordinal == 0 ? 0 : currentData.mapPointerAndSizeData.getElementValue((long)(ordinal - 1) * currentData.bitsPerFixedLengthMapPortion, currentData.bitsPerMapPointer);
                 endBucket = currentData.mapPointerAndSizeData.getElementValue((long)ordinal * currentData.bitsPerFixedLengthMapPortion, currentData.bitsPerMapPointer);
             } while(readWasUnsafe(currentData));
 
+            byte keyFingerprints[] = currentData.keyFingerprints;
             long bucket = startBucket + (hashCode & (endBucket - startBucket - 1));
             int bucketKeyOrdinal = getBucketKeyByAbsoluteIndex(currentData, bucket);
 
@@ -102,7 +111,7 @@ class HollowMapTypeReadStateShard {
                 if(readWasUnsafe(currentData))
                     continue threadsafe;
 
-                if(keyDeriver.keyMatches(bucketKeyOrdinal, hashKey)) {
+                if(SetMapKeyHasher.mayMatch(keyFingerprints, bucket, fingerprint) && keyDeriver.keyMatches(bucketKeyOrdinal, hashKey)) {
                     return bucketKeyOrdinal;
                 }
 
@@ -119,6 +128,7 @@ class HollowMapTypeReadStateShard {
 
     public long findEntry(int ordinal, Object... hashKey) {
         int hashCode = SetMapKeyHasher.hash(hashKey, keyDeriver.getFieldTypes());
+        byte fingerprint = SetMapKeyHasher.fingerprint(hashCode);
 
         HollowMapTypeDataElements currentData;
 
@@ -127,12 +137,13 @@ class HollowMapTypeReadStateShard {
             long startBucket;
             long endBucket;
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 startBucket = ordinal == 0 ? 0 : currentData.mapPointerAndSizeData.getElementValue((long)(ordinal - 1) * currentData.bitsPerFixedLengthMapPortion, currentData.bitsPerMapPointer);
                 endBucket = currentData.mapPointerAndSizeData.getElementValue((long)ordinal * currentData.bitsPerFixedLengthMapPortion, currentData.bitsPerMapPointer);
             } while(readWasUnsafe(currentData));
 
+            byte keyFingerprints[] = currentData.keyFingerprints;
             long bucket = startBucket + (hashCode & (endBucket - startBucket - 1));
             int bucketKeyOrdinal = getBucketKeyByAbsoluteIndex(currentData, bucket);
 
@@ -140,7 +151,7 @@ class HollowMapTypeReadStateShard {
                 if(readWasUnsafe(currentData))
                     continue threadsafe;
 
-                if(keyDeriver.keyMatches(bucketKeyOrdinal, hashKey)) {
+                if(SetMapKeyHasher.mayMatch(keyFingerprints, bucket, fingerprint) && keyDeriver.keyMatches(bucketKeyOrdinal, hashKey)) {
                     long valueOrdinal = getBucketValueByAbsoluteIndex(currentData, bucket);
                     if(readWasUnsafe(currentData))
                         continue threadsafe;
@@ -165,7 +176,7 @@ class HollowMapTypeReadStateShard {
         do {
             long absoluteBucketIndex;
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
                 absoluteBucketIndex = getAbsoluteBucketStart(currentData, ordinal) + bucketIndex;
             } while(readWasUnsafe(currentData));
             long key = getBucketKeyByAbsoluteIndex(currentData, absoluteBucketIndex);
@@ -201,13 +212,52 @@ class HollowMapTypeReadStateShard {
 
     private boolean readWasUnsafe(HollowMapTypeDataElements data) {
         HollowUnsafeHandle.getUnsafe().loadFence();
-        return data != currentDataVolatile;
+        /// data read through a pinned read view is retained until the view is closed
+        return data != currentDataVolatile && readViews.getPinnedGeneration() == HollowReadViews.NO_PINNED_GENERATION;
     }
 
     void setCurrentData(HollowMapTypeDataElements data) {
         this.currentDataVolatile = data;
     }
 
+    /**
+     * Replaces the current data with the data produced by a delta.  While read views are enabled, the replaced data
+     * remains readable through the next data by the views of prior generations.
+     */
+    void updateCurrentData(HollowMapTypeDataElements nextData) {
+        if(readViews.isEnabled()) {
+            nextData.generation = readViews.getNextGeneration();
+            nextData.previous = this.currentDataVolatile;
+        }
+        this.currentDataVolatile = nextData;
+    }
+
+    /**
+     * Retires the data replaced by a delta, which is destroyed once no read view can read it.
+     */
+    void retireData(HollowMapTypeDataElements oldData, HollowMapTypeDataElements nextData) {
+        readViews.retire(() -> nextData.previous = null, oldData::destroy);
+    }
+
+    /**
+     * @return the current data or, on a thread which has pinned a read view, the newest data which is not newer than
+     *         the view
+     */
+    private HollowMapTypeDataElements readData() {
+        HollowMapTypeDataElements data = this.currentDataVolatile;
+        HollowMapTypeDataElements previous = data.previous;
+        if(previous != null) {
+            long pinnedGeneration = readViews.getPinnedGeneration();
+            if(pinnedGeneration != HollowReadViews.NO_PINNED_GENERATION) {
+                while(data.generation > pinnedGeneration && previous != null) {
+                    data = previous;
+                    previous = data.previous;
+                }
+            }
+        }
+        return data;
+    }
+
     protected void applyToChecksum(HollowChecksum checksum, BitSet populatedOrdinals, int shardNumber, int numShards) {
         HollowMapTypeDataElements currentData = currentDataVolatile;
         int ordinal = populatedOrdinals.nextSetBit(shardNumber);
@@ -264,5 +314,46 @@ class HollowMapTypeReadStateShard {
         this.keyDeriver = keyDeriver;
     }
 
+    /**
+     * Derives the key fingerprints of the buckets of the current data which are yet to be fingerprinted:  all of them if
+     * the data has no fingerprints, otherwise those of the maps added by the delta which produced the data.
+     */
+    void updateKeyFingerprints() {
+        HollowMapTypeDataElements currentData = currentDataVolatile;
+        if(currentData == null || keyDeriver == null || !currentData.canFingerprintKeys())
+            return;
+
+        if(currentData.keyFingerprints == null) {
+            byte keyFingerprints[] = new byte[(int)currentData.totalNumberOfBuckets];
+            fingerprintBuckets(currentData, keyFingerprints, 0, currentData.totalNumberOfBuckets);
+            currentData.keyFingerprints = keyFingerprints;
+        } else if(currentData.unfingerprintedOrdinals != null) {
+            BitSet ordinals = currentData.unfingerprintedOrdinals;
+            for(int ordinal = ordinals.nextSetBit(0); ordinal != -1; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+                long startBucket = getAbsoluteBucketStart(currentData, ordinal);
+                long endBucket = currentData.mapPointerAndSizeData.getElementValue((long)ordinal * currentData.bitsPerFixedLengthMapPortion, currentData.bitsPerMapPointer);
+                fingerprintBuckets(currentData, currentData.keyFingerprints, startBucket, endBucket);
+            }
+        }
+
+        currentData.unfingerprintedOrdinals = null;
+    }
+
+    private void fingerprintBuckets(HollowMapTypeDataElements currentData, byte keyFingerprints[], long startBucket, long endBucket) {
+        for(long bucket=startBucket;bucket<endBucket;bucket++) {
+            int bucketKeyOrdinal = getBucketKeyByAbsoluteIndex(currentData, bucket);
+            if(bucketKeyOrdinal != currentData.emptyBucketKeyValue)
+                keyFingerprints[(int)bucket] = SetMapKeyHasher.fingerprint(keyDeriver, bucketKeyOrdinal);
+        }
+    }
+
+    void clearKeyFingerprints() {
+        HollowMapTypeDataElements currentData = currentDataVolatile;
+        if(currentData != null) {
+            currentData.keyFingerprints = null;
+            currentData.unfingerprintedOrdinals = null;
+        }
+    }
+
     
 }
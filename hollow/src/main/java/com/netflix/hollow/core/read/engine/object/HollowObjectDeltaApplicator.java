@@ -60,7 +60,9 @@ class HollowObjectDeltaApplicator {
         removalsReader.reset();
         additionsReader.reset();
 
-        target.encodedRemovals = delta.encodedRemovals;
+        /// an ordinal which is removed and added by the same delta is populated in the target state, and so must not
+        /// be removed when the next delta is applied; this only occurs for deltas squashed from a chain of deltas
+        target.encodedRemovals = delta.encodedRemovals.without(delta.encodedAdditions, target.memoryRecycler);
 
         target.maxOrdinal = delta.maxOrdinal;
 
@@ -102,6 +104,9 @@ class HollowObjectDeltaApplicator {
     }
 
     private boolean canDoFastDelta() {
+        /// records in shared memory may retain fields excluded by a filter
+        if(target.bitsPerRecord != from.bitsPerRecord)
+            return false;
         for(int i=0;i<target.bitsPerField.length;i++) {
             if(target.bitsPerField[i] != from.bitsPerField[i])
                 return false;
@@ -169,7 +174,7 @@ class HollowObjectDeltaApplicator {
             int deltaFieldIndex = deltaFieldIndexMapping[fieldIndex];
 
             if(addFromDelta) {
-                addFromDelta(removeData, fieldIndex, deltaFieldIndex);
+                addFromDelta(i <= from.maxOrdinal, fieldIndex, deltaFieldIndex);
 
             } else {
                 if(i <= from.maxOrdinal) {
@@ -192,7 +197,7 @@ class HollowObjectDeltaApplicator {
             removalsReader.advance();
     }
 
-    private void addFromDelta(boolean removeData, int fieldIndex, int deltaFieldIndex) {
+    private void addFromDelta(boolean skipFromData, int fieldIndex, int deltaFieldIndex) {
         if(deltaFieldIndex == -1) {
             writeNullField(fieldIndex, currentWriteFixedLengthStartBit, currentWriteVarLengthDataPointers);
         } else {
@@ -200,8 +205,9 @@ class HollowObjectDeltaApplicator {
             copyRecordField(fieldIndex, deltaFieldIndex, delta, readStartBit, currentWriteFixedLengthStartBit, currentDeltaReadVarLengthDataPointers, currentWriteVarLengthDataPointers, false);
         }
 
-        /// skip over var length data in from state, if removed.
-        if(removeData && target.varLengthData[fieldIndex] != null) {
+        /// skip over var length data in from state, which is either removed or, for a delta squashed from a chain of
+        /// deltas, replaced by the added record.
+        if(skipFromData && target.varLengthData[fieldIndex] != null) {
             long readValue = from.fixedLengthData.getElementValue(currentFromStateReadFixedLengthStartBit + from.bitOffsetPerField[fieldIndex], from.bitsPerField[fieldIndex]);
             if((readValue & (1L << (from.bitsPerField[fieldIndex] - 1))) == 0)
                 currentFromStateReadVarLengthDataPointers[fieldIndex] = readValue;
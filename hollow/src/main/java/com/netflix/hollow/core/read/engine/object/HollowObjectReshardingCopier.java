@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine.object;
+
+import com.netflix.hollow.core.memory.SegmentedByteArray;
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.read.engine.ReshardingPlan;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+
+/**
+ * This class contains the logic for copying the records of an OBJECT type, held in some number of shards, into one
+ * shard of a different number of shards.
+ * <p>
+ * Each field is as wide as the widest of the same field in the source shards, and each variable length field is
+ * wide enough to point to the end of the copied data.
+ *
+ * Not intended for external consumption.
+ */
+class HollowObjectReshardingCopier {
+
+    private final HollowObjectTypeDataElements from[];
+    private final HollowObjectTypeDataElements target;
+
+    HollowObjectReshardingCopier(HollowObjectTypeDataElements from[], HollowObjectTypeDataElements target) {
+        this.from = from;
+        this.target = target;
+    }
+
+    /**
+     * Copies the records planned for a new shard.  The max ordinal, and the removals and additions, of the target are
+     * not set.
+     */
+    void copyRecords(ReshardingPlan plan, int shardNumber) {
+        int sourceShards[] = plan.getSourceShards(shardNumber);
+        int sourceRecords[] = plan.getSourceRecords(shardNumber);
+        int numFields = target.schema.numFields();
+
+        long varLengthSize[] = new long[numFields];
+        for(int i=0;i<numFields;i++) {
+            if(isVarLengthField(i)) {
+                for(int j=0;j<sourceRecords.length;j++) {
+                    HollowObjectTypeDataElements source = from[sourceShards[j]];
+                    varLengthSize[i] += varLengthEnd(source, sourceRecords[j], i) - varLengthStart(source, sourceRecords[j], i);
+                }
+            }
+        }
+
+        target.bitsPerRecord = 0;
+        for(int i=0;i<numFields;i++) {
+            int bitsPerField = 0;
+            for(HollowObjectTypeDataElements source : from)
+                bitsPerField = Math.max(bitsPerField, source.bitsPerField[i]);
+            if(isVarLengthField(i))
+                bitsPerField = Math.max(bitsPerField, 64 - Long.numberOfLeadingZeros(varLengthSize[i]) + 1);
+
+            target.bitsPerField[i] = bitsPerField;
+            target.nullValueForField[i] = (1L << bitsPerField) - 1;
+            target.bitOffsetPerField[i] = target.bitsPerRecord;
+            target.bitsPerRecord += bitsPerField;
+        }
+
+        target.fixedLengthData = new FixedLengthElementArray(target.memoryRecycler, (long)target.bitsPerRecord * sourceRecords.length);
+        for(int i=0;i<numFields;i++) {
+            if(isVarLengthField(i))
+                target.varLengthData[i] = new SegmentedByteArray(target.memoryRecycler);
+        }
+
+        long currentWriteVarLengthDataPointers[] = new long[numFields];
+        long currentWriteFixedLengthStartBit = 0;
+
+        for(int j=0;j<sourceRecords.length;j++) {
+            HollowObjectTypeDataElements source = from[sourceShards[j]];
+            int sourceRecord = sourceRecords[j];
+
+            for(int i=0;i<numFields;i++) {
+                if(target.bitsPerField[i] == 0)
+                    continue;
+
+                long writeStartBit = currentWriteFixedLengthStartBit + target.bitOffsetPerField[i];
+
+                if(isVarLengthField(i)) {
+                    long readValue = fieldValue(source, sourceRecord, i);
+                    if((readValue & (1L << (source.bitsPerField[i] - 1))) != 0) {
+                        target.fixedLengthData.setElementValue(writeStartBit, target.bitsPerField[i], (1L << (target.bitsPerField[i] - 1)) | currentWriteVarLengthDataPointers[i]);
+                    } else {
+                        long readStart = varLengthStart(source, sourceRecord, i);
+                        long length = readValue - readStart;
+                        if(length > 0)
+                            target.varLengthData[i].orderedCopy(source.varLengthData[i], readStart, currentWriteVarLengthDataPointers[i], length);
+                        currentWriteVarLengthDataPointers[i] += length;
+                        target.fixedLengthData.setElementValue(writeStartBit, target.bitsPerField[i], currentWriteVarLengthDataPointers[i]);
+                    }
+                } else {
+                    long readValue = source.bitsPerField[i] == 0 ? source.nullValueForField[i] : fieldValue(source, sourceRecord, i);
+                    if(readValue == source.nullValueForField[i])
+                        readValue = target.nullValueForField[i];
+                    target.fixedLengthData.setElementValue(writeStartBit, target.bitsPerField[i], readValue);
+                }
+            }
+
+            currentWriteFixedLengthStartBit += target.bitsPerRecord;
+        }
+    }
+
+    private boolean isVarLengthField(int fieldIndex) {
+        FieldType fieldType = target.schema.getFieldType(fieldIndex);
+        return fieldType == FieldType.STRING || fieldType == FieldType.BYTES;
+    }
+
+    private static long fieldValue(HollowObjectTypeDataElements data, int record, int fieldIndex) {
+        long bitOffset = (long)data.bitsPerRecord * record + data.bitOffsetPerField[fieldIndex];
+        int numBits = data.bitsPerField[fieldIndex];
+        return numBits > 56 ?
+                data.fixedLengthData.getLargeElementValue(bitOffset, numBits)
+                : data.fixedLengthData.getElementValue(bitOffset, numBits);
+    }
+
+    private static long varLengthStart(HollowObjectTypeDataElements data, int record, int fieldIndex) {
+        return record == 0 ? 0 : varLengthEnd(data, record - 1, fieldIndex);
+    }
+
+    private static long varLengthEnd(HollowObjectTypeDataElements data, int record, int fieldIndex) {
+        return fieldValue(data, record, fieldIndex) & (data.nullValueForField[fieldIndex] >>> 1);
+    }
+}
@@ -19,15 +19,20 @@ package com.netflix.hollow.core.read.engine.object;
 import com.netflix.hollow.core.memory.FixedLengthData;
 import com.netflix.hollow.core.memory.FixedLengthDataFactory;
 import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.OffHeapByteArray;
+import com.netflix.hollow.core.memory.SharedMemoryFile;
 import com.netflix.hollow.core.memory.VariableLengthData;
 import com.netflix.hollow.core.memory.VariableLengthDataFactory;
 import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
 import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import com.netflix.hollow.core.memory.encoding.OffHeapElementArray;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
 import java.io.IOException;
+import java.util.Set;
 
 /**
  * This class holds the data for a {@link HollowObjectTypeReadState}.
@@ -41,6 +46,10 @@ public class HollowObjectTypeDataElements {
 
     int maxOrdinal;
 
+    /// the generation which produced this data, and the data it replaced while a read view may still read that data
+    long generation;
+    HollowObjectTypeDataElements previous;
+
     FixedLengthData fixedLengthData;
     final VariableLengthData varLengthData[];
 
@@ -58,6 +67,9 @@ public class HollowObjectTypeDataElements {
     final ArraySegmentRecycler memoryRecycler;
     final MemoryMode memoryMode;
 
+    /// the decoded values of STRING fields by ordinal, if the string cache is enabled for this type
+    volatile String stringCache[][];
+
     public HollowObjectTypeDataElements(HollowObjectSchema schema, ArraySegmentRecycler memoryRecycler) {
         this(schema, MemoryMode.ON_HEAP, memoryRecycler);
     }
@@ -97,7 +109,8 @@ public class HollowObjectTypeDataElements {
     }
 
     private void removeExcludedFieldsFromFixedLengthData() {
-        if(bitsPerField.length < bitsPerUnfilteredField.length) {
+        /// in shared memory and off heap the records keep their unfiltered layout, and the excluded fields are never read
+        if(memoryMode == MemoryMode.ON_HEAP && bitsPerField.length < bitsPerUnfilteredField.length) {
             long numBitsRequired = (long)bitsPerRecord * (maxOrdinal + 1);
             FixedLengthElementArray filteredData = new FixedLengthElementArray(memoryRecycler, numBitsRequired);
 
@@ -131,6 +144,7 @@ public class HollowObjectTypeDataElements {
         unfilteredFieldIsIncluded = new boolean[unfilteredSchema.numFields()];
 
         int filteredFieldIdx = 0;
+        int unfilteredBitsPerRecord = 0;
 
         for(int i=0;i<unfilteredSchema.numFields();i++) {
             int readBitsPerField = VarInt.readVInt(in);
@@ -140,11 +154,15 @@ public class HollowObjectTypeDataElements {
             if(unfilteredFieldIsIncluded[i]) {
                 bitsPerField[filteredFieldIdx] = readBitsPerField;
                 nullValueForField[filteredFieldIdx] = (1L << bitsPerField[filteredFieldIdx]) - 1;
-                bitOffsetPerField[filteredFieldIdx] = bitsPerRecord;
+                bitOffsetPerField[filteredFieldIdx] = memoryMode == MemoryMode.ON_HEAP ? bitsPerRecord : unfilteredBitsPerRecord;
                 bitsPerRecord += bitsPerField[filteredFieldIdx];
                 filteredFieldIdx++;
             }
+            unfilteredBitsPerRecord += readBitsPerField;
         }
+
+        if(memoryMode != MemoryMode.ON_HEAP)
+            bitsPerRecord = unfilteredBitsPerRecord;
     }
 
 
@@ -200,9 +218,149 @@ public class HollowObjectTypeDataElements {
     }
 
     void applyDelta(HollowObjectTypeDataElements fromData, HollowObjectTypeDataElements deltaData) {
+        String previousStringCache[][] = fromData.stringCache;
+        if(previousStringCache != null)
+            carryOverStringCache(previousStringCache, fromData.encodedRemovals, deltaData);
+
         new HollowObjectDeltaApplicator(fromData, deltaData, this).applyDelta();
     }
 
+    /**
+     * Touches the data if it is mapped from shared memory, so that it is resident in main memory before it is first read.
+     *
+     * @param fieldNames the names of the fields whose variable length data is touched, or null for all fields
+     */
+    void warmUp(Set<String> fieldNames) {
+        FixedLengthDataFactory.warmUp(fixedLengthData);
+        for(int i=0;i<varLengthData.length;i++) {
+            if(varLengthData[i] != null && (fieldNames == null || fieldNames.contains(schema.getFieldName(i))))
+                VariableLengthDataFactory.warmUp(varLengthData[i]);
+        }
+    }
+
+    /**
+     * Moves the data which a delta application produced on the heap off of the heap, into shared memory or into the
+     * slabs of an off-heap state engine, depending on the memory mode.
+     */
+    void moveOffHeap() throws IOException {
+        if(memoryMode.isSharedMemory()) {
+            moveToSharedMemory();
+            return;
+        }
+
+        FixedLengthData heapFixedLengthData = fixedLengthData;
+        VariableLengthData heapVarLengthData[] = varLengthData.clone();
+
+        fixedLengthData = OffHeapElementArray.copyOf(heapFixedLengthData, (long)bitsPerRecord * (maxOrdinal + 1), memoryRecycler);
+        for(int i=0;i<heapVarLengthData.length;i++) {
+            varLengthData[i] = null;
+            long size = populatedSize(heapFixedLengthData, heapVarLengthData[i], i);
+            if(size != 0)
+                varLengthData[i] = OffHeapByteArray.copyOf(heapVarLengthData[i], size, memoryRecycler);
+        }
+
+        FixedLengthDataFactory.destroy(heapFixedLengthData, memoryRecycler);
+        for(int i=0;i<heapVarLengthData.length;i++) {
+            if(heapVarLengthData[i] != null)
+                VariableLengthDataFactory.destroy(heapVarLengthData[i]);
+        }
+    }
+
+    /**
+     * Moves the data which a delta application produced on the heap into shared memory, by writing it to a file which
+     * is mapped in place of the on-heap arrays.
+     */
+    private void moveToSharedMemory() throws IOException {
+        FixedLengthData heapFixedLengthData = fixedLengthData;
+        VariableLengthData heapVarLengthData[] = varLengthData.clone();
+        long varLengthDataSize[] = new long[varLengthData.length];
+
+        try(SharedMemoryFile file = SharedMemoryFile.create()) {
+            file.write(heapFixedLengthData, (long)bitsPerRecord * (maxOrdinal + 1));
+            for(int i=0;i<heapVarLengthData.length;i++) {
+                varLengthDataSize[i] = populatedSize(heapFixedLengthData, heapVarLengthData[i], i);
+                if(varLengthDataSize[i] != 0)
+                    file.write(heapVarLengthData[i], varLengthDataSize[i]);
+            }
+
+            HollowBlobInput in = file.map(memoryMode);
+            fixedLengthData = FixedLengthDataFactory.get(in, memoryMode, memoryRecycler);
+            for(int i=0;i<heapVarLengthData.length;i++) {
+                varLengthData[i] = null;
+                if(varLengthDataSize[i] != 0) {
+                    varLengthData[i] = VariableLengthDataFactory.get(memoryMode, memoryRecycler);
+                    varLengthData[i].loadFrom(in, varLengthDataSize[i]);
+                }
+            }
+        }
+
+        FixedLengthDataFactory.destroy(heapFixedLengthData, memoryRecycler);
+        for(int i=0;i<heapVarLengthData.length;i++) {
+            if(heapVarLengthData[i] != null)
+                VariableLengthDataFactory.destroy(heapVarLengthData[i]);
+        }
+    }
+
+    /**
+     * @return the number of populated bytes of the variable length data of a field, which end where the pointer of the
+     *         last record points
+     */
+    private long populatedSize(FixedLengthData fixedLengthData, VariableLengthData varLengthData, int fieldIdx) {
+        if(varLengthData == null || maxOrdinal < 0)
+            return 0;
+        long lastRecordStartBit = (long)bitsPerRecord * maxOrdinal;
+        return fixedLengthData.getElementValue(lastRecordStartBit + bitOffsetPerField[fieldIdx], bitsPerField[fieldIdx]) & (nullValueForField[fieldIdx] >>> 1);
+    }
+
+    /**
+     * Creates an empty cache for the decoded values of this type's STRING fields.
+     */
+    void initStringCache() {
+        String cache[][] = new String[schema.numFields()][];
+        for(int i=0;i<cache.length;i++) {
+            if(schema.getFieldType(i) == FieldType.STRING)
+                cache[i] = new String[maxOrdinal + 1];
+        }
+        stringCache = cache;
+    }
+
+    /**
+     * Copies the cached values of the previous data into the cache for this data, except for the ordinals
+     * whose records are added or removed by the delta, or were removed by the prior delta.
+     */
+    private void carryOverStringCache(String previousStringCache[][], GapEncodedVariableLengthIntegerReader priorRemovals, HollowObjectTypeDataElements deltaData) {
+        String cache[][] = new String[previousStringCache.length][];
+        for(int i=0;i<cache.length;i++) {
+            if(previousStringCache[i] != null) {
+                cache[i] = new String[deltaData.maxOrdinal + 1];
+                System.arraycopy(previousStringCache[i], 0, cache[i], 0, Math.min(previousStringCache[i].length, cache[i].length));
+            }
+        }
+
+        invalidateStringCache(cache, priorRemovals);
+        invalidateStringCache(cache, deltaData.encodedRemovals);
+        invalidateStringCache(cache, deltaData.encodedAdditions);
+
+        stringCache = cache;
+    }
+
+    private static void invalidateStringCache(String cache[][], GapEncodedVariableLengthIntegerReader ordinals) {
+        if(ordinals == null)
+            return;
+
+        ordinals.reset();
+        int ordinal = ordinals.nextElement();
+        while(ordinal < Integer.MAX_VALUE) {
+            for(int i=0;i<cache.length;i++) {
+                if(cache[i] != null && ordinal < cache[i].length)
+                    cache[i][ordinal] = null;
+            }
+            ordinals.advance();
+            ordinal = ordinals.nextElement();
+        }
+        ordinals.reset();
+    }
+
     public void destroy() {
         FixedLengthDataFactory.destroy(fixedLengthData, memoryRecycler);
         for(int i=0;i<varLengthData.length;i++) {
@@ -16,38 +16,51 @@
  */
 package com.netflix.hollow.core.read.engine.object;
 
+import static com.netflix.hollow.core.HollowConstants.ORDINAL_NONE;
+
 import com.netflix.hollow.api.sampling.DisabledSamplingDirector;
 import com.netflix.hollow.api.sampling.HollowObjectSampler;
 import com.netflix.hollow.api.sampling.HollowSampler;
 import com.netflix.hollow.api.sampling.HollowSamplingDirector;
 import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
 import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.memory.encoding.ZigZag;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
+import com.netflix.hollow.core.read.dataaccess.HollowBytesView;
 import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.dataaccess.HollowStringView;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
+import com.netflix.hollow.core.read.engine.ReshardingPlan;
 import com.netflix.hollow.core.read.engine.SnapshotPopulatedOrdinalsReader;
 import com.netflix.hollow.core.read.filter.HollowFilterConfig;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
 import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.IOException;
 import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * A {@link HollowTypeReadState} for OBJECT type records. 
  */
 public class HollowObjectTypeReadState extends HollowTypeReadState implements HollowObjectTypeDataAccess {
 
+    private static final int BULK_READ_BATCH_SIZE = 256;
+
     private final HollowObjectSchema unfilteredSchema;
     private final HollowObjectSampler sampler;
 
-    private final int shardNumberMask;
-    private final int shardOrdinalShift;
-    private final HollowObjectTypeReadStateShard shards[];
+    private volatile ShardsHolder shardsVolatile;
 
     private int maxOrdinal;
+    private boolean stringCacheEnabled;
 
     public HollowObjectTypeReadState(HollowReadStateEngine fileEngine, HollowObjectSchema schema) {
         this(fileEngine, MemoryMode.ON_HEAP, schema, schema, 1);
@@ -57,17 +70,15 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
         super(fileEngine, memoryMode, schema);
         this.sampler = new HollowObjectSampler(schema, DisabledSamplingDirector.INSTANCE);
         this.unfilteredSchema = unfilteredSchema;
-        this.shardNumberMask = numShards - 1;
-        this.shardOrdinalShift = 31 - Integer.numberOfLeadingZeros(numShards);
-        
-        if(numShards < 1 || 1 << shardOrdinalShift != numShards)
+
+        if(numShards < 1 || Integer.bitCount(numShards) != 1)
             throw new IllegalArgumentException("Number of shards must be a power of 2!");
         
         HollowObjectTypeReadStateShard shards[] = new HollowObjectTypeReadStateShard[numShards];
         for(int i=0;i<shards.length;i++)
-            shards[i] = new HollowObjectTypeReadStateShard(schema);
+            shards[i] = new HollowObjectTypeReadStateShard(schema, getReadViews());
         
-        this.shards = shards;
+        this.shardsVolatile = new ShardsHolder(shards);
     }
 
     @Override
@@ -82,12 +93,15 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
 
     @Override
     public void readSnapshot(HollowBlobInput in, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
         if(shards.length > 1)
             maxOrdinal = VarInt.readVInt(in);
 
         for(int i=0;i<shards.length;i++) {
             HollowObjectTypeDataElements snapshotData = new HollowObjectTypeDataElements(getSchema(), memoryMode, memoryRecycler);
             snapshotData.readSnapshot(in, unfilteredSchema);
+            if(stringCacheEnabled)
+                snapshotData.initStringCache();
             shards[i].setCurrentData(snapshotData);
         }
 
@@ -98,27 +112,201 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
     }
     
     @Override
-    public void applyDelta(HollowBlobInput in, HollowSchema deltaSchema, ArraySegmentRecycler memoryRecycler) throws IOException {
+    public void applyDelta(HollowBlobInput in, HollowSchema deltaSchema, ArraySegmentRecycler memoryRecycler, int deltaNumShards) throws IOException {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
+        int deltaMaxOrdinal = deltaNumShards > 1 ? VarInt.readVInt(in) : -1;
+
+        if(deltaNumShards != shards.length) {
+            HollowObjectTypeDataElements deltaData[] = readReshardedDelta(in, (HollowObjectSchema)deltaSchema, memoryRecycler, deltaNumShards, deltaMaxOrdinal);
+            for(int i=0;i<shards.length;i++)
+                applyDelta(shards, i, deltaData[i], memoryRecycler);
+            maxOrdinal = maxOrdinal(deltaData);
+            return;
+        }
+
         if(shards.length > 1)
-            maxOrdinal = VarInt.readVInt(in);
+            maxOrdinal = deltaMaxOrdinal;
 
         for(int i=0;i<shards.length;i++) {
             HollowObjectTypeDataElements deltaData = new HollowObjectTypeDataElements((HollowObjectSchema)deltaSchema, memoryMode, memoryRecycler);
-            HollowObjectTypeDataElements nextData = new HollowObjectTypeDataElements(getSchema(), memoryMode, memoryRecycler);
             deltaData.readDelta(in);
-            HollowObjectTypeDataElements oldData = shards[i].currentDataElements();
-            nextData.applyDelta(oldData, deltaData);
-            shards[i].setCurrentData(nextData);
-            notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, i, shards.length);
-            deltaData.destroy();
-            oldData.destroy();
-            stateEngine.getMemoryRecycler().swap();
+            applyDelta(shards, i, deltaData, memoryRecycler);
         }
 
         if(shards.length == 1)
             maxOrdinal = shards[0].currentDataElements().maxOrdinal;
     }
 
+    private void applyDelta(HollowObjectTypeReadStateShard shards[], int shardNumber, HollowObjectTypeDataElements deltaData, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowObjectTypeDataElements nextData = new HollowObjectTypeDataElements(getSchema(), memoryMode, memoryRecycler);
+        HollowObjectTypeDataElements oldData = shards[shardNumber].currentDataElements();
+        nextData.applyDelta(oldData, deltaData);
+        if(memoryMode != MemoryMode.ON_HEAP)
+            nextData.moveOffHeap();
+        shards[shardNumber].updateCurrentData(nextData);
+        notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, shardNumber, shards.length);
+        deltaData.destroy();
+        shards[shardNumber].retireData(oldData, nextData);
+        stateEngine.getMemoryRecycler().swap();
+    }
+
+    @Override
+    public Runnable stageDelta(HollowBlobInput in, HollowSchema deltaSchema, ArraySegmentRecycler memoryRecycler, Executor executor, int deltaNumShards) throws IOException {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
+        int deltaMaxOrdinal = deltaNumShards > 1 ? VarInt.readVInt(in) : -1;
+
+        HollowObjectTypeDataElements deltaData[] = deltaNumShards != shards.length ?
+                readReshardedDelta(in, (HollowObjectSchema)deltaSchema, memoryRecycler, deltaNumShards, deltaMaxOrdinal)
+                : new HollowObjectTypeDataElements[shards.length];
+        HollowObjectTypeDataElements nextData[] = new HollowObjectTypeDataElements[shards.length];
+
+        for(int i=0;i<shards.length;i++) {
+            if(deltaData[i] == null) {
+                deltaData[i] = new HollowObjectTypeDataElements((HollowObjectSchema)deltaSchema, memoryMode, memoryRecycler);
+                deltaData[i].readDelta(in);
+            }
+            HollowObjectTypeDataElements shardDeltaData = deltaData[i];
+            HollowObjectTypeDataElements shardNextData = new HollowObjectTypeDataElements(getSchema(), memoryMode, memoryRecycler);
+            HollowObjectTypeDataElements oldData = shards[i].currentDataElements();
+            executor.execute(() -> shardNextData.applyDelta(oldData, shardDeltaData));
+            nextData[i] = shardNextData;
+        }
+
+        int nextMaxOrdinal = deltaNumShards != shards.length || shards.length == 1 ? maxOrdinal(deltaData) : deltaMaxOrdinal;
+
+        return () -> {
+            for(int i=0;i<shards.length;i++) {
+                HollowObjectTypeDataElements oldData = shards[i].currentDataElements();
+                shards[i].updateCurrentData(nextData[i]);
+                notifyListenerAboutDeltaChanges(deltaData[i].encodedRemovals, deltaData[i].encodedAdditions, i, shards.length);
+                deltaData[i].destroy();
+                shards[i].retireData(oldData, nextData[i]);
+            }
+
+            maxOrdinal = nextMaxOrdinal;
+        };
+    }
+
+    @Override
+    public long readSnapshotInPlace(HollowBlobInput in, ArraySegmentRecycler memoryRecycler, int snapshotNumShards) throws IOException {
+        HollowObjectTypeReadState snapshotState = new HollowObjectTypeReadState(stateEngine, memoryMode, getSchema(), unfilteredSchema, snapshotNumShards);
+        PopulatedOrdinalListener snapshotOrdinals = new PopulatedOrdinalListener();
+        snapshotState.addListener(snapshotOrdinals);
+        snapshotState.stringCacheEnabled = stringCacheEnabled;
+        snapshotState.readSnapshot(in, memoryRecycler);
+        long transientBytes = snapshotState.getApproximateHeapFootprintInBytes();
+
+        HollowObjectTypeDataElements snapshotData[] = snapshotState.currentDataElements();
+        if(snapshotNumShards != numShards()) {
+            snapshotState.reshard(numShards());
+            transientBytes += snapshotState.getApproximateHeapFootprintInBytes();
+            for(int i=0;i<snapshotData.length;i++)
+                snapshotData[i].destroy();
+            snapshotData = snapshotState.currentDataElements();
+        }
+
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
+        BitSet previousOrdinals = (BitSet)getPopulatedOrdinals().clone();
+        for(int i=0;i<shards.length;i++) {
+            HollowObjectTypeDataElements oldData = shards[i].currentDataElements();
+            shards[i].updateCurrentData(snapshotData[i]);
+            shards[i].retireData(oldData, snapshotData[i]);
+        }
+
+        maxOrdinal = snapshotState.maxOrdinal;
+        notifyListenerAboutSnapshotChanges(previousOrdinals, snapshotOrdinals.getPopulatedOrdinals());
+        return transientBytes;
+    }
+
+    /**
+     * Reads the shards of a delta which was written with a different number of shards than this type state has, and
+     * copies their records into a delta for each shard of this type state.
+     */
+    private HollowObjectTypeDataElements[] readReshardedDelta(HollowBlobInput in, HollowObjectSchema deltaSchema, ArraySegmentRecycler memoryRecycler, int deltaNumShards, int deltaMaxOrdinal) throws IOException {
+        HollowObjectTypeDataElements deltaData[] = new HollowObjectTypeDataElements[deltaNumShards];
+        GapEncodedVariableLengthIntegerReader removals[] = new GapEncodedVariableLengthIntegerReader[deltaNumShards];
+        GapEncodedVariableLengthIntegerReader additions[] = new GapEncodedVariableLengthIntegerReader[deltaNumShards];
+        for(int i=0;i<deltaNumShards;i++) {
+            deltaData[i] = new HollowObjectTypeDataElements(deltaSchema, memoryMode, memoryRecycler);
+            deltaData[i].readDelta(in);
+            removals[i] = deltaData[i].encodedRemovals;
+            additions[i] = deltaData[i].encodedAdditions;
+        }
+
+        if(deltaNumShards == 1)
+            deltaMaxOrdinal = deltaData[0].maxOrdinal;
+
+        int numShards = numShards();
+        ReshardingPlan plan = ReshardingPlan.forDelta(deltaNumShards, numShards, deltaMaxOrdinal, removals, additions, memoryRecycler);
+        HollowObjectTypeDataElements reshardedDeltaData[] = new HollowObjectTypeDataElements[numShards];
+        for(int i=0;i<numShards;i++) {
+            reshardedDeltaData[i] = new HollowObjectTypeDataElements(deltaSchema, MemoryMode.ON_HEAP, memoryRecycler);
+            new HollowObjectReshardingCopier(deltaData, reshardedDeltaData[i]).copyRecords(plan, i);
+            reshardedDeltaData[i].maxOrdinal = plan.getMaxShardOrdinal(i);
+            reshardedDeltaData[i].encodedRemovals = plan.getRemovals(i);
+            reshardedDeltaData[i].encodedAdditions = plan.getAdditions(i);
+        }
+
+        for(int i=0;i<deltaNumShards;i++) {
+            deltaData[i].destroy();
+            removals[i].destroy();
+            additions[i].destroy();
+        }
+
+        return reshardedDeltaData;
+    }
+
+    /**
+     * Copies the records of this type state into the given number of shards.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     *
+     * @param numShards the new number of shards, a power of 2
+     * @throws IOException if the data could not be moved into shared memory
+     */
+    @Override
+    public void reshard(int numShards) throws IOException {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
+        if(numShards < 1 || Integer.bitCount(numShards) != 1)
+            throw new IllegalArgumentException("Number of shards must be a power of 2!");
+        if(numShards == shards.length)
+            return;
+
+        ArraySegmentRecycler memoryRecycler = stateEngine.getMemoryRecycler();
+        HollowObjectTypeDataElements currentData[] = currentDataElements();
+        GapEncodedVariableLengthIntegerReader removals[] = new GapEncodedVariableLengthIntegerReader[currentData.length];
+        for(int i=0;i<currentData.length;i++)
+            removals[i] = currentData[i].encodedRemovals;
+
+        ReshardingPlan plan = ReshardingPlan.forState(shards.length, numShards, maxOrdinal, removals, memoryRecycler);
+        HollowObjectTypeReadStateShard reshardedShards[] = new HollowObjectTypeReadStateShard[numShards];
+        for(int i=0;i<numShards;i++) {
+            HollowObjectTypeDataElements data = new HollowObjectTypeDataElements(getSchema(), memoryMode, memoryRecycler);
+            new HollowObjectReshardingCopier(currentData, data).copyRecords(plan, i);
+            data.maxOrdinal = plan.getMaxShardOrdinal(i);
+            data.encodedRemovals = plan.getRemovals(i);
+            if(memoryMode != MemoryMode.ON_HEAP)
+                data.moveOffHeap();
+            if(stringCacheEnabled)
+                data.initStringCache();
+            data.generation = getReadViews().getGeneration();
+            reshardedShards[i] = new HollowObjectTypeReadStateShard(getSchema(), getReadViews());
+            reshardedShards[i].setCurrentData(data);
+        }
+
+        /// the prior data is not destroyed, since it may still be read by a thread which located a prior shard
+        shardsVolatile = new ShardsHolder(reshardedShards);
+    }
+
+    private static int maxOrdinal(HollowObjectTypeDataElements shardData[]) {
+        int maxOrdinal = -1;
+        for(int i=0;i<shardData.length;i++) {
+            if(shardData[i].maxOrdinal != -1)
+                maxOrdinal = Math.max(maxOrdinal, shardData[i].maxOrdinal * shardData.length + i);
+        }
+        return maxOrdinal;
+    }
+
     public static void discardSnapshot(HollowBlobInput in, HollowObjectSchema schema, int numShards) throws IOException {
         discardType(in, schema, numShards, false);
     }
@@ -136,67 +324,351 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
     @Override
     public boolean isNull(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].isNull(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].isNull(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
     }
 
     @Override
     public int readOrdinal(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].readOrdinal(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readOrdinal(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
     }
 
     @Override
     public int readInt(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].readInt(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readInt(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
     }
 
     @Override
     public float readFloat(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].readFloat(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readFloat(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
     }
 
     @Override
     public double readDouble(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].readDouble(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readDouble(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
     }
 
     @Override
     public long readLong(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].readLong(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readLong(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
     }
 
     @Override
     public Boolean readBoolean(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].readBoolean(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readBoolean(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
     }
 
     @Override
     public byte[] readBytes(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].readBytes(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readBytes(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
     }
 
     @Override
     public String readString(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].readString(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readString(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
+    }
+
+    @Override
+    public boolean readStringView(int ordinal, int fieldIndex, HollowStringView view) {
+        sampler.recordFieldAccess(fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readStringView(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex, view);
+    }
+
+    @Override
+    public boolean readBytesView(int ordinal, int fieldIndex, HollowBytesView view) {
+        sampler.recordFieldAccess(fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].readBytesView(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex, view);
     }
 
     @Override
     public boolean isStringFieldEqual(int ordinal, int fieldIndex, String testValue) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].isStringFieldEqual(ordinal >> shardOrdinalShift, fieldIndex, testValue);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].isStringFieldEqual(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex, testValue);
     }
 
     @Override
     public int findVarLengthFieldHashCode(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
-        return shards[ordinal & shardNumberMask].findVarLengthFieldHashCode(ordinal >> shardOrdinalShift, fieldIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].findVarLengthFieldHashCode(ordinal >> shardsHolder.shardOrdinalShift, fieldIndex);
+    }
+
+    /**
+     * Enables or disables the caching of decoded values of this type's STRING fields.
+     * <p>
+     * When enabled, each value returned by {@link #readString(int, int)} is retained by ordinal, so that subsequent reads
+     * of the same value return the same String without decoding it again.  When a delta is applied, the cached values
+     * of the records added and removed by the delta are discarded and all others are retained.  The cache requires a
+     * reference per ordinal for each STRING field, in addition to the retained Strings.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread, or before the data is read.
+     *
+     * @param enabled whether decoded STRING field values are cached
+     */
+    public void setStringCacheEnabled(boolean enabled) {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
+        this.stringCacheEnabled = enabled;
+        for(int i=0;i<shards.length;i++) {
+            HollowObjectTypeDataElements currentData = shards[i].currentDataElements();
+            if(currentData != null) {
+                if(enabled && currentData.stringCache == null)
+                    currentData.initStringCache();
+                else if(!enabled)
+                    currentData.stringCache = null;
+            }
+        }
+    }
+
+    public boolean isStringCacheEnabled() {
+        return stringCacheEnabled;
+    }
+
+    /**
+     * Decodes the values of an INT or REFERENCE field for each ordinal in the range {@code [fromOrdinal, toOrdinal)}.
+     * <p>
+     * The value for ordinal {@code o} is written to {@code dest[destPos + o - fromOrdinal]}.  Values are decoded as by
+     * {@link #readInt(int, int)} for an INT field, and as by {@link #readOrdinal(int, int)} for a REFERENCE field.
+     * <p>
+     * Rather than checking the consistency of each value with a concurrent delta update, the data of each shard is checked
+     * once all values have been decoded, and the values are decoded a word at a time from the fixed-length data, so
+     * this is considerably faster than reading each ordinal in turn when many ordinals are read.
+     *
+     * @param fieldIndex the field index
+     * @param fromOrdinal the first ordinal, inclusive
+     * @param toOrdinal the last ordinal, exclusive
+     * @param dest the array into which values are decoded
+     * @param destPos the position in {@code dest} for the value of {@code fromOrdinal}
+     */
+    public void readInts(int fieldIndex, int fromOrdinal, int toOrdinal, int[] dest, int destPos) {
+        readFieldValues(fieldIndex, null, fromOrdinal, toOrdinal, intValueWriter(fieldIndex, dest, destPos));
+    }
+
+    /**
+     * Decodes the values of an INT or REFERENCE field for each ordinal in the set {@code ordinals}.
+     * <p>
+     * Values are written to {@code dest} in ascending ordinal order, starting at {@code destPos}.
+     *
+     * @param fieldIndex the field index
+     * @param ordinals the ordinals for which values are decoded
+     * @param dest the array into which values are decoded
+     * @param destPos the position in {@code dest} for the value of the lowest ordinal
+     * @return the number of values decoded
+     * @see #readInts(int, int, int, int[], int)
+     */
+    public int readInts(int fieldIndex, BitSet ordinals, int[] dest, int destPos) {
+        return readFieldValues(fieldIndex, ordinals, 0, 0, intValueWriter(fieldIndex, dest, destPos));
+    }
+
+    /**
+     * Decodes the values of a LONG field for each ordinal in the range {@code [fromOrdinal, toOrdinal)}.
+     * <p>
+     * The value for ordinal {@code o} is written to {@code dest[destPos + o - fromOrdinal]}, decoded as by
+     * {@link #readLong(int, int)}.
+     *
+     * @param fieldIndex the field index
+     * @param fromOrdinal the first ordinal, inclusive
+     * @param toOrdinal the last ordinal, exclusive
+     * @param dest the array into which values are decoded
+     * @param destPos the position in {@code dest} for the value of {@code fromOrdinal}
+     * @see #readInts(int, int, int, int[], int)
+     */
+    public void readLongs(int fieldIndex, int fromOrdinal, int toOrdinal, long[] dest, int destPos) {
+        readFieldValues(fieldIndex, null, fromOrdinal, toOrdinal, longValueWriter(fieldIndex, dest, destPos));
+    }
+
+    /**
+     * Decodes the values of a LONG field for each ordinal in the set {@code ordinals}.
+     * <p>
+     * Values are written to {@code dest} in ascending ordinal order, starting at {@code destPos}.
+     *
+     * @param fieldIndex the field index
+     * @param ordinals the ordinals for which values are decoded
+     * @param dest the array into which values are decoded
+     * @param destPos the position in {@code dest} for the value of the lowest ordinal
+     * @return the number of values decoded
+     * @see #readLongs(int, int, int, long[], int)
+     */
+    public int readLongs(int fieldIndex, BitSet ordinals, long[] dest, int destPos) {
+        return readFieldValues(fieldIndex, ordinals, 0, 0, longValueWriter(fieldIndex, dest, destPos));
+    }
+
+    /**
+     * Decodes the values of a DOUBLE field for each ordinal in the range {@code [fromOrdinal, toOrdinal)}.
+     * <p>
+     * The value for ordinal {@code o} is written to {@code dest[destPos + o - fromOrdinal]}, decoded as by
+     * {@link #readDouble(int, int)}.
+     *
+     * @param fieldIndex the field index
+     * @param fromOrdinal the first ordinal, inclusive
+     * @param toOrdinal the last ordinal, exclusive
+     * @param dest the array into which values are decoded
+     * @param destPos the position in {@code dest} for the value of {@code fromOrdinal}
+     * @see #readInts(int, int, int, int[], int)
+     */
+    public void readDoubles(int fieldIndex, int fromOrdinal, int toOrdinal, double[] dest, int destPos) {
+        readFieldValues(fieldIndex, null, fromOrdinal, toOrdinal, doubleValueWriter(fieldIndex, dest, destPos));
+    }
+
+    /**
+     * Decodes the values of a DOUBLE field for each ordinal in the set {@code ordinals}.
+     * <p>
+     * Values are written to {@code dest} in ascending ordinal order, starting at {@code destPos}.
+     *
+     * @param fieldIndex the field index
+     * @param ordinals the ordinals for which values are decoded
+     * @param dest the array into which values are decoded
+     * @param destPos the position in {@code dest} for the value of the lowest ordinal
+     * @return the number of values decoded
+     * @see #readDoubles(int, int, int, double[], int)
+     */
+    public int readDoubles(int fieldIndex, BitSet ordinals, double[] dest, int destPos) {
+        return readFieldValues(fieldIndex, ordinals, 0, 0, doubleValueWriter(fieldIndex, dest, destPos));
+    }
+
+    private FieldValueWriter intValueWriter(int fieldIndex, int[] dest, int destPos) {
+        FieldType fieldType = getSchema().getFieldType(fieldIndex);
+        if(fieldType == FieldType.INT) {
+            return (values, count, nullValue, pos, stride) -> {
+                pos += destPos;
+                for(int i=0;i<count;i++, pos += stride)
+                    dest[pos] = values[i] == nullValue ? Integer.MIN_VALUE : ZigZag.decodeInt((int)values[i]);
+            };
+        } else if(fieldType == FieldType.REFERENCE) {
+            return (values, count, nullValue, pos, stride) -> {
+                pos += destPos;
+                for(int i=0;i<count;i++, pos += stride)
+                    dest[pos] = values[i] == nullValue ? ORDINAL_NONE : (int)values[i];
+            };
+        }
+        throw new IllegalArgumentException("Cannot read values of " + fieldType + " field " + getSchema().getName() + "." + getSchema().getFieldName(fieldIndex) + " as ints");
+    }
+
+    private FieldValueWriter longValueWriter(int fieldIndex, long[] dest, int destPos) {
+        FieldType fieldType = getSchema().getFieldType(fieldIndex);
+        if(fieldType != FieldType.LONG)
+            throw new IllegalArgumentException("Cannot read values of " + fieldType + " field " + getSchema().getName() + "." + getSchema().getFieldName(fieldIndex) + " as longs");
+
+        return (values, count, nullValue, pos, stride) -> {
+            pos += destPos;
+            for(int i=0;i<count;i++, pos += stride)
+                dest[pos] = values[i] == nullValue ? Long.MIN_VALUE : ZigZag.decodeLong(values[i]);
+        };
+    }
+
+    private FieldValueWriter doubleValueWriter(int fieldIndex, double[] dest, int destPos) {
+        FieldType fieldType = getSchema().getFieldType(fieldIndex);
+        if(fieldType != FieldType.DOUBLE)
+            throw new IllegalArgumentException("Cannot read values of " + fieldType + " field " + getSchema().getName() + "." + getSchema().getFieldName(fieldIndex) + " as doubles");
+
+        return (values, count, nullValue, pos, stride) -> {
+            pos += destPos;
+            for(int i=0;i<count;i++, pos += stride)
+                dest[pos] = values[i] == HollowObjectWriteRecord.NULL_DOUBLE_BITS ? Double.NaN : Double.longBitsToDouble(values[i]);
+        };
+    }
+
+    /**
+     * Decodes the values of a field either for each ordinal in {@code ordinals}, or if it is null, for each ordinal in
+     * the range {@code [fromOrdinal, toOrdinal)}, retrying if the data of any shard is replaced during the read.
+     *
+     * @return the number of values decoded
+     */
+    private int readFieldValues(int fieldIndex, BitSet ordinals, int fromOrdinal, int toOrdinal, FieldValueWriter writer) {
+        if(ordinals == null && fromOrdinal > toOrdinal)
+            throw new IllegalArgumentException("fromOrdinal " + fromOrdinal + " is greater than toOrdinal " + toOrdinal);
+
+        sampler.recordFieldAccess(fieldIndex);
+
+        long values[] = new long[BULK_READ_BATCH_SIZE];
+        ShardsHolder shardsHolder;
+        HollowObjectTypeDataElements currentData[];
+        int numValues;
+
+        do {
+            shardsHolder = this.shardsVolatile;
+            currentData = new HollowObjectTypeDataElements[shardsHolder.shards.length];
+            for(int i=0;i<currentData.length;i++)
+                currentData[i] = shardsHolder.shards[i].readData();
+
+            if(ordinals == null) {
+                readFieldValues(shardsHolder, currentData, fieldIndex, fromOrdinal, toOrdinal, 0, values, writer);
+                numValues = toOrdinal - fromOrdinal;
+            } else {
+                numValues = 0;
+                int runStart = ordinals.nextSetBit(0);
+                while(runStart != -1) {
+                    int runEnd = ordinals.nextClearBit(runStart);
+                    readFieldValues(shardsHolder, currentData, fieldIndex, runStart, runEnd, numValues, values, writer);
+                    numValues += runEnd - runStart;
+                    runStart = ordinals.nextSetBit(runEnd);
+                }
+            }
+        } while(readWasUnsafe(shardsHolder, currentData));
+
+        return numValues;
+    }
+
+    /**
+     * Decodes the values of a field for a contiguous range of ordinals.  The ordinals in each shard are interleaved in
+     * the range, but are consecutive within the shard, so each shard's values are decoded in batches and then written
+     * to every {@code numShards}th position of the destination.
+     */
+    private void readFieldValues(ShardsHolder shardsHolder, HollowObjectTypeDataElements currentData[], int fieldIndex, int fromOrdinal, int toOrdinal, int destPos, long values[], FieldValueWriter writer) {
+        HollowObjectTypeReadStateShard shards[] = shardsHolder.shards;
+        for(int shardNumber=0;shardNumber<shards.length;shardNumber++) {
+            int firstOrdinal = fromOrdinal + ((shardNumber - fromOrdinal) & shardsHolder.shardNumberMask);
+            if(firstOrdinal >= toOrdinal)
+                continue;
+
+            int shardOrdinal = firstOrdinal >> shardsHolder.shardOrdinalShift;
+            int remaining = ((toOrdinal - 1 - firstOrdinal) >> shardsHolder.shardOrdinalShift) + 1;
+            int pos = destPos + firstOrdinal - fromOrdinal;
+            long nullValue = currentData[shardNumber].nullValueForField[fieldIndex];
+
+            while(remaining > 0) {
+                int count = Math.min(remaining, values.length);
+                shards[shardNumber].readFixedLengthFieldValues(currentData[shardNumber], fieldIndex, shardOrdinal, count, values);
+                writer.write(values, count, nullValue, pos, shards.length);
+                shardOrdinal += count;
+                remaining -= count;
+                pos += count * shards.length;
+            }
+        }
+    }
+
+    private boolean readWasUnsafe(ShardsHolder shardsHolder, HollowObjectTypeDataElements currentData[]) {
+        for(int i=0;i<shardsHolder.shards.length;i++) {
+            if(shardsHolder.shards[i].readWasUnsafe(currentData[i]))
+                return true;
+        }
+        return false;
+    }
+
+    private interface FieldValueWriter {
+        /**
+         * Writes {@code count} decoded values to every {@code stride}th position of the destination, starting at
+         * {@code pos} relative to the destination position of the read.
+         */
+        void write(long[] values, int count, long nullValue, int pos, int stride);
     }
 
     /**
@@ -205,6 +677,7 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
      * @return the number of bits required for the field
      */
     public int bitsRequiredForField(String fieldName) {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
         int maxBitsRequiredForField = shards[0].bitsRequiredForField(fieldName);
         
         for(int i=1;i<shards.length;i++) {
@@ -223,6 +696,7 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
 
     @Override
     protected void invalidate() {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
         stateListeners = EMPTY_LISTENERS;
         for(int i=0;i<shards.length;i++)
             shards[i].invalidate();
@@ -244,6 +718,7 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
     }
     
     HollowObjectTypeDataElements[] currentDataElements() {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
         HollowObjectTypeDataElements currentDataElements[] = new HollowObjectTypeDataElements[shards.length];
         
         for(int i=0;i<shards.length;i++)
@@ -254,6 +729,7 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
 
     @Override
     protected void applyToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
         if(!(withSchema instanceof HollowObjectSchema))
             throw new IllegalArgumentException("HollowObjectTypeReadState can only calculate checksum with a HollowObjectSchema: " + getSchema().getName());
 
@@ -265,6 +741,7 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
 
 	@Override
 	public long getApproximateHeapFootprintInBytes() {
+	    HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
 	    long totalApproximateHeapFootprintInBytes = 0;
 	    
 	    for(int i=0;i<shards.length;i++)
@@ -275,6 +752,7 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
 	
 	@Override
 	public long getApproximateHoleCostInBytes() {
+	    HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
 	    long totalApproximateHoleCostInBytes = 0;
 	    
 	    BitSet populatedOrdinals = getPopulatedOrdinals();
@@ -286,6 +764,7 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
 	}
 	
 	void setCurrentData(HollowObjectTypeDataElements data) {
+	    HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
 	    if(shards.length > 1)
 	        throw new UnsupportedOperationException("Cannot directly set data on sharded type state");
 	    shards[0].setCurrentData(data);
@@ -294,7 +773,31 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
 
     @Override
     public int numShards() {
-        return shards.length;
+        return shardsVolatile.shards.length;
+    }
+
+    @Override
+    public void warmUp(Set<String> fieldNames) {
+        HollowObjectTypeReadStateShard shards[] = shardsVolatile.shards;
+        if(memoryMode == MemoryMode.ON_HEAP)
+            return;
+        for(int i=0;i<shards.length;i++)
+            shards[i].currentDataElements().warmUp(fieldNames);
+    }
+
+    /**
+     * The shards of this type state, which are replaced together with the masks that locate an ordinal among them
+     * when this type state is resharded.
+     */
+    private static final class ShardsHolder {
+        final HollowObjectTypeReadStateShard shards[];
+        final int shardNumberMask;
+        final int shardOrdinalShift;
+
+        ShardsHolder(HollowObjectTypeReadStateShard shards[]) {
+            this.shards = shards;
+            this.shardNumberMask = shards.length - 1;
+            this.shardOrdinalShift = 31 - Integer.numberOfLeadingZeros(shards.length);
+        }
     }
-	
 }
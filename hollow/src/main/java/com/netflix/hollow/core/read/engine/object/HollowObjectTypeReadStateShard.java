@@ -20,9 +20,15 @@ import static com.netflix.hollow.core.HollowConstants.ORDINAL_NONE;
 
 import com.netflix.hollow.core.memory.ByteData;
 import com.netflix.hollow.core.memory.HollowUnsafeHandle;
+import com.netflix.hollow.core.memory.OffHeapByteArray;
+import com.netflix.hollow.core.memory.SegmentedByteArray;
+import com.netflix.hollow.core.memory.VariableLengthData;
 import com.netflix.hollow.core.memory.encoding.HashCodes;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.encoding.ZigZag;
+import com.netflix.hollow.core.read.dataaccess.HollowBytesView;
+import com.netflix.hollow.core.read.dataaccess.HollowStringView;
+import com.netflix.hollow.core.read.engine.HollowReadViews;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.write.HollowObjectWriteRecord;
@@ -37,9 +43,11 @@ class HollowObjectTypeReadStateShard {
     private volatile HollowObjectTypeDataElements currentDataVolatile;
 
     private final HollowObjectSchema schema;
+    private final HollowReadViews readViews;
     
-    HollowObjectTypeReadStateShard(HollowObjectSchema schema) {
+    HollowObjectTypeReadStateShard(HollowObjectSchema schema, HollowReadViews readViews) {
         this.schema = schema;
+        this.readViews = readViews;
     }
 
     public boolean isNull(int ordinal, int fieldIndex) {
@@ -47,7 +55,7 @@ class HollowObjectTypeReadStateShard {
         long fixedLengthValue;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
 
             long bitOffset = fieldOffset(currentData, ordinal, fieldIndex);
             int numBitsForField = currentData.bitsPerField[fieldIndex];
@@ -76,7 +84,7 @@ class HollowObjectTypeReadStateShard {
         long refOrdinal;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
             refOrdinal = readFixedLengthFieldValue(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
@@ -90,7 +98,7 @@ class HollowObjectTypeReadStateShard {
         long value;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
             value = readFixedLengthFieldValue(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
@@ -104,7 +112,7 @@ class HollowObjectTypeReadStateShard {
         int value;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
             value = (int)readFixedLengthFieldValue(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
@@ -118,7 +126,7 @@ class HollowObjectTypeReadStateShard {
         long value;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
             long bitOffset = fieldOffset(currentData, ordinal, fieldIndex);
             value = currentData.fixedLengthData.getLargeElementValue(bitOffset, 64, -1L);
         } while(readWasUnsafe(currentData));
@@ -133,7 +141,7 @@ class HollowObjectTypeReadStateShard {
         long value;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
             long bitOffset = fieldOffset(currentData, ordinal, fieldIndex);
             int numBitsForField = currentData.bitsPerField[fieldIndex];
             value = currentData.fixedLengthData.getLargeElementValue(bitOffset, numBitsForField);
@@ -149,7 +157,7 @@ class HollowObjectTypeReadStateShard {
         long value;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
             value = readFixedLengthFieldValue(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
@@ -167,6 +175,20 @@ class HollowObjectTypeReadStateShard {
         return value;
     }
 
+    /**
+     * Decodes the fixed-length values of a field for {@code count} consecutive ordinals in this shard, beginning
+     * at {@code fromOrdinal}, from the given data elements.
+     * <p>
+     * The caller is responsible for checking with {@link #readWasUnsafe(HollowObjectTypeDataElements)} that the data
+     * elements were still current once all values have been decoded.
+     */
+    void readFixedLengthFieldValues(HollowObjectTypeDataElements currentData, int fieldIndex, int fromOrdinal, int count, long[] dest) {
+        long bitOffset = fieldOffset(currentData, fromOrdinal, fieldIndex);
+        int numBitsForField = currentData.bitsPerField[fieldIndex];
+
+        currentData.fixedLengthData.getElementValues(bitOffset, numBitsForField, currentData.bitsPerRecord, dest, 0, count);
+    }
+
     public byte[] readBytes(int ordinal, int fieldIndex) {
         HollowObjectTypeDataElements currentData;
         byte[] result;
@@ -177,7 +199,7 @@ class HollowObjectTypeReadStateShard {
             long startByte;
 
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 numBitsForField = currentData.bitsPerField[fieldIndex];
                 long currentBitOffset = fieldOffset(currentData, ordinal, fieldIndex);
@@ -192,17 +214,23 @@ class HollowObjectTypeReadStateShard {
 
             int length = (int)(endByte - startByte);
             result = new byte[length];
-            for(int i=0;i<length;i++)
-                result[i] = currentData.varLengthData[fieldIndex].get(startByte + i);
+            VariableLengthData varLengthData = currentData.varLengthData[fieldIndex];
+            if(varLengthData instanceof SegmentedByteArray) {
+                ((SegmentedByteArray)varLengthData).copy(startByte, result, 0, length);
+            } else if(varLengthData instanceof OffHeapByteArray) {
+                ((OffHeapByteArray)varLengthData).copy(startByte, result, 0, length);
+            } else {
+                for(int i=0;i<length;i++)
+                    result[i] = varLengthData.get(startByte + i);
+            }
 
         } while(readWasUnsafe(currentData));
 
         return result;
     }
 
-    public String readString(int ordinal, int fieldIndex) {
+    public boolean readBytesView(int ordinal, int fieldIndex, HollowBytesView view) {
         HollowObjectTypeDataElements currentData;
-        String result;
 
         do {
             int numBitsForField;
@@ -210,7 +238,40 @@ class HollowObjectTypeReadStateShard {
             long startByte;
 
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
+
+                numBitsForField = currentData.bitsPerField[fieldIndex];
+                long currentBitOffset = fieldOffset(currentData, ordinal, fieldIndex);
+                endByte = currentData.fixedLengthData.getElementValue(currentBitOffset, numBitsForField);
+                startByte = ordinal != 0 ? currentData.fixedLengthData.getElementValue(currentBitOffset - currentData.bitsPerRecord, numBitsForField) : 0;
+            } while(readWasUnsafe(currentData));
+
+            if((endByte & (1L << numBitsForField - 1)) != 0) {
+                view.clear();
+                return false;
+            }
+
+            startByte &= (1L << numBitsForField - 1) - 1;
+
+            view.reset(currentData.varLengthData[fieldIndex], startByte, (int)(endByte - startByte));
+        } while(readWasUnsafe(currentData));
+
+        return true;
+    }
+
+    public String readString(int ordinal, int fieldIndex) {
+        HollowObjectTypeDataElements currentData = readData();
+        String result = cachedString(currentData, ordinal, fieldIndex);
+        if(result != null)
+            return result;
+
+        do {
+            int numBitsForField;
+            long endByte;
+            long startByte;
+
+            do {
+                currentData = readData();
 
                 numBitsForField = currentData.bitsPerField[fieldIndex];
                 long currentBitOffset = fieldOffset(currentData, ordinal, fieldIndex);
@@ -228,9 +289,58 @@ class HollowObjectTypeReadStateShard {
             result = readString(currentData.varLengthData[fieldIndex], startByte, length);
         } while(readWasUnsafe(currentData));
 
+        cacheString(currentData, ordinal, fieldIndex, result);
         return result;
     }
 
+    public boolean readStringView(int ordinal, int fieldIndex, HollowStringView view) {
+        HollowObjectTypeDataElements currentData = readData();
+        String cached = cachedString(currentData, ordinal, fieldIndex);
+        if(cached != null) {
+            view.reset(cached);
+            return true;
+        }
+
+        do {
+            int numBitsForField;
+            long endByte;
+            long startByte;
+
+            do {
+                currentData = readData();
+
+                numBitsForField = currentData.bitsPerField[fieldIndex];
+                long currentBitOffset = fieldOffset(currentData, ordinal, fieldIndex);
+                endByte = currentData.fixedLengthData.getElementValue(currentBitOffset, numBitsForField);
+                startByte = ordinal != 0 ? currentData.fixedLengthData.getElementValue(currentBitOffset - currentData.bitsPerRecord, numBitsForField) : 0;
+            } while(readWasUnsafe(currentData));
+
+            if((endByte & (1L << numBitsForField - 1)) != 0) {
+                view.clear();
+                return false;
+            }
+
+            startByte &= (1L << numBitsForField - 1) - 1;
+
+            view.reset(currentData.varLengthData[fieldIndex], startByte, (int)(endByte - startByte));
+        } while(readWasUnsafe(currentData));
+
+        return true;
+    }
+
+    private static String cachedString(HollowObjectTypeDataElements currentData, int ordinal, int fieldIndex) {
+        String stringCache[][] = currentData.stringCache;
+        if(stringCache == null || stringCache[fieldIndex] == null || ordinal >= stringCache[fieldIndex].length)
+            return null;
+        return stringCache[fieldIndex][ordinal];
+    }
+
+    private static void cacheString(HollowObjectTypeDataElements currentData, int ordinal, int fieldIndex, String value) {
+        String stringCache[][] = currentData.stringCache;
+        if(stringCache != null && stringCache[fieldIndex] != null && ordinal < stringCache[fieldIndex].length)
+            stringCache[fieldIndex][ordinal] = value;
+    }
+
     public boolean isStringFieldEqual(int ordinal, int fieldIndex, String testValue) {
         HollowObjectTypeDataElements currentData;
         boolean result;
@@ -241,7 +351,7 @@ class HollowObjectTypeReadStateShard {
             long startByte;
 
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 numBitsForField = currentData.bitsPerField[fieldIndex];
 
@@ -274,7 +384,7 @@ class HollowObjectTypeReadStateShard {
             long startByte;
 
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 numBitsForField = currentData.bitsPerField[fieldIndex];
                 long currentBitOffset = fieldOffset(currentData, ordinal, fieldIndex);
@@ -372,7 +482,7 @@ class HollowObjectTypeReadStateShard {
         return currentDataVolatile;
     }
 
-    private boolean readWasUnsafe(HollowObjectTypeDataElements data) {
+    boolean readWasUnsafe(HollowObjectTypeDataElements data) {
         // Use a load (acquire) fence to constrain the compiler reordering prior plain loads so
         // that they cannot "float down" below the volatile load of currentDataVolatile.
         // This ensures data is checked against currentData *after* optimistic calculations
@@ -398,13 +508,52 @@ class HollowObjectTypeReadStateShard {
         //
         // For more details see http://gee.cs.oswego.edu/dl/html/j9mm.html
         HollowUnsafeHandle.getUnsafe().loadFence();
-        return data != currentDataVolatile;
+        /// data read through a pinned read view is retained until the view is closed
+        return data != currentDataVolatile && readViews.getPinnedGeneration() == HollowReadViews.NO_PINNED_GENERATION;
     }
 
     void setCurrentData(HollowObjectTypeDataElements data) {
         this.currentDataVolatile = data;
     }
 
+    /**
+     * Replaces the current data with the data produced by a delta.  While read views are enabled, the replaced data
+     * remains readable through the next data by the views of prior generations.
+     */
+    void updateCurrentData(HollowObjectTypeDataElements nextData) {
+        if(readViews.isEnabled()) {
+            nextData.generation = readViews.getNextGeneration();
+            nextData.previous = this.currentDataVolatile;
+        }
+        this.currentDataVolatile = nextData;
+    }
+
+    /**
+     * Retires the data replaced by a delta, which is destroyed once no read view can read it.
+     */
+    void retireData(HollowObjectTypeDataElements oldData, HollowObjectTypeDataElements nextData) {
+        readViews.retire(() -> nextData.previous = null, oldData::destroy);
+    }
+
+    /**
+     * @return the current data or, on a thread which has pinned a read view, the newest data which is not newer than
+     *         the view
+     */
+    HollowObjectTypeDataElements readData() {
+        HollowObjectTypeDataElements data = this.currentDataVolatile;
+        HollowObjectTypeDataElements previous = data.previous;
+        if(previous != null) {
+            long pinnedGeneration = readViews.getPinnedGeneration();
+            if(pinnedGeneration != HollowReadViews.NO_PINNED_GENERATION) {
+                while(data.generation > pinnedGeneration && previous != null) {
+                    data = previous;
+                    previous = data.previous;
+                }
+            }
+        }
+        return data;
+    }
+
     protected void applyToChecksum(HollowChecksum checksum, HollowSchema withSchema, BitSet populatedOrdinals, int shardNumber, int numShards) {
         if(!(withSchema instanceof HollowObjectSchema))
             throw new IllegalArgumentException("HollowObjectTypeReadState can only calculate checksum with a HollowObjectSchema: " + schema.getName());
@@ -18,6 +18,7 @@ package com.netflix.hollow.core.read.engine.set;
 
 import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
 import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import java.util.BitSet;
 
 /**
  * This class contains the logic for applying a delta to a current SET type state
@@ -55,7 +56,9 @@ class HollowSetDeltaApplicator {
         removalsReader.reset();
         additionsReader.reset();
 
-        target.encodedRemovals = delta.encodedRemovals;
+        /// an ordinal which is removed and added by the same delta is populated in the target state, and so must not
+        /// be removed when the next delta is applied; this only occurs for deltas squashed from a chain of deltas
+        target.encodedRemovals = delta.encodedRemovals.without(delta.encodedAdditions, target.memoryRecycler);
 
         target.maxOrdinal = delta.maxOrdinal;
 
@@ -69,6 +72,13 @@ class HollowSetDeltaApplicator {
         target.setPointerAndSizeData = new FixedLengthElementArray(target.memoryRecycler, ((long)target.maxOrdinal + 1) * target.bitsPerFixedLengthSetPortion);
         target.elementData = new FixedLengthElementArray(target.memoryRecycler, target.totalNumberOfBuckets * target.bitsPerElement);
 
+        /// the fingerprints of the retained sets are carried over, and those of the added sets are derived once the
+        /// delta has been applied to every type
+        if(from.keyFingerprints != null && target.canFingerprintKeys()) {
+            target.keyFingerprints = new byte[(int)target.totalNumberOfBuckets];
+            target.unfingerprintedOrdinals = new BitSet();
+        }
+
         if(target.bitsPerSetPointer == from.bitsPerSetPointer
                 && target.bitsPerSetSizeValue == from.bitsPerSetSizeValue
                 && target.bitsPerElement == from.bitsPerElement)
@@ -124,6 +134,8 @@ class HollowSetDeltaApplicator {
         long bitsToCopy = bucketsToCopy * from.bitsPerElement;
 
         target.elementData.copyBits(from.elementData, currentFromStateStartBucket * from.bitsPerElement, currentWriteStartBucket * from.bitsPerElement, bitsToCopy);
+        if(target.keyFingerprints != null)
+            System.arraycopy(from.keyFingerprints, (int)currentFromStateStartBucket, target.keyFingerprints, (int)currentWriteStartBucket, (int)bucketsToCopy);
 
         currentFromStateStartBucket += bucketsToCopy;
         currentWriteStartBucket += bucketsToCopy;
@@ -135,21 +147,25 @@ class HollowSetDeltaApplicator {
 
         if(addFromDelta) {
             addFromDelta(additionsReader);
+            if(target.unfingerprintedOrdinals != null)
+                target.unfingerprintedOrdinals.set(i);
         }
 
         if(i <= from.maxOrdinal) {
             long fromDataEndBucket = from.setPointerAndSizeData.getElementValue(currentFromStateCopyStartBit, from.bitsPerSetPointer);
-            if(!removeData) {
+            if(!removeData && !addFromDelta) {
                 for(long bucketIdx=currentFromStateStartBucket; bucketIdx<fromDataEndBucket; bucketIdx++) {
                     long bucketValue = from.elementData.getElementValue(bucketIdx * from.bitsPerElement, from.bitsPerElement);
                     if(bucketValue == from.emptyBucketValue)
                         bucketValue = target.emptyBucketValue;
                     target.elementData.setElementValue(currentWriteStartBucket * target.bitsPerElement, target.bitsPerElement, bucketValue);
+                    if(target.keyFingerprints != null)
+                        target.keyFingerprints[(int)currentWriteStartBucket] = from.keyFingerprints[(int)bucketIdx];
                     currentWriteStartBucket++;
                 }
                 long fromDataSize = from.setPointerAndSizeData.getElementValue(currentFromStateCopyStartBit + from.bitsPerSetPointer, from.bitsPerSetSizeValue);
                 target.setPointerAndSizeData.setElementValue(currentWriteStartBit + target.bitsPerSetPointer, target.bitsPerSetSizeValue, fromDataSize);
-            } else {
+            } else if(removeData) {
                 removalsReader.advance();
             }
 
@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine.set;
+
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import com.netflix.hollow.core.read.engine.ReshardingPlan;
+
+/**
+ * This class contains the logic for copying the records of a SET type, held in some number of shards, into one
+ * shard of a different number of shards.
+ *
+ * Not intended for external consumption.
+ */
+class HollowSetReshardingCopier {
+
+    private final HollowSetTypeDataElements from[];
+    private final HollowSetTypeDataElements target;
+
+    HollowSetReshardingCopier(HollowSetTypeDataElements from[], HollowSetTypeDataElements target) {
+        this.from = from;
+        this.target = target;
+    }
+
+    /**
+     * Copies the records planned for a new shard of a type state.  The max ordinal and the removals of the target are
+     * not set.
+     */
+    void copyRecords(ReshardingPlan plan, int shardNumber) {
+        copyRecords(plan, shardNumber, -1);
+    }
+
+    /**
+     * Copies the records planned for a new shard of a delta, which is applied to the given data.  The max ordinal, and
+     * the removals and additions, of the target are not set.
+     * <p>
+     * The bucket count of a delta is the bucket count of the state it produces, so it is counted for the new shard.
+     */
+    void copyDeltaRecords(ReshardingPlan plan, int shardNumber, HollowSetTypeDataElements fromState) {
+        copyRecords(plan, shardNumber, totalNumberOfBucketsAfterDelta(plan, shardNumber, fromState));
+    }
+
+    private void copyRecords(ReshardingPlan plan, int shardNumber, long totalNumberOfBucketsAfterDelta) {
+        int sourceShards[] = plan.getSourceShards(shardNumber);
+        int sourceRecords[] = plan.getSourceRecords(shardNumber);
+
+        long numberOfCopiedBuckets = 0;
+        for(int j=0;j<sourceRecords.length;j++)
+            numberOfCopiedBuckets += numBuckets(from[sourceShards[j]], sourceRecords[j]);
+
+        target.bitsPerElement = 0;
+        target.bitsPerSetSizeValue = 0;
+        target.bitsPerSetPointer = 0;
+        for(HollowSetTypeDataElements source : from) {
+            target.bitsPerElement = Math.max(target.bitsPerElement, source.bitsPerElement);
+            target.bitsPerSetSizeValue = Math.max(target.bitsPerSetSizeValue, source.bitsPerSetSizeValue);
+            target.bitsPerSetPointer = Math.max(target.bitsPerSetPointer, source.bitsPerSetPointer);
+        }
+        target.totalNumberOfBuckets = totalNumberOfBucketsAfterDelta == -1 ? numberOfCopiedBuckets : totalNumberOfBucketsAfterDelta;
+        target.bitsPerSetPointer = Math.max(target.bitsPerSetPointer, bitsRequired(Math.max(numberOfCopiedBuckets, target.totalNumberOfBuckets)));
+        target.bitsPerFixedLengthSetPortion = target.bitsPerSetPointer + target.bitsPerSetSizeValue;
+        target.emptyBucketValue = (1 << target.bitsPerElement) - 1;
+
+        target.setPointerAndSizeData = new FixedLengthElementArray(target.memoryRecycler, (long)sourceRecords.length * target.bitsPerFixedLengthSetPortion);
+        target.elementData = new FixedLengthElementArray(target.memoryRecycler, numberOfCopiedBuckets * target.bitsPerElement);
+
+        long currentWriteStartBucket = 0;
+        for(int j=0;j<sourceRecords.length;j++) {
+            HollowSetTypeDataElements source = from[sourceShards[j]];
+            long startBucket = startBucket(source, sourceRecords[j]);
+            long endBucket = endBucket(source, sourceRecords[j]);
+
+            for(long bucketIdx=startBucket;bucketIdx<endBucket;bucketIdx++) {
+                long bucketValue = source.elementData.getElementValue(bucketIdx * source.bitsPerElement, source.bitsPerElement);
+                if(bucketValue == source.emptyBucketValue)
+                    bucketValue = target.emptyBucketValue;
+                target.elementData.setElementValue(currentWriteStartBucket * target.bitsPerElement, target.bitsPerElement, bucketValue);
+                currentWriteStartBucket++;
+            }
+
+            long writeStartBit = (long)j * target.bitsPerFixedLengthSetPortion;
+            long size = source.setPointerAndSizeData.getElementValue((long)sourceRecords[j] * source.bitsPerFixedLengthSetPortion + source.bitsPerSetPointer, source.bitsPerSetSizeValue);
+            target.setPointerAndSizeData.setElementValue(writeStartBit, target.bitsPerSetPointer, currentWriteStartBucket);
+            target.setPointerAndSizeData.setElementValue(writeStartBit + target.bitsPerSetPointer, target.bitsPerSetSizeValue, size);
+        }
+    }
+
+    /**
+     * Counts the buckets which the delta application retains from the current state or adds from the delta, in the
+     * same manner as the {@link HollowSetDeltaApplicator}.
+     */
+    private long totalNumberOfBucketsAfterDelta(ReshardingPlan plan, int shardNumber, HollowSetTypeDataElements fromState) {
+        int sourceShards[] = plan.getSourceShards(shardNumber);
+        int sourceRecords[] = plan.getSourceRecords(shardNumber);
+        GapEncodedVariableLengthIntegerReader additions = plan.getAdditions(shardNumber);
+        GapEncodedVariableLengthIntegerReader removals = fromState.encodedRemovals == null ? GapEncodedVariableLengthIntegerReader.EMPTY_READER : fromState.encodedRemovals;
+        additions.reset();
+        removals.reset();
+
+        long totalNumberOfBuckets = 0;
+        int addedRecord = 0;
+        for(int i=0;i<=plan.getMaxShardOrdinal(shardNumber);i++) {
+            boolean removed = removals.nextElement() == i;
+            if(additions.nextElement() == i) {
+                totalNumberOfBuckets += numBuckets(from[sourceShards[addedRecord]], sourceRecords[addedRecord]);
+                addedRecord++;
+                additions.advance();
+            } else if(i <= fromState.maxOrdinal && !removed) {
+                totalNumberOfBuckets += numBuckets(fromState, i);
+            }
+            if(removed)
+                removals.advance();
+        }
+
+        additions.reset();
+        removals.reset();
+        return totalNumberOfBuckets;
+    }
+
+    private static long numBuckets(HollowSetTypeDataElements data, int record) {
+        return endBucket(data, record) - startBucket(data, record);
+    }
+
+    private static long startBucket(HollowSetTypeDataElements data, int record) {
+        return record == 0 ? 0 : endBucket(data, record - 1);
+    }
+
+    private static long endBucket(HollowSetTypeDataElements data, int record) {
+        return data.setPointerAndSizeData.getElementValue((long)record * data.bitsPerFixedLengthSetPortion, data.bitsPerSetPointer);
+    }
+
+    private static int bitsRequired(long value) {
+        return value == 0 ? 1 : 64 - Long.numberOfLeadingZeros(value);
+    }
+}
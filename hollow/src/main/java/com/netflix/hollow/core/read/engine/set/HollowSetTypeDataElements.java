@@ -19,11 +19,14 @@ package com.netflix.hollow.core.read.engine.set;
 import com.netflix.hollow.core.memory.FixedLengthData;
 import com.netflix.hollow.core.memory.FixedLengthDataFactory;
 import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.SharedMemoryFile;
 import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import com.netflix.hollow.core.memory.encoding.OffHeapElementArray;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
 import java.io.IOException;
+import java.util.BitSet;
 
 /**
  * This class holds the data for a {@link HollowSetTypeReadState}.
@@ -36,6 +39,10 @@ public class HollowSetTypeDataElements {
 
     int maxOrdinal;
 
+    /// the generation which produced this data, and the data it replaced while a read view may still read that data
+    long generation;
+    HollowSetTypeDataElements previous;
+
     FixedLengthData setPointerAndSizeData;
     FixedLengthData elementData;
 
@@ -49,6 +56,12 @@ public class HollowSetTypeDataElements {
     int emptyBucketValue;
     long totalNumberOfBuckets;
 
+    /// the fingerprint of the key in each bucket, or 0 if it is unknown, while key fingerprints are enabled, see
+    /// HollowSetTypeReadState#setKeyFingerprintsEnabled(boolean); and the ordinals added by the delta which produced
+    /// this data, whose buckets are yet to be fingerprinted
+    volatile byte keyFingerprints[];
+    BitSet unfingerprintedOrdinals;
+
     final ArraySegmentRecycler memoryRecycler;
     final MemoryMode memoryMode;
 
@@ -117,6 +130,62 @@ public class HollowSetTypeDataElements {
         new HollowSetDeltaApplicator(fromData, deltaData, this).applyDelta();
     }
 
+    /**
+     * Touches the data if it is mapped from shared memory, so that it is resident in main memory before it is first read.
+     */
+    void warmUp() {
+        FixedLengthDataFactory.warmUp(setPointerAndSizeData);
+        FixedLengthDataFactory.warmUp(elementData);
+    }
+
+    /**
+     * Moves the data which a delta application produced on the heap off of the heap, into shared memory or into the
+     * slabs of an off-heap state engine, depending on the memory mode.
+     */
+    void moveOffHeap() throws IOException {
+        if(memoryMode.isSharedMemory()) {
+            moveToSharedMemory();
+            return;
+        }
+
+        FixedLengthData heapSetPointerAndSizeData = setPointerAndSizeData;
+        FixedLengthData heapElementData = elementData;
+
+        setPointerAndSizeData = OffHeapElementArray.copyOf(heapSetPointerAndSizeData, ((long)maxOrdinal + 1) * bitsPerFixedLengthSetPortion, memoryRecycler);
+        elementData = OffHeapElementArray.copyOf(heapElementData, totalNumberOfBuckets * bitsPerElement, memoryRecycler);
+
+        FixedLengthDataFactory.destroy(heapSetPointerAndSizeData, memoryRecycler);
+        FixedLengthDataFactory.destroy(heapElementData, memoryRecycler);
+    }
+
+    /**
+     * Moves the data which a delta application produced on the heap into shared memory, by writing it to a file which
+     * is mapped in place of the on-heap arrays.
+     */
+    private void moveToSharedMemory() throws IOException {
+        FixedLengthData heapSetPointerAndSizeData = setPointerAndSizeData;
+        FixedLengthData heapElementData = elementData;
+
+        try(SharedMemoryFile file = SharedMemoryFile.create()) {
+            file.write(heapSetPointerAndSizeData, ((long)maxOrdinal + 1) * bitsPerFixedLengthSetPortion);
+            file.write(heapElementData, totalNumberOfBuckets * bitsPerElement);
+
+            HollowBlobInput in = file.map(memoryMode);
+            setPointerAndSizeData = FixedLengthDataFactory.get(in, memoryMode, memoryRecycler);
+            elementData = FixedLengthDataFactory.get(in, memoryMode, memoryRecycler);
+        }
+
+        FixedLengthDataFactory.destroy(heapSetPointerAndSizeData, memoryRecycler);
+        FixedLengthDataFactory.destroy(heapElementData, memoryRecycler);
+    }
+
+    /**
+     * @return whether a key fingerprint can be held for each bucket, in a single array
+     */
+    boolean canFingerprintKeys() {
+        return totalNumberOfBuckets <= Integer.MAX_VALUE;
+    }
+
     public void destroy() {
         FixedLengthDataFactory.destroy(setPointerAndSizeData, memoryRecycler);
         FixedLengthDataFactory.destroy(elementData, memoryRecycler);
@@ -24,6 +24,7 @@ import com.netflix.hollow.api.sampling.HollowSamplingDirector;
 import com.netflix.hollow.api.sampling.HollowSetSampler;
 import com.netflix.hollow.core.index.key.HollowPrimaryKeyValueDeriver;
 import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.HollowBlobInput;
@@ -32,6 +33,7 @@ import com.netflix.hollow.core.read.engine.HollowCollectionTypeReadState;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
+import com.netflix.hollow.core.read.engine.ReshardingPlan;
 import com.netflix.hollow.core.read.engine.SnapshotPopulatedOrdinalsReader;
 import com.netflix.hollow.core.read.filter.HollowFilterConfig;
 import com.netflix.hollow.core.read.iterator.EmptyOrdinalIterator;
@@ -43,6 +45,8 @@ import com.netflix.hollow.core.schema.HollowSetSchema;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.IOException;
 import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * A {@link HollowTypeReadState} for OBJECT type records. 
@@ -51,11 +55,11 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
 
     private final HollowSetSampler sampler;
     
-    private final int shardNumberMask;
-    private final int shardOrdinalShift;
-    private final HollowSetTypeReadStateShard shards[];
+    private volatile ShardsHolder shardsVolatile;
     
     private HollowPrimaryKeyValueDeriver keyDeriver;
+
+    private boolean keyFingerprintsEnabled;
     
     private int maxOrdinal;
 
@@ -66,22 +70,20 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
     public HollowSetTypeReadState(HollowReadStateEngine stateEngine, MemoryMode memoryMode, HollowSetSchema schema, int numShards) {
         super(stateEngine, memoryMode, schema);
         this.sampler = new HollowSetSampler(schema.getName(), DisabledSamplingDirector.INSTANCE);
-        this.shardNumberMask = numShards - 1;
-        this.shardOrdinalShift = 31 - Integer.numberOfLeadingZeros(numShards);
-        
-        if(numShards < 1 || 1 << shardOrdinalShift != numShards)
+
+        if(numShards < 1 || Integer.bitCount(numShards) != 1)
             throw new IllegalArgumentException("Number of shards must be a power of 2!");
         
         HollowSetTypeReadStateShard shards[] = new HollowSetTypeReadStateShard[numShards];
         for(int i=0;i<shards.length;i++)
-            shards[i] = new HollowSetTypeReadStateShard();
+            shards[i] = new HollowSetTypeReadStateShard(getReadViews());
         
-        this.shards = shards;
-
+        this.shardsVolatile = new ShardsHolder(shards);
     }
 
     @Override
     public void readSnapshot(HollowBlobInput in, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
         if(shards.length > 1)
             maxOrdinal = VarInt.readVInt(in);
         
@@ -98,27 +100,200 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
     }
 
     @Override
-    public void applyDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler) throws IOException {
+    public void applyDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler, int deltaNumShards) throws IOException {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
+        int deltaMaxOrdinal = deltaNumShards > 1 ? VarInt.readVInt(in) : -1;
+
+        if(deltaNumShards != shards.length) {
+            HollowSetTypeDataElements deltaData[] = readReshardedDelta(in, shards, memoryRecycler, deltaNumShards, deltaMaxOrdinal);
+            for(int i=0;i<shards.length;i++)
+                applyDelta(shards, i, deltaData[i], memoryRecycler);
+            maxOrdinal = maxOrdinal(deltaData);
+            return;
+        }
+
         if(shards.length > 1)
-            maxOrdinal = VarInt.readVInt(in);
+            maxOrdinal = deltaMaxOrdinal;
 
         for(int i=0;i<shards.length;i++) {
             HollowSetTypeDataElements deltaData = new HollowSetTypeDataElements(memoryMode, memoryRecycler);
-            HollowSetTypeDataElements nextData = new HollowSetTypeDataElements(memoryMode, memoryRecycler);
             deltaData.readDelta(in);
-            HollowSetTypeDataElements oldData = shards[i].currentDataElements();
-            nextData.applyDelta(oldData, deltaData);
-            shards[i].setCurrentData(nextData);
-            notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, i, shards.length);
-            deltaData.destroy();
-            oldData.destroy();
-            stateEngine.getMemoryRecycler().swap();
+            applyDelta(shards, i, deltaData, memoryRecycler);
         }
 
         if(shards.length == 1)
             maxOrdinal = shards[0].currentDataElements().maxOrdinal;
     }
 
+    private void applyDelta(HollowSetTypeReadStateShard shards[], int shardNumber, HollowSetTypeDataElements deltaData, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowSetTypeDataElements nextData = new HollowSetTypeDataElements(memoryMode, memoryRecycler);
+        HollowSetTypeDataElements oldData = shards[shardNumber].currentDataElements();
+        nextData.applyDelta(oldData, deltaData);
+        if(memoryMode != MemoryMode.ON_HEAP)
+            nextData.moveOffHeap();
+        shards[shardNumber].updateCurrentData(nextData);
+        notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, shardNumber, shards.length);
+        deltaData.destroy();
+        shards[shardNumber].retireData(oldData, nextData);
+        stateEngine.getMemoryRecycler().swap();
+    }
+
+    @Override
+    public Runnable stageDelta(HollowBlobInput in, HollowSchema schema, ArraySegmentRecycler memoryRecycler, Executor executor, int deltaNumShards) throws IOException {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
+        int deltaMaxOrdinal = deltaNumShards > 1 ? VarInt.readVInt(in) : -1;
+
+        HollowSetTypeDataElements deltaData[] = deltaNumShards != shards.length ?
+                readReshardedDelta(in, shards, memoryRecycler, deltaNumShards, deltaMaxOrdinal)
+                : new HollowSetTypeDataElements[shards.length];
+        HollowSetTypeDataElements nextData[] = new HollowSetTypeDataElements[shards.length];
+
+        for(int i=0;i<shards.length;i++) {
+            if(deltaData[i] == null) {
+                deltaData[i] = new HollowSetTypeDataElements(memoryMode, memoryRecycler);
+                deltaData[i].readDelta(in);
+            }
+            HollowSetTypeDataElements shardDeltaData = deltaData[i];
+            HollowSetTypeDataElements shardNextData = new HollowSetTypeDataElements(memoryMode, memoryRecycler);
+            HollowSetTypeDataElements oldData = shards[i].currentDataElements();
+            executor.execute(() -> shardNextData.applyDelta(oldData, shardDeltaData));
+            nextData[i] = shardNextData;
+        }
+
+        int nextMaxOrdinal = deltaNumShards != shards.length || shards.length == 1 ? maxOrdinal(deltaData) : deltaMaxOrdinal;
+
+        return () -> {
+            for(int i=0;i<shards.length;i++) {
+                HollowSetTypeDataElements oldData = shards[i].currentDataElements();
+                shards[i].updateCurrentData(nextData[i]);
+                notifyListenerAboutDeltaChanges(deltaData[i].encodedRemovals, deltaData[i].encodedAdditions, i, shards.length);
+                deltaData[i].destroy();
+                shards[i].retireData(oldData, nextData[i]);
+            }
+
+            maxOrdinal = nextMaxOrdinal;
+        };
+    }
+
+    @Override
+    public long readSnapshotInPlace(HollowBlobInput in, ArraySegmentRecycler memoryRecycler, int snapshotNumShards) throws IOException {
+        HollowSetTypeReadState snapshotState = new HollowSetTypeReadState(stateEngine, memoryMode, getSchema(), snapshotNumShards);
+        PopulatedOrdinalListener snapshotOrdinals = new PopulatedOrdinalListener();
+        snapshotState.addListener(snapshotOrdinals);
+        snapshotState.readSnapshot(in, memoryRecycler);
+        long transientBytes = snapshotState.getApproximateHeapFootprintInBytes();
+
+        HollowSetTypeDataElements snapshotData[] = snapshotState.currentDataElements();
+        if(snapshotNumShards != numShards()) {
+            snapshotState.reshard(numShards());
+            transientBytes += snapshotState.getApproximateHeapFootprintInBytes();
+            for(int i=0;i<snapshotData.length;i++)
+                snapshotData[i].destroy();
+            snapshotData = snapshotState.currentDataElements();
+        }
+
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
+        BitSet previousOrdinals = (BitSet)getPopulatedOrdinals().clone();
+        for(int i=0;i<shards.length;i++) {
+            HollowSetTypeDataElements oldData = shards[i].currentDataElements();
+            shards[i].updateCurrentData(snapshotData[i]);
+            shards[i].retireData(oldData, snapshotData[i]);
+        }
+
+        maxOrdinal = snapshotState.maxOrdinal;
+        notifyListenerAboutSnapshotChanges(previousOrdinals, snapshotOrdinals.getPopulatedOrdinals());
+        return transientBytes;
+    }
+
+    /**
+     * Reads the shards of a delta which was written with a different number of shards than this type state has, and
+     * copies their records into a delta for each shard of this type state.
+     */
+    private HollowSetTypeDataElements[] readReshardedDelta(HollowBlobInput in, HollowSetTypeReadStateShard shards[], ArraySegmentRecycler memoryRecycler, int deltaNumShards, int deltaMaxOrdinal) throws IOException {
+        HollowSetTypeDataElements deltaData[] = new HollowSetTypeDataElements[deltaNumShards];
+        GapEncodedVariableLengthIntegerReader removals[] = new GapEncodedVariableLengthIntegerReader[deltaNumShards];
+        GapEncodedVariableLengthIntegerReader additions[] = new GapEncodedVariableLengthIntegerReader[deltaNumShards];
+        for(int i=0;i<deltaNumShards;i++) {
+            deltaData[i] = new HollowSetTypeDataElements(memoryMode, memoryRecycler);
+            deltaData[i].readDelta(in);
+            removals[i] = deltaData[i].encodedRemovals;
+            additions[i] = deltaData[i].encodedAdditions;
+        }
+
+        if(deltaNumShards == 1)
+            deltaMaxOrdinal = deltaData[0].maxOrdinal;
+
+        ReshardingPlan plan = ReshardingPlan.forDelta(deltaNumShards, shards.length, deltaMaxOrdinal, removals, additions, memoryRecycler);
+        HollowSetTypeDataElements reshardedDeltaData[] = new HollowSetTypeDataElements[shards.length];
+        for(int i=0;i<shards.length;i++) {
+            reshardedDeltaData[i] = new HollowSetTypeDataElements(MemoryMode.ON_HEAP, memoryRecycler);
+            new HollowSetReshardingCopier(deltaData, reshardedDeltaData[i]).copyDeltaRecords(plan, i, shards[i].currentDataElements());
+            reshardedDeltaData[i].maxOrdinal = plan.getMaxShardOrdinal(i);
+            reshardedDeltaData[i].encodedRemovals = plan.getRemovals(i);
+            reshardedDeltaData[i].encodedAdditions = plan.getAdditions(i);
+        }
+
+        for(int i=0;i<deltaNumShards;i++) {
+            deltaData[i].destroy();
+            removals[i].destroy();
+            additions[i].destroy();
+        }
+
+        return reshardedDeltaData;
+    }
+
+    /**
+     * Copies the records of this type state into the given number of shards.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     *
+     * @param numShards the new number of shards, a power of 2
+     * @throws IOException if the data could not be moved into shared memory
+     */
+    @Override
+    public void reshard(int numShards) throws IOException {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
+        if(numShards < 1 || Integer.bitCount(numShards) != 1)
+            throw new IllegalArgumentException("Number of shards must be a power of 2!");
+        if(numShards == shards.length)
+            return;
+
+        ArraySegmentRecycler memoryRecycler = stateEngine.getMemoryRecycler();
+        HollowSetTypeDataElements currentData[] = currentDataElements();
+        GapEncodedVariableLengthIntegerReader removals[] = new GapEncodedVariableLengthIntegerReader[currentData.length];
+        for(int i=0;i<currentData.length;i++)
+            removals[i] = currentData[i].encodedRemovals;
+
+        ReshardingPlan plan = ReshardingPlan.forState(shards.length, numShards, maxOrdinal, removals, memoryRecycler);
+        HollowSetTypeReadStateShard reshardedShards[] = new HollowSetTypeReadStateShard[numShards];
+        for(int i=0;i<numShards;i++) {
+            HollowSetTypeDataElements data = new HollowSetTypeDataElements(memoryMode, memoryRecycler);
+            new HollowSetReshardingCopier(currentData, data).copyRecords(plan, i);
+            data.maxOrdinal = plan.getMaxShardOrdinal(i);
+            data.encodedRemovals = plan.getRemovals(i);
+            if(memoryMode != MemoryMode.ON_HEAP)
+                data.moveOffHeap();
+            data.generation = getReadViews().getGeneration();
+            reshardedShards[i] = new HollowSetTypeReadStateShard(getReadViews());
+            reshardedShards[i].setCurrentData(data);
+            if(keyDeriver != null)
+                reshardedShards[i].setKeyDeriver(keyDeriver);
+        }
+
+        /// the prior data is not destroyed, since it may still be read by a thread which located a prior shard
+        shardsVolatile = new ShardsHolder(reshardedShards);
+        updateKeyFingerprints();
+    }
+
+    private static int maxOrdinal(HollowSetTypeDataElements shardData[]) {
+        int maxOrdinal = -1;
+        for(int i=0;i<shardData.length;i++) {
+            if(shardData[i].maxOrdinal != -1)
+                maxOrdinal = Math.max(maxOrdinal, shardData[i].maxOrdinal * shardData.length + i);
+        }
+        return maxOrdinal;
+    }
+
     public static void discardSnapshot(HollowBlobInput in, int numShards) throws IOException {
         discardType(in, numShards, false);
     }
@@ -141,7 +316,8 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
     @Override
     public int size(int ordinal) {
         sampler.recordSize();
-        return shards[ordinal & shardNumberMask].size(ordinal >> shardOrdinalShift);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].size(ordinal >> shardsHolder.shardOrdinalShift);
     }
 
     @Override
@@ -152,7 +328,8 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
     @Override
     public boolean contains(int ordinal, int value, int hashCode) {
         sampler.recordGet();
-        return shards[ordinal & shardNumberMask].contains(ordinal >> shardOrdinalShift, value, hashCode);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].contains(ordinal >> shardsHolder.shardOrdinalShift, value, hashCode);
     }
     
     @Override
@@ -167,13 +344,15 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
         if(hashKey.length != fieldTypes.length)
             return ORDINAL_NONE;
 
-        return shards[ordinal & shardNumberMask].findElement(ordinal >> shardOrdinalShift, hashKey);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[ordinal & shardsHolder.shardNumberMask].findElement(ordinal >> shardsHolder.shardOrdinalShift, hashKey);
     }
     
 
     @Override
     public int relativeBucketValue(int setOrdinal, int bucketIndex) {
-        return shards[setOrdinal & shardNumberMask].relativeBucketValue(setOrdinal >> shardOrdinalShift, bucketIndex);
+        ShardsHolder shardsHolder = this.shardsVolatile;
+        return shardsHolder.shards[setOrdinal & shardsHolder.shardNumberMask].relativeBucketValue(setOrdinal >> shardsHolder.shardOrdinalShift, bucketIndex);
     }
 
     @Override
@@ -219,12 +398,14 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
 
     @Override
     protected void invalidate() {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
         stateListeners = EMPTY_LISTENERS;
         for(int i=0;i<shards.length;i++)
             shards[i].invalidate();
     }
 
     HollowSetTypeDataElements[] currentDataElements() {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
         HollowSetTypeDataElements currentDataElements[] = new HollowSetTypeDataElements[shards.length];
         
         for(int i=0;i<shards.length;i++)
@@ -234,6 +415,7 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
     }
 
     void setCurrentData(HollowSetTypeDataElements data) {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
         if(shards.length > 1)
             throw new UnsupportedOperationException("Cannot directly set data on sharded type state");
         shards[0].setCurrentData(data);
@@ -242,6 +424,7 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
 
     @Override
     protected void applyToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
         if(!getSchema().equals(withSchema))
             throw new IllegalArgumentException("HollowSetTypeReadState cannot calculate checksum with unequal schemas: " + getSchema().getName());
         
@@ -253,6 +436,7 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
 
 	@Override
 	public long getApproximateHeapFootprintInBytes() {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
         long totalApproximateHeapFootprintInBytes = 0;
         
         for(int i=0;i<shards.length;i++)
@@ -263,6 +447,7 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
 	
 	@Override
 	public long getApproximateHoleCostInBytes() {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
         long totalApproximateHoleCostInBytes = 0;
         
         BitSet populatedOrdinals = getPopulatedOrdinals();
@@ -278,6 +463,7 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
 	}
 	
 	public void buildKeyDeriver() {
+	    HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
 	    if(getSchema().getHashKey() != null)
 	        this.keyDeriver = new HollowPrimaryKeyValueDeriver(getSchema().getHashKey(), getStateEngine());
 	    
@@ -285,9 +471,75 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
 	        shards[i].setKeyDeriver(keyDeriver);
 	}
 
+    /**
+     * Enable or disable key fingerprints, which speed up the lookups of sets by hash key.
+     * <p>
+     * While enabled, each shard holds a byte on the heap for each bucket, derived from the hash of the key in the bucket.
+     * Lookups by hash key (see {@link #findElement(int, Object...)}) compare the fingerprint of the queried key with that of each probed
+     * bucket, and only read the fields of the key in the bucket, which may be held by several referenced types, if the
+     * fingerprints are equal.  The fingerprints of the sets retained by a delta are carried over, and those of the added
+     * sets are derived once every type has been updated.  This type must have a hash key for fingerprints to be derived.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread, or before the data is read.
+     *
+     * @param enabled whether key fingerprints are held
+     */
+    public void setKeyFingerprintsEnabled(boolean enabled) {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
+        this.keyFingerprintsEnabled = enabled;
+        for(int i=0;i<shards.length;i++) {
+            if(enabled)
+                shards[i].updateKeyFingerprints();
+            else
+                shards[i].clearKeyFingerprints();
+        }
+    }
+
+    public boolean isKeyFingerprintsEnabled() {
+        return keyFingerprintsEnabled;
+    }
+
+    /**
+     * Derives the key fingerprints which are yet to be derived, if they are enabled.  The fingerprints are derived from
+     * the records of the key type, so this is called once every type state of an update has been updated.
+     * <p>
+     * Warning:  Not thread-safe.  Should only be called within the update thread.
+     */
+    public void updateKeyFingerprints() {
+        if(!keyFingerprintsEnabled)
+            return;
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
+        for(int i=0;i<shards.length;i++)
+            shards[i].updateKeyFingerprints();
+    }
+
     @Override
     public int numShards() {
-        return shards.length;
+        return shardsVolatile.shards.length;
+    }
+
+    @Override
+    public void warmUp(Set<String> fieldNames) {
+        HollowSetTypeReadStateShard shards[] = shardsVolatile.shards;
+        if(memoryMode == MemoryMode.ON_HEAP)
+            return;
+        for(int i=0;i<shards.length;i++)
+            shards[i].currentDataElements().warmUp();
     }
 
-}
\ No newline at end of file
+    /**
+     * The shards of this type state, which are replaced together with the masks that locate an ordinal among them
+     * when this type state is resharded.
+     */
+    private static final class ShardsHolder {
+        final HollowSetTypeReadStateShard shards[];
+        final int shardNumberMask;
+        final int shardOrdinalShift;
+
+        ShardsHolder(HollowSetTypeReadStateShard shards[]) {
+            this.shards = shards;
+            this.shardNumberMask = shards.length - 1;
+            this.shardOrdinalShift = 31 - Integer.numberOfLeadingZeros(shards.length);
+        }
+    }
+}
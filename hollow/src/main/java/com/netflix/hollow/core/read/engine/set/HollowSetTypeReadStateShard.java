@@ -21,6 +21,7 @@ import static com.netflix.hollow.core.HollowConstants.ORDINAL_NONE;
 import com.netflix.hollow.core.index.key.HollowPrimaryKeyValueDeriver;
 import com.netflix.hollow.core.memory.HollowUnsafeHandle;
 import com.netflix.hollow.core.memory.encoding.HashCodes;
+import com.netflix.hollow.core.read.engine.HollowReadViews;
 import com.netflix.hollow.core.read.engine.SetMapKeyHasher;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.util.BitSet;
@@ -29,6 +30,12 @@ class HollowSetTypeReadStateShard {
 
     private volatile HollowSetTypeDataElements currentDataVolatile;
 
+    private final HollowReadViews readViews;
+
+    HollowSetTypeReadStateShard(HollowReadViews readViews) {
+        this.readViews = readViews;
+    }
+
     private HollowPrimaryKeyValueDeriver keyDeriver;
 
     public int size(int ordinal) {
@@ -36,7 +43,7 @@ class HollowSetTypeReadStateShard {
         int size;
 
         do {
-            currentData = this.currentDataVolatile;
+            currentData = readData();
             size = (int)currentData.setPointerAndSizeData.getElementValue(((long)ordinal * currentData.bitsPerFixedLengthSetPortion) + currentData.bitsPerSetPointer, currentData.bitsPerSetSizeValue);
         } while(readWasUnsafe(currentData));
 
@@ -53,7 +60,7 @@ class HollowSetTypeReadStateShard {
             long endBucket;
 
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 startBucket = getAbsoluteBucketStart(currentData, ordinal);
                 endBucket = currentData.setPointerAndSizeData.getElementValue((long)ordinal * currentData.bitsPerFixedLengthSetPortion, currentData.bitsPerSetPointer);
@@ -82,6 +89,7 @@ class HollowSetTypeReadStateShard {
     
     public int findElement(int ordinal, Object... hashKey) {
         int hashCode = SetMapKeyHasher.hash(hashKey, keyDeriver.getFieldTypes());
+        byte fingerprint = SetMapKeyHasher.fingerprint(hashCode);
 
         HollowSetTypeDataElements currentData;
 
@@ -91,12 +99,13 @@ class HollowSetTypeReadStateShard {
             long endBucket;
 
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 startBucket = getAbsoluteBucketStart(currentData, ordinal);
                 endBucket = currentData.setPointerAndSizeData.getElementValue((long)ordinal * currentData.bitsPerFixedLengthSetPortion, currentData.bitsPerSetPointer);
             } while(readWasUnsafe(currentData));
 
+            byte keyFingerprints[] = currentData.keyFingerprints;
             long bucket = startBucket + (hashCode & (endBucket - startBucket - 1));
             int bucketOrdinal = absoluteBucketValue(currentData, bucket);
 
@@ -104,7 +113,7 @@ class HollowSetTypeReadStateShard {
                 if(readWasUnsafe(currentData))
                     continue threadsafe;
                 
-                if(keyDeriver.keyMatches(bucketOrdinal, hashKey))
+                if(SetMapKeyHasher.mayMatch(keyFingerprints, bucket, fingerprint) && keyDeriver.keyMatches(bucketOrdinal, hashKey))
                     return bucketOrdinal;
                 
                 bucket++;
@@ -125,7 +134,7 @@ class HollowSetTypeReadStateShard {
         do {
             long startBucket;
             do {
-                currentData = this.currentDataVolatile;
+                currentData = readData();
 
                 startBucket = getAbsoluteBucketStart(currentData, setOrdinal);
             } while(readWasUnsafe(currentData));
@@ -157,13 +166,52 @@ class HollowSetTypeReadStateShard {
 
     private boolean readWasUnsafe(HollowSetTypeDataElements data) {
         HollowUnsafeHandle.getUnsafe().loadFence();
-        return data != currentDataVolatile;
+        /// data read through a pinned read view is retained until the view is closed
+        return data != currentDataVolatile && readViews.getPinnedGeneration() == HollowReadViews.NO_PINNED_GENERATION;
     }
 
     void setCurrentData(HollowSetTypeDataElements data) {
         this.currentDataVolatile = data;
     }
 
+    /**
+     * Replaces the current data with the data produced by a delta.  While read views are enabled, the replaced data
+     * remains readable through the next data by the views of prior generations.
+     */
+    void updateCurrentData(HollowSetTypeDataElements nextData) {
+        if(readViews.isEnabled()) {
+            nextData.generation = readViews.getNextGeneration();
+            nextData.previous = this.currentDataVolatile;
+        }
+        this.currentDataVolatile = nextData;
+    }
+
+    /**
+     * Retires the data replaced by a delta, which is destroyed once no read view can read it.
+     */
+    void retireData(HollowSetTypeDataElements oldData, HollowSetTypeDataElements nextData) {
+        readViews.retire(() -> nextData.previous = null, oldData::destroy);
+    }
+
+    /**
+     * @return the current data or, on a thread which has pinned a read view, the newest data which is not newer than
+     *         the view
+     */
+    private HollowSetTypeDataElements readData() {
+        HollowSetTypeDataElements data = this.currentDataVolatile;
+        HollowSetTypeDataElements previous = data.previous;
+        if(previous != null) {
+            long pinnedGeneration = readViews.getPinnedGeneration();
+            if(pinnedGeneration != HollowReadViews.NO_PINNED_GENERATION) {
+                while(data.generation > pinnedGeneration && previous != null) {
+                    data = previous;
+                    previous = data.previous;
+                }
+            }
+        }
+        return data;
+    }
+
     protected void applyToChecksum(HollowChecksum checksum, BitSet populatedOrdinals, int shardNumber, int numShards) {
         HollowSetTypeDataElements currentData = currentDataVolatile;
         int ordinal = populatedOrdinals.nextSetBit(shardNumber);
@@ -217,4 +265,45 @@ class HollowSetTypeReadStateShard {
     public void setKeyDeriver(HollowPrimaryKeyValueDeriver keyDeriver) {
         this.keyDeriver = keyDeriver;
     }
+
+    /**
+     * Derives the key fingerprints of the buckets of the current data which are yet to be fingerprinted:  all of them if
+     * the data has no fingerprints, otherwise those of the sets added by the delta which produced the data.
+     */
+    void updateKeyFingerprints() {
+        HollowSetTypeDataElements currentData = currentDataVolatile;
+        if(currentData == null || keyDeriver == null || !currentData.canFingerprintKeys())
+            return;
+
+        if(currentData.keyFingerprints == null) {
+            byte keyFingerprints[] = new byte[(int)currentData.totalNumberOfBuckets];
+            fingerprintBuckets(currentData, keyFingerprints, 0, currentData.totalNumberOfBuckets);
+            currentData.keyFingerprints = keyFingerprints;
+        } else if(currentData.unfingerprintedOrdinals != null) {
+            BitSet ordinals = currentData.unfingerprintedOrdinals;
+            for(int ordinal = ordinals.nextSetBit(0); ordinal != -1; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+                long startBucket = getAbsoluteBucketStart(currentData, ordinal);
+                long endBucket = currentData.setPointerAndSizeData.getElementValue((long)ordinal * currentData.bitsPerFixedLengthSetPortion, currentData.bitsPerSetPointer);
+                fingerprintBuckets(currentData, currentData.keyFingerprints, startBucket, endBucket);
+            }
+        }
+
+        currentData.unfingerprintedOrdinals = null;
+    }
+
+    private void fingerprintBuckets(HollowSetTypeDataElements currentData, byte keyFingerprints[], long startBucket, long endBucket) {
+        for(long bucket=startBucket;bucket<endBucket;bucket++) {
+            int bucketOrdinal = absoluteBucketValue(currentData, bucket);
+            if(bucketOrdinal != currentData.emptyBucketValue)
+                keyFingerprints[(int)bucket] = SetMapKeyHasher.fingerprint(keyDeriver, bucketOrdinal);
+        }
+    }
+
+    void clearKeyFingerprints() {
+        HollowSetTypeDataElements currentData = currentDataVolatile;
+        if(currentData != null) {
+            currentData.keyFingerprints = null;
+            currentData.unfingerprintedOrdinals = null;
+        }
+    }
 }
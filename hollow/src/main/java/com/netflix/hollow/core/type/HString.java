@@ -18,6 +18,7 @@ package com.netflix.hollow.core.type;
 
 import com.netflix.hollow.api.custom.HollowAPI;
 import com.netflix.hollow.api.objects.HollowObject;
+import com.netflix.hollow.core.read.dataaccess.HollowStringView;
 import com.netflix.hollow.core.type.delegate.StringDelegate;
 
 public class HString extends HollowObject {
@@ -30,6 +31,10 @@ public class HString extends HollowObject {
         return delegate().getValue(ordinal);
     }
 
+    public boolean getValueView(HollowStringView view) {
+        return typeApi().getValueView(ordinal, view);
+    }
+
     public boolean isValueEqual(String testValue) {
         return delegate().isValueEqual(ordinal, testValue);
     }
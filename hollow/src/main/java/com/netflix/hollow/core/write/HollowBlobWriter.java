@@ -20,6 +20,8 @@ import com.netflix.hollow.api.producer.ProducerOptionalBlobPartConfig;
 import com.netflix.hollow.api.producer.ProducerOptionalBlobPartConfig.ConfiguredOutputStream;
 import com.netflix.hollow.core.HollowBlobHeader;
 import com.netflix.hollow.core.HollowBlobOptionalPartHeader;
+import com.netflix.hollow.core.compress.BlockCompressedOutputStream;
+import com.netflix.hollow.core.compress.HollowBlockCompression;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.util.SimultaneousExecutor;
@@ -35,17 +37,39 @@ import java.util.Map;
 /**
  * A {@link HollowBlobWriter} is used to serialize snapshot, delta, and reverse delta blobs based on the data state
  * contained in a {@link HollowWriteStateEngine}. 
+ * <p>
+ * To write several of these blobs for the same state, see {@link HollowCombinedBlobWriter}.
+ * <p>
+ * The main part of a blob may be block-compressed, see {@link #setBlockCompression(HollowBlockCompression)}.
  */
 public class HollowBlobWriter {
 
     private final HollowWriteStateEngine stateEngine;
     private final HollowBlobHeaderWriter headerWriter;
 
+    private HollowBlockCompression blockCompression;
+
     public HollowBlobWriter(HollowWriteStateEngine stateEngine) {
         this.stateEngine = stateEngine;
         this.headerWriter = new HollowBlobHeaderWriter();
     }
 
+    /**
+     * Block-compress the main part of the blobs written by this writer, so that the blocks of a blob are compressed
+     * in parallel as it is written, and are decompressed in parallel by consumers.  Optional blob parts are written
+     * as is.  Defaults to null, in which case blobs are not compressed by this writer.
+     *
+     * @param blockCompression the configuration of the block compression, or null
+     * @see HollowBlockCompression
+     */
+    public void setBlockCompression(HollowBlockCompression blockCompression) {
+        this.blockCompression = blockCompression;
+    }
+
+    public HollowBlockCompression getBlockCompression() {
+        return blockCompression;
+    }
+
     /**
      * Write the current state as a snapshot blob.
      * @param os the output stream to write the snapshot blob
@@ -62,7 +86,8 @@ public class HollowBlobWriter {
 
         stateEngine.prepareForWrite();
 
-        DataOutputStream dos = new DataOutputStream(os);
+        OutputStream blobOs = blobOutputStream(os);
+        DataOutputStream dos = new DataOutputStream(blobOs);
         writeHeaders(dos, partStreams, stateEngine.getSchemas(), false);
 
         SimultaneousExecutor executor = new SimultaneousExecutor(getClass(), "write-snapshot");
@@ -94,7 +119,7 @@ public class HollowBlobWriter {
             typeState.writeSnapshot(partStream);
         }
 
-        os.flush();
+        finishBlob(blobOs, os);
         if(partStreams != null)
             partStreams.flush();
     }
@@ -127,7 +152,8 @@ public class HollowBlobWriter {
 
         List<HollowSchema> changedTypes = changedTypes();
         
-        DataOutputStream dos = new DataOutputStream(os);
+        OutputStream blobOs = blobOutputStream(os);
+        DataOutputStream dos = new DataOutputStream(blobOs);
         writeHeaders(dos, partStreams, changedTypes, false);
 
         SimultaneousExecutor executor = new SimultaneousExecutor(getClass(), "write-delta");
@@ -162,7 +188,7 @@ public class HollowBlobWriter {
             }
         }
 
-        os.flush();
+        finishBlob(blobOs, os);
         if(partStreams != null)
             partStreams.flush();
     }
@@ -194,7 +220,8 @@ public class HollowBlobWriter {
         
         List<HollowSchema> changedTypes = changedTypes();
 
-        DataOutputStream dos = new DataOutputStream(os);
+        OutputStream blobOs = blobOutputStream(os);
+        DataOutputStream dos = new DataOutputStream(blobOs);
         writeHeaders(dos, partStreams, changedTypes, true);
 
         SimultaneousExecutor executor = new SimultaneousExecutor(getClass(), "write-reverse-delta");
@@ -229,12 +256,28 @@ public class HollowBlobWriter {
             }
         }
 
-        os.flush();
+        finishBlob(blobOs, os);
         if(partStreams != null)
             partStreams.flush();
     }
 
-    private List<HollowSchema> changedTypes() {
+    /**
+     * @return the stream to which the main part of a blob is written, which block-compresses the blob into {@code os}
+     *         if block compression is configured
+     */
+    OutputStream blobOutputStream(OutputStream os) throws IOException {
+        if(blockCompression == null)
+            return os;
+        return new BlockCompressedOutputStream(os, blockCompression);
+    }
+
+    static void finishBlob(OutputStream blobOs, OutputStream os) throws IOException {
+        if(blobOs instanceof BlockCompressedOutputStream)
+            ((BlockCompressedOutputStream) blobOs).finish();
+        os.flush();
+    }
+
+    List<HollowSchema> changedTypes() {
         List<HollowSchema> changedTypes = new ArrayList<HollowSchema>();
         
         List<HollowTypeWriteState> orderedTypeStates = stateEngine.getOrderedTypeStates();
@@ -247,7 +290,7 @@ public class HollowBlobWriter {
         return changedTypes;
     }
     
-    private void writeNumShards(DataOutputStream dos, int numShards) throws IOException {
+    static void writeNumShards(DataOutputStream dos, int numShards) throws IOException {
         VarInt.writeVInt(dos, 1 + VarInt.sizeOfVInt(numShards)); /// pre 2.1.0 forwards compatibility:
                                                                  /// skip new forwards-compatibility and num shards
         
@@ -256,7 +299,7 @@ public class HollowBlobWriter {
         VarInt.writeVInt(dos, numShards);
     }
 
-    private void writeHeaders(DataOutputStream os, ProducerOptionalBlobPartConfig.OptionalBlobPartOutputStreams partStreams, List<HollowSchema> schemasToInclude, boolean isReverseDelta) throws IOException {
+    void writeHeaders(DataOutputStream os, ProducerOptionalBlobPartConfig.OptionalBlobPartOutputStreams partStreams, List<HollowSchema> schemasToInclude, boolean isReverseDelta) throws IOException {
 
         /// bucket schemas by part
         List<HollowSchema> mainSchemas = schemasToInclude;
@@ -0,0 +1,443 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.write;
+
+import com.netflix.hollow.api.producer.ProducerOptionalBlobPartConfig;
+import com.netflix.hollow.core.compress.HollowBlockCompression;
+import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A {@link HollowCombinedBlobWriter} serializes the snapshot, delta, and reverse delta blobs for the current state of
+ * a {@link HollowWriteStateEngine} together.
+ * <p>
+ * Each type state is visited once: its snapshot, delta, and reverse delta sections are calculated and encoded back to
+ * back by the same task, while that type's data is at hand, and the tasks for different types run concurrently.  Each
+ * blob is written through its own {@link HollowBlobWriter} view, obtained from {@link #snapshotWriter()},
+ * {@link #deltaWriter()}, and {@link #reverseDeltaWriter()}.  The views must be driven concurrently from separate
+ * threads, each copying the encoded sections of the type states to its output in order as soon as they are available,
+ * so that the output of the three blobs (including any compression applied to the output streams) proceeds in parallel.
+ * <p>
+ * The type states are encoded in the order in which they are written, and at most
+ * {@link #setMaxTypeStatesInFlight(int) a bounded number} of them are encoded ahead of the slowest view.  The encoded
+ * sections of a type state are held in memory only until they have been copied to each output, so the memory used is
+ * bounded by the sections of the type states in flight rather than by the size of the blobs.  A view which fails, or
+ * which will not be written, must be {@link #release(HollowBlobWriter) released} so that it does not hold back the
+ * others.
+ */
+public class HollowCombinedBlobWriter {
+
+    private final HollowWriteStateEngine stateEngine;
+    private final boolean includeSnapshot;
+    private final boolean includeDeltas;
+    private final boolean abandonedSections[] = new boolean[BlobSection.values().length];
+
+    private HollowBlockCompression blockCompression;
+    private int maxTypeStatesInFlight = 2 * Runtime.getRuntime().availableProcessors();
+
+    private List<EncodedTypeState> encodedTypeStates;
+    private SimultaneousExecutor executor;
+    private int nextTypeStateToEncode;
+    private int typeStatesInFlight;
+    private Throwable failure;
+
+    /**
+     * @param stateEngine the state engine to write
+     * @param includeSnapshot whether a snapshot will be written
+     * @param includeDeltas whether a delta and a reverse delta will be written
+     */
+    public HollowCombinedBlobWriter(HollowWriteStateEngine stateEngine, boolean includeSnapshot, boolean includeDeltas) {
+        this.stateEngine = stateEngine;
+        this.includeSnapshot = includeSnapshot;
+        this.includeDeltas = includeDeltas;
+    }
+
+    /**
+     * Block-compress the main part of each blob, see {@link HollowBlobWriter#setBlockCompression(HollowBlockCompression)}.
+     * Applies to the writers subsequently obtained from this combined writer.
+     *
+     * @param blockCompression the configuration of the block compression, or null
+     */
+    public void setBlockCompression(HollowBlockCompression blockCompression) {
+        this.blockCompression = blockCompression;
+    }
+
+    /**
+     * Sets the maximum number of type states which are being encoded, or whose encoded sections have not yet been
+     * copied to every output.  Defaults to twice the number of available processors.
+     *
+     * @param maxTypeStatesInFlight the maximum number of type states in flight
+     */
+    public void setMaxTypeStatesInFlight(int maxTypeStatesInFlight) {
+        if(maxTypeStatesInFlight < 1)
+            throw new IllegalArgumentException("maxTypeStatesInFlight must be at least 1");
+        this.maxTypeStatesInFlight = maxTypeStatesInFlight;
+    }
+
+    /**
+     * @return a writer which may only be used to write the snapshot blob
+     */
+    public HollowBlobWriter snapshotWriter() {
+        if(!includeSnapshot)
+            throw new IllegalStateException("This combined writer does not include a snapshot");
+        return new BlobView(BlobSection.SNAPSHOT);
+    }
+
+    /**
+     * @return a writer which may only be used to write the delta blob
+     */
+    public HollowBlobWriter deltaWriter() {
+        if(!includeDeltas)
+            throw new IllegalStateException("This combined writer does not include deltas");
+        return new BlobView(BlobSection.DELTA);
+    }
+
+    /**
+     * @return a writer which may only be used to write the reverse delta blob
+     */
+    public HollowBlobWriter reverseDeltaWriter() {
+        if(!includeDeltas)
+            throw new IllegalStateException("This combined writer does not include deltas");
+        return new BlobView(BlobSection.REVERSE_DELTA);
+    }
+
+    /**
+     * Releases the encoded sections of the blob written by a view of this writer which have not yet been copied to its
+     * output, and stops encoding the sections which remain.  A view is released once it has been written; this must be
+     * called for a view which failed before it was written, or which will not be written.
+     *
+     * @param writer a view obtained from this writer
+     */
+    public void release(HollowBlobWriter writer) {
+        if(!(writer instanceof BlobView) || ((BlobView)writer).combinedWriter() != this)
+            throw new IllegalArgumentException("The writer is not a view of this combined writer");
+        release(((BlobView)writer).section);
+    }
+
+    private synchronized void release(BlobSection section) {
+        abandonedSections[section.ordinal()] = true;
+        if(encodedTypeStates != null) {
+            for(EncodedTypeState encodedTypeState : encodedTypeStates)
+                encodedTypeState.release(section);
+        }
+    }
+
+    /**
+     * Prepares the state engine for writing and begins encoding the type states, if this has not already been done.
+     */
+    private synchronized List<EncodedTypeState> encodedTypeStates() {
+        if(encodedTypeStates != null)
+            return encodedTypeStates;
+
+        stateEngine.prepareForWrite();
+
+        if(includeDeltas && stateEngine.isRestored())
+            stateEngine.ensureAllNecessaryStatesRestored();
+
+        List<HollowTypeWriteState> orderedTypeStates = stateEngine.getOrderedTypeStates();
+        List<EncodedTypeState> encoded = new ArrayList<>(orderedTypeStates.size());
+        for(HollowTypeWriteState typeState : orderedTypeStates)
+            encoded.add(new EncodedTypeState(typeState));
+
+        encodedTypeStates = encoded;
+        executor = new SimultaneousExecutor(getClass(), "write-combined");
+        encodeNextTypeStates();
+        return encoded;
+    }
+
+    /**
+     * Begins encoding the next type states in order, while there is room in flight.  Once encoding has failed, the
+     * type states which remain are failed with the same cause.
+     */
+    private synchronized void encodeNextTypeStates() {
+        while(nextTypeStateToEncode < encodedTypeStates.size()
+                && (failure != null || typeStatesInFlight < maxTypeStatesInFlight)) {
+            EncodedTypeState encodedTypeState = encodedTypeStates.get(nextTypeStateToEncode++);
+            if(failure != null) {
+                encodedTypeState.encoded.completeExceptionally(failure);
+            } else if(encodedTypeState.remainingSections == 0) {
+                encodedTypeState.encoded.complete(null);
+            } else {
+                encodedTypeState.inFlight = true;
+                typeStatesInFlight++;
+                executor.execute(encodedTypeState::encode);
+            }
+        }
+
+        if(nextTypeStateToEncode == encodedTypeStates.size())
+            executor.shutdown();
+    }
+
+    private synchronized void typeStateReleased(EncodedTypeState encodedTypeState) {
+        if(encodedTypeState.inFlight) {
+            encodedTypeState.inFlight = false;
+            typeStatesInFlight--;
+            encodeNextTypeStates();
+        }
+    }
+
+    private synchronized void encodingFailed(Throwable th) {
+        if(failure == null)
+            failure = th;
+        encodeNextTypeStates();
+    }
+
+    private enum BlobSection {
+        SNAPSHOT, DELTA, REVERSE_DELTA
+    }
+
+    private class BlobView extends HollowBlobWriter {
+
+        private final BlobSection section;
+
+        private BlobView(BlobSection section) {
+            super(stateEngine);
+            this.section = section;
+            setBlockCompression(HollowCombinedBlobWriter.this.blockCompression);
+        }
+
+        private HollowCombinedBlobWriter combinedWriter() {
+            return HollowCombinedBlobWriter.this;
+        }
+
+        @Override
+        public void writeSnapshot(OutputStream os, ProducerOptionalBlobPartConfig.OptionalBlobPartOutputStreams partStreams) throws IOException {
+            write(BlobSection.SNAPSHOT, os, partStreams);
+        }
+
+        @Override
+        public void writeDelta(OutputStream os, ProducerOptionalBlobPartConfig.OptionalBlobPartOutputStreams partStreams) throws IOException {
+            write(BlobSection.DELTA, os, partStreams);
+        }
+
+        @Override
+        public void writeReverseDelta(OutputStream os, ProducerOptionalBlobPartConfig.OptionalBlobPartOutputStreams partStreams) throws IOException {
+            write(BlobSection.REVERSE_DELTA, os, partStreams);
+        }
+
+        private void write(BlobSection requested, OutputStream os, ProducerOptionalBlobPartConfig.OptionalBlobPartOutputStreams partStreams) throws IOException {
+            if(requested != section)
+                throw new IllegalStateException("This writer may only be used to write the " + section + " blob");
+
+            try {
+                List<EncodedTypeState> encoded = encodedTypeStates();
+
+                Map<String, DataOutputStream> partStreamsByType = Collections.emptyMap();
+                if(partStreams != null)
+                    partStreamsByType = partStreams.getStreamsByType();
+
+                List<HollowSchema> schemas = section == BlobSection.SNAPSHOT ? stateEngine.getSchemas() : changedTypes();
+
+                OutputStream blobOs = blobOutputStream(os);
+                DataOutputStream dos = new DataOutputStream(blobOs);
+                writeHeaders(dos, partStreams, schemas, section == BlobSection.REVERSE_DELTA);
+
+                for(EncodedTypeState encodedTypeState : encoded) {
+                    SectionBuffer buffer = encodedTypeState.await(section);
+                    if(buffer != null) {
+                        DataOutputStream partStream = partStreamsByType.get(encodedTypeState.typeState.getSchema().getName());
+                        if(partStream == null)
+                            partStream = dos;
+
+                        buffer.writeTo(partStream);
+                    }
+                    encodedTypeState.release(section);
+                }
+
+                finishBlob(blobOs, os);
+                if(partStreams != null)
+                    partStreams.flush();
+            } finally {
+                release(section);
+            }
+        }
+    }
+
+    private class EncodedTypeState {
+        private final HollowTypeWriteState typeState;
+        private final CompletableFuture<Void> encoded = new CompletableFuture<>();
+        private final SectionBuffer sections[] = new SectionBuffer[BlobSection.values().length];
+        private final boolean releasedSections[] = new boolean[BlobSection.values().length];
+        private int remainingSections;
+        private boolean inFlight;
+
+        /**
+         * Called holding the lock of the combined writer.
+         */
+        private EncodedTypeState(HollowTypeWriteState typeState) {
+            this.typeState = typeState;
+            for(BlobSection section : BlobSection.values()) {
+                boolean included = section == BlobSection.SNAPSHOT ? includeSnapshot : includeDeltas;
+                releasedSections[section.ordinal()] = !included || abandonedSections[section.ordinal()];
+                if(!releasedSections[section.ordinal()])
+                    remainingSections++;
+            }
+        }
+
+        private void encode() {
+            try {
+                if(isWanted(BlobSection.SNAPSHOT)) {
+                    typeState.calculateSnapshot();
+                    SectionBuffer buffer = section();
+                    typeState.writeSnapshot(new DataOutputStream(buffer));
+                    store(BlobSection.SNAPSHOT, buffer);
+                }
+
+                if(typeState.hasChangedSinceLastCycle()) {
+                    if(isWanted(BlobSection.DELTA)) {
+                        typeState.calculateDelta();
+                        SectionBuffer buffer = section();
+                        typeState.writeDelta(new DataOutputStream(buffer));
+                        store(BlobSection.DELTA, buffer);
+                    }
+
+                    if(isWanted(BlobSection.REVERSE_DELTA)) {
+                        typeState.calculateReverseDelta();
+                        SectionBuffer buffer = section();
+                        typeState.writeReverseDelta(new DataOutputStream(buffer));
+                        store(BlobSection.REVERSE_DELTA, buffer);
+                    }
+                }
+
+                encoded.complete(null);
+            } catch(Throwable th) {
+                encoded.completeExceptionally(th);
+                encodingFailed(th);
+            }
+        }
+
+        /**
+         * Creates the buffer for a section, and writes the schema and number of shards which precede the type's data.
+         */
+        private SectionBuffer section() throws IOException {
+            SectionBuffer buffer = new SectionBuffer();
+            DataOutputStream dos = new DataOutputStream(buffer);
+            typeState.getSchema().writeTo(dos);
+            HollowBlobWriter.writeNumShards(dos, typeState.getNumShards());
+            return buffer;
+        }
+
+        private boolean isWanted(BlobSection section) {
+            synchronized(HollowCombinedBlobWriter.this) {
+                return !releasedSections[section.ordinal()];
+            }
+        }
+
+        private void store(BlobSection section, SectionBuffer buffer) {
+            synchronized(HollowCombinedBlobWriter.this) {
+                if(!releasedSections[section.ordinal()])
+                    sections[section.ordinal()] = buffer;
+            }
+        }
+
+        /**
+         * Waits for this type state to be encoded, then hands over the requested section.
+         *
+         * @return the encoded section, or null if this type state is not included in the requested blob
+         */
+        private SectionBuffer await(BlobSection section) throws IOException {
+            try {
+                encoded.join();
+            } catch(CompletionException e) {
+                Throwable cause = e.getCause();
+                if(cause instanceof IOException)
+                    throw (IOException)cause;
+                if(cause instanceof UncheckedIOException)
+                    throw ((UncheckedIOException)cause).getCause();
+                if(cause instanceof RuntimeException)
+                    throw (RuntimeException)cause;
+                throw new RuntimeException(cause);
+            }
+
+            synchronized(HollowCombinedBlobWriter.this) {
+                return sections[section.ordinal()];
+            }
+        }
+
+        /**
+         * Releases a section once it has been copied to its output, or will not be; once every section is released,
+         * the next type state may be encoded.
+         */
+        private void release(BlobSection section) {
+            synchronized(HollowCombinedBlobWriter.this) {
+                if(releasedSections[section.ordinal()])
+                    return;
+                releasedSections[section.ordinal()] = true;
+                sections[section.ordinal()] = null;
+                if(--remainingSections == 0)
+                    typeStateReleased(this);
+            }
+        }
+    }
+
+    /**
+     * An in-memory output stream which stores the bytes written to it in a list of chunks, growing each chunk up to a
+     * maximum size so that small sections remain small and large sections are not limited by the maximum array length.
+     */
+    private static class SectionBuffer extends OutputStream {
+        private static final int INITIAL_CHUNK_SIZE = 1 << 12;
+        private static final int MAX_CHUNK_SIZE = 1 << 20;
+
+        private final List<byte[]> chunks = new ArrayList<>();
+        private byte[] currentChunk;
+        private int currentChunkPosition;
+
+        @Override
+        public void write(int b) {
+            if(currentChunk == null || currentChunkPosition == currentChunk.length)
+                nextChunk();
+            currentChunk[currentChunkPosition++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while(len > 0) {
+                if(currentChunk == null || currentChunkPosition == currentChunk.length)
+                    nextChunk();
+                int bytesToCopy = Math.min(len, currentChunk.length - currentChunkPosition);
+                System.arraycopy(b, off, currentChunk, currentChunkPosition, bytesToCopy);
+                currentChunkPosition += bytesToCopy;
+                off += bytesToCopy;
+                len -= bytesToCopy;
+            }
+        }
+
+        private void nextChunk() {
+            int chunkSize = currentChunk == null ? INITIAL_CHUNK_SIZE : Math.min(currentChunk.length * 2, MAX_CHUNK_SIZE);
+            currentChunk = new byte[chunkSize];
+            currentChunkPosition = 0;
+            chunks.add(currentChunk);
+        }
+
+        void writeTo(OutputStream os) throws IOException {
+            for(byte[] chunk : chunks) {
+                int length = chunk == currentChunk ? currentChunkPosition : chunk.length;
+                os.write(chunk, 0, length);
+            }
+        }
+    }
+}
@@ -66,7 +66,7 @@ public class HollowListTypeWriteState extends HollowTypeWriteState {
     }
 
     private void gatherStatistics() {
-        if(numShards == -1)
+        if(shouldCalculateNumShards())
             calculateNumShards();
         
         int maxOrdinal = ordinalMap.maxOrdinal();
@@ -141,9 +141,7 @@ public class HollowListTypeWriteState extends HollowTypeWriteState {
         long projectedSizeOfType = (bitsPerElement * totalOfListSizes) / 8;
         projectedSizeOfType += (bitsPerListPointer * maxOrdinal + 1) / 8;
         
-        numShards = 1;
-        while(stateEngine.getTargetMaxTypeShardSize() * numShards < projectedSizeOfType) 
-            numShards *= 2;
+        numShards = calculateNumShards(projectedSizeOfType);
     }
     
     @Override
@@ -69,7 +69,7 @@ public class HollowMapTypeWriteState extends HollowTypeWriteState {
     }
 
     private void gatherStatistics() {
-        if(numShards == -1)
+        if(shouldCalculateNumShards())
             calculateNumShards();
         
         int maxKeyOrdinal = 0;
@@ -185,9 +185,7 @@ public class HollowMapTypeWriteState extends HollowTypeWriteState {
         long projectedSizeOfType = (bitsPerMapSizeValue + bitsPerMapPointer) * (maxOrdinal + 1) / 8;
         projectedSizeOfType += ((bitsPerKeyElement + bitsPerValueElement) * totalOfMapBuckets) / 8;
         
-        numShards = 1;
-        while(stateEngine.getTargetMaxTypeShardSize() * numShards < projectedSizeOfType) 
-            numShards *= 2;
+        numShards = calculateNumShards(projectedSizeOfType);
     }
 
     @Override
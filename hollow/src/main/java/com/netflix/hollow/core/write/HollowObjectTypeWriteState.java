@@ -77,13 +77,11 @@ public class HollowObjectTypeWriteState extends HollowTypeWriteState {
 
         fieldStats.completeCalculations();
         
-        if(numShards == -1) {
+        if(shouldCalculateNumShards()) {
             long projectedSizeOfType = ((long)fieldStats.getNumBitsPerRecord() * (maxOrdinal + 1)) / 8;
             projectedSizeOfType += fieldStats.getTotalSizeOfAllVarLengthData();
             
-            numShards = 1;
-            while(stateEngine.getTargetMaxTypeShardSize() * numShards < projectedSizeOfType) 
-                numShards *= 2;
+            numShards = calculateNumShards(projectedSizeOfType);
         }
         
         maxShardOrdinal = new int[numShards];
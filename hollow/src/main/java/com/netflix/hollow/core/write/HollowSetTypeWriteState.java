@@ -67,7 +67,7 @@ public class HollowSetTypeWriteState extends HollowTypeWriteState {
     }
 
     private void gatherStatistics() {
-        if(numShards == -1)
+        if(shouldCalculateNumShards())
             calculateNumShards();
         
         int maxElementOrdinal = 0;
@@ -165,9 +165,7 @@ public class HollowSetTypeWriteState extends HollowTypeWriteState {
         long projectedSizeOfType = (bitsPerSetSizeValue + bitsPerSetPointer) * (maxOrdinal + 1) / 8;
         projectedSizeOfType += (bitsPerElement * totalOfSetBuckets) / 8;
         
-        numShards = 1;
-        while(stateEngine.getTargetMaxTypeShardSize() * numShards < projectedSizeOfType) 
-            numShards *= 2;
+        numShards = calculateNumShards(projectedSizeOfType);
     }
 
     @Override
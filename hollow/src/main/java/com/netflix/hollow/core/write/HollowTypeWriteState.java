@@ -44,6 +44,7 @@ public abstract class HollowTypeWriteState {
     protected final ByteArrayOrdinalMap ordinalMap;
     
     protected int numShards;
+    private final boolean numShardsConfigured;
 
     protected HollowSchema restoredSchema;
     protected ByteArrayOrdinalMap restoredMap;
@@ -65,6 +66,7 @@ public abstract class HollowTypeWriteState {
         this.currentCyclePopulated = new ThreadSafeBitSet();
         this.previousCyclePopulated = new ThreadSafeBitSet();
         this.numShards = numShards;
+        this.numShardsConfigured = numShards != -1;
         
         if(numShards != -1 && ((numShards & (numShards - 1)) != 0 || numShards <= 0))
             throw new IllegalArgumentException("Number of shards must be a power of 2!  Check configuration for type " + schema.getName());
@@ -232,6 +234,38 @@ public abstract class HollowTypeWriteState {
         return numShards;
     }
     
+    /**
+     * @return whether the number of shards of this type is calculated in this cycle, which is always the case in the first
+     * cycle in which it is written unless the number of shards is configured
+     */
+    protected boolean shouldCalculateNumShards() {
+        return numShards == -1 || (stateEngine.isTypeResharding() && !numShardsConfigured);
+    }
+
+    /**
+     * Calculates the number of shards for the projected size of this type.  If this type already has a number of shards,
+     * it is only decreased once the type would fit into fewer shards at half of the target max type shard size.
+     *
+     * @param projectedSizeOfType the projected size of this type, in bytes
+     * @return the number of shards
+     */
+    protected int calculateNumShards(long projectedSizeOfType) {
+        long targetMaxTypeShardSize = stateEngine.getTargetMaxTypeShardSize();
+
+        int numShards = 1;
+        while(targetMaxTypeShardSize * numShards < projectedSizeOfType)
+            numShards *= 2;
+
+        if(this.numShards == -1 || numShards >= this.numShards)
+            return numShards;
+
+        int joinedNumShards = 1;
+        while(targetMaxTypeShardSize / 2 * joinedNumShards < projectedSizeOfType)
+            joinedNumShards *= 2;
+
+        return Math.min(this.numShards, joinedNumShards);
+    }
+
     public void setNumShards(int numShards) {
         if(this.numShards == -1) {
             this.numShards = numShards;
@@ -362,6 +396,10 @@ public abstract class HollowTypeWriteState {
     void setStateEngine(HollowWriteStateEngine writeEngine) {
         this.stateEngine = writeEngine;
     }
+
+    void setConcurrentOrdinalAssignment(boolean concurrentOrdinalAssignment) {
+        ordinalMap.setConcurrentAssignment(concurrentOrdinalAssignment);
+    }
     
     public HollowWriteStateEngine getStateEngine() {
         return stateEngine;
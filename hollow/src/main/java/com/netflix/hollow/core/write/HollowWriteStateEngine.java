@@ -19,6 +19,7 @@ package com.netflix.hollow.core.write;
 import com.netflix.hollow.api.error.HollowWriteStateException;
 import com.netflix.hollow.api.error.SchemaNotFoundException;
 import com.netflix.hollow.core.HollowStateEngine;
+import com.netflix.hollow.core.memory.ByteArrayOrdinalMap;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.schema.HollowSchema;
@@ -70,6 +71,12 @@ public class HollowWriteStateEngine implements HollowStateEngine {
     //// target a maximum shard size to reduce excess memory pool requirement 
     private long targetMaxTypeShardSize = Long.MAX_VALUE;
 
+    //// recalculate the number of shards of each type in every cycle, rather than fixing it in the first cycle
+    private boolean typeResharding;
+
+    //// assign ordinals without serializing the threads which add records through a lock
+    private boolean concurrentOrdinalAssignment;
+
     private List<String> restoredStates;
     private boolean preparedForNextCycle = true;
     private long previousStateRandomizedTag = -1L;
@@ -115,6 +122,7 @@ public class HollowWriteStateEngine implements HollowStateEngine {
         writeStates.put(schema.getName(), writeState);
         orderedTypeStates.add(writeState);
         writeState.setStateEngine(this);
+        writeState.setConcurrentOrdinalAssignment(concurrentOrdinalAssignment);
     }
 
     /**
@@ -411,6 +419,48 @@ public class HollowWriteStateEngine implements HollowStateEngine {
     long getTargetMaxTypeShardSize() {
         return targetMaxTypeShardSize;
     }
+
+    /**
+     * Setting type resharding will recalculate the number of shards of each type in every cycle, so that the shards of a type
+     * which grows or shrinks stay close to the target max type shard size.  By default, the number of shards of a type is
+     * fixed in the first cycle in which it is written.
+     * <p>
+     * A type's number of shards is increased as soon as its shards exceed the target size, but is only decreased once
+     * the type would fit into fewer shards at half of the target size, so that a type whose size hovers around the target
+     * is not resharded in every cycle.  Types with an explicitly configured number of shards are not resharded.
+     * <p>
+     * Consumers apply a delta written with a different number of shards than their type states have without a double
+     * snapshot.  Consumers running a version of hollow which doesn't support resharding can't apply such a delta, so
+     * all consumers must be upgraded before type resharding is enabled.
+     *
+     * @param typeResharding true to recalculate the number of shards of each type in every cycle
+     */
+    public void setTypeResharding(boolean typeResharding) {
+        this.typeResharding = typeResharding;
+    }
+
+    public boolean isTypeResharding() {
+        return typeResharding;
+    }
+
+    /**
+     * Setting concurrent ordinal assignment will allow threads which add records at the same time to assign ordinals
+     * to new records without acquiring a lock per type, see {@link ByteArrayOrdinalMap#setConcurrentAssignment(boolean)}.
+     * This is beneficial when records are added from many threads.
+     *
+     * This must not be changed while records are being added.
+     *
+     * @param concurrentOrdinalAssignment true to assign ordinals concurrently
+     */
+    public synchronized void setConcurrentOrdinalAssignment(boolean concurrentOrdinalAssignment) {
+        this.concurrentOrdinalAssignment = concurrentOrdinalAssignment;
+        for(HollowTypeWriteState typeState : orderedTypeStates)
+            typeState.setConcurrentOrdinalAssignment(concurrentOrdinalAssignment);
+    }
+
+    public boolean isConcurrentOrdinalAssignment() {
+        return concurrentOrdinalAssignment;
+    }
     
     private long mintNewRandomizedStateTag() {
         Random rand = new Random();
@@ -28,6 +28,7 @@ import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 
@@ -40,6 +41,10 @@ import java.util.logging.Logger;
  * of unmatched values in either the <i>from</i> or the <i>to</i> state.
  * <p>
  * Unmatched records are accounted for separately -- for the purposes of the diff, it is sufficient to mark these records as unmatched.
+ * <p>
+ * The matched records of all types are diffed in ranges on a shared pool of threads.  A {@link HollowDiffListener} may be
+ * added to be notified of the differences in each range as it is diffed, and the number of record pairs retained per
+ * field may be bounded with {@link #setMaxDiffPairsPerField(int)}.
  *
  */
 public class HollowDiff {
@@ -52,6 +57,9 @@ public class HollowDiff {
     private final DiffEqualityMapping equalityMapping;
 
     private final Map<String, HollowTypeDiff> typeDiffs = new LinkedHashMap<>();
+    private final List<HollowDiffListener> listeners = new CopyOnWriteArrayList<>();
+
+    private int maxDiffPairsPerField = Integer.MAX_VALUE;
 
     /**
      * Instantiate a HollowDiff.  By default, all OBJECT types with a defined PrimaryKey will be
@@ -142,6 +150,35 @@ public class HollowDiff {
         return typeDiffs.get(type);
     }
 
+    /**
+     * Add a listener to be notified as the diff is calculated.
+     *
+     * @param listener the listener
+     */
+    public void addListener(HollowDiffListener listener) {
+        listeners.add(listener);
+    }
+
+    List<HollowDiffListener> getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Bound the memory used by the calculated diff.  For each field, only the first record pairs with differences
+     * are retained, up to the maximum; the remaining pairs are counted and scored, but can not be inspected.
+     *
+     * @param maxDiffPairsPerField the maximum number of record pairs retained per field
+     */
+    public void setMaxDiffPairsPerField(int maxDiffPairsPerField) {
+        if(maxDiffPairsPerField < 0)
+            throw new IllegalArgumentException("The maximum number of diff pairs per field must not be negative: " + maxDiffPairsPerField);
+        this.maxDiffPairsPerField = maxDiffPairsPerField;
+    }
+
+    public int getMaxDiffPairsPerField() {
+        return maxDiffPairsPerField;
+    }
+
     public HollowReadStateEngine getFromStateEngine() {
         return fromStateEngine;
     }
@@ -162,8 +199,17 @@ public class HollowDiff {
 
         log.info("PREPARED IN " + (endTime - startTime) + "ms");
 
+        /// the ranges of all types share one pool, so that a thread which finishes a small type moves on to another
+        SimultaneousExecutor executor = new SimultaneousExecutor(getClass(), "calculate");
+
         for(HollowTypeDiff typeDiff : typeDiffs.values()) {
-            typeDiff.calculateDiffs();
+            typeDiff.calculateDiffs(executor);
+        }
+
+        try {
+            executor.awaitSuccessfulCompletion();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -0,0 +1,49 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.tools.diff;
+
+import com.netflix.hollow.tools.diff.count.HollowFieldDiff;
+import java.util.List;
+
+/**
+ * A listener which is notified of the progress of {@link HollowDiff#calculateDiffs()}, so that results may be
+ * reported before the whole diff has been calculated.
+ * <p>
+ * The matched records of each type are diffed in ranges, and the ranges of all types are diffed in parallel, so a
+ * listener is called concurrently from many threads.
+ */
+public interface HollowDiffListener {
+
+    /**
+     * Called once the matched records of a range of a type have been diffed.
+     *
+     * @param typeDiff the type diff
+     * @param fieldDiffs the differences found in the range alone, which are not modified after this call
+     * @param numMatchesDiffed the number of matched records of the type which have been diffed so far, including
+     * those of the range
+     */
+    void rangeDiffCalculated(HollowTypeDiff typeDiff, List<HollowFieldDiff> fieldDiffs, int numMatchesDiffed);
+
+    /**
+     * Called once all of the matched records of a type have been diffed, after which
+     * {@link HollowTypeDiff#getFieldDiffs()} returns the differences of the type.
+     *
+     * @param typeDiff the type diff
+     */
+    void typeDiffCalculated(HollowTypeDiff typeDiff);
+
+}
@@ -45,7 +45,13 @@ public class HollowTypeDiff {
     private final String type;
     private final Set<String> shortcutTypes;
 
-    private List<HollowFieldDiff> calculatedFieldDiffs;
+    private static final int MIN_RANGE_SIZE = 1024;
+    private static final int RANGES_PER_THREAD = 8;
+
+    private volatile List<HollowFieldDiff> calculatedFieldDiffs;
+    private Map<HollowDiffNodeIdentifier, HollowFieldDiff> combinedFieldDiffs;
+    private int numMatchesDiffed;
+    private int numRangesRemaining;
 
     HollowTypeDiff(HollowDiff rootDiff, String type, String... matchPaths) {
         this.rootDiff = rootDiff;
@@ -113,6 +119,14 @@ public class HollowTypeDiff {
         return calculatedFieldDiffs;
     }
 
+    /**
+     * @return the number of matched records which have been diffed, which is less than the
+     * {@link #getTotalNumberOfMatches() total number of matches} while the diff is being calculated.
+     */
+    public synchronized int getNumberOfMatchesDiffed() {
+        return numMatchesDiffed;
+    }
+
     /**
      * @return the total number of matched records (based on primary key)
      */
@@ -181,30 +195,51 @@ public class HollowTypeDiff {
         matcher.calculateMatches();
     }
 
-    @SuppressWarnings("unchecked")
     void calculateDiffs() {
-        final HollowDiffNodeIdentifier rootId = new HollowDiffNodeIdentifier(type);
-
         SimultaneousExecutor executor = new SimultaneousExecutor(getClass(), "calculate");
 
-        final int numThreads = executor.getCorePoolSize();
+        calculateDiffs(executor);
+
+        try {
+            executor.awaitSuccessfulCompletion();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-        final List<HollowFieldDiff>results[] = new List[numThreads];
+    /**
+     * Submits the diff of each range of the matched records to the executor.  The results of each range are combined
+     * as soon as the range is diffed, and are then discarded.
+     */
+    void calculateDiffs(SimultaneousExecutor executor) {
+        final LongList matches = matcher.getMatchedOrdinals();
+        final int rangeSize = Math.max(MIN_RANGE_SIZE, (matches.size() + executor.getCorePoolSize() * RANGES_PER_THREAD - 1) / (executor.getCorePoolSize() * RANGES_PER_THREAD));
+        final int numRanges = (matches.size() + rangeSize - 1) / rangeSize;
+
+        this.combinedFieldDiffs = new HashMap<HollowDiffNodeIdentifier, HollowFieldDiff>();
+        this.numMatchesDiffed = 0;
+        this.numRangesRemaining = numRanges;
+        this.calculatedFieldDiffs = null;
+
+        if(numRanges == 0) {
+            completeDiffs();
+            return;
+        }
 
-        for(int i=0;i<numThreads;i++) {
-            final int threadId = i;
+        for(int i=0;i<numRanges;i++) {
+            final int fromMatch = i * rangeSize;
+            final int toMatch = Math.min(matches.size(), fromMatch + rangeSize);
 
             executor.execute(new Runnable() {
                 @Override
                 public void run() {
                     DiffEqualityMapping equalityMapping = rootDiff.getEqualityMapping();
-                    HollowDiffCountingNode rootNode = new HollowDiffObjectCountingNode(rootDiff, HollowTypeDiff.this, rootId, from, to);
+                    HollowDiffCountingNode rootNode = new HollowDiffObjectCountingNode(rootDiff, HollowTypeDiff.this, new HollowDiffNodeIdentifier(type), from, to);
 
                     DiffEqualOrdinalMap rootNodeOrdinalMap = equalityMapping.getEqualOrdinalMap(type);
                     boolean requiresMissingFieldTraversal = equalityMapping.requiresMissingFieldTraversal(type);
 
-                    LongList matches = matcher.getMatchedOrdinals();
-                    for(int i=threadId;i<matches.size();i+=numThreads) {
+                    for(int i=fromMatch;i<toMatch;i++) {
                         int fromOrdinal = (int)(matches.get(i) >> 32);
                         int toOrdinal = (int)matches.get(i);
 
@@ -218,7 +253,7 @@ public class HollowTypeDiff {
                         }
                     }
 
-                    results[threadId] = rootNode.getFieldDiffs();
+                    rangeCalculated(rootNode.getFieldDiffs(), toMatch - fromMatch);
                 }
 
                 private final IntList fromIntList = new IntList(1);
@@ -237,32 +272,41 @@ public class HollowTypeDiff {
                 }
             });
         }
+    }
 
-        try {
-            executor.awaitSuccessfulCompletion();
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
+    private void rangeCalculated(List<HollowFieldDiff> rangeFieldDiffs, int numRangeMatches) {
+        int numMatchesDiffed;
+        boolean complete;
+
+        synchronized(this) {
+            for(HollowFieldDiff fieldDiff : rangeFieldDiffs) {
+                HollowFieldDiff combinedResult = combinedFieldDiffs.get(fieldDiff.getFieldIdentifier());
+                if(combinedResult == null) {
+                    combinedResult = new HollowFieldDiff(fieldDiff.getFieldIdentifier(), rootDiff.getMaxDiffPairsPerField());
+                    combinedFieldDiffs.put(fieldDiff.getFieldIdentifier(), combinedResult);
+                }
+                combinedResult.addResults(fieldDiff);
+            }
+
+            numMatchesDiffed = this.numMatchesDiffed += numRangeMatches;
+            complete = --numRangesRemaining == 0;
         }
 
-        this.calculatedFieldDiffs = combineResults(results);
-    }
+        for(HollowDiffListener listener : rootDiff.getListeners())
+            listener.rangeDiffCalculated(this, rangeFieldDiffs, numMatchesDiffed);
 
-    private List<HollowFieldDiff> combineResults(List<HollowFieldDiff> shardedResults[]) {
-        Map<HollowDiffNodeIdentifier, HollowFieldDiff> combinedResultsMap = new HashMap<HollowDiffNodeIdentifier, HollowFieldDiff>();
+        if(complete)
+            completeDiffs();
+    }
 
-        for(List<HollowFieldDiff> shardResult : shardedResults) {
-            for(HollowFieldDiff fieldDiff : shardResult) {
-                HollowFieldDiff combinedResult = combinedResultsMap.get(fieldDiff.getFieldIdentifier());
-                if(combinedResult != null)
-                    combinedResult.addResults(fieldDiff);
-                else
-                    combinedResultsMap.put(fieldDiff.getFieldIdentifier(), fieldDiff);
-            }
+    private void completeDiffs() {
+        synchronized(this) {
+            this.calculatedFieldDiffs = new ArrayList<HollowFieldDiff>(combinedFieldDiffs.values());
+            this.combinedFieldDiffs = null;
         }
 
-        List<HollowFieldDiff> combinedResults = new ArrayList<HollowFieldDiff>();
-        combinedResults.addAll(combinedResultsMap.values());
-        return combinedResults;
+        for(HollowDiffListener listener : rootDiff.getListeners())
+            listener.typeDiffCalculated(this);
     }
 
 }
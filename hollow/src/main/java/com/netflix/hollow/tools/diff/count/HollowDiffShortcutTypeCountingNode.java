@@ -33,7 +33,7 @@ public class HollowDiffShortcutTypeCountingNode extends HollowDiffCountingNode {
     public HollowDiffShortcutTypeCountingNode(HollowDiff diff, HollowTypeDiff topLevelTypeDiff, HollowDiffNodeIdentifier nodeId) {
         super(diff, topLevelTypeDiff, nodeId);
         
-        this.fieldDiff = new HollowFieldDiff(nodeId);
+        this.fieldDiff = new HollowFieldDiff(nodeId, diff.getMaxDiffPairsPerField());
     }
 
     @Override
@@ -30,14 +30,28 @@ public class HollowFieldDiff implements Comparable<HollowFieldDiff> {
     private final IntList diffFromOrdinals;
     private final IntList diffToOrdinals;
     private final IntList diffPairScores;
+    private final int maxDiffPairs;
 
     private long totalDiffScore;
+    private int totalNumDiffs;
+    private int lastFromOrdinal = -1;
+    private int lastToOrdinal = -1;
 
     public HollowFieldDiff(HollowDiffNodeIdentifier fieldIdentifier) {
+        this(fieldIdentifier, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param fieldIdentifier the identifier of the field
+     * @param maxDiffPairs the maximum number of record pairs with differences which are retained.  Record pairs
+     * beyond the maximum are counted and scored, but not retained.
+     */
+    public HollowFieldDiff(HollowDiffNodeIdentifier fieldIdentifier, int maxDiffPairs) {
         this.diffFromOrdinals = new IntList();
         this.diffToOrdinals = new IntList();
         this.diffPairScores = new IntList();
         this.fieldIdentifier = fieldIdentifier;
+        this.maxDiffPairs = maxDiffPairs;
     }
 
     /**
@@ -50,20 +64,26 @@ public class HollowFieldDiff implements Comparable<HollowFieldDiff> {
     public void addDiff(int fromOrdinal, int toOrdinal, int score) {
         if(isSameDiffAsLastAdd(fromOrdinal, toOrdinal)) {
             int scoreIdx = diffPairScores.size() - 1;
-            diffPairScores.set(scoreIdx, diffPairScores.get(scoreIdx) + score);
+            if(scoreIdx >= 0 && diffFromOrdinals.get(scoreIdx) == fromOrdinal && diffToOrdinals.get(scoreIdx) == toOrdinal)
+                diffPairScores.set(scoreIdx, diffPairScores.get(scoreIdx) + score);
         } else {
-            diffFromOrdinals.add(fromOrdinal);
-            diffToOrdinals.add(toOrdinal);
-            diffPairScores.add(score);
+            if(diffPairScores.size() < maxDiffPairs) {
+                diffFromOrdinals.add(fromOrdinal);
+                diffToOrdinals.add(toOrdinal);
+                diffPairScores.add(score);
+            }
+            lastFromOrdinal = fromOrdinal;
+            lastToOrdinal = toOrdinal;
+            totalNumDiffs++;
         }
 
         totalDiffScore += score;
     }
 
     private boolean isSameDiffAsLastAdd(int fromOrdinal, int toOrdinal) {
-        return diffFromOrdinals.size() > 0
-                && diffFromOrdinals.get(diffFromOrdinals.size() - 1) == fromOrdinal
-                && diffToOrdinals.get(diffToOrdinals.size() - 1) == toOrdinal;
+        return totalNumDiffs > 0
+                && lastFromOrdinal == fromOrdinal
+                && lastToOrdinal == toOrdinal;
     }
 
     /**
@@ -81,12 +101,21 @@ public class HollowFieldDiff implements Comparable<HollowFieldDiff> {
     }
 
     /**
-     * @return the number of records which had at least one diff for this field.
+     * @return the number of retained record pairs which had at least one diff for this field.  Unless a maximum
+     * number of retained pairs was exceeded, this is the number of records which had at least one diff for this field.
      */
     public int getNumDiffs() {
         return diffToOrdinals.size();
     }
 
+    /**
+     * @return the number of records which had at least one diff for this field, including those which were not
+     * retained.
+     */
+    public int getTotalNumDiffs() {
+        return totalNumDiffs;
+    }
+
     /**
      * @param diffPairIdx a number from 0-n, where n is the value returned from numDiffs
      * @return the from ordinal for the (diffPairIdx)th record pair in which there were differences for this field.
@@ -116,9 +145,15 @@ public class HollowFieldDiff implements Comparable<HollowFieldDiff> {
      * @param otherFieldDiff the field diff to add
      */
     public void addResults(HollowFieldDiff otherFieldDiff) {
+        long retainedDiffScore = 0;
         for(int i=0;i<otherFieldDiff.getNumDiffs();i++) {
             addDiff(otherFieldDiff.getFromOrdinal(i), otherFieldDiff.getToOrdinal(i), otherFieldDiff.getPairScore(i));
+            retainedDiffScore += otherFieldDiff.getPairScore(i);
         }
+
+        /// account for the pairs which the other diff did not retain
+        totalNumDiffs += otherFieldDiff.getTotalNumDiffs() - otherFieldDiff.getNumDiffs();
+        totalDiffScore += otherFieldDiff.getTotalDiffScore() - retainedDiffScore;
     }
 
     /**
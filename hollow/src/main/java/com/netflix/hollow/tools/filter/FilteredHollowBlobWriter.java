@@ -42,16 +42,24 @@ import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.schema.HollowSchema.SchemaType;
 import com.netflix.hollow.core.schema.HollowSetSchema;
 import com.netflix.hollow.core.util.IOUtils;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
 import com.netflix.hollow.core.write.HollowBlobHeaderWriter;
 import java.io.DataOutputStream;
 import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 /**
  * The FilteredHollowBlobWriter can be used to pre-filter data from serialized blobs before disseminating to
@@ -60,6 +68,9 @@ import java.util.Set;
  * Note that filter functionality is more commonly applied at the consumer at load-time.  Pre-filtering at the producer
  * prior to disseminating to clients is unlikely to be important for performance reasons, but may be desirable e.g. for
  * security reasons.
+ * <p>
+ * A blob held in a file is best filtered with {@link #filter(boolean, File, OutputStream...)}, which writes each
+ * filtered blob concurrently and copies the types which a filtered blob includes whole directly from the file.
  *
  */
 public class FilteredHollowBlobWriter {
@@ -113,8 +124,118 @@ public class FilteredHollowBlobWriter {
         filter(true, in, out);
     }
 
+    /**
+     * Filter a snapshot or delta (or reversedelta), held in a file, to each of the OutputStreams.
+     * <p>
+     * The file is indexed in a single pass, which skips over the data of each type.  Each of the OutputStreams is then
+     * written concurrently:  the data of a type which a config includes whole is copied from the file byte for byte,
+     * with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, and only the data of an OBJECT type from
+     * which a config excludes fields is decoded and re-encoded.
+     * <p>
+     * The number of provided OutputStreams should be equal to the number of provided HollowFilterConfigs at instantiation.
+     *
+     * @param delta true if the blob is a delta or reversedelta, false if it is a snapshot
+     * @param blob the file which holds the blob
+     * @param out the output streams to write the filtered blobs
+     * @throws IOException if the blob cannot be filtered
+     */
+    public void filter(boolean delta, File blob, OutputStream... out) throws IOException {
+        FilteredHollowBlobWriterStreamAndFilter allStreamAndFilters[] = FilteredHollowBlobWriterStreamAndFilter.combine(out, configs);
+
+        HollowBlobHeader header;
+        List<TypeSection> typeSections = new ArrayList<TypeSection>();
+
+        try(HollowBlobInput in = HollowBlobInput.randomAccess(blob)) {
+            header = headerReader.readHeader(in);
+
+            int numStates = VarInt.readVInt(in);
+            for(int i=0;i<numStates;i++) {
+                HollowSchema schema = HollowSchema.readFrom(in);
+                int numShards = readNumShards(in);
+                long startPosition = in.getFilePointer();
+
+                discardType(delta, in, schema, numShards);
+
+                typeSections.add(new TypeSection(schema, numShards, startPosition, in.getFilePointer()));
+            }
+        }
+
+        List<HollowSchema> unfilteredSchemaList = header.getSchemas();
+
+        for(FilteredHollowBlobWriterStreamAndFilter streamAndFilter : allStreamAndFilters) {
+            List<HollowSchema> filteredSchemaList = getFilteredSchemaList(unfilteredSchemaList, streamAndFilter.getConfig());
+            header.setSchemas(filteredSchemaList);
+            headerWriter.writeHeader(header, streamAndFilter.getStream());
+            VarInt.writeVInt(streamAndFilter.getStream(), filteredSchemaList.size());
+        }
+
+        SimultaneousExecutor executor = new SimultaneousExecutor(allStreamAndFilters.length, getClass(), "filter");
+
+        for(int i=0;i<allStreamAndFilters.length;i++) {
+            final FilteredHollowBlobWriterStreamAndFilter streamAndFilter = allStreamAndFilters[i];
+            final OutputStream os = out[i];
+            executor.execute(() -> {
+                try {
+                    writeFilteredTypes(delta, blob, typeSections, streamAndFilter, os);
+                } catch(IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+
+        try {
+            executor.awaitSuccessfulCompletion();
+        } catch(InterruptedException | ExecutionException e) {
+            throw new IOException("Unable to filter " + blob, e);
+        }
+    }
+
+    private void writeFilteredTypes(boolean delta, File blob, List<TypeSection> typeSections, FilteredHollowBlobWriterStreamAndFilter streamAndFilter, OutputStream out) throws IOException {
+        HollowFilterConfig config = streamAndFilter.getConfig();
+        DataOutputStream dos = streamAndFilter.getStream();
+        WritableByteChannel outChannel = out instanceof FileOutputStream ? ((FileOutputStream)out).getChannel() : Channels.newChannel(out);
+
+        try(FileChannel blobChannel = FileChannel.open(blob.toPath(), StandardOpenOption.READ);
+                HollowBlobInput in = HollowBlobInput.randomAccess(blob)) {
+            for(TypeSection typeSection : typeSections) {
+                HollowSchema filteredSchema = getFilteredSchema(typeSection.schema, config);
+
+                if(filteredSchema == null)
+                    continue;
+
+                if(filteredSchema == typeSection.schema) {
+                    filteredSchema.writeTo(dos);
+                    VarInt.writeVInt(dos, 1 + VarInt.sizeOfVInt(typeSection.numShards));
+                    VarInt.writeVInt(dos, 0); /// forwards compatibility
+                    VarInt.writeVInt(dos, typeSection.numShards);
+                    dos.flush();
+
+                    long position = typeSection.startPosition;
+                    while(position < typeSection.endPosition)
+                        position += blobChannel.transferTo(position, typeSection.endPosition - position, outChannel);
+                } else {
+                    in.seek(typeSection.startPosition);
+                    copyFilteredObjectState(delta, in, new FilteredHollowBlobWriterStreamAndFilter[] { streamAndFilter }, (HollowObjectSchema)typeSection.schema, typeSection.numShards);
+                }
+            }
+        }
+
+        dos.flush();
+    }
+
+    private void discardType(boolean delta, HollowBlobInput in, HollowSchema schema, int numShards) throws IOException {
+        if(schema instanceof HollowObjectSchema)
+            HollowObjectTypeReadState.discardType(in, (HollowObjectSchema)schema, numShards, delta);
+        else if(schema instanceof HollowListSchema)
+            HollowListTypeReadState.discardType(in, numShards, delta);
+        else if(schema instanceof HollowSetSchema)
+            HollowSetTypeReadState.discardType(in, numShards, delta);
+        else if(schema instanceof HollowMapSchema)
+            HollowMapTypeReadState.discardType(in, numShards, delta);
+    }
+
     public void filter(boolean delta, InputStream is, OutputStream... out) throws IOException {
-        HollowBlobInput in = HollowBlobInput.serial(is);
+        HollowBlobInput in = HollowBlobInput.serialBlob(is);
 
         FilteredHollowBlobWriterStreamAndFilter allStreamAndFilters[] = FilteredHollowBlobWriterStreamAndFilter.combine(out, configs);
 
@@ -448,4 +569,18 @@ public class FilteredHollowBlobWriter {
         IOUtils.copyBytes(in, os, numLongs * 8);
     }
     
+    private static class TypeSection {
+        private final HollowSchema schema;
+        private final int numShards;
+        private final long startPosition;
+        private final long endPosition;
+
+        TypeSection(HollowSchema schema, int numShards, long startPosition, long endPosition) {
+            this.schema = schema;
+            this.numShards = numShards;
+            this.startPosition = startPosition;
+            this.endPosition = endPosition;
+        }
+    }
+
 }
@@ -32,7 +32,7 @@ public class HollowHistoricalListDataAccess extends HollowHistoricalTypeDataAcce
 
     @Override
     public HollowListSchema getSchema() {
-        return removedRecords().getSchema();
+        return (HollowListSchema) super.getSchema();
     }
 
     @Override
@@ -69,7 +69,7 @@ public class HollowHistoricalListDataAccess extends HollowHistoricalTypeDataAcce
     }
 
     private HollowListTypeReadState removedRecords() {
-        return (HollowListTypeReadState) removedRecords;
+        return (HollowListTypeReadState) getRemovedRecords();
     }
 
     private HollowListSampler sampler() {
@@ -37,7 +37,7 @@ public class HollowHistoricalMapDataAccess extends HollowHistoricalTypeDataAcces
     
     @Override
     public HollowMapSchema getSchema() {
-        return (HollowMapSchema) removedRecords.getSchema();
+        return (HollowMapSchema) super.getSchema();
     }
 
     @Override
@@ -145,7 +145,7 @@ public class HollowHistoricalMapDataAccess extends HollowHistoricalTypeDataAcces
     }
 
     private HollowMapTypeReadState removedRecords() {
-        return (HollowMapTypeReadState) removedRecords;
+        return (HollowMapTypeReadState) getRemovedRecords();
     }
 
     private HollowMapSampler sampler() {
@@ -31,7 +31,7 @@ public class HollowHistoricalObjectDataAccess extends HollowHistoricalTypeDataAc
 
     @Override
     public HollowObjectSchema getSchema() {
-        return removedRecords().getSchema();
+        return (HollowObjectSchema) super.getSchema();
     }
 
     @Override
@@ -145,7 +145,7 @@ public class HollowHistoricalObjectDataAccess extends HollowHistoricalTypeDataAc
     }
 
     private HollowObjectTypeReadState removedRecords() {
-        return (HollowObjectTypeReadState) removedRecords;
+        return (HollowObjectTypeReadState) getRemovedRecords();
     }
 
     private HollowObjectSampler sampler() {
@@ -37,7 +37,7 @@ public class HollowHistoricalSetDataAccess extends HollowHistoricalTypeDataAcces
 
     @Override
     public HollowSetSchema getSchema() {
-        return removedRecords().getSchema();
+        return (HollowSetSchema) super.getSchema();
     }
 
     @Override
@@ -132,7 +132,7 @@ public class HollowHistoricalSetDataAccess extends HollowHistoricalTypeDataAcces
     }
 
     private HollowSetTypeReadState removedRecords() {
-        return (HollowSetTypeReadState) removedRecords;
+        return (HollowSetTypeReadState) getRemovedRecords();
     }
 
     private HollowSetSampler sampler() {
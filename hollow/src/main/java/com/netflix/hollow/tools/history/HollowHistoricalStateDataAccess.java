@@ -18,14 +18,28 @@ package com.netflix.hollow.tools.history;
 
 import com.netflix.hollow.api.client.StackTraceRecorder;
 import com.netflix.hollow.api.error.SchemaNotFoundException;
+import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.read.HollowBlobInput;
 import com.netflix.hollow.core.read.dataaccess.HollowDataAccess;
 import com.netflix.hollow.core.read.dataaccess.HollowTypeDataAccess;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.read.missing.MissingDataHandler;
 import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.util.HollowObjectHashCodeFinder;
+import com.netflix.hollow.core.util.HollowWriteStateCreator;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowTypeWriteState;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.copy.HollowRecordCopier;
+import com.netflix.hollow.tools.combine.IdentityOrdinalRemapper;
 import com.netflix.hollow.tools.combine.OrdinalRemapper;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -50,6 +64,8 @@ public class HollowHistoricalStateDataAccess implements HollowDataAccess {
 
     private StackTraceRecorder stackTraceRecorder;
 
+    private volatile File spillFile;
+
     public HollowHistoricalStateDataAccess(HollowHistory totalHistory, long version, HollowReadStateEngine removedRecordCopies, OrdinalRemapper removedCopyOrdinalMappings, Map<String, HollowHistoricalSchemaChange> schemaChanges) {
         this(totalHistory, version, removedRecordCopies, removedRecordCopies.getTypeStates(), removedCopyOrdinalMappings, schemaChanges);
     }
@@ -124,6 +140,86 @@ public class HollowHistoricalStateDataAccess implements HollowDataAccess {
         return schemaChanges;
     }
 
+    /**
+     * @return the file to which the removed records of this state have been spilled, or null if they are only held
+     * on the heap
+     */
+    public File getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Writes the removed records of this state to a file as a snapshot blob, then drops them from the heap.  They
+     * are memory-mapped from the file again when next read.
+     *
+     * @param file the file, which is overwritten
+     * @throws IOException if the file can not be written
+     */
+    void spill(File file) throws IOException {
+        HollowWriteStateEngine writeEngine = HollowWriteStateCreator.createWithSchemas(getSchemas());
+
+        for(HollowHistoricalTypeDataAccess typeDataAccess : typeDataAccessMap.values()) {
+            HollowTypeReadState removedRecords = typeDataAccess.getRemovedRecords();
+            HollowTypeWriteState typeWriteState = writeEngine.getTypeState(typeDataAccess.getSchema().getName());
+            HollowRecordCopier copier = HollowRecordCopier.createCopier(removedRecords, IdentityOrdinalRemapper.INSTANCE, true);
+
+            /// the removed records are addressed by their ordinals, which must be kept even for identical records
+            for(int ordinal=0;ordinal<=removedRecords.maxOrdinal();ordinal++)
+                typeWriteState.mapOrdinal(copier.copy(ordinal), ordinal, false, true);
+            typeWriteState.recalculateFreeOrdinals();
+        }
+
+        try(OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+            new HollowBlobWriter(writeEngine).writeSnapshot(os);
+        }
+
+        this.spillFile = file;
+        unload();
+    }
+
+    /**
+     * Drops the removed records of a spilled state from the heap.  Readers which still hold them are unaffected.
+     */
+    void unload() {
+        if(spillFile == null)
+            return;
+        for(HollowHistoricalTypeDataAccess typeDataAccess : typeDataAccessMap.values())
+            typeDataAccess.setRemovedRecords(null);
+    }
+
+    void deleteSpillFile() {
+        File file = spillFile;
+        if(file != null)
+            file.delete();
+    }
+
+    HollowTypeReadState loadSpilledRecords(String typeName) {
+        HollowHistoricalTypeDataAccess typeDataAccess = typeDataAccessMap.get(typeName);
+        HollowTypeReadState removedRecords;
+        boolean loaded = false;
+
+        synchronized(this) {
+            removedRecords = typeDataAccess.removedRecords;
+            if(removedRecords == null) {
+                HollowReadStateEngine removedRecordCopies = new HollowReadStateEngine();
+                try(HollowBlobInput in = HollowBlobInput.randomAccess(spillFile, MemoryMode.SHARED_MEMORY_LAZY)) {
+                    new HollowBlobReader(removedRecordCopies, MemoryMode.SHARED_MEMORY_LAZY).readSnapshot(in);
+                } catch(IOException e) {
+                    throw new RuntimeException("Unable to read the spilled historical state " + version + " from " + spillFile, e);
+                }
+
+                for(HollowHistoricalTypeDataAccess each : typeDataAccessMap.values())
+                    each.setRemovedRecords(removedRecordCopies.getTypeState(each.getSchema().getName()));
+                removedRecords = removedRecordCopies.getTypeState(typeName);
+                loaded = true;
+            }
+        }
+
+        if(loaded && totalHistory != null)
+            totalHistory.spilledStateLoaded(this);
+        return removedRecords;
+    }
+
     @Override
     public HollowTypeDataAccess getTypeDataAccess(String typeName) {
         HollowDataAccess state = this;
@@ -28,9 +28,15 @@ import com.netflix.hollow.core.util.IntMap;
 public abstract class HollowHistoricalTypeDataAccess implements HollowTypeDataAccess {
 
     protected final HollowHistoricalStateDataAccess dataAccess;
-    protected final HollowTypeReadState removedRecords;
+    protected final HollowSchema schema;
     protected final IntMap ordinalRemap;
 
+    /**
+     * The copies of the records removed in the transition from this state, or null while they are only held in the
+     * spill file of a {@link HollowHistoricalStateDataAccess}.
+     */
+    protected volatile HollowTypeReadState removedRecords;
+
     protected final HollowSampler sampler;
 
     public HollowHistoricalTypeDataAccess(HollowHistoricalStateDataAccess dataAccess, HollowTypeReadState removedRecords, HollowSampler sampler) {
@@ -39,6 +45,7 @@ public abstract class HollowHistoricalTypeDataAccess implements HollowTypeDataAc
             ordinalRemap = ((IntMapOrdinalRemapper)dataAccess.getOrdinalMapping()).getOrdinalRemapping(removedRecords.getSchema().getName());
         }
         this.dataAccess = dataAccess;
+        this.schema = removedRecords.getSchema();
         this.ordinalRemap = ordinalRemap;
         this.removedRecords = removedRecords;
         this.sampler = sampler;
@@ -51,7 +58,7 @@ public abstract class HollowHistoricalTypeDataAccess implements HollowTypeDataAc
 
     @Override
     public HollowSchema getSchema() {
-        return removedRecords.getSchema();
+        return schema;
     }
 
     protected boolean ordinalIsPresent(int ordinal) {
@@ -94,9 +101,16 @@ public abstract class HollowHistoricalTypeDataAccess implements HollowTypeDataAc
     }
 
     HollowTypeReadState getRemovedRecords() {
+        HollowTypeReadState removedRecords = this.removedRecords;
+        if(removedRecords == null)
+            removedRecords = dataAccess.loadSpilledRecords(schema.getName());
         return removedRecords;
     }
 
+    void setRemovedRecords(HollowTypeReadState removedRecords) {
+        this.removedRecords = removedRecords;
+    }
+
     IntMap getOrdinalRemap() {
         return ordinalRemap;
     }
@@ -31,9 +31,14 @@ import com.netflix.hollow.tools.diff.exact.DiffEqualityMapping;
 import com.netflix.hollow.tools.history.keyindex.HollowHistoricalStateKeyOrdinalMapping;
 import com.netflix.hollow.tools.history.keyindex.HollowHistoricalStateTypeKeyOrdinalMapping;
 import com.netflix.hollow.tools.history.keyindex.HollowHistoryKeyIndex;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -49,6 +54,9 @@ import java.util.concurrent.ExecutionException;
  * <p>
  * Each retained state is accessible via a {@link HollowHistoricalState}, from which a {@link HollowDataAccess} can
  * be obtained and used interchangeably with a (current) {@link HollowReadStateEngine} for many operations.
+ * <p>
+ * To retain a greater length of history than fits on the heap, older historical states may be spilled to local files
+ * with {@link #spillHistoricalStates(File, int, int)}.
  *
  */
 public class HollowHistory {
@@ -67,6 +75,11 @@ public class HollowHistory {
 
     private boolean ignoreListOrderingOnDoubleSnapshot = false;
 
+    private File spillDirectory;
+    private int maxHistoricalStatesOnHeap = Integer.MAX_VALUE;
+    private int maxSpilledStatesLoaded;
+    private final LinkedHashMap<HollowHistoricalStateDataAccess, Boolean> loadedSpilledStates = new LinkedHashMap<>(16, 0.75f, true);
+
     /**
      * @param initialHollowStateEngine The HollowReadStateEngine at an initial (earliest) state.
      * @param initialVersion The initial version of the HollowReadStateEngine
@@ -113,6 +126,33 @@ public class HollowHistory {
         this.ignoreListOrderingOnDoubleSnapshot = true;
     }
 
+    /**
+     * Call this method to spill the removed records of older historical states to files in a local directory, rather
+     * than holding them on the heap.
+     * <p>
+     * The most recent historical states are held on the heap; each older historical state is written to a file, as a
+     * snapshot blob, once it is no longer among them.  A spilled state is memory-mapped from its file when it is read,
+     * and remains loaded until it is the least recently retrieved via {@link #getHistoricalState(long)} of more than
+     * the maximum number of loaded spilled states.
+     * <p>
+     * The key ordinal mappings of spilled states, and the mappings from their ordinals to those of their removed
+     * records, remain on the heap.
+     *
+     * @param directory the directory in which to create the files, which are deleted when their states are removed
+     * @param maxHistoricalStatesOnHeap the number of most recent historical states which are not spilled
+     * @param maxSpilledStatesLoaded the number of spilled states which may be loaded at once
+     */
+    public void spillHistoricalStates(File directory, int maxHistoricalStatesOnHeap, int maxSpilledStatesLoaded) {
+        if(maxHistoricalStatesOnHeap < 0 || maxSpilledStatesLoaded < 0)
+            throw new IllegalArgumentException("The numbers of historical states on the heap and spilled states loaded must not be negative");
+        this.spillDirectory = directory;
+        this.maxHistoricalStatesOnHeap = maxHistoricalStatesOnHeap;
+        this.maxSpilledStatesLoaded = maxSpilledStatesLoaded;
+
+        for(int i=maxHistoricalStatesOnHeap;i<historicalStates.size();i++)
+            spill(historicalStates.get(i).getDataAccess());
+    }
+
     /**
      * @return The {@link HollowHistoryKeyIndex}, responsible for identifying keyOrdinals.
      */
@@ -146,9 +186,13 @@ public class HollowHistory {
      * @return The {@link HollowHistoricalState} for the specified version, if it exists.
      */
     public HollowHistoricalState getHistoricalState(long version) {
-        if(latestVersion == version)
-            return historicalStates.get(0);
-        return historicalStateLookupMap.get(version);
+        HollowHistoricalState historicalState = latestVersion == version ? historicalStates.get(0) : historicalStateLookupMap.get(version);
+        if(historicalState != null && historicalState.getDataAccess().getSpillFile() != null) {
+            synchronized(loadedSpilledStates) {
+                loadedSpilledStates.get(historicalState.getDataAccess());
+            }
+        }
+        return historicalState;
     }
 
     /**
@@ -205,6 +249,7 @@ public class HollowHistory {
 
         for(int i=0;i<historicalStates.size();i++) {
             HollowHistoricalState historicalStateToRemap = historicalStates.get(i);
+            discardSpilledState(historicalStateToRemap.getDataAccess());
             HollowHistoricalStateDataAccess remappedDataAccess = remappedDataAccesses[i];
             HollowHistoricalStateKeyOrdinalMapping remappedKeyOrdinalMapping = remappedKeyOrdinalMappings[i];
 
@@ -239,6 +284,9 @@ public class HollowHistory {
                     HollowHistoricalState historicalStateToRemap = historicalStates.get(t);
                     remappedDataAccesses[t] = creator.copyButRemapOrdinals(historicalStateToRemap.getDataAccess(), remapper);
                     remappedKeyOrdinalMappings[t] = historicalStateToRemap.getKeyOrdinalMapping().remap(remapper);
+                    /// spill each remapped state as it is created, so that they are not all held on the heap at once
+                    if(t >= maxHistoricalStatesOnHeap)
+                        spill(remappedDataAccesses[t]);
                 }
             });
         }
@@ -352,6 +400,45 @@ public class HollowHistory {
         if(historicalStates.size() > maxHistoricalStatesToKeep) {
             removeHistoricalStates(1);
         }
+
+        if(historicalStates.size() > maxHistoricalStatesOnHeap)
+            spill(historicalStates.get(maxHistoricalStatesOnHeap).getDataAccess());
+    }
+
+    private void spill(HollowHistoricalStateDataAccess dataAccess) {
+        if(dataAccess.getSpillFile() != null)
+            return;
+        try {
+            File file = Files.createTempFile(spillDirectory.toPath(), "hollow-history-" + dataAccess.getVersion() + "-", ".blob").toFile();
+            dataAccess.spill(file);
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to spill the historical state " + dataAccess.getVersion() + " to " + spillDirectory, e);
+        }
+    }
+
+    /**
+     * Registers a spilled state which has been loaded, and drops the least recently retrieved spilled states which
+     * are loaded beyond the maximum.
+     */
+    void spilledStateLoaded(HollowHistoricalStateDataAccess dataAccess) {
+        List<HollowHistoricalStateDataAccess> evicted = new ArrayList<>();
+        synchronized(loadedSpilledStates) {
+            loadedSpilledStates.put(dataAccess, Boolean.TRUE);
+            Iterator<HollowHistoricalStateDataAccess> iter = loadedSpilledStates.keySet().iterator();
+            while(loadedSpilledStates.size() > maxSpilledStatesLoaded) {
+                evicted.add(iter.next());
+                iter.remove();
+            }
+        }
+        for(HollowHistoricalStateDataAccess evictedDataAccess : evicted)
+            evictedDataAccess.unload();
+    }
+
+    private void discardSpilledState(HollowHistoricalStateDataAccess dataAccess) {
+        synchronized(loadedSpilledStates) {
+            loadedSpilledStates.remove(dataAccess);
+        }
+        dataAccess.deleteSpillFile();
     }
 
     /**
@@ -376,6 +463,7 @@ public class HollowHistory {
         while (n-- > 0) {
             HollowHistoricalState removedState = historicalStates.remove(historicalStates.size() - 1);
             historicalStateLookupMap.remove(removedState.getVersion());
+            discardSpilledState(removedState.getDataAccess());
         }
     }
 }
@@ -0,0 +1,770 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.tools.patch.delta;
+
+import com.netflix.hollow.core.HollowBlobHeader;
+import com.netflix.hollow.core.memory.ByteDataArray;
+import com.netflix.hollow.core.memory.SegmentedByteArray;
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.memory.encoding.GapEncodedVariableLengthIntegerReader;
+import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.WastefulRecycler;
+import com.netflix.hollow.core.read.HollowBlobInput;
+import com.netflix.hollow.core.read.engine.HollowBlobHeaderReader;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.core.util.IntList;
+import com.netflix.hollow.core.write.HollowBlobHeaderWriter;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The HollowStateDeltaSquasher merges a chain of delta blobs into a single delta blob, which transitions a state engine
+ * from the origin state of the first delta directly to the destination state of the last delta.
+ * <p>
+ * The deltas are merged in their serialized form, without materializing any of the states in the chain.  For each
+ * ordinal of each type, a record added by a delta is included in the squashed delta unless a later delta removes it,
+ * and an ordinal removed by a delta is included as a removal only if it was populated in the origin state.  A consumer
+ * which is many states behind can then apply one delta, rather than building each intermediate state in turn.
+ * <p>
+ * A squashed delta differs from a delta written by a producer between the same two states in that:
+ * <ul>
+ * <li>records which are added and then removed within the chain, and records of the origin state whose ordinals are
+ * reused within the chain, are not retained as ghost records in the destination state.</li>
+ * <li>the field widths and data sizes are upper bounds, since the sizes of the records of the origin state are
+ * not known; the next delta applied restores exact sizes.</li>
+ * </ul>
+ * <p>
+ * A chain in which a type is resharded, or the schema of a type changes, cannot be squashed.  Optional blob parts are
+ * not supported.
+ * <p>
+ * The deltas of the chain are held in memory until the squashed delta is written.
+ */
+public class HollowStateDeltaSquasher {
+
+    private final HollowBlobHeaderReader headerReader;
+    private final HollowBlobHeaderWriter headerWriter;
+    private final ArraySegmentRecycler memoryRecycler;
+    private final Map<String, TypeDeltas> typeDeltas;
+
+    private HollowBlobHeader firstHeader;
+    private HollowBlobHeader lastHeader;
+
+    /**
+     * Create a squasher for one chain of deltas, which are each read with {@link #addDelta(InputStream)}, then
+     * written as a single delta with {@link #writeSquashedDelta(OutputStream)}.
+     */
+    public HollowStateDeltaSquasher() {
+        this.headerReader = new HollowBlobHeaderReader();
+        this.headerWriter = new HollowBlobHeaderWriter();
+        this.memoryRecycler = WastefulRecycler.DEFAULT_INSTANCE;
+        this.typeDeltas = new LinkedHashMap<>();
+    }
+
+    /**
+     * Read the next delta of the chain.  Deltas must be added in the order in which they would be applied.
+     *
+     * @param is the input stream of the delta, which is read to its end but not closed
+     * @throws IOException if the delta cannot be read
+     * @throws IllegalArgumentException if the delta does not originate from the destination of the previous delta
+     * @throws IllegalStateException if the delta cannot be squashed with the previous deltas, because a type is
+     * resharded or its schema changes
+     */
+    public void addDelta(InputStream is) throws IOException {
+        HollowBlobInput in = HollowBlobInput.serialBlob(is);
+        HollowBlobHeader header = headerReader.readHeader(in);
+
+        if(lastHeader != null && header.getOriginRandomizedTag() != lastHeader.getDestinationRandomizedTag())
+            throw new IllegalArgumentException("Deltas must form a chain, each originating from the destination of the previous delta");
+        if(firstHeader == null)
+            firstHeader = header;
+        lastHeader = header;
+
+        int numTypes = VarInt.readVInt(in);
+        for(int i=0;i<numTypes;i++) {
+            HollowSchema schema = HollowSchema.readFrom(in);
+            int numShards = readNumShards(in);
+
+            TypeDeltas type = typeDeltas.get(schema.getName());
+            if(type == null) {
+                type = new TypeDeltas(schema, numShards);
+                typeDeltas.put(schema.getName(), type);
+            } else if(!type.schema.equals(schema)) {
+                throw new IllegalStateException("Cannot squash deltas in which the schema of type " + schema.getName() + " changes");
+            } else if(type.numShards != numShards) {
+                throw new IllegalStateException("Cannot squash deltas in which type " + schema.getName() + " is resharded");
+            }
+
+            type.readDelta(in);
+        }
+    }
+
+    /**
+     * Write a single delta, from the origin state of the first delta added to the destination state of the last.
+     *
+     * @param os the output stream to write the squashed delta
+     * @throws IOException if the squashed delta cannot be written
+     * @throws IllegalStateException if no delta has been added
+     */
+    public void writeSquashedDelta(OutputStream os) throws IOException {
+        if(firstHeader == null)
+            throw new IllegalStateException("At least one delta is required");
+
+        DataOutputStream dos = new DataOutputStream(os);
+
+        List<HollowSchema> schemas = new ArrayList<>(typeDeltas.size());
+        for(TypeDeltas type : typeDeltas.values())
+            schemas.add(type.schema);
+
+        HollowBlobHeader header = new HollowBlobHeader();
+        header.setHeaderTags(lastHeader.getHeaderTags());
+        header.setOriginRandomizedTag(firstHeader.getOriginRandomizedTag());
+        header.setDestinationRandomizedTag(lastHeader.getDestinationRandomizedTag());
+        header.setSchemas(schemas);
+        headerWriter.writeHeader(header, dos);
+
+        VarInt.writeVInt(dos, schemas.size());
+
+        for(TypeDeltas type : typeDeltas.values())
+            type.writeSquashedDelta(dos);
+
+        dos.flush();
+    }
+
+    private int readNumShards(HollowBlobInput in) throws IOException {
+        int backwardsCompatibilityBytes = VarInt.readVInt(in);
+
+        if(backwardsCompatibilityBytes == 0)
+            return 1;  /// produced by a version of hollow prior to 2.1.0, always only 1 shard.
+
+        int bytesToSkip = VarInt.readVInt(in);
+        while(bytesToSkip > 0) {
+            int skippedBytes = (int)in.skipBytes(bytesToSkip);
+            if(skippedBytes < 0)
+                throw new EOFException();
+            bytesToSkip -= skippedBytes;
+        }
+
+        return VarInt.readVInt(in);
+    }
+
+    private static void writeNumShards(DataOutputStream os, int numShards) throws IOException {
+        VarInt.writeVInt(os, 1 + VarInt.sizeOfVInt(numShards));
+        VarInt.writeVInt(os, 0); /// forwards compatibility
+        VarInt.writeVInt(os, numShards);
+    }
+
+    private static int bitsRequired(long value) {
+        return value == 0 ? 1 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    private static long nullValue(int bits) {
+        return (1L << bits) - 1;
+    }
+
+    private static long numLongs(long numBits) {
+        return numBits == 0 ? 0 : ((numBits - 1) / 64) + 1;
+    }
+
+    /**
+     * The deltas of one type, in the order of the chain, for each delta in which the type changed.
+     */
+    private class TypeDeltas {
+        private final HollowSchema schema;
+        private final int numShards;
+        private final List<ShardDelta[]> deltas = new ArrayList<>();
+        private int maxOrdinal;
+
+        TypeDeltas(HollowSchema schema, int numShards) {
+            this.schema = schema;
+            this.numShards = numShards;
+        }
+
+        void readDelta(HollowBlobInput in) throws IOException {
+            if(numShards > 1)
+                maxOrdinal = VarInt.readVInt(in);
+
+            ShardDelta[] shards = new ShardDelta[numShards];
+            for(int i=0;i<numShards;i++) {
+                shards[i] = newShardDelta();
+                shards[i].readFrom(in);
+            }
+            deltas.add(shards);
+        }
+
+        private ShardDelta newShardDelta() {
+            switch(schema.getSchemaType()) {
+                case OBJECT:
+                    return new ObjectShardDelta((HollowObjectSchema) schema);
+                case LIST:
+                    return new ListShardDelta();
+                case SET:
+                    return new SetShardDelta();
+                case MAP:
+                    return new MapShardDelta();
+                default:
+                    throw new IllegalStateException("Unknown schema type " + schema.getSchemaType());
+            }
+        }
+
+        void writeSquashedDelta(DataOutputStream os) throws IOException {
+            schema.writeTo(os);
+            writeNumShards(os, numShards);
+
+            if(numShards > 1)
+                VarInt.writeVInt(os, maxOrdinal);
+
+            SquashedShard[] squashedShards = new SquashedShard[numShards];
+            for(int i=0;i<numShards;i++)
+                squashedShards[i] = new SquashedShard(shardDeltas(i));
+
+            int[] objectFieldBits = null;
+            if(schema.getSchemaType() == HollowSchema.SchemaType.OBJECT)
+                objectFieldBits = squashedObjectFieldBits(squashedShards);
+
+            for(int i=0;i<numShards;i++) {
+                SquashedShard shard = squashedShards[i];
+
+                VarInt.writeVInt(os, shard.maxShardOrdinal);
+                writeOrdinals(os, shard.removals);
+                writeOrdinals(os, shard.additions);
+
+                shard.objectFieldBits = objectFieldBits;
+                shard.deltas.get(0).writeSquashed(os, shard);
+            }
+        }
+
+        private List<ShardDelta> shardDeltas(int shard) {
+            List<ShardDelta> shardDeltas = new ArrayList<>(deltas.size());
+            for(ShardDelta[] delta : deltas)
+                shardDeltas.add(delta[shard]);
+            return shardDeltas;
+        }
+
+        /// field widths are shared by all shards of a type.  The width of a variable length field must address the
+        /// data retained from the origin state, which is bounded by the width of the field in the first delta, as well as
+        /// the data of the squashed additions.
+        private int[] squashedObjectFieldBits(SquashedShard[] squashedShards) {
+            HollowObjectSchema objectSchema = (HollowObjectSchema) schema;
+            int[] bits = new int[objectSchema.numFields()];
+
+            for(int field=0;field<bits.length;field++) {
+                for(ShardDelta[] delta : deltas) {
+                    for(ShardDelta shard : delta)
+                        bits[field] = Math.max(bits[field], ((ObjectShardDelta) shard).bitsPerField[field]);
+                }
+
+                FieldType fieldType = objectSchema.getFieldType(field);
+                if(fieldType == FieldType.STRING || fieldType == FieldType.BYTES) {
+                    int firstBits = 0;
+                    for(ShardDelta shard : deltas.get(0))
+                        firstBits = Math.max(firstBits, ((ObjectShardDelta) shard).bitsPerField[field]);
+
+                    long bound = (1L << (firstBits - 1)) - 2;
+                    for(SquashedShard shard : squashedShards) {
+                        for(int i=0;i<shard.additions.size();i++) {
+                            ObjectShardDelta delta = (ObjectShardDelta) shard.deltas.get(shard.additionDelta.get(i));
+                            bound += delta.varLength(shard.additionRecord.get(i), field);
+                        }
+                    }
+
+                    bits[field] = Math.max(bits[field], bitsRequired(bound + 1) + 1);
+                }
+            }
+
+            return bits;
+        }
+    }
+
+    private void writeOrdinals(DataOutputStream os, IntList ordinals) throws IOException {
+        ByteDataArray encoded = new ByteDataArray(memoryRecycler);
+        int previousOrdinal = 0;
+        for(int i=0;i<ordinals.size();i++) {
+            VarInt.writeVInt(encoded, ordinals.get(i) - previousOrdinal);
+            previousOrdinal = ordinals.get(i);
+        }
+
+        VarInt.writeVLong(os, encoded.length());
+        encoded.getUnderlyingArray().writeTo(os, 0, encoded.length());
+    }
+
+    /**
+     * The removals and additions of one shard of a type over the whole chain.
+     */
+    private static class SquashedShard {
+        private final List<ShardDelta> deltas;
+        private final int maxShardOrdinal;
+        /// ordinals populated in the origin state, and removed in the chain
+        private final IntList removals = new IntList();
+        /// ordinals populated in the destination state, and added in the chain
+        private final IntList additions = new IntList();
+        /// for each addition, the index of the last delta to add the ordinal, and the index of its record in that delta
+        private final IntList additionDelta = new IntList();
+        private final IntList additionRecord = new IntList();
+        /// for an object type, the widths of the fields, which are shared by all shards of the type
+        private int[] objectFieldBits;
+
+        SquashedShard(List<ShardDelta> deltas) {
+            this.deltas = deltas;
+            this.maxShardOrdinal = deltas.get(deltas.size() - 1).maxShardOrdinal;
+
+            int numOrdinals = 0;
+            for(ShardDelta delta : deltas) {
+                numOrdinals = Math.max(numOrdinals, delta.maxShardOrdinal + 1);
+                if(delta.removals.size() > 0)
+                    numOrdinals = Math.max(numOrdinals, delta.removals.get(delta.removals.size() - 1) + 1);
+            }
+
+            int[] addedByDelta = new int[numOrdinals];
+            int[] addedRecord = new int[numOrdinals];
+            Arrays.fill(addedByDelta, -1);
+            BitSet changed = new BitSet(numOrdinals);
+            BitSet removedFromOrigin = new BitSet(numOrdinals);
+
+            for(int d=0;d<deltas.size();d++) {
+                ShardDelta delta = deltas.get(d);
+
+                for(int i=0;i<delta.removals.size();i++) {
+                    int ordinal = delta.removals.get(i);
+                    if(!changed.get(ordinal))
+                        removedFromOrigin.set(ordinal);
+                    changed.set(ordinal);
+                    addedByDelta[ordinal] = -1;
+                }
+
+                for(int i=0;i<delta.additions.size();i++) {
+                    int ordinal = delta.additions.get(i);
+                    changed.set(ordinal);
+                    addedByDelta[ordinal] = d;
+                    addedRecord[ordinal] = i;
+                }
+            }
+
+            for(int ordinal = removedFromOrigin.nextSetBit(0); ordinal != -1; ordinal = removedFromOrigin.nextSetBit(ordinal + 1))
+                removals.add(ordinal);
+
+            for(int ordinal=0;ordinal<numOrdinals;ordinal++) {
+                if(addedByDelta[ordinal] != -1) {
+                    additions.add(ordinal);
+                    additionDelta.add(addedByDelta[ordinal]);
+                    additionRecord.add(addedRecord[ordinal]);
+                }
+            }
+        }
+
+        /// the upper bound of the number of elements, or buckets, of the shard in the destination state: the elements of
+        /// the origin state, which are counted by the first delta along with its own additions, plus the squashed additions
+        long totalOfSizes() {
+            ShardDelta first = deltas.get(0);
+            long total = first.totalOfSizes;
+            for(int i=0;i<first.additions.size();i++)
+                total -= first.recordSize(i);
+            for(int i=0;i<additions.size();i++)
+                total += deltas.get(additionDelta.get(i)).recordSize(additionRecord.get(i));
+            return total;
+        }
+    }
+
+    /**
+     * One shard of a type, as serialized in a delta.
+     */
+    private abstract class ShardDelta {
+        int maxShardOrdinal;
+        IntList removals;
+        IntList additions;
+        long totalOfSizes;
+
+        void readFrom(HollowBlobInput in) throws IOException {
+            maxShardOrdinal = VarInt.readVInt(in);
+            removals = readOrdinals(in);
+            additions = readOrdinals(in);
+            readData(in);
+        }
+
+        private IntList readOrdinals(HollowBlobInput in) throws IOException {
+            GapEncodedVariableLengthIntegerReader reader = GapEncodedVariableLengthIntegerReader.readEncodedDeltaOrdinals(in, memoryRecycler);
+            IntList ordinals = new IntList();
+            while(reader.nextElement() != Integer.MAX_VALUE) {
+                ordinals.add(reader.nextElement());
+                reader.advance();
+            }
+            reader.destroy();
+            return ordinals;
+        }
+
+        abstract void readData(HollowBlobInput in) throws IOException;
+
+        /// the number of elements, or buckets, of an added record
+        abstract long recordSize(int record);
+
+        /// writes the data of the squashed additions of a shard, of which this is the first delta
+        abstract void writeSquashed(DataOutputStream os, SquashedShard shard) throws IOException;
+
+        /// the end position of an added record's elements, or buckets, which are written consecutively
+        long endPointer(FixedLengthElementArray pointers, int bitsPerFixedLengthPortion, int bitsPerPointer, int record) {
+            return pointers.getElementValue((long)bitsPerFixedLengthPortion * record, bitsPerPointer);
+        }
+
+        long startPointer(FixedLengthElementArray pointers, int bitsPerFixedLengthPortion, int bitsPerPointer, int record) {
+            return record == 0 ? 0 : endPointer(pointers, bitsPerFixedLengthPortion, bitsPerPointer, record - 1);
+        }
+    }
+
+    private class ObjectShardDelta extends ShardDelta {
+        private final HollowObjectSchema schema;
+        private int[] bitsPerField;
+        private int[] bitOffsetPerField;
+        private int bitsPerRecord;
+        private FixedLengthElementArray fixedLengthData;
+        private SegmentedByteArray[] varLengthData;
+
+        ObjectShardDelta(HollowObjectSchema schema) {
+            this.schema = schema;
+        }
+
+        @Override
+        void readData(HollowBlobInput in) throws IOException {
+            bitsPerField = new int[schema.numFields()];
+            bitOffsetPerField = new int[schema.numFields()];
+            for(int i=0;i<schema.numFields();i++) {
+                bitsPerField[i] = VarInt.readVInt(in);
+                bitOffsetPerField[i] = bitsPerRecord;
+                bitsPerRecord += bitsPerField[i];
+            }
+
+            fixedLengthData = FixedLengthElementArray.newFrom(in, memoryRecycler);
+
+            varLengthData = new SegmentedByteArray[schema.numFields()];
+            for(int i=0;i<schema.numFields();i++) {
+                long numBytes = VarInt.readVLong(in);
+                varLengthData[i] = new SegmentedByteArray(memoryRecycler);
+                if(numBytes > 0)
+                    varLengthData[i].loadFrom(in, numBytes);
+            }
+        }
+
+        @Override
+        long recordSize(int record) {
+            /// object records have no elements or buckets
+            return 0;
+        }
+
+        @Override
+        void writeSquashed(DataOutputStream os, SquashedShard shard) throws IOException {
+            int[] bits = shard.objectFieldBits;
+            int numFields = bits.length;
+
+            long bitsPerRecord = 0;
+            for(int field=0;field<numFields;field++) {
+                VarInt.writeVInt(os, bits[field]);
+                bitsPerRecord += bits[field];
+            }
+
+            int numRecords = shard.additions.size();
+            FixedLengthElementArray fixedLengthData = new FixedLengthElementArray(memoryRecycler, bitsPerRecord * numRecords);
+            SegmentedByteArray[] varLengthData = new SegmentedByteArray[numFields];
+            long[] varLengthPointers = new long[numFields];
+            for(int field=0;field<numFields;field++) {
+                FieldType fieldType = schema.getFieldType(field);
+                if(fieldType == FieldType.STRING || fieldType == FieldType.BYTES)
+                    varLengthData[field] = new SegmentedByteArray(memoryRecycler);
+            }
+
+            long writeBit = 0;
+            for(int i=0;i<numRecords;i++) {
+                ObjectShardDelta delta = (ObjectShardDelta) shard.deltas.get(shard.additionDelta.get(i));
+                int record = shard.additionRecord.get(i);
+
+                for(int field=0;field<numFields;field++) {
+                    int deltaBits = delta.bitsPerField[field];
+                    long value = delta.fieldValue(record, field);
+
+                    if(varLengthData[field] != null) {
+                        if((value & (1L << (deltaBits - 1))) != 0) {
+                            value = (1L << (bits[field] - 1)) | varLengthPointers[field];
+                        } else {
+                            long start = delta.varStart(record, field);
+                            varLengthData[field].copy(delta.varLengthData[field], start, varLengthPointers[field], value - start);
+                            varLengthPointers[field] += value - start;
+                            value = varLengthPointers[field];
+                        }
+                    } else if(deltaBits != bits[field] && value == nullValue(deltaBits)) {
+                        value = nullValue(bits[field]);
+                    }
+
+                    fixedLengthData.setElementValue(writeBit, bits[field], value);
+                    writeBit += bits[field];
+                }
+            }
+
+            fixedLengthData.writeTo(os, numLongs(bitsPerRecord * numRecords));
+
+            for(int field=0;field<numFields;field++) {
+                VarInt.writeVLong(os, varLengthPointers[field]);
+                if(varLengthPointers[field] > 0)
+                    varLengthData[field].writeTo(os, 0, varLengthPointers[field]);
+            }
+        }
+
+        long fieldValue(int record, int field) {
+            long bit = (long)bitsPerRecord * record + bitOffsetPerField[field];
+            return bitsPerField[field] > 56 ?
+                    fixedLengthData.getLargeElementValue(bit, bitsPerField[field])
+                    : fixedLengthData.getElementValue(bit, bitsPerField[field]);
+        }
+
+        /// the position of the first byte of a variable length field, which follows that of the previous record
+        long varStart(int record, int field) {
+            if(record == 0)
+                return 0;
+            return fieldValue(record - 1, field) & ((1L << (bitsPerField[field] - 1)) - 1);
+        }
+
+        long varLength(int record, int field) {
+            long value = fieldValue(record, field);
+            if((value & (1L << (bitsPerField[field] - 1))) != 0)
+                return 0;
+            return value - varStart(record, field);
+        }
+    }
+
+    private class ListShardDelta extends ShardDelta {
+        private int bitsPerListPointer;
+        private int bitsPerElement;
+        private FixedLengthElementArray listPointerData;
+        private FixedLengthElementArray elementData;
+
+        @Override
+        void readData(HollowBlobInput in) throws IOException {
+            bitsPerListPointer = VarInt.readVInt(in);
+            bitsPerElement = VarInt.readVInt(in);
+            totalOfSizes = VarInt.readVLong(in);
+            listPointerData = FixedLengthElementArray.newFrom(in, memoryRecycler);
+            elementData = FixedLengthElementArray.newFrom(in, memoryRecycler);
+        }
+
+        @Override
+        long recordSize(int record) {
+            return endPointer(listPointerData, bitsPerListPointer, bitsPerListPointer, record)
+                    - startPointer(listPointerData, bitsPerListPointer, bitsPerListPointer, record);
+        }
+
+        @Override
+        void writeSquashed(DataOutputStream os, SquashedShard shard) throws IOException {
+            long totalOfListSizes = shard.totalOfSizes();
+            int squashedBitsPerListPointer = bitsRequired(totalOfListSizes);
+            int squashedBitsPerElement = 0;
+            long numElements = 0;
+            for(ShardDelta delta : shard.deltas)
+                squashedBitsPerElement = Math.max(squashedBitsPerElement, ((ListShardDelta) delta).bitsPerElement);
+            for(int i=0;i<shard.additions.size();i++)
+                numElements += shard.deltas.get(shard.additionDelta.get(i)).recordSize(shard.additionRecord.get(i));
+
+            VarInt.writeVInt(os, squashedBitsPerListPointer);
+            VarInt.writeVInt(os, squashedBitsPerElement);
+            VarInt.writeVLong(os, totalOfListSizes);
+
+            FixedLengthElementArray squashedListPointers = new FixedLengthElementArray(memoryRecycler, (long)squashedBitsPerListPointer * shard.additions.size());
+            FixedLengthElementArray squashedElements = new FixedLengthElementArray(memoryRecycler, (long)squashedBitsPerElement * numElements);
+
+            long elementCounter = 0;
+            for(int i=0;i<shard.additions.size();i++) {
+                ListShardDelta delta = (ListShardDelta) shard.deltas.get(shard.additionDelta.get(i));
+                int record = shard.additionRecord.get(i);
+
+                long endElement = delta.endPointer(delta.listPointerData, delta.bitsPerListPointer, delta.bitsPerListPointer, record);
+                for(long element=delta.startPointer(delta.listPointerData, delta.bitsPerListPointer, delta.bitsPerListPointer, record);element<endElement;element++) {
+                    long elementOrdinal = delta.elementData.getElementValue(element * delta.bitsPerElement, delta.bitsPerElement);
+                    squashedElements.setElementValue(elementCounter * squashedBitsPerElement, squashedBitsPerElement, elementOrdinal);
+                    elementCounter++;
+                }
+
+                squashedListPointers.setElementValue((long)squashedBitsPerListPointer * i, squashedBitsPerListPointer, elementCounter);
+            }
+
+            squashedListPointers.writeTo(os, numLongs((long)squashedBitsPerListPointer * shard.additions.size()));
+            squashedElements.writeTo(os, numLongs((long)squashedBitsPerElement * numElements));
+        }
+    }
+
+    private class SetShardDelta extends ShardDelta {
+        private int bitsPerSetPointer;
+        private int bitsPerSetSizeValue;
+        private int bitsPerElement;
+        private FixedLengthElementArray setPointerAndSizeData;
+        private FixedLengthElementArray elementData;
+
+        @Override
+        void readData(HollowBlobInput in) throws IOException {
+            bitsPerSetPointer = VarInt.readVInt(in);
+            bitsPerSetSizeValue = VarInt.readVInt(in);
+            bitsPerElement = VarInt.readVInt(in);
+            totalOfSizes = VarInt.readVLong(in);
+            setPointerAndSizeData = FixedLengthElementArray.newFrom(in, memoryRecycler);
+            elementData = FixedLengthElementArray.newFrom(in, memoryRecycler);
+        }
+
+        @Override
+        long recordSize(int record) {
+            int bitsPerFixedLengthPortion = bitsPerSetPointer + bitsPerSetSizeValue;
+            return endPointer(setPointerAndSizeData, bitsPerFixedLengthPortion, bitsPerSetPointer, record)
+                    - startPointer(setPointerAndSizeData, bitsPerFixedLengthPortion, bitsPerSetPointer, record);
+        }
+
+        @Override
+        void writeSquashed(DataOutputStream os, SquashedShard shard) throws IOException {
+            long totalOfSetBuckets = shard.totalOfSizes();
+            int squashedBitsPerSetPointer = bitsRequired(totalOfSetBuckets);
+            int squashedBitsPerSetSizeValue = 0;
+            int squashedBitsPerElement = 0;
+            long numBuckets = 0;
+            for(ShardDelta delta : shard.deltas) {
+                squashedBitsPerSetSizeValue = Math.max(squashedBitsPerSetSizeValue, ((SetShardDelta) delta).bitsPerSetSizeValue);
+                squashedBitsPerElement = Math.max(squashedBitsPerElement, ((SetShardDelta) delta).bitsPerElement);
+            }
+            for(int i=0;i<shard.additions.size();i++)
+                numBuckets += shard.deltas.get(shard.additionDelta.get(i)).recordSize(shard.additionRecord.get(i));
+            int squashedBitsPerFixedLengthPortion = squashedBitsPerSetPointer + squashedBitsPerSetSizeValue;
+
+            VarInt.writeVInt(os, squashedBitsPerSetPointer);
+            VarInt.writeVInt(os, squashedBitsPerSetSizeValue);
+            VarInt.writeVInt(os, squashedBitsPerElement);
+            VarInt.writeVLong(os, totalOfSetBuckets);
+
+            FixedLengthElementArray squashedPointersAndSizes = new FixedLengthElementArray(memoryRecycler, (long)squashedBitsPerFixedLengthPortion * shard.additions.size());
+            FixedLengthElementArray squashedElements = new FixedLengthElementArray(memoryRecycler, (long)squashedBitsPerElement * numBuckets);
+
+            long bucketCounter = 0;
+            for(int i=0;i<shard.additions.size();i++) {
+                SetShardDelta delta = (SetShardDelta) shard.deltas.get(shard.additionDelta.get(i));
+                int record = shard.additionRecord.get(i);
+                int bitsPerFixedLengthPortion = delta.bitsPerSetPointer + delta.bitsPerSetSizeValue;
+
+                long endBucket = delta.endPointer(delta.setPointerAndSizeData, bitsPerFixedLengthPortion, delta.bitsPerSetPointer, record);
+                for(long bucket=delta.startPointer(delta.setPointerAndSizeData, bitsPerFixedLengthPortion, delta.bitsPerSetPointer, record);bucket<endBucket;bucket++) {
+                    long bucketValue = delta.elementData.getElementValue(bucket * delta.bitsPerElement, delta.bitsPerElement);
+                    if(bucketValue == nullValue(delta.bitsPerElement))
+                        bucketValue = nullValue(squashedBitsPerElement);
+                    squashedElements.setElementValue(bucketCounter * squashedBitsPerElement, squashedBitsPerElement, bucketValue);
+                    bucketCounter++;
+                }
+
+                long size = delta.setPointerAndSizeData.getElementValue((long)bitsPerFixedLengthPortion * record + delta.bitsPerSetPointer, delta.bitsPerSetSizeValue);
+                squashedPointersAndSizes.setElementValue((long)squashedBitsPerFixedLengthPortion * i, squashedBitsPerSetPointer, bucketCounter);
+                squashedPointersAndSizes.setElementValue((long)squashedBitsPerFixedLengthPortion * i + squashedBitsPerSetPointer, squashedBitsPerSetSizeValue, size);
+            }
+
+            squashedPointersAndSizes.writeTo(os, numLongs((long)squashedBitsPerFixedLengthPortion * shard.additions.size()));
+            squashedElements.writeTo(os, numLongs((long)squashedBitsPerElement * numBuckets));
+        }
+    }
+
+    private class MapShardDelta extends ShardDelta {
+        private int bitsPerMapPointer;
+        private int bitsPerMapSizeValue;
+        private int bitsPerKeyElement;
+        private int bitsPerValueElement;
+        private FixedLengthElementArray mapPointerAndSizeData;
+        private FixedLengthElementArray entryData;
+
+        @Override
+        void readData(HollowBlobInput in) throws IOException {
+            bitsPerMapPointer = VarInt.readVInt(in);
+            bitsPerMapSizeValue = VarInt.readVInt(in);
+            bitsPerKeyElement = VarInt.readVInt(in);
+            bitsPerValueElement = VarInt.readVInt(in);
+            totalOfSizes = VarInt.readVLong(in);
+            mapPointerAndSizeData = FixedLengthElementArray.newFrom(in, memoryRecycler);
+            entryData = FixedLengthElementArray.newFrom(in, memoryRecycler);
+        }
+
+        @Override
+        long recordSize(int record) {
+            int bitsPerFixedLengthPortion = bitsPerMapPointer + bitsPerMapSizeValue;
+            return endPointer(mapPointerAndSizeData, bitsPerFixedLengthPortion, bitsPerMapPointer, record)
+                    - startPointer(mapPointerAndSizeData, bitsPerFixedLengthPortion, bitsPerMapPointer, record);
+        }
+
+        @Override
+        void writeSquashed(DataOutputStream os, SquashedShard shard) throws IOException {
+            long totalOfMapBuckets = shard.totalOfSizes();
+            int squashedBitsPerMapPointer = bitsRequired(totalOfMapBuckets);
+            int squashedBitsPerMapSizeValue = 0;
+            int squashedBitsPerKeyElement = 0;
+            int squashedBitsPerValueElement = 0;
+            long numBuckets = 0;
+            for(ShardDelta shardDelta : shard.deltas) {
+                MapShardDelta delta = (MapShardDelta) shardDelta;
+                squashedBitsPerMapSizeValue = Math.max(squashedBitsPerMapSizeValue, delta.bitsPerMapSizeValue);
+                squashedBitsPerKeyElement = Math.max(squashedBitsPerKeyElement, delta.bitsPerKeyElement);
+                squashedBitsPerValueElement = Math.max(squashedBitsPerValueElement, delta.bitsPerValueElement);
+            }
+            for(int i=0;i<shard.additions.size();i++)
+                numBuckets += shard.deltas.get(shard.additionDelta.get(i)).recordSize(shard.additionRecord.get(i));
+            int squashedBitsPerFixedLengthPortion = squashedBitsPerMapPointer + squashedBitsPerMapSizeValue;
+            int squashedBitsPerMapEntry = squashedBitsPerKeyElement + squashedBitsPerValueElement;
+
+            VarInt.writeVInt(os, squashedBitsPerMapPointer);
+            VarInt.writeVInt(os, squashedBitsPerMapSizeValue);
+            VarInt.writeVInt(os, squashedBitsPerKeyElement);
+            VarInt.writeVInt(os, squashedBitsPerValueElement);
+            VarInt.writeVLong(os, totalOfMapBuckets);
+
+            FixedLengthElementArray squashedPointersAndSizes = new FixedLengthElementArray(memoryRecycler, (long)squashedBitsPerFixedLengthPortion * shard.additions.size());
+            FixedLengthElementArray squashedEntries = new FixedLengthElementArray(memoryRecycler, (long)squashedBitsPerMapEntry * numBuckets);
+
+            long bucketCounter = 0;
+            for(int i=0;i<shard.additions.size();i++) {
+                MapShardDelta delta = (MapShardDelta) shard.deltas.get(shard.additionDelta.get(i));
+                int record = shard.additionRecord.get(i);
+                int bitsPerFixedLengthPortion = delta.bitsPerMapPointer + delta.bitsPerMapSizeValue;
+                int bitsPerMapEntry = delta.bitsPerKeyElement + delta.bitsPerValueElement;
+
+                long endBucket = delta.endPointer(delta.mapPointerAndSizeData, bitsPerFixedLengthPortion, delta.bitsPerMapPointer, record);
+                for(long bucket=delta.startPointer(delta.mapPointerAndSizeData, bitsPerFixedLengthPortion, delta.bitsPerMapPointer, record);bucket<endBucket;bucket++) {
+                    long key = delta.entryData.getElementValue(bucket * bitsPerMapEntry, delta.bitsPerKeyElement);
+                    long value = delta.entryData.getElementValue(bucket * bitsPerMapEntry + delta.bitsPerKeyElement, delta.bitsPerValueElement);
+                    if(key == nullValue(delta.bitsPerKeyElement))
+                        key = nullValue(squashedBitsPerKeyElement);
+
+                    long writeBit = bucketCounter * squashedBitsPerMapEntry;
+                    squashedEntries.setElementValue(writeBit, squashedBitsPerKeyElement, key);
+                    squashedEntries.setElementValue(writeBit + squashedBitsPerKeyElement, squashedBitsPerValueElement, value);
+                    bucketCounter++;
+                }
+
+                long size = delta.mapPointerAndSizeData.getElementValue((long)bitsPerFixedLengthPortion * record + delta.bitsPerMapPointer, delta.bitsPerMapSizeValue);
+                squashedPointersAndSizes.setElementValue((long)squashedBitsPerFixedLengthPortion * i, squashedBitsPerMapPointer, bucketCounter);
+                squashedPointersAndSizes.setElementValue((long)squashedBitsPerFixedLengthPortion * i + squashedBitsPerMapPointer, squashedBitsPerMapSizeValue, size);
+            }
+
+            squashedPointersAndSizes.writeTo(os, numLongs((long)squashedBitsPerFixedLengthPortion * shard.additions.size()));
+            squashedEntries.writeTo(os, numLongs((long)squashedBitsPerMapEntry * numBuckets));
+        }
+    }
+}
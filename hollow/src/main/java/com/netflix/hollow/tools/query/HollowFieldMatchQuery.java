@@ -16,17 +16,30 @@
  */
 package com.netflix.hollow.tools.query;
 
+import com.netflix.hollow.core.index.HollowHashIndex;
+import com.netflix.hollow.core.index.HollowHashIndexResult;
+import com.netflix.hollow.core.index.HollowPrimaryKeyIndex;
+import com.netflix.hollow.core.index.key.PrimaryKey;
 import com.netflix.hollow.core.read.HollowReadFieldUtils;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.engine.HollowTypeStateListener;
 import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.read.iterator.HollowOrdinalIterator;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
 import com.netflix.hollow.core.schema.HollowSchema.SchemaType;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
 import com.netflix.hollow.tools.traverse.TransitiveSetTraverser;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntPredicate;
 
 /**
  * A HollowFieldMatchQuery can be used to scan through all records in a dataset to match specific field name/value combinations.
@@ -46,13 +59,66 @@ import java.util.Map;
  * TransitiveSetTraverser.addReferencingOutsideClosure(myStateEngine, selection);
  * }
  * </pre>
+ * <p>
+ * The ordinals of a large type are scanned in ranges, in parallel.  A type is not scanned at all if a
+ * {@link HollowPrimaryKeyIndex} with a single field, or a {@link HollowHashIndex} which selects the type by a single
+ * match field, is defined on the queried field; such an index is used if it listens for delta updates of the type, or if
+ * it has been added to this query with {@link #addIndex(HollowPrimaryKeyIndex)} or {@link #addIndex(HollowHashIndex)}
+ * and the state engine has not been updated since.
+ * <p>
+ * The results of the most recent queries are cached until the state engine is updated, so that a query may be
+ * repeated cheaply.
  */
 public class HollowFieldMatchQuery {
-    
+
+    private static final int PARALLEL_SCAN_MIN_ORDINALS = 1 << 16;
+    private static final int MAX_CACHED_QUERIES = 64;
+
     private final HollowReadStateEngine readEngine;
+    private final List<AddedIndex<HollowPrimaryKeyIndex>> primaryKeyIndexes;
+    private final List<AddedIndex<HollowHashIndex>> hashIndexes;
+    private final Map<String, Map<String, BitSet>> cachedMatches;
+    private long cachedMatchesRandomizedTag;
     
     public HollowFieldMatchQuery(HollowReadStateEngine readEngine) {
         this.readEngine = readEngine;
+        this.primaryKeyIndexes = new CopyOnWriteArrayList<AddedIndex<HollowPrimaryKeyIndex>>();
+        this.hashIndexes = new CopyOnWriteArrayList<AddedIndex<HollowHashIndex>>();
+        this.cachedMatches = new LinkedHashMap<String, Map<String, BitSet>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, BitSet>> eldest) {
+                return size() > MAX_CACHED_QUERIES;
+            }
+        };
+        this.cachedMatchesRandomizedTag = readEngine.getCurrentRandomizedTag();
+    }
+
+    public HollowReadStateEngine getStateEngine() {
+        return readEngine;
+    }
+
+    /**
+     * Use an index of the current state of the state engine to match records of its type, if its single field is the
+     * queried field.
+     * <p>
+     * The index is used until the state engine is updated, unless it listens for delta updates.
+     *
+     * @param index the index
+     */
+    public void addIndex(HollowPrimaryKeyIndex index) {
+        primaryKeyIndexes.add(new AddedIndex<HollowPrimaryKeyIndex>(index, readEngine.getCurrentRandomizedTag()));
+    }
+
+    /**
+     * Use an index of the current state of the state engine to match records of its type, if it selects records of its
+     * type by a single match field which is the queried field.
+     * <p>
+     * The index is used until the state engine is updated, unless it listens for delta updates.
+     *
+     * @param index the index
+     */
+    public void addIndex(HollowHashIndex index) {
+        hashIndexes.add(new AddedIndex<HollowHashIndex>(index, readEngine.getCurrentRandomizedTag()));
     }
     
     /**
@@ -63,13 +129,7 @@ public class HollowFieldMatchQuery {
      * @return the matching records
      */
     public Map<String, BitSet> findMatchingRecords(String fieldName, String fieldValue) {
-        Map<String, BitSet> matches = new HashMap<String, BitSet>();
-        
-        for(HollowTypeReadState typeState : readEngine.getTypeStates()) {
-            augmentMatchingRecords(typeState, fieldName, fieldValue, matches);
-        }
-
-        return matches;
+        return findMatchingRecords(null, fieldName, fieldValue, readEngine.getTypeStates());
     }
     
     /**
@@ -81,16 +141,43 @@ public class HollowFieldMatchQuery {
      * @return the matching records
      */
     public Map<String, BitSet> findMatchingRecords(String typeName, String fieldName, String fieldValue) {
-        Map<String, BitSet> matches = new HashMap<String, BitSet>();
-
         HollowTypeReadState typeState = readEngine.getTypeState(typeName);
+        List<HollowTypeReadState> typeStates = new ArrayList<HollowTypeReadState>();
         if(typeState != null)
-            augmentMatchingRecords(typeState, fieldName, fieldValue, matches);
-        
+            typeStates.add(typeState);
+
+        return findMatchingRecords(typeName, fieldName, fieldValue, typeStates);
+    }
+
+    private Map<String, BitSet> findMatchingRecords(String typeName, String fieldName, String fieldValue, Iterable<HollowTypeReadState> typeStates) {
+        String cacheKey = (typeName == null ? "" : typeName) + "\u0000" + fieldName + "\u0000" + fieldValue;
+        long randomizedTag = readEngine.getCurrentRandomizedTag();
+
+        synchronized(cachedMatches) {
+            if(cachedMatchesRandomizedTag != randomizedTag) {
+                cachedMatches.clear();
+                cachedMatchesRandomizedTag = randomizedTag;
+            }
+            Map<String, BitSet> cached = cachedMatches.get(cacheKey);
+            if(cached != null)
+                return copy(cached);
+        }
+
+        Map<String, BitSet> matches = new HashMap<String, BitSet>();
+        for(HollowTypeReadState typeState : typeStates) {
+            augmentMatchingRecords(typeState, fieldName, fieldValue, randomizedTag, matches);
+        }
+
+        synchronized(cachedMatches) {
+            /// the state engine may have been updated during the query, in which case the matches may be of either state
+            if(cachedMatchesRandomizedTag == randomizedTag && readEngine.getCurrentRandomizedTag() == randomizedTag)
+                cachedMatches.put(cacheKey, copy(matches));
+        }
+
         return matches;
     }
 
-    private void augmentMatchingRecords(HollowTypeReadState typeState, String fieldName, String fieldValue, Map<String, BitSet> matches) {
+    private void augmentMatchingRecords(HollowTypeReadState typeState, String fieldName, String fieldValue, long randomizedTag, Map<String, BitSet> matches) {
         if(typeState.getSchema().getSchemaType() == SchemaType.OBJECT) {
             HollowObjectSchema schema = (HollowObjectSchema)typeState.getSchema();
             
@@ -98,15 +185,17 @@ public class HollowFieldMatchQuery {
                 if(schema.getFieldName(i).equals(fieldName)) {
                     HollowObjectTypeReadState objState = (HollowObjectTypeReadState)typeState;
                     
-                    BitSet typeQueryMatches = null;
+                    BitSet typeQueryMatches = queryBasedOnIndex(objState, i, fieldValue, randomizedTag);
                     
-                    if(schema.getFieldType(i) == FieldType.REFERENCE) {
-                        typeQueryMatches = attemptReferenceTraversalQuery(objState, i, fieldValue);
-                    } else {
-                        Object queryValue = castQueryValue(fieldValue, schema.getFieldType(i));
-                        
-                        if(queryValue != null) {
-                            typeQueryMatches = queryBasedOnValueMatches(objState, i, queryValue);
+                    if(typeQueryMatches == null) {
+                        if(schema.getFieldType(i) == FieldType.REFERENCE) {
+                            typeQueryMatches = attemptReferenceTraversalQuery(objState, i, fieldValue);
+                        } else {
+                            Object queryValue = castQueryValue(fieldValue, schema.getFieldType(i));
+                            
+                            if(queryValue != null) {
+                                typeQueryMatches = queryBasedOnValueMatches(objState, i, queryValue);
+                            }
                         }
                     }
                     
@@ -116,6 +205,91 @@ public class HollowFieldMatchQuery {
             }
         }
     }
+
+    /**
+     * Matches the records of a type with an index, if there is one on the queried field.
+     * <p>
+     * The queried field is followed through any references to types with a single field, in the same manner as by
+     * {@link #attemptReferenceTraversalQuery(HollowObjectTypeReadState, int, String)}.  An index which was added to this
+     * query is only used if it was added in the queried state; one which listens for delta updates is found among the
+     * listeners of the type state.
+     *
+     * @return the matched records, or null if no index is defined on the queried field
+     */
+    private BitSet queryBasedOnIndex(HollowObjectTypeReadState typeState, int fieldIdx, String fieldValue, long randomizedTag) {
+        List<HollowPrimaryKeyIndex> typePrimaryKeyIndexes = new ArrayList<HollowPrimaryKeyIndex>();
+        List<HollowHashIndex> typeHashIndexes = new ArrayList<HollowHashIndex>();
+        for(HollowTypeStateListener listener : typeState.getListeners()) {
+            if(listener instanceof HollowPrimaryKeyIndex)
+                typePrimaryKeyIndexes.add((HollowPrimaryKeyIndex)listener);
+            else if(listener instanceof HollowHashIndex)
+                typeHashIndexes.add((HollowHashIndex)listener);
+        }
+        for(AddedIndex<HollowPrimaryKeyIndex> added : primaryKeyIndexes) {
+            HollowPrimaryKeyIndex index = added.index;
+            if(added.randomizedTag == randomizedTag && index.getTypeState() == typeState)
+                typePrimaryKeyIndexes.add(index);
+        }
+        for(AddedIndex<HollowHashIndex> added : hashIndexes) {
+            HollowHashIndex index = added.index;
+            if(added.randomizedTag == randomizedTag && index.getStateEngine() == readEngine
+                    && index.getType().equals(typeState.getSchema().getName()))
+                typeHashIndexes.add(index);
+        }
+        if(typePrimaryKeyIndexes.isEmpty() && typeHashIndexes.isEmpty())
+            return null;
+
+        HollowObjectSchema schema = typeState.getSchema();
+        int fieldPathIndex[] = new int[] { fieldIdx };
+        StringBuilder fieldPath = new StringBuilder(schema.getFieldName(fieldIdx));
+        FieldType fieldType = schema.getFieldType(fieldIdx);
+
+        while(fieldType == FieldType.REFERENCE) {
+            HollowTypeReadState referencedTypeState = schema.getReferencedTypeState(fieldPathIndex[fieldPathIndex.length - 1]);
+            if(referencedTypeState.getSchema().getSchemaType() != SchemaType.OBJECT
+                    || ((HollowObjectSchema)referencedTypeState.getSchema()).numFields() != 1)
+                return null;
+
+            schema = (HollowObjectSchema)referencedTypeState.getSchema();
+            fieldPathIndex = Arrays.copyOf(fieldPathIndex, fieldPathIndex.length + 1);
+            fieldPath.append(".").append(schema.getFieldName(0));
+            fieldType = schema.getFieldType(0);
+        }
+
+        Object queryValue = castQueryValue(fieldValue, fieldType);
+        if(queryValue == null)
+            return null;
+
+        for(HollowPrimaryKeyIndex index : typePrimaryKeyIndexes) {
+            PrimaryKey primaryKey = index.getPrimaryKey();
+            if(primaryKey.numFields() == 1 && Arrays.equals(fieldPathIndex, primaryKey.getFieldPathIndex(readEngine, 0))) {
+                BitSet typeQueryMatches = new BitSet();
+                int ordinal = index.getMatchingOrdinal(queryValue);
+                if(ordinal != -1)
+                    typeQueryMatches.set(ordinal);
+                return typeQueryMatches;
+            }
+        }
+
+        for(HollowHashIndex index : typeHashIndexes) {
+            if("".equals(index.getSelectField()) && index.getMatchFields().length == 1
+                    && index.getMatchFields()[0].equals(fieldPath.toString())) {
+                BitSet typeQueryMatches = new BitSet();
+                HollowHashIndexResult result = index.findMatches(queryValue);
+                if(result != null) {
+                    HollowOrdinalIterator iter = result.iterator();
+                    int ordinal = iter.next();
+                    while(ordinal != HollowOrdinalIterator.NO_MORE_ORDINALS) {
+                        typeQueryMatches.set(ordinal);
+                        ordinal = iter.next();
+                    }
+                }
+                return typeQueryMatches;
+            }
+        }
+
+        return null;
+    }
     
     private BitSet attemptReferenceTraversalQuery(HollowObjectTypeReadState typeState, int fieldIdx, String fieldValue) {
         HollowTypeReadState referencedTypeState = typeState.getSchema().getReferencedTypeState(fieldIdx);
@@ -144,33 +318,80 @@ public class HollowFieldMatchQuery {
         return null;
     }
     
-    private BitSet queryBasedOnMatchedReferences(HollowObjectTypeReadState typeState, int referenceFieldPosition, BitSet matchedReferences) {
-        BitSet populatedOrdinals = typeState.getPopulatedOrdinals();
-        BitSet typeQueryMatches = new BitSet(populatedOrdinals.length());
-      
-        int ordinal = populatedOrdinals.nextSetBit(0);
-        while(ordinal != -1) {
-            int refOrdinal = typeState.readOrdinal(ordinal, referenceFieldPosition);
-            if(refOrdinal != -1 && matchedReferences.get(refOrdinal))
-                typeQueryMatches.set(ordinal);
-            ordinal = populatedOrdinals.nextSetBit(ordinal+1);
+    private BitSet queryBasedOnMatchedReferences(final HollowObjectTypeReadState typeState, final int referenceFieldPosition, final BitSet matchedReferences) {
+        return scan(typeState, new IntPredicate() {
+            public boolean test(int ordinal) {
+                int refOrdinal = typeState.readOrdinal(ordinal, referenceFieldPosition);
+                return refOrdinal != -1 && matchedReferences.get(refOrdinal);
+            }
+        });
+    }
+    
+    private BitSet queryBasedOnValueMatches(final HollowObjectTypeReadState typeState, final int fieldPosition, final Object queryValue) {
+        return scan(typeState, new IntPredicate() {
+            public boolean test(int ordinal) {
+                return HollowReadFieldUtils.fieldValueEquals(typeState, ordinal, fieldPosition, queryValue);
+            }
+        });
+    }
+
+    /**
+     * Tests each populated ordinal of a type.  The ordinals of a large type are split into ranges, each of which is
+     * tested on a separate thread.
+     */
+    private BitSet scan(HollowObjectTypeReadState typeState, final IntPredicate predicate) {
+        final BitSet populatedOrdinals = typeState.getPopulatedOrdinals();
+        int length = populatedOrdinals.length();
+        if(length < PARALLEL_SCAN_MIN_ORDINALS)
+            return scan(populatedOrdinals, 0, length, predicate);
+
+        SimultaneousExecutor executor = new SimultaneousExecutor(getClass(), "field-match-query");
+        int numRanges = executor.getCorePoolSize() * 4;
+        int rangeSize = (length + numRanges - 1) / numRanges;
+        final BitSet rangeMatches[] = new BitSet[numRanges];
+
+        for(int i=0;i<numRanges;i++) {
+            final int range = i;
+            final int fromOrdinal = Math.min(length, range * rangeSize);
+            final int toOrdinal = Math.min(length, fromOrdinal + rangeSize);
+            executor.execute(new Runnable() {
+                public void run() {
+                    rangeMatches[range] = scan(populatedOrdinals, fromOrdinal, toOrdinal, predicate);
+                }
+            });
+        }
+
+        try {
+            executor.awaitSuccessfulCompletion();
+        } catch(Exception e) {
+            throw new RuntimeException(e);
         }
+
+        BitSet typeQueryMatches = new BitSet(length);
+        for(BitSet matches : rangeMatches)
+            typeQueryMatches.or(matches);
         return typeQueryMatches;
     }
-    
-    private BitSet queryBasedOnValueMatches(HollowObjectTypeReadState typeState, int fieldPosition, Object queryValue) {
-        BitSet populatedOrdinals = typeState.getPopulatedOrdinals();
-        BitSet typeQueryMatches = new BitSet(populatedOrdinals.length());
-      
-        int ordinal = populatedOrdinals.nextSetBit(0);
-        while(ordinal != -1) {
-            if(HollowReadFieldUtils.fieldValueEquals(typeState, ordinal, fieldPosition, queryValue))
+
+    private static BitSet scan(BitSet populatedOrdinals, int fromOrdinal, int toOrdinal, IntPredicate predicate) {
+        BitSet typeQueryMatches = new BitSet(toOrdinal);
+
+        int ordinal = populatedOrdinals.nextSetBit(fromOrdinal);
+        while(ordinal != -1 && ordinal < toOrdinal) {
+            if(predicate.test(ordinal))
                 typeQueryMatches.set(ordinal);
             ordinal = populatedOrdinals.nextSetBit(ordinal+1);
         }
         return typeQueryMatches;
     }
 
+    private static Map<String, BitSet> copy(Map<String, BitSet> matches) {
+        Map<String, BitSet> copy = new HashMap<String, BitSet>();
+        for(Map.Entry<String, BitSet> entry : matches.entrySet())
+            copy.put(entry.getKey(), (BitSet)entry.getValue().clone());
+        return copy;
+    }
+
     private Object castQueryValue(String fieldValue, FieldType fieldType) {
         
         try {
@@ -195,4 +416,17 @@ public class HollowFieldMatchQuery {
         }
     }
 
+    /**
+     * An index added to this query, with the randomized tag of the state in which it was added.
+     */
+    private static class AddedIndex<I> {
+        private final I index;
+        private final long randomizedTag;
+
+        AddedIndex(I index, long randomizedTag) {
+            this.index = index;
+            this.randomizedTag = randomizedTag;
+        }
+    }
+
 }
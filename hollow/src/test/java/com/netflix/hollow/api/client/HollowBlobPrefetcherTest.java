@@ -0,0 +1,266 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.client;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.api.consumer.InMemoryBlobStore;
+import com.netflix.hollow.api.consumer.metrics.AbstractRefreshMetricsListener;
+import com.netflix.hollow.api.consumer.metrics.ConsumerRefreshMetrics;
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.api.producer.HollowProducer;
+import com.netflix.hollow.api.producer.fs.HollowInMemoryBlobStager;
+import com.netflix.hollow.core.index.HollowPrimaryKeyIndex;
+import com.netflix.hollow.core.write.objectmapper.HollowPrimaryKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HollowBlobPrefetcherTest {
+
+    @Test
+    public void blobsAreRetrievedConcurrentlyAndTakenInOrder() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<HollowConsumer.Blob> blobs = new ArrayList<>();
+        for(int i=0;i<5;i++)
+            blobs.add(new TestBlob(i, 100 + i, i == 1 || i == 2 ? bothStarted : null));
+
+        try(HollowBlobPrefetcher prefetcher = new HollowBlobPrefetcher(blobs, 3, Long.MAX_VALUE)) {
+            /// once the first blob has been retrieved, the second and third each wait for both to have started, so
+            /// must be retrieved concurrently
+            Assert.assertTrue(bothStarted.await(10, TimeUnit.SECONDS));
+
+            for(int i=0;i<5;i++) {
+                try(HollowBlobPrefetcher.Fetch fetch = prefetcher.take(blobs.get(i))) {
+                    Assert.assertArrayEquals(TestBlob.data(i, 100 + i), readFully(fetch.getInputStream()));
+                }
+            }
+            Assert.assertEquals(0, prefetcher.getBytesInFlight());
+        }
+    }
+
+    @Test
+    public void blobsSpanningManyChunks() throws Exception {
+        int size = HollowBlobPrefetcher.CHUNK_SIZE * 2 + 17;
+        List<HollowConsumer.Blob> blobs = Arrays.asList(new TestBlob(0, size, null), new TestBlob(1, HollowBlobPrefetcher.CHUNK_SIZE, null));
+
+        try(HollowBlobPrefetcher prefetcher = new HollowBlobPrefetcher(blobs, 2, Long.MAX_VALUE)) {
+            for(int i=0;i<2;i++) {
+                try(HollowBlobPrefetcher.Fetch fetch = prefetcher.take(blobs.get(i))) {
+                    Assert.assertArrayEquals(TestBlob.data(i, ((TestBlob) blobs.get(i)).size), readFully(fetch.getInputStream()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void retrievalIsBoundedByBytesInFlight() throws Exception {
+        List<TestBlob> blobs = new ArrayList<>();
+        for(int i=0;i<6;i++)
+            blobs.add(new TestBlob(i, 1000, null));
+
+        try(HollowBlobPrefetcher prefetcher = new HollowBlobPrefetcher(new ArrayList<>(blobs), 4, 2500)) {
+            HollowBlobPrefetcher.Fetch first = prefetcher.take(blobs.get(0));
+
+            /// the first blob is held, and only one more fits within the limit
+            waitForRetrievals(blobs, 2);
+            Thread.sleep(100);
+            Assert.assertEquals(2, countRetrievals(blobs));
+            Assert.assertEquals(2000, prefetcher.getBytesInFlight());
+
+            /// releasing the first blob makes room for another retrieval
+            first.close();
+            waitForRetrievals(blobs, 3);
+
+            for(int i=1;i<6;i++) {
+                try(HollowBlobPrefetcher.Fetch fetch = prefetcher.take(blobs.get(i))) {
+                    Assert.assertArrayEquals(TestBlob.data(i, 1000), readFully(fetch.getInputStream()));
+                }
+            }
+            Assert.assertEquals(6, countRetrievals(blobs));
+        }
+    }
+
+    @Test
+    public void blobLargerThanTheLimitIsRetrieved() throws Exception {
+        List<HollowConsumer.Blob> blobs = Arrays.asList(new TestBlob(0, 5000, null), new TestBlob(1, 5000, null));
+
+        try(HollowBlobPrefetcher prefetcher = new HollowBlobPrefetcher(blobs, 2, 100)) {
+            for(int i=0;i<2;i++) {
+                try(HollowBlobPrefetcher.Fetch fetch = prefetcher.take(blobs.get(i))) {
+                    Assert.assertEquals(5000, readFully(fetch.getInputStream()).length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void failedRetrievalIsThrownWhenTaken() throws Exception {
+        TestBlob failing = new TestBlob(1, 10, null);
+        failing.fail = true;
+        List<HollowConsumer.Blob> blobs = Arrays.asList(new TestBlob(0, 10, null), failing, new TestBlob(2, 10, null));
+
+        try(HollowBlobPrefetcher prefetcher = new HollowBlobPrefetcher(blobs, 3, Long.MAX_VALUE)) {
+            prefetcher.take(blobs.get(0)).close();
+            try {
+                prefetcher.take(blobs.get(1));
+                Assert.fail();
+            } catch(IOException expected) {
+                Assert.assertEquals("FAILED", expected.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void blobsMustBeTakenInOrder() throws Exception {
+        List<HollowConsumer.Blob> blobs = Arrays.asList(new TestBlob(0, 10, null), new TestBlob(1, 10, null));
+
+        try(HollowBlobPrefetcher prefetcher = new HollowBlobPrefetcher(blobs, 2, Long.MAX_VALUE)) {
+            prefetcher.take(blobs.get(1));
+        }
+    }
+
+    @Test
+    public void consumerAppliesPrefetchedDeltas() throws Exception {
+        InMemoryBlobStore blobStore = new InMemoryBlobStore();
+        HollowProducer producer = HollowProducer.withPublisher(blobStore)
+                .withBlobStager(new HollowInMemoryBlobStager())
+                .build();
+
+        long firstVersion = producer.runCycle(ws -> {
+            for(int i=0;i<100;i++)
+                ws.add(new Movie(i, "movie" + i));
+        });
+
+        List<ConsumerRefreshMetrics> refreshMetrics = new ArrayList<>();
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(blobStore)
+                .withDeltaPrefetch(4, 1 << 20)
+                .withRefreshListener(new AbstractRefreshMetricsListener() {
+                    @Override
+                    public void refreshEndMetricsReporting(ConsumerRefreshMetrics metrics) {
+                        refreshMetrics.add(metrics);
+                    }
+                })
+                .build();
+        consumer.triggerRefreshTo(firstVersion);
+
+        long lastVersion = firstVersion;
+        for(int cycle=1;cycle<=10;cycle++) {
+            int c = cycle;
+            lastVersion = producer.runCycle(ws -> {
+                for(int i=0;i<100;i++)
+                    ws.add(new Movie(i, "movie" + i + "-" + c));
+            });
+        }
+
+        consumer.triggerRefreshTo(lastVersion);
+        Assert.assertEquals(lastVersion, consumer.getCurrentVersionId());
+
+        HollowPrimaryKeyIndex idx = new HollowPrimaryKeyIndex(consumer.getStateEngine(), "Movie", "id");
+        for(int i=0;i<100;i++) {
+            GenericHollowObject movie = new GenericHollowObject(consumer.getStateEngine(), "Movie", idx.getMatchingOrdinal(i));
+            Assert.assertEquals("movie" + i + "-10", movie.getObject("title").getString("value"));
+        }
+
+        ConsumerRefreshMetrics.UpdatePlanDetails details = refreshMetrics.get(1).getUpdatePlanDetails();
+        Assert.assertEquals(10, details.getNumSuccessfulTransitions());
+        Assert.assertTrue(details.getFetchDurationNanos() > 0);
+        Assert.assertTrue(details.getApplyDurationNanos() > 0);
+        Assert.assertTrue(details.getFetchWaitDurationNanos() >= 0);
+    }
+
+    private static void waitForRetrievals(List<TestBlob> blobs, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while(countRetrievals(blobs) < count && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertTrue(countRetrievals(blobs) >= count);
+    }
+
+    private static int countRetrievals(List<TestBlob> blobs) {
+        int count = 0;
+        for(TestBlob blob : blobs)
+            count += blob.retrievals.get();
+        return count;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        try(InputStream in = is) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while((n = in.read(buf)) != -1)
+                out.write(buf, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    @HollowPrimaryKey(fields = "id")
+    static class Movie {
+        int id;
+        String title;
+
+        Movie(int id, String title) {
+            this.id = id;
+            this.title = title;
+        }
+    }
+
+    private static class TestBlob extends HollowConsumer.Blob {
+        private final int size;
+        private final CountDownLatch started;
+        private final AtomicInteger retrievals = new AtomicInteger();
+        private volatile boolean fail;
+
+        TestBlob(int fromVersion, int size, CountDownLatch started) {
+            super(fromVersion, fromVersion + 1);
+            this.size = size;
+            this.started = started;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            retrievals.incrementAndGet();
+            if(started != null) {
+                started.countDown();
+                try {
+                    started.await(10, TimeUnit.SECONDS);
+                } catch(InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if(fail)
+                throw new IOException("FAILED");
+            return new ByteArrayInputStream(data((int) getFromVersion(), size));
+        }
+
+        static byte[] data(int seed, int size) {
+            byte[] data = new byte[size];
+            for(int i=0;i<size;i++)
+                data[i] = (byte) (seed * 31 + i);
+            return data;
+        }
+    }
+}
@@ -16,6 +16,8 @@
  */
 package com.netflix.hollow.api.consumer;
 
+import com.netflix.hollow.api.custom.HollowAPI;
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
 import com.netflix.hollow.api.producer.HollowProducer;
 import com.netflix.hollow.api.producer.HollowProducer.ReadState;
 import com.netflix.hollow.api.producer.HollowProducer.VersionMinter;
@@ -26,13 +28,19 @@ import com.netflix.hollow.api.producer.validation.ValidationStatus;
 import com.netflix.hollow.api.producer.validation.ValidationStatusException;
 import com.netflix.hollow.api.producer.validation.ValidationStatusListener;
 import com.netflix.hollow.api.producer.validation.ValidatorListener;
+import com.netflix.hollow.core.index.HollowHashIndex;
+import com.netflix.hollow.core.index.HollowPrefixIndex;
 import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.pool.OffHeapRecycler;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
 import com.netflix.hollow.core.read.filter.TypeFilter;
+import com.netflix.hollow.core.read.iterator.HollowOrdinalIterator;
 import com.netflix.hollow.tools.compact.HollowCompactor.CompactionConfig;
 import java.time.Duration;
 import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -455,6 +463,116 @@ public class HollowProducerConsumerTests {
         }
     }
 
+    @Test
+    public void consumerAppliesDoubleSnapshotInPlace() {
+        AtomicLong versions = new AtomicLong();
+        HollowProducer producer = HollowProducer.withPublisher(blobStore)
+                .withBlobStager(new HollowInMemoryBlobStager())
+                .withVersionMinter(versions::incrementAndGet)
+                .build();
+        long v1 = producer.runCycle(state -> {
+            for (int i = 0; i < 1000; i++)
+                state.add(new Movie(i, "movie" + i));
+        });
+
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(blobStore)
+                .withReadViews()
+                .withInPlaceDoubleSnapshot()
+                .build();
+        consumer.triggerRefreshTo(v1);
+        HollowAPI api = consumer.getAPI();
+        HollowTypeReadState movieTypeState = consumer.getStateEngine().getTypeState("Movie");
+        HollowHashIndex idIndex = new HollowHashIndex(consumer.getStateEngine(), "Movie", "", "id");
+        idIndex.listenForDeltaUpdates();
+        HollowPrefixIndex titleIndex = new HollowPrefixIndex(consumer.getStateEngine(), "Movie", "title");
+        titleIndex.listenForDeltaUpdates();
+
+        /// a producer which is not restored produces a snapshot, with no delta from the consumer's version
+        HollowProducer redeployedProducer = HollowProducer.withPublisher(blobStore)
+                .withBlobStager(new HollowInMemoryBlobStager())
+                .withVersionMinter(versions::incrementAndGet)
+                .build();
+        long v2 = redeployedProducer.runCycle(state -> {
+            for (int i = 500; i < 1500; i++)
+                state.add(new Movie(i, "film" + i));
+        });
+        consumer.triggerRefreshTo(v2);
+
+        Assert.assertEquals(v2, consumer.getCurrentVersionId());
+        Assert.assertSame(api, consumer.getAPI());
+        Assert.assertSame(movieTypeState, consumer.getStateEngine().getTypeState("Movie"));
+
+        BitSet populatedOrdinals = movieTypeState.getPopulatedOrdinals();
+        BitSet ids = new BitSet();
+        for (int ordinal = populatedOrdinals.nextSetBit(0); ordinal != -1; ordinal = populatedOrdinals.nextSetBit(ordinal + 1)) {
+            GenericHollowObject movie = new GenericHollowObject(consumer.getStateEngine(), "Movie", ordinal);
+            int id = movie.getInt("id");
+            Assert.assertEquals("film" + id, movie.getObject("title").getString("value"));
+            ids.set(id);
+        }
+        Assert.assertEquals(1000, ids.cardinality());
+        Assert.assertEquals(500, ids.nextSetBit(0));
+
+        /// the ordinals of the snapshot were populated before, but hold different records, so the indexes are rebuilt
+        Assert.assertNull(idIndex.findMatches(0));
+        HollowOrdinalIterator matches = idIndex.findMatches(500).iterator();
+        Assert.assertEquals("film500", new GenericHollowObject(consumer.getStateEngine(), "Movie", matches.next())
+                .getObject("title").getString("value"));
+        Assert.assertEquals(HollowOrdinalIterator.NO_MORE_ORDINALS, matches.next());
+        Assert.assertEquals(HollowOrdinalIterator.NO_MORE_ORDINALS, titleIndex.findKeysWithPrefix("movie").next());
+        matches = titleIndex.findKeysWithPrefix("film1499");
+        Assert.assertEquals(1499, new GenericHollowObject(consumer.getStateEngine(), "Movie", matches.next()).getInt("id"));
+        Assert.assertEquals(HollowOrdinalIterator.NO_MORE_ORDINALS, matches.next());
+
+        long peakTransientBytes = consumer.getMetrics().getLastSnapshotPeakTransientBytes();
+        Assert.assertTrue(peakTransientBytes > 0);
+        Assert.assertTrue(peakTransientBytes < consumer.getStateEngine().calcApproxDataSize());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void consumerRequiresReadViewsToApplyDoubleSnapshotInPlace() {
+        HollowConsumer.withBlobRetriever(blobStore)
+                .withInPlaceDoubleSnapshot()
+                .build();
+    }
+
+    @Test
+    public void consumerAppliesDeltasOffHeap() {
+        HollowProducer producer = HollowProducer.withPublisher(blobStore)
+                .withBlobStager(new HollowInMemoryBlobStager())
+                .build();
+        long v1 = producer.runCycle(state -> {
+            for (int i = 0; i < 1000; i++)
+                state.add(new Movie(i, "movie" + i));
+        });
+        producer.runCycle(state -> {
+            for (int i = 500; i < 1500; i++)
+                state.add(new Movie(i, "movie" + i));
+        });
+        long v3 = producer.runCycle(state -> {
+            for (int i = 500; i < 1500; i++)
+                state.add(new Movie(i, i % 2 == 0 ? "film" + i : "movie" + i));
+        });
+
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(blobStore)
+                .withMemoryMode(MemoryMode.OFF_HEAP)
+                .build();
+        consumer.triggerRefreshTo(v1);
+        consumer.triggerRefreshTo(v3);
+
+        Assert.assertEquals(v3, consumer.getCurrentVersionId());
+        Assert.assertTrue(consumer.getStateEngine().getMemoryRecycler() instanceof OffHeapRecycler);
+
+        HollowTypeReadState movieTypeState = consumer.getStateEngine().getTypeState("Movie");
+        BitSet populatedOrdinals = movieTypeState.getPopulatedOrdinals();
+        Assert.assertEquals(1000, populatedOrdinals.cardinality());
+        for (int ordinal = populatedOrdinals.nextSetBit(0); ordinal != -1; ordinal = populatedOrdinals.nextSetBit(ordinal + 1)) {
+            GenericHollowObject movie = new GenericHollowObject(consumer.getStateEngine(), "Movie", ordinal);
+            int id = movie.getInt("id");
+            Assert.assertEquals((id % 2 == 0 ? "film" : "movie") + id, movie.getObject("title").getString("value"));
+        }
+    }
+
     @Test
     public void consumerFilteringSupport() {
         HollowProducer producer = HollowProducer.withPublisher(blobStore)
@@ -475,19 +593,25 @@ public class HollowProducerConsumerTests {
         consumer.triggerRefreshTo(version);
         Assert.assertEquals(version, consumer.getCurrentVersionId());
 
-        // Filtering is not supported in shared memory mode
-        try {
-            HollowConsumer.withBlobRetriever(blobStore)
-                    .withMemoryMode(MemoryMode.SHARED_MEMORY_LAZY)
-                    .withTypeFilter(filterConfig)
-                    .build();
-        } catch (UnsupportedOperationException e) {
-            return;
-        }
-        Assert.fail();  // fail if UnsupportedOperationException was not thrown
+        // Filtering is also supported in shared memory mode
+        HollowConsumer.withBlobRetriever(blobStore)
+                .withMemoryMode(MemoryMode.SHARED_MEMORY_LAZY)
+                .withTypeFilter(filterConfig)
+                .build();
     }
 
     private long runCycle(HollowProducer producer, final int cycleNumber) {
         return producer.runCycle(state -> state.add(cycleNumber));
     }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        String title;
+
+        Movie(int id, String title) {
+            this.id = id;
+            this.title = title;
+        }
+    }
 }
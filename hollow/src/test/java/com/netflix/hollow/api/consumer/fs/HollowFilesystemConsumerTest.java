@@ -4,10 +4,13 @@ import com.netflix.hollow.api.consumer.HollowConsumer;
 import com.netflix.hollow.api.objects.generic.GenericHollowObject;
 import com.netflix.hollow.api.producer.HollowProducer;
 import com.netflix.hollow.api.producer.fs.HollowFilesystemPublisher;
+import com.netflix.hollow.core.memory.MemoryMode;
 import com.netflix.hollow.core.write.objectmapper.HollowPrimaryKey;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -46,6 +49,85 @@ public class HollowFilesystemConsumerTest {
         Assert.assertEquals(4, obj4.getInt("id"));
     }
 
+    @Test
+    public void testSharedMemoryEagerConsumerWithWarmup() throws IOException {
+        File localDir = createLocalDir();
+        HollowFilesystemPublisher pub = new HollowFilesystemPublisher(localDir.toPath());
+
+        HollowProducer producer = HollowProducer.withPublisher(pub)
+                .withNumStatesBetweenSnapshots(2)
+                .build();
+
+        long snapshotVersion = producer.runCycle(state -> {
+            state.add(new Entity(1));
+            state.add(new Entity(2));
+        });
+
+        long deltaVersion = producer.runCycle(state -> {
+            state.add(new Entity(1));
+            state.add(new Entity(2));
+            state.add(new Entity(3));
+        });
+
+        List<long[]> loadTimings = new ArrayList<>();
+        HollowFilesystemBlobRetriever retriever = new HollowFilesystemBlobRetriever(localDir.toPath());
+        HollowConsumer consumer = HollowConsumer.newHollowConsumer().withBlobRetriever(retriever)
+                .withMemoryMode(MemoryMode.SHARED_MEMORY_EAGER)
+                .withSharedMemoryWarmup()
+                .withRefreshListener(new HollowConsumer.AbstractRefreshListener() {
+                    @Override
+                    public void sharedMemoryLoadTimed(long prefaultDurationNanos, long warmupDurationNanos) {
+                        loadTimings.add(new long[] {prefaultDurationNanos, warmupDurationNanos});
+                    }
+                })
+                .build();
+        consumer.triggerRefreshTo(snapshotVersion);
+        consumer.triggerRefreshTo(deltaVersion);
+
+        GenericHollowObject obj3 = new GenericHollowObject(consumer.getStateEngine(), "Entity", 2);
+        Assert.assertEquals(3, obj3.getInt("id"));
+
+        Assert.assertEquals(2, loadTimings.size());
+        for(long[] timings : loadTimings) {
+            Assert.assertTrue(timings[0] > 0);
+            Assert.assertTrue(timings[1] > 0);
+        }
+    }
+
+    @Test
+    public void testSharedMemoryEagerConsumerWithFilter() throws IOException {
+        File localDir = createLocalDir();
+        HollowFilesystemPublisher pub = new HollowFilesystemPublisher(localDir.toPath());
+
+        HollowProducer producer = HollowProducer.withPublisher(pub).build();
+        producer.initializeDataModel(Entity.class, Entity2.class);
+        long version = producer.runCycle(state -> {
+            state.add(new Entity(1));
+            state.add(new Entity2(2));
+        });
+
+        List<Long> prefaultDurations = new ArrayList<>();
+        HollowFilesystemBlobRetriever retriever = new HollowFilesystemBlobRetriever(localDir.toPath());
+        HollowConsumer consumer = HollowConsumer.newHollowConsumer().withBlobRetriever(retriever)
+                .withMemoryMode(MemoryMode.SHARED_MEMORY_EAGER)
+                .withTypeFilter(filter -> filter.excludeAll().include("Entity"))
+                .withRefreshListener(new HollowConsumer.AbstractRefreshListener() {
+                    @Override
+                    public void sharedMemoryLoadTimed(long prefaultDurationNanos, long warmupDurationNanos) {
+                        prefaultDurations.add(prefaultDurationNanos);
+                    }
+                })
+                .build();
+        consumer.triggerRefreshTo(version);
+
+        GenericHollowObject obj1 = new GenericHollowObject(consumer.getStateEngine(), "Entity", 0);
+        Assert.assertEquals(1, obj1.getInt("id"));
+        Assert.assertNull(consumer.getStateEngine().getTypeState("Entity2"));
+
+        Assert.assertEquals(1, prefaultDurations.size());
+        Assert.assertTrue(prefaultDurations.get(0) > 0);
+    }
+
     static File createLocalDir() throws IOException {
         File localDir = Files.createTempDirectory("hollow_fs").toFile();
         localDir.deleteOnExit();
@@ -61,4 +143,14 @@ public class HollowFilesystemConsumerTest {
             this.id = id;
         }
     }
+
+    @HollowPrimaryKey(fields="id")
+    public static class Entity2 {
+        @SuppressWarnings("unused")
+        private final int id;
+
+        public Entity2(int id) {
+            this.id = id;
+        }
+    }
 }
@@ -110,6 +110,29 @@ public class AbstractRefreshMetricsListenerTest {
         Assert.assertEquals(testTransitionSequence, refreshMetrics.getUpdatePlanDetails().getTransitionSequence());
     }
 
+    @Test
+    public void testBlobLoadTimingsAreSummed() {
+        concreteRefreshMetricsListener.refreshStarted(TEST_VERSION_LOW, TEST_VERSION_HIGH);
+        concreteRefreshMetricsListener.blobLoadTimed(null, 100, 10, 1000);
+        concreteRefreshMetricsListener.blobLoadTimed(null, 200, 0, 2000);
+        ConsumerRefreshMetrics refreshMetrics = concreteRefreshMetricsListener.refreshMetricsBuilder.build();
+
+        Assert.assertEquals(300, refreshMetrics.getUpdatePlanDetails().getFetchDurationNanos());
+        Assert.assertEquals(10, refreshMetrics.getUpdatePlanDetails().getFetchWaitDurationNanos());
+        Assert.assertEquals(3000, refreshMetrics.getUpdatePlanDetails().getApplyDurationNanos());
+    }
+
+    @Test
+    public void testSharedMemoryLoadTimingsAreSummed() {
+        concreteRefreshMetricsListener.refreshStarted(TEST_VERSION_LOW, TEST_VERSION_HIGH);
+        concreteRefreshMetricsListener.sharedMemoryLoadTimed(100, 1000);
+        concreteRefreshMetricsListener.sharedMemoryLoadTimed(200, 0);
+        ConsumerRefreshMetrics refreshMetrics = concreteRefreshMetricsListener.refreshMetricsBuilder.build();
+
+        Assert.assertEquals(300, refreshMetrics.getUpdatePlanDetails().getPrefaultDurationNanos());
+        Assert.assertEquals(1000, refreshMetrics.getUpdatePlanDetails().getWarmupDurationNanos());
+    }
+
     @Test
     public void testRefreshSuccess() {
         class SuccessTestRefreshMetricsListener extends AbstractRefreshMetricsListener {
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.objects.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.netflix.hollow.api.custom.HollowTypeAPI;
+import com.netflix.hollow.core.read.dataaccess.HollowTypeDataAccess;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.util.StateEngineRoundTripper;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowObjectBoundedCacheProviderTest {
+
+    HollowWriteStateEngine writeStateEngine;
+    HollowObjectMapper mapper;
+    HollowReadStateEngine readStateEngine;
+    HollowTypeReadState typeReadState;
+    TypeAFactory factory;
+
+    @Before
+    public void before() throws IOException {
+        writeStateEngine = new HollowWriteStateEngine();
+        mapper = new HollowObjectMapper(writeStateEngine);
+        addMovies(0, 1, 2);
+        readStateEngine = StateEngineRoundTripper.roundTripSnapshot(writeStateEngine);
+        typeReadState = readStateEngine.getTypeState("Movie");
+        factory = new TypeAFactory();
+    }
+
+    @Test
+    public void instantiatesLazily() {
+        HollowObjectBoundedCacheProvider<TypeA> subject = new HollowObjectBoundedCacheProvider<>(typeReadState, null, factory, 16);
+        assertEquals(0, factory.instantiated.get());
+
+        TypeA a = subject.getHollowObject(2);
+        assertEquals(2, a.ordinal);
+        assertSame(a, subject.getHollowObject(2));
+        assertEquals(1, factory.instantiated.get());
+
+        assertEquals(1, subject.getHitCount());
+        assertEquals(1, subject.getMissCount());
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void evictsBeyondBound() {
+        HollowObjectBoundedCacheProvider<TypeA> subject = new HollowObjectBoundedCacheProvider<>(typeReadState, null, factory, 32);
+
+        for(int i=0;i<1000;i++) {
+            assertEquals(i, subject.getHollowObject(i).ordinal);
+            assertTrue(subject.size() <= 32);
+        }
+        assertEquals(32, subject.size());
+
+        for(int i=0;i<1000;i++)
+            assertEquals(i, subject.getHollowObject(i).ordinal);
+        assertEquals(2000, subject.getHitCount() + subject.getMissCount());
+        assertEquals(subject.getMissCount(), factory.instantiated.get());
+    }
+
+    @Test
+    public void invalidatesChangedOrdinals() throws IOException {
+        HollowObjectBoundedCacheProvider<TypeA> subject = new HollowObjectBoundedCacheProvider<>(typeReadState, null, factory, 16);
+        TypeA a0 = subject.getHollowObject(0);
+        TypeA a1 = subject.getHollowObject(1);
+        TypeA a3 = subject.getHollowObject(3);
+
+        /// removes ordinal 1 and adds ordinal 3
+        addMovies(0, 2, 3);
+        StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+
+        assertSame(a0, subject.getHollowObject(0));
+        assertNotSame(a1, subject.getHollowObject(1));
+        assertNotSame(a3, subject.getHollowObject(3));
+    }
+
+    @Test
+    public void carriesOverPopulatedOrdinals() throws IOException {
+        HollowObjectBoundedCacheProvider<TypeA> previous = new HollowObjectBoundedCacheProvider<>(typeReadState, null, factory, 16);
+        TypeA a0 = previous.getHollowObject(0);
+        TypeA a1 = previous.getHollowObject(1);
+
+        addMovies(0, 2, 3);
+        StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+
+        HollowObjectBoundedCacheProvider<TypeA> subject = new HollowObjectBoundedCacheProvider<>(typeReadState, null, factory, 16, previous);
+        assertEquals(1, subject.size());
+        assertSame(a0, subject.getHollowObject(0));
+        assertNotSame(a1, subject.getHollowObject(1));
+    }
+
+    @Test
+    public void detaching() {
+        HollowObjectBoundedCacheProvider<TypeA> subject = new HollowObjectBoundedCacheProvider<>(typeReadState, null, factory, 16);
+        subject.getHollowObject(0);
+
+        subject.detach();
+
+        assertEquals(0, subject.size());
+        assertNull(subject.getHollowObject(0));
+    }
+
+    private void addMovies(int... ids) {
+        for(int id : ids)
+            mapper.add(new Movie(id));
+    }
+
+    static class TypeAFactory extends HollowFactory<TypeA> {
+        final AtomicInteger instantiated = new AtomicInteger();
+
+        @Override
+        public TypeA newHollowObject(HollowTypeDataAccess dataAccess, HollowTypeAPI typeAPI, int ordinal) {
+            instantiated.incrementAndGet();
+            return new TypeA(ordinal);
+        }
+    }
+
+    static class TypeA {
+        final int ordinal;
+
+        TypeA(int ordinal) {
+            this.ordinal = ordinal;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static class Movie {
+        int id;
+
+        Movie(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.producer;
+
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.util.StateEngineRoundTripper;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.core.write.objectmapper.HollowPrimaryKey;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HollowIncrementalPrimaryKeyIndexTest {
+
+    @Test
+    public void updatesIndexAcrossCycles() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowIncrementalPrimaryKeyIndex index = new HollowIncrementalPrimaryKeyIndex();
+
+        mapper.add(new TypeA(1));
+        mapper.add(new TypeA(2));
+        StateEngineRoundTripper.roundTripSnapshot(writeEngine, readEngine);
+
+        index.beginCycle(1, 2);
+        HollowIncrementalPrimaryKeyIndex.TypeIndex typeIndex = index.update(readEngine, "TypeA", 1.0d);
+        Assert.assertEquals(2, typeIndex.size());
+        Assert.assertEquals(1, typeIndex.getMatchingOrdinal(new Object[] { 2 }));
+
+        mapper.add(new TypeA(1));
+        mapper.add(new TypeA(3));
+        StateEngineRoundTripper.roundTripDelta(writeEngine, readEngine);
+
+        index.beginCycle(2, 3);
+        typeIndex = index.update(readEngine, "TypeA", 1.0d);
+        Assert.assertEquals(2, typeIndex.size());
+        Assert.assertEquals(-1, typeIndex.getMatchingOrdinal(new Object[] { 2 }));
+        Assert.assertEquals(2, typeIndex.getMatchingOrdinal(new Object[] { 3 }));
+    }
+
+    @Test
+    public void rebuildsIndexWhichLagsMoreThanOneCycle() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowIncrementalPrimaryKeyIndex index = new HollowIncrementalPrimaryKeyIndex();
+
+        mapper.add(new TypeA(1));
+        mapper.add(new TypeA(2));
+        StateEngineRoundTripper.roundTripSnapshot(writeEngine, readEngine);
+
+        index.beginCycle(1, 2);
+        index.update(readEngine, "TypeA", 1.0d);
+
+        /// the ordinal of the removed record is reused in the following cycle, in which the index isn't updated
+        mapper.add(new TypeA(1));
+        StateEngineRoundTripper.roundTripDelta(writeEngine, readEngine);
+        index.beginCycle(2, 3);
+
+        mapper.add(new TypeA(1));
+        mapper.add(new TypeA(4));
+        StateEngineRoundTripper.roundTripDelta(writeEngine, readEngine);
+        Assert.assertTrue(readEngine.getTypeState("TypeA").getPopulatedOrdinals().get(1));
+
+        index.beginCycle(3, 4);
+        HollowIncrementalPrimaryKeyIndex.TypeIndex typeIndex = index.update(readEngine, "TypeA", 1.0d);
+        Assert.assertEquals(2, typeIndex.size());
+        Assert.assertEquals(0, typeIndex.getMatchingOrdinal(new Object[] { 1 }));
+        Assert.assertEquals(1, typeIndex.getMatchingOrdinal(new Object[] { 4 }));
+        Assert.assertEquals(-1, typeIndex.getMatchingOrdinal(new Object[] { 2 }));
+    }
+
+    @Test
+    public void dropsIndexesOfAnUnrelatedPriorState() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowIncrementalPrimaryKeyIndex index = new HollowIncrementalPrimaryKeyIndex();
+
+        mapper.add(new TypeA(1));
+        mapper.add(new TypeA(2));
+        StateEngineRoundTripper.roundTripSnapshot(writeEngine, readEngine);
+
+        index.beginCycle(1, 2);
+        HollowIncrementalPrimaryKeyIndex.TypeIndex typeIndex = index.update(readEngine, "TypeA", 1.0d);
+
+        index.beginCycle(7, 8);
+        Assert.assertNotSame(typeIndex, index.update(readEngine, "TypeA", 1.0d));
+    }
+
+    @SuppressWarnings("unused")
+    @HollowPrimaryKey(fields = "id")
+    private static class TypeA {
+        int id;
+
+        TypeA(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -36,7 +36,10 @@ import com.netflix.hollow.core.write.objectmapper.RecordPrimaryKey;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Assert;
 import org.junit.Before;
@@ -117,6 +120,55 @@ public class HollowProducerIncrementalTest {
         assertTypeA(idx, 5, "five", null);
     }
 
+    @Test
+    public void keepsPrimaryKeyIndexAcrossCycles() {
+        assertChangesAcrossCycles(new HollowProducer.Builder<>()
+                .withPublisher(blobStore)
+                .withBlobStager(new HollowInMemoryBlobStager())
+                .withIncrementalThreadsPerCpu(2.0d)
+                .buildIncremental());
+        assertChangesAcrossCycles(createInMemoryIncrementalProducerWithoutIntegrityCheck());
+    }
+
+    private void assertChangesAcrossCycles(HollowProducer.Incremental producer) {
+        Map<Integer, String> expected = new HashMap<>();
+        Random rand = new Random(13);
+        long version = 0;
+
+        for(int cycle=0;cycle<8;cycle++) {
+            Map<Integer, String> changes = new HashMap<>();
+            for(int i=0;i<(cycle == 0 ? 5000 : 1500);i++) {
+                int id = rand.nextInt(6000);
+                changes.put(id, rand.nextInt(4) == 0 ? null : String.valueOf(rand.nextInt(100)));
+            }
+
+            version = producer.runIncrementalCycle(iws -> {
+                for(Map.Entry<Integer, String> change : changes.entrySet()) {
+                    if(change.getValue() == null)
+                        iws.delete(new RecordPrimaryKey("TypeB", new Object[] { change.getKey() }));
+                    else
+                        iws.addOrModify(new TypeB(change.getKey(), change.getValue()));
+                }
+            });
+
+            for(Map.Entry<Integer, String> change : changes.entrySet()) {
+                if(change.getValue() == null)
+                    expected.remove(change.getKey());
+                else
+                    expected.put(change.getKey(), change.getValue());
+            }
+        }
+
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(blobStore).build();
+        consumer.triggerRefreshTo(version);
+
+        HollowPrimaryKeyIndex idx = new HollowPrimaryKeyIndex(consumer.getStateEngine(), "TypeB", "id");
+        Assert.assertFalse(idx.containsDuplicates());
+        assertEquals(expected.size(), consumer.getStateEngine().getTypeState("TypeB").getPopulatedOrdinals().cardinality());
+        for(int id=0;id<6000;id++)
+            assertTypeB(idx, id, expected.get(id));
+    }
+
     @Test
     public void addIfAbsentWillInitializeNewRecordsButNotOverwriteExistingRecords() {
         HollowProducer.Incremental producer = createInMemoryIncrementalProducer();
@@ -13,8 +13,12 @@ import com.netflix.hollow.api.producer.listener.RestoreListener;
 import com.netflix.hollow.api.producer.listener.VetoableListener;
 import com.netflix.hollow.api.producer.validation.ValidationStatus;
 import com.netflix.hollow.api.producer.validation.ValidationStatusListener;
+import com.netflix.hollow.core.HollowConstants;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -860,6 +864,82 @@ public class HollowProducerListenerTest {
         }
     }
 
+    @Test
+    public void testBlobStageElapsedEndsWhenEachBlobIsWritten() {
+        /// the blobs finish in the reverse of the order in which their stage events are fired
+        Map<HollowProducer.Blob.Type, Long> writeDelayMillis = new EnumMap<>(HollowProducer.Blob.Type.class);
+        writeDelayMillis.put(HollowProducer.Blob.Type.SNAPSHOT, 600L);
+        writeDelayMillis.put(HollowProducer.Blob.Type.DELTA, 0L);
+        writeDelayMillis.put(HollowProducer.Blob.Type.REVERSE_DELTA, 300L);
+        HollowProducer producer = HollowProducer.withPublisher(blobStore)
+                .withBlobStager(new DelayedBlobStager(writeDelayMillis))
+                .build();
+        producer.runCycle(ws -> ws.add(new Top(1)));
+
+        Map<HollowProducer.Blob.Type, Duration> elapsedByType = new EnumMap<>(HollowProducer.Blob.Type.class);
+        producer.addListener(new PublishListener() {
+            @Override public void onNoDeltaAvailable(long version) {
+            }
+
+            @Override public void onPublishStart(long version) {
+            }
+
+            @Override public void onBlobStage(Status status, HollowProducer.Blob blob, Duration elapsed) {
+                elapsedByType.put(blob.getType(), elapsed);
+            }
+
+            @Override public void onBlobPublish(Status status, HollowProducer.Blob blob, Duration elapsed) {
+            }
+
+            @Override public void onPublishComplete(Status status, long version, Duration elapsed) {
+            }
+        });
+        producer.runCycle(ws -> ws.add(new Top(2)));
+
+        Assert.assertEquals(3, elapsedByType.size());
+        Assert.assertTrue(elapsedByType.get(HollowProducer.Blob.Type.SNAPSHOT).toMillis() >= 600);
+        Assert.assertTrue(elapsedByType.get(HollowProducer.Blob.Type.REVERSE_DELTA).toMillis() >= 300);
+        Assert.assertTrue(elapsedByType.get(HollowProducer.Blob.Type.REVERSE_DELTA).toMillis() < 600);
+        Assert.assertTrue(elapsedByType.get(HollowProducer.Blob.Type.DELTA).toMillis() < 300);
+    }
+
+    static class DelayedBlobStager implements HollowProducer.BlobStager {
+        private final Map<HollowProducer.Blob.Type, Long> writeDelayMillis;
+
+        DelayedBlobStager(Map<HollowProducer.Blob.Type, Long> writeDelayMillis) {
+            this.writeDelayMillis = writeDelayMillis;
+        }
+
+        @Override
+        public HollowProducer.Blob openSnapshot(long version) {
+            return openBlob(HollowConstants.VERSION_NONE, version, HollowProducer.Blob.Type.SNAPSHOT);
+        }
+
+        @Override
+        public HollowProducer.Blob openDelta(long fromVersion, long toVersion) {
+            return openBlob(fromVersion, toVersion, HollowProducer.Blob.Type.DELTA);
+        }
+
+        @Override
+        public HollowProducer.Blob openReverseDelta(long fromVersion, long toVersion) {
+            return openBlob(fromVersion, toVersion, HollowProducer.Blob.Type.REVERSE_DELTA);
+        }
+
+        private HollowProducer.Blob openBlob(long fromVersion, long toVersion, HollowProducer.Blob.Type type) {
+            return new HollowInMemoryBlobStager.InMemoryBlob(fromVersion, toVersion, type) {
+                @Override
+                protected void write(HollowBlobWriter writer) throws IOException {
+                    super.write(writer);
+                    try {
+                        Thread.sleep(writeDelayMillis.get(type));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+        }
+    }
+
     static class Top {
         final int id;
 
@@ -4,6 +4,7 @@ import static org.mockito.Mockito.when;
 
 import com.netflix.hollow.api.producer.HollowProducer;
 import com.netflix.hollow.api.producer.Status;
+import com.netflix.hollow.api.producer.fs.HollowInMemoryBlobStager;
 import com.netflix.hollow.api.producer.listener.CycleListener;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import java.time.Duration;
@@ -93,6 +94,30 @@ public class AbstractProducerMetricsListenerTest {
         concreteProducerMetricsListener.onCycleComplete(TEST_STATUS_SUCCESS, mockReadState, TEST_VERSION, TEST_CYCLE_DURATION_MILLIS);
     }
 
+    @Test
+    public void testCycleCompleteWithStageDurations() {
+        final class TestProducerMetricsListener extends AbstractProducerMetricsListener {
+            @Override
+            public void cycleMetricsReporting(CycleMetrics cycleMetrics) {
+                Assert.assertEquals(OptionalLong.of(3l), cycleMetrics.getPopulateDurationMillis());
+                Assert.assertEquals(OptionalLong.of(7l), cycleMetrics.getPublishDurationMillis());
+                Assert.assertEquals(OptionalLong.empty(), cycleMetrics.getIntegrityCheckDurationMillis());
+                Assert.assertEquals(Long.valueOf(5l), cycleMetrics.getBlobStageDurationMillis().get(HollowProducer.Blob.Type.DELTA));
+                Assert.assertEquals(Long.valueOf(6l), cycleMetrics.getBlobStageDurationMillis().get(HollowProducer.Blob.Type.REVERSE_DELTA));
+                Assert.assertFalse(cycleMetrics.getBlobStageDurationMillis().containsKey(HollowProducer.Blob.Type.SNAPSHOT));
+            }
+        }
+
+        HollowInMemoryBlobStager blobStager = new HollowInMemoryBlobStager();
+        AbstractProducerMetricsListener concreteProducerMetricsListener = new TestProducerMetricsListener();
+        concreteProducerMetricsListener.onCycleStart(TEST_VERSION);
+        concreteProducerMetricsListener.onPopulateComplete(TEST_STATUS_SUCCESS, TEST_VERSION, Duration.ofMillis(3l));
+        concreteProducerMetricsListener.onBlobStage(TEST_STATUS_SUCCESS, blobStager.openDelta(TEST_VERSION - 1, TEST_VERSION), Duration.ofMillis(5l));
+        concreteProducerMetricsListener.onBlobStage(TEST_STATUS_SUCCESS, blobStager.openReverseDelta(TEST_VERSION, TEST_VERSION - 1), Duration.ofMillis(6l));
+        concreteProducerMetricsListener.onPublishComplete(TEST_STATUS_SUCCESS, TEST_VERSION, Duration.ofMillis(7l));
+        concreteProducerMetricsListener.onCycleComplete(TEST_STATUS_SUCCESS, mockReadState, TEST_VERSION, TEST_CYCLE_DURATION_MILLIS);
+    }
+
     @Test
     public void testCycleCompleteWithFail() {
         final class TestProducerMetricsListener extends AbstractProducerMetricsListener {
@@ -0,0 +1,279 @@
+package com.netflix.hollow.core.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.api.consumer.InMemoryBlobStore;
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.api.producer.HollowProducer;
+import com.netflix.hollow.api.producer.fs.HollowInMemoryBlobStager;
+import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.read.HollowBlobInput;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowBlockCompressionTest {
+
+    private static final String SCRATCH_DIR = System.getProperty("java.io.tmpdir");
+
+    private File scratchDir;
+
+    @Before
+    public void setUp() throws IOException {
+        scratchDir = Files.createTempDirectory(Paths.get(SCRATCH_DIR), "block-compression").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File files[] = scratchDir.listFiles();
+        if(files != null) {
+            for(File f : files)
+                f.delete();
+        }
+        scratchDir.delete();
+    }
+
+    @Test
+    public void streamsRoundTrip() throws IOException {
+        byte data[] = testData(100000);
+
+        for(int numThreads : new int[] { 1, 4 }) {
+            for(int blockSize : new int[] { 1000, 4096, 1 << 20 }) {
+                byte compressed[] = compress(data, new HollowBlockCompression(HollowBlockCodec.DEFLATE, blockSize, numThreads));
+                assertTrue(compressed.length < data.length);
+
+                ByteArrayOutputStream copy = new ByteArrayOutputStream();
+                try(InputStream is = new BlockCompressedInputStream(new ByteArrayInputStream(compressed), numThreads)) {
+                    copy.write(is.read());
+                    assertEquals(1500, is.skip(1500));
+                    byte buf[] = new byte[777];
+                    int n;
+                    while((n = is.read(buf, 0, buf.length)) != -1)
+                        copy.write(buf, 0, n);
+                }
+
+                byte result[] = copy.toByteArray();
+                assertEquals(data.length - 1500, result.length);
+                assertEquals(data[0], result[0]);
+                assertArrayEquals(Arrays.copyOfRange(data, 1501, data.length), Arrays.copyOfRange(result, 1, result.length));
+            }
+        }
+    }
+
+    @Test
+    public void incompressibleBlocksAreStored() throws IOException {
+        byte data[] = new byte[10000];
+        new Random(1).nextBytes(data);
+
+        byte compressed[] = compress(data, new HollowBlockCompression(HollowBlockCodec.DEFLATE, 1024, 2));
+        assertTrue(compressed.length > data.length);
+        assertArrayEquals(data, decompress(compressed));
+    }
+
+    @Test
+    public void onlyBlockCompressedStreamsAreDecompressed() throws IOException {
+        byte data[] = testData(5000);
+
+        assertArrayEquals(data, readFully(HollowBlockCompression.decompressing(new ByteArrayInputStream(data), 2)));
+        assertArrayEquals(data, readFully(HollowBlockCompression.decompressing(new ByteArrayInputStream(compress(data, new HollowBlockCompression())), 2)));
+        assertArrayEquals(new byte[] { 1, 2 }, readFully(HollowBlockCompression.decompressing(new ByteArrayInputStream(new byte[] { 1, 2 }), 2)));
+    }
+
+    @Test
+    public void filesAreDecompressedWithTheIndex() throws IOException {
+        for(int length : new int[] { 0, 4096, 100000 }) {
+            byte data[] = testData(length);
+            File compressed = new File(scratchDir, "compressed-" + length);
+            File decompressed = new File(scratchDir, "decompressed-" + length);
+            Files.write(compressed.toPath(), compress(data, new HollowBlockCompression(HollowBlockCodec.DEFLATE, 4096, 3)));
+
+            assertTrue(HollowBlockCompression.isBlockCompressed(compressed));
+            HollowBlockCompression.decompress(compressed, decompressed, 4);
+            assertArrayEquals(data, Files.readAllBytes(decompressed.toPath()));
+            assertFalse(HollowBlockCompression.isBlockCompressed(decompressed));
+        }
+    }
+
+    @Test
+    public void writerAndReaderRoundTripBlockCompressedBlobs() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+        writer.setBlockCompression(new HollowBlockCompression(HollowBlockCodec.DEFLATE, 4096, 4));
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readEngine);
+
+        for(int i=0;i<5000;i++)
+            mapper.add(new Movie(i));
+        writeEngine.prepareForWrite();
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        writer.writeSnapshot(snapshot);
+        writeEngine.prepareForNextCycle();
+        reader.readSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+
+        for(int i=2500;i<7500;i++)
+            mapper.add(new Movie(i));
+        writeEngine.prepareForWrite();
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        writer.writeDelta(delta);
+        writeEngine.prepareForNextCycle();
+        reader.applyDelta(new ByteArrayInputStream(delta.toByteArray()));
+
+        assertMovies(readEngine, 2500, 7500);
+    }
+
+    @Test
+    public void compressedSnapshotFileIsReadConcurrentlyInSharedMemory() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(4096);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        for(int i=0;i<5000;i++)
+            mapper.add(new Movie(i));
+
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+        writer.setBlockCompression(new HollowBlockCompression(HollowBlockCodec.DEFLATE, 8192, 4));
+        File snapshotFile = new File(scratchDir, "snapshot");
+        try(OutputStream os = new FileOutputStream(snapshotFile)) {
+            writer.writeSnapshot(os);
+        }
+
+        HollowReadStateEngine expected = new HollowReadStateEngine();
+        new HollowBlobReader(expected).readSnapshot(Files.newInputStream(snapshotFile.toPath()));
+
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readEngine, MemoryMode.SHARED_MEMORY_LAZY);
+        reader.setSnapshotLoadThreads(4);
+        try(HollowBlobInput in = HollowBlobInput.randomAccessBlob(snapshotFile, MemoryMode.SHARED_MEMORY_LAZY)) {
+            reader.readSnapshot(in);
+        }
+
+        assertEquals(HollowChecksum.forStateEngine(expected), HollowChecksum.forStateEngine(readEngine));
+        assertMovies(readEngine, 0, 5000);
+        /// the decompressed file is deleted once the input is closed
+        assertEquals(1, scratchDir.listFiles().length);
+    }
+
+    @Test
+    public void producerPublishesBlockCompressedBlobsToConsumer() throws IOException {
+        InMemoryBlobStore blobStore = new InMemoryBlobStore();
+        HollowProducer producer = HollowProducer.withPublisher(blobStore)
+                .withBlobStager(new HollowInMemoryBlobStager())
+                .withBlockCompression(new HollowBlockCompression(HollowBlockCodec.DEFLATE, 4096, 4))
+                .build();
+
+        producer.runCycle(state -> {
+            for(int i=0;i<5000;i++)
+                state.add(new Movie(i));
+        });
+        long version = producer.runCycle(state -> {
+            for(int i=1000;i<6000;i++)
+                state.add(new Movie(i));
+        });
+
+        try(DataInputStream snapshot = new DataInputStream(blobStore.retrieveSnapshotBlob(version).getInputStream())) {
+            assertEquals(HollowBlockCompression.MAGIC, snapshot.readInt());
+        }
+
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(blobStore).build();
+        consumer.triggerRefreshTo(version - 1);
+        consumer.triggerRefreshTo(version);
+
+        assertEquals(version, consumer.getCurrentVersionId());
+        assertMovies(consumer.getStateEngine(), 1000, 6000);
+    }
+
+    private static void assertMovies(HollowReadStateEngine readEngine, int fromId, int toId) {
+        assertEquals(toId - fromId, readEngine.getTypeState("Movie").getPopulatedOrdinals().cardinality());
+
+        int ordinal = readEngine.getTypeState("Movie").getPopulatedOrdinals().nextSetBit(0);
+        while(ordinal != -1) {
+            GenericHollowObject movie = new GenericHollowObject(readEngine, "Movie", ordinal);
+            int id = movie.getInt("id");
+            assertTrue(id >= fromId && id < toId);
+            assertEquals("title" + id, movie.getObject("title").getString("value"));
+            ordinal = readEngine.getTypeState("Movie").getPopulatedOrdinals().nextSetBit(ordinal + 1);
+        }
+    }
+
+    private static byte[] testData(int length) {
+        byte data[] = new byte[length];
+        Random rand = new Random(length);
+        for(int i=0;i<length;i++)
+            data[i] = (byte)(i % 100 < 50 ? i % 7 : rand.nextInt());
+        return data;
+    }
+
+    private static byte[] compress(byte data[], HollowBlockCompression compression) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try(BlockCompressedOutputStream os = new BlockCompressedOutputStream(compressed, compression)) {
+            /// write in uneven pieces, and flush part way through a block
+            int off = 0;
+            while(off < data.length) {
+                int len = Math.min(data.length - off, 333);
+                os.write(data, off, len);
+                off += len;
+                if(off % 999 == 0)
+                    os.flush();
+            }
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] decompress(byte compressed[]) throws IOException {
+        return readFully(new BlockCompressedInputStream(new ByteArrayInputStream(compressed), 2));
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        try(InputStream in = is) {
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            byte buf[] = new byte[1024];
+            int n;
+            while((n = in.read(buf)) != -1)
+                copy.write(buf, 0, n);
+            return copy.toByteArray();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        String title;
+        List<Integer> tags;
+        Set<String> languages;
+        Map<String, Integer> ratings;
+
+        Movie(int id) {
+            this.id = id;
+            this.title = "title" + id;
+            this.tags = Arrays.asList(id, id + 1);
+            this.languages = Collections.singleton("lang" + (id % 10));
+            this.ratings = Collections.singletonMap("country" + (id % 5), id);
+        }
+    }
+}
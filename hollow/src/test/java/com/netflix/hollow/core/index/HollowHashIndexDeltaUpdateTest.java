@@ -0,0 +1,167 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.index;
+
+import com.netflix.hollow.core.AbstractStateEngineTest;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HollowHashIndexDeltaUpdateTest extends AbstractStateEngineTest {
+    private HollowObjectMapper mapper;
+
+    @Override
+    protected void initializeTypeStates() {
+        mapper = new HollowObjectMapper(writeStateEngine);
+        mapper.initializeTypeState(Movie.class);
+    }
+
+    @Test
+    public void deltaUpdatedIndexesMatchRebuiltIndexes() throws IOException {
+        Random rand = new Random(1000);
+        Map<Integer, Movie> movies = new HashMap<>();
+        int nextId = 0;
+        for(;nextId<2000;nextId++)
+            movies.put(nextId, randomMovie(nextId, 20, rand));
+
+        movies.values().forEach(mapper::add);
+        roundTripSnapshot();
+
+        List<HollowHashIndex> indexes = new ArrayList<>();
+        indexes.add(new HollowHashIndex(readStateEngine, "Movie", "", "country.value"));
+        indexes.add(new HollowHashIndex(readStateEngine, "Movie", "", "tags.element.value"));
+        indexes.add(new HollowHashIndex(readStateEngine, "Movie", "", "country.value", "year"));
+        indexes.add(new HollowHashIndex(readStateEngine, "Movie", "tags.element", "country.value"));
+        indexes.forEach(HollowHashIndex::listenForDeltaUpdates);
+
+        for(int cycle=0;cycle<20;cycle++) {
+            int numCountries = 20 + cycle;
+            List<Integer> ids = new ArrayList<>(movies.keySet());
+            for(Integer id : ids) {
+                int r = rand.nextInt(100);
+                if(r < 3)
+                    movies.remove(id);
+                else if(r < 8)
+                    movies.put(id, randomMovie(id, numCountries, rand));
+            }
+
+            /// every few cycles remove all records for a country, and add enough records to grow the tables
+            if(cycle % 4 == 1) {
+                String removedCountry = "c" + (cycle % 20);
+                movies.values().removeIf(m -> m.country.equals(removedCountry));
+            }
+            int numAdded = cycle % 5 == 4 ? 1500 : 50;
+            for(int i=0;i<numAdded;i++, nextId++)
+                movies.put(nextId, randomMovie(nextId, numCountries, rand));
+
+            movies.values().forEach(mapper::add);
+            roundTripDelta();
+
+            for(HollowHashIndex index : indexes)
+                assertSameAsRebuiltIndex(index, numCountries);
+        }
+    }
+
+    @Test
+    public void deltaUpdatedIndexRemovesEmptyMatches() throws IOException {
+        mapper.add(new Movie(1, "c1", 2000, "t1"));
+        mapper.add(new Movie(2, "c2", 2000, "t1"));
+        mapper.add(new Movie(3, "c2", 2001, "t2"));
+        roundTripSnapshot();
+
+        HollowHashIndex index = new HollowHashIndex(readStateEngine, "Movie", "", "country.value");
+        index.listenForDeltaUpdates();
+
+        mapper.add(new Movie(2, "c2", 2000, "t1"));
+        mapper.add(new Movie(4, "c3", 2002, "t3"));
+        roundTripDelta();
+
+        Assert.assertNull(index.findMatches("c1"));
+        Assert.assertEquals(1, index.findMatches("c2").numResults());
+        Assert.assertEquals(1, index.findMatches("c3").numResults());
+
+        mapper.add(new Movie(1, "c1", 2000, "t1"));
+        roundTripDelta();
+
+        Assert.assertEquals(1, index.findMatches("c1").numResults());
+        Assert.assertNull(index.findMatches("c2"));
+        Assert.assertNull(index.findMatches("c3"));
+    }
+
+    private void assertSameAsRebuiltIndex(HollowHashIndex index, int numCountries) {
+        HollowHashIndex rebuilt = new HollowHashIndex(readStateEngine, index.getType(), index.getSelectField(), index.getMatchFields());
+
+        List<Object[]> queries = new ArrayList<>();
+        if(index.getMatchFields().length == 2) {
+            for(int i=0;i<numCountries;i++)
+                for(int year=2000;year<2005;year++)
+                    queries.add(new Object[] { "c" + i, year });
+        } else if(index.getMatchFields()[0].startsWith("tags")) {
+            for(int i=0;i<50;i++)
+                queries.add(new Object[] { "t" + i });
+        } else {
+            for(int i=0;i<numCountries;i++)
+                queries.add(new Object[] { "c" + i });
+        }
+
+        for(Object[] query : queries) {
+            Assert.assertArrayEquals(matches(rebuilt, query), matches(index, query));
+        }
+    }
+
+    private static int[] matches(HollowHashIndex index, Object... query) {
+        HollowHashIndexResult result = index.findMatches(query);
+        if(result == null)
+            return new int[0];
+        int[] matches = result.stream().sorted().toArray();
+        Assert.assertEquals(matches.length, result.numResults());
+        for(int match : matches)
+            Assert.assertTrue(result.contains(match));
+        return matches;
+    }
+
+    private static Movie randomMovie(int id, int numCountries, Random rand) {
+        String[] tags = IntStream.range(0, rand.nextInt(4))
+                .mapToObj(i -> "t" + rand.nextInt(50))
+                .toArray(String[]::new);
+        return new Movie(id, "c" + rand.nextInt(numCountries), 2000 + rand.nextInt(5), tags);
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        String country;
+        int year;
+        List<String> tags;
+
+        Movie(int id, String country, int year, String... tags) {
+            this.id = id;
+            this.country = country;
+            this.year = year;
+            this.tags = new ArrayList<>();
+            for(String tag : tags)
+                this.tags.add(tag);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.stream.IntStream;
 import org.junit.Assert;
@@ -154,6 +155,73 @@ public class HollowPrefixIndexTest {
 
     }
 
+    @Test
+    public void testDeltaChangesMatchRebuiltIndex() throws Exception {
+        Random random = new Random(100);
+        Map<Integer, SimpleMovie> movies = new HashMap<>();
+        for (int id = 0; id < 500; id++) {
+            movies.put(id, new SimpleMovie(id, randomName(random), 2000));
+        }
+        movies.values().forEach(objectMapper::add);
+        StateEngineRoundTripper.roundTripSnapshot(writeStateEngine, readStateEngine);
+
+        HollowPrefixIndex prefixIndex = new HollowPrefixIndex(readStateEngine, "SimpleMovie", "name");
+        HollowPrefixIndex tokenizedPrefixIndex = new HollowTokenizedPrefixIndex(readStateEngine, "SimpleMovie", "name.value");
+        prefixIndex.listenForDeltaUpdates();
+        tokenizedPrefixIndex.listenForDeltaUpdates();
+
+        int nextId = 500;
+        for (int cycle = 0; cycle < 15; cycle++) {
+            for (int id : new ArrayList<>(movies.keySet())) {
+                int r = random.nextInt(100);
+                if (r < 10)
+                    movies.remove(id);
+                else if (r < 15)
+                    movies.get(id).updateName(randomName(random));
+            }
+            // every few cycles, remove most movies so that the index is compacted, then add many more
+            if (cycle % 5 == 2)
+                movies.keySet().removeIf(id -> id % 4 != 0);
+            int numAdded = cycle % 5 == 3 ? 1000 : 40;
+            for (int i = 0; i < numAdded; i++, nextId++) {
+                movies.put(nextId, new SimpleMovie(nextId, randomName(random), 2000));
+            }
+
+            movies.values().forEach(objectMapper::add);
+            StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+
+            assertSameAsRebuiltIndex(prefixIndex, new HollowPrefixIndex(readStateEngine, "SimpleMovie", "name"));
+            assertSameAsRebuiltIndex(tokenizedPrefixIndex, new HollowTokenizedPrefixIndex(readStateEngine, "SimpleMovie", "name.value"));
+        }
+    }
+
+    private void assertSameAsRebuiltIndex(HollowPrefixIndex index, HollowPrefixIndex rebuiltIndex) {
+        List<String> prefixes = new ArrayList<>();
+        for (char c1 = 'a'; c1 <= 'e'; c1++) {
+            prefixes.add("" + c1);
+            for (char c2 = 'a'; c2 <= 'e'; c2++) {
+                prefixes.add("" + c1 + c2);
+                prefixes.add("" + c1 + c2 + "a");
+                prefixes.add("" + c1 + " " + c2);
+            }
+        }
+        for (String prefix : prefixes) {
+            Assert.assertEquals(prefix, toSet(rebuiltIndex.findKeysWithPrefix(prefix)), toSet(index.findKeysWithPrefix(prefix)));
+            Assert.assertEquals(prefix, rebuiltIndex.contains(prefix), index.contains(prefix));
+        }
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && random.nextInt(4) == 0)
+                name.append(' ');
+            name.append((char) ('a' + random.nextInt(5)));
+        }
+        return name.toString();
+    }
+
     @Test
     public void testListReference() throws Exception {
         MovieListReference movieListReference = new MovieListReference(1, 1999, "The Matrix", Arrays.asList("Keanu Reeves", "Laurence Fishburne", "Carrie-Anne Moss"));
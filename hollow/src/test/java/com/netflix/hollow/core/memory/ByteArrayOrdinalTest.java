@@ -16,6 +16,15 @@
  */
 package com.netflix.hollow.core.memory;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -60,6 +69,137 @@ public class ByteArrayOrdinalTest {
         Assert.assertArrayEquals(ordinals, newOrdinals);
     }
 
+    @Test
+    public void testConcurrentAssignment() throws Exception {
+        ByteArrayOrdinalMap m = new ByteArrayOrdinalMap();
+        m.setConcurrentAssignment(true);
+
+        int numRecords = 50000;
+        int[][] ordinals = addConcurrently(m, numRecords, 8);
+
+        /// every thread is given the same ordinal for each sequence of bytes.  An ordinal taken by a thread which
+        /// loses a race to add the same bytes is returned to the pool, and is unassigned if no bytes are added after it
+        BitSet assigned = new BitSet();
+        for (int i = 0; i < numRecords; i++) {
+            for (int[] threadOrdinals : ordinals) {
+                Assert.assertEquals(ordinals[0][i], threadOrdinals[i]);
+            }
+            Assert.assertFalse(assigned.get(ordinals[0][i]));
+            assigned.set(ordinals[0][i]);
+            Assert.assertEquals(ordinals[0][i], m.get(createBuffer("TEST" + i)));
+        }
+        Assert.assertTrue(m.maxOrdinal() < numRecords + ordinals.length);
+
+        m.prepareForWrite();
+        for (int i = 0; i < numRecords; i++) {
+            long pointer = m.getPointerForData(ordinals[0][i]);
+            byte[] expected = ("TEST" + i).getBytes();
+            for (int j = 0; j < expected.length; j++) {
+                Assert.assertEquals(expected[j], m.getByteData().get(pointer + j));
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentAssignmentAfterCompaction() throws Exception {
+        ByteArrayOrdinalMap m = new ByteArrayOrdinalMap();
+        m.setConcurrentAssignment(true);
+
+        int numRecords = 5000;
+        int[][] ordinals = addConcurrently(m, numRecords, 4);
+        m.prepareForWrite();
+
+        ThreadSafeBitSet used = new ThreadSafeBitSet();
+        long usedDataSize = 0;
+        for (int i = 0; i < numRecords; i += 2) {
+            used.set(ordinals[0][i]);
+            usedDataSize += 1 + ("TEST" + i).length();
+        }
+        /// the unused parts of the regions reserved by each thread are reclaimed
+        m.compact(used);
+        Assert.assertEquals(usedDataSize, m.getDataSize());
+
+        /// byte sequences which were retained keep their ordinals, the others are assigned the released ordinals
+        int[][] newOrdinals = addConcurrently(m, numRecords, 4);
+        BitSet assigned = new BitSet();
+        for (int i = 0; i < numRecords; i++) {
+            if (i % 2 == 0) {
+                Assert.assertEquals(ordinals[0][i], newOrdinals[0][i]);
+            }
+            Assert.assertEquals(newOrdinals[0][i], m.get(createBuffer("TEST" + i)));
+            assigned.set(newOrdinals[0][i]);
+        }
+        Assert.assertEquals(numRecords, assigned.cardinality());
+        Assert.assertTrue(assigned.length() <= numRecords + 2 * 4);
+    }
+
+    @Test
+    public void testConcurrentAssignmentOfPreferredOrdinals() throws Exception {
+        ByteArrayOrdinalMap m = new ByteArrayOrdinalMap();
+        m.setConcurrentAssignment(true);
+
+        int numRecords = 2000;
+        BitSet previous = new BitSet();
+        previous.set(0, numRecords * 2);
+        m.reservePreviouslyPopulatedOrdinals(previous);
+
+        int numThreads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < numRecords; i++) {
+                        Assert.assertEquals(numRecords * 2 - 1 - i, m.getOrAssignOrdinal(createBuffer("TEST" + i), numRecords * 2 - 1 - i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(numRecords, m.getUnusedPreviousOrdinals().cardinality());
+        Assert.assertEquals(numRecords * 2, m.getOrAssignOrdinal(createBuffer("NEW")));
+    }
+
+    /**
+     * Adds the same byte sequences from each of several threads, each in a different order.
+     */
+    private static int[][] addConcurrently(ByteArrayOrdinalMap m, int numRecords, int numThreads) throws Exception {
+        int[][] ordinals = new int[numThreads][numRecords];
+        CyclicBarrier start = new CyclicBarrier(numThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    List<Integer> order = new ArrayList<>();
+                    for (int i = 0; i < numRecords; i++) {
+                        order.add(i);
+                    }
+                    Collections.shuffle(order, new Random(thread));
+
+                    start.await();
+                    for (int i : order) {
+                        ordinals[thread][i] = m.getOrAssignOrdinal(createBuffer("TEST" + i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return ordinals;
+    }
+
     static ByteDataArray createBuffer(String s) {
         return write(new ByteDataArray(), s);
     }
@@ -303,6 +303,33 @@ public class FixedLengthElementArrayTest {
         arr.copyBits(arr, 256, 10, 0);
     }
 
+    @Test
+    public void testGetElementValues() {
+        Random rand = new Random();
+        int numElements = 500;
+
+        for(int bitsPerElement : new int[] { 1, 3, 7, 29, 58, 63, 64 }) {
+            for(int bitsBetweenElements : new int[] { bitsPerElement, bitsPerElement + 5, bitsPerElement * 3 + 11 }) {
+                FixedLengthElementArray arr = new FixedLengthElementArray(new WastefulRecycler(2, 2), (long)bitsBetweenElements * numElements + 64);
+                long mask = bitsPerElement == 64 ? -1 : ((1L << bitsPerElement) - 1);
+                int startBit = rand.nextInt(64);
+
+                for(int i=0;i<numElements;i++) {
+                    long index = startBit + (long)i * bitsBetweenElements;
+                    arr.setElementValue(index, bitsPerElement, rand.nextLong() & mask);
+                }
+
+                long values[] = new long[numElements + 2];
+                arr.getElementValues(startBit, bitsPerElement, bitsBetweenElements, values, 2, numElements);
+
+                for(int i=0;i<numElements;i++) {
+                    long index = startBit + (long)i * bitsBetweenElements;
+                    Assert.assertEquals(arr.getLargeElementValue(index, bitsPerElement), values[i + 2]);
+                }
+            }
+        }
+    }
+
     @Test
     public void convenienceMethodForNumberOfBitsRequiredForValue() {
         Assert.assertEquals(1, FixedLengthData.bitsRequiredToRepresentValue(0));
@@ -17,6 +17,7 @@
 package com.netflix.hollow.core.memory.encoding;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import com.netflix.hollow.core.memory.pool.WastefulRecycler;
 import java.util.List;
@@ -77,4 +78,42 @@ public class FixedLengthMultipleOccurrenceElementArrayTest {
                     array.getElements(nodeIndex));
         });
     }
+
+    @Test
+    public void testRemove_removesAllInstancesAndKeepsRemaining() {
+        LongStream.of(3, 1, 3, 2, 0, 3).forEach(v -> array.addElement(0, v));
+        array.addElement(1, 3);
+
+        array.removeElement(0, 3);
+        assertEquals(LongStream.of(0, 1, 2).boxed().collect(Collectors.toList()), array.getElements(0));
+
+        array.removeElement(0, 0);
+        array.removeElement(0, 7);
+        assertEquals(LongStream.of(1, 2).boxed().collect(Collectors.toList()), array.getElements(0));
+
+        array.removeElement(0, 1);
+        array.removeElement(0, 2);
+        assertTrue(array.getElements(0).isEmpty());
+        assertEquals(LongStream.of(3).boxed().collect(Collectors.toList()), array.getElements(1));
+
+        array.addElement(0, 4);
+        assertEquals(LongStream.of(4).boxed().collect(Collectors.toList()), array.getElements(0));
+    }
+
+    @Test
+    public void testCopy_isIndependentOfOriginal() {
+        List<Long> elements = LongStream.range(0, 10).boxed().collect(Collectors.toList());
+        elements.forEach(v -> array.addElement(5, v));
+
+        FixedLengthMultipleOccurrenceElementArray copy = array.copy();
+        assertEquals(elements, copy.getElements(5));
+
+        copy.removeElement(5, 0);
+        copy.removeElement(5, 4);
+        copy.addElement(6, 1);
+        assertEquals(elements, array.getElements(5));
+        assertTrue(array.getElements(6).isEmpty());
+        assertEquals(LongStream.of(1, 2, 3, 5, 6, 7, 8, 9).boxed().collect(Collectors.toList()), copy.getElements(5));
+        assertEquals(LongStream.of(1).boxed().collect(Collectors.toList()), copy.getElements(6));
+    }
 }
@@ -0,0 +1,165 @@
+package com.netflix.hollow.core.memory.encoding;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.netflix.hollow.core.memory.OffHeapByteArray;
+import com.netflix.hollow.core.memory.SegmentedByteArray;
+import com.netflix.hollow.core.memory.pool.OffHeapRecycler;
+import com.netflix.hollow.core.memory.pool.SynchronizedRecycler;
+import com.netflix.hollow.core.memory.pool.WastefulRecycler;
+import com.netflix.hollow.core.read.HollowBlobInput;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+
+public class OffHeapElementArrayTest {
+
+    @Test
+    public void readsElementsAcrossSlabs() throws IOException {
+        int numLongs = 37;
+        FixedLengthElementArray heapArray = new FixedLengthElementArray(WastefulRecycler.SMALL_ARRAY_RECYCLER, numLongs * 64);
+        Random rand = new Random(13);
+        for(int i=0;i<numLongs;i++)
+            heapArray.set(i, rand.nextLong());
+
+        /// slabs of 2 and of 16 longs, so that unaligned reads cross the ends of slabs
+        for(int log2OfSlabSize : new int[] { 4, 7 }) {
+            OffHeapRecycler recycler = new OffHeapRecycler(log2OfSlabSize, 16);
+            assertSameElements(heapArray, OffHeapElementArray.copyOf(heapArray, numLongs * 64, recycler), numLongs);
+            assertSameElements(heapArray, OffHeapElementArray.newFrom(serialized(heapArray, numLongs), recycler), numLongs);
+        }
+    }
+
+    @Test
+    public void recyclesFullSlabsAfterSwap() {
+        OffHeapRecycler recycler = new OffHeapRecycler(4, 2);
+        FixedLengthElementArray heapArray = new FixedLengthElementArray(WastefulRecycler.SMALL_ARRAY_RECYCLER, 7 * 64);
+
+        /// 3 full slabs of 2 longs, and a remainder of 1 long which is not pooled
+        OffHeapElementArray arr = OffHeapElementArray.copyOf(heapArray, 7 * 64, recycler);
+        arr.destroy();
+        assertEquals(3, recycler.numPooledSlabs());
+
+        recycler.swap();
+        assertEquals(2, recycler.numPooledSlabs());
+
+        OffHeapElementArray.copyOf(heapArray, 4 * 64, recycler);
+        assertEquals(0, recycler.numPooledSlabs());
+    }
+
+    @Test
+    public void copiesBytesAcrossSlabs() throws IOException {
+        byte[] data = new byte[1000];
+        new Random(17).nextBytes(data);
+
+        SegmentedByteArray heapArray = new SegmentedByteArray(WastefulRecycler.SMALL_ARRAY_RECYCLER);
+        heapArray.loadFrom(HollowBlobInput.serial(data), data.length);
+
+        OffHeapRecycler recycler = new OffHeapRecycler(6, 16);
+        OffHeapByteArray copy = OffHeapByteArray.copyOf(heapArray, data.length, recycler);
+        OffHeapByteArray loaded = new OffHeapByteArray(recycler);
+        loaded.loadFrom(HollowBlobInput.serial(data), data.length);
+
+        for(int i=0;i<data.length;i++) {
+            assertEquals(data[i], copy.get(i));
+            assertEquals(data[i], loaded.get(i));
+        }
+
+        byte[] range = new byte[300];
+        loaded.copy(50, range, 0, range.length);
+        byte[] expected = new byte[300];
+        System.arraycopy(data, 50, expected, 0, expected.length);
+        assertArrayEquals(expected, range);
+    }
+
+    @Test
+    public void writesElementsAcrossSlabs() {
+        int numLongs = 37;
+        Random rand = new Random(19);
+
+        /// slabs of 2 longs, so that most writes cross the end of a slab, and reused slabs which must be cleared
+        OffHeapRecycler recycler = new OffHeapRecycler(4, 32);
+        OffHeapElementArray.copyOf(randomArray(numLongs, rand), numLongs * 64, recycler).destroy();
+        recycler.swap();
+
+        FixedLengthElementArray heapArray = new FixedLengthElementArray(WastefulRecycler.SMALL_ARRAY_RECYCLER, numLongs * 64);
+        OffHeapElementArray arr = OffHeapElementArray.allocate(numLongs * 64, recycler);
+        assertSameElements(heapArray, arr, numLongs);
+
+        for(int i=0;i<500;i++) {
+            int bits = 1 + rand.nextInt(58);
+            long index = rand.nextInt((numLongs - 1) * 64);
+            long value = rand.nextLong() & ((1L << bits) - 1);
+            heapArray.clearElementValue(index, bits);
+            heapArray.setElementValue(index, bits, value);
+            arr.clearElementValue(index, bits);
+            arr.setElementValue(index, bits, value);
+        }
+        assertSameElements(heapArray, arr, numLongs);
+
+        heapArray.incrementMany(3, 5, 61, 30);
+        arr.incrementMany(3, 5, 61, 30);
+        heapArray.incrementMany(3, -2, 61, 30);
+        arr.incrementMany(3, -2, 61, 30);
+        assertSameElements(heapArray, arr, numLongs);
+
+        FixedLengthElementArray source = randomArray(numLongs, rand);
+        heapArray.copyBits(source, 17, 301, 1000);
+        arr.copyBits(source, 17, 301, 1000);
+        assertSameElements(heapArray, arr, numLongs);
+    }
+
+    @Test
+    public void copiesBytesIntoSlabs() throws IOException {
+        byte[] data = new byte[1000];
+        new Random(23).nextBytes(data);
+
+        SegmentedByteArray heapArray = new SegmentedByteArray(WastefulRecycler.SMALL_ARRAY_RECYCLER);
+        heapArray.loadFrom(HollowBlobInput.serial(data), data.length);
+
+        OffHeapRecycler recycler = new OffHeapRecycler(6, 16);
+        OffHeapByteArray copy = new OffHeapByteArray(recycler, data.length);
+        copy.copy(heapArray, 0, 0, 600);
+        copy.orderedCopy(OffHeapByteArray.copyOf(heapArray, data.length, recycler), 600, 600, 400);
+
+        for(int i=0;i<data.length;i++)
+            assertEquals(data[i], copy.get(i));
+    }
+
+    @Test
+    public void poolsSlabsOfASynchronizedRecycler() {
+        OffHeapRecycler recycler = new OffHeapRecycler(4, 2);
+        assertSame(recycler, OffHeapRecycler.of(new SynchronizedRecycler(recycler)));
+        assertSame(OffHeapRecycler.UNPOOLED, OffHeapRecycler.of(new SynchronizedRecycler(WastefulRecycler.DEFAULT_INSTANCE)));
+    }
+
+    private static FixedLengthElementArray randomArray(int numLongs, Random rand) {
+        FixedLengthElementArray arr = new FixedLengthElementArray(WastefulRecycler.SMALL_ARRAY_RECYCLER, numLongs * 64);
+        for(int i=0;i<numLongs;i++)
+            arr.set(i, rand.nextLong());
+        return arr;
+    }
+
+    private static void assertSameElements(FixedLengthElementArray expected, OffHeapElementArray actual, int numLongs) {
+        assertEquals(numLongs, actual.numLongs());
+        for(int i=0;i<(numLongs - 1) * 64;i++) {
+            for(int bits=1;bits<=58;bits++)
+                assertEquals(expected.getElementValue(i, bits), actual.getElementValue(i, bits));
+            for(int bits=1;bits<=64;bits++)
+                assertEquals(expected.getLargeElementValue(i, bits), actual.getLargeElementValue(i, bits));
+        }
+    }
+
+    private static HollowBlobInput serialized(FixedLengthElementArray arr, int numLongs) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream os = new DataOutputStream(bytes);
+        VarInt.writeVLong(os, numLongs);
+        for(int i=0;i<numLongs;i++)
+            os.writeLong(arr.get(i));
+        return HollowBlobInput.serial(bytes.toByteArray());
+    }
+}
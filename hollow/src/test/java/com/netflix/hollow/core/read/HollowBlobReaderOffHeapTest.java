@@ -0,0 +1,159 @@
+package com.netflix.hollow.core.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.memory.pool.OffHeapRecycler;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.filter.TypeFilter;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowInline;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class HollowBlobReaderOffHeapTest {
+
+    /// small slabs, so that the data of each type spans many slabs
+    private final OffHeapRecycler recycler = new OffHeapRecycler(6, 1024);
+
+    @Test
+    public void appliesDeltas() throws IOException {
+        assertDeltasApply(new HollowWriteStateEngine(), TypeFilter.newTypeFilter().build());
+        assertTrue(recycler.numPooledSlabs() > 0);
+    }
+
+    @Test
+    public void appliesDeltasToShards() throws IOException {
+        HollowWriteStateEngine writeStateEngine = new HollowWriteStateEngine();
+        writeStateEngine.setTargetMaxTypeShardSize(1024);
+        HollowReadStateEngine readStateEngine = assertDeltasApply(writeStateEngine, TypeFilter.newTypeFilter().build());
+        assertTrue(readStateEngine.getTypeState("Movie").numShards() > 1);
+    }
+
+    @Test
+    public void appliesDeltasToFilteredState() throws IOException {
+        TypeFilter filter = TypeFilter.newTypeFilter()
+                .excludeAll()
+                .include("Movie", "id")
+                .include("Movie", "title")
+                .includeRecursive("Movie", "languages")
+                .build();
+        HollowReadStateEngine readStateEngine = assertDeltasApply(new HollowWriteStateEngine(), filter);
+        assertEquals(null, readStateEngine.getTypeState("MapOfStringToInteger"));
+        assertEquals(-1, ((HollowObjectSchema) readStateEngine.getTypeState("Movie").getSchema()).getPosition("poster"));
+    }
+
+    private HollowReadStateEngine assertDeltasApply(HollowWriteStateEngine writeStateEngine, TypeFilter filter) throws IOException {
+        HollowObjectMapper mapper = new HollowObjectMapper(writeStateEngine);
+        Random rand = new Random(42);
+
+        List<byte[]> snapshots = new ArrayList<>();
+        List<byte[]> deltas = new ArrayList<>();
+        for(int cycle=0;cycle<6;cycle++) {
+            addMovies(mapper, rand, cycle);
+            writeStateEngine.prepareForWrite();
+            snapshots.add(writeBlob(writeStateEngine, true));
+            if(cycle > 0)
+                deltas.add(writeBlob(writeStateEngine, false));
+            writeStateEngine.prepareForNextCycle();
+        }
+
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine(recycler);
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine, MemoryMode.OFF_HEAP);
+        reader.readSnapshot(HollowBlobInput.serial(snapshots.get(0)), filter);
+
+        for(int i=0;i<deltas.size();i++) {
+            reader.applyDelta(HollowBlobInput.serial(deltas.get(i)));
+
+            HollowReadStateEngine expected = readSnapshot(snapshots.get(i + 1), filter);
+            assertSameState(expected, readStateEngine);
+
+            int ordinal = expected.getTypeState("Movie").getPopulatedOrdinals().nextSetBit(0);
+            GenericHollowObject expectedMovie = new GenericHollowObject(expected, "Movie", ordinal);
+            GenericHollowObject movie = new GenericHollowObject(readStateEngine, "Movie", ordinal);
+            assertEquals(expectedMovie.getString("title"), movie.getString("title"));
+        }
+
+        return readStateEngine;
+    }
+
+    private static byte[] writeBlob(HollowWriteStateEngine writeStateEngine, boolean snapshot) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        HollowBlobWriter writer = new HollowBlobWriter(writeStateEngine);
+        if(snapshot)
+            writer.writeSnapshot(os);
+        else
+            writer.writeDelta(os);
+        return os.toByteArray();
+    }
+
+    private static HollowReadStateEngine readSnapshot(byte[] snapshot, TypeFilter filter) throws IOException {
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        new HollowBlobReader(readStateEngine).readSnapshot(HollowBlobInput.serial(new ByteArrayInputStream(snapshot)), filter);
+        return readStateEngine;
+    }
+
+    private static void assertSameState(HollowReadStateEngine expected, HollowReadStateEngine actual) {
+        for(String type : expected.getAllTypes())
+            assertEquals(type, expected.getTypeState(type).getPopulatedOrdinals(), actual.getTypeState(type).getPopulatedOrdinals());
+        assertEquals(HollowChecksum.forStateEngineWithCommonSchemas(expected, actual),
+                HollowChecksum.forStateEngineWithCommonSchemas(actual, expected));
+    }
+
+    /**
+     * Adds movies which are partly carried over from the previous cycle, with ranges of values which grow over the
+     * cycles so that field widths change between deltas.
+     */
+    private static void addMovies(HollowObjectMapper mapper, Random rand, int cycle) {
+        for(int i=0;i<200;i++) {
+            int id = rand.nextInt(4) == 0 ? rand.nextInt(200 << cycle) : i;
+            int seed = rand.nextInt(3) == 0 ? rand.nextInt(1 << (cycle + 6)) : i;
+            mapper.add(new Movie(id, seed, cycle));
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        long budget;
+        @HollowInline
+        String title;
+        byte[] poster;
+        List<Integer> tags;
+        Set<String> languages;
+        Map<String, Integer> ratings;
+
+        Movie(int id, int seed, int cycle) {
+            Random rand = new Random(seed);
+            this.id = id;
+            this.budget = (long) rand.nextInt(1 << (cycle + 8)) << cycle;
+            this.title = rand.nextInt(5) == 0 ? null : "title" + seed + "-" + cycle % 2;
+            this.poster = rand.nextInt(3) == 0 ? null : new byte[rand.nextInt(4 + cycle)];
+            this.tags = new ArrayList<>();
+            for(int i=rand.nextInt(2 + cycle);i>0;i--)
+                tags.add(rand.nextInt(1 << (cycle + 3)));
+            this.languages = new HashSet<>();
+            for(int i=rand.nextInt(2 + cycle);i>0;i--)
+                languages.add("lang" + rand.nextInt(10 + cycle * 5));
+            this.ratings = new HashMap<>();
+            for(int i=rand.nextInt(2 + cycle);i>0;i--)
+                ratings.put("country" + rand.nextInt(10 + cycle * 5), rand.nextInt(1 << (cycle + 2)));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.netflix.hollow.core.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowBlobReaderParallelDeltaTest {
+
+    private byte[] snapshot;
+    private byte[] delta;
+    private byte[] reverseDelta;
+    private HollowReadStateEngine expected;
+
+    @Before
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeStateEngine = new HollowWriteStateEngine();
+        writeStateEngine.setTargetMaxTypeShardSize(4096);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeStateEngine);
+
+        for(int i=0;i<5000;i++)
+            mapper.add(new Movie(i, 0));
+        writeStateEngine.prepareForWrite();
+        snapshot = write(writeStateEngine, Blob.SNAPSHOT);
+
+        writeStateEngine.prepareForNextCycle();
+        for(int i=0;i<6000;i++) {
+            if(i % 3 != 0)
+                mapper.add(new Movie(i, i % 7 == 0 ? 1 : 0));
+        }
+        writeStateEngine.prepareForWrite();
+        delta = write(writeStateEngine, Blob.DELTA);
+        reverseDelta = write(writeStateEngine, Blob.REVERSE_DELTA);
+
+        expected = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(expected);
+        reader.readSnapshot(HollowBlobInput.serial(snapshot));
+        reader.applyDelta(HollowBlobInput.serial(delta));
+    }
+
+    @Test
+    public void appliesTypeStateDeltasConcurrently() throws IOException {
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine);
+        reader.setDeltaApplyThreads(4);
+        reader.readSnapshot(HollowBlobInput.serial(snapshot));
+        HollowChecksum snapshotChecksum = HollowChecksum.forStateEngine(readStateEngine);
+
+        reader.applyDelta(HollowBlobInput.serial(delta));
+
+        assertEquals(HollowChecksum.forStateEngine(expected), HollowChecksum.forStateEngine(readStateEngine));
+        assertEquals(expected.getTypeState("Movie").maxOrdinal(), readStateEngine.getTypeState("Movie").maxOrdinal());
+        for(String type : expected.getAllTypes()) {
+            BitSet expectedOrdinals = expected.getTypeState(type).getPopulatedOrdinals();
+            assertEquals(type, expectedOrdinals, readStateEngine.getTypeState(type).getPopulatedOrdinals());
+        }
+
+        for(int i=1;i<6000;i+=17) {
+            if(i % 3 == 0)
+                continue;
+            int ordinal = findMovie(readStateEngine, i);
+            GenericHollowObject movie = new GenericHollowObject(readStateEngine, "Movie", ordinal);
+            assertEquals("title" + i + "-" + (i % 7 == 0 ? 1 : 0), movie.getObject("title").getString("value"));
+        }
+
+        reader.applyDelta(HollowBlobInput.serial(reverseDelta));
+        assertEquals(snapshotChecksum, HollowChecksum.forStateEngine(readStateEngine));
+    }
+
+    @Test
+    public void recordsApplyTimePerType() throws IOException {
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine);
+        reader.readSnapshot(HollowBlobInput.serial(snapshot));
+        assertTrue(readStateEngine.getLastDeltaApplyNanosByType().isEmpty());
+
+        reader.applyDelta(HollowBlobInput.serial(delta));
+        Map<String, Long> serialNanos = readStateEngine.getLastDeltaApplyNanosByType();
+        assertTrue(serialNanos.containsKey("Movie"));
+        assertTrue(readStateEngine.getAllTypes().containsAll(serialNanos.keySet()));
+
+        reader.setDeltaApplyThreads(2);
+        reader.applyDelta(HollowBlobInput.serial(reverseDelta));
+        Map<String, Long> concurrentNanos = readStateEngine.getLastDeltaApplyNanosByType();
+        assertEquals(serialNanos.keySet(), concurrentNanos.keySet());
+        for(Long nanos : concurrentNanos.values())
+            assertTrue(nanos > 0);
+    }
+
+    private static int findMovie(HollowReadStateEngine stateEngine, int id) {
+        BitSet populated = stateEngine.getTypeState("Movie").getPopulatedOrdinals();
+        for(int ordinal = populated.nextSetBit(0); ordinal != -1; ordinal = populated.nextSetBit(ordinal + 1)) {
+            if(new GenericHollowObject(stateEngine, "Movie", ordinal).getInt("id") == id)
+                return ordinal;
+        }
+        throw new AssertionError("Movie " + id + " not found");
+    }
+
+    private enum Blob { SNAPSHOT, DELTA, REVERSE_DELTA }
+
+    private static byte[] write(HollowWriteStateEngine writeStateEngine, Blob blob) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        HollowBlobWriter writer = new HollowBlobWriter(writeStateEngine);
+        switch(blob) {
+            case SNAPSHOT: writer.writeSnapshot(baos); break;
+            case DELTA: writer.writeDelta(baos); break;
+            case REVERSE_DELTA: writer.writeReverseDelta(baos); break;
+        }
+        return baos.toByteArray();
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        String title;
+        List<Integer> tags;
+        Set<String> languages;
+        Map<String, Integer> ratings;
+
+        Movie(int id, int revision) {
+            this.id = id;
+            this.title = "title" + id + "-" + revision;
+            this.tags = Arrays.asList(id, id + revision);
+            this.languages = Collections.singleton("lang" + ((id + revision) % 10));
+            this.ratings = Collections.singletonMap("country" + (id % 5), id + revision);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.netflix.hollow.core.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowBlobReaderParallelSnapshotTest {
+
+    private static final String SCRATCH_DIR = System.getProperty("java.io.tmpdir");
+
+    private File snapshotFile;
+    private HollowReadStateEngine expected;
+
+    @Before
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeStateEngine = new HollowWriteStateEngine();
+        writeStateEngine.setTargetMaxTypeShardSize(4096);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeStateEngine);
+        for(int i=0;i<5000;i++)
+            mapper.add(new Movie(i));
+
+        snapshotFile = Files.createTempFile(Paths.get(SCRATCH_DIR), "parallel-snapshot", "snapshot").toFile();
+        try(OutputStream os = new FileOutputStream(snapshotFile)) {
+            new HollowBlobWriter(writeStateEngine).writeSnapshot(os);
+        }
+
+        expected = new HollowReadStateEngine();
+        try(HollowBlobInput in = HollowBlobInput.serial(new FileInputStream(snapshotFile))) {
+            new HollowBlobReader(expected).readSnapshot(in);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        snapshotFile.delete();
+    }
+
+    @Test
+    public void readsTypeStatesConcurrentlyFromRandomAccessInput() throws IOException {
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine, MemoryMode.SHARED_MEMORY_LAZY);
+        reader.setSnapshotLoadThreads(4);
+
+        try(HollowBlobInput in = HollowBlobInput.randomAccess(snapshotFile)) {
+            reader.readSnapshot(in);
+        }
+
+        assertEquals(expected.getAllTypes(), readStateEngine.getAllTypes());
+        assertEquals(HollowChecksum.forStateEngine(expected), HollowChecksum.forStateEngine(readStateEngine));
+        assertEquals(5000, readStateEngine.getTypeState("Movie").getPopulatedOrdinals().cardinality());
+
+        for(int i=0;i<5000;i+=17) {
+            GenericHollowObject movie = new GenericHollowObject(readStateEngine, "Movie", i);
+            assertEquals(i, movie.getInt("id"));
+            assertEquals("title" + i, movie.getObject("title").getString("value"));
+        }
+    }
+
+    @Test
+    public void readsSnapshotThroughReadAheadStream() throws IOException {
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+
+        InputStream is = new ReadAheadInputStream(new FileInputStream(snapshotFile), 1024, 2);
+        try(HollowBlobInput in = HollowBlobInput.serial(is)) {
+            new HollowBlobReader(readStateEngine).readSnapshot(in);
+        }
+
+        assertEquals(HollowChecksum.forStateEngine(expected), HollowChecksum.forStateEngine(readStateEngine));
+    }
+
+    @Test
+    public void readAheadStreamReturnsAllBytes() throws IOException {
+        byte[] data = new byte[10000];
+        for(int i=0;i<data.length;i++)
+            data[i] = (byte)i;
+
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        try(InputStream is = new ReadAheadInputStream(new ByteArrayInputStream(data), 333, 3)) {
+            copy.write(is.read());
+            assertEquals(100, is.skip(100));
+            byte[] buf = new byte[777];
+            int n;
+            while((n = is.read(buf, 0, buf.length)) != -1)
+                copy.write(buf, 0, n);
+        }
+
+        byte[] result = copy.toByteArray();
+        assertEquals(data.length - 100, result.length);
+        assertEquals(data[0], result[0]);
+        assertEquals(Arrays.toString(Arrays.copyOfRange(data, 101, data.length)),
+                Arrays.toString(Arrays.copyOfRange(result, 1, result.length)));
+    }
+
+    @Test(timeout = 10000)
+    public void readAheadStreamPassesOnFailuresOfTheUnderlyingStream() throws IOException {
+        InputStream failing = new InputStream() {
+            private int remaining = 1000;
+
+            @Override
+            public int read() {
+                if(remaining-- == 0)
+                    throw new IllegalStateException("source failed");
+                return 1;
+            }
+        };
+
+        try(InputStream is = new ReadAheadInputStream(failing, 100, 2)) {
+            byte[] buf = new byte[100];
+            while(is.read(buf, 0, buf.length) != -1);
+            fail("expected the failure of the underlying stream");
+        } catch(IllegalStateException expected) {
+            assertEquals("source failed", expected.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        String title;
+        List<Integer> tags;
+        Set<String> languages;
+        Map<String, Integer> ratings;
+
+        Movie(int id) {
+            this.id = id;
+            this.title = "title" + id;
+            this.tags = Arrays.asList(id, id + 1);
+            this.languages = Collections.singleton("lang" + (id % 10));
+            this.ratings = Collections.singletonMap("country" + (id % 5), id);
+        }
+    }
+}
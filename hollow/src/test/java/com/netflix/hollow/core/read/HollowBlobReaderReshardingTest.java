@@ -0,0 +1,229 @@
+package com.netflix.hollow.core.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowInline;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.stringifier.HollowRecordStringifier;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Test;
+
+public class HollowBlobReaderReshardingTest {
+
+    private static final String SCRATCH_DIR = System.getProperty("java.io.tmpdir");
+    private static final int MOVIES_PER_CYCLE[] = { 50, 600, 150, 1200, 40, 500 };
+
+    private final List<File> blobFiles = new ArrayList<>();
+    private final List<File> snapshots = new ArrayList<>();
+    private final List<File> deltas = new ArrayList<>();
+    private final List<File> reverseDeltas = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for(File f : blobFiles)
+            f.delete();
+    }
+
+    @Test
+    public void splitsAndJoinsTypeStates() throws IOException {
+        writeCycles(new HollowWriteStateEngine());
+        File snapshot = snapshots.get(snapshots.size() - 1);
+        HollowReadStateEngine expected = readSnapshot(snapshot, MemoryMode.ON_HEAP);
+
+        for(MemoryMode memoryMode : new MemoryMode[] { MemoryMode.ON_HEAP, MemoryMode.SHARED_MEMORY_LAZY, MemoryMode.OFF_HEAP }) {
+            HollowReadStateEngine readStateEngine = readSnapshot(snapshot, memoryMode);
+            for(int numShards : new int[] { 4, 8, 2, 1 }) {
+                for(HollowTypeReadState typeState : readStateEngine.getTypeStates()) {
+                    typeState.reshard(numShards);
+                    assertEquals(numShards, typeState.numShards());
+                }
+                assertSameRecords(expected, readStateEngine);
+            }
+        }
+    }
+
+    @Test
+    public void appliesDeltasAcrossProducerReshards() throws IOException {
+        HollowWriteStateEngine writeStateEngine = new HollowWriteStateEngine();
+        writeStateEngine.setTargetMaxTypeShardSize(2048);
+        writeStateEngine.setTypeResharding(true);
+        writeCycles(writeStateEngine);
+
+        Set<Integer> producedNumShards = new HashSet<>();
+        for(File snapshot : snapshots)
+            producedNumShards.add(readSnapshot(snapshot, MemoryMode.ON_HEAP).getTypeState("Movie").numShards());
+        assertTrue(producedNumShards.size() > 1);
+
+        assertDeltasApply(MemoryMode.ON_HEAP, 1, Long.MAX_VALUE);
+        assertDeltasApply(MemoryMode.ON_HEAP, 4, Long.MAX_VALUE);
+        assertDeltasApply(MemoryMode.SHARED_MEMORY_LAZY, 1, Long.MAX_VALUE);
+        assertDeltasApply(MemoryMode.OFF_HEAP, 1, Long.MAX_VALUE);
+        assertReverseDeltasApply();
+    }
+
+    @Test
+    public void splitsShardsToConsumerTarget() throws IOException {
+        writeCycles(new HollowWriteStateEngine());
+
+        HollowReadStateEngine readStateEngine = assertDeltasApply(MemoryMode.ON_HEAP, 1, 1024);
+        assertTrue(readStateEngine.getTypeState("Movie").numShards() > 1);
+        assertEquals(1, readSnapshot(snapshots.get(snapshots.size() - 1), MemoryMode.ON_HEAP).getTypeState("Movie").numShards());
+
+        assertDeltasApply(MemoryMode.ON_HEAP, 4, 1024);
+        assertDeltasApply(MemoryMode.SHARED_MEMORY_LAZY, 1, 1024);
+        assertDeltasApply(MemoryMode.OFF_HEAP, 1, 1024);
+    }
+
+    private void writeCycles(HollowWriteStateEngine writeStateEngine) throws IOException {
+        HollowObjectMapper mapper = new HollowObjectMapper(writeStateEngine);
+        Random rand = new Random(11);
+
+        for(int cycle=0;cycle<MOVIES_PER_CYCLE.length;cycle++) {
+            for(int i=0;i<MOVIES_PER_CYCLE[cycle];i++) {
+                int id = rand.nextInt(4) == 0 ? rand.nextInt(2000) : i;
+                mapper.add(new Movie(id, rand.nextInt(3) == 0 ? rand.nextInt(500) : i));
+            }
+            writeStateEngine.prepareForWrite();
+            snapshots.add(writeBlob(writeStateEngine, "snapshot"));
+            if(cycle > 0) {
+                deltas.add(writeBlob(writeStateEngine, "delta"));
+                reverseDeltas.add(writeBlob(writeStateEngine, "reversedelta"));
+            }
+            writeStateEngine.prepareForNextCycle();
+        }
+    }
+
+    private HollowReadStateEngine assertDeltasApply(MemoryMode memoryMode, int deltaApplyThreads, long targetMaxTypeShardSize) throws IOException {
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        if(targetMaxTypeShardSize != Long.MAX_VALUE)
+            readStateEngine.setTargetMaxTypeShardSize(targetMaxTypeShardSize);
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine, memoryMode);
+        reader.setDeltaApplyThreads(deltaApplyThreads);
+        try(HollowBlobInput in = input(snapshots.get(0), memoryMode)) {
+            reader.readSnapshot(in);
+        }
+
+        for(int i=0;i<deltas.size();i++) {
+            try(HollowBlobInput in = input(deltas.get(i), memoryMode)) {
+                reader.applyDelta(in);
+            }
+            HollowReadStateEngine expected = readSnapshot(snapshots.get(i + 1), MemoryMode.ON_HEAP);
+            assertSameRecords(expected, readStateEngine);
+            for(String type : expected.getAllTypes())
+                assertEquals(type, expected.getTypeState(type).maxOrdinal(), readStateEngine.getTypeState(type).maxOrdinal());
+        }
+
+        return readStateEngine;
+    }
+
+    private void assertReverseDeltasApply() throws IOException {
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine);
+        try(HollowBlobInput in = input(snapshots.get(snapshots.size() - 1), MemoryMode.ON_HEAP)) {
+            reader.readSnapshot(in);
+        }
+
+        for(int i=reverseDeltas.size()-1;i>=0;i--) {
+            try(HollowBlobInput in = input(reverseDeltas.get(i), MemoryMode.ON_HEAP)) {
+                reader.applyDelta(in);
+            }
+            assertSameRecords(readSnapshot(snapshots.get(i), MemoryMode.ON_HEAP), readStateEngine);
+        }
+    }
+
+    private File writeBlob(HollowWriteStateEngine writeStateEngine, String type) throws IOException {
+        File f = Files.createTempFile(Paths.get(SCRATCH_DIR), "resharding", type).toFile();
+        blobFiles.add(f);
+        try(OutputStream os = new FileOutputStream(f)) {
+            HollowBlobWriter writer = new HollowBlobWriter(writeStateEngine);
+            if(type.equals("snapshot"))
+                writer.writeSnapshot(os);
+            else if(type.equals("delta"))
+                writer.writeDelta(os);
+            else
+                writer.writeReverseDelta(os);
+        }
+        return f;
+    }
+
+    private static HollowBlobInput input(File blob, MemoryMode memoryMode) throws IOException {
+        if(memoryMode.isSerial())
+            return HollowBlobInput.serial(Files.newInputStream(blob.toPath()));
+        return HollowBlobInput.randomAccess(blob, memoryMode);
+    }
+
+    private static HollowReadStateEngine readSnapshot(File snapshot, MemoryMode memoryMode) throws IOException {
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        try(HollowBlobInput in = input(snapshot, memoryMode)) {
+            new HollowBlobReader(readStateEngine, memoryMode).readSnapshot(in);
+        }
+        return readStateEngine;
+    }
+
+    /**
+     * Compares the records of every populated ordinal, since the checksum of a type state depends on its number of shards.
+     */
+    private static void assertSameRecords(HollowReadStateEngine expected, HollowReadStateEngine actual) {
+        HollowRecordStringifier stringifier = new HollowRecordStringifier(true, true, false);
+        for(String type : expected.getAllTypes()) {
+            BitSet populatedOrdinals = expected.getTypeState(type).getPopulatedOrdinals();
+            assertEquals(type, populatedOrdinals, actual.getTypeState(type).getPopulatedOrdinals());
+
+            int ordinal = populatedOrdinals.nextSetBit(0);
+            while(ordinal != -1) {
+                assertEquals(type, stringifier.stringify(expected, type, ordinal), stringifier.stringify(actual, type, ordinal));
+                ordinal = populatedOrdinals.nextSetBit(ordinal + 1);
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        long budget;
+        @HollowInline
+        String title;
+        byte[] poster;
+        List<Integer> tags;
+        Set<String> languages;
+        Map<String, Integer> ratings;
+
+        Movie(int id, int seed) {
+            Random rand = new Random(seed);
+            this.id = id;
+            this.budget = rand.nextInt(1 << 20);
+            this.title = rand.nextInt(5) == 0 ? null : "title" + seed;
+            this.poster = rand.nextInt(3) == 0 ? null : new byte[rand.nextInt(8)];
+            this.tags = new ArrayList<>();
+            for(int i=rand.nextInt(6);i>0;i--)
+                tags.add(rand.nextInt(1 << 12));
+            this.languages = new HashSet<>();
+            for(int i=rand.nextInt(6);i>0;i--)
+                languages.add("lang" + rand.nextInt(40));
+            this.ratings = new HashMap<>();
+            for(int i=rand.nextInt(6);i>0;i--)
+                ratings.put("country" + rand.nextInt(40), rand.nextInt(1 << 10));
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.netflix.hollow.core.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.filter.TypeFilter;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowInline;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Test;
+
+public class HollowBlobReaderSharedMemoryDeltaTest {
+
+    private static final String SCRATCH_DIR = System.getProperty("java.io.tmpdir");
+
+    private final List<File> blobFiles = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for(File f : blobFiles)
+            f.delete();
+    }
+
+    @Test
+    public void appliesDeltas() throws IOException {
+        assertDeltasApply(new HollowWriteStateEngine());
+    }
+
+    @Test
+    public void appliesDeltasToShards() throws IOException {
+        HollowWriteStateEngine writeStateEngine = new HollowWriteStateEngine();
+        writeStateEngine.setTargetMaxTypeShardSize(1024);
+        HollowReadStateEngine readStateEngine = assertDeltasApply(writeStateEngine);
+        assertTrue(readStateEngine.getTypeState("Movie").numShards() > 1);
+    }
+
+    @Test
+    public void appliesDeltasToFilteredState() throws IOException {
+        TypeFilter filter = TypeFilter.newTypeFilter()
+                .excludeAll()
+                .include("Movie", "id")
+                .include("Movie", "budget")
+                .include("Movie", "title")
+                .includeRecursive("Movie", "languages")
+                .build();
+        HollowReadStateEngine readStateEngine = assertDeltasApply(new HollowWriteStateEngine(), filter, MemoryMode.SHARED_MEMORY_LAZY);
+        assertEquals(null, readStateEngine.getTypeState("MapOfStringToInteger"));
+        assertEquals(-1, ((HollowObjectSchema) readStateEngine.getTypeState("Movie").getSchema()).getPosition("poster"));
+    }
+
+    @Test
+    public void appliesDeltasToFilteredStateInEagerMode() throws IOException {
+        TypeFilter filter = TypeFilter.newTypeFilter()
+                .excludeAll()
+                .include("Movie", "poster")
+                .includeRecursive("Movie", "ratings")
+                .build();
+        HollowReadStateEngine readStateEngine = assertDeltasApply(new HollowWriteStateEngine(), filter, MemoryMode.SHARED_MEMORY_EAGER);
+        readStateEngine.warmUp(Collections.emptyList());
+    }
+
+    @Test
+    public void copiesRecordsOfFilteredStateInBulk() throws IOException {
+        HollowWriteStateEngine writeStateEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeStateEngine);
+        Random rand = new Random(7);
+
+        /// field widths which are unchanged by the delta permit the records between changes to be copied in bulk
+        addMovies(mapper, rand, 0);
+        writeStateEngine.prepareForWrite();
+        File firstSnapshot = writeBlob(writeStateEngine, "snapshot");
+        writeStateEngine.prepareForNextCycle();
+
+        addMovies(mapper, rand, 0);
+        writeStateEngine.prepareForWrite();
+        File secondSnapshot = writeBlob(writeStateEngine, "snapshot");
+        File delta = writeBlob(writeStateEngine, "delta");
+
+        TypeFilter filter = TypeFilter.newTypeFilter()
+                .excludeAll()
+                .include("Movie", "id")
+                .include("Movie", "budget")
+                .build();
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine, MemoryMode.SHARED_MEMORY_LAZY);
+        try(HollowBlobInput in = HollowBlobInput.randomAccess(firstSnapshot)) {
+            reader.readSnapshot(in, filter);
+        }
+        try(HollowBlobInput in = HollowBlobInput.randomAccess(delta)) {
+            reader.applyDelta(in);
+        }
+
+        assertSameState(readSnapshot(secondSnapshot, filter), readStateEngine);
+    }
+
+    @Test
+    public void appliesReverseDelta() throws IOException {
+        HollowWriteStateEngine writeStateEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeStateEngine);
+        Random rand = new Random(5);
+
+        addMovies(mapper, rand, 0);
+        writeStateEngine.prepareForWrite();
+        File firstSnapshot = writeBlob(writeStateEngine, "snapshot");
+        writeStateEngine.prepareForNextCycle();
+
+        addMovies(mapper, rand, 1);
+        writeStateEngine.prepareForWrite();
+        File secondSnapshot = writeBlob(writeStateEngine, "snapshot");
+        File reverseDelta = writeBlob(writeStateEngine, "reversedelta");
+
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine, MemoryMode.SHARED_MEMORY_LAZY);
+        try(HollowBlobInput in = HollowBlobInput.randomAccess(secondSnapshot)) {
+            reader.readSnapshot(in);
+        }
+        try(HollowBlobInput in = HollowBlobInput.randomAccess(reverseDelta)) {
+            reader.applyDelta(in);
+        }
+
+        assertSameState(readSnapshot(firstSnapshot), readStateEngine);
+    }
+
+    private HollowReadStateEngine assertDeltasApply(HollowWriteStateEngine writeStateEngine) throws IOException {
+        return assertDeltasApply(writeStateEngine, TypeFilter.newTypeFilter().build(), MemoryMode.SHARED_MEMORY_LAZY);
+    }
+
+    private HollowReadStateEngine assertDeltasApply(HollowWriteStateEngine writeStateEngine, TypeFilter filter, MemoryMode memoryMode) throws IOException {
+        HollowObjectMapper mapper = new HollowObjectMapper(writeStateEngine);
+        Random rand = new Random(42);
+
+        List<File> snapshots = new ArrayList<>();
+        List<File> deltas = new ArrayList<>();
+        for(int cycle=0;cycle<6;cycle++) {
+            addMovies(mapper, rand, cycle);
+            writeStateEngine.prepareForWrite();
+            snapshots.add(writeBlob(writeStateEngine, "snapshot"));
+            if(cycle > 0)
+                deltas.add(writeBlob(writeStateEngine, "delta"));
+            writeStateEngine.prepareForNextCycle();
+        }
+
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine, memoryMode);
+        try(HollowBlobInput in = HollowBlobInput.randomAccess(snapshots.get(0), memoryMode)) {
+            reader.readSnapshot(in, filter);
+        }
+
+        for(int i=0;i<deltas.size();i++) {
+            try(HollowBlobInput in = HollowBlobInput.randomAccess(deltas.get(i), memoryMode)) {
+                reader.applyDelta(in);
+            }
+
+            HollowReadStateEngine expected = readSnapshot(snapshots.get(i + 1), filter);
+            assertSameState(expected, readStateEngine);
+
+            int ordinal = expected.getTypeState("Movie").getPopulatedOrdinals().nextSetBit(0);
+            GenericHollowObject expectedMovie = new GenericHollowObject(expected, "Movie", ordinal);
+            GenericHollowObject movie = new GenericHollowObject(readStateEngine, "Movie", ordinal);
+            assertEquals(expectedMovie.getString("title"), movie.getString("title"));
+        }
+
+        return readStateEngine;
+    }
+
+    private File writeBlob(HollowWriteStateEngine writeStateEngine, String type) throws IOException {
+        File f = Files.createTempFile(Paths.get(SCRATCH_DIR), "shared-memory-delta", type).toFile();
+        blobFiles.add(f);
+        try(OutputStream os = new FileOutputStream(f)) {
+            HollowBlobWriter writer = new HollowBlobWriter(writeStateEngine);
+            if(type.equals("snapshot"))
+                writer.writeSnapshot(os);
+            else if(type.equals("delta"))
+                writer.writeDelta(os);
+            else
+                writer.writeReverseDelta(os);
+        }
+        return f;
+    }
+
+    private static HollowReadStateEngine readSnapshot(File snapshot) throws IOException {
+        return readSnapshot(snapshot, TypeFilter.newTypeFilter().build());
+    }
+
+    private static HollowReadStateEngine readSnapshot(File snapshot, TypeFilter filter) throws IOException {
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        try(HollowBlobInput in = HollowBlobInput.serial(Files.newInputStream(snapshot.toPath()))) {
+            new HollowBlobReader(readStateEngine).readSnapshot(in, filter);
+        }
+        return readStateEngine;
+    }
+
+    private static void assertSameState(HollowReadStateEngine expected, HollowReadStateEngine actual) {
+        for(String type : expected.getAllTypes())
+            assertEquals(type, expected.getTypeState(type).getPopulatedOrdinals(), actual.getTypeState(type).getPopulatedOrdinals());
+        assertEquals(HollowChecksum.forStateEngineWithCommonSchemas(expected, actual),
+                HollowChecksum.forStateEngineWithCommonSchemas(actual, expected));
+    }
+
+    /**
+     * Adds movies which are partly carried over from the previous cycle, with ranges of values which grow over the
+     * cycles so that field widths change between deltas.
+     */
+    private static void addMovies(HollowObjectMapper mapper, Random rand, int cycle) {
+        for(int i=0;i<200;i++) {
+            int id = rand.nextInt(4) == 0 ? rand.nextInt(200 << cycle) : i;
+            int seed = rand.nextInt(3) == 0 ? rand.nextInt(1 << (cycle + 6)) : i;
+            mapper.add(new Movie(id, seed, cycle));
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        long budget;
+        @HollowInline
+        String title;
+        byte[] poster;
+        List<Integer> tags;
+        Set<String> languages;
+        Map<String, Integer> ratings;
+
+        Movie(int id, int seed, int cycle) {
+            Random rand = new Random(seed);
+            this.id = id;
+            this.budget = (long) rand.nextInt(1 << (cycle + 8)) << cycle;
+            this.title = rand.nextInt(5) == 0 ? null : "title" + seed + "-" + cycle % 2;
+            this.poster = rand.nextInt(3) == 0 ? null : new byte[rand.nextInt(4 + cycle)];
+            this.tags = new ArrayList<>();
+            for(int i=rand.nextInt(2 + cycle);i>0;i--)
+                tags.add(rand.nextInt(1 << (cycle + 3)));
+            this.languages = new HashSet<>();
+            for(int i=rand.nextInt(2 + cycle);i>0;i--)
+                languages.add("lang" + rand.nextInt(10 + cycle * 5));
+            this.ratings = new HashMap<>();
+            for(int i=rand.nextInt(2 + cycle);i>0;i--)
+                ratings.put("country" + rand.nextInt(10 + cycle * 5), rand.nextInt(1 << (cycle + 2)));
+        }
+    }
+}
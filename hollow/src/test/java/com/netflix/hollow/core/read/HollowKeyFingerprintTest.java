@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.netflix.hollow.api.objects.generic.GenericHollowMap;
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.api.objects.generic.GenericHollowSet;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.map.HollowMapTypeReadState;
+import com.netflix.hollow.core.read.engine.set.HollowSetTypeReadState;
+import com.netflix.hollow.core.util.StateEngineRoundTripper;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowHashKey;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.core.write.objectmapper.HollowTypeName;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+
+public class HollowKeyFingerprintTest {
+
+    private static final String COUNTRIES[] = { "US", "CA", "IT", "GB", "FR", "DE", "BR" };
+
+    @Test
+    public void findsKeysAcrossDeltas() throws IOException {
+        assertLookupsAcrossDeltas(new HollowWriteStateEngine(), 0);
+    }
+
+    @Test
+    public void findsKeysAcrossDeltasToShards() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(256);
+        assertLookupsAcrossDeltas(writeEngine, 0);
+    }
+
+    @Test
+    public void findsKeysAfterResharding() throws IOException {
+        assertLookupsAcrossDeltas(new HollowWriteStateEngine(), 4);
+    }
+
+    private void assertLookupsAcrossDeltas(HollowWriteStateEngine writeEngine, int reshardToNumShards) throws IOException {
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        /// one type is fingerprinted as the snapshot is read, and the other once it has been read
+        readEngine.enableKeyFingerprints("MapByIdCountry");
+
+        for(int cycle=0;cycle<5;cycle++) {
+            List<Catalog> catalogs = new ArrayList<>();
+            for(int i=0;i<50;i++)
+                catalogs.add(new Catalog(i, cycle));
+            for(Catalog catalog : catalogs)
+                mapper.add(catalog);
+
+            if(cycle == 0) {
+                StateEngineRoundTripper.roundTripSnapshot(writeEngine, readEngine);
+                readEngine.enableKeyFingerprints("SetByIdCountry");
+            } else {
+                StateEngineRoundTripper.roundTripDelta(writeEngine, readEngine);
+            }
+
+            if(cycle == 2 && reshardToNumShards > 0) {
+                readEngine.getTypeState("SetByIdCountry").reshard(reshardToNumShards);
+                readEngine.getTypeState("MapByIdCountry").reshard(reshardToNumShards);
+            }
+
+            assertLookups(readEngine, catalogs);
+        }
+
+        assertTrue(((HollowSetTypeReadState) readEngine.getTypeState("SetByIdCountry")).isKeyFingerprintsEnabled());
+        assertTrue(((HollowMapTypeReadState) readEngine.getTypeState("MapByIdCountry")).isKeyFingerprintsEnabled());
+    }
+
+    private static void assertLookups(HollowReadStateEngine readEngine, List<Catalog> catalogs) {
+        Map<Integer, Catalog> catalogsById = new HashMap<>();
+        for(Catalog catalog : catalogs)
+            catalogsById.put(catalog.id, catalog);
+
+        int ordinal = readEngine.getTypeState("Catalog").getPopulatedOrdinals().nextSetBit(0);
+        while(ordinal != -1) {
+            GenericHollowObject obj = new GenericHollowObject(readEngine, "Catalog", ordinal);
+            Catalog catalog = catalogsById.get(obj.getInt("id"));
+            GenericHollowSet titles = obj.getSet("titles");
+            GenericHollowMap ranks = obj.getMap("ranks");
+
+            for(Title title : catalog.titles) {
+                GenericHollowObject element = (GenericHollowObject) titles.findElement(title.id, title.country);
+                assertEquals(title.id, element.getInt("id"));
+                assertEquals(title.country, element.getObject("country").getString("value"));
+
+                GenericHollowObject rank = (GenericHollowObject) ranks.findValue(title.id, title.country);
+                assertEquals(catalog.ranks.get(title).intValue(), rank.getInt("value"));
+                assertEquals(title.id, ((GenericHollowObject) ranks.findKey(title.id, title.country)).getInt("id"));
+            }
+
+            /// titles of the same id in other countries, and ids which are never present
+            for(int id=0;id<10;id++) {
+                for(String country : COUNTRIES) {
+                    if(!catalog.titles.contains(new Title(id, country))) {
+                        assertNull(titles.findElement(id, country));
+                        assertNull(ranks.findValue(id, country));
+                    }
+                }
+                assertNull(titles.findElement(id + 1000, "US"));
+                assertNull(ranks.findEntry(id + 1000, "US"));
+            }
+
+            ordinal = readEngine.getTypeState("Catalog").getPopulatedOrdinals().nextSetBit(ordinal + 1);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Catalog {
+        int id;
+
+        @HollowTypeName(name="SetByIdCountry")
+        @HollowHashKey(fields={"id", "country.value"})
+        Set<Title> titles;
+
+        @HollowTypeName(name="MapByIdCountry")
+        @HollowHashKey(fields={"id", "country.value"})
+        Map<Title, Integer> ranks;
+
+        Catalog(int id, int cycle) {
+            this.id = id;
+            this.titles = new HashSet<>();
+            this.ranks = new HashMap<>();
+
+            /// some catalogs change in every cycle, and the others are retained
+            int seed = id % 3 == 0 ? id * 31 + cycle : id * 31;
+            for(int i=0;i<(seed % 8);i++) {
+                Title title = new Title(seed % 7 + i, COUNTRIES[(seed + i) % COUNTRIES.length]);
+                titles.add(title);
+                ranks.put(title, i);
+            }
+        }
+    }
+
+    private static class Title {
+        int id;
+        String country;
+
+        Title(int id, String country) {
+            this.id = id;
+            this.country = country;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Title && ((Title) o).id == id && ((Title) o).country.equals(country);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id + country.hashCode();
+        }
+    }
+}
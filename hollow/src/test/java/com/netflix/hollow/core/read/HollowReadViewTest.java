@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowReadView;
+import com.netflix.hollow.core.util.StateEngineRoundTripper;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowReadViewTest {
+
+    HollowWriteStateEngine writeStateEngine;
+    HollowObjectMapper mapper;
+    HollowReadStateEngine readStateEngine;
+
+    @Before
+    public void setUp() throws Exception {
+        writeStateEngine = new HollowWriteStateEngine();
+        mapper = new HollowObjectMapper(writeStateEngine);
+        readStateEngine = new HollowReadStateEngine();
+        readStateEngine.enableReadViews();
+
+        mapper.add(new Movie(1, "one", 1));
+        StateEngineRoundTripper.roundTripSnapshot(writeStateEngine, readStateEngine);
+    }
+
+    @Test
+    public void readsPinnedGenerationWhileDeltasApply() throws Exception {
+        try(HollowReadView view = readStateEngine.pinReadView()) {
+            assertEquals(0, view.getGeneration());
+
+            /// replaces the movie at ordinal 0 with a movie at ordinal 1, and then with a movie at ordinal 2
+            mapper.add(new Movie(1, "uno", 2));
+            StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+            mapper.add(new Movie(1, "eins", 3));
+            StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+
+            assertMovie(0, "one", 1);
+            assertEquals("eins", CompletableFuture.supplyAsync(() -> title(2)).get());
+        }
+
+        try(HollowReadView view = readStateEngine.pinReadView()) {
+            assertEquals(2, view.getGeneration());
+            assertMovie(2, "eins", 3);
+        }
+    }
+
+    @Test
+    public void nestedPinsShareView() throws Exception {
+        HollowReadView view = readStateEngine.pinReadView();
+        try(HollowReadView nested = readStateEngine.pinReadView()) {
+            assertSame(view, nested);
+        }
+
+        mapper.add(new Movie(1, "uno", 2));
+        StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+
+        assertMovie(0, "one", 1);
+        view.close();
+
+        try(HollowReadView next = readStateEngine.pinReadView()) {
+            assertEquals(1, next.getGeneration());
+            assertMovie(1, "uno", 2);
+        }
+    }
+
+    @Test
+    public void viewsMustBeEnabledAndClosedOnPinningThread() throws Exception {
+        try {
+            new HollowReadStateEngine().pinReadView();
+            fail("read views are not enabled");
+        } catch(IllegalStateException expected) { }
+
+        HollowReadView view = readStateEngine.pinReadView();
+        try {
+            CompletableFuture.runAsync(view::close).join();
+            fail("closed on another thread");
+        } catch(Exception expected) {
+            assertEquals(IllegalStateException.class, expected.getCause().getClass());
+        }
+        view.close();
+    }
+
+    private void assertMovie(int ordinal, String title, int tag) {
+        GenericHollowObject movie = new GenericHollowObject(readStateEngine, "Movie", ordinal);
+        assertEquals(title, movie.getObject("title").getString("value"));
+        assertEquals(tag, ((GenericHollowObject)movie.getList("tags").get(0)).getInt("value"));
+    }
+
+    private String title(int ordinal) {
+        return new GenericHollowObject(readStateEngine, "Movie", ordinal).getObject("title").getString("value");
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        String title;
+        List<Integer> tags;
+
+        Movie(int id, String title, int tag) {
+            this.id = id;
+            this.title = title;
+            this.tags = Collections.singletonList(tag);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.object;
+
+import com.netflix.hollow.core.AbstractStateEngineTest;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowObjectBulkReadTest extends AbstractStateEngineTest {
+
+    HollowObjectSchema schema;
+    HollowObjectSchema referencedSchema;
+
+    @Before
+    public void setUp() {
+        referencedSchema = new HollowObjectSchema("Referenced", 1);
+        referencedSchema.addField("id", FieldType.INT);
+
+        schema = new HollowObjectSchema("TestObject", 4);
+        schema.addField("longField", FieldType.LONG);
+        schema.addField("intField", FieldType.INT);
+        schema.addField("doubleField", FieldType.DOUBLE);
+        schema.addField("refField", FieldType.REFERENCE, "Referenced");
+
+        super.setUp();
+    }
+
+    @Test
+    public void bulkReadsMatchPerOrdinalReads() throws IOException {
+        Random rand = new Random(42);
+
+        addRecords(rand, 3000);
+        roundTripSnapshot();
+        assertBulkReadsMatchPerOrdinalReads(rand);
+
+        addRecords(rand, 2500);
+        roundTripDelta();
+        assertBulkReadsMatchPerOrdinalReads(rand);
+    }
+
+    @Test
+    public void bulkReadsFromShardedType() throws IOException {
+        writeStateEngine.setTargetMaxTypeShardSize(4096);
+        Random rand = new Random(43);
+
+        addRecords(rand, 3000);
+        roundTripSnapshot();
+        Assert.assertTrue(readStateEngine.getTypeState("TestObject").numShards() > 1);
+        assertBulkReadsMatchPerOrdinalReads(rand);
+
+        addRecords(rand, 3500);
+        roundTripDelta();
+        assertBulkReadsMatchPerOrdinalReads(rand);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMismatchedFieldType() throws IOException {
+        addRecords(new Random(44), 10);
+        roundTripSnapshot();
+
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState) readStateEngine.getTypeState("TestObject");
+        typeState.readLongs(schema.getPosition("intField"), 0, 10, new long[10], 0);
+    }
+
+    private void assertBulkReadsMatchPerOrdinalReads(Random rand) {
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState) readStateEngine.getTypeState("TestObject");
+        int longField = schema.getPosition("longField");
+        int intField = schema.getPosition("intField");
+        int doubleField = schema.getPosition("doubleField");
+        int refField = schema.getPosition("refField");
+
+        int numOrdinals = typeState.maxOrdinal() + 1;
+
+        for(int i=0;i<10;i++) {
+            int fromOrdinal = rand.nextInt(numOrdinals);
+            int toOrdinal = fromOrdinal + rand.nextInt(numOrdinals - fromOrdinal + 1);
+            int destPos = rand.nextInt(3);
+
+            long longs[] = new long[destPos + toOrdinal - fromOrdinal];
+            int ints[] = new int[destPos + toOrdinal - fromOrdinal];
+            int refs[] = new int[destPos + toOrdinal - fromOrdinal];
+            double doubles[] = new double[destPos + toOrdinal - fromOrdinal];
+
+            typeState.readLongs(longField, fromOrdinal, toOrdinal, longs, destPos);
+            typeState.readInts(intField, fromOrdinal, toOrdinal, ints, destPos);
+            typeState.readInts(refField, fromOrdinal, toOrdinal, refs, destPos);
+            typeState.readDoubles(doubleField, fromOrdinal, toOrdinal, doubles, destPos);
+
+            for(int ordinal=fromOrdinal;ordinal<toOrdinal;ordinal++) {
+                int pos = destPos + ordinal - fromOrdinal;
+                Assert.assertEquals(typeState.readLong(ordinal, longField), longs[pos]);
+                Assert.assertEquals(typeState.readInt(ordinal, intField), ints[pos]);
+                Assert.assertEquals(typeState.readOrdinal(ordinal, refField), refs[pos]);
+                Assert.assertEquals(typeState.readDouble(ordinal, doubleField), doubles[pos], 0);
+            }
+        }
+
+        BitSet ordinals = new BitSet();
+        for(int ordinal=0;ordinal<numOrdinals;ordinal++) {
+            if(rand.nextInt(3) != 0)
+                ordinals.set(ordinal);
+        }
+
+        long longs[] = new long[ordinals.cardinality() + 1];
+        int ints[] = new int[ordinals.cardinality() + 1];
+        int refs[] = new int[ordinals.cardinality() + 1];
+        double doubles[] = new double[ordinals.cardinality() + 1];
+
+        Assert.assertEquals(ordinals.cardinality(), typeState.readLongs(longField, ordinals, longs, 1));
+        Assert.assertEquals(ordinals.cardinality(), typeState.readInts(intField, ordinals, ints, 1));
+        Assert.assertEquals(ordinals.cardinality(), typeState.readInts(refField, ordinals, refs, 1));
+        Assert.assertEquals(ordinals.cardinality(), typeState.readDoubles(doubleField, ordinals, doubles, 1));
+
+        int pos = 1;
+        for(int ordinal = ordinals.nextSetBit(0); ordinal != -1; ordinal = ordinals.nextSetBit(ordinal + 1), pos++) {
+            Assert.assertEquals(typeState.readLong(ordinal, longField), longs[pos]);
+            Assert.assertEquals(typeState.readInt(ordinal, intField), ints[pos]);
+            Assert.assertEquals(typeState.readOrdinal(ordinal, refField), refs[pos]);
+            Assert.assertEquals(typeState.readDouble(ordinal, doubleField), doubles[pos], 0);
+        }
+    }
+
+    private void addRecords(Random rand, int numRecords) {
+        HollowObjectWriteRecord referencedRec = new HollowObjectWriteRecord(referencedSchema);
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+
+        for(int i=0;i<numRecords;i++) {
+            rec.reset();
+            /// leave roughly one in ten values of each field null
+            if(rand.nextInt(10) != 0)
+                rec.setLong("longField", rand.nextInt(4) == 0 ? rand.nextLong() : rand.nextInt(1000));
+            if(rand.nextInt(10) != 0)
+                rec.setInt("intField", rand.nextInt(4) == 0 ? rand.nextInt() : rand.nextInt(1000) - 500);
+            if(rand.nextInt(10) != 0)
+                rec.setDouble("doubleField", rand.nextDouble());
+            if(rand.nextInt(10) != 0) {
+                referencedRec.reset();
+                referencedRec.setInt("id", rand.nextInt(500));
+                rec.setReference("refField", writeStateEngine.add("Referenced", referencedRec));
+            }
+
+            writeStateEngine.add("TestObject", rec);
+        }
+    }
+
+    @Override
+    protected void initializeTypeStates() {
+        writeStateEngine.addTypeState(new HollowObjectTypeWriteState(referencedSchema));
+        writeStateEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+    }
+
+}
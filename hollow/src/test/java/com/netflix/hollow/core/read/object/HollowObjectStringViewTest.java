@@ -0,0 +1,241 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.object;
+
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.core.AbstractStateEngineTest;
+import com.netflix.hollow.core.read.dataaccess.HollowBytesView;
+import com.netflix.hollow.core.read.dataaccess.HollowStringView;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.util.StateEngineRoundTripper;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowObjectStringViewTest extends AbstractStateEngineTest {
+
+    private static final String[] VALUES = {
+            "", "a", "hello world", "café", "日本語のテキスト", "mixed é中￿!", null
+    };
+
+    HollowObjectSchema schema;
+
+    @Before
+    public void setUp() {
+        schema = new HollowObjectSchema("TestObject", 3);
+        schema.addField("id", FieldType.INT);
+        schema.addField("str", FieldType.STRING);
+        schema.addField("bytes", FieldType.BYTES);
+
+        super.setUp();
+    }
+
+    @Test
+    public void stringViewsMatchDecodedStrings() throws IOException {
+        for(int i=0;i<VALUES.length;i++)
+            addRecord(i, VALUES[i]);
+        roundTripSnapshot();
+
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState) readStateEngine.getTypeState("TestObject");
+        int strField = schema.getPosition("str");
+        HollowStringView view = new HollowStringView();
+
+        for(int ordinal=0;ordinal<=typeState.maxOrdinal();ordinal++) {
+            String expected = typeState.readString(ordinal, strField);
+
+            Assert.assertEquals(expected != null, typeState.readStringView(ordinal, strField, view));
+            if(expected == null) {
+                Assert.assertEquals(0, view.length());
+                continue;
+            }
+
+            Assert.assertEquals(expected.length(), view.length());
+            Assert.assertEquals(expected, view.toString());
+            Assert.assertTrue(view.contentEquals(expected));
+            Assert.assertFalse(view.contentEquals(expected + "x"));
+
+            /// access out of order
+            for(int i=expected.length()-1;i>=0;i--)
+                Assert.assertEquals(expected.charAt(i), view.charAt(i));
+
+            if(expected.length() > 2)
+                Assert.assertEquals(expected.subSequence(1, expected.length() - 1), view.subSequence(1, view.length() - 1));
+        }
+    }
+
+    @Test
+    public void bytesViewsMatchDecodedBytes() throws IOException {
+        for(int i=0;i<VALUES.length;i++)
+            addRecord(i, VALUES[i]);
+        roundTripSnapshot();
+
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState) readStateEngine.getTypeState("TestObject");
+        int bytesField = schema.getPosition("bytes");
+        HollowBytesView view = new HollowBytesView();
+
+        for(int ordinal=0;ordinal<=typeState.maxOrdinal();ordinal++) {
+            byte[] expected = typeState.readBytes(ordinal, bytesField);
+
+            Assert.assertEquals(expected != null, typeState.readBytesView(ordinal, bytesField, view));
+            if(expected == null)
+                continue;
+
+            Assert.assertEquals(expected.length, view.length());
+            for(int i=0;i<expected.length;i++)
+                Assert.assertEquals(expected[i], view.byteAt(i));
+
+            Assert.assertArrayEquals(expected, view.toByteArray());
+
+            ByteBuffer buffer = ByteBuffer.allocate(expected.length + 2);
+            buffer.put((byte) 1);
+            view.copyTo(buffer);
+            Assert.assertEquals(expected.length + 1, buffer.position());
+            Assert.assertArrayEquals(expected, Arrays.copyOfRange(buffer.array(), 1, expected.length + 1));
+        }
+    }
+
+    @Test
+    public void viewsThroughHollowObject() throws IOException {
+        addRecord(0, "zero");
+        addRecord(1, null);
+        roundTripSnapshot();
+
+        HollowStringView stringView = new HollowStringView();
+        HollowBytesView bytesView = new HollowBytesView();
+
+        GenericHollowObject obj = new GenericHollowObject(readStateEngine, "TestObject", 0);
+        Assert.assertTrue(obj.getStringView("str", stringView));
+        Assert.assertTrue(stringView.contentEquals("zero"));
+        Assert.assertTrue(obj.getBytesView("bytes", bytesView));
+        Assert.assertArrayEquals(bytes("zero"), bytesView.toByteArray());
+
+        obj = new GenericHollowObject(readStateEngine, "TestObject", 1);
+        Assert.assertFalse(obj.getStringView("str", stringView));
+        Assert.assertFalse(obj.getBytesView("bytes", bytesView));
+        Assert.assertFalse(obj.getStringView("notAField", stringView));
+    }
+
+    @Test
+    public void viewsHeldAcrossDeltasKeepTheirValues() throws IOException {
+        for(int i=0;i<200;i++)
+            addRecord(i, "value" + i);
+        roundTripSnapshot();
+
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState) readStateEngine.getTypeState("TestObject");
+        HollowStringView stringView = new HollowStringView();
+        HollowBytesView bytesView = new HollowBytesView();
+        Assert.assertTrue(typeState.readStringView(100, schema.getPosition("str"), stringView));
+        Assert.assertTrue(typeState.readBytesView(100, schema.getPosition("bytes"), bytesView));
+        String expected = typeState.readString(100, schema.getPosition("str"));
+
+        /// the data replaced by the first delta is recycled by the second
+        for(int cycle=0;cycle<2;cycle++) {
+            for(int i=0;i<200;i++)
+                addRecord(i, "other" + cycle + "-" + i);
+            roundTripDelta();
+        }
+
+        Assert.assertTrue(stringView.contentEquals(expected));
+        Assert.assertEquals(expected, stringView.toString());
+        Assert.assertArrayEquals(bytes(expected), bytesView.toByteArray());
+    }
+
+    @Test
+    public void stringCacheRetainsUnchangedValuesAcrossDeltas() throws IOException {
+        writeStateEngine.setTargetMaxTypeShardSize(256);
+        for(int i=0;i<200;i++)
+            addRecord(i, "value" + i);
+
+        readStateEngine = new HollowReadStateEngine();
+        readStateEngine.enableStringCache("TestObject");
+        StateEngineRoundTripper.roundTripSnapshot(writeStateEngine, readStateEngine);
+
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState) readStateEngine.getTypeState("TestObject");
+        Assert.assertTrue(typeState.isStringCacheEnabled());
+        Assert.assertTrue(typeState.numShards() > 1);
+
+        int strField = schema.getPosition("str");
+        String[] before = new String[200];
+        for(int ordinal=0;ordinal<200;ordinal++) {
+            before[ordinal] = typeState.readString(ordinal, strField);
+            Assert.assertSame(before[ordinal], typeState.readString(ordinal, strField));
+        }
+
+        /// remove every tenth record, and add new records, which may reuse removed ordinals in a later cycle
+        for(int cycle=0;cycle<3;cycle++) {
+            for(int i=0;i<200;i++) {
+                if(i % 10 != cycle)
+                    addRecord(i, "value" + i);
+            }
+            for(int i=0;i<20;i++)
+                addRecord(1000 + cycle * 100 + i, "new" + cycle + "-" + i);
+            roundTripDelta();
+
+            HollowStringView view = new HollowStringView();
+            for(int ordinal=0;ordinal<=typeState.maxOrdinal();ordinal++) {
+                if(!typeState.getPopulatedOrdinals().get(ordinal))
+                    continue;
+
+                String value = typeState.readString(ordinal, strField);
+                int id = typeState.readInt(ordinal, schema.getPosition("id"));
+                String expected = id >= 1000 ? "new" + ((id - 1000) / 100) + "-" + ((id - 1000) % 100) : "value" + id;
+                Assert.assertEquals(expected, value);
+                Assert.assertTrue(typeState.readStringView(ordinal, strField, view));
+                Assert.assertTrue(view.contentEquals(expected));
+
+                /// records which have never been removed keep their cached values
+                if(id < 200 && id % 10 > cycle)
+                    Assert.assertSame(before[ordinal], value);
+            }
+        }
+
+        typeState.setStringCacheEnabled(false);
+        Assert.assertNotSame(before[1], typeState.readString(1, strField));
+        Assert.assertEquals(before[1], typeState.readString(1, strField));
+    }
+
+    private void addRecord(int id, String value) {
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+
+        rec.setInt("id", id);
+        rec.setString("str", value);
+        if(value != null)
+            rec.setBytes("bytes", bytes(value));
+
+        writeStateEngine.add("TestObject", rec);
+    }
+
+    private static byte[] bytes(String value) {
+        byte[] bytes = new byte[value.length()];
+        for(int i=0;i<bytes.length;i++)
+            bytes[i] = (byte) value.charAt(i);
+        return bytes;
+    }
+
+    @Override
+    protected void initializeTypeStates() {
+        writeStateEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+    }
+}
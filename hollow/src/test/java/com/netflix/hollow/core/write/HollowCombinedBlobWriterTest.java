@@ -0,0 +1,191 @@
+package com.netflix.hollow.core.write;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.netflix.hollow.core.read.HollowBlobInput;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowCombinedBlobWriterTest {
+
+    private HollowWriteStateEngine writeStateEngine;
+    private HollowObjectMapper mapper;
+
+    @Before
+    public void setUp() {
+        writeStateEngine = new HollowWriteStateEngine();
+        writeStateEngine.setTargetMaxTypeShardSize(4096);
+        mapper = new HollowObjectMapper(writeStateEngine);
+    }
+
+    @Test
+    public void writesSameBlobsAsSeparateWriters() throws Exception {
+        for(int i=0;i<3000;i++)
+            mapper.add(new Movie(i, 0));
+        HollowReadStateEngine readStateEngine = new HollowReadStateEngine();
+        new HollowBlobReader(readStateEngine).readSnapshot(HollowBlobInput.serial(writeSnapshot(new HollowBlobWriter(writeStateEngine))));
+
+        writeStateEngine.prepareForNextCycle();
+        for(int i=0;i<3500;i++) {
+            if(i % 4 != 0)
+                mapper.add(new Movie(i, i % 5 == 0 ? 1 : 0));
+        }
+
+        HollowBlobWriter writer = new HollowBlobWriter(writeStateEngine);
+        byte[] expectedSnapshot = writeSnapshot(writer);
+        byte[] expectedDelta = writeDelta(writer);
+        byte[] expectedReverseDelta = writeReverseDelta(writer);
+
+        HollowCombinedBlobWriter combinedWriter = new HollowCombinedBlobWriter(writeStateEngine, true, true);
+        CompletableFuture<byte[]> snapshot = CompletableFuture.supplyAsync(() -> writeSnapshot(combinedWriter.snapshotWriter()));
+        CompletableFuture<byte[]> delta = CompletableFuture.supplyAsync(() -> writeDelta(combinedWriter.deltaWriter()));
+        CompletableFuture<byte[]> reverseDelta = CompletableFuture.supplyAsync(() -> writeReverseDelta(combinedWriter.reverseDeltaWriter()));
+
+        assertArrayEquals(expectedSnapshot, snapshot.get());
+        assertArrayEquals(expectedDelta, delta.get());
+        assertArrayEquals(expectedReverseDelta, reverseDelta.get());
+
+        HollowChecksum previousChecksum = HollowChecksum.forStateEngine(readStateEngine);
+        HollowBlobReader reader = new HollowBlobReader(readStateEngine);
+        reader.applyDelta(HollowBlobInput.serial(delta.get()));
+
+        HollowReadStateEngine fromSnapshot = new HollowReadStateEngine();
+        new HollowBlobReader(fromSnapshot).readSnapshot(HollowBlobInput.serial(snapshot.get()));
+        assertEquals(HollowChecksum.forStateEngine(fromSnapshot), HollowChecksum.forStateEngine(readStateEngine));
+
+        reader.applyDelta(HollowBlobInput.serial(reverseDelta.get()));
+        assertEquals(previousChecksum, HollowChecksum.forStateEngine(readStateEngine));
+    }
+
+    @Test
+    public void writesOnlyRequestedBlobs() throws IOException {
+        for(int i=0;i<100;i++)
+            mapper.add(new Movie(i, 0));
+
+        byte[] expectedSnapshot = writeSnapshot(new HollowBlobWriter(writeStateEngine));
+
+        HollowCombinedBlobWriter combinedWriter = new HollowCombinedBlobWriter(writeStateEngine, true, false);
+        assertArrayEquals(expectedSnapshot, writeSnapshot(combinedWriter.snapshotWriter()));
+
+        try {
+            combinedWriter.deltaWriter();
+            fail("expected deltas to be excluded");
+        } catch(IllegalStateException expected) { }
+
+        try {
+            writeDelta(combinedWriter.snapshotWriter());
+            fail("expected snapshot writer to reject a delta");
+        } catch(IllegalStateException expected) { }
+    }
+
+    @Test(timeout = 30000)
+    public void encodesOneTypeStateAtATimeAheadOfTheViews() throws Exception {
+        for(int i=0;i<3000;i++)
+            mapper.add(new Movie(i, 0));
+        writeSnapshot(new HollowBlobWriter(writeStateEngine));
+        writeStateEngine.prepareForNextCycle();
+        for(int i=0;i<3500;i++)
+            mapper.add(new Movie(i, 1));
+
+        HollowBlobWriter writer = new HollowBlobWriter(writeStateEngine);
+        byte[] expectedSnapshot = writeSnapshot(writer);
+        byte[] expectedDelta = writeDelta(writer);
+        byte[] expectedReverseDelta = writeReverseDelta(writer);
+
+        HollowCombinedBlobWriter combinedWriter = new HollowCombinedBlobWriter(writeStateEngine, true, true);
+        combinedWriter.setMaxTypeStatesInFlight(1);
+        CompletableFuture<byte[]> snapshot = CompletableFuture.supplyAsync(() -> writeSnapshot(combinedWriter.snapshotWriter()));
+        CompletableFuture<byte[]> delta = CompletableFuture.supplyAsync(() -> writeDelta(combinedWriter.deltaWriter()));
+        CompletableFuture<byte[]> reverseDelta = CompletableFuture.supplyAsync(() -> writeReverseDelta(combinedWriter.reverseDeltaWriter()));
+
+        assertArrayEquals(expectedSnapshot, snapshot.get());
+        assertArrayEquals(expectedDelta, delta.get());
+        assertArrayEquals(expectedReverseDelta, reverseDelta.get());
+    }
+
+    @Test(timeout = 30000)
+    public void failedOrReleasedViewsDoNotHoldBackTheOthers() throws Exception {
+        for(int i=0;i<3000;i++)
+            mapper.add(new Movie(i, 0));
+        writeSnapshot(new HollowBlobWriter(writeStateEngine));
+        writeStateEngine.prepareForNextCycle();
+        for(int i=0;i<3500;i++)
+            mapper.add(new Movie(i, 1));
+
+        byte[] expectedSnapshot = writeSnapshot(new HollowBlobWriter(writeStateEngine));
+
+        HollowCombinedBlobWriter combinedWriter = new HollowCombinedBlobWriter(writeStateEngine, true, true);
+        combinedWriter.setMaxTypeStatesInFlight(1);
+        HollowBlobWriter deltaWriter = combinedWriter.deltaWriter();
+        CompletableFuture<byte[]> snapshot = CompletableFuture.supplyAsync(() -> writeSnapshot(combinedWriter.snapshotWriter()));
+        CompletableFuture<Void> delta = CompletableFuture.runAsync(() -> {
+            try {
+                deltaWriter.writeDelta(new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("output failed");
+                    }
+                });
+            } catch(IOException expected) { }
+        });
+        combinedWriter.release(combinedWriter.reverseDeltaWriter());
+
+        delta.get();
+        assertArrayEquals(expectedSnapshot, snapshot.get());
+    }
+
+    private static byte[] writeSnapshot(HollowBlobWriter writer) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            writer.writeSnapshot(baos);
+        } catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] writeDelta(HollowBlobWriter writer) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            writer.writeDelta(baos);
+        } catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] writeReverseDelta(HollowBlobWriter writer) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            writer.writeReverseDelta(baos);
+        } catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        String title;
+        List<Integer> tags;
+
+        Movie(int id, int revision) {
+            this.id = id;
+            this.title = "title" + id + "-" + revision;
+            this.tags = Arrays.asList(id, id + revision);
+        }
+    }
+}
@@ -38,6 +38,7 @@ import com.netflix.hollow.tools.diff.count.HollowFieldDiff;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -308,6 +309,59 @@ public class HollowDiffTest {
         }
     }
 
+    @Test
+    public void testProgressiveDiffWithBoundedDiffPairs() throws IOException {
+        HollowWriteStateEngine fromStateEngine = newWriteStateEngine();
+        HollowWriteStateEngine toStateEngine = newWriteStateEngine();
+        for(int i=0;i<10000;i++) {
+            addDRec(fromStateEngine, d(i, i, new byte[] { 1 }));
+            addDRec(toStateEngine, d(i, i, new byte[] { (byte)(i % 4 == 0 ? 2 : 1) }));
+        }
+
+        HollowReadStateEngine fromReadEngine = readEngine(fromStateEngine);
+        HollowReadStateEngine toReadEngine = readEngine(toStateEngine);
+
+        HollowDiff unboundedDiff = new HollowDiff(fromReadEngine, toReadEngine, false);
+        unboundedDiff.addTypeDiff("TypeD", "d1", "d2");
+        unboundedDiff.calculateDiffs();
+        HollowFieldDiff unboundedFieldDiff = unboundedDiff.getTypeDiff("TypeD").getFieldDiffs().get(0);
+        Assert.assertEquals(2500, unboundedFieldDiff.getNumDiffs());
+        Assert.assertEquals(2500, unboundedFieldDiff.getTotalNumDiffs());
+
+        final AtomicInteger rangeDiffs = new AtomicInteger();
+        final AtomicInteger maxMatchesDiffed = new AtomicInteger();
+        final AtomicInteger typesCalculated = new AtomicInteger();
+        HollowDiff diff = new HollowDiff(fromReadEngine, toReadEngine, false);
+        diff.addTypeDiff("TypeD", "d1", "d2");
+        diff.setMaxDiffPairsPerField(100);
+        diff.addListener(new HollowDiffListener() {
+            @Override
+            public void rangeDiffCalculated(HollowTypeDiff typeDiff, List<HollowFieldDiff> fieldDiffs, int numMatchesDiffed) {
+                for(HollowFieldDiff fieldDiff : fieldDiffs)
+                    rangeDiffs.addAndGet(fieldDiff.getTotalNumDiffs());
+                maxMatchesDiffed.accumulateAndGet(numMatchesDiffed, Math::max);
+            }
+
+            @Override
+            public void typeDiffCalculated(HollowTypeDiff typeDiff) {
+                Assert.assertNotNull(typeDiff.getFieldDiffs());
+                typesCalculated.incrementAndGet();
+            }
+        });
+        diff.calculateDiffs();
+
+        Assert.assertEquals(2500, rangeDiffs.get());
+        Assert.assertEquals(10000, maxMatchesDiffed.get());
+        Assert.assertEquals(1, typesCalculated.get());
+
+        HollowTypeDiff typeDiff = diff.getTypeDiff("TypeD");
+        Assert.assertEquals(10000, typeDiff.getNumberOfMatchesDiffed());
+        HollowFieldDiff fieldDiff = typeDiff.getFieldDiffs().get(0);
+        Assert.assertEquals(100, fieldDiff.getNumDiffs());
+        Assert.assertEquals(2500, fieldDiff.getTotalNumDiffs());
+        Assert.assertEquals(unboundedFieldDiff.getTotalDiffScore(), fieldDiff.getTotalDiffScore());
+    }
+
     private void assertContainsFieldDiff(List<HollowFieldDiff> diffs, String fieldId, int numDiffPairs, int totalDiffScores) {
         for(HollowFieldDiff diff : diffs) {
             if(fieldId.equals(diff.getFieldIdentifier().toString())) {
@@ -27,7 +27,11 @@ import com.netflix.hollow.core.write.HollowWriteStateEngine;
 import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -131,6 +135,49 @@ public class FilteredHollowBlobWriterTest {
         Assert.assertEquals(2, readEngine.getTypeState("TypeB").getPopulatedOrdinals().cardinality());
     }
 
+    @Test
+    public void filtersFileToManyBlobs() throws IOException {
+        HollowFilterConfig partialConfig = new HollowFilterConfig(true);
+        partialConfig.addType("String");
+        partialConfig.addField("TypeA", "value");
+
+        HollowFilterConfig wholeTypeConfig = new HollowFilterConfig(true);
+        wholeTypeConfig.addType("TypeA");
+
+        HollowFilterConfig unfilteredConfig = new HollowFilterConfig(true);
+
+        FilteredHollowBlobWriter blobWriter = new FilteredHollowBlobWriter(partialConfig, wholeTypeConfig, unfilteredConfig);
+
+        assertFiltersFileLikeStream(blobWriter, false, snapshotData);
+        assertFiltersFileLikeStream(blobWriter, true, deltaData);
+        assertFiltersFileLikeStream(blobWriter, true, removeOnlyDeltaData);
+    }
+
+    private void assertFiltersFileLikeStream(FilteredHollowBlobWriter blobWriter, boolean delta, byte[] blob) throws IOException {
+        ByteArrayOutputStream expected[] = new ByteArrayOutputStream[] { new ByteArrayOutputStream(), new ByteArrayOutputStream(), new ByteArrayOutputStream() };
+        blobWriter.filter(delta, new ByteArrayInputStream(blob), expected);
+
+        File blobFile = File.createTempFile("filtered-blob-writer", "blob");
+        File filteredFile = File.createTempFile("filtered-blob-writer", "filtered");
+        try {
+            Files.write(blobFile.toPath(), blob);
+
+            ByteArrayOutputStream filteredStream = new ByteArrayOutputStream();
+            ByteArrayOutputStream unfilteredStream = new ByteArrayOutputStream();
+            try(OutputStream filteredFileStream = new FileOutputStream(filteredFile)) {
+                blobWriter.filter(delta, blobFile, filteredStream, filteredFileStream, unfilteredStream);
+            }
+
+            Assert.assertArrayEquals(expected[0].toByteArray(), filteredStream.toByteArray());
+            Assert.assertArrayEquals(expected[1].toByteArray(), Files.readAllBytes(filteredFile.toPath()));
+            Assert.assertArrayEquals(expected[2].toByteArray(), unfilteredStream.toByteArray());
+            Assert.assertArrayEquals(blob, unfilteredStream.toByteArray());
+        } finally {
+            blobFile.delete();
+            filteredFile.delete();
+        }
+    }
+
     @SuppressWarnings("unused")
     private static class TypeA {
         int id;
@@ -30,7 +30,9 @@ import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
 import com.netflix.hollow.core.write.HollowObjectWriteRecord;
 import com.netflix.hollow.tools.history.keyindex.HollowHistoryKeyIndex;
 import com.netflix.hollow.tools.history.keyindex.HollowHistoryTypeKeyIndex;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Map;
 import org.junit.Assert;
 import org.junit.Before;
@@ -374,6 +376,82 @@ public class HollowHistoryTest extends AbstractStateEngineTest {
         }
     }
 
+    @Test
+    public void testSpilledHistoricalStates() throws IOException {
+        File spillDirectory = Files.createTempDirectory("hollow-history-spill").toFile();
+        try {
+            addRecord(1, 2, 3);
+            addRecord(2, 3, 4);
+            addRecord(3, 4, 5);
+            addRecord(4, 5, 6);
+
+            roundTripSnapshot();
+
+            HollowHistory history = new HollowHistory(readStateEngine, 1L, 5);
+            history.spillHistoricalStates(spillDirectory, 1, 1);
+
+            addRecord(1, 2, 3);
+            addRecord(3, 4, 5);
+            addRecord(4, 5, 6);
+            addRecord(2, 3, 7);
+
+            roundTripDelta();
+            history.deltaOccurred(2L);
+
+            addRecord(1, 2, 3);
+            addRecord(3, 4, 7);
+            addRecord(4, 5, 6);
+            addRecord(2, 3, 7);
+
+            roundTripDelta();
+            history.deltaOccurred(3L);
+
+            Assert.assertNull(history.getHistoricalState(3L).getDataAccess().getSpillFile());
+            Assert.assertTrue(history.getHistoricalState(2L).getDataAccess().getSpillFile().exists());
+
+            addRecord(4, 5, 7);
+            addRecord(1, 2, 3);
+            addRecord(2, 3, 7);
+
+            roundTripSnapshot();
+            history.doubleSnapshotOccurred(readStateEngine, 4L);
+
+            addRecord(1, 2, 3);
+            addRecord(3, 4, 7);
+            addRecord(5, 6, 7);
+
+            roundTripDelta();
+            history.deltaOccurred(5L);
+
+            Assert.assertEquals(3, spillDirectory.listFiles().length);
+
+            assertRecord(retrieveRemovedRecord(history, 2L, 2), 2, 3, 4);
+            assertRecord(retrieveAddedRecord  (history, 2L, 2), 2, 3, 7);
+
+            assertRecord(retrieveRemovedRecord(history, 3L, 3), 3, 4, 5);
+            assertRecord(retrieveAddedRecord  (history, 3L, 3), 3, 4, 7);
+
+            assertRecord(retrieveRemovedRecord(history, 4L, 4), 4, 5, 6);
+            assertRecord(retrieveAddedRecord  (history, 4L, 4), 4, 5, 7);
+            assertRecord(retrieveRemovedRecord(history, 4L, 3), 3, 4, 7);
+
+            assertRecord(retrieveRemovedRecord(history, 5L, 4), 4, 5, 7);
+            assertRecord(retrieveRemovedRecord(history, 5L, 2), 2, 3, 7);
+            assertRecord(retrieveAddedRecord  (history, 5L, 5), 5, 6, 7);
+
+            /// re-reads the states which have been unloaded
+            assertRecord(retrieveRemovedRecord(history, 2L, 2), 2, 3, 4);
+            assertRecord(retrieveRemovedRecord(history, 3L, 3), 3, 4, 5);
+
+            history.removeHistoricalStates(history.getNumberOfHistoricalStates());
+            Assert.assertEquals(0, spillDirectory.listFiles().length);
+        } finally {
+            for(File f : spillDirectory.listFiles())
+                f.delete();
+            spillDirectory.delete();
+        }
+    }
+
     private void setupKeyIndex(HollowReadStateEngine stateEngine, HollowHistory history) {
         HollowHistoryKeyIndex keyIndex = history.getKeyIndex();
         for (String type : stateEngine.getAllTypes()) {
@@ -0,0 +1,397 @@
+/*
+ *  Copyright 2021 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.tools.patch.delta;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.api.consumer.InMemoryBlobStore;
+import com.netflix.hollow.api.consumer.fs.HollowFilesystemBlobRetriever;
+import com.netflix.hollow.api.consumer.metrics.AbstractRefreshMetricsListener;
+import com.netflix.hollow.api.consumer.metrics.ConsumerRefreshMetrics;
+import com.netflix.hollow.api.producer.HollowProducer;
+import com.netflix.hollow.api.producer.fs.HollowFilesystemPublisher;
+import com.netflix.hollow.api.producer.fs.HollowInMemoryBlobStager;
+import com.netflix.hollow.core.memory.MemoryMode;
+import com.netflix.hollow.core.read.HollowBlobInput;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HollowStateDeltaSquasherTest {
+
+    @Test
+    public void squashedDeltaReachesTheSameState() throws IOException {
+        assertSquashedChainsReachTheSameState(new HollowWriteStateEngine(), 12, 1);
+    }
+
+    @Test
+    public void squashedDeltaReachesTheSameStateWithShards() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(64);
+        assertSquashedChainsReachTheSameState(writeEngine, 8, 4);
+    }
+
+    @Test
+    public void squashedReverseDeltaReachesTheSameState() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        Random rand = new Random(7);
+
+        List<byte[]> snapshots = new ArrayList<>();
+        List<byte[]> reverseDeltas = new ArrayList<>();
+        for(int cycle=0;cycle<6;cycle++) {
+            addRecords(mapper, rand, cycle);
+            writeEngine.prepareForWrite();
+            HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+            snapshots.add(snapshot(writer));
+            if(cycle > 0) {
+                ByteArrayOutputStream reverseDelta = new ByteArrayOutputStream();
+                writer.writeReverseDelta(reverseDelta);
+                reverseDeltas.add(0, reverseDelta.toByteArray());
+            }
+            writeEngine.prepareForNextCycle();
+        }
+
+        HollowStateDeltaSquasher squasher = new HollowStateDeltaSquasher();
+        for(byte[] reverseDelta : reverseDeltas)
+            squasher.addDelta(new ByteArrayInputStream(reverseDelta));
+
+        HollowReadStateEngine squashed = readSnapshot(snapshots.get(snapshots.size() - 1));
+        new HollowBlobReader(squashed).applyDelta(HollowBlobInput.serial(squash(squasher)));
+
+        assertSameState(readSnapshot(snapshots.get(0)), squashed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deltasMustFormAChain() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        Random rand = new Random(3);
+
+        List<byte[]> deltas = new ArrayList<>();
+        for(int cycle=0;cycle<4;cycle++) {
+            addRecords(mapper, rand, cycle);
+            writeEngine.prepareForWrite();
+            if(cycle > 0) {
+                ByteArrayOutputStream delta = new ByteArrayOutputStream();
+                new HollowBlobWriter(writeEngine).writeDelta(delta);
+                deltas.add(delta.toByteArray());
+            }
+            writeEngine.prepareForNextCycle();
+        }
+
+        HollowStateDeltaSquasher squasher = new HollowStateDeltaSquasher();
+        squasher.addDelta(new ByteArrayInputStream(deltas.get(0)));
+        squasher.addDelta(new ByteArrayInputStream(deltas.get(2)));
+    }
+
+    @Test
+    public void consumerSquashesLongDeltaChains() throws Exception {
+        InMemoryBlobStore blobStore = new InMemoryBlobStore();
+        HollowProducer producer = HollowProducer.withPublisher(blobStore)
+                .withBlobStager(new HollowInMemoryBlobStager())
+                .build();
+
+        Random rand = new Random(11);
+        long firstVersion = producer.runCycle(ws -> addRecords(ws.getObjectMapper(), rand, 0));
+
+        List<ConsumerRefreshMetrics> refreshMetrics = new ArrayList<>();
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(blobStore)
+                .withDeltaSquashing(2)
+                .withRefreshListener(new AbstractRefreshMetricsListener() {
+                    @Override
+                    public void refreshEndMetricsReporting(ConsumerRefreshMetrics metrics) {
+                        refreshMetrics.add(metrics);
+                    }
+                })
+                .build();
+        consumer.triggerRefreshTo(firstVersion);
+
+        long lastVersion = firstVersion;
+        for(int cycle=1;cycle<=6;cycle++) {
+            int c = cycle;
+            lastVersion = producer.runCycle(ws -> addRecords(ws.getObjectMapper(), rand, c));
+        }
+
+        consumer.triggerRefreshTo(lastVersion);
+        Assert.assertEquals(lastVersion, consumer.getCurrentVersionId());
+        Assert.assertEquals(1, refreshMetrics.get(1).getUpdatePlanDetails().getNumSuccessfulTransitions());
+
+        HollowConsumer chained = HollowConsumer.withBlobRetriever(blobStore).build();
+        chained.triggerRefreshTo(firstVersion);
+        chained.triggerRefreshTo(lastVersion);
+        assertSameState(chained.getStateEngine(), consumer.getStateEngine());
+
+        /// a delta within the threshold is applied as is
+        long nextVersion = producer.runCycle(ws -> addRecords(ws.getObjectMapper(), rand, 7));
+        consumer.triggerRefreshTo(nextVersion);
+        chained.triggerRefreshTo(nextVersion);
+        assertSameState(chained.getStateEngine(), consumer.getStateEngine());
+    }
+
+    @Test
+    public void consumerSquashesLongDeltaChainsInSharedMemoryMode() throws Exception {
+        File localDir = Files.createTempDirectory("hollow-squash").toFile();
+        localDir.deleteOnExit();
+        HollowProducer producer = HollowProducer.withPublisher(new HollowFilesystemPublisher(localDir.toPath()))
+                .build();
+
+        Random rand = new Random(17);
+        long firstVersion = producer.runCycle(ws -> addRecords(ws.getObjectMapper(), rand, 0));
+
+        List<ConsumerRefreshMetrics> refreshMetrics = new ArrayList<>();
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(new HollowFilesystemBlobRetriever(localDir.toPath()))
+                .withMemoryMode(MemoryMode.SHARED_MEMORY_LAZY)
+                .withDeltaSquashing(2)
+                .withRefreshListener(new AbstractRefreshMetricsListener() {
+                    @Override
+                    public void refreshEndMetricsReporting(ConsumerRefreshMetrics metrics) {
+                        refreshMetrics.add(metrics);
+                    }
+                })
+                .build();
+        consumer.triggerRefreshTo(firstVersion);
+
+        long lastVersion = firstVersion;
+        for(int cycle=1;cycle<=5;cycle++) {
+            int c = cycle;
+            lastVersion = producer.runCycle(ws -> addRecords(ws.getObjectMapper(), rand, c));
+        }
+
+        consumer.triggerRefreshTo(lastVersion);
+        Assert.assertEquals(lastVersion, consumer.getCurrentVersionId());
+        Assert.assertEquals(1, refreshMetrics.get(1).getUpdatePlanDetails().getNumSuccessfulTransitions());
+
+        /// the squashed delta is written next to the deltas, and deleted once applied
+        String[] squashedFiles = localDir.list((dir, name) -> name.startsWith("squasheddelta-"));
+        Assert.assertEquals(0, squashedFiles.length);
+
+        HollowConsumer chained = HollowConsumer.withBlobRetriever(new HollowFilesystemBlobRetriever(localDir.toPath()))
+                .withMemoryMode(MemoryMode.SHARED_MEMORY_LAZY)
+                .build();
+        chained.triggerRefreshTo(firstVersion);
+        chained.triggerRefreshTo(lastVersion);
+        assertSameState(chained.getStateEngine(), consumer.getStateEngine());
+    }
+
+    @Test
+    public void consumerAppliesDeltasInTurnIfTheyCannotBeSquashed() throws Exception {
+        InMemoryBlobStore blobStore = new InMemoryBlobStore();
+        HollowProducer producer = HollowProducer.withPublisher(blobStore)
+                .withBlobStager(new HollowInMemoryBlobStager())
+                .build();
+
+        Random rand = new Random(13);
+        long firstVersion = producer.runCycle(ws -> addRecords(ws.getObjectMapper(), rand, 0));
+
+        /// the first retrieval of a delta fails, as if the blob store were briefly unavailable
+        AtomicBoolean failed = new AtomicBoolean();
+        HollowConsumer.BlobRetriever flakyRetriever = new HollowConsumer.BlobRetriever() {
+            @Override
+            public HollowConsumer.Blob retrieveSnapshotBlob(long desiredVersion) {
+                return blobStore.retrieveSnapshotBlob(desiredVersion);
+            }
+
+            @Override
+            public HollowConsumer.Blob retrieveDeltaBlob(long currentVersion) {
+                HollowConsumer.Blob delta = blobStore.retrieveDeltaBlob(currentVersion);
+                if(delta == null)
+                    return null;
+                return new HollowConsumer.Blob(delta.getFromVersion(), delta.getToVersion()) {
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        if(failed.compareAndSet(false, true))
+                            throw new IOException("retrieval failed");
+                        return delta.getInputStream();
+                    }
+                };
+            }
+
+            @Override
+            public HollowConsumer.Blob retrieveReverseDeltaBlob(long currentVersion) {
+                return blobStore.retrieveReverseDeltaBlob(currentVersion);
+            }
+        };
+
+        List<ConsumerRefreshMetrics> refreshMetrics = new ArrayList<>();
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(flakyRetriever)
+                .withDeltaSquashing(2)
+                .withRefreshListener(new AbstractRefreshMetricsListener() {
+                    @Override
+                    public void refreshEndMetricsReporting(ConsumerRefreshMetrics metrics) {
+                        refreshMetrics.add(metrics);
+                    }
+                })
+                .build();
+        consumer.triggerRefreshTo(firstVersion);
+
+        long lastVersion = firstVersion;
+        for(int cycle=1;cycle<=4;cycle++) {
+            int c = cycle;
+            lastVersion = producer.runCycle(ws -> addRecords(ws.getObjectMapper(), rand, c));
+        }
+
+        /// only the first delta fails to be retrieved for squashing, and is retrieved again to be applied in turn
+        consumer.triggerRefreshTo(lastVersion);
+        Assert.assertEquals(lastVersion, consumer.getCurrentVersionId());
+        Assert.assertEquals(4, refreshMetrics.get(1).getUpdatePlanDetails().getNumSuccessfulTransitions());
+
+        HollowConsumer chained = HollowConsumer.withBlobRetriever(blobStore).build();
+        chained.triggerRefreshTo(firstVersion);
+        chained.triggerRefreshTo(lastVersion);
+        assertSameState(chained.getStateEngine(), consumer.getStateEngine());
+    }
+
+    private void assertSquashedChainsReachTheSameState(HollowWriteStateEngine writeEngine, int numCycles, int expectedNumShards) throws IOException {
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        Random rand = new Random(42);
+
+        List<byte[]> snapshots = new ArrayList<>();
+        List<byte[]> deltas = new ArrayList<>();
+        for(int cycle=0;cycle<numCycles;cycle++) {
+            addRecords(mapper, rand, cycle);
+            writeEngine.prepareForWrite();
+            HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+            snapshots.add(snapshot(writer));
+            if(cycle > 0) {
+                ByteArrayOutputStream delta = new ByteArrayOutputStream();
+                writer.writeDelta(delta);
+                deltas.add(delta.toByteArray());
+            }
+            writeEngine.prepareForNextCycle();
+        }
+
+        for(int from=0;from<numCycles-2;from++) {
+            for(int to=from+2;to<numCycles;to++) {
+                HollowStateDeltaSquasher squasher = new HollowStateDeltaSquasher();
+                for(int i=from;i<to;i++)
+                    squasher.addDelta(new ByteArrayInputStream(deltas.get(i)));
+
+                HollowReadStateEngine squashed = readSnapshot(snapshots.get(from));
+                Assert.assertEquals(expectedNumShards, squashed.getTypeState("Movie").numShards());
+                HollowBlobReader reader = new HollowBlobReader(squashed);
+                reader.applyDelta(HollowBlobInput.serial(squash(squasher)));
+                assertSameState(readSnapshot(snapshots.get(to)), squashed);
+
+                /// the deltas which follow the chain apply to the squashed state
+                for(int i=to;i<deltas.size();i++) {
+                    reader.applyDelta(HollowBlobInput.serial(deltas.get(i)));
+                    assertSameState(readSnapshot(snapshots.get(i + 1)), squashed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds records which are partly carried over from the previous cycle, with ranges of values which grow over the
+     * cycles so that field widths change within a chain.
+     */
+    private static void addRecords(HollowObjectMapper mapper, Random rand, int cycle) {
+        for(int i=0;i<40;i++) {
+            int id = rand.nextInt(4) == 0 ? rand.nextInt(50 << cycle) : i;
+            int seed = rand.nextInt(3) == 0 ? rand.nextInt(1 << (cycle + 4)) : i;
+            mapper.add(new Movie(id, seed, cycle));
+        }
+    }
+
+    private static byte[] snapshot(HollowBlobWriter writer) throws IOException {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        writer.writeSnapshot(snapshot);
+        return snapshot.toByteArray();
+    }
+
+    private static byte[] squash(HollowStateDeltaSquasher squasher) throws IOException {
+        ByteArrayOutputStream squashed = new ByteArrayOutputStream();
+        squasher.writeSquashedDelta(squashed);
+        return squashed.toByteArray();
+    }
+
+    private static HollowReadStateEngine readSnapshot(byte[] snapshot) throws IOException {
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        new HollowBlobReader(readEngine).readSnapshot(HollowBlobInput.serial(snapshot));
+        return readEngine;
+    }
+
+    private static void assertSameState(HollowReadStateEngine expected, HollowReadStateEngine actual) {
+        for(String type : expected.getAllTypes())
+            Assert.assertEquals(type, expected.getTypeState(type).getPopulatedOrdinals(), actual.getTypeState(type).getPopulatedOrdinals());
+        Assert.assertEquals(HollowChecksum.forStateEngineWithCommonSchemas(expected, actual),
+                HollowChecksum.forStateEngineWithCommonSchemas(actual, expected));
+    }
+
+    @SuppressWarnings("unused")
+    static class Movie {
+        int id;
+        long budget;
+        String title;
+        Double rating;
+        List<Actor> actors;
+        Set<String> tags;
+        Map<String, Integer> awards;
+
+        Movie(int id, int seed, int cycle) {
+            Random rand = new Random(seed);
+            this.id = id;
+            this.budget = (long) rand.nextInt(1 << (cycle + 8)) << cycle;
+            this.title = rand.nextInt(5) == 0 ? null : "title" + seed + "-" + repeat(rand.nextInt(cycle + 2));
+            this.rating = rand.nextInt(4) == 0 ? null : (double) rand.nextInt(10);
+            this.actors = new ArrayList<>();
+            for(int i=rand.nextInt(2 + cycle);i>0;i--)
+                actors.add(new Actor("actor" + rand.nextInt(20 + cycle * 10)));
+            this.tags = new HashSet<>();
+            for(int i=rand.nextInt(2 + cycle);i>0;i--)
+                tags.add("tag" + rand.nextInt(10 + cycle * 5));
+            this.awards = new HashMap<>();
+            for(int i=rand.nextInt(2 + cycle);i>0;i--)
+                awards.put("award" + rand.nextInt(10 + cycle * 5), rand.nextInt(1 << (cycle + 2)));
+        }
+
+        private static String repeat(int count) {
+            StringBuilder sb = new StringBuilder();
+            for(int i=0;i<count;i++)
+                sb.append("-long");
+            return sb.toString();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static class Actor {
+        String name;
+
+        Actor(String name) {
+            this.name = name;
+        }
+    }
+}
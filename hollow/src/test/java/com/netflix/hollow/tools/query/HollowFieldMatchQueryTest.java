@@ -16,6 +16,8 @@
  */
 package com.netflix.hollow.tools.query;
 
+import com.netflix.hollow.core.index.HollowHashIndex;
+import com.netflix.hollow.core.index.HollowPrimaryKeyIndex;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.util.StateEngineRoundTripper;
 import com.netflix.hollow.core.write.HollowWriteStateEngine;
@@ -29,12 +31,14 @@ import org.junit.Test;
 
 public class HollowFieldMatchQueryTest {
     
+    private HollowWriteStateEngine writeEngine;
+    private HollowObjectMapper mapper;
     private HollowReadStateEngine stateEngine;
     
     @Before
     public void setUp() throws IOException {
-        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
-        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        writeEngine = new HollowWriteStateEngine();
+        mapper = new HollowObjectMapper(writeEngine);
         
         mapper.add(new TypeA(1, 100));
         mapper.add(new TypeA(2, 200));
@@ -86,6 +90,86 @@ public class HollowFieldMatchQueryTest {
         Assert.assertTrue(matches.get("TypeB").get(3));
     }
 
+    @Test
+    public void matchesRecordsOfLargeTypes() throws IOException {
+        for(int i=0;i<100000;i++)
+            mapper.add(new TypeC(i, i % 7));
+        stateEngine = StateEngineRoundTripper.roundTripSnapshot(writeEngine);
+        HollowFieldMatchQuery query = new HollowFieldMatchQuery(stateEngine);
+
+        Map<String, BitSet> matches = query.findMatchingRecords("TypeC", "cValue", "3");
+
+        BitSet typeCMatches = matches.get("TypeC");
+        Assert.assertEquals(14286, typeCMatches.cardinality());
+        for(int ordinal = typeCMatches.nextSetBit(0); ordinal != -1; ordinal = typeCMatches.nextSetBit(ordinal + 1))
+            Assert.assertEquals(3, ordinal % 7);
+    }
+
+    @Test
+    public void matchesRecordsWithIndexes() throws IOException {
+        HollowPrimaryKeyIndex primaryKeyIndex = new HollowPrimaryKeyIndex(stateEngine, "TypeA", "id");
+        primaryKeyIndex.listenForDeltaUpdates();
+        HollowFieldMatchQuery query = new HollowFieldMatchQuery(stateEngine);
+        query.addIndex(new HollowHashIndex(stateEngine, "TypeB", "", "id.value"));
+
+        Map<String, BitSet> matches = query.findMatchingRecords("id", "3");
+        Assert.assertEquals(2, matches.size());
+        Assert.assertEquals(1, matches.get("TypeA").cardinality());
+        Assert.assertTrue(matches.get("TypeA").get(2));
+        Assert.assertEquals(1, matches.get("TypeB").cardinality());
+        Assert.assertTrue(matches.get("TypeB").get(2));
+
+        Assert.assertTrue(query.findMatchingRecords("id", "5").isEmpty());
+
+        mapper.add(new TypeA(5, 500));
+        StateEngineRoundTripper.roundTripDelta(writeEngine, stateEngine);
+
+        matches = query.findMatchingRecords("id", "5");
+        Assert.assertEquals(1, matches.size());
+        Assert.assertTrue(matches.get("TypeA").get(4));
+    }
+
+    @Test
+    public void doesNotUseAddedIndexesAfterStateIsUpdated() throws IOException {
+        HollowFieldMatchQuery query = new HollowFieldMatchQuery(stateEngine);
+        query.addIndex(new HollowPrimaryKeyIndex(stateEngine, "TypeA", "id"));
+        query.addIndex(new HollowHashIndex(stateEngine, "TypeB", "", "id.value"));
+
+        Assert.assertTrue(query.findMatchingRecords("id", "5").isEmpty());
+
+        mapper.add(new TypeA(5, 500));
+        mapper.add(new TypeB("5", 5.5f));
+        StateEngineRoundTripper.roundTripDelta(writeEngine, stateEngine);
+
+        /// the indexes don't listen for delta updates, so the records of the updated state are scanned instead
+        Map<String, BitSet> matches = query.findMatchingRecords("id", "5");
+        Assert.assertEquals(2, matches.size());
+        Assert.assertTrue(matches.get("TypeA").get(4));
+        Assert.assertTrue(matches.get("TypeB").get(4));
+    }
+
+    @Test
+    public void cachesMatchesUntilStateIsUpdated() throws IOException {
+        HollowFieldMatchQuery query = new HollowFieldMatchQuery(stateEngine);
+
+        Map<String, BitSet> matches = query.findMatchingRecords("aValue", "100");
+        Assert.assertEquals(2, matches.get("TypeA").cardinality());
+
+        /// the returned matches are a copy of those which are cached
+        matches.get("TypeA").clear();
+        matches.clear();
+        Assert.assertEquals(2, query.findMatchingRecords("aValue", "100").get("TypeA").cardinality());
+
+        mapper.add(new TypeA(1, 100));
+        mapper.add(new TypeA(5, 100));
+        StateEngineRoundTripper.roundTripDelta(writeEngine, stateEngine);
+
+        matches = query.findMatchingRecords("aValue", "100");
+        Assert.assertEquals(2, matches.get("TypeA").cardinality());
+        Assert.assertTrue(matches.get("TypeA").get(0));
+        Assert.assertTrue(matches.get("TypeA").get(4));
+    }
+
     @SuppressWarnings("unused")
     private static class TypeA {
         int id;
@@ -105,4 +189,14 @@ public class HollowFieldMatchQueryTest {
             this.bValue = bValue;
         }
     }
+
+    @SuppressWarnings("unused")
+    private static class TypeC {
+        int id;
+        int cValue;
+        public TypeC(int id, int cValue) {
+            this.id = id;
+            this.cValue = cValue;
+        }
+    }
 }